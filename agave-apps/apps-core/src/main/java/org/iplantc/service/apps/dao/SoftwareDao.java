@@ -93,6 +93,69 @@ public class SoftwareDao
 		}
 	}
 
+	/**
+	 * Returns an opaque version of the {@link Software} with the given unique name in the
+	 * current tenant. The version changes whenever the app is updated, revised, enabled,
+	 * disabled, or its execution system is updated, so it can be used to check whether a
+	 * previously loaded app is still current without loading the full app.
+	 *
+	 * @param uniqueName the {@link Software#getUniqueName()} of the app
+	 * @return the current version of the app, or null if no app matches
+	 * @throws SoftwareException if the version cannot be read
+	 */
+	public static String getSnapshotVersion(String uniqueName)
+	{
+		if (StringUtils.isEmpty(uniqueName)) {
+			return null;
+		}
+
+		try
+		{
+			// match the same apps as getSoftwareByUniqueName. public apps carry their revision in the unique name
+			boolean isPublic = uniqueName.toLowerCase().matches(".*u\\d+");
+			String sql = "select concat_ws('|', s.id, s.last_updated, s.available, s.revision_count, "
+					+ "			ifnull(s.checksum, ''), ifnull(sys.last_updated, '')) as version "
+					+ "from softwares s "
+					+ "		left join systems sys on sys.id = s.system_id "
+					+ "where " + (isPublic ?
+						"concat(lower(s.name), '-', lower(s.version), 'u', s.revision_count) = lower(:uniquename) " :
+						"concat(lower(s.name), '-', lower(s.version)) = lower(:uniquename) ")
+					+ "		and s.publicly_available = :publiclyavailable "
+					+ "		and s.tenant_id = :tenantid "
+					+ "order by s.id asc";
+
+			Session session = getSession();
+
+			String version = (String) session.createSQLQuery(sql)
+					.addScalar("version", org.hibernate.type.StandardBasicTypes.STRING)
+					.setString("uniquename", uniqueName)
+					.setBoolean("publiclyavailable", isPublic)
+					.setString("tenantid", TenancyHelper.getCurrentTenantId())
+					.setMaxResults(1)
+					.uniqueResult();
+
+			session.flush();
+
+			return version;
+		}
+		catch (HibernateException ex)
+		{
+			try
+			{
+				if (HibernateUtil.getSession().isOpen()) {
+					HibernateUtil.rollbackTransaction();
+				}
+			}
+			catch (Exception ignored) {}
+
+			throw new SoftwareException(ex);
+		}
+		finally
+		{
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+
 	public static Software get(Long softwareId)
 	{
 		try
@@ -213,6 +276,54 @@ public class SoftwareDao
 	{
 		return getAll(false);
 	}
+
+	/**
+	 * Returns active public apps across all tenants that were published after the given date,
+	 * oldest first. Used by workers to warm local caches of public app assets.
+	 *
+	 * @param since the exclusive lower bound on the publication date
+	 * @return list of public apps published after the given date
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Software> getPublicPublishedSince(Date since)
+	{
+		try
+		{
+			HibernateUtil.beginTransaction();
+			Session session = HibernateUtil.getSession();
+			session.disableFilter("softwareTenantFilter");
+
+			String hql = "FROM Software AS sw " +
+					"WHERE sw.publiclyAvailable = :publiclyAvailable " +
+					"	AND sw.available = :available " +
+					"	AND sw.created > :since " +
+					"ORDER BY sw.created ASC";
+
+			return (List<Software>) session.createQuery(hql)
+					.setBoolean("publiclyAvailable", true)
+					.setBoolean("available", true)
+					.setTimestamp("since", since)
+					.list();
+		}
+		catch (HibernateException ex)
+		{
+			try
+			{
+				if (HibernateUtil.getSession().isOpen())
+				{
+					HibernateUtil.rollbackTransaction();
+				}
+			}
+			catch (Exception ignored)
+			{
+			}
+			throw new SoftwareException(ex);
+		}
+		finally
+		{
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
 	
 	
     /**
@@ -0,0 +1,70 @@
+package org.iplantc.service.apps.dao;
+
+import org.iplantc.service.apps.exceptions.SoftwareException;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.common.persistence.VersionedSnapshotCache;
+
+/**
+ * Shared, versioned cache of {@link Software} by tenant and unique name. Long running workers use this
+ * rather than {@link SoftwareDao#getSoftwareByUniqueName(String)} to avoid loading the full app, with its
+ * inputs, parameters, and outputs, every time a job is processed. Cached apps are refreshed when
+ * {@link SoftwareDao#getSnapshotVersion(String)} changes and are invalidated by app events processed
+ * in this JVM.
+ *
+ * Apps returned from this cache are shared between threads and must not be modified or reattached
+ * to a hibernate session. Use {@link SoftwareDao} to obtain an app that will be updated.
+ *
+ * @author dooley
+ */
+public class SoftwareSnapshotCache {
+
+    private static final VersionedSnapshotCache<Software, SoftwareException> cache =
+            new VersionedSnapshotCache<Software, SoftwareException>(
+                    Settings.ENTITY_SNAPSHOT_CACHE_SIZE,
+                    Settings.ENTITY_SNAPSHOT_CACHE_VERSION_CHECK_SECS * 1000L,
+                    key -> SoftwareDao.getSoftwareByUniqueName(getUniqueName(key)),
+                    key -> SoftwareDao.getSnapshotVersion(getUniqueName(key)));
+
+    private SoftwareSnapshotCache() {}
+
+    /**
+     * Returns the app with the given unique name in the current tenant.
+     *
+     * @param uniqueName the {@link Software#getUniqueName()} of the app
+     * @return the shared app, or null if no app matches
+     * @throws SoftwareException if the app cannot be read
+     */
+    public static Software getSoftware(String uniqueName) throws SoftwareException {
+        if (uniqueName == null) return null;
+
+        return cache.get(getKey(TenancyHelper.getCurrentTenantId(), uniqueName));
+    }
+
+    /**
+     * Removes the given app from the cache so the next read loads it from the db.
+     *
+     * @param software the app that was updated
+     */
+    public static void invalidate(Software software) {
+        if (software == null || software.getName() == null) return;
+
+        cache.invalidate(getKey(software.getTenantId(), software.getUniqueName()));
+    }
+
+    /**
+     * Removes all apps from the cache.
+     */
+    public static void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static String getKey(String tenantId, String uniqueName) {
+        return tenantId + "/" + uniqueName.toLowerCase();
+    }
+
+    private static String getUniqueName(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+}
@@ -9,6 +9,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.apps.dao.SoftwareDao;
 import org.iplantc.service.apps.dao.SoftwareEventDao;
+import org.iplantc.service.apps.dao.SoftwareSnapshotCache;
 import org.iplantc.service.apps.exceptions.SoftwareEventPersistenceException;
 import org.iplantc.service.apps.model.Software;
 import org.iplantc.service.apps.model.SoftwareEvent;
@@ -90,6 +91,9 @@ public class SoftwareEventProcessor {
 				throw new EntityEventProcessingException("Valid app must be provided to process event.");
 			}
 			
+			// readers in this jvm reload the app rather than wait for its version check
+			SoftwareSnapshotCache.invalidate(software);
+			
 			if (eventType == null) {
 				throw new EntityEventProcessingException("Valid app event type must be provided to process event.");
 			}
@@ -141,6 +145,8 @@ public class SoftwareEventProcessor {
 				throw new EntityEventProcessingException("Valid app must be provided to process event.");
 			}
 			
+			SoftwareSnapshotCache.invalidate(software);
+			
 			if (StringUtils.isEmpty(createdBy)) {
 				throw new EntityEventProcessingException("Valid username must be provided to process event.");
 			}
@@ -366,6 +372,8 @@ public class SoftwareEventProcessor {
 				throw new EntityEventProcessingException("Valid app must be provided to process event.");
 			}
 			
+			SoftwareSnapshotCache.invalidate(software);
+			
 			if (oldStatus == null) {
 				throw new EntityEventProcessingException("Prior app status must be provided to process event.");
 			}
@@ -131,6 +131,17 @@ public class Settings
     public static int                           MESSAGING_SERVICE_PORT;
     public static String                        MESSAGING_SERVICE_USERNAME;
     public static String                        MESSAGING_SERVICE_PASSWORD;
+    public static int                           MESSAGING_CHANNEL_POOL_SIZE;
+    public static int                           MESSAGING_PUBLISH_CONFIRM_TIMEOUT_MS;
+    public static int                           MESSAGING_CONSUMER_PREFETCH;
+    public static String                        MESSAGING_EMBEDDED_JOURNAL_DIR;
+    public static int                           MESSAGING_EMBEDDED_JOURNAL_SIZE_MB;
+    public static int                           MESSAGING_EMBEDDED_RESERVATION_TIMEOUT_SECS;
+    public static boolean                       MESSAGING_BINARY_ENVELOPE_ENABLED;
+    public static String                        MESSAGING_DELAYED_DELIVERY;
+    public static String                        MESSAGING_DELAYED_STORE_DIR;
+    public static long                          MESSAGING_DELAYED_TICK_MS;
+    public static int                           MESSAGING_DELAYED_WHEEL_SIZE;
     
     /* API specific queues */
     public static String                        FILES_ENCODING_QUEUE;
@@ -176,6 +187,10 @@ public class Settings
     private static String                       DRAIN_QUEUES;
         
     public static String						TEMP_DIRECTORY;
+
+    /* Entity snapshot cache settings */
+    public static int                           ENTITY_SNAPSHOT_CACHE_SIZE;
+    public static int                           ENTITY_SNAPSHOT_CACHE_VERSION_CHECK_SECS;
     
     static {
         // trust everyone. we need this due to the unknown nature of the callback urls
@@ -355,6 +370,62 @@ public class Settings
             log.error("Failure loading setting iplant.messaging.port - continuing.", e);
         }
         
+        try {MESSAGING_CHANNEL_POOL_SIZE = Integer.valueOf(props.getProperty("iplant.messaging.channel.pool.size", "16"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.channel.pool.size.", e);
+            MESSAGING_CHANNEL_POOL_SIZE = 16;
+        }
+        
+        try {MESSAGING_PUBLISH_CONFIRM_TIMEOUT_MS = Integer.valueOf(props.getProperty("iplant.messaging.publish.confirm.timeout.ms", "5000"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.publish.confirm.timeout.ms.", e);
+            MESSAGING_PUBLISH_CONFIRM_TIMEOUT_MS = 5000;
+        }
+        
+        try {MESSAGING_CONSUMER_PREFETCH = Integer.valueOf(props.getProperty("iplant.messaging.consumer.prefetch", "25"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.consumer.prefetch.", e);
+            MESSAGING_CONSUMER_PREFETCH = 25;
+        }
+        
+        MESSAGING_EMBEDDED_JOURNAL_DIR = props.getProperty("iplant.messaging.embedded.journal.dir", "");
+        
+        try {MESSAGING_EMBEDDED_JOURNAL_SIZE_MB = Integer.valueOf(props.getProperty("iplant.messaging.embedded.journal.size.mb", "64"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.embedded.journal.size.mb.", e);
+            MESSAGING_EMBEDDED_JOURNAL_SIZE_MB = 64;
+        }
+        
+        try {MESSAGING_EMBEDDED_RESERVATION_TIMEOUT_SECS = Integer.valueOf(props.getProperty("iplant.messaging.embedded.reservation.timeout", "120"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.embedded.reservation.timeout.", e);
+            MESSAGING_EMBEDDED_RESERVATION_TIMEOUT_SECS = 120;
+        }
+        
+        try {
+            MESSAGING_BINARY_ENVELOPE_ENABLED = Boolean.valueOf(props.getProperty("iplant.messaging.binary.envelope.enabled", "false"));
+        } catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.binary.envelope.enabled.", e);
+            MESSAGING_BINARY_ENVELOPE_ENABLED = false;
+        }
+        
+        MESSAGING_DELAYED_DELIVERY = props.getProperty("iplant.messaging.delayed.delivery", "native");
+        
+        // no default. the store must be a persistent directory owned by a single service.
+        MESSAGING_DELAYED_STORE_DIR = StringUtils.trimToEmpty(props.getProperty("iplant.messaging.delayed.store.dir"));
+        
+        try {MESSAGING_DELAYED_TICK_MS = Long.valueOf(props.getProperty("iplant.messaging.delayed.tick.ms", "1000"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.delayed.tick.ms.", e);
+            MESSAGING_DELAYED_TICK_MS = 1000;
+        }
+        
+        try {MESSAGING_DELAYED_WHEEL_SIZE = Integer.valueOf(props.getProperty("iplant.messaging.delayed.wheel.size", "60"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.messaging.delayed.wheel.size.", e);
+            MESSAGING_DELAYED_WHEEL_SIZE = 60;
+        }
+        
         FILES_ENCODING_QUEUE = props.getProperty("iplant.files.service.encoding.queue", "encoding.prod.files.queue");
         FILES_ENCODING_TOPIC = props.getProperty("iplant.files.service.encoding.topic", "encoding.prod.files.topic");
         FILES_STAGING_QUEUE = props.getProperty("iplant.files.service.staging.queue", "staging.prod.files.queue");
@@ -409,6 +480,18 @@ public class Settings
         DEDICATED_USER_GROUPS = StringUtils.split(props.getProperty("iplant.dedicated.user.group.id"), ",");
         
         DEDICATED_SYSTEM_IDS = StringUtils.split(props.getProperty("iplant.dedicated.system.id", ""), ",");
+
+        try {ENTITY_SNAPSHOT_CACHE_SIZE = Integer.valueOf(props.getProperty("iplant.entity.snapshot.cache.size", "1000"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.entity.snapshot.cache.size.", e);
+            ENTITY_SNAPSHOT_CACHE_SIZE = 1000;
+        }
+
+        try {ENTITY_SNAPSHOT_CACHE_VERSION_CHECK_SECS = Integer.valueOf(props.getProperty("iplant.entity.snapshot.cache.version.check.secs", "10"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.entity.snapshot.cache.version.check.secs.", e);
+            ENTITY_SNAPSHOT_CACHE_VERSION_CHECK_SECS = 10;
+        }
     }
     
     /**
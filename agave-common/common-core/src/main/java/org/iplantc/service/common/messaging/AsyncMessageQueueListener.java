@@ -0,0 +1,26 @@
+package org.iplantc.service.common.messaging;
+
+import org.iplantc.service.common.exceptions.MessageProcessingException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link MessageQueueListener} whose processing completes after the call returns, such as
+ * one waiting on a remote server. The {@link MessageQueueConsumer} worker only starts the
+ * processing, so a few workers can keep many messages in flight. The message is settled
+ * when the returned future completes.
+ *
+ * @author dooley
+ *
+ */
+public interface AsyncMessageQueueListener extends MessageQueueListener {
+
+	/**
+	 * Starts processing a message.
+	 *
+	 * @param message the body of the message
+	 * @return a future completing when the message has been processed, or exceptionally with
+	 * a {@link MessageProcessingException} if it could not be
+	 */
+	CompletableFuture<?> processMessageAsync(String message);
+}
@@ -34,6 +34,13 @@ public class BeanstalkClient implements MessageQueueClient
 		client.setUniqueConnectionPerThread(false);
 	}
 	
+	/**
+	 * @param client the beanstalk connection to use
+	 */
+	protected BeanstalkClient(ClientImpl client) {
+		this.client = client;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.iplantc.service.common.messaging.MessageQueueClient#push(java.lang.String, java.lang.String, java.lang.String)
 	 */
@@ -52,6 +59,29 @@ public class BeanstalkClient implements MessageQueueClient
 		}
 	}
 	
+	/* 
+	 * Selects the tube once and writes every message over the same connection.
+	 */
+	@Override
+	public void pushAll(String exchange, String queue, List<String> messages)
+	throws MessagingException
+	{
+		int pushed = 0;
+		try {
+			client.useTube(queue);
+			for (String message: messages) {
+				long jobId = client.put(65536, 0, 120, message.getBytes());
+				if (jobId <= 0) {
+					throw new IOException();
+				}
+				pushed++;
+			}
+		} catch (Exception e) {
+			throw new MessagingException("Failed to push message " + (pushed + 1) + " of " + 
+					messages.size() + " to the " + queue + " tube", e);
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.iplantc.service.common.messaging.MessageQueueClient#push(java.lang.String, java.lang.String, java.lang.String, int)
 	 */
@@ -143,6 +173,36 @@ public class BeanstalkClient implements MessageQueueClient
 		}
 	}
 	
+	/* 
+	 * Waits for the first message, then reserves any others that are already ready
+	 * without blocking.
+	 */
+	@Override
+	public List<Message> reserveAll(String exchange, String queue, int count, int timeout)
+	throws MessagingException
+	{
+		List<Message> messages = new ArrayList<Message>();
+		try
+		{
+			client.watch(queue);
+			client.useTube(queue);
+			Job beanstalkJob = client.reserve(timeout);
+			while (beanstalkJob != null)
+			{
+				messages.add(new Message(beanstalkJob.getJobId(), new String(beanstalkJob.getData())));
+				if (messages.size() >= count) break;
+				
+				beanstalkJob = client.reserve(0);
+			}
+			client.ignore(queue);
+			
+			return messages;
+		}
+		catch (Exception e) {
+			throw new MessagingException("Failed to retrieve messages from the " + queue + " tube", e);
+		}
+	}
+	
 	/* 
 	 * Pulls multiple messages off a tube. Beanstalk locks the client when you try to read
 	 * a message and none are available, so don't use this if you are not sure there are
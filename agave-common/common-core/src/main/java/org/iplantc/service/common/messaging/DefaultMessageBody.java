@@ -5,7 +5,6 @@ package org.iplantc.service.common.messaging;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Abstract {@link org.iplantc.service.common.messaging.MessageBody} implementation
@@ -131,7 +130,7 @@ public class DefaultMessageBody<E> implements MessageBody<E>
 	@Override
 	public String toJSON() throws JsonProcessingException
 	{
-		return new ObjectMapper().writeValueAsString(this);
+		return MessageCodecRegistry.getObjectMapper().writeValueAsString(this);
 	}
 
 }
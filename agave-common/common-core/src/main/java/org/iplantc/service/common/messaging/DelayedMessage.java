@@ -0,0 +1,84 @@
+package org.iplantc.service.common.messaging;
+
+/**
+ * A message held by the {@link DelayedMessageScheduler} until it is due to be
+ * published.
+ *
+ * @author dooley
+ *
+ */
+public class DelayedMessage
+{
+	private final long id;
+	private final long bucket;
+	private final long deliverAt;
+	private final String exchange;
+	private final String queue;
+	private final String body;
+
+	/**
+	 * @param id unique id of the message in the store
+	 * @param bucket the store bucket holding the message
+	 * @param deliverAt epoch millis at which the message is due
+	 * @param exchange the exchange to publish to
+	 * @param queue the queue to publish to
+	 * @param body the message body
+	 */
+	public DelayedMessage(long id, long bucket, long deliverAt, String exchange, String queue, String body)
+	{
+		this.id = id;
+		this.bucket = bucket;
+		this.deliverAt = deliverAt;
+		this.exchange = exchange;
+		this.queue = queue;
+		this.body = body;
+	}
+
+	/**
+	 * @return the unique id of the message in the store
+	 */
+	public long getId()
+	{
+		return id;
+	}
+
+	/**
+	 * @return the store bucket holding the message
+	 */
+	public long getBucket()
+	{
+		return bucket;
+	}
+
+	/**
+	 * @return epoch millis at which the message is due
+	 */
+	public long getDeliverAt()
+	{
+		return deliverAt;
+	}
+
+	/**
+	 * @return the exchange to publish to
+	 */
+	public String getExchange()
+	{
+		return exchange;
+	}
+
+	/**
+	 * @return the queue to publish to
+	 */
+	public String getQueue()
+	{
+		return queue;
+	}
+
+	/**
+	 * @return the message body
+	 */
+	public String getBody()
+	{
+		return body;
+	}
+}
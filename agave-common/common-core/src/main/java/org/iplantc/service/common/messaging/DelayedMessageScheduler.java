@@ -0,0 +1,560 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.exceptions.MessagingException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds messages until they are due, then publishes them with any {@link MessageQueueClient}
+ * provider. This gives every provider delayed delivery, including RabbitMQ brokers without
+ * the <code>x-delayed-message</code> exchange plugin.
+ *
+ * Messages are kept in a two level timing wheel. The inner level is an in-memory wheel of
+ * {@link Settings#MESSAGING_DELAYED_WHEEL_SIZE} slots, each one tick of
+ * {@link Settings#MESSAGING_DELAYED_TICK_MS} wide, covering the current window. The outer
+ * level is the {@link DelayedMessageStore}, which holds one bucket per window. When the wheel
+ * turns into a new window, that window's bucket is read into the slots. Only the messages
+ * due in the current window are held in memory, so millions of pending messages cost little
+ * more than their bucket counts.
+ *
+ * Every message is written to the store before {@link #schedule(String, String, String, int)}
+ * returns, and marked delivered once it is published. Messages left in the store by a
+ * restart are published when their window comes due, or immediately if it has passed.
+ * A crash between publishing and marking a message delivered publishes it again.
+ *
+ * @author dooley
+ *
+ */
+public class DelayedMessageScheduler
+{
+	private static final Logger log = Logger.getLogger(DelayedMessageScheduler.class);
+
+	/* milliseconds to wait before publishing again after a failure */
+	private static final long RETRY_DELAY_MS = 5000;
+
+	/* milliseconds between the scheduler metrics written to the log */
+	private static final long METRICS_INTERVAL_MS = 60000;
+
+	private static DelayedMessageScheduler _instance;
+
+	private final DelayedMessageStore store;
+	private final long tickMs;
+	private final int wheelSize;
+	private final List<List<DelayedMessage>> slots;
+
+	/* pending message counts by bucket, including buckets not yet loaded */
+	private final TreeMap<Long, Integer> pendingByBucket = new TreeMap<Long, Integer>();
+	private final Map<String, AtomicLong> pendingByQueue = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong pendingCount = new AtomicLong();
+	private final AtomicLong loadedCount = new AtomicLong();
+	private final AtomicLong deliveredCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private volatile long lastDeliveryLagMs = 0;
+
+	private final List<DelayedMessage> failed = new ArrayList<DelayedMessage>();
+	private long retryAt = 0;
+	private long currentBucket = Long.MIN_VALUE;
+	private long lastTick = -1;
+	private long nextId = 1;
+
+	private volatile boolean stopped = false;
+	private Thread timer = null;
+
+	/**
+	 * @return true if delayed messages are held by this scheduler rather than by the
+	 * message queue provider, as set by {@link Settings#MESSAGING_DELAYED_DELIVERY}
+	 */
+	public static boolean isEnabled()
+	{
+		return "scheduler".equalsIgnoreCase(Settings.MESSAGING_DELAYED_DELIVERY);
+	}
+
+	/**
+	 * Returns the scheduler shared by this JVM, starting it the first time.
+	 *
+	 * @return the running scheduler
+	 * @throws MessagingException if no store directory is configured or the store cannot be opened
+	 */
+	public static synchronized DelayedMessageScheduler getInstance() throws MessagingException
+	{
+		if (_instance == null) {
+			if (StringUtils.isEmpty(Settings.MESSAGING_DELAYED_STORE_DIR)) {
+				throw new MessagingException("No delayed message store directory is configured. Set " +
+						"iplant.messaging.delayed.store.dir to a persistent directory used only by this " +
+						"service when iplant.messaging.delayed.delivery=scheduler.");
+			}
+			try {
+				DelayedMessageScheduler scheduler = new DelayedMessageScheduler(
+						new DelayedMessageStore(new File(Settings.MESSAGING_DELAYED_STORE_DIR)),
+						Settings.MESSAGING_DELAYED_TICK_MS, Settings.MESSAGING_DELAYED_WHEEL_SIZE);
+				scheduler.start();
+				_instance = scheduler;
+			}
+			catch (IOException e) {
+				throw new MessagingException("Failed to open the delayed message store at " +
+						Settings.MESSAGING_DELAYED_STORE_DIR, e);
+			}
+		}
+		return _instance;
+	}
+
+	/**
+	 * Stops the scheduler shared by this JVM, if it was started.
+	 */
+	public static void shutdown()
+	{
+		DelayedMessageScheduler scheduler;
+		synchronized (DelayedMessageScheduler.class) {
+			scheduler = _instance;
+		}
+		if (scheduler != null) {
+			scheduler.stop();
+		}
+	}
+
+	/**
+	 * @param store the durable store of pending messages
+	 * @param tickMs width of a wheel slot in milliseconds
+	 * @param wheelSize number of slots in the wheel. A store bucket covers one turn of the wheel.
+	 */
+	public DelayedMessageScheduler(DelayedMessageStore store, long tickMs, int wheelSize)
+	{
+		this.store = store;
+		this.tickMs = Math.max(tickMs, 1);
+		this.wheelSize = Math.max(wheelSize, 1);
+		this.slots = new ArrayList<List<DelayedMessage>>(this.wheelSize);
+		for (int i = 0; i < this.wheelSize; i++) {
+			slots.add(new ArrayList<DelayedMessage>());
+		}
+	}
+
+	/**
+	 * Counts the messages left in the store and starts the timer thread. Messages
+	 * whose time has passed are published on the first tick.
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (timer != null) return;
+
+		recover();
+
+		timer = new Thread(this::run, "delayed-message-scheduler");
+		timer.setDaemon(true);
+		timer.start();
+	}
+
+	/**
+	 * Counts the messages left in the store by a previous run and sets the wheel to
+	 * the current time.
+	 *
+	 * @throws IOException if the store cannot be read
+	 */
+	protected synchronized void recover() throws IOException
+	{
+		for (Long bucket: store.getBuckets()) {
+			List<DelayedMessage> messages = store.load(bucket);
+			if (messages.isEmpty()) {
+				store.delete(bucket);
+				continue;
+			}
+			for (DelayedMessage message: messages) {
+				nextId = Math.max(nextId, message.getId() + 1);
+				countPending(message, 1);
+			}
+			pendingByBucket.put(bucket, messages.size());
+		}
+		if (pendingCount.get() > 0) {
+			log.info("Recovered " + pendingCount.get() + " delayed messages from the store");
+		}
+
+		lastTick = currentTimeMillis() / tickMs - 1;
+	}
+
+	/**
+	 * Stops the timer thread. Pending messages stay in the store.
+	 */
+	public void stop()
+	{
+		stopped = true;
+		Thread t;
+		synchronized (this) {
+			t = timer;
+		}
+		if (t != null) {
+			t.interrupt();
+			try { t.join(tickMs * 10); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		}
+		store.close();
+
+		synchronized (DelayedMessageScheduler.class) {
+			if (_instance == this) {
+				_instance = null;
+			}
+		}
+	}
+
+	/**
+	 * Holds a message and publishes it to the queue after the delay.
+	 *
+	 * @param exchange the exchange to publish to
+	 * @param queue the queue to publish to
+	 * @param body the message body
+	 * @param secondsToDelay seconds to wait before publishing
+	 * @throws MessagingException if the message cannot be stored
+	 */
+	public synchronized void schedule(String exchange, String queue, String body, int secondsToDelay)
+	throws MessagingException
+	{
+		long deliverAt = currentTimeMillis() + Math.max(secondsToDelay, 0) * 1000L;
+		// never schedule into a slot the wheel has already passed
+		long tick = Math.max(deliverAt / tickMs, lastTick + 1);
+		long bucket = tick / wheelSize;
+
+		DelayedMessage message = new DelayedMessage(nextId++, bucket, deliverAt, exchange, queue, body);
+		try {
+			store.append(message);
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to store delayed message for the " + queue + " queue", e);
+		}
+
+		pendingByBucket.merge(bucket, 1, Integer::sum);
+		countPending(message, 1);
+
+		if (bucket == currentBucket) {
+			slots.get((int)(tick % wheelSize)).add(message);
+			loadedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of messages waiting to be published
+	 */
+	public long getPendingCount()
+	{
+		return pendingCount.get();
+	}
+
+	/**
+	 * @param queue the name of the queue
+	 * @return the number of messages waiting to be published to the queue
+	 */
+	public long getPendingCount(String queue)
+	{
+		AtomicLong count = pendingByQueue.get(queue);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * @return the number of messages waiting to be published by queue name
+	 */
+	public Map<String, Long> getPendingCountByQueue()
+	{
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry: pendingByQueue.entrySet()) {
+			if (entry.getValue().get() > 0) {
+				counts.put(entry.getKey(), entry.getValue().get());
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * @return the number of pending messages held in memory, as opposed to only in the store
+	 */
+	public long getLoadedCount()
+	{
+		return loadedCount.get();
+	}
+
+	/**
+	 * @return the number of messages published since the scheduler started
+	 */
+	public long getDeliveredCount()
+	{
+		return deliveredCount.get();
+	}
+
+	/**
+	 * @return the number of failed attempts to publish a message since the scheduler started
+	 */
+	public long getFailedCount()
+	{
+		return failedCount.get();
+	}
+
+	/**
+	 * @return milliseconds between the most recently published message being due and being published
+	 */
+	public long getLastDeliveryLagMs()
+	{
+		return lastDeliveryLagMs;
+	}
+
+	/**
+	 * Timer loop. Advances the wheel one slot per tick and publishes the messages in each slot.
+	 * The scheduler metrics are logged every {@link #METRICS_INTERVAL_MS}.
+	 */
+	protected void run()
+	{
+		long reportAt = currentTimeMillis() + METRICS_INTERVAL_MS;
+		while (!stopped && !Thread.currentThread().isInterrupted())
+		{
+			try {
+				List<DelayedMessage> due = advance(currentTimeMillis());
+				if (!due.isEmpty()) {
+					deliver(due);
+				}
+			}
+			catch (Throwable e) {
+				log.error("Unexpected error publishing delayed messages", e);
+			}
+
+			if (currentTimeMillis() >= reportAt) {
+				reportMetrics();
+				reportAt = currentTimeMillis() + METRICS_INTERVAL_MS;
+			}
+
+			try {
+				long now = currentTimeMillis();
+				Thread.sleep(Math.max(tickMs - now % tickMs, 1));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Writes the scheduler metrics to the log. Nothing is written while the scheduler is idle.
+	 */
+	protected void reportMetrics()
+	{
+		if (getPendingCount() == 0 && getDeliveredCount() == 0 && getFailedCount() == 0) return;
+
+		log.info("Delayed messages: " + getPendingCount() + " pending " + getPendingCountByQueue() +
+				", " + getLoadedCount() + " in memory, " + getDeliveredCount() + " delivered, " +
+				getFailedCount() + " failed, last delivery lag " + getLastDeliveryLagMs() + "ms");
+	}
+
+	/**
+	 * Moves the wheel forward to the given time, loading the bucket of each window it
+	 * enters, and returns every message which is now due. If a bucket cannot be read, the
+	 * wheel stops at the last slot it passed and the messages already taken off the wheel
+	 * are held for the next tick, when the read is tried again.
+	 *
+	 * @param now the current time in epoch millis
+	 * @return the due messages in the order they were due
+	 * @throws IOException if a bucket cannot be read from the store
+	 */
+	protected synchronized List<DelayedMessage> advance(long now) throws IOException
+	{
+		List<DelayedMessage> due = new ArrayList<DelayedMessage>();
+		if (!failed.isEmpty() && now >= retryAt) {
+			due.addAll(failed);
+			failed.clear();
+		}
+
+		long nowTick = now / tickMs;
+		try {
+			while (lastTick < nowTick)
+			{
+				long tick = lastTick + 1;
+				long bucket = tick / wheelSize;
+				if (bucket != currentBucket) {
+					enterBucket(bucket, tick, due);
+				}
+				lastTick = tick;
+
+				List<DelayedMessage> slot = slots.get((int)(tick % wheelSize));
+				due.addAll(slot);
+				slot.clear();
+			}
+		}
+		catch (IOException e) {
+			failed.addAll(due);
+			retryAt = now;
+			throw e;
+		}
+		return due;
+	}
+
+	/**
+	 * Publishes due messages, grouped by queue, and marks them delivered in the store.
+	 * Messages which cannot be published are retried after {@link #RETRY_DELAY_MS}.
+	 *
+	 * @param due the messages to publish
+	 */
+	protected void deliver(List<DelayedMessage> due)
+	{
+		Map<String, List<DelayedMessage>> byQueue = new LinkedHashMap<String, List<DelayedMessage>>();
+		for (DelayedMessage message: due) {
+			byQueue.computeIfAbsent(message.getExchange() + "\n" + message.getQueue(), k -> new ArrayList<DelayedMessage>())
+				   .add(message);
+		}
+
+		MessageQueueClient client = null;
+		try {
+			for (List<DelayedMessage> messages: byQueue.values())
+			{
+				DelayedMessage first = messages.get(0);
+				List<String> bodies = new ArrayList<String>(messages.size());
+				for (DelayedMessage message: messages) {
+					bodies.add(message.getBody());
+				}
+
+				try {
+					if (client == null) {
+						client = getMessageClient();
+					}
+					client.pushAll(first.getExchange(), first.getQueue(), bodies);
+				}
+				catch (MessagingException e) {
+					log.error("Failed to publish " + messages.size() + " delayed messages to the " +
+							first.getQueue() + " queue. Retrying in " + RETRY_DELAY_MS + "ms", e);
+					failedCount.addAndGet(messages.size());
+					retry(messages);
+					if (client != null) {
+						try { client.stop(); } catch (Throwable ignored) {}
+						client = null;
+					}
+					continue;
+				}
+
+				delivered(messages);
+			}
+		}
+		finally {
+			if (client != null) {
+				try { client.stop(); } catch (Throwable ignored) {}
+			}
+		}
+	}
+
+	/**
+	 * @return a client used to publish due messages
+	 * @throws MessagingException if the client cannot be created
+	 */
+	protected MessageQueueClient getMessageClient() throws MessagingException
+	{
+		return MessageClientFactory.getMessageClient();
+	}
+
+	/**
+	 * @return the current time in epoch millis
+	 */
+	protected long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Loads the buckets of every window up to the one the wheel is entering. Messages in the
+	 * entered window go into their slots. Messages in windows which have already passed, left
+	 * by a restart or a stalled timer, are due immediately. Every bucket is read before any
+	 * is applied, so the wheel only enters the window once all of them were read.
+	 *
+	 * @param bucket the window being entered
+	 * @param tick the first tick of the wheel in the window
+	 * @param due the messages due so far
+	 * @throws IOException if a bucket cannot be read from the store
+	 */
+	private void enterBucket(long bucket, long tick, List<DelayedMessage> due) throws IOException
+	{
+		Map<Long, List<DelayedMessage>> loaded = new LinkedHashMap<Long, List<DelayedMessage>>();
+		for (Long pendingBucket: pendingByBucket.subMap(currentBucket, false, bucket, true).keySet()) {
+			loaded.put(pendingBucket, store.load(pendingBucket));
+		}
+		currentBucket = bucket;
+
+		for (Map.Entry<Long, List<DelayedMessage>> entry: loaded.entrySet())
+		{
+			long pendingBucket = entry.getKey();
+			List<DelayedMessage> messages = entry.getValue();
+			if (messages.isEmpty()) {
+				pendingByBucket.remove(pendingBucket);
+				store.delete(pendingBucket);
+				continue;
+			}
+
+			pendingByBucket.put(pendingBucket, messages.size());
+			loadedCount.addAndGet(messages.size());
+			for (DelayedMessage message: messages) {
+				long messageTick = message.getDeliverAt() / tickMs;
+				if (pendingBucket < bucket || messageTick <= tick) {
+					due.add(message);
+				} else {
+					slots.get((int)(messageTick % wheelSize)).add(message);
+				}
+			}
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Delayed message wheel entered window " + bucket + " with " + pendingCount.get() +
+					" messages pending, " + loadedCount.get() + " in memory");
+		}
+	}
+
+	private synchronized void retry(List<DelayedMessage> messages)
+	{
+		failed.addAll(messages);
+		retryAt = currentTimeMillis() + RETRY_DELAY_MS;
+	}
+
+	private void delivered(List<DelayedMessage> messages)
+	{
+		long now = currentTimeMillis();
+		Map<Long, List<Long>> idsByBucket = new HashMap<Long, List<Long>>();
+		for (DelayedMessage message: messages) {
+			idsByBucket.computeIfAbsent(message.getBucket(), k -> new ArrayList<Long>()).add(message.getId());
+			countPending(message, -1);
+			lastDeliveryLagMs = Math.max(now - message.getDeliverAt(), 0);
+		}
+		deliveredCount.addAndGet(messages.size());
+		loadedCount.addAndGet(-messages.size());
+
+		synchronized (this) {
+			for (Map.Entry<Long, List<Long>> entry: idsByBucket.entrySet()) {
+				long bucket = entry.getKey();
+				try {
+					store.markDelivered(bucket, entry.getValue());
+				} catch (IOException e) {
+					log.error("Failed to mark " + entry.getValue().size() + " delayed messages delivered in bucket " +
+							bucket + ". They will be published again after a restart.", e);
+				}
+
+				Integer remaining = pendingByBucket.get(bucket);
+				if (remaining == null) continue;
+
+				remaining -= entry.getValue().size();
+				if (remaining > 0) {
+					pendingByBucket.put(bucket, remaining);
+				} else {
+					// a message scheduled into the bucket later simply starts a new file
+					pendingByBucket.remove(bucket);
+					store.delete(bucket);
+				}
+			}
+		}
+	}
+
+	private void countPending(DelayedMessage message, int delta)
+	{
+		pendingCount.addAndGet(delta);
+		pendingByQueue.computeIfAbsent(message.getQueue(), k -> new AtomicLong()).addAndGet(delta);
+	}
+}
@@ -0,0 +1,271 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.iplantc.service.common.messaging.MessageCodec.readString;
+import static org.iplantc.service.common.messaging.MessageCodec.writeString;
+
+/**
+ * Durable store of the messages held by the {@link DelayedMessageScheduler}. Messages are
+ * grouped into buckets by the time window in which they are due, with one append-only file
+ * per bucket. A bucket is only read when its window comes due, so messages scheduled far in
+ * the future take no memory.
+ *
+ * Record layout:
+ * <pre>
+ * PUT:       type(1) id(8) deliverAt(8) exchange(string) queue(string) body(string)
+ * DELIVERED: type(1) id(8)
+ * </pre>
+ * Records are written to the page cache as they are appended, so they survive the JVM
+ * exiting or crashing. A record cut short by a crash is truncated the next time the bucket
+ * is read.
+ *
+ * The store holds an exclusive lock on its directory while open, so each service needs a
+ * directory of its own.
+ *
+ * @author dooley
+ *
+ */
+public class DelayedMessageStore
+{
+	private static final Logger log = Logger.getLogger(DelayedMessageStore.class);
+
+	private static final byte PUT = 1;
+	private static final byte DELIVERED = 2;
+
+	private static final String BUCKET_PREFIX = "bucket-";
+	private static final String BUCKET_SUFFIX = ".log";
+	private static final String LOCK_FILE = "store.lock";
+
+	/* number of bucket files kept open for appending */
+	private static final int MAX_OPEN_BUCKETS = 16;
+
+	private final File directory;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private final Map<Long, FileChannel> openBuckets = new LinkedHashMap<Long, FileChannel>(MAX_OPEN_BUCKETS, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, FileChannel> eldest) {
+			if (size() > MAX_OPEN_BUCKETS) {
+				try { eldest.getValue().close(); } catch (IOException ignored) {}
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * @param directory directory holding the bucket files. Created if it does not exist.
+	 * @throws IOException if the directory cannot be created or is already in use by another store
+	 */
+	public DelayedMessageStore(File directory) throws IOException
+	{
+		this.directory = directory;
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Unable to create delayed message store directory " + directory.getPath());
+		}
+
+		lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock directoryLock = null;
+		try {
+			directoryLock = lockChannel.tryLock();
+		} catch (OverlappingFileLockException ignored) {}
+		if (directoryLock == null) {
+			lockChannel.close();
+			throw new IOException("Delayed message store directory " + directory.getPath() +
+					" is already in use. Each service needs its own store directory.");
+		}
+		lock = directoryLock;
+	}
+
+	/**
+	 * @return the buckets currently in the store in ascending order
+	 */
+	public synchronized List<Long> getBuckets()
+	{
+		List<Long> buckets = new ArrayList<Long>();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file: files) {
+				String name = file.getName();
+				if (name.startsWith(BUCKET_PREFIX) && name.endsWith(BUCKET_SUFFIX)) {
+					try {
+						buckets.add(Long.parseLong(name.substring(BUCKET_PREFIX.length(), name.length() - BUCKET_SUFFIX.length())));
+					} catch (NumberFormatException ignored) {}
+				}
+			}
+		}
+		Collections.sort(buckets);
+		return buckets;
+	}
+
+	/**
+	 * Appends a message to its bucket.
+	 *
+	 * @param message the message to store
+	 * @throws IOException if the message cannot be written
+	 */
+	public synchronized void append(DelayedMessage message) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + message.getBody().length());
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(PUT);
+		out.writeLong(message.getId());
+		out.writeLong(message.getDeliverAt());
+		writeString(out, message.getExchange());
+		writeString(out, message.getQueue());
+		writeString(out, message.getBody());
+		out.flush();
+
+		write(message.getBucket(), bytes.toByteArray());
+	}
+
+	/**
+	 * Records that messages were published so they are not published again if the
+	 * bucket is read after a restart.
+	 *
+	 * @param bucket the bucket holding the messages
+	 * @param ids the ids of the published messages
+	 * @throws IOException if the records cannot be written
+	 */
+	public synchronized void markDelivered(long bucket, Collection<Long> ids) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(ids.size() * 9);
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (Long id: ids) {
+			out.writeByte(DELIVERED);
+			out.writeLong(id);
+		}
+		out.flush();
+
+		write(bucket, bytes.toByteArray());
+	}
+
+	/**
+	 * Reads the messages in a bucket which have not been delivered, in the order they
+	 * were stored.
+	 *
+	 * @param bucket the bucket to read
+	 * @return the undelivered messages
+	 * @throws IOException if the bucket cannot be read
+	 */
+	public synchronized List<DelayedMessage> load(long bucket) throws IOException
+	{
+		File file = getBucketFile(bucket);
+		if (!file.exists()) {
+			return new ArrayList<DelayedMessage>();
+		}
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		Map<Long, DelayedMessage> messages = new LinkedHashMap<Long, DelayedMessage>();
+		Set<Long> delivered = new HashSet<Long>();
+		int validLength = 0;
+		try {
+			while (validLength < bytes.length) {
+				byte type = in.readByte();
+				long id = in.readLong();
+				if (type == PUT) {
+					long deliverAt = in.readLong();
+					String exchange = readString(in);
+					String queue = readString(in);
+					String body = readString(in);
+					messages.put(id, new DelayedMessage(id, bucket, deliverAt, exchange, queue, body));
+				} else if (type == DELIVERED) {
+					delivered.add(id);
+				} else {
+					throw new IOException("Unknown record type " + type);
+				}
+				validLength = bytes.length - in.available();
+			}
+		}
+		catch (IOException e) {
+			log.error("Truncating delayed message bucket " + file.getPath() + " after the last complete " +
+					"record at byte " + validLength + " of " + bytes.length);
+			getChannel(bucket).truncate(validLength);
+		}
+
+		messages.keySet().removeAll(delivered);
+		return new ArrayList<DelayedMessage>(messages.values());
+	}
+
+	/**
+	 * Deletes a bucket once all its messages are delivered.
+	 *
+	 * @param bucket the bucket to delete
+	 */
+	public synchronized void delete(long bucket)
+	{
+		FileChannel channel = openBuckets.remove(bucket);
+		if (channel != null) {
+			try { channel.close(); } catch (IOException ignored) {}
+		}
+		File file = getBucketFile(bucket);
+		if (file.exists() && !file.delete()) {
+			log.error("Failed to delete delayed message bucket " + file.getPath());
+		}
+	}
+
+	/**
+	 * Closes all open bucket files and releases the lock on the store directory.
+	 */
+	public synchronized void close()
+	{
+		for (FileChannel channel: openBuckets.values()) {
+			try { channel.close(); } catch (IOException ignored) {}
+		}
+		openBuckets.clear();
+
+		try { lock.release(); } catch (IOException ignored) {}
+		try { lockChannel.close(); } catch (IOException ignored) {}
+	}
+
+	private void write(long bucket, byte[] bytes) throws IOException
+	{
+		FileChannel channel = getChannel(bucket);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private FileChannel getChannel(long bucket) throws IOException
+	{
+		FileChannel channel = openBuckets.get(bucket);
+		if (channel == null || !channel.isOpen()) {
+			channel = FileChannel.open(getBucketFile(bucket).toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			openBuckets.put(bucket, channel);
+		}
+		return channel;
+	}
+
+	private File getBucketFile(long bucket)
+	{
+		return new File(directory, BUCKET_PREFIX + bucket + BUCKET_SUFFIX);
+	}
+}
@@ -0,0 +1,162 @@
+package org.iplantc.service.common.messaging;
+
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.exceptions.MessagingException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Message broker running inside the JVM for single node deployments and tests. It holds
+ * the queues used by every {@link EmbeddedMessageClient} in the process, so messages are
+ * handed from producer to consumer without leaving memory. Like beanstalk tubes, queues
+ * are identified by name alone and created on first use.
+ *
+ * When a journal directory is configured, each queue is journaled to its own file in that
+ * directory and its messages are restored when the broker starts again. Otherwise messages
+ * only live as long as the JVM.
+ *
+ * @author dooley
+ *
+ */
+public class EmbeddedMessageBroker
+{
+	private static final Logger log = Logger.getLogger(EmbeddedMessageBroker.class);
+
+	private static volatile EmbeddedMessageBroker _instance;
+
+	private final File journalDirectory;
+	private final int journalSize;
+	private final int reservationTimeoutSecs;
+	private final ConcurrentMap<String, EmbeddedMessageQueue> queues = new ConcurrentHashMap<String, EmbeddedMessageQueue>();
+
+	/**
+	 * @return the broker shared by all clients in this JVM
+	 */
+	public static EmbeddedMessageBroker getInstance()
+	{
+		if (_instance == null) {
+			synchronized (EmbeddedMessageBroker.class) {
+				if (_instance == null) {
+					File journalDirectory = StringUtils.isEmpty(Settings.MESSAGING_EMBEDDED_JOURNAL_DIR) ?
+							null : new File(Settings.MESSAGING_EMBEDDED_JOURNAL_DIR);
+					_instance = new EmbeddedMessageBroker(journalDirectory,
+							Settings.MESSAGING_EMBEDDED_JOURNAL_SIZE_MB * 1024 * 1024,
+							Settings.MESSAGING_EMBEDDED_RESERVATION_TIMEOUT_SECS);
+				}
+			}
+		}
+		return _instance;
+	}
+
+	/**
+	 * @param journalDirectory directory holding the queue journals, or null to keep messages in memory only
+	 * @param journalSize initial size of each queue journal in bytes
+	 * @param reservationTimeoutSecs seconds a reserved message is held before it is redelivered
+	 */
+	public EmbeddedMessageBroker(File journalDirectory, int journalSize, int reservationTimeoutSecs)
+	{
+		this.journalDirectory = journalDirectory;
+		this.journalSize = Math.max(journalSize, 4096);
+		this.reservationTimeoutSecs = reservationTimeoutSecs;
+	}
+
+	/**
+	 * Returns the named queue, creating it and restoring its journal if this is the
+	 * first time it is used.
+	 *
+	 * @param name the name of the queue
+	 * @return the queue
+	 * @throws MessagingException if the queue journal cannot be opened
+	 */
+	EmbeddedMessageQueue getQueue(String name) throws MessagingException
+	{
+		EmbeddedMessageQueue queue = queues.get(name);
+		if (queue != null) {
+			return queue;
+		}
+
+		synchronized (queues) {
+			queue = queues.get(name);
+			if (queue == null) {
+				queue = new EmbeddedMessageQueue(name, openJournal(name), reservationTimeoutSecs);
+				queues.put(name, queue);
+			}
+			return queue;
+		}
+	}
+
+	/**
+	 * @return seconds a reserved message is held before it is redelivered
+	 */
+	public int getReservationTimeout()
+	{
+		return reservationTimeoutSecs;
+	}
+
+	/**
+	 * @return the names of the queues used since the broker started
+	 */
+	public List<String> getQueueNames()
+	{
+		return new ArrayList<String>(queues.keySet());
+	}
+
+	/**
+	 * Flushes and closes the journals of all queues. Messages still on the queues are
+	 * restored the next time a broker is created with the same journal directory.
+	 */
+	public void close()
+	{
+		synchronized (queues) {
+			for (EmbeddedMessageQueue queue: queues.values()) {
+				queue.close();
+			}
+			queues.clear();
+		}
+	}
+
+	/**
+	 * Names the journal file of a queue. Characters not allowed in file names are replaced,
+	 * so a hash of the full queue name is appended to keep queues whose names only differ
+	 * in those characters from sharing a journal.
+	 *
+	 * @param name the name of the queue
+	 * @return the name of the journal file of the queue
+	 */
+	static String getJournalFileName(String name)
+	{
+		String hash = Hashing.sha256().hashString(name, StandardCharsets.UTF_8).toString().substring(0, 16);
+		return name.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + hash + ".journal";
+	}
+
+	private EmbeddedMessageJournal openJournal(String name) throws MessagingException
+	{
+		if (journalDirectory == null) {
+			return null;
+		}
+
+		File journalFile = new File(journalDirectory, getJournalFileName(name));
+		try {
+			if (!journalDirectory.exists() && !journalDirectory.mkdirs()) {
+				throw new IOException("Unable to create directory " + journalDirectory.getPath());
+			}
+
+			EmbeddedMessageJournal journal = new EmbeddedMessageJournal(journalFile, journalSize);
+			log.debug("Opened message journal " + journalFile.getPath() + " for the " + name + " queue");
+			return journal;
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to open the message journal for the " + name + " queue at " +
+					journalFile.getPath(), e);
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.commons.lang.NotImplementedException;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.exceptions.MessageProcessingException;
+import org.iplantc.service.common.exceptions.MessagingException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Client for the {@link EmbeddedMessageBroker} running in this JVM. Messages are reserved
+ * rather than removed when read, and must be deleted once processed. Queues are identified
+ * by name alone, so the exchange is ignored.
+ *
+ * @author dooley
+ *
+ */
+public class EmbeddedMessageClient implements MessageQueueClient
+{
+	private static final Logger log = Logger.getLogger(EmbeddedMessageClient.class);
+
+	/* milliseconds blocking reads wait between checks for a stop request */
+	private static final long POLL_INTERVAL_MS = 1000;
+
+	private final EmbeddedMessageBroker broker;
+	private volatile boolean stop = false;
+
+	public EmbeddedMessageClient() {
+		this(EmbeddedMessageBroker.getInstance());
+	}
+
+	/**
+	 * @param broker the broker holding the queues
+	 */
+	public EmbeddedMessageClient(EmbeddedMessageBroker broker) {
+		this.broker = broker;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#push(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void push(String exchange, String queue, String message) throws MessagingException
+	{
+		push(exchange, queue, message, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#push(java.lang.String, java.lang.String, java.lang.String, int)
+	 */
+	@Override
+	public void push(String exchange, String queue, String message, int secondsToDelay)
+	throws MessagingException
+	{
+		broker.getQueue(queue).put(Arrays.asList(message), secondsToDelay);
+	}
+
+	/*
+	 * Adds all the messages under a single lock.
+	 */
+	@Override
+	public void pushAll(String exchange, String queue, List<String> messages) throws MessagingException
+	{
+		broker.getQueue(queue).put(messages, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#reject(java.lang.String, java.lang.String, java.lang.Object, java.lang.String)
+	 */
+	@Override
+	public void reject(String exchange, String queue, Object messageId, String message)
+	throws MessagingException
+	{
+		broker.getQueue(queue).release(Arrays.asList(toId(messageId)), 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#delete(java.lang.String, java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void delete(String exchange, String queue, Object messageId) throws MessagingException
+	{
+		broker.getQueue(queue).delete(Arrays.asList(toId(messageId)));
+	}
+
+	/*
+	 * Blocks until a message is ready, returning null if the client is stopped first.
+	 */
+	@Override
+	public Message pop(String exchange, String queue) throws MessagingException
+	{
+		EmbeddedMessageQueue q = broker.getQueue(queue);
+		try {
+			while (!stop) {
+				List<Message> messages = q.reserve(1, POLL_INTERVAL_MS);
+				if (!messages.isEmpty()) {
+					return messages.get(0);
+				}
+			}
+			return null;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted while waiting for a message from the " + queue + " queue", e);
+		}
+	}
+
+	/*
+	 * Reserves up to count messages which are ready now without blocking.
+	 */
+	@Override
+	public List<Message> pop(String exchange, String queue, int count) throws MessagingException
+	{
+		return reserveAll(exchange, queue, count, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#getReservationTimeout()
+	 */
+	@Override
+	public int getReservationTimeout()
+	{
+		return broker.getReservationTimeout();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#touch(java.lang.Object, java.lang.String)
+	 */
+	@Override
+	public boolean touch(Object messageId, String queue) throws MessagingException
+	{
+		return broker.getQueue(queue).touch(toId(messageId));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#listen(java.lang.String, java.lang.String, org.iplantc.service.common.messaging.MessageQueueListener)
+	 */
+	@Override
+	public void listen(String exchange, String queue, MessageQueueListener listener)
+	throws MessagingException, MessageProcessingException
+	{
+		stop = false;
+		EmbeddedMessageQueue q = broker.getQueue(queue);
+		try {
+			while (!stop && !Thread.currentThread().isInterrupted())
+			{
+				for (Message message: q.reserve(1, POLL_INTERVAL_MS))
+				{
+					try {
+						listener.processMessage(message.getMessage());
+						q.delete(Arrays.asList((Long)message.getId()));
+					}
+					catch (MessageProcessingException e) {
+						if (e.isExpired()) {
+							q.delete(Arrays.asList((Long)message.getId()));
+						} else {
+							log.error("Failed to process message " + message.getId() + " from the " + queue + " queue", e);
+							q.release(Arrays.asList((Long)message.getId()), 0);
+						}
+					}
+					catch (Throwable e) {
+						q.release(Arrays.asList((Long)message.getId()), 0);
+						throw new MessageProcessingException("Failed to process message " + message.getMessage(), e);
+					}
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#stop()
+	 */
+	@Override
+	public void stop()
+	{
+		stop = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#listQueues()
+	 */
+	@Override
+	public List<Object> listQueues() throws MessagingException, NotImplementedException
+	{
+		return new ArrayList<Object>(broker.getQueueNames());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#listQueueNames()
+	 */
+	@Override
+	public List<String> listQueueNames() throws MessagingException, NotImplementedException
+	{
+		return broker.getQueueNames();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#queueExist(java.lang.String)
+	 */
+	@Override
+	public boolean queueExist(String queueName) throws MessagingException
+	{
+		return broker.getQueueNames().contains(queueName);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#findQueueMatching(java.lang.String)
+	 */
+	@Override
+	public String findQueueMatching(String regex) throws MessagingException
+	{
+		for (String q: broker.getQueueNames()) {
+			if (q.matches(regex)) return q;
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#messageExist(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public boolean messageExist(String queue, Object messageId) throws MessagingException
+	{
+		return broker.getQueue(queue).contains(toId(messageId));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#reserve(java.lang.String, java.lang.String, int)
+	 */
+	@Override
+	public Message reserve(String exchange, String queue, int timeout) throws MessagingException
+	{
+		List<Message> messages = reserveAll(exchange, queue, 1, timeout);
+		if (messages.isEmpty()) {
+			throw new MessagingException("No message was available from the " + queue + " queue within " +
+					timeout + " seconds");
+		}
+		return messages.get(0);
+	}
+
+	/*
+	 * Reserves the messages under a single lock, waiting only for the first.
+	 */
+	@Override
+	public List<Message> reserveAll(String exchange, String queue, int count, int timeout)
+	throws MessagingException
+	{
+		try {
+			return broker.getQueue(queue).reserve(count, timeout * 1000L);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted while waiting for messages from the " + queue + " queue", e);
+		}
+	}
+
+	/*
+	 * Deletes all the messages under a single lock.
+	 */
+	@Override
+	public void deleteAll(String exchange, String queue, List<Message> messages) throws MessagingException
+	{
+		broker.getQueue(queue).delete(toIds(messages));
+	}
+
+	/*
+	 * Releases all the messages under a single lock.
+	 */
+	@Override
+	public void rejectAll(String exchange, String queue, List<Message> messages) throws MessagingException
+	{
+		broker.getQueue(queue).release(toIds(messages), 0);
+	}
+
+	private List<Long> toIds(List<Message> messages) throws MessagingException
+	{
+		List<Long> ids = new ArrayList<Long>();
+		for (Message message: messages) {
+			ids.add(toId(message.getId()));
+		}
+		return ids;
+	}
+
+	private long toId(Object messageId) throws MessagingException
+	{
+		if (messageId instanceof Number) {
+			return ((Number)messageId).longValue();
+		}
+		try {
+			return Long.parseLong(String.valueOf(messageId));
+		}
+		catch (NumberFormatException e) {
+			throw new MessagingException("Invalid message id " + messageId);
+		}
+	}
+}
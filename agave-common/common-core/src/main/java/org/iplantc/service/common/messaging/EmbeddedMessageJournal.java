@@ -0,0 +1,216 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only log of the messages put on and deleted from an {@link EmbeddedMessageQueue}.
+ * The log is a memory-mapped file, so appending a record is a memory write. Records reach
+ * the page cache immediately and survive the JVM exiting or crashing. They are flushed to
+ * disk by the operating system, or explicitly when the journal is compacted or closed.
+ *
+ * When the file fills up, it is rewritten with only the messages still on the queue. The
+ * file grows if the live messages alone need more than half of it.
+ *
+ * Record layout:
+ * <pre>
+ * PUT:    type(1) id(8) availableAt(8) length(4) body(length)
+ * DELETE: type(1) id(8)
+ * </pre>
+ * Each record is followed by an END byte and its own type byte is written last, so a record
+ * interrupted by a crash is ignored on replay.
+ * Instances are not thread safe. The owning queue serializes access.
+ *
+ * @author dooley
+ *
+ */
+class EmbeddedMessageJournal
+{
+	private static final Logger log = Logger.getLogger(EmbeddedMessageJournal.class);
+
+	private static final byte END = 0;
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+
+	private static final int PUT_HEADER_SIZE = 1 + 8 + 8 + 4;
+	private static final int DELETE_SIZE = 1 + 8;
+
+	/**
+	 * A message recovered from the journal.
+	 */
+	static class Record
+	{
+		final long id;
+		final long availableAt;
+		final String body;
+
+		Record(long id, long availableAt, String body) {
+			this.id = id;
+			this.availableAt = availableAt;
+			this.body = body;
+		}
+	}
+
+	private final File file;
+	private final int minSize;
+	private RandomAccessFile raf;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Opens the journal, creating the file if it does not exist.
+	 *
+	 * @param file the journal file
+	 * @param size the initial size of the file in bytes
+	 * @throws IOException if the file cannot be mapped
+	 */
+	EmbeddedMessageJournal(File file, int size) throws IOException
+	{
+		this.file = file;
+		this.minSize = size;
+		map(file, Math.max(size, (int)file.length()));
+	}
+
+	/**
+	 * Reads the journal from the start and returns the messages which were put and not
+	 * deleted, in the order they were put. Leaves the journal positioned to append after
+	 * the last complete record.
+	 *
+	 * @return the live messages keyed by id
+	 */
+	Map<Long, Record> replay()
+	{
+		Map<Long, Record> records = new LinkedHashMap<Long, Record>();
+		buffer.position(0);
+		while (buffer.remaining() >= DELETE_SIZE)
+		{
+			int start = buffer.position();
+			byte type = buffer.get();
+			if (type == PUT && buffer.remaining() >= PUT_HEADER_SIZE - 1) {
+				long id = buffer.getLong();
+				long availableAt = buffer.getLong();
+				int length = buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					buffer.position(start);
+					break;
+				}
+				byte[] body = new byte[length];
+				buffer.get(body);
+				records.put(id, new Record(id, availableAt, new String(body, StandardCharsets.UTF_8)));
+			}
+			else if (type == DELETE) {
+				records.remove(buffer.getLong());
+			}
+			else {
+				buffer.position(start);
+				break;
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Appends a put record.
+	 *
+	 * @return false if the journal is full and must be compacted first
+	 */
+	boolean put(long id, long availableAt, String body)
+	{
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		if (buffer.remaining() < PUT_HEADER_SIZE + bytes.length + 1) {
+			return false;
+		}
+
+		int start = buffer.position();
+		buffer.position(start + 1);
+		buffer.putLong(id);
+		buffer.putLong(availableAt);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+		buffer.put(buffer.position(), END);
+		buffer.put(start, PUT);
+		return true;
+	}
+
+	/**
+	 * Appends a delete record.
+	 *
+	 * @return false if the journal is full and must be compacted first
+	 */
+	boolean delete(long id)
+	{
+		if (buffer.remaining() < DELETE_SIZE + 1) {
+			return false;
+		}
+
+		int start = buffer.position();
+		buffer.position(start + 1);
+		buffer.putLong(id);
+		buffer.put(buffer.position(), END);
+		buffer.put(start, DELETE);
+		return true;
+	}
+
+	/**
+	 * Rewrites the journal with only the given messages. The new journal is written to a
+	 * temporary file and moved over the old one, so a crash during compaction leaves the
+	 * old journal intact.
+	 *
+	 * @param records the messages still on the queue
+	 * @throws IOException if the new journal cannot be written
+	 */
+	void compact(Collection<Record> records) throws IOException
+	{
+		long required = 0;
+		for (Record record: records) {
+			required += PUT_HEADER_SIZE + record.body.getBytes(StandardCharsets.UTF_8).length;
+		}
+		if (required * 2 > Integer.MAX_VALUE) {
+			throw new IOException("Journal " + file.getPath() + " cannot hold " + records.size() + " messages");
+		}
+		int size = (int)Math.max(minSize, required * 2);
+
+		File tmp = new File(file.getPath() + ".tmp");
+		Files.deleteIfExists(tmp.toPath());
+		close();
+		map(tmp, size);
+		for (Record record: records) {
+			put(record.id, record.availableAt, record.body);
+		}
+		buffer.force();
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		log.debug("Compacted message journal " + file.getPath() + " to " + records.size() +
+				" messages in " + size + " bytes");
+	}
+
+	/**
+	 * Flushes the journal to disk and closes the file.
+	 */
+	void close()
+	{
+		if (buffer != null) {
+			try { buffer.force(); } catch (Exception ignored) {}
+		}
+		if (raf != null) {
+			try { raf.close(); } catch (Exception ignored) {}
+		}
+	}
+
+	private void map(File target, int size) throws IOException
+	{
+		raf = new RandomAccessFile(target, "rw");
+		buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+}
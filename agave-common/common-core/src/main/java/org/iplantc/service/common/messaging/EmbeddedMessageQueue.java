@@ -0,0 +1,336 @@
+package org.iplantc.service.common.messaging;
+
+import org.iplantc.service.common.exceptions.MessagingException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A single queue of the {@link EmbeddedMessageBroker}. Messages become ready once their
+ * delay passes and are handed out in the order they became ready. A reserved message stays
+ * on the queue until it is deleted. If it is not deleted, released, or touched within the
+ * reservation timeout, it is returned to the queue for another consumer, the same way
+ * beanstalk handles a job whose time to run passes.
+ *
+ * Puts and deletes are written to the {@link EmbeddedMessageJournal} when there is one.
+ * Reservations are not journaled, so messages reserved when the JVM stops are ready again
+ * after a restart.
+ *
+ * @author dooley
+ *
+ */
+class EmbeddedMessageQueue
+{
+	/**
+	 * A message on the queue and its delivery state.
+	 */
+	private static class Entry
+	{
+		final long id;
+		final String body;
+		long availableAt;
+		long reservedUntil;
+
+		Entry(long id, String body, long availableAt) {
+			this.id = id;
+			this.body = body;
+			this.availableAt = availableAt;
+		}
+	}
+
+	private static final Comparator<Entry> READY_ORDER = (a, b) -> {
+		int c = Long.compare(a.availableAt, b.availableAt);
+		return c != 0 ? c : Long.compare(a.id, b.id);
+	};
+
+	private final String name;
+	private final EmbeddedMessageJournal journal;
+	private final long reservationTimeoutMs;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+	private final PriorityQueue<Entry> ready = new PriorityQueue<Entry>(READY_ORDER);
+	private final Map<Long, Entry> reserved = new HashMap<Long, Entry>();
+	private long nextReservationExpiry = Long.MAX_VALUE;
+	private long nextId = 1;
+
+	/**
+	 * Creates the queue and restores any messages left in the journal.
+	 *
+	 * @param name the name of the queue
+	 * @param journal the journal to persist messages in, or null to keep them in memory only
+	 * @param reservationTimeoutSecs seconds a reserved message is held before it is redelivered
+	 */
+	EmbeddedMessageQueue(String name, EmbeddedMessageJournal journal, int reservationTimeoutSecs)
+	{
+		this.name = name;
+		this.journal = journal;
+		this.reservationTimeoutMs = TimeUnit.SECONDS.toMillis(Math.max(reservationTimeoutSecs, 1));
+
+		if (journal != null) {
+			for (EmbeddedMessageJournal.Record record: journal.replay().values()) {
+				Entry entry = new Entry(record.id, record.body, record.availableAt);
+				entries.put(entry.id, entry);
+				ready.add(entry);
+				nextId = Math.max(nextId, entry.id + 1);
+			}
+		}
+	}
+
+	/**
+	 * @return the name of the queue
+	 */
+	String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Adds messages to the queue.
+	 *
+	 * @param bodies the message bodies
+	 * @param secondsToDelay seconds before the messages can be reserved
+	 * @return the id of the last message added
+	 * @throws MessagingException if the messages cannot be journaled
+	 */
+	long put(Collection<String> bodies, int secondsToDelay) throws MessagingException
+	{
+		long availableAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(secondsToDelay, 0));
+		lock.lock();
+		try {
+			long id = 0;
+			for (String body: bodies) {
+				id = nextId++;
+				if (journal != null && !journal.put(id, availableAt, body)) {
+					compactJournal();
+					if (!journal.put(id, availableAt, body)) {
+						throw new MessagingException("Message of " + body.length() + " characters does not fit " +
+								"in the journal of the " + name + " queue, even after compacting it");
+					}
+				}
+				Entry entry = new Entry(id, body, availableAt);
+				entries.put(id, entry);
+				ready.add(entry);
+			}
+			changed.signalAll();
+			return id;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reserves up to <code>count</code> ready messages, waiting up to <code>timeoutMs</code>
+	 * for the first one.
+	 *
+	 * @param count the maximum number of messages to reserve
+	 * @param timeoutMs milliseconds to wait for a message. Zero returns immediately.
+	 * @return the reserved messages, empty if none were ready in time
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	List<Message> reserve(int count, long timeoutMs) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + Math.max(timeoutMs, 0);
+		List<Message> messages = new ArrayList<Message>();
+
+		lock.lockInterruptibly();
+		try {
+			while (true)
+			{
+				long now = System.currentTimeMillis();
+				if (now >= nextReservationExpiry) {
+					releaseExpiredReservations(now);
+				}
+
+				while (messages.size() < count && !ready.isEmpty() && ready.peek().availableAt <= now) {
+					Entry entry = ready.poll();
+					entry.reservedUntil = now + reservationTimeoutMs;
+					reserved.put(entry.id, entry);
+					nextReservationExpiry = Math.min(nextReservationExpiry, entry.reservedUntil);
+					messages.add(new Message(entry.id, entry.body));
+				}
+
+				if (!messages.isEmpty() || now >= deadline) {
+					return messages;
+				}
+
+				// wake when the next message becomes ready or a reservation expires
+				long wait = deadline - now;
+				if (!ready.isEmpty()) {
+					wait = Math.min(wait, ready.peek().availableAt - now);
+				}
+				wait = Math.min(wait, nextReservationExpiry - now);
+				changed.await(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes messages from the queue whether they are reserved or not. Unknown ids are ignored.
+	 *
+	 * @param ids the ids of the messages to remove
+	 * @throws MessagingException if the deletes cannot be journaled
+	 */
+	void delete(Collection<Long> ids) throws MessagingException
+	{
+		lock.lock();
+		try {
+			for (Long id: ids) {
+				Entry entry = entries.remove(id);
+				if (entry == null) continue;
+
+				if (reserved.remove(id) == null) {
+					ready.remove(entry);
+				}
+				if (journal != null && !journal.delete(id)) {
+					compactJournal();
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns reserved messages to the queue. Ids which are not reserved are ignored.
+	 *
+	 * @param ids the ids of the messages to release
+	 * @param secondsToDelay seconds before the messages can be reserved again
+	 */
+	void release(Collection<Long> ids, int secondsToDelay)
+	{
+		long availableAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(secondsToDelay, 0));
+		lock.lock();
+		try {
+			for (Long id: ids) {
+				Entry entry = reserved.remove(id);
+				if (entry != null) {
+					entry.availableAt = availableAt;
+					ready.add(entry);
+				}
+			}
+			changed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Restarts the reservation timeout of a reserved message.
+	 *
+	 * @param id the id of the message
+	 * @return true if the message is reserved, false otherwise
+	 */
+	boolean touch(long id)
+	{
+		lock.lock();
+		try {
+			Entry entry = reserved.get(id);
+			if (entry == null) return false;
+
+			entry.reservedUntil = System.currentTimeMillis() + reservationTimeoutMs;
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param id the id of the message
+	 * @return true if the message is on the queue, reserved or not
+	 */
+	boolean contains(long id)
+	{
+		lock.lock();
+		try {
+			return entries.containsKey(id);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of messages on the queue, reserved or not
+	 */
+	int size()
+	{
+		lock.lock();
+		try {
+			return entries.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Flushes and closes the journal.
+	 */
+	void close()
+	{
+		lock.lock();
+		try {
+			if (journal != null) {
+				journal.close();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns every reserved message whose reservation has expired to the queue.
+	 * Caller must hold the lock.
+	 */
+	private void releaseExpiredReservations(long now)
+	{
+		nextReservationExpiry = Long.MAX_VALUE;
+		for (Iterator<Entry> it = reserved.values().iterator(); it.hasNext(); ) {
+			Entry entry = it.next();
+			if (entry.reservedUntil <= now) {
+				it.remove();
+				entry.availableAt = now;
+				ready.add(entry);
+			} else {
+				nextReservationExpiry = Math.min(nextReservationExpiry, entry.reservedUntil);
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the journal with the messages currently on the queue. Caller must hold the lock.
+	 */
+	private void compactJournal() throws MessagingException
+	{
+		List<EmbeddedMessageJournal.Record> records = new ArrayList<EmbeddedMessageJournal.Record>();
+		for (Entry entry: entries.values()) {
+			records.add(new EmbeddedMessageJournal.Record(entry.id, entry.availableAt, entry.body));
+		}
+		try {
+			journal.compact(records);
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to compact the journal of the " + name + " queue", e);
+		}
+	}
+}
@@ -24,9 +24,13 @@ public class MessageClientFactory {
 		{
 			return new IronBeanstalkClient();
 		}
+		else if (StringUtils.equalsIgnoreCase(Settings.MESSAGING_SERVICE_PROVIDER, MessageQueueType.EMBEDDED.name()))
+		{
+			return new EmbeddedMessageClient();
+		}
 		else
 		{
-			throw new MessagingException("Unknown messaging service. Please specify one of the following: ironmq, rabbitmq, beanstalk");
+			throw new MessagingException("Unknown messaging service. Please specify one of the following: ironmq, rabbitmq, beanstalk, embedded");
 		}
 	}
 
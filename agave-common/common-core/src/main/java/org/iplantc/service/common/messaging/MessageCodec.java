@@ -0,0 +1,145 @@
+package org.iplantc.service.common.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts a message body to and from the binary envelope used on the internal queues.
+ * Codecs are registered with the {@link MessageCodecRegistry} for the body class they
+ * handle. Each codec reads the JSON bodies published before the binary envelope existed,
+ * so queues holding a mix of both can be drained during an upgrade.
+ *
+ * When the fields written by a codec change, increment {@link #getVersion()} and keep
+ * {@link #read(DataInput, int)} able to read the previous versions until no messages of
+ * those versions can be left on a queue.
+ *
+ * @param <T> the message body class
+ * @author dooley
+ *
+ */
+public interface MessageCodec<T>
+{
+	/**
+	 * Longest string {@link #readString(DataInput)} accepts, in bytes.
+	 */
+	int MAX_STRING_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * @return the name identifying this message type in the envelope. Must not change once published.
+	 */
+	String getType();
+
+	/**
+	 * @return the version of the fields written by {@link #write(Object, DataOutput)}
+	 */
+	int getVersion();
+
+	/**
+	 * Writes the fields of the message body.
+	 *
+	 * @param body the message body
+	 * @param out the envelope payload
+	 * @throws IOException if the body cannot be written
+	 */
+	void write(T body, DataOutput out) throws IOException;
+
+	/**
+	 * Reads a message body written by this codec.
+	 *
+	 * @param in the envelope payload
+	 * @param version the codec version the body was written with
+	 * @return the message body
+	 * @throws IOException if the payload cannot be read or the version is not supported
+	 */
+	T read(DataInput in, int version) throws IOException;
+
+	/**
+	 * Reads a message body published as JSON.
+	 *
+	 * @param json the parsed message
+	 * @return the message body
+	 * @throws IOException if the message is missing required fields
+	 */
+	T readJson(JsonNode json) throws IOException;
+
+	/**
+	 * Writes a nullable string as a length prefixed UTF-8 value. Unlike
+	 * {@link DataOutput#writeUTF(String)}, there is no 64KB limit.
+	 *
+	 * @param out the envelope payload
+	 * @param value the value to write, may be null
+	 * @throws IOException if the value cannot be written
+	 */
+	static void writeString(DataOutput out, String value) throws IOException
+	{
+		if (value == null) {
+			writeVarInt(out, 0);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length + 1);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a string written with {@link #writeString(DataOutput, String)}.
+	 *
+	 * @param in the envelope payload
+	 * @return the value, or null if null was written
+	 * @throws IOException if the value cannot be read
+	 * @throws IllegalArgumentException if the length of the value is out of range
+	 */
+	static String readString(DataInput in) throws IOException
+	{
+		int length = readVarInt(in);
+		if (length == 0) {
+			return null;
+		}
+		if (length - 1 > MAX_STRING_BYTES ||
+				(in instanceof InputStream && length - 1 > ((InputStream)in).available())) {
+			throw new IllegalArgumentException("String length " + (length - 1) + " is longer than the message");
+		}
+
+		byte[] bytes = new byte[length - 1];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a non-negative int in 1 to 5 bytes, 7 bits per byte.
+	 */
+	static void writeVarInt(DataOutput out, int value) throws IOException
+	{
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an int written with {@link #writeVarInt(DataOutput, int)}.
+	 *
+	 * @throws IllegalArgumentException if the value is negative or longer than 5 bytes
+	 */
+	static int readVarInt(DataInput in) throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) {
+					throw new IllegalArgumentException("Variable length integer " + value + " is negative");
+				}
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Variable length integer is longer than 5 bytes");
+	}
+}
@@ -0,0 +1,176 @@
+package org.iplantc.service.common.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang.StringUtils;
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.exceptions.MessagingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes and decodes the bodies of messages sent between services with the
+ * {@link MessageCodec} registered for each body class.
+ *
+ * Messages are encoded in a versioned binary envelope:
+ * <pre>
+ * envelope version(1) type(string) codec version(varint) payload
+ * </pre>
+ * Every {@link MessageQueueClient} carries message bodies as strings, so the envelope is
+ * base64 encoded and prefixed with {@link #ENVELOPE_PREFIX}, which can never start a JSON
+ * message. Decoding accepts both forms, so JSON messages published by older services or
+ * by {@link Settings#MESSAGING_BINARY_ENVELOPE_ENABLED} being off are still processed.
+ *
+ * @author dooley
+ *
+ */
+public class MessageCodecRegistry
+{
+	/**
+	 * First character of every message encoded as a binary envelope.
+	 */
+	public static final char ENVELOPE_PREFIX = '~';
+
+	private static final int ENVELOPE_VERSION = 1;
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private static final Map<Class<?>, MessageCodec<?>> codecs = new ConcurrentHashMap<Class<?>, MessageCodec<?>>();
+
+	/**
+	 * Registers the codec used for a message body class, replacing any existing one.
+	 *
+	 * @param bodyClass the message body class
+	 * @param codec the codec for the class
+	 */
+	public static <T> void register(Class<T> bodyClass, MessageCodec<T> codec)
+	{
+		codecs.put(bodyClass, codec);
+	}
+
+	/**
+	 * Returns the codec for a message body class. Body classes usually register their
+	 * codec in a static initializer, so the class is initialized before giving up.
+	 *
+	 * @param bodyClass the message body class
+	 * @return the codec registered for the class
+	 * @throws MessagingException if no codec is registered for the class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> MessageCodec<T> getCodec(Class<T> bodyClass) throws MessagingException
+	{
+		MessageCodec<T> codec = (MessageCodec<T>)codecs.get(bodyClass);
+		if (codec == null) {
+			try {
+				Class.forName(bodyClass.getName(), true, bodyClass.getClassLoader());
+			} catch (ClassNotFoundException ignored) {}
+
+			codec = (MessageCodec<T>)codecs.get(bodyClass);
+			if (codec == null) {
+				throw new MessagingException("No message codec registered for " + bodyClass.getName());
+			}
+		}
+		return codec;
+	}
+
+	/**
+	 * Thread safe {@link ObjectMapper} shared by message producers and consumers. Creating
+	 * a mapper is expensive, so use this rather than a new one per message.
+	 *
+	 * @return the shared mapper
+	 */
+	public static ObjectMapper getObjectMapper()
+	{
+		return mapper;
+	}
+
+	/**
+	 * Encodes the message body to publish on a queue. The body is written as a binary
+	 * envelope unless {@link Settings#MESSAGING_BINARY_ENVELOPE_ENABLED} is off, in which
+	 * case it is serialized as JSON for consumers which do not read the envelope yet.
+	 *
+	 * @param body the message body
+	 * @return the encoded message
+	 * @throws MessagingException if the body cannot be encoded
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> String encode(T body) throws MessagingException
+	{
+		MessageCodec<T> codec = getCodec((Class<T>)body.getClass());
+		try {
+			if (!Settings.MESSAGING_BINARY_ENVELOPE_ENABLED) {
+				return mapper.writeValueAsString(body);
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(ENVELOPE_VERSION);
+			MessageCodec.writeString(out, codec.getType());
+			MessageCodec.writeVarInt(out, codec.getVersion());
+			codec.write(body, out);
+			out.flush();
+
+			return ENVELOPE_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to encode " + codec.getType() + " message", e);
+		}
+	}
+
+	/**
+	 * Decodes a message body read from a queue. Accepts binary envelopes written by
+	 * {@link #encode(Object)} and JSON messages.
+	 *
+	 * @param message the message read from the queue
+	 * @param bodyClass the expected message body class
+	 * @return the message body
+	 * @throws MessagingException if the message is not a valid message of the expected type
+	 */
+	public static <T> T decode(String message, Class<T> bodyClass) throws MessagingException
+	{
+		MessageCodec<T> codec = getCodec(bodyClass);
+		if (StringUtils.isEmpty(message)) {
+			throw new MessagingException("Empty " + codec.getType() + " message");
+		}
+
+		try {
+			if (message.charAt(0) != ENVELOPE_PREFIX) {
+				JsonNode json = mapper.readTree(message);
+				if (json == null || !json.isObject()) {
+					throw new IOException("Message is not a JSON object");
+				}
+				return codec.readJson(json);
+			}
+
+			byte[] bytes = Base64.getDecoder().decode(message.substring(1));
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+			int envelopeVersion = in.readUnsignedByte();
+			if (envelopeVersion != ENVELOPE_VERSION) {
+				throw new IOException("Unsupported message envelope version " + envelopeVersion);
+			}
+
+			String type = MessageCodec.readString(in);
+			if (!codec.getType().equals(type)) {
+				throw new IOException("Expected a " + codec.getType() + " message, but found " + type);
+			}
+
+			int version = MessageCodec.readVarInt(in);
+			if (version > codec.getVersion()) {
+				throw new IOException("Unsupported " + type + " message version " + version);
+			}
+
+			return codec.read(in, version);
+		}
+		catch (IOException | IllegalArgumentException e) {
+			throw new MessagingException("Failed to decode " + codec.getType() + " message " + message, e);
+		}
+	}
+}
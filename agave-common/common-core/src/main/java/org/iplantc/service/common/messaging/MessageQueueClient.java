@@ -4,6 +4,7 @@ import org.apache.commons.lang.NotImplementedException;
 import org.iplantc.service.common.exceptions.MessageProcessingException;
 import org.iplantc.service.common.exceptions.MessagingException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,6 +30,22 @@ public interface MessageQueueClient {
 	 */
     void push(String exchange, String queue, String message, int secondsToDelay) throws MessagingException;
 	
+	/**
+	 * Publishes all the messages onto the given queue in as few round trips as the
+	 * underlying service allows. Messages are published in order. Implementations
+	 * without native support fall back to {@link #push(String, String, String)} for
+	 * each message.
+	 * 
+	 * @param queue name of queue
+	 * @param messages the message contents to persist
+	 * @throws MessagingException if communication with the queue fails. Some of the messages may have been published.
+	 */
+    default void pushAll(String exchange, String queue, List<String> messages) throws MessagingException {
+        for (String message: messages) {
+            push(exchange, queue, message);
+        }
+    }
+	
 	/**
 	 * Returns a message back to the queue for consumption by a different process.
 	 * 
@@ -166,6 +183,70 @@ public interface MessageQueueClient {
     Message reserve(String exchange, String queue, int timeout)
 	throws MessagingException;
 
+	/**
+	 * Reserves up to <code>count</code> messages from the queue, waiting up to <code>timeout</code>
+	 * seconds for the first one and taking the rest only if they are already available.
+	 * Reserved messages stay on the queue until they are acknowledged with
+	 * {@link #deleteAll(String, String, List)} or returned with {@link #rejectAll(String, String, List)}.
+	 * Implementations without native support return the single message from
+	 * {@link #pop(String, String)}, ignoring the timeout.
+	 * 
+	 * @param exchange name of the exchange
+	 * @param queue name of queue
+	 * @param count the maximum number of messages to reserve
+	 * @param timeout seconds to wait for the first message
+	 * @return the reserved messages in delivery order
+	 * @throws MessagingException if communication with the queue fails
+	 */
+    default List<Message> reserveAll(String exchange, String queue, int count, int timeout)
+    throws MessagingException {
+        List<Message> messages = new ArrayList<Message>();
+        Message message = pop(exchange, queue);
+        if (message != null) {
+            messages.add(message);
+        }
+        return messages;
+    }
+
+	/**
+	 * Seconds a message reserved with {@link #reserveAll(String, String, int, int)} is held
+	 * before the queue delivers it again. Consumers settle their reserved messages within
+	 * this time. The default matches the time to run the beanstalk client puts messages with.
+	 * 
+	 * @return the reservation timeout in seconds
+	 */
+    default int getReservationTimeout() {
+        return 120;
+    }
+
+	/**
+	 * Acknowledges and removes all the messages from the queue at once.
+	 * 
+	 * @param exchange name of the exchange
+	 * @param queue name of queue
+	 * @param messages the messages reserved with {@link #reserveAll(String, String, int, int)}
+	 * @throws MessagingException if communication with the queue fails
+	 */
+    default void deleteAll(String exchange, String queue, List<Message> messages) throws MessagingException {
+        for (Message message: messages) {
+            delete(exchange, queue, message.getId());
+        }
+    }
+
+	/**
+	 * Returns all the messages to the queue for consumption by a different process.
+	 * 
+	 * @param exchange name of the exchange
+	 * @param queue name of queue
+	 * @param messages the messages reserved with {@link #reserveAll(String, String, int, int)}
+	 * @throws MessagingException if communication with the queue fails
+	 */
+    default void rejectAll(String exchange, String queue, List<Message> messages) throws MessagingException {
+        for (Message message: messages) {
+            reject(exchange, queue, message.getId(), message.getMessage());
+        }
+    }
+
     
 	
 }
@@ -0,0 +1,373 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.exceptions.MessageProcessingException;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.iplantc.service.common.persistence.HibernateUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumer runtime for a single queue. A dispatcher thread reserves up to <code>prefetch</code>
+ * messages at a time with {@link MessageQueueClient#reserveAll(String, String, int, int)} and
+ * hands them to a bounded pool of worker threads, which call the
+ * {@link MessageQueueListener} in parallel. An {@link AsyncMessageQueueListener} is only
+ * started by the workers, and the batch waits for the processing it started to complete.
+ * Once the whole batch is processed, the messages are acknowledged or returned to the
+ * queue together. Messages still processing when their reservation runs out are returned
+ * to the queue with the rest of the batch rather than holding it up.
+ *
+ * While {@link Settings#isDrainingQueuesEnabled()} is true, no new messages are reserved.
+ * Messages already reserved are still processed and acknowledged. Calling {@link #stop()}
+ * does the same before shutting the consumer down.
+ *
+ * When every worker is busy and the worker queue is full, the dispatcher processes the
+ * message itself, so no new messages are reserved until the workers catch up.
+ *
+ * The listener is shared by all workers and must be thread safe.
+ *
+ * @author dooley
+ *
+ */
+public class MessageQueueConsumer
+{
+	private static final Logger log = Logger.getLogger(MessageQueueConsumer.class);
+
+	/* seconds the dispatcher waits for messages before checking for stop or drain requests */
+	private static final int POLL_TIMEOUT_SECS = 5;
+
+	/* seconds the dispatcher waits before retrying after a messaging failure */
+	private static final int RETRY_DELAY_SECS = 5;
+
+	private final String exchange;
+	private final String queue;
+	private final MessageQueueListener listener;
+	private final int prefetch;
+	private final ThreadPoolExecutor workers;
+
+	private final AtomicBoolean stopped = new AtomicBoolean(false);
+	private final CountDownLatch terminated = new CountDownLatch(1);
+	private Thread dispatcher = null;
+
+	/**
+	 * @param exchange name of the exchange
+	 * @param queue name of the queue to consume
+	 * @param listener processes each message. Shared by all workers.
+	 * @param workerCount number of messages processed in parallel
+	 * @param prefetch maximum number of messages reserved from the queue at once
+	 */
+	public MessageQueueConsumer(String exchange, String queue, MessageQueueListener listener,
+			int workerCount, int prefetch)
+	{
+		this.exchange = exchange;
+		this.queue = queue;
+		this.listener = listener;
+		this.prefetch = Math.max(prefetch, 1);
+
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		int poolSize = Math.max(workerCount, 1);
+		this.workers = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(this.prefetch), r -> {
+					Thread t = new Thread(r, queue + "-worker-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Starts consuming from the queue. Has no effect if the consumer is already running.
+	 */
+	public synchronized void start()
+	{
+		if (dispatcher != null) return;
+
+		dispatcher = new Thread(this::dispatch, queue + "-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+
+		log.debug("Started consumer on the " + queue + " queue with " + workers.getCorePoolSize() +
+				" workers and a prefetch of " + prefetch);
+	}
+
+	/**
+	 * Stops reserving messages and waits up to <code>timeoutSecs</code> for the messages already
+	 * reserved to be processed and acknowledged. Any still running after that are interrupted
+	 * and will be redelivered by the queue.
+	 *
+	 * @param timeoutSecs seconds to wait for in-flight messages
+	 */
+	public void stop(int timeoutSecs)
+	{
+		if (!stopped.compareAndSet(false, true)) return;
+
+		try {
+			if (dispatcher != null && !terminated.await(timeoutSecs, TimeUnit.SECONDS)) {
+				log.error("Consumer on the " + queue + " queue did not finish processing within " +
+						timeoutSecs + " seconds. Unacknowledged messages will be redelivered.");
+				dispatcher.interrupt();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Stops the consumer, waiting for in-flight messages up to the time needed to
+	 * process a full batch.
+	 */
+	public void stop()
+	{
+		stop(60);
+	}
+
+	/**
+	 * @return true if the consumer is reserving messages
+	 */
+	public boolean isRunning()
+	{
+		return dispatcher != null && !stopped.get();
+	}
+
+	/**
+	 * Dispatch loop. Reserves batches of messages and processes them until stopped.
+	 */
+	protected void dispatch()
+	{
+		MessageQueueClient client = null;
+		try {
+			while (!stopped.get() && !Thread.currentThread().isInterrupted())
+			{
+				if (Settings.isDrainingQueuesEnabled()) {
+					sleep(POLL_TIMEOUT_SECS);
+					continue;
+				}
+
+				List<Message> messages = Collections.emptyList();
+				try {
+					if (client == null) {
+						client = getMessageClient();
+					}
+
+					messages = client.reserveAll(exchange, queue, prefetch, POLL_TIMEOUT_SECS);
+					if (!messages.isEmpty()) {
+						processBatch(client, messages);
+					}
+				}
+				catch (MessagingException e) {
+					log.error("Consumer on the " + queue + " queue failed to communicate with the " +
+							"messaging service. Retrying in " + RETRY_DELAY_SECS + " seconds.", e);
+					if (client != null) {
+						try { client.stop(); } catch (Throwable ignored) {}
+						client = null;
+					}
+					sleep(RETRY_DELAY_SECS);
+				}
+				catch (RuntimeException e) {
+					// a broken connection can surface as a runtime exception from the client.
+					// the dispatcher must survive it or the queue is never consumed again.
+					log.error("Consumer on the " + queue + " queue failed unexpectedly. Reserved messages " +
+							"will be returned to the queue. Retrying in " + RETRY_DELAY_SECS + " seconds.", e);
+					if (client != null) {
+						try { client.rejectAll(exchange, queue, messages); } catch (Throwable ignored) {}
+						try { client.stop(); } catch (Throwable ignored) {}
+						client = null;
+					}
+					sleep(RETRY_DELAY_SECS);
+				}
+			}
+		}
+		finally {
+			if (client != null) {
+				try { client.stop(); } catch (Throwable ignored) {}
+			}
+			terminated.countDown();
+			log.debug("Stopped consumer on the " + queue + " queue");
+		}
+	}
+
+	/**
+	 * @return a client to reserve and settle messages with
+	 * @throws MessagingException if the client cannot be created
+	 */
+	protected MessageQueueClient getMessageClient() throws MessagingException
+	{
+		return MessageClientFactory.getMessageClient();
+	}
+
+	/**
+	 * Processes a batch of messages on the worker pool and settles them once all are done.
+	 * Messages which were processed, or which failed and are expired, are acknowledged.
+	 * The rest, including those not processed within the client's
+	 * {@link MessageQueueClient#getReservationTimeout()}, are returned to the queue.
+	 *
+	 * @param client the client the messages were reserved with
+	 * @param messages the reserved messages
+	 * @throws MessagingException if the messages cannot be settled
+	 */
+	protected void processBatch(MessageQueueClient client, List<Message> messages)
+	throws MessagingException
+	{
+		List<Future<CompletableFuture<Boolean>>> results = new ArrayList<Future<CompletableFuture<Boolean>>>();
+		for (final Message message: messages) {
+			try {
+				if (listener instanceof AsyncMessageQueueListener) {
+					results.add(workers.submit(() -> processAsync(message)));
+				} else {
+					results.add(workers.submit(() -> CompletableFuture.completedFuture(process(message))));
+				}
+			}
+			catch (RejectedExecutionException e) {
+				// the workers are shutting down. the message is returned to the queue.
+				results.add(CompletableFuture.completedFuture(CompletableFuture.completedFuture(false)));
+			}
+		}
+
+		// settle the batch before the queue redelivers it
+		long deadline = System.currentTimeMillis() + client.getReservationTimeout() * 1000L;
+
+		List<Message> completed = new ArrayList<Message>();
+		List<Message> rejected = new ArrayList<Message>();
+		boolean cancelled = false;
+		for (int i = 0; i < messages.size(); i++)
+		{
+			boolean ack = false;
+			try {
+				ack = results.get(i).get(remaining(deadline), TimeUnit.MILLISECONDS)
+								.get(remaining(deadline), TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException e) {
+				log.error("Message from the " + queue + " queue was not processed within its " +
+						client.getReservationTimeout() + " second reservation. It will be returned to the queue.");
+				results.get(i).cancel(true);
+				cancelled = true;
+			}
+			catch (ExecutionException e) {
+				log.error("Unexpected error processing message from the " + queue + " queue", e.getCause());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				// leave the rest unsettled. they are redelivered when the client closes.
+				break;
+			}
+
+			if (ack) {
+				completed.add(messages.get(i));
+			} else {
+				rejected.add(messages.get(i));
+			}
+		}
+
+		if (cancelled) {
+			// drop cancelled messages which never started so they do not hold up the next batch
+			workers.purge();
+		}
+
+		client.deleteAll(exchange, queue, completed);
+		client.rejectAll(exchange, queue, rejected);
+	}
+
+	/**
+	 * Passes a single message to the listener.
+	 *
+	 * @param message the message to process
+	 * @return true if the message should be acknowledged, false if it should be returned to the queue
+	 */
+	protected boolean process(Message message)
+	{
+		try {
+			listener.processMessage(message.getMessage());
+			return true;
+		}
+		catch (Throwable e) {
+			return isAcknowledged(e);
+		}
+		finally {
+			afterProcess();
+		}
+	}
+
+	/**
+	 * Starts a single message on an {@link AsyncMessageQueueListener}. The worker is
+	 * released as soon as processing has started.
+	 *
+	 * @param message the message to process
+	 * @return a future completing with true if the message should be acknowledged, false if it
+	 * should be returned to the queue
+	 */
+	protected CompletableFuture<Boolean> processAsync(Message message)
+	{
+		try {
+			return ((AsyncMessageQueueListener)listener).processMessageAsync(message.getMessage())
+					.handle((result, e) -> e == null ||
+							isAcknowledged(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+		}
+		catch (Throwable e) {
+			return CompletableFuture.completedFuture(isAcknowledged(e));
+		}
+		finally {
+			afterProcess();
+		}
+	}
+
+	/**
+	 * @param e the reason a message failed
+	 * @return true if the message should be acknowledged anyway, false if it should be returned to the queue
+	 */
+	private boolean isAcknowledged(Throwable e)
+	{
+		if (e instanceof MessageProcessingException) {
+			// expired messages have failed permanently. redelivering them won't help.
+			if (((MessageProcessingException)e).isExpired()) {
+				log.debug("Discarding expired message from the " + queue + " queue. " + e.getMessage());
+				return true;
+			}
+			log.error("Failed to process message from the " + queue + " queue. It will be returned to the queue.", e);
+			return false;
+		}
+		log.error("Unexpected error processing message from the " + queue + " queue. " +
+				"It will be returned to the queue.", e);
+		return false;
+	}
+
+	/**
+	 * Called on the worker thread after each message is processed. Closes the thread's
+	 * hibernate session so the next message starts with fresh state.
+	 */
+	protected void afterProcess()
+	{
+		try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+	}
+
+	private long remaining(long deadline)
+	{
+		return Math.max(deadline - System.currentTimeMillis(), 0);
+	}
+
+	private void sleep(int seconds)
+	{
+		try {
+			Thread.sleep(seconds * 1000L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -2,5 +2,5 @@ package org.iplantc.service.common.messaging;
 
 public enum MessageQueueType
 {
-	RABBITMQ, IRONMQ, BEANSTALK, IRONBEANSTALK;
+	RABBITMQ, IRONMQ, BEANSTALK, IRONBEANSTALK, EMBEDDED;
 }
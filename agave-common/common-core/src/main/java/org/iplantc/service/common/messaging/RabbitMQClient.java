@@ -12,11 +12,20 @@ import org.iplantc.service.common.exceptions.MessagingException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeoutException;
 
 /**
+ * {@link MessageQueueClient} for RabbitMQ. All instances share a single connection
+ * from the {@link RabbitMQConnectionPool}. Messages are published on pooled channels
+ * and confirmed by the broker before {@link #push(String, String, String)} returns.
+ * Consumers open their own channel on the shared connection.
+ *
  * @author dooley
  *
  */
@@ -24,10 +33,14 @@ public class RabbitMQClient implements MessageQueueClient
 {
 	private static final Logger log = Logger.getLogger(RabbitMQClient.class);
 	
-	private Connection connection = null;
 	private Channel channel = null;
 	private QueueingConsumer consumer = null;
 	
+	private Channel batchChannel = null;
+	private QueueingConsumer batchConsumer = null;
+	private String batchQueue = null;
+	private final TreeSet<Long> unackedDeliveryTags = new TreeSet<Long>();
+	
 	private boolean stop = false; 
 	
 	/* (non-Javadoc)
@@ -36,31 +49,22 @@ public class RabbitMQClient implements MessageQueueClient
 	@Override
 	public void push(String exchange, String queue, String message) throws MessagingException
 	{
-		try 
-		{
-			ConnectionFactory factory = new ConnectionFactory();
-		    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
-		    //factory.setVirtualHost(tenantId); // use virutal hosting to isolate to a tenant
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
-		    
-		    channel.exchangeDeclare(exchange, "topic", true, false, false, null);
-		    //channel.exchangeDeclarePassive(exchange);
-//		    channel.queueDeclare(queue, true, false, false, null);
-		    
-		    channel.basicPublish(exchange, queue, 
-		                MessageProperties.PERSISTENT_TEXT_PLAIN,
-		                message.getBytes());
-		    
-		    log.debug("[" + queue + "] Published message '" + message + "'");
-		}
-		catch (IOException e) {
-			throw new MessagingException("Failed to publish message",e);
-		}
-		finally {
-			try {channel.close();} catch(Exception e) {}
-		    try {connection.close();} catch(Exception e) {}
-		}
+		publish(exchange, "topic", null, queue, MessageProperties.PERSISTENT_TEXT_PLAIN, Arrays.asList(message));
+		
+		log.debug("[" + queue + "] Published message '" + message + "'");
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#pushAll(java.lang.String, java.lang.String, java.util.List)
+	 */
+	@Override
+	public void pushAll(String exchange, String queue, List<String> messages) throws MessagingException
+	{
+		if (messages.isEmpty()) return;
+		
+		publish(exchange, "topic", null, queue, MessageProperties.PERSISTENT_TEXT_PLAIN, messages);
+		
+		log.debug("[" + queue + "] Published " + messages.size() + " messages");
 	}
 	
 	/* (non-Javadoc)
@@ -70,37 +74,71 @@ public class RabbitMQClient implements MessageQueueClient
 	public void push(String exchange, String queue, String message, int secondsToDelay)
 	throws MessagingException
 	{
+		// brokers without the x-delayed-message plugin hold delayed messages in this service
+		if (DelayedMessageScheduler.isEnabled()) {
+			DelayedMessageScheduler.getInstance().schedule(exchange, queue, message, secondsToDelay);
+			log.debug("[" + queue + "] Scheduled message '" + message + "' with a delay of " + secondsToDelay + " seconds");
+			return;
+		}
+		
+		Map<String, Object> args = new HashMap<String, Object>();
+		args.put("x-delayed-type", "direct");
+		
+		AMQP.BasicProperties.Builder props = new AMQP.BasicProperties.Builder();
+		Map<String, Object> headers = new HashMap<String, Object>();
+		headers.put("x-delay", secondsToDelay * 1000);
+		props.headers(headers);
+		
+		publish(exchange, "x-delayed-message", args, "", props.build(), Arrays.asList(message));
+		
+		log.debug("[" + queue + "] Published message '" + message + "' with a delay of " + secondsToDelay + " seconds");
+	}
+	
+	/**
+	 * Publishes messages on a pooled channel of the shared connection and waits once for
+	 * the broker to confirm all of them. The exchange is declared the first time it is
+	 * used on the connection.
+	 *
+	 * @param exchange the exchange to publish to
+	 * @param exchangeType the type of exchange to declare
+	 * @param exchangeArgs arguments used to declare the exchange, may be null
+	 * @param routingKey the routing key of the message
+	 * @param props the message properties
+	 * @param messages the message bodies
+	 * @throws MessagingException if any of the messages is not published and confirmed
+	 */
+	protected void publish(String exchange, String exchangeType, Map<String, Object> exchangeArgs,
+			String routingKey, AMQP.BasicProperties props, List<String> messages)
+	throws MessagingException
+	{
+		RabbitMQConnectionPool pool = getConnectionPool();
+		Channel publishChannel = null;
 		try 
 		{
-			ConnectionFactory factory = new ConnectionFactory();
-		    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
-		    //factory.setVirtualHost(tenantId); // use virutal hosting to isolate to a tenant
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
-		    
-		    Map<String, Object> args = new HashMap<String, Object>();
-		    args.put("x-delayed-type", "direct");
-		    
-		    channel.exchangeDeclare(exchange, "x-delayed-message", true, false, args);
-		    //channel.exchangeDeclarePassive(exchange);
-//		    channel.queueDeclare(queue, true, false, false, null);
-		    
-		    AMQP.BasicProperties.Builder props = new AMQP.BasicProperties.Builder();
-		    Map<String, Object> headers = new HashMap<String, Object>();
-		    headers.put("x-delay", secondsToDelay * 1000);
-		    props.headers(headers);
-		    
-		    
-		    channel.basicPublish(exchange, "", props.build(), message.getBytes());
-		    
-		    log.debug("[" + queue + "] Published message '" + message + "' with a delay of " + secondsToDelay + " seconds");
+			publishChannel = pool.borrowChannel();
+			pool.declareExchange(publishChannel, exchange, exchangeType, exchangeArgs);
+			
+			for (String message: messages) {
+				publishChannel.basicPublish(exchange, routingKey, props, message.getBytes());
+			}
+			
+			publishChannel.waitForConfirmsOrDie(Settings.MESSAGING_PUBLISH_CONFIRM_TIMEOUT_MS);
 		}
-		catch (IOException e) {
+		catch (TimeoutException e) {
+			// outstanding confirms would be attributed to the next publisher. don't reuse the channel.
+			try { publishChannel.close(); } catch (Exception ignored) {}
+			throw new MessagingException("Timed out waiting for the messaging service to confirm message", e);
+		}
+		catch (InterruptedException e) {
+			try { publishChannel.close(); } catch (Exception ignored) {}
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted while waiting for the messaging service to confirm message", e);
+		}
+		catch (IOException | ShutdownSignalException e) {
 			throw new MessagingException("Failed to publish message",e);
 		}
 		finally {
-			try {channel.close();} catch(Exception e) {}
-		    try {connection.close();} catch(Exception e) {}
+			pool.returnChannel(publishChannel);
 		}
 	}
 	
@@ -111,11 +149,8 @@ public class RabbitMQClient implements MessageQueueClient
 	public Message reserve(String exchange, String queue, int timeout) throws MessagingException
 	{
 		QueueingConsumer.Delivery delivery = null;
-		ConnectionFactory factory = new ConnectionFactory();
-	    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
 	    try {
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
+		    channel = getConnectionPool().createChannel();
 		    
 		    Map<String, Object> args = new HashMap<String, Object>();
 		    args.put("x-message-ttl", timeout*1000);
@@ -145,7 +180,6 @@ public class RabbitMQClient implements MessageQueueClient
 		}
 	    finally {
 	    	try { channel.close(); } catch (Exception e1) {}
-			try { connection.close(); } catch (Exception e1) {}
 	    }
 	}
 
@@ -157,11 +191,8 @@ public class RabbitMQClient implements MessageQueueClient
 	public Message pop(String exchange, String queue) throws MessagingException
 	{
 		QueueingConsumer.Delivery delivery = null;
-		ConnectionFactory factory = new ConnectionFactory();
-	    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
 	    try {
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
+		    channel = getConnectionPool().createChannel();
 		    
 		    channel.exchangeDeclare(exchange, "topic", true, false, false, null);
 		    
@@ -193,7 +224,6 @@ public class RabbitMQClient implements MessageQueueClient
 		}
 	    finally {
 	    	try { channel.close(); } catch (Exception e1) {}
-			try { connection.close(); } catch (Exception e1) {}
 	    }
 	}
 	
@@ -205,11 +235,8 @@ public class RabbitMQClient implements MessageQueueClient
 	{
 		List<Message> messages = new ArrayList<Message>();
 		QueueingConsumer.Delivery delivery = null;
-		ConnectionFactory factory = new ConnectionFactory();
-	    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
 	    try {
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
+		    channel = getConnectionPool().createChannel();
 		    
 		    channel.exchangeDeclare(exchange, "topic", true, false, false, null);
 		    
@@ -240,19 +267,164 @@ public class RabbitMQClient implements MessageQueueClient
 		}
 	    finally {
 	    	try { channel.close(); } catch (Exception e1) {}
-			try { connection.close(); } catch (Exception e1) {}
 	    }
 	}
 
+	/* 
+	 * Reserves messages on a channel kept open between calls with a prefetch of
+	 * <pre>count</pre>, so the broker streams the next batch while this one is processed.
+	 * Messages are not acknowledged until {@link #deleteAll(String, String, List)} or
+	 * {@link #rejectAll(String, String, List)} is called. If the channel closes first,
+	 * the broker redelivers them.
+	 */
+	@Override
+	public List<Message> reserveAll(String exchange, String queue, int count, int timeout)
+	throws MessagingException
+	{
+		List<Message> messages = new ArrayList<Message>();
+		try {
+			openBatchChannel(exchange, queue, count);
+			
+			QueueingConsumer.Delivery delivery = batchConsumer.nextDelivery(timeout * 1000L);
+			while (delivery != null)
+			{
+				long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+				unackedDeliveryTags.add(deliveryTag);
+				messages.add(new Message(deliveryTag, new String(delivery.getBody())));
+				
+				if (messages.size() >= count) break;
+				
+				// only take what has already arrived
+				delivery = batchConsumer.nextDelivery(0);
+			}
+			
+			return messages;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return messages;
+		}
+		catch (IOException | ShutdownSignalException e) {
+			closeBatchChannel();
+			throw new MessagingException("Failed to retrieve messages from the " + queue + " queue", e);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#deleteAll(java.lang.String, java.lang.String, java.util.List)
+	 */
+	@Override
+	public void deleteAll(String exchange, String queue, List<Message> messages) throws MessagingException
+	{
+		settleAll(queue, messages, true);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageQueueClient#rejectAll(java.lang.String, java.lang.String, java.util.List)
+	 */
+	@Override
+	public void rejectAll(String exchange, String queue, List<Message> messages) throws MessagingException
+	{
+		settleAll(queue, messages, false);
+	}
+	
+	/**
+	 * Acks or requeues messages reserved with {@link #reserveAll(String, String, int, int)}.
+	 * When the messages are every outstanding delivery up to the highest one, they are
+	 * settled with a single multiple-ack. Otherwise each is settled on its own.
+	 *
+	 * @param queue the queue the messages were reserved from
+	 * @param messages the reserved messages
+	 * @param ack true to acknowledge the messages, false to return them to the queue
+	 * @throws MessagingException if the batch channel closed before the messages were settled
+	 */
+	private void settleAll(String queue, List<Message> messages, boolean ack) throws MessagingException
+	{
+		if (messages.isEmpty()) return;
+		
+		if (batchChannel == null || !batchChannel.isOpen()) {
+			throw new MessagingException("Channel to the " + queue + " queue closed before " + 
+					messages.size() + " messages were settled. They will be redelivered.");
+		}
+		
+		TreeSet<Long> deliveryTags = new TreeSet<Long>();
+		for (Message message: messages) {
+			deliveryTags.add((Long)message.getId());
+		}
+		
+		try {
+			SortedSet<Long> outstanding = unackedDeliveryTags.headSet(deliveryTags.last(), true);
+			if (deliveryTags.containsAll(outstanding)) {
+				if (ack) {
+					batchChannel.basicAck(deliveryTags.last(), true);
+				} else {
+					batchChannel.basicNack(deliveryTags.last(), true, true);
+				}
+				outstanding.clear();
+			}
+			else {
+				for (Long deliveryTag: deliveryTags) {
+					if (ack) {
+						batchChannel.basicAck(deliveryTag, false);
+					} else {
+						batchChannel.basicNack(deliveryTag, false, true);
+					}
+					unackedDeliveryTags.remove(deliveryTag);
+				}
+			}
+		}
+		catch (IOException | ShutdownSignalException e) {
+			closeBatchChannel();
+			throw new MessagingException("Failed to settle " + messages.size() + 
+					" messages from the " + queue + " queue", e);
+		}
+	}
+	
+	/**
+	 * @return the pool providing the shared connection and publishing channels
+	 */
+	protected RabbitMQConnectionPool getConnectionPool()
+	{
+		return RabbitMQConnectionPool.getInstance();
+	}
+	
+	/**
+	 * Opens the channel used by {@link #reserveAll(String, String, int, int)} unless one is
+	 * already consuming from the queue.
+	 */
+	private void openBatchChannel(String exchange, String queue, int prefetch) throws IOException
+	{
+		if (batchChannel != null && batchChannel.isOpen() && queue.equals(batchQueue)) return;
+		
+		closeBatchChannel();
+		
+		batchChannel = getConnectionPool().createChannel();
+		batchChannel.exchangeDeclare(exchange, "topic", true, false, false, null);
+		batchChannel.queueBind(queue, exchange, "*");
+		batchChannel.basicQos(prefetch);
+		
+		batchConsumer = new QueueingConsumer(batchChannel);
+		batchChannel.basicConsume(queue, false, batchConsumer);
+		batchQueue = queue;
+	}
+	
+	private void closeBatchChannel()
+	{
+		if (batchChannel != null) {
+			try { batchChannel.close(); } catch (Exception ignored) {}
+		}
+		batchChannel = null;
+		batchConsumer = null;
+		batchQueue = null;
+		unackedDeliveryTags.clear();
+	}
+
 	@Override
 	public void reject(String exchange, String queue, Object messageId, String message)
 			throws MessagingException
 	{
-		ConnectionFactory factory = new ConnectionFactory();
-	    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
 	    try {
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
+		    channel = getConnectionPool().createChannel();
 		    
 //		    channel.queueDeclare(Settings.MESSAGING_NOTIFICATION_QUEUE_NAME, true, false, false, null);
 		    channel.exchangeDeclare(exchange, "topic", true, false, false, null);
@@ -278,18 +450,14 @@ public class RabbitMQClient implements MessageQueueClient
 		}
 	    finally {
 	    	try { channel.close(); } catch (Exception e1) {}
-			try { connection.close(); } catch (Exception e1) {}
 	    }    
 	}
 
 	@Override
 	public void delete(String exchange, String queue, Object messageId) throws MessagingException
 	{
-		ConnectionFactory factory = new ConnectionFactory();
-	    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
 	    try {
-	    	connection = factory.newConnection();
-			channel = connection.createChannel();
+			channel = getConnectionPool().createChannel();
 			
 			//			    channel.queueDeclare(Settings.MESSAGING_NOTIFICATION_QUEUE_NAME, true, false, false, null);
 			channel.exchangeDeclare(exchange, "topic", true, false, false, null);
@@ -315,7 +483,6 @@ public class RabbitMQClient implements MessageQueueClient
 		}
 	    finally {
 	    	try { channel.close(); } catch (Exception e1) {}
-			try { connection.close(); } catch (Exception e1) {}
 	    } 
 		
 	}
@@ -359,11 +526,8 @@ public class RabbitMQClient implements MessageQueueClient
 	throws MessagingException
 	{
 		QueueingConsumer.Delivery delivery = null;
-		ConnectionFactory factory = new ConnectionFactory();
-	    factory.setHost(Settings.MESSAGING_SERVICE_HOST);
 	    try {
-		    connection = factory.newConnection();
-		    channel = connection.createChannel();
+		    channel = getConnectionPool().createChannel();
 		    
 		    channel.exchangeDeclare(exchange, "topic", true, false, false, null);
 		    
@@ -372,7 +536,8 @@ public class RabbitMQClient implements MessageQueueClient
 		    
 		    channel.queueBind(queue, exchange, "*");
 		    
-		    channel.basicQos(1);
+		    // let the broker stream the next messages while the current one is processed
+		    channel.basicQos(Settings.MESSAGING_CONSUMER_PREFETCH);
 		    
 		    consumer = new QueueingConsumer(channel);
 		    channel.basicConsume(queue, false, consumer);
@@ -387,8 +552,6 @@ public class RabbitMQClient implements MessageQueueClient
 				
 				String body = new String(delivery.getBody());
 	
-				System.out.println(" [x] Received '" + body + "'");
-				
 				try 
 				{
 					listener.processMessage(body);
@@ -400,7 +563,7 @@ public class RabbitMQClient implements MessageQueueClient
 					channel.basicReject(delivery.getEnvelope().getDeliveryTag(), true);
 					throw new MessageProcessingException("Failed to process message " + body, e);
 				}
-				System.out.println(" [x] Done");
+				log.debug("[" + queue + "] Processed message '" + body + "'");
 			} 
 		}
 		catch (Throwable e)
@@ -409,7 +572,6 @@ public class RabbitMQClient implements MessageQueueClient
 		}
 		finally {
 			try { channel.close(); } catch (Exception e1) {}
-			try { connection.close(); } catch (Exception e1) {}
 		}  
 	}
 
@@ -417,6 +579,7 @@ public class RabbitMQClient implements MessageQueueClient
 	public void stop()
 	{
 		stop = true;
+		closeBatchChannel();
 	}
 
 	@Override
@@ -0,0 +1,230 @@
+package org.iplantc.service.common.messaging;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.Settings;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Shares a single AMQP {@link Connection} between all {@link RabbitMQClient} instances
+ * in the JVM and pools the channels used to publish on it. Publishing channels are put
+ * in confirm mode when created so publishers can wait on the broker to accept each
+ * message rather than opening a new connection to get durability.
+ *
+ * When the connection is lost it is discarded along with its channels, and a new one
+ * is opened the next time a channel is requested.
+ *
+ * @author dooley
+ *
+ */
+public class RabbitMQConnectionPool
+{
+	private static final Logger log = Logger.getLogger(RabbitMQConnectionPool.class);
+
+	private static volatile RabbitMQConnectionPool _instance;
+
+	private final ConnectionFactory factory;
+	private final LinkedBlockingQueue<Channel> publishChannels;
+	private final Map<String, Boolean> declaredExchanges = new ConcurrentHashMap<String, Boolean>();
+	private volatile Connection connection = null;
+
+	/**
+	 * @return the connection pool shared by all clients in this JVM
+	 */
+	public static RabbitMQConnectionPool getInstance()
+	{
+		if (_instance == null) {
+			synchronized (RabbitMQConnectionPool.class) {
+				if (_instance == null) {
+					_instance = new RabbitMQConnectionPool(Settings.MESSAGING_CHANNEL_POOL_SIZE);
+				}
+			}
+		}
+		return _instance;
+	}
+
+	/**
+	 * @param maxIdleChannels the maximum number of idle publishing channels kept open
+	 */
+	protected RabbitMQConnectionPool(int maxIdleChannels)
+	{
+		this.publishChannels = new LinkedBlockingQueue<Channel>(Math.max(maxIdleChannels, 1));
+
+		this.factory = new ConnectionFactory();
+		this.factory.setHost(Settings.MESSAGING_SERVICE_HOST);
+		if (Settings.MESSAGING_SERVICE_PORT > 0) {
+			this.factory.setPort(Settings.MESSAGING_SERVICE_PORT);
+		}
+		if (StringUtils.isNotEmpty(Settings.MESSAGING_SERVICE_USERNAME)) {
+			this.factory.setUsername(Settings.MESSAGING_SERVICE_USERNAME);
+			this.factory.setPassword(Settings.MESSAGING_SERVICE_PASSWORD);
+		}
+	}
+
+	/**
+	 * Returns the shared connection, opening a new one if there is none or
+	 * the previous one was closed.
+	 *
+	 * @return an open connection to the broker
+	 * @throws IOException if the connection cannot be established
+	 */
+	public Connection getConnection() throws IOException
+	{
+		Connection current = connection;
+		if (current != null && current.isOpen()) {
+			return current;
+		}
+
+		synchronized (this) {
+			if (connection == null || !connection.isOpen()) {
+				discardChannels();
+
+				final Connection newConnection = openConnection();
+				newConnection.addShutdownListener(new ShutdownListener() {
+					@Override
+					public void shutdownCompleted(ShutdownSignalException cause) {
+						if (!cause.isInitiatedByApplication()) {
+							log.error("Connection to messaging service " + factory.getHost() +
+									" was lost. It will be reopened on next use.", cause);
+						}
+						connectionClosed(newConnection);
+					}
+				});
+				connection = newConnection;
+
+				log.debug("Opened shared connection to messaging service " + factory.getHost());
+			}
+			return connection;
+		}
+	}
+
+	/**
+	 * @return a new connection to the broker
+	 * @throws IOException if the connection cannot be established
+	 */
+	protected Connection openConnection() throws IOException
+	{
+		return factory.newConnection();
+	}
+
+	/**
+	 * Creates a new channel on the shared connection for consumers. These are not
+	 * pooled because consumers hold them for the life of a subscription. Callers
+	 * must close the channel when done. The connection is left open.
+	 *
+	 * @return a new channel
+	 * @throws IOException if the channel cannot be created
+	 */
+	public Channel createChannel() throws IOException
+	{
+		return getConnection().createChannel();
+	}
+
+	/**
+	 * Takes an idle publishing channel from the pool or creates a new one. Publishing
+	 * channels are in confirm mode. Every borrowed channel must be given back with
+	 * {@link #returnChannel(Channel)}.
+	 *
+	 * @return an open channel in confirm mode
+	 * @throws IOException if the channel cannot be created
+	 */
+	public Channel borrowChannel() throws IOException
+	{
+		Channel channel;
+		while ((channel = publishChannels.poll()) != null) {
+			if (channel.isOpen()) {
+				return channel;
+			}
+		}
+
+		channel = getConnection().createChannel();
+		channel.confirmSelect();
+		return channel;
+	}
+
+	/**
+	 * Gives a publishing channel back to the pool. Closed channels and channels
+	 * in excess of the pool size are discarded.
+	 *
+	 * @param channel the channel borrowed from {@link #borrowChannel()}
+	 */
+	public void returnChannel(Channel channel)
+	{
+		if (channel == null || !channel.isOpen()) return;
+
+		if (!publishChannels.offer(channel)) {
+			try { channel.close(); } catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Declares the exchange on the broker unless it was already declared on the
+	 * current connection. Declarations are idempotent on the broker, so this only
+	 * saves the round trip on every publish.
+	 *
+	 * @param channel the channel to declare the exchange on
+	 * @param exchange the name of the exchange
+	 * @param type the exchange type
+	 * @param arguments other exchange arguments, may be null
+	 * @throws IOException if the declaration fails
+	 */
+	public void declareExchange(Channel channel, String exchange, String type, Map<String, Object> arguments)
+	throws IOException
+	{
+		String key = type + ":" + exchange;
+		if (declaredExchanges.containsKey(key)) return;
+
+		channel.exchangeDeclare(exchange, type, true, false, arguments);
+		declaredExchanges.put(key, Boolean.TRUE);
+	}
+
+	/**
+	 * Closes the shared connection and all pooled channels. The next request
+	 * for a channel opens a new connection.
+	 */
+	public void close()
+	{
+		Connection closingConnection;
+		synchronized (this) {
+			discardChannels();
+			closingConnection = connection;
+			connection = null;
+		}
+
+		// closed outside the lock because the shutdown listener also takes it
+		if (closingConnection != null) {
+			try { closingConnection.close(); } catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Clears the pooled state belonging to a connection which has shut down.
+	 *
+	 * @param closedConnection the connection which was closed
+	 */
+	private synchronized void connectionClosed(Connection closedConnection)
+	{
+		if (connection == closedConnection) {
+			discardChannels();
+			connection = null;
+		}
+	}
+
+	private void discardChannels()
+	{
+		Channel channel;
+		while ((channel = publishChannels.poll()) != null) {
+			try { channel.close(); } catch (Exception ignored) {}
+		}
+		declaredExchanges.clear();
+	}
+}
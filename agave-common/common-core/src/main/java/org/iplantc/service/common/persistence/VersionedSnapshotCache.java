@@ -0,0 +1,150 @@
+package org.iplantc.service.common.persistence;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of detached entity graphs keyed by a tenant-qualified id. Each entry
+ * remembers the version of the entity it was loaded from. Once an entry is older than the
+ * version check interval, the version is read back from the db with a single lightweight
+ * query, and the full graph is only reloaded when the version has changed. Entries can also
+ * be invalidated directly when an entity is updated within this JVM.
+ *
+ * Cached snapshots are shared by every caller and must be treated as read-only.
+ *
+ * @param <T> the type of entity cached
+ * @param <E> the exception thrown when reading the entity or its version
+ * @author dooley
+ */
+public class VersionedSnapshotCache<T, E extends Exception> {
+
+    /**
+     * Loads the full entity graph for a key.
+     */
+    public interface Loader<T, E extends Exception> {
+        /**
+         * @param key the cache key
+         * @return the detached entity, or null if it does not exist
+         * @throws E if the entity cannot be read
+         */
+        T load(String key) throws E;
+    }
+
+    /**
+     * Reads the current version of the entity for a key.
+     */
+    public interface VersionReader<E extends Exception> {
+        /**
+         * @param key the cache key
+         * @return an opaque version that changes whenever the entity graph changes, or null if it does not exist
+         * @throws E if the version cannot be read
+         */
+        String readVersion(String key) throws E;
+    }
+
+    private static class Entry<T> {
+        private final T snapshot;
+        private final String version;
+        private volatile long checkAfter;
+
+        private Entry(T snapshot, String version, long checkAfter) {
+            this.snapshot = snapshot;
+            this.version = version;
+            this.checkAfter = checkAfter;
+        }
+    }
+
+    private final Map<String, Entry<T>> entries;
+    private final Loader<T, E> loader;
+    private final VersionReader<E> versionReader;
+    private final boolean enabled;
+    private final long versionCheckIntervalMillis;
+    // incremented on every invalidation so loads that raced an invalidation are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of snapshots to retain. A value less than 1 disables caching.
+     * @param versionCheckIntervalMillis how long a snapshot is served before its version is checked again
+     * @param loader loads the full entity graph
+     * @param versionReader reads the current version of the entity
+     */
+    public VersionedSnapshotCache(final int maxSize, long versionCheckIntervalMillis, Loader<T, E> loader, VersionReader<E> versionReader) {
+        this.enabled = maxSize > 0;
+        this.versionCheckIntervalMillis = versionCheckIntervalMillis;
+        this.loader = loader;
+        this.versionReader = versionReader;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Returns the snapshot for the given key, reloading it only when its version has changed.
+     *
+     * @param key the cache key
+     * @return the cached snapshot, or null if the entity does not exist
+     * @throws E if the entity or its version cannot be read
+     */
+    public T get(String key) throws E {
+        if (!enabled) {
+            return loader.load(key);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry<T> entry = entries.get(key);
+        if (entry != null && now < entry.checkAfter) {
+            return entry.snapshot;
+        }
+
+        long loadGeneration = generation.get();
+        String version = versionReader.readVersion(key);
+        if (version == null) {
+            entries.remove(key);
+            return null;
+        }
+        else if (entry != null && version.equals(entry.version)) {
+            entry.checkAfter = now + versionCheckIntervalMillis;
+            return entry.snapshot;
+        }
+
+        T snapshot = loader.load(key);
+        if (snapshot == null) {
+            entries.remove(key);
+        }
+        else if (loadGeneration == generation.get()) {
+            entries.put(key, new Entry<T>(snapshot, version, now + versionCheckIntervalMillis));
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Removes the snapshot for the given key so the next read reloads it.
+     *
+     * @param key the cache key
+     */
+    public void invalidate(String key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all snapshots.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return the number of cached snapshots
+     */
+    public int size() {
+        return entries.size();
+    }
+}
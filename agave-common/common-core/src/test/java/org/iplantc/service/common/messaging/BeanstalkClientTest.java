@@ -0,0 +1,92 @@
+package org.iplantc.service.common.messaging;
+
+import com.surftools.BeanstalkClient.Job;
+import com.surftools.BeanstalkClientImpl.ClientImpl;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@Test(groups={"unit"})
+public class BeanstalkClientTest {
+
+	private static final String TUBE = "test.tube";
+
+	private Job job(long jobId, String body) {
+		Job job = mock(Job.class);
+		when(job.getJobId()).thenReturn(jobId);
+		when(job.getData()).thenReturn(body.getBytes());
+		return job;
+	}
+
+	@Test
+	public void pushAllSelectsTheTubeOnce() throws Exception {
+		ClientImpl client = mock(ClientImpl.class);
+		when(client.put(anyLong(), anyInt(), anyInt(), any(byte[].class))).thenReturn(1L, 2L, 3L);
+
+		new BeanstalkClient(client).pushAll(TUBE, TUBE, Arrays.asList("one", "two", "three"));
+
+		verify(client, times(1)).useTube(TUBE);
+		verify(client, times(3)).put(anyLong(), anyInt(), anyInt(), any(byte[].class));
+	}
+
+	@Test
+	public void pushAllReportsTheMessageWhichFailed() throws Exception {
+		ClientImpl client = mock(ClientImpl.class);
+		when(client.put(anyLong(), anyInt(), anyInt(), any(byte[].class))).thenReturn(1L, 0L);
+
+		try {
+			new BeanstalkClient(client).pushAll(TUBE, TUBE, Arrays.asList("one", "two", "three"));
+			Assert.fail("A rejected put should fail the batch.");
+		} catch (MessagingException e) {
+			Assert.assertTrue(e.getMessage().contains("message 2 of 3"), "The failed message should be reported.");
+		}
+		verify(client, times(2)).put(anyLong(), anyInt(), anyInt(), any(byte[].class));
+	}
+
+	@Test
+	public void reserveAllOnlyWaitsForTheFirstMessage() throws Exception {
+		ClientImpl client = mock(ClientImpl.class);
+		Job first = job(1, "one");
+		Job second = job(2, "two");
+		when(client.reserve(5)).thenReturn(first);
+		when(client.reserve(0)).thenReturn(second, (Job) null);
+
+		List<Message> messages = new BeanstalkClient(client).reserveAll(TUBE, TUBE, 10, 5);
+
+		Assert.assertEquals(messages.size(), 2, "Only messages already ready should be taken after the first.");
+		Assert.assertEquals(messages.get(0).getId(), 1L);
+		Assert.assertEquals(messages.get(1).getMessage(), "two");
+		verify(client).reserve(5);
+		verify(client, times(2)).reserve(0);
+		verify(client).ignore(TUBE);
+	}
+
+	@Test
+	public void reserveAllStopsAtTheBatchSize() throws Exception {
+		ClientImpl client = mock(ClientImpl.class);
+		when(client.reserve(5)).thenReturn(job(1, "one"));
+		when(client.reserve(0)).thenReturn(job(2, "two"), job(3, "three"));
+
+		List<Message> messages = new BeanstalkClient(client).reserveAll(TUBE, TUBE, 2, 5);
+
+		Assert.assertEquals(messages.size(), 2);
+		verify(client, times(1)).reserve(0);
+	}
+
+	@Test
+	public void reserveAllReturnsNothingWhenTheTubeIsEmpty() throws Exception {
+		ClientImpl client = mock(ClientImpl.class);
+		when(client.reserve(5)).thenReturn(null);
+
+		Assert.assertTrue(new BeanstalkClient(client).reserveAll(TUBE, TUBE, 10, 5).isEmpty());
+		verify(client, never()).reserve(0);
+	}
+}
@@ -0,0 +1,215 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.iplantc.service.common.messaging.MessageTestUtils.bodies;
+
+@Test(groups={"unit"})
+public class DelayedMessageSchedulerTest {
+
+	private static final String EXCHANGE = "test.exchange";
+	private static final String QUEUE = "test.queue";
+
+	private File storeDirectory;
+	private EmbeddedMessageBroker broker;
+
+	/**
+	 * Store whose buckets cannot be read while it is failing.
+	 */
+	private class FailingStore extends DelayedMessageStore {
+		boolean failing = false;
+
+		FailingStore() throws IOException {
+			super(storeDirectory);
+		}
+
+		@Override
+		public synchronized List<DelayedMessage> load(long bucket) throws IOException {
+			if (failing) {
+				throw new IOException("Disk unavailable");
+			}
+			return super.load(bucket);
+		}
+	}
+
+	/**
+	 * Scheduler driven by a fixed clock which publishes to an in-memory broker.
+	 */
+	private class TestScheduler extends DelayedMessageScheduler {
+		long now = 1000000;
+		boolean failing = false;
+
+		TestScheduler() throws Exception {
+			this(new DelayedMessageStore(storeDirectory));
+		}
+
+		TestScheduler(DelayedMessageStore store) throws Exception {
+			super(store, 1000, 10);
+			recover();
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return now;
+		}
+
+		@Override
+		protected MessageQueueClient getMessageClient() throws MessagingException {
+			if (failing) {
+				throw new MessagingException("Broker unavailable");
+			}
+			return new EmbeddedMessageClient(broker);
+		}
+
+		void advanceTo(long time) throws Exception {
+			now = time;
+			List<DelayedMessage> due = advance(now);
+			if (!due.isEmpty()) {
+				deliver(due);
+			}
+		}
+	}
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		storeDirectory = Files.createTempDirectory("delayed-messaging").toFile();
+		broker = new EmbeddedMessageBroker(null, 4096, 60);
+	}
+
+	@AfterMethod
+	public void afterMethod() throws Exception {
+		broker.close();
+		FileUtils.deleteQuietly(storeDirectory);
+	}
+
+	private List<String> published() throws Exception {
+		return bodies(new EmbeddedMessageClient(broker).reserveAll(EXCHANGE, QUEUE, 100, 0));
+	}
+
+	@Test
+	public void messagesArePublishedWhenDue() throws Exception {
+		TestScheduler scheduler = new TestScheduler();
+		scheduler.schedule(EXCHANGE, QUEUE, "later", 5);
+		scheduler.schedule(EXCHANGE, QUEUE, "sooner", 2);
+
+		scheduler.advanceTo(1001000);
+		Assert.assertTrue(published().isEmpty(), "Messages should not be published before they are due.");
+		Assert.assertEquals(scheduler.getPendingCount(QUEUE), 2, "Both messages should be pending.");
+
+		scheduler.advanceTo(1002000);
+		Assert.assertEquals(published(), Arrays.asList("sooner"), "The first message should be published when due.");
+
+		scheduler.advanceTo(1006000);
+		Assert.assertEquals(published(), Arrays.asList("later"), "The second message should be published when due.");
+		Assert.assertEquals(scheduler.getPendingCount(), 0, "No messages should be pending once published.");
+		Assert.assertEquals(scheduler.getDeliveredCount(), 2, "Both messages should be counted as delivered.");
+	}
+
+	@Test
+	public void messagesBeyondTheCurrentWindowStayInTheStore() throws Exception {
+		TestScheduler scheduler = new TestScheduler();
+		scheduler.advanceTo(1000000);
+		scheduler.schedule(EXCHANGE, QUEUE, "next hour", 3605);
+
+		Assert.assertEquals(scheduler.getPendingCount(), 1, "The message should be pending.");
+		Assert.assertEquals(scheduler.getLoadedCount(), 0,
+				"A message due after the current window should not be held in memory.");
+
+		scheduler.advanceTo(1000000 + 3601000);
+		Assert.assertEquals(scheduler.getLoadedCount(), 1,
+				"The message should be loaded when its window comes due.");
+		Assert.assertTrue(published().isEmpty(), "The message should not be published early.");
+
+		scheduler.advanceTo(1000000 + 3605000);
+		Assert.assertEquals(published(), Arrays.asList("next hour"), "The message should be published when due.");
+		scheduler.stop();
+		Assert.assertTrue(new DelayedMessageStore(storeDirectory).getBuckets().isEmpty(),
+				"Buckets should be deleted once all their messages are published.");
+	}
+
+	@Test
+	public void theWheelOnlyEntersAWindowOnceItsBucketIsRead() throws Exception {
+		FailingStore store = new FailingStore();
+		TestScheduler scheduler = new TestScheduler(store);
+		scheduler.advanceTo(1000000);
+		scheduler.schedule(EXCHANGE, QUEUE, "this window", 5);
+		scheduler.schedule(EXCHANGE, QUEUE, "next window", 15);
+
+		store.failing = true;
+		try {
+			scheduler.advanceTo(1015000);
+			Assert.fail("A bucket which cannot be read should fail the tick.");
+		} catch (IOException expected) {}
+		Assert.assertTrue(published().isEmpty(), "Nothing should be published while the bucket cannot be read.");
+		Assert.assertEquals(scheduler.getPendingCount(), 2, "Both messages should stay pending.");
+
+		store.failing = false;
+		scheduler.advanceTo(1015000);
+		Assert.assertEquals(published(), Arrays.asList("this window", "next window"),
+				"The window should be entered once its bucket can be read.");
+		Assert.assertEquals(scheduler.getPendingCount(), 0);
+	}
+
+	@Test
+	public void theStoreDirectoryCannotBeSharedByTwoSchedulers() throws Exception {
+		TestScheduler scheduler = new TestScheduler();
+		try {
+			new TestScheduler();
+			Assert.fail("A store directory in use by another scheduler should be rejected.");
+		} catch (IOException expected) {}
+
+		scheduler.stop();
+		new TestScheduler().stop();
+	}
+
+	@Test
+	public void pendingMessagesSurviveARestart() throws Exception {
+		TestScheduler scheduler = new TestScheduler();
+		scheduler.advanceTo(1000000);
+		scheduler.schedule(EXCHANGE, QUEUE, "published", 1);
+		scheduler.schedule(EXCHANGE, QUEUE, "overdue", 30);
+		scheduler.schedule(EXCHANGE, QUEUE, "future", 120);
+		scheduler.advanceTo(1001000);
+		Assert.assertEquals(published(), Arrays.asList("published"));
+		scheduler.stop();
+
+		TestScheduler restarted = new TestScheduler();
+		restarted.now = 1060000;
+		Assert.assertEquals(restarted.getPendingCount(QUEUE), 2,
+				"Only unpublished messages should be recovered from the store.");
+
+		restarted.advanceTo(1060000);
+		Assert.assertEquals(published(), Arrays.asList("overdue"),
+				"Messages which came due while stopped should be published immediately.");
+
+		restarted.advanceTo(1120000);
+		Assert.assertEquals(published(), Arrays.asList("future"), "Recovered messages should be published when due.");
+	}
+
+	@Test
+	public void failedMessagesAreRetried() throws Exception {
+		TestScheduler scheduler = new TestScheduler();
+		scheduler.schedule(EXCHANGE, QUEUE, "retried", 1);
+		scheduler.failing = true;
+		scheduler.advanceTo(1001000);
+
+		Assert.assertEquals(scheduler.getFailedCount(), 1, "The failed attempt should be counted.");
+		Assert.assertEquals(scheduler.getPendingCount(), 1, "A message which failed to publish should stay pending.");
+
+		scheduler.failing = false;
+		scheduler.advanceTo(1010000);
+		Assert.assertEquals(published(), Arrays.asList("retried"), "The message should be published on retry.");
+		Assert.assertEquals(scheduler.getPendingCount(), 0);
+	}
+}
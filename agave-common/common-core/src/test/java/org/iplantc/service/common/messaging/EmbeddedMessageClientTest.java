@@ -0,0 +1,137 @@
+package org.iplantc.service.common.messaging;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.iplantc.service.common.messaging.MessageTestUtils.bodies;
+
+@Test(groups={"unit"})
+public class EmbeddedMessageClientTest {
+
+	private static final String EXCHANGE = "test.exchange";
+	private static final String QUEUE = "test.queue";
+
+	private File journalDirectory;
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		journalDirectory = Files.createTempDirectory("embedded-messaging").toFile();
+	}
+
+	@AfterMethod
+	public void afterMethod() throws Exception {
+		FileUtils.deleteQuietly(journalDirectory);
+	}
+
+	@Test
+	public void reserveAllReturnsMessagesInOrderAndHoldsThemUntilDeleted() throws Exception {
+		EmbeddedMessageClient client = new EmbeddedMessageClient(new EmbeddedMessageBroker(null, 4096, 60));
+		client.pushAll(EXCHANGE, QUEUE, Arrays.asList("one", "two", "three"));
+
+		List<Message> messages = client.reserveAll(EXCHANGE, QUEUE, 2, 1);
+		Assert.assertEquals(bodies(messages), Arrays.asList("one", "two"),
+				"Messages should be reserved in the order they were pushed.");
+		Assert.assertTrue(client.messageExist(QUEUE, messages.get(0).getId()),
+				"Reserved messages should stay on the queue until deleted.");
+
+		client.deleteAll(EXCHANGE, QUEUE, messages);
+		Assert.assertFalse(client.messageExist(QUEUE, messages.get(0).getId()),
+				"Deleted messages should be removed from the queue.");
+		Assert.assertEquals(bodies(client.reserveAll(EXCHANGE, QUEUE, 2, 0)), Arrays.asList("three"),
+				"Only the unreserved message should be available.");
+	}
+
+	@Test
+	public void rejectedMessagesAreRedelivered() throws Exception {
+		EmbeddedMessageClient client = new EmbeddedMessageClient(new EmbeddedMessageBroker(null, 4096, 60));
+		client.push(EXCHANGE, QUEUE, "one");
+
+		Message message = client.reserve(EXCHANGE, QUEUE, 1);
+		Assert.assertTrue(client.reserveAll(EXCHANGE, QUEUE, 1, 0).isEmpty(),
+				"A reserved message should not be delivered twice.");
+
+		client.reject(EXCHANGE, QUEUE, message.getId(), message.getMessage());
+		Assert.assertEquals(client.reserve(EXCHANGE, QUEUE, 1).getId(), message.getId(),
+				"A rejected message should be delivered again.");
+	}
+
+	@Test
+	public void delayedMessagesAreNotDeliveredEarly() throws Exception {
+		EmbeddedMessageClient client = new EmbeddedMessageClient(new EmbeddedMessageBroker(null, 4096, 60));
+		client.push(EXCHANGE, QUEUE, "delayed", 1);
+
+		Assert.assertTrue(client.reserveAll(EXCHANGE, QUEUE, 1, 0).isEmpty(),
+				"A delayed message should not be delivered before its delay passes.");
+		Assert.assertEquals(bodies(client.reserveAll(EXCHANGE, QUEUE, 1, 3)), Arrays.asList("delayed"),
+				"A delayed message should be delivered once its delay passes.");
+	}
+
+	@Test
+	public void expiredReservationsAreRedeliveredUnlessTouched() throws Exception {
+		EmbeddedMessageClient client = new EmbeddedMessageClient(new EmbeddedMessageBroker(null, 4096, 1));
+		client.pushAll(EXCHANGE, QUEUE, Arrays.asList("touched", "abandoned"));
+
+		List<Message> messages = client.reserveAll(EXCHANGE, QUEUE, 2, 0);
+		Thread.sleep(600);
+		Assert.assertTrue(client.touch(messages.get(0).getId(), QUEUE),
+				"Touching a reserved message should succeed.");
+
+		Assert.assertEquals(bodies(client.reserveAll(EXCHANGE, QUEUE, 2, 3)), Arrays.asList("abandoned"),
+				"Only the message which was not touched should be redelivered when its reservation expires.");
+	}
+
+	@Test
+	public void journaledMessagesAreRestoredByANewBroker() throws Exception {
+		EmbeddedMessageBroker broker = new EmbeddedMessageBroker(journalDirectory, 4096, 60);
+		EmbeddedMessageClient client = new EmbeddedMessageClient(broker);
+		for (int i = 0; i < 200; i++) {
+			client.push(EXCHANGE, QUEUE, "message " + i);
+			client.deleteAll(EXCHANGE, QUEUE, client.reserveAll(EXCHANGE, QUEUE, 1, 0));
+		}
+		client.pushAll(EXCHANGE, QUEUE, Arrays.asList("kept", "reserved"));
+		client.reserveAll(EXCHANGE, QUEUE, 2, 0);
+		broker.close();
+
+		client = new EmbeddedMessageClient(new EmbeddedMessageBroker(journalDirectory, 4096, 60));
+		Assert.assertEquals(bodies(client.reserveAll(EXCHANGE, QUEUE, 10, 0)), Arrays.asList("kept", "reserved"),
+				"Undeleted messages, including reserved ones, should be restored from the journal after compaction.");
+	}
+
+	@Test
+	public void messagesTooLargeForTheJournalAreRejected() throws Exception {
+		EmbeddedMessageClient client = new EmbeddedMessageClient(new EmbeddedMessageBroker(journalDirectory, 4096, 60));
+		try {
+			client.push(EXCHANGE, QUEUE, StringUtils.repeat("x", 8192));
+			Assert.fail("A message which does not fit in the journal after compaction should be rejected.");
+		} catch (MessagingException expected) {}
+
+		Assert.assertTrue(client.reserveAll(EXCHANGE, QUEUE, 1, 0).isEmpty(),
+				"A message which could not be journaled should not be queued.");
+	}
+
+	@Test
+	public void queuesWithSimilarNamesHaveSeparateJournals() throws Exception {
+		Assert.assertNotEquals(EmbeddedMessageBroker.getJournalFileName("jobs/queue"),
+				EmbeddedMessageBroker.getJournalFileName("jobs_queue"),
+				"Queues whose names only differ in characters replaced in file names should not share a journal.");
+
+		EmbeddedMessageBroker broker = new EmbeddedMessageBroker(journalDirectory, 4096, 60);
+		new EmbeddedMessageClient(broker).push(EXCHANGE, "jobs/queue", "slash");
+		new EmbeddedMessageClient(broker).push(EXCHANGE, "jobs_queue", "underscore");
+		broker.close();
+
+		EmbeddedMessageClient client = new EmbeddedMessageClient(new EmbeddedMessageBroker(journalDirectory, 4096, 60));
+		Assert.assertEquals(bodies(client.reserveAll(EXCHANGE, "jobs/queue", 10, 0)), Arrays.asList("slash"));
+		Assert.assertEquals(bodies(client.reserveAll(EXCHANGE, "jobs_queue", 10, 0)), Arrays.asList("underscore"));
+	}
+}
@@ -0,0 +1,131 @@
+package org.iplantc.service.common.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+
+@Test(groups={"unit"})
+public class MessageCodecRegistryTest {
+
+	public static class TestMessageBody extends DefaultMessageBody<String> {
+		static {
+			MessageCodecRegistry.register(TestMessageBody.class, new TestMessageCodec());
+		}
+
+		public TestMessageBody() {}
+
+		public TestMessageBody(String uuid, String owner, String tenant, String context) {
+			super(uuid, owner, tenant, context);
+		}
+	}
+
+	public static class TestMessageCodec implements MessageCodec<TestMessageBody> {
+		@Override
+		public String getType() { return "test"; }
+
+		@Override
+		public int getVersion() { return 1; }
+
+		@Override
+		public void write(TestMessageBody body, DataOutput out) throws IOException {
+			MessageCodec.writeString(out, body.getUuid());
+			MessageCodec.writeString(out, body.getOwner());
+			MessageCodec.writeString(out, body.getTenant());
+			MessageCodec.writeString(out, body.getContext());
+		}
+
+		@Override
+		public TestMessageBody read(DataInput in, int version) throws IOException {
+			return new TestMessageBody(MessageCodec.readString(in), MessageCodec.readString(in),
+					MessageCodec.readString(in), MessageCodec.readString(in));
+		}
+
+		@Override
+		public TestMessageBody readJson(JsonNode json) throws IOException {
+			return new TestMessageBody(json.path("uuid").textValue(), json.path("owner").textValue(),
+					json.path("tenant").textValue(), json.path("context").textValue());
+		}
+	}
+
+	@AfterMethod
+	public void afterMethod() {
+		Settings.MESSAGING_BINARY_ENVELOPE_ENABLED = false;
+	}
+
+	private void assertBodyEquals(TestMessageBody actual, TestMessageBody expected) {
+		Assert.assertEquals(actual.getUuid(), expected.getUuid(), "uuid should survive encoding");
+		Assert.assertEquals(actual.getOwner(), expected.getOwner(), "owner should survive encoding");
+		Assert.assertEquals(actual.getTenant(), expected.getTenant(), "tenant should survive encoding");
+		Assert.assertEquals(actual.getContext(), expected.getContext(), "context should survive encoding");
+	}
+
+	@Test
+	public void encodeWritesABinaryEnvelopeWhichDecodes() throws Exception {
+		Settings.MESSAGING_BINARY_ENVELOPE_ENABLED = true;
+		StringBuilder context = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			context.append("\u00e9\u4e2d");
+		}
+		TestMessageBody body = new TestMessageBody("1234-5678", "testuser", null, context.toString());
+
+		String message = MessageCodecRegistry.encode(body);
+
+		Assert.assertEquals(message.charAt(0), MessageCodecRegistry.ENVELOPE_PREFIX,
+				"Binary envelopes should start with the envelope prefix.");
+		assertBodyEquals(MessageCodecRegistry.decode(message, TestMessageBody.class), body);
+	}
+
+	@Test
+	public void decodeReadsJsonMessages() throws Exception {
+		Settings.MESSAGING_BINARY_ENVELOPE_ENABLED = false;
+		TestMessageBody body = new TestMessageBody("1234-5678", "testuser", "agave.dev", "system.example.com");
+
+		String message = MessageCodecRegistry.encode(body);
+
+		Assert.assertEquals(message.charAt(0), '{', "JSON should be written when the binary envelope is disabled.");
+		assertBodyEquals(MessageCodecRegistry.decode(message, TestMessageBody.class), body);
+	}
+
+	@Test(expectedExceptions = MessagingException.class)
+	public void decodeRejectsMalformedEnvelopes() throws Exception {
+		MessageCodecRegistry.decode(MessageCodecRegistry.ENVELOPE_PREFIX + "not base64!", TestMessageBody.class);
+	}
+
+	@Test(expectedExceptions = MessagingException.class)
+	public void decodeRejectsNewerCodecVersions() throws Exception {
+		// envelope version 1, type "test", codec version 2
+		byte[] bytes = new byte[] { 1, 5, 't', 'e', 's', 't', 2 };
+		MessageCodecRegistry.decode(MessageCodecRegistry.ENVELOPE_PREFIX +
+				java.util.Base64.getEncoder().encodeToString(bytes), TestMessageBody.class);
+	}
+
+	@DataProvider
+	public Object[][] malformedStringProvider() {
+		return new Object[][] {
+				// varint with the sign bit set
+				{ new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F }, "A negative length should be rejected." },
+				// varint continuing past 5 bytes
+				{ new byte[] { (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0x01 }, "An overlong length should be rejected." },
+				// length of 100 bytes with only 3 left
+				{ new byte[] { 101, 'a', 'b', 'c' }, "A length longer than the message should be rejected." },
+		};
+	}
+
+	@Test(dataProvider = "malformedStringProvider")
+	public void readStringRejectsOutOfRangeLengths(byte[] bytes, String message) throws Exception {
+		try {
+			MessageCodec.readString(new DataInputStream(new ByteArrayInputStream(bytes)));
+			Assert.fail(message);
+		} catch (IllegalArgumentException expected) {}
+	}
+}
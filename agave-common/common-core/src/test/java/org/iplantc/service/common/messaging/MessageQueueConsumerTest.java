@@ -0,0 +1,316 @@
+package org.iplantc.service.common.messaging;
+
+import org.iplantc.service.common.exceptions.MessageProcessingException;
+import org.mockito.ArgumentCaptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.iplantc.service.common.messaging.MessageTestUtils.bodies;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test(groups={"unit"})
+public class MessageQueueConsumerTest {
+
+	private static final String EXCHANGE = "test.exchange";
+	private static final String QUEUE = "test.queue";
+
+	/**
+	 * Consumer which skips the hibernate session cleanup between messages.
+	 */
+	private static class TestMessageQueueConsumer extends MessageQueueConsumer {
+		TestMessageQueueConsumer(MessageQueueListener listener, int workerCount, int prefetch) {
+			super(EXCHANGE, QUEUE, listener, workerCount, prefetch);
+		}
+
+		@Override
+		protected void afterProcess() {}
+	}
+
+	private static abstract class TestListener implements MessageQueueListener {
+		@Override
+		public void stop() {}
+	}
+
+	/**
+	 * Consumer which reserves messages with the given client rather than one from the factory.
+	 */
+	private static class DispatchingTestConsumer extends TestMessageQueueConsumer {
+		private final MessageQueueClient client;
+
+		DispatchingTestConsumer(MessageQueueListener listener, MessageQueueClient client) {
+			super(listener, 1, 10);
+			this.client = client;
+		}
+
+		@Override
+		protected MessageQueueClient getMessageClient() {
+			return client;
+		}
+	}
+
+	private MessageQueueClient client(int reservationTimeout) {
+		MessageQueueClient client = mock(MessageQueueClient.class);
+		when(client.getReservationTimeout()).thenReturn(reservationTimeout);
+		return client;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void processBatchAcksProcessedAndExpiredMessagesAndRejectsTheRest() throws Exception {
+		MessageQueueListener listener = new TestListener() {
+			@Override
+			public void processMessage(String body) throws MessageProcessingException {
+				if (body.equals("expired")) throw new MessageProcessingException(true, "expired");
+				if (body.equals("failed")) throw new MessageProcessingException("failed");
+				if (body.equals("error")) throw new RuntimeException("error");
+			}
+		};
+
+		MessageQueueConsumer consumer = new TestMessageQueueConsumer(listener, 2, 10);
+		MessageQueueClient client = client(60);
+		try {
+			consumer.processBatch(client, Arrays.asList(
+					new Message(1L, "ok"), new Message(2L, "failed"), new Message(3L, "expired"), new Message(4L, "error")));
+		} finally {
+			consumer.stop(1);
+		}
+
+		ArgumentCaptor<List> completed = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List> rejected = ArgumentCaptor.forClass(List.class);
+		verify(client).deleteAll(eq(EXCHANGE), eq(QUEUE), completed.capture());
+		verify(client).rejectAll(eq(EXCHANGE), eq(QUEUE), rejected.capture());
+
+		Assert.assertEquals(bodies(completed.getValue()), Arrays.asList("ok", "expired"),
+				"Processed and expired messages should be acknowledged together in delivery order.");
+		Assert.assertEquals(bodies(rejected.getValue()), Arrays.asList("failed", "error"),
+				"Failed messages should be returned to the queue together in delivery order.");
+	}
+
+	@Test
+	public void processBatchProcessesMessagesInParallel() throws Exception {
+		final int workers = 4;
+		final CountDownLatch allStarted = new CountDownLatch(workers);
+		MessageQueueListener listener = new TestListener() {
+			@Override
+			public void processMessage(String body) throws MessageProcessingException {
+				allStarted.countDown();
+				try {
+					if (!allStarted.await(5, TimeUnit.SECONDS)) {
+						throw new MessageProcessingException("Messages were not processed in parallel");
+					}
+				} catch (InterruptedException e) {
+					throw new MessageProcessingException(e);
+				}
+			}
+		};
+
+		List<Message> messages = new ArrayList<Message>();
+		for (long i = 1; i <= workers; i++) {
+			messages.add(new Message(i, "message" + i));
+		}
+
+		MessageQueueConsumer consumer = new TestMessageQueueConsumer(listener, workers, workers);
+		MessageQueueClient client = client(60);
+		try {
+			consumer.processBatch(client, messages);
+		} finally {
+			consumer.stop(1);
+		}
+
+		verify(client).deleteAll(EXCHANGE, QUEUE, messages);
+		verify(client).rejectAll(EXCHANGE, QUEUE, new ArrayList<Message>());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void processBatchWaitsForAsyncMessagesWithoutHoldingWorkers() throws Exception {
+		final List<CompletableFuture<Void>> inFlight = new ArrayList<CompletableFuture<Void>>();
+		MessageQueueListener listener = new AsyncMessageQueueListener() {
+			@Override
+			public CompletableFuture<?> processMessageAsync(String body) {
+				CompletableFuture<Void> future = new CompletableFuture<Void>();
+				synchronized (inFlight) {
+					inFlight.add(future);
+					inFlight.notifyAll();
+				}
+				if (body.equals("failed")) {
+					future.completeExceptionally(new MessageProcessingException("failed"));
+				}
+				return future;
+			}
+
+			@Override
+			public void processMessage(String body) throws MessageProcessingException {
+				throw new MessageProcessingException("Async listeners should not be called synchronously");
+			}
+
+			@Override
+			public void stop() {}
+		};
+
+		// completes the deliveries once all have started on the single worker
+		Thread remote = new Thread(() -> {
+			synchronized (inFlight) {
+				long deadline = System.currentTimeMillis() + 5000;
+				while (inFlight.size() < 3 && System.currentTimeMillis() < deadline) {
+					try { inFlight.wait(100); } catch (InterruptedException e) { return; }
+				}
+				for (CompletableFuture<Void> future: inFlight) {
+					future.complete(null);
+				}
+			}
+		});
+		remote.start();
+
+		MessageQueueConsumer consumer = new TestMessageQueueConsumer(listener, 1, 10);
+		MessageQueueClient client = client(60);
+		try {
+			consumer.processBatch(client, Arrays.asList(
+					new Message(1L, "ok"), new Message(2L, "failed"), new Message(3L, "ok2")));
+		} finally {
+			consumer.stop(1);
+			remote.join();
+		}
+
+		ArgumentCaptor<List> completed = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List> rejected = ArgumentCaptor.forClass(List.class);
+		verify(client).deleteAll(eq(EXCHANGE), eq(QUEUE), completed.capture());
+		verify(client).rejectAll(eq(EXCHANGE), eq(QUEUE), rejected.capture());
+
+		Assert.assertEquals(bodies(completed.getValue()), Arrays.asList("ok", "ok2"),
+				"All messages should be in flight at once on a single worker and acknowledged once complete.");
+		Assert.assertEquals(bodies(rejected.getValue()), Arrays.asList("failed"),
+				"Messages which complete exceptionally should be returned to the queue.");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void processBatchReturnsMessagesStillProcessingWhenTheirReservationRunsOut() throws Exception {
+		final CompletableFuture<Void> stalled = new CompletableFuture<Void>();
+		MessageQueueListener listener = new AsyncMessageQueueListener() {
+			@Override
+			public CompletableFuture<?> processMessageAsync(String body) {
+				return body.equals("stalled") ? stalled : CompletableFuture.completedFuture(null);
+			}
+
+			@Override
+			public void processMessage(String body) throws MessageProcessingException {
+				throw new MessageProcessingException("Async listeners should not be called synchronously");
+			}
+
+			@Override
+			public void stop() {}
+		};
+
+		MessageQueueConsumer consumer = new TestMessageQueueConsumer(listener, 1, 10);
+		MessageQueueClient client = client(1);
+		long started = System.currentTimeMillis();
+		try {
+			consumer.processBatch(client, Arrays.asList(
+					new Message(1L, "ok"), new Message(2L, "stalled"), new Message(3L, "ok2")));
+		} finally {
+			consumer.stop(1);
+			stalled.complete(null);
+		}
+
+		Assert.assertTrue(System.currentTimeMillis() - started < 5000,
+				"The batch should be settled once the reservation runs out.");
+
+		ArgumentCaptor<List> completed = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List> rejected = ArgumentCaptor.forClass(List.class);
+		verify(client).deleteAll(eq(EXCHANGE), eq(QUEUE), completed.capture());
+		verify(client).rejectAll(eq(EXCHANGE), eq(QUEUE), rejected.capture());
+
+		Assert.assertEquals(bodies(completed.getValue()), Arrays.asList("ok", "ok2"),
+				"Messages which completed in time should still be acknowledged.");
+		Assert.assertEquals(bodies(rejected.getValue()), Arrays.asList("stalled"),
+				"A message still processing when its reservation runs out should be returned to the queue.");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void processBatchRunsMessagesOnTheDispatcherWhenTheWorkersAreFull() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> dispatcherBodies = Collections.synchronizedList(new ArrayList<String>());
+		final Thread dispatcher = Thread.currentThread();
+		MessageQueueListener listener = new TestListener() {
+			@Override
+			public void processMessage(String body) throws MessageProcessingException {
+				if (Thread.currentThread() == dispatcher) {
+					dispatcherBodies.add(body);
+					release.countDown();
+				}
+				if (body.equals("slow")) {
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new MessageProcessingException("interrupted");
+					}
+				}
+			}
+		};
+
+		// one worker and room for one more message. the third has nowhere to go.
+		MessageQueueConsumer consumer = new TestMessageQueueConsumer(listener, 1, 1);
+		MessageQueueClient client = client(60);
+		try {
+			consumer.processBatch(client, Arrays.asList(
+					new Message(1L, "slow"), new Message(2L, "ok"), new Message(3L, "ok2")));
+		} finally {
+			consumer.stop(1);
+		}
+
+		ArgumentCaptor<List> completed = ArgumentCaptor.forClass(List.class);
+		verify(client).deleteAll(eq(EXCHANGE), eq(QUEUE), completed.capture());
+		Assert.assertEquals(bodies(completed.getValue()), Arrays.asList("slow", "ok", "ok2"),
+				"Every message should be processed when the worker queue is full.");
+		Assert.assertEquals(dispatcherBodies, Arrays.asList("ok2"),
+				"The message which did not fit in the worker queue should be processed by the dispatcher.");
+	}
+
+	@Test
+	public void theDispatcherKeepsConsumingAfterAnUnexpectedClientFailure() throws Exception {
+		final CountDownLatch processed = new CountDownLatch(1);
+		MessageQueueListener listener = new TestListener() {
+			@Override
+			public void processMessage(String body) throws MessageProcessingException {
+				processed.countDown();
+			}
+		};
+
+		MessageQueueClient client = client(60);
+		when(client.reserveAll(anyString(), anyString(), anyInt(), anyInt()))
+				.thenThrow(new IllegalStateException("connection shut down"))
+				.thenReturn(Arrays.asList(new Message(1L, "ok")))
+				.thenAnswer(invocation -> {
+					Thread.sleep(100);
+					return Collections.emptyList();
+				});
+
+		MessageQueueConsumer consumer = new DispatchingTestConsumer(listener, client);
+		consumer.start();
+		try {
+			Assert.assertTrue(processed.await(15, TimeUnit.SECONDS),
+					"Messages reserved after a runtime failure should still be processed.");
+			Assert.assertTrue(consumer.isRunning());
+		} finally {
+			consumer.stop(5);
+		}
+		// once after the failure and once when the consumer stops
+		verify(client, times(2)).stop();
+	}
+}
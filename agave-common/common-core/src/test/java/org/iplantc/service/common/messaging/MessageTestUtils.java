@@ -0,0 +1,23 @@
+package org.iplantc.service.common.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers shared by the messaging tests.
+ */
+class MessageTestUtils {
+
+	private MessageTestUtils() {}
+
+	/**
+	 * @return the bodies of the messages in order
+	 */
+	static List<String> bodies(List<Message> messages) {
+		List<String> bodies = new ArrayList<String>();
+		for (Message message: messages) {
+			bodies.add(message.getMessage());
+		}
+		return bodies;
+	}
+}
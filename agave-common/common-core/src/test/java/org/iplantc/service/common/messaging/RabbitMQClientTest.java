@@ -0,0 +1,111 @@
+package org.iplantc.service.common.messaging;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.mockito.ArgumentCaptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@Test(groups={"unit"})
+public class RabbitMQClientTest {
+
+	private static final String EXCHANGE = "test.exchange";
+	private static final String QUEUE = "test.queue";
+
+	/**
+	 * Client whose channels are mocks, so deliveries are handed to its consumer directly.
+	 */
+	private static class TestRabbitMQClient extends RabbitMQClient {
+		final RabbitMQConnectionPool pool = mock(RabbitMQConnectionPool.class);
+		final Channel channel = mock(Channel.class);
+
+		TestRabbitMQClient() throws Exception {
+			when(pool.createChannel()).thenReturn(channel);
+			when(channel.isOpen()).thenReturn(true);
+		}
+
+		@Override
+		protected RabbitMQConnectionPool getConnectionPool() {
+			return pool;
+		}
+
+		/**
+		 * Reserves a batch after the broker delivered messages with the given delivery tags.
+		 */
+		List<Message> reserve(long... deliveryTags) throws Exception {
+			// open the batch channel, then hand the deliveries to its consumer
+			reserveAll(EXCHANGE, QUEUE, 10, 0);
+			ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+			verify(channel).basicConsume(eq(QUEUE), eq(false), consumer.capture());
+			for (long deliveryTag: deliveryTags) {
+				consumer.getValue().handleDelivery("consumer", new Envelope(deliveryTag, false, EXCHANGE, QUEUE),
+						new AMQP.BasicProperties(), ("message " + deliveryTag).getBytes());
+			}
+			return reserveAll(EXCHANGE, QUEUE, 10, 1);
+		}
+	}
+
+	@Test
+	public void deleteAllAcksAWholeBatchAtOnce() throws Exception {
+		TestRabbitMQClient client = new TestRabbitMQClient();
+		List<Message> messages = client.reserve(1, 2, 3);
+		Assert.assertEquals(messages.size(), 3);
+
+		client.deleteAll(EXCHANGE, QUEUE, messages);
+
+		verify(client.channel).basicAck(3, true);
+		verify(client.channel, times(1)).basicAck(anyLong(), anyBoolean());
+	}
+
+	@Test
+	public void partialBatchesAreSettledIndividually() throws Exception {
+		TestRabbitMQClient client = new TestRabbitMQClient();
+		List<Message> messages = client.reserve(1, 2, 3);
+
+		client.deleteAll(EXCHANGE, QUEUE, Arrays.asList(messages.get(0), messages.get(2)));
+
+		verify(client.channel).basicAck(1, false);
+		verify(client.channel).basicAck(3, false);
+
+		// the only delivery left outstanding can be requeued with a single multiple nack
+		client.rejectAll(EXCHANGE, QUEUE, Arrays.asList(messages.get(1)));
+		verify(client.channel).basicNack(2, true, true);
+	}
+
+	@Test
+	public void settlingAfterTheChannelClosedFails() throws Exception {
+		TestRabbitMQClient client = new TestRabbitMQClient();
+		List<Message> messages = client.reserve(1, 2);
+		when(client.channel.isOpen()).thenReturn(false);
+
+		try {
+			client.deleteAll(EXCHANGE, QUEUE, messages);
+			Assert.fail("Messages cannot be settled once their channel closed.");
+		} catch (MessagingException expected) {}
+
+		verify(client.channel, never()).basicAck(anyLong(), anyBoolean());
+	}
+
+	@Test
+	public void settlingNothingIsANoop() throws Exception {
+		TestRabbitMQClient client = new TestRabbitMQClient();
+
+		client.deleteAll(EXCHANGE, QUEUE, Arrays.<Message>asList());
+
+		verify(client.pool, never()).createChannel();
+		verify(client.channel, never()).basicAck(anyLong(), anyBoolean());
+		verify(client.channel, never()).queueBind(anyString(), anyString(), anyString());
+	}
+}
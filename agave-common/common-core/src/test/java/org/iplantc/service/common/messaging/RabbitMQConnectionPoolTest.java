@@ -0,0 +1,116 @@
+package org.iplantc.service.common.messaging;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.mockito.ArgumentCaptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@Test(groups={"unit"})
+public class RabbitMQConnectionPoolTest {
+
+	/**
+	 * Pool which opens mock connections rather than connecting to a broker.
+	 */
+	private static class TestRabbitMQConnectionPool extends RabbitMQConnectionPool {
+		final List<Connection> openedConnections = new ArrayList<Connection>();
+
+		TestRabbitMQConnectionPool(int maxIdleChannels) {
+			super(maxIdleChannels);
+		}
+
+		@Override
+		protected Connection openConnection() throws IOException {
+			Connection connection = mock(Connection.class);
+			when(connection.isOpen()).thenReturn(true);
+			when(connection.createChannel()).thenAnswer(invocation -> {
+				Channel channel = mock(Channel.class);
+				when(channel.isOpen()).thenReturn(true);
+				return channel;
+			});
+			openedConnections.add(connection);
+			return connection;
+		}
+
+		/**
+		 * Shuts down an opened connection as if the broker dropped it.
+		 */
+		void loseConnection(int index) {
+			Connection connection = openedConnections.get(index);
+			when(connection.isOpen()).thenReturn(false);
+			ArgumentCaptor<ShutdownListener> listener = ArgumentCaptor.forClass(ShutdownListener.class);
+			verify(connection).addShutdownListener(listener.capture());
+			ShutdownSignalException cause = mock(ShutdownSignalException.class);
+			when(cause.isInitiatedByApplication()).thenReturn(false);
+			listener.getValue().shutdownCompleted(cause);
+		}
+	}
+
+	@Test
+	public void returnedChannelsAreBorrowedAgain() throws Exception {
+		TestRabbitMQConnectionPool pool = new TestRabbitMQConnectionPool(2);
+
+		Channel channel = pool.borrowChannel();
+		verify(channel).confirmSelect();
+		pool.returnChannel(channel);
+
+		Assert.assertSame(pool.borrowChannel(), channel, "Returned channels should be reused.");
+		Assert.assertNotSame(pool.borrowChannel(), channel, "A channel should only be lent once per return.");
+		Assert.assertEquals(pool.openedConnections.size(), 1, "Every channel should share one connection.");
+	}
+
+	@Test
+	public void closedAndExcessChannelsAreNotPooled() throws Exception {
+		TestRabbitMQConnectionPool pool = new TestRabbitMQConnectionPool(1);
+		Channel first = pool.borrowChannel();
+		Channel second = pool.borrowChannel();
+		Channel closed = pool.borrowChannel();
+		when(closed.isOpen()).thenReturn(false);
+
+		pool.returnChannel(closed);
+		pool.returnChannel(first);
+		pool.returnChannel(second);
+		pool.returnChannel(null);
+
+		verify(second).close();
+		verify(first, never()).close();
+		Assert.assertSame(pool.borrowChannel(), first, "Only the open channel within the pool size should be kept.");
+	}
+
+	@Test
+	public void brokenChannelsAreReplaced() throws Exception {
+		TestRabbitMQConnectionPool pool = new TestRabbitMQConnectionPool(2);
+		Channel channel = pool.borrowChannel();
+		pool.returnChannel(channel);
+
+		// the broker closed the channel while it sat in the pool
+		when(channel.isOpen()).thenReturn(false);
+
+		Channel replacement = pool.borrowChannel();
+		Assert.assertNotSame(replacement, channel, "Channels closed while pooled should never be lent.");
+		verify(replacement).confirmSelect();
+	}
+
+	@Test
+	public void lostConnectionsAreReopenedOnNextUse() throws Exception {
+		TestRabbitMQConnectionPool pool = new TestRabbitMQConnectionPool(2);
+		Channel channel = pool.borrowChannel();
+		pool.returnChannel(channel);
+
+		pool.loseConnection(0);
+
+		verify(channel).close();
+		Channel replacement = pool.borrowChannel();
+		Assert.assertNotSame(replacement, channel, "Channels of a lost connection should be discarded.");
+		Assert.assertEquals(pool.openedConnections.size(), 2, "A new connection should be opened after one is lost.");
+		Assert.assertSame(pool.getConnection(), pool.openedConnections.get(1));
+	}
+}
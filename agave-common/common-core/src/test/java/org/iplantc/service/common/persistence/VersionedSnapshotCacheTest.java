@@ -0,0 +1,114 @@
+package org.iplantc.service.common.persistence;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Test(groups={"unit"})
+public class VersionedSnapshotCacheTest {
+
+	private Map<String, String> versions;
+	private Map<String, Integer> loads;
+	private Map<String, Integer> versionReads;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		versions = new HashMap<String, String>();
+		loads = new HashMap<String, Integer>();
+		versionReads = new HashMap<String, Integer>();
+	}
+
+	private VersionedSnapshotCache<String, RuntimeException> createCache(int maxSize, long versionCheckIntervalMillis) {
+		return new VersionedSnapshotCache<String, RuntimeException>(maxSize, versionCheckIntervalMillis,
+				key -> {
+					loads.merge(key, 1, Integer::sum);
+					return versions.containsKey(key) ? key + "@" + versions.get(key) : null;
+				},
+				key -> {
+					versionReads.merge(key, 1, Integer::sum);
+					return versions.get(key);
+				});
+	}
+
+	@Test
+	public void getServesSnapshotWithinVersionCheckInterval() {
+		VersionedSnapshotCache<String, RuntimeException> cache = createCache(10, 60000);
+		versions.put("a", "1");
+
+		Assert.assertEquals(cache.get("a"), "a@1");
+		versions.put("a", "2");
+		Assert.assertEquals(cache.get("a"), "a@1", "Snapshot should be served until the version is checked again.");
+		Assert.assertEquals(loads.get("a").intValue(), 1, "Snapshot should only be loaded once.");
+		Assert.assertEquals(versionReads.get("a").intValue(), 1, "Version should only be read once within the check interval.");
+	}
+
+	@Test
+	public void getReloadsOnlyWhenVersionChanges() {
+		VersionedSnapshotCache<String, RuntimeException> cache = createCache(10, 0);
+		versions.put("a", "1");
+
+		Assert.assertEquals(cache.get("a"), "a@1");
+		Assert.assertEquals(cache.get("a"), "a@1");
+		Assert.assertEquals(loads.get("a").intValue(), 1, "Unchanged version should not reload the snapshot.");
+
+		versions.put("a", "2");
+		Assert.assertEquals(cache.get("a"), "a@2", "Changed version should reload the snapshot.");
+		Assert.assertEquals(loads.get("a").intValue(), 2);
+	}
+
+	@Test
+	public void getRemovesDeletedEntities() {
+		VersionedSnapshotCache<String, RuntimeException> cache = createCache(10, 0);
+		versions.put("a", "1");
+		cache.get("a");
+
+		versions.remove("a");
+		Assert.assertNull(cache.get("a"), "Deleted entity should not be served from the cache.");
+		Assert.assertEquals(cache.size(), 0);
+	}
+
+	@Test
+	public void invalidateForcesReload() {
+		VersionedSnapshotCache<String, RuntimeException> cache = createCache(10, 60000);
+		versions.put("a", "1");
+		cache.get("a");
+
+		versions.put("a", "2");
+		cache.invalidate("a");
+		Assert.assertEquals(cache.get("a"), "a@2", "Invalidated snapshot should be reloaded on the next read.");
+	}
+
+	@Test
+	public void getEvictsLeastRecentlyUsed() {
+		VersionedSnapshotCache<String, RuntimeException> cache = createCache(2, 60000);
+		versions.put("a", "1");
+		versions.put("b", "1");
+		versions.put("c", "1");
+
+		cache.get("a");
+		cache.get("b");
+		cache.get("a");
+		cache.get("c");
+		Assert.assertEquals(cache.size(), 2);
+
+		cache.get("a");
+		Assert.assertEquals(loads.get("a").intValue(), 1, "Recently used snapshot should be retained.");
+		cache.get("b");
+		Assert.assertEquals(loads.get("b").intValue(), 2, "Least recently used snapshot should be evicted.");
+	}
+
+	@Test
+	public void disabledCacheAlwaysLoads() {
+		VersionedSnapshotCache<String, RuntimeException> cache = createCache(0, 60000);
+		versions.put("a", "1");
+
+		cache.get("a");
+		cache.get("a");
+		Assert.assertEquals(loads.get("a").intValue(), 2);
+		Assert.assertNull(versionReads.get("a"), "Disabled cache should not read versions.");
+		Assert.assertEquals(cache.size(), 0);
+	}
+}
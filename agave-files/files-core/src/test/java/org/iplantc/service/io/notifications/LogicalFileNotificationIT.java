@@ -10,7 +10,10 @@ import org.apache.commons.lang.math.NumberUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.common.Settings;
 import org.iplantc.service.common.clients.RequestBin;
+import org.iplantc.service.common.exceptions.MessageProcessingException;
 import org.iplantc.service.common.exceptions.MessagingException;
+import org.iplantc.service.common.messaging.MessageQueueConsumer;
+import org.iplantc.service.common.messaging.MessageQueueListener;
 import org.iplantc.service.io.BaseTestCase;
 import org.iplantc.service.io.dao.LogicalFileDao;
 import org.iplantc.service.io.exceptions.LogicalFileException;
@@ -31,9 +34,6 @@ import org.iplantc.service.notification.queue.NewNotificationQueueProcessor;
 import org.iplantc.service.systems.model.StorageSystem;
 import org.iplantc.service.transfer.exceptions.RemoteDataException;
 import org.json.JSONObject;
-import org.quartz.*;
-import org.quartz.impl.StdSchedulerFactory;
-import org.quartz.impl.matchers.KeyMatcher;
 import org.testng.Assert;
 import org.testng.annotations.*;
 
@@ -44,10 +44,6 @@ import java.net.URI;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
-
 /**
  * @author dooley
  *
@@ -62,8 +58,7 @@ public class LogicalFileNotificationIT extends BaseTestCase
 	private org.iplantc.service.io.model.JSONTestDataUtil util;
 	private final NotificationDao notificationDao = new NotificationDao();
 	private final ObjectMapper mapper = new ObjectMapper();
-	private Scheduler sched;
-	private SimpleTrigger trigger;
+	private MessageQueueConsumer consumer;
 	private RequestBin requestBin;
 	
 	final AtomicBoolean notificationProcessed = new AtomicBoolean(false);
@@ -79,8 +74,6 @@ public class LogicalFileNotificationIT extends BaseTestCase
 		
 		drainQueue();
 		TEST_NOTIFICATION_URL = createRequestBin();
-		
-		startTestNotificationScheduler();
 	}
 
 	@AfterClass
@@ -89,17 +82,15 @@ public class LogicalFileNotificationIT extends BaseTestCase
 		clearLogicalFiles();
 		clearSystems();
 		
+		stopNotificationQueue();
 		drainQueue();
-		sched.clear();
-		sched.shutdown();
 	}
 	
 	@BeforeMethod
 	protected void beforeMethod(Method m) throws Exception {
 	    clearLogicalFiles();
 
-		sched.clear();
-		startNotificationQueue(m.getName());
+		startNotificationQueue();
 	}
 	
 	@AfterMethod
@@ -108,48 +99,35 @@ public class LogicalFileNotificationIT extends BaseTestCase
 	    clearSystems();
 	}
 	
-	private void startNotificationQueue(String name) throws SchedulerException {
-		
-		JobDetail jobDetail = newJob(NewNotificationQueueProcessor.class)
-			.withIdentity("test-" + name)
-			.build();
-		
-		trigger = newTrigger()
-				.withIdentity("trigger-LogicalFileNotificationTest")
-				.startNow()
-				.withSchedule(simpleSchedule()
-		            .withIntervalInMilliseconds(500)
-		            .repeatForever()
-		            .withMisfireHandlingInstructionNextWithExistingCount())
-				.build();
-		
-		sched.scheduleJob(jobDetail, trigger);
+	private void startNotificationQueue() {
+		stopNotificationQueue();
 		
-		sched.getListenerManager().addJobListener(
-            new JobListener() {
-
-                @Override
-                public String getName() {
-                    return getClass().getSimpleName() + " Unit Test Listener";
-                }
-
-                @Override
-                public void jobToBeExecuted(JobExecutionContext context) {
-                    log.debug("working on a new notification event");                        
-                }
-
-                @Override
-                public void jobExecutionVetoed(JobExecutionContext context) {
-                    // no idea here
-                }
-
-                @Override
-                public void jobWasExecuted(JobExecutionContext context, JobExecutionException e) {
-                    notificationProcessed.set(true);
-                }
-                
-            }, KeyMatcher.keyEquals(jobDetail.getKey())
-        );
+		final NewNotificationQueueProcessor processor = new NewNotificationQueueProcessor();
+		consumer = new MessageQueueConsumer(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE,
+				new MessageQueueListener() {
+					@Override
+					public void processMessage(String body) throws MessageProcessingException {
+						log.debug("working on a new notification event");
+						try {
+							processor.processMessage(body);
+						} finally {
+							notificationProcessed.set(true);
+						}
+					}
+					
+					@Override
+					public void stop() {
+						processor.stop();
+					}
+				}, 1, 1);
+		consumer.start();
+	}
+	
+	private void stopNotificationQueue() {
+		if (consumer != null) {
+			consumer.stop();
+			consumer = null;
+		}
 	}
 	
 	protected String createRequestBin() throws IOException, RemoteDataException {
@@ -296,25 +274,6 @@ public class LogicalFileNotificationIT extends BaseTestCase
 		return file;
 	}
 	
-	/**
-     * Fetches the custom quartz scheduler needed to manage notification processing.
-     * @throws SchedulerException
-     */
-    private void startTestNotificationScheduler() throws SchedulerException {
-        StdSchedulerFactory schedulerFactory = new StdSchedulerFactory();
-        Properties props = new Properties();
-        props.put("org.quartz.scheduler.instanceName", "AgaveNotificationScheduler");
-        props.put("org.quartz.threadPool.threadCount", "1");
-        props.put("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
-        props.put("org.quartz.plugin.shutdownhook.class", "org.quartz.plugins.management.ShutdownHookPlugin");
-        props.put("org.quartz.plugin.shutdownhook.cleanShutdown", "true");
-        props.put("org.quartz.scheduler.skipUpdateCheck","true");
-        schedulerFactory.initialize(props);
-        
-        sched = schedulerFactory.getScheduler();
-        sched.start();
-    }
-    
     protected void createIndividualNotifications(LogicalFile logicalFile, String notificationUri, boolean persistent) 
     throws NotificationException 
     {
@@ -50,7 +50,15 @@ public class JobsApplication extends AgaveApplication
 			secureEndpoint(router,"/search/{attribute1}/{value1}/{attribute2}/{value2}/{attribute3}/{value3}/{attribute4}/{value4}/{attribute5}/{value5}/{attribute6}/{value6}/",JobSearchResource.class);
 			secureEndpoint(router,"/search/{attribute1}/{value1}/{attribute2}/{value2}/{attribute3}/{value3}/{attribute4}/{value4}/{attribute5}/{value5}/{attribute6}/{value6}/{attribute7}/{value7}",JobSearchResource.class);
 			secureEndpoint(router,"/search/{attribute1}/{value1}/{attribute2}/{value2}/{attribute3}/{value3}/{attribute4}/{value4}/{attribute5}/{value5}/{attribute6}/{value6}/{attribute7}/{value7}/",JobSearchResource.class);
-			
+
+			// stop, hide, restore, or resubmit many jobs at once(POST)
+			secureEndpoint(router, "/bulk", JobsBulkActionResource.class);
+			secureEndpoint(router, "/bulk/", JobsBulkActionResource.class);
+
+			// submit(POST) a job array expanded from a parameter sweep
+			secureEndpoint(router, "/arrays", JobArraysResource.class);
+			secureEndpoint(router, "/arrays/", JobArraysResource.class);
+
 			// individual job description(GET), X update(POST), and kill(DELETE)
 			secureEndpoint(router, "/{jobid}", JobManageResource.class);  
 			secureEndpoint(router, "/{jobid}/", JobManageResource.class); 
@@ -0,0 +1,136 @@
+package org.iplantc.service.jobs.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.clients.AgaveLogServiceClient;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.representation.IplantErrorRepresentation;
+import org.iplantc.service.common.representation.IplantSuccessRepresentation;
+import org.iplantc.service.common.resource.AgaveResource;
+import org.iplantc.service.jobs.exceptions.JobProcessingException;
+import org.iplantc.service.jobs.managers.JobArrayRequestProcessor;
+import org.iplantc.service.jobs.model.Job;
+import org.restlet.Context;
+import org.restlet.data.MediaType;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.Representation;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.Variant;
+
+import java.util.List;
+
+/**
+ * Submits a job array. The posted json object is a regular job request with an
+ * additional {@code sweep} object mapping app parameter ids to the values to run.
+ * One job is created for every combination of sweep values and the response lists
+ * the id of the job array and the jobs created for it.
+ *
+ * @author dooley
+ *
+ */
+public class JobArraysResource extends AgaveResource {
+	private static final Logger	log	= Logger.getLogger(JobArraysResource.class);
+
+	private final String internalUsername;
+
+	/**
+	 * @param context
+	 * @param request
+	 * @param response
+	 */
+	public JobArraysResource(Context context, Request request, Response response)
+	{
+		super(context, request, response);
+
+		internalUsername = (String) context.getAttributes().get("internalUsername");
+
+		getVariants().add(new Variant(MediaType.APPLICATION_JSON));
+	}
+
+	/**
+	 * This method represents the HTTP POST action. The posted job array request is
+	 * validated and expanded into its jobs, which are added to the job queue. If the
+	 * request is invalid, a HTTP {@link org.restlet.data.Status#CLIENT_ERROR_BAD_REQUEST 400}
+	 * code is sent.
+	 */
+	@Override
+	public void acceptRepresentation(Representation entity)
+	{
+		AgaveLogServiceClient.log(AgaveLogServiceClient.ServiceKeys.JOBS02.name(),
+				AgaveLogServiceClient.ActivityKeys.JobsSubmit.name(),
+				getAuthenticatedUsername(), "", getRequest().getClientInfo().getUpstreamAddress());
+
+		try
+		{
+			JsonNode json = super.getPostedEntityAsObjectNode(false);
+
+			JobArrayRequestProcessor processor = new JobArrayRequestProcessor(getAuthenticatedUsername(), internalUsername);
+			List<Job> jobs = processor.processJobArray(json);
+
+			ObjectMapper mapper = new ObjectMapper();
+			ObjectNode jsonArray = mapper.createObjectNode()
+					.put("id", jobs.get(0).getArrayUuid())
+					.put("total", jobs.size());
+			ArrayNode jsonJobs = jsonArray.putArray("jobs");
+			for (Job job: jobs) {
+				jsonJobs.addObject()
+						.put("id", job.getUuid())
+						.put("arrayIndex", job.getArrayIndex())
+						.put("status", job.getStatus().name());
+			}
+
+			getResponse().setStatus(Status.SUCCESS_CREATED);
+			getResponse().setEntity(new IplantSuccessRepresentation(jsonArray.toString()));
+		}
+		catch (JobProcessingException e) {
+			getResponse().setEntity(
+					new IplantErrorRepresentation(e.getMessage()));
+			getResponse().setStatus(Status.valueOf(e.getStatus()));
+		}
+		catch (ResourceException e)
+		{
+			getResponse().setEntity(
+					new IplantErrorRepresentation(e.getMessage()));
+			getResponse().setStatus(e.getStatus());
+			log.error("Job array submission failed for user " + getAuthenticatedUsername(), e);
+		}
+		catch (Exception e) {
+			getResponse().setEntity(
+					new IplantErrorRepresentation("Failed to submit job array: " + e.getMessage()));
+			getResponse().setStatus(Status.SERVER_ERROR_INTERNAL);
+			log.error("Job array submission failed for user " + getAuthenticatedUsername(), e);
+		}
+		finally {
+			try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+		}
+	}
+
+	@Override
+	public boolean allowDelete()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean allowGet()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean allowPost()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean allowPut()
+	{
+		return false;
+	}
+}
@@ -11,8 +11,11 @@ import org.iplantc.service.common.exceptions.PermissionException;
 import org.iplantc.service.common.persistence.HibernateUtil;
 import org.iplantc.service.common.representation.IplantErrorRepresentation;
 import org.iplantc.service.common.representation.IplantSuccessRepresentation;
+import org.iplantc.service.jobs.Settings;
 import org.iplantc.service.jobs.callbacks.JobCallback;
 import org.iplantc.service.jobs.callbacks.JobCallbackManager;
+import org.iplantc.service.jobs.callbacks.JobCallbackQueue;
+import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.JobCallbackException;
 import org.iplantc.service.jobs.model.Job;
 import org.restlet.Context;
@@ -25,6 +28,9 @@ import org.restlet.resource.ResourceException;
 import org.restlet.resource.Variant;
 
 import java.io.FileNotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Class to handle get and post requests for jobs
@@ -73,6 +79,18 @@ public class JobUpdateResource extends AbstractJobResource
 		try
 		{
 		    JobCallback jobCallback = new JobCallback(uuid, status, updateToken, localSchedulerId);
+		    
+		    // queued callbacks are only acknowledged once the flush that saves them commits
+		    CompletableFuture<Job> queuedCallback = null;
+		    if (Settings.ENABLE_JOB_CALLBACK_WRITE_BEHIND && Settings.JOB_CALLBACK_FLUSH_INTERVAL_MS > 0) {
+		        queuedCallback = JobCallbackQueue.getInstance().offer(jobCallback);
+		    }
+		    if (queuedCallback != null) {
+		        queuedCallback.get(Settings.JOB_CALLBACK_SAVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		        Job job = JobDao.getByUuid(jobCallback.getJob().getUuid());
+		        return new IplantSuccessRepresentation((job == null ? jobCallback.getJob() : job).toJSON());
+		    }
+		    
             JobCallbackManager callbackManager = new JobCallbackManager();
             Job job = callbackManager.process(jobCallback);
             
@@ -90,6 +108,11 @@ public class JobUpdateResource extends AbstractJobResource
 		    getResponse().setStatus(Status.CLIENT_ERROR_FORBIDDEN);
 		    return new IplantErrorRepresentation(e.getMessage());
 		}
+		catch (TimeoutException e) {
+		    log.debug("Timed out waiting for queued callback of job " + uuid + " to be saved.");
+		    getResponse().setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+		    return new IplantErrorRepresentation("Timed out waiting for the job callback to be saved.");
+		}
 		catch (Throwable e)
 		{
 			log.debug("Callback failed: " + e.getMessage());
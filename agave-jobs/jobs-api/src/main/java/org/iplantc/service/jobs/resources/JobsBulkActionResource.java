@@ -0,0 +1,241 @@
+package org.iplantc.service.jobs.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.clients.AgaveLogServiceClient;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.representation.IplantErrorRepresentation;
+import org.iplantc.service.common.representation.IplantSuccessRepresentation;
+import org.iplantc.service.common.resource.SearchableAgaveResource;
+import org.iplantc.service.common.search.SearchTerm;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.managers.BulkJobActionResult;
+import org.iplantc.service.jobs.managers.BulkJobManager;
+import org.iplantc.service.jobs.managers.JobPermissionManager;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.dto.JobDTO;
+import org.iplantc.service.jobs.model.enumerations.BulkJobActionType;
+import org.iplantc.service.jobs.search.JobSearchFilter;
+import org.restlet.Context;
+import org.restlet.data.MediaType;
+import org.restlet.data.Request;
+import org.restlet.data.Response;
+import org.restlet.data.Status;
+import org.restlet.resource.Representation;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.Variant;
+
+import java.util.*;
+
+/**
+ * Applies a single action to many jobs in one request. The jobs are either listed
+ * by id in the request body or selected with the same search query parameters
+ * accepted when listing jobs. Supported actions are stop, hide, restore, and resubmit.
+ * The response lists the jobs for which the action succeeded and failed.
+ *
+ * @author dooley
+ *
+ */
+public class JobsBulkActionResource extends SearchableAgaveResource<JobSearchFilter> {
+	private static final Logger	log	= Logger.getLogger(JobsBulkActionResource.class);
+
+	private final String internalUsername;
+
+	/**
+	 * @param context
+	 * @param request
+	 * @param response
+	 */
+	public JobsBulkActionResource(Context context, Request request, Response response)
+	{
+		super(context, request, response);
+
+		internalUsername = (String) context.getAttributes().get("internalUsername");
+
+		getVariants().add(new Variant(MediaType.APPLICATION_JSON));
+	}
+
+	/**
+	 * This method represents the HTTP POST action. The posted json object must contain
+	 * an {@code action} and may contain an {@code ids} array of job uuids. When no ids
+	 * are given, the action is applied to the jobs matching the search query parameters.
+	 * If the request is invalid, a HTTP
+	 * {@link org.restlet.data.Status#CLIENT_ERROR_BAD_REQUEST 400} code is sent.
+	 */
+	@Override
+	public void acceptRepresentation(Representation entity)
+	{
+		try
+		{
+			JsonNode json = super.getPostedEntityAsObjectNode(false);
+
+			BulkJobActionType action = null;
+			try {
+				action = BulkJobActionType.valueOf(StringUtils.upperCase(json.path("action").asText()));
+			} catch (IllegalArgumentException e) {
+				throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST,
+						"Invalid action. Please specify one of stop, hide, restore, or resubmit.");
+			}
+
+			logActivity(action);
+
+			BulkJobActionResult result = new BulkJobActionResult(action);
+			List<Job> jobs = getRequestedJobs(json, result);
+
+			BulkJobManager bulkJobManager = new BulkJobManager();
+			BulkJobActionResult actionResult = null;
+			switch (action) {
+				case STOP:
+					actionResult = bulkJobManager.stop(jobs);
+					break;
+				case HIDE:
+					actionResult = bulkJobManager.hide(jobs, getAuthenticatedUsername());
+					break;
+				case RESTORE:
+					actionResult = bulkJobManager.restore(jobs, getAuthenticatedUsername());
+					break;
+				default:
+					actionResult = bulkJobManager.resubmit(jobs, getAuthenticatedUsername(), internalUsername,
+							isTrueOrMissing(json, "ignoreInputConflicts"),
+							isTrueOrMissing(json, "ignoreParameterConflicts"));
+			}
+
+			getResponse().setStatus(Status.SUCCESS_OK);
+			getResponse().setEntity(new IplantSuccessRepresentation(actionResult.addAll(result).toJSON()));
+		}
+		catch (ResourceException e)
+		{
+			getResponse().setEntity(
+					new IplantErrorRepresentation(e.getMessage()));
+			getResponse().setStatus(e.getStatus());
+		}
+		catch (Exception e) {
+			getResponse().setEntity(
+					new IplantErrorRepresentation("Failed to process bulk job action: " + e.getMessage()));
+			getResponse().setStatus(Status.SERVER_ERROR_INTERNAL);
+			log.error("Bulk job action failed for user " + getAuthenticatedUsername(), e);
+		}
+		finally {
+			try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+		}
+	}
+
+	/**
+	 * Resolves the jobs on which to act from the posted ids or the search query parameters.
+	 * Ids which do not match a job the user can modify are added to the result as failures.
+	 *
+	 * @param json the posted request
+	 * @param result the result to which unresolved jobs are added
+	 * @return the jobs the user may modify
+	 * @throws ResourceException if neither ids nor search terms were given or too many jobs were requested
+	 */
+	protected List<Job> getRequestedJobs(JsonNode json, BulkJobActionResult result)
+	throws Exception
+	{
+		Set<String> uuids = new LinkedHashSet<String>();
+
+		if (json.has("ids")) {
+			if (!json.get("ids").isArray()) {
+				throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST,
+						"Please specify the job ids as an array.");
+			}
+			for (JsonNode id: json.get("ids")) {
+				if (StringUtils.isNotBlank(id.asText())) {
+					uuids.add(id.asText().trim());
+				}
+			}
+		} else {
+			Map<SearchTerm, Object> queryParameters = getQueryParameters();
+			if (queryParameters.isEmpty()) {
+				throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST,
+						"Please specify the job ids or a search query selecting the jobs.");
+			}
+
+			for (JobDTO job: JobDao.findMatching(getAuthenticatedUsername(), queryParameters, 0, Settings.BULK_JOB_ACTION_MAX_JOBS)) {
+				uuids.add(job.getUuid());
+			}
+		}
+
+		if (uuids.size() > Settings.BULK_JOB_ACTION_MAX_JOBS) {
+			throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST,
+					"No more than " + Settings.BULK_JOB_ACTION_MAX_JOBS + " jobs may be updated in a single request.");
+		}
+
+		List<Job> jobs = new ArrayList<Job>();
+		Map<String, Job> jobsByUuid = new HashMap<String, Job>();
+		for (Job job: JobDao.getByUuids(uuids)) {
+			jobsByUuid.put(job.getUuid(), job);
+		}
+
+		for (String uuid: uuids) {
+			Job job = jobsByUuid.get(uuid);
+			if (job == null) {
+				result.addFailure(uuid, "No job found with job id " + uuid + ".");
+			} else if (!new JobPermissionManager(job, getAuthenticatedUsername()).canWrite(getAuthenticatedUsername())) {
+				result.addFailure(uuid, "User does not have permission to modify this job");
+			} else {
+				jobs.add(job);
+			}
+		}
+
+		return jobs;
+	}
+
+	private boolean isTrueOrMissing(JsonNode json, String field)
+	{
+		return !json.has(field) || json.get(field).asBoolean(true);
+	}
+
+	private void logActivity(BulkJobActionType action)
+	{
+		AgaveLogServiceClient.ActivityKeys activityKey;
+		switch (action) {
+			case STOP:
+				activityKey = AgaveLogServiceClient.ActivityKeys.JobsKill;
+				break;
+			case HIDE:
+				activityKey = AgaveLogServiceClient.ActivityKeys.JobsDelete;
+				break;
+			case RESTORE:
+				activityKey = AgaveLogServiceClient.ActivityKeys.JobRestore;
+				break;
+			default:
+				activityKey = AgaveLogServiceClient.ActivityKeys.JobsResubmit;
+		}
+
+		AgaveLogServiceClient.log(AgaveLogServiceClient.ServiceKeys.JOBS02.name(),
+				activityKey.name(), getAuthenticatedUsername(), "",
+				getRequest().getClientInfo().getUpstreamAddress());
+	}
+
+	@Override
+	public boolean allowDelete()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean allowGet()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean allowPost()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean allowPut()
+	{
+		return false;
+	}
+
+	@Override
+	public JobSearchFilter getAgaveResourceSearchFilter() {
+		return new JobSearchFilter();
+	}
+}
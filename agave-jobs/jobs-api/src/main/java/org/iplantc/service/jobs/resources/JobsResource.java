@@ -6,6 +6,7 @@ package org.iplantc.service.jobs.resources;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.hibernate.HibernateException;
 import org.iplantc.service.common.clients.AgaveLogServiceClient;
@@ -18,15 +19,18 @@ import org.iplantc.service.common.search.AgaveResourceResultOrdering;
 import org.iplantc.service.common.search.SearchTerm;
 import org.iplantc.service.jobs.Settings;
 import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobException;
 import org.iplantc.service.jobs.exceptions.JobProcessingException;
 import org.iplantc.service.jobs.managers.JobRequestProcessor;
 import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.dto.JobDTO;
+import org.iplantc.service.jobs.search.JobSearchCursor;
 import org.iplantc.service.jobs.search.JobSearchFilter;
 import org.joda.time.DateTime;
 import org.json.JSONStringer;
 import org.json.JSONWriter;
 import org.restlet.Context;
+import org.restlet.data.Form;
 import org.restlet.data.MediaType;
 import org.restlet.data.Request;
 import org.restlet.data.Response;
@@ -90,7 +94,10 @@ public class JobsResource extends SearchableAgaveResource<JobSearchFilter> {
 		{
 			Map<SearchTerm, Object> queryParameters = getQueryParameters();
 
-			if (queryParameters.isEmpty()) {
+			Form form = getRequest().getOriginalRef().getQueryAsForm();
+			boolean cursorPaging = form != null && form.getFirst("cursor") != null;
+
+			if (queryParameters.isEmpty() && !cursorPaging) {
 				List<Job> jobs = JobDao.getByUsername(getAuthenticatedUsername(), offset, limit, getSortOrder(AgaveResourceResultOrdering.DESC), getSortOrderSearchTerm());
 				if (hasJsonPathFilters()) {
 					ObjectMapper mapper = new ObjectMapper();
@@ -137,7 +144,12 @@ public class JobsResource extends SearchableAgaveResource<JobSearchFilter> {
 				}
 			} 
 			else {
-				List<JobDTO> jobs = JobDao.findMatching(getAuthenticatedUsername(), queryParameters, offset, limit, getSortOrder(AgaveResourceResultOrdering.DESC), getSortOrderSearchTerm());
+				List<JobDTO> jobs;
+				if (cursorPaging) {
+					jobs = findMatchingAfterCursor(form.getFirstValue("cursor"), queryParameters);
+				} else {
+					jobs = JobDao.findMatching(getAuthenticatedUsername(), queryParameters, offset, limit, getSortOrder(AgaveResourceResultOrdering.DESC), getSortOrderSearchTerm());
+				}
 				ObjectMapper mapper = new ObjectMapper();
 				if (hasJsonPathFilters()) {
 //					return new IplantSuccessRepresentation(mapper.valueToTree(jobs));
@@ -176,6 +188,10 @@ public class JobsResource extends SearchableAgaveResource<JobSearchFilter> {
 				}
 			}	
 		}
+		catch (ResourceException e) {
+			getResponse().setStatus(e.getStatus());
+			return new IplantErrorRepresentation(e.getMessage());
+		}
 		catch (HibernateException e) {
 				log.error("Failed to fetch job listings from db.", e);
 				getResponse().setStatus(Status.SERVER_ERROR_INTERNAL);
@@ -192,6 +208,55 @@ public class JobsResource extends SearchableAgaveResource<JobSearchFilter> {
 		}
 	}
 
+	/**
+	 * Fetches the page of jobs following the position in the given cursor token. Pages are
+	 * always ordered by last updated time. Only the listing fields are read unless the
+	 * response is being filtered, in which case the full job is needed. When the page is
+	 * full, a {@code Link} header with the url of the next page is added to the response.
+	 *
+	 * @param token the opaque cursor token from the previous page, or empty for the first page
+	 * @param queryParameters the search criteria
+	 * @return the page of jobs
+	 * @throws ResourceException if the cursor or ordering is invalid
+	 * @throws JobException if the search fails
+	 */
+	protected List<JobDTO> findMatchingAfterCursor(String token, Map<SearchTerm, Object> queryParameters)
+	throws ResourceException, JobException
+	{
+		JobSearchCursor cursor;
+		try {
+			cursor = JobSearchCursor.decode(token);
+		} catch (IllegalArgumentException e) {
+			throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST, e.getMessage(), e);
+		}
+
+		SearchTerm orderBy = getSortOrderSearchTerm();
+		if (orderBy != null && !StringUtils.equals(orderBy.getSearchField(), "lastupdated")) {
+			throw new ResourceException(Status.CLIENT_ERROR_BAD_REQUEST,
+					"Invalid value for orderBy, \"" + orderBy.getSearchField() + "\". Cursor pagination is only supported when ordering by lastUpdated.");
+		}
+
+		List<JobDTO> jobs = JobDao.findMatching(getAuthenticatedUsername(), queryParameters, cursor, limit,
+				getSortOrder(AgaveResourceResultOrdering.DESC), !hasJsonPathFilters());
+
+		if (!jobs.isEmpty() && jobs.size() == limit) {
+			Form nextQuery = getRequest().getOriginalRef().getQueryAsForm();
+			nextQuery.removeAll("cursor");
+			nextQuery.removeAll("offset");
+			nextQuery.add("cursor", JobSearchCursor.after(jobs.get(jobs.size() - 1)).encode());
+
+			Form headers = (Form)getResponse().getAttributes().get("org.restlet.http.headers");
+			if (headers == null) {
+				headers = new Form();
+				getResponse().getAttributes().put("org.restlet.http.headers", headers);
+			}
+			headers.add("Link", "<" + TenancyHelper.resolveURLToCurrentTenant(Settings.IPLANT_JOB_SERVICE) +
+					"?" + nextQuery.getQueryString() + ">; rel=\"next\"");
+		}
+
+		return jobs;
+	}
+
 	/**
 	 * This method represents the HTTP POST action. Posting a job submission
 	 * form to this service will submit a contrast job on behalf of the
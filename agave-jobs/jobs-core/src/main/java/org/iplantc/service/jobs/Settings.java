@@ -6,6 +6,7 @@ package org.iplantc.service.jobs;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.*;
 
@@ -69,7 +70,13 @@ public class Settings {
 	
 	public static int							MAX_SUBMISSION_TASKS;
 	public static int							MAX_STAGING_TASKS;
+	public static int							MAX_STAGING_INPUT_CONCURRENCY;
+	public static int							MAX_STAGING_SYSTEM_CONCURRENCY;
 	public static int							MAX_ARCHIVE_TASKS;
+	public static int							MAX_ARCHIVE_TRANSFER_CONCURRENCY;
+	public static boolean						ENABLE_ARCHIVE_BUNDLING;
+	public static long							ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB;
+	public static int							ARCHIVE_BUNDLE_MAX_FILES;
 	public static int							MAX_MONITORING_TASKS;
 	
 	public static boolean						SLAVE_MODE;
@@ -88,6 +95,49 @@ public class Settings {
 	public static String 						LOCAL_SYSTEM_ID;
 
 	public static boolean 						ENABLE_ZOMBIE_CLEANUP;
+	public static int 							ZOMBIE_CLEANUP_INTERVAL_SECS;
+
+	/* Job worker lease settings */
+	public static int 							JOB_LEASE_DURATION_SECS;
+	public static int 							JOB_LEASE_HEARTBEAT_INTERVAL_SECS;
+
+	/* Adaptive job monitoring settings */
+	public static boolean 						ENABLE_ADAPTIVE_MONITORING;
+	public static int 							ADAPTIVE_MONITORING_MIN_SAMPLES;
+	public static int 							ADAPTIVE_MONITORING_MIN_INTERVAL_SECS;
+	public static int 							ADAPTIVE_MONITORING_MAX_INTERVAL_SECS;
+
+	/* Local app asset cache settings */
+	public static boolean 						ENABLE_APP_ASSET_CACHE;
+	public static String 						APP_ASSET_CACHE_DIRECTORY;
+	public static long 							APP_ASSET_CACHE_MAX_SIZE_MB;
+	public static int 							APP_ASSET_CACHE_PREFETCH_INTERVAL_SECS;
+	public static boolean 						ENABLE_REMOTE_APP_ASSET_CACHE;
+	public static String 						REMOTE_APP_ASSET_CACHE_PATH;
+	public static boolean 						REMOTE_APP_ASSET_CACHE_SYMLINK;
+	public static int 							REMOTE_APP_ASSET_CACHE_LOCK_TIMEOUT_MINS;
+
+	/* Job quota counter settings */
+	public static boolean 						ENABLE_JOB_QUOTA_COUNTERS;
+	public static int 							JOB_QUOTA_COUNTER_RECONCILE_INTERVAL_SECS;
+
+	/* Parsed wrapper template cache settings */
+	public static int 							WRAPPER_TEMPLATE_CACHE_SIZE;
+
+	/* Job status callback write-behind settings */
+	public static boolean 						ENABLE_JOB_CALLBACK_WRITE_BEHIND;
+	public static int 							JOB_CALLBACK_FLUSH_INTERVAL_MS;
+	public static int 							JOB_CALLBACK_FLUSH_BATCH_SIZE;
+	public static int 							JOB_CALLBACK_QUEUE_MAX_JOBS;
+	public static int 							JOB_CALLBACK_SAVE_TIMEOUT_MS;
+
+	/* Bulk job action settings */
+	public static int 							BULK_JOB_ACTION_MAX_JOBS;
+	public static int 							BULK_JOB_ACTION_BATCH_SIZE;
+
+	/* Job array settings */
+	public static int 							JOB_ARRAY_MAX_SIZE;
+	public static int 							JOB_ARRAY_SUBMISSION_BATCH_SIZE;
 	
 	static
 	{
@@ -238,11 +288,47 @@ public class Settings {
     		MAX_STAGING_TASKS = 0;
 		}
 
+		try {MAX_STAGING_INPUT_CONCURRENCY = Integer.valueOf(props.getProperty("iplant.max.staging.input.concurrency", "4"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.max.staging.input.concurrency.", e);
+    		MAX_STAGING_INPUT_CONCURRENCY = 4;
+		}
+
+		try {MAX_STAGING_SYSTEM_CONCURRENCY = Integer.valueOf(props.getProperty("iplant.max.staging.system.concurrency", "8"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.max.staging.system.concurrency.", e);
+    		MAX_STAGING_SYSTEM_CONCURRENCY = 8;
+		}
+
 		try {MAX_ARCHIVE_TASKS = Integer.valueOf(props.getProperty("iplant.max.archive.tasks", "0"));}
 		catch (Exception e) {
     		log.error("Failure loading setting iplant.max.archive.tasks.", e);
     		MAX_ARCHIVE_TASKS = 0;
 		}
+
+		try {MAX_ARCHIVE_TRANSFER_CONCURRENCY = Integer.valueOf(props.getProperty("iplant.max.archive.transfer.concurrency", "4"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.max.archive.transfer.concurrency.", e);
+    		MAX_ARCHIVE_TRANSFER_CONCURRENCY = 4;
+		}
+
+		try {ENABLE_ARCHIVE_BUNDLING = Boolean.valueOf(props.getProperty("iplant.enable.archive.bundling", "true"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.enable.archive.bundling.", e);
+    		ENABLE_ARCHIVE_BUNDLING = true;
+		}
+
+		try {ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB = Long.valueOf(props.getProperty("iplant.archive.bundle.max.file.size.kb", "1024"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.archive.bundle.max.file.size.kb.", e);
+    		ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB = 1024;
+		}
+
+		try {ARCHIVE_BUNDLE_MAX_FILES = Integer.valueOf(props.getProperty("iplant.archive.bundle.max.files", "1000"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.archive.bundle.max.files.", e);
+    		ARCHIVE_BUNDLE_MAX_FILES = 1000;
+		}
 		
     	try {MAX_SUBMISSION_RETRIES = Integer.valueOf(props.getProperty("iplant.max.submission.retries", "0"));}
 		catch (Exception e) {
@@ -261,6 +347,166 @@ public class Settings {
     		log.error("Failure loading setting iplant.enable.zombie.cleanup.", e);
     		ENABLE_ZOMBIE_CLEANUP = false;
 		}
+
+		try {ZOMBIE_CLEANUP_INTERVAL_SECS = Integer.valueOf(props.getProperty("iplant.zombie.cleanup.interval.secs", "30"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.zombie.cleanup.interval.secs.", e);
+    		ZOMBIE_CLEANUP_INTERVAL_SECS = 30;
+		}
+
+		try {JOB_LEASE_DURATION_SECS = Integer.valueOf(props.getProperty("iplant.job.lease.duration.secs", "90"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.lease.duration.secs.", e);
+    		JOB_LEASE_DURATION_SECS = 90;
+		}
+
+		try {JOB_LEASE_HEARTBEAT_INTERVAL_SECS = Integer.valueOf(props.getProperty("iplant.job.lease.heartbeat.interval.secs", "20"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.lease.heartbeat.interval.secs.", e);
+    		JOB_LEASE_HEARTBEAT_INTERVAL_SECS = 20;
+		}
+
+		try {ENABLE_ADAPTIVE_MONITORING = Boolean.valueOf(props.getProperty("iplant.enable.adaptive.monitoring", "true"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.enable.adaptive.monitoring.", e);
+    		ENABLE_ADAPTIVE_MONITORING = true;
+		}
+
+		try {ADAPTIVE_MONITORING_MIN_SAMPLES = Integer.valueOf(props.getProperty("iplant.adaptive.monitoring.min.samples", "20"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.adaptive.monitoring.min.samples.", e);
+    		ADAPTIVE_MONITORING_MIN_SAMPLES = 20;
+		}
+
+		try {ADAPTIVE_MONITORING_MIN_INTERVAL_SECS = Integer.valueOf(props.getProperty("iplant.adaptive.monitoring.min.interval.secs", "15"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.adaptive.monitoring.min.interval.secs.", e);
+    		ADAPTIVE_MONITORING_MIN_INTERVAL_SECS = 15;
+		}
+
+		try {ADAPTIVE_MONITORING_MAX_INTERVAL_SECS = Integer.valueOf(props.getProperty("iplant.adaptive.monitoring.max.interval.secs", "3600"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.adaptive.monitoring.max.interval.secs.", e);
+    		ADAPTIVE_MONITORING_MAX_INTERVAL_SECS = 3600;
+		}
+
+		try {ENABLE_APP_ASSET_CACHE = Boolean.valueOf(props.getProperty("iplant.enable.app.asset.cache", "true"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.enable.app.asset.cache.", e);
+    		ENABLE_APP_ASSET_CACHE = true;
+		}
+
+		APP_ASSET_CACHE_DIRECTORY = props.getProperty("iplant.app.asset.cache.dir");
+		if (StringUtils.isBlank(APP_ASSET_CACHE_DIRECTORY)) {
+			APP_ASSET_CACHE_DIRECTORY = org.iplantc.service.common.Settings.TEMP_DIRECTORY + File.separator + "app-asset-cache";
+		}
+
+		try {APP_ASSET_CACHE_MAX_SIZE_MB = Long.valueOf(props.getProperty("iplant.app.asset.cache.max.size.mb", "4096"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.app.asset.cache.max.size.mb.", e);
+    		APP_ASSET_CACHE_MAX_SIZE_MB = 4096;
+		}
+
+		try {APP_ASSET_CACHE_PREFETCH_INTERVAL_SECS = Integer.valueOf(props.getProperty("iplant.app.asset.cache.prefetch.interval.secs", "300"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.app.asset.cache.prefetch.interval.secs.", e);
+    		APP_ASSET_CACHE_PREFETCH_INTERVAL_SECS = 300;
+		}
+
+		try {ENABLE_REMOTE_APP_ASSET_CACHE = Boolean.valueOf(props.getProperty("iplant.enable.remote.app.asset.cache", "false"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.enable.remote.app.asset.cache.", e);
+    		ENABLE_REMOTE_APP_ASSET_CACHE = false;
+		}
+
+		REMOTE_APP_ASSET_CACHE_PATH = props.getProperty("iplant.remote.app.asset.cache.path");
+		if (StringUtils.isBlank(REMOTE_APP_ASSET_CACHE_PATH)) {
+			REMOTE_APP_ASSET_CACHE_PATH = ".agave/app-cache";
+		}
+
+		try {REMOTE_APP_ASSET_CACHE_SYMLINK = Boolean.valueOf(props.getProperty("iplant.remote.app.asset.cache.symlink", "false"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.remote.app.asset.cache.symlink.", e);
+    		REMOTE_APP_ASSET_CACHE_SYMLINK = false;
+		}
+
+		try {REMOTE_APP_ASSET_CACHE_LOCK_TIMEOUT_MINS = Integer.valueOf(props.getProperty("iplant.remote.app.asset.cache.lock.timeout.mins", "60"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.remote.app.asset.cache.lock.timeout.mins.", e);
+    		REMOTE_APP_ASSET_CACHE_LOCK_TIMEOUT_MINS = 60;
+		}
+
+		try {ENABLE_JOB_QUOTA_COUNTERS = Boolean.valueOf(props.getProperty("iplant.enable.job.quota.counters", "true"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.enable.job.quota.counters.", e);
+    		ENABLE_JOB_QUOTA_COUNTERS = true;
+		}
+
+		try {JOB_QUOTA_COUNTER_RECONCILE_INTERVAL_SECS = Integer.valueOf(props.getProperty("iplant.job.quota.counter.reconcile.interval.secs", "300"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.quota.counter.reconcile.interval.secs.", e);
+    		JOB_QUOTA_COUNTER_RECONCILE_INTERVAL_SECS = 300;
+		}
+
+		try {WRAPPER_TEMPLATE_CACHE_SIZE = Integer.valueOf(props.getProperty("iplant.wrapper.template.cache.size", "256"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.wrapper.template.cache.size.", e);
+    		WRAPPER_TEMPLATE_CACHE_SIZE = 256;
+		}
+
+		try {ENABLE_JOB_CALLBACK_WRITE_BEHIND = Boolean.valueOf(props.getProperty("iplant.enable.job.callback.write.behind", "true"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.enable.job.callback.write.behind.", e);
+    		ENABLE_JOB_CALLBACK_WRITE_BEHIND = true;
+		}
+
+		try {JOB_CALLBACK_FLUSH_INTERVAL_MS = Integer.valueOf(props.getProperty("iplant.job.callback.flush.interval.ms", "1000"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.callback.flush.interval.ms.", e);
+    		JOB_CALLBACK_FLUSH_INTERVAL_MS = 1000;
+		}
+
+		try {JOB_CALLBACK_FLUSH_BATCH_SIZE = Integer.valueOf(props.getProperty("iplant.job.callback.flush.batch.size", "100"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.callback.flush.batch.size.", e);
+    		JOB_CALLBACK_FLUSH_BATCH_SIZE = 100;
+		}
+
+		try {JOB_CALLBACK_QUEUE_MAX_JOBS = Integer.valueOf(props.getProperty("iplant.job.callback.queue.max.jobs", "10000"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.callback.queue.max.jobs.", e);
+    		JOB_CALLBACK_QUEUE_MAX_JOBS = 10000;
+		}
+
+		try {JOB_CALLBACK_SAVE_TIMEOUT_MS = Integer.valueOf(props.getProperty("iplant.job.callback.save.timeout.ms", "30000"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.callback.save.timeout.ms.", e);
+    		JOB_CALLBACK_SAVE_TIMEOUT_MS = 30000;
+		}
+
+		try {BULK_JOB_ACTION_MAX_JOBS = Integer.valueOf(props.getProperty("iplant.bulk.job.action.max.jobs", "1000"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.bulk.job.action.max.jobs.", e);
+    		BULK_JOB_ACTION_MAX_JOBS = 1000;
+		}
+
+		try {BULK_JOB_ACTION_BATCH_SIZE = Integer.valueOf(props.getProperty("iplant.bulk.job.action.batch.size", "100"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.bulk.job.action.batch.size.", e);
+    		BULK_JOB_ACTION_BATCH_SIZE = 100;
+		}
+
+		try {JOB_ARRAY_MAX_SIZE = Integer.valueOf(props.getProperty("iplant.job.array.max.size", "10000"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.array.max.size.", e);
+    		JOB_ARRAY_MAX_SIZE = 10000;
+		}
+
+		try {JOB_ARRAY_SUBMISSION_BATCH_SIZE = Integer.valueOf(props.getProperty("iplant.job.array.submission.batch.size", "500"));}
+		catch (Exception e) {
+    		log.error("Failure loading setting iplant.job.array.submission.batch.size.", e);
+    		JOB_ARRAY_SUBMISSION_BATCH_SIZE = 500;
+		}
 				
 		if (blacklistFiles != null && blacklistFiles.contains(",")) {
 			BLACKLIST_FILES = StringUtils.split(blacklistFiles, ',');
@@ -18,6 +18,7 @@ import org.iplantc.service.jobs.model.enumerations.JobEventType;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
 import org.iplantc.service.systems.model.ExecutionSystem;
 import org.iplantc.service.systems.model.enumerations.SystemEventType;
+import org.joda.time.DateTime;
 
 import java.io.FileNotFoundException;
 
@@ -39,6 +40,32 @@ public class JobCallbackManager {
      */
     public Job process(JobCallback callback) 
     throws JobCallbackException, ObjectNotFoundException, JobException
+    {
+        validate(callback);
+        
+        Job job = callback.getJob();
+        JobStatusType previousStatus = job.getStatus();
+        
+        applyLocalSchedulerJobId(job, callback.getLocalSchedulerJobId());
+        apply(job, callback.getStatus());
+        
+        JobDao.persist(job, false, previousStatus);
+        
+        return job;
+    }
+    
+    /**
+     * Checks the parts of a status callback that do not depend on the current 
+     * job status. Callbacks passing this check can be queued and applied later 
+     * with {@link #apply(Job, JobStatusType)}.
+     * 
+     * @param callback
+     * @throws JobCallbackException if the callback can never be applied to the job
+     * @throws ObjectNotFoundException if the callback has no job
+     * @throws JobException
+     */
+    public void validate(JobCallback callback) 
+    throws JobCallbackException, ObjectNotFoundException, JobException
     {
         if (callback == null) {
             throw new JobCallbackException("Callback cannot be null.");
@@ -53,88 +80,94 @@ public class JobCallbackManager {
             throw new JobCallbackException("Ignoring " + callback.getStatus() + 
             		" callback on job " + job.getUuid() + ". Job has already been deleted.");
         }
-        else 
+        
+        TenancyHelper.setCurrentEndUser(job.getOwner());
+        TenancyHelper.setCurrentTenantId(job.getTenantId());
+        
+        validateLocalSchedulerJobId(job, callback.getLocalSchedulerJobId());
+    }
+    
+    /**
+     * Applies the status from a callback to the job in memory, adding the 
+     * resulting {@link JobEvent}s to its history. The job is not saved.
+     * 
+     * @param job the job to update
+     * @param status the status sent in the callback
+     * @throws JobCallbackException if the job cannot move to the given status
+     * @throws JobException
+     */
+    public void apply(Job job, JobStatusType status) 
+    throws JobCallbackException, JobException
+    {
+        String message = null;
+        
+        if (job.getStatus() == STOPPED && JobStatusType.isRunning(status)) {
+            // can't set a stopped job back to running. Bad request
+            throw new JobCallbackException("Job " + job.getUuid() + " is currently stopped.");
+        }
+        
+        // the HEARTBEAT status is used to update the job timestamp and is used
+        // by app developers just to keep aware of a job being alive.
+        if (!job.isArchiveOutput() && (status == ARCHIVING || 
+                status == ARCHIVING_FAILED || 
+                status == ARCHIVING_FINISHED)) 
         {
-            TenancyHelper.setCurrentEndUser(job.getOwner());
-            TenancyHelper.setCurrentTenantId(job.getTenantId());
-            
-            validateLocalSchedulerJobId(callback);
-            
-            String message = null;
-            JobStatusType status = callback.getStatus();
-            
-            if (job.getStatus() == STOPPED && JobStatusType.isRunning(callback.getStatus())) {
-                // can't set a stopped job back to running. Bad request
-                throw new JobCallbackException("Job " + callback.getJob().getUuid() + " is currently stopped.");
+            // can't update an archive status when the job is not set to archive
+            throw new JobCallbackException("Job " + job.getUuid()
+                    + " is not configured for archive.");
+        } 
+        else if (!job.getStatus().getNextValidStates().contains(status))
+        {
+            throw new JobCallbackException("Job " + job.getUuid()
+                    + " cannot update status from " + job.getStatus().name() 
+                    + " to " + status.name() + ".");
+        }
+        
+        // heartbeats need to set an event, but they do not udpate the job status.
+        if (status == HEARTBEAT) 
+        {
+            log.debug("Job " + job.getUuid() + " received heartbeat notification.");
+            JobEvent event = new JobEvent(HEARTBEAT, HEARTBEAT.getDescription(), job.getOwner());
+            job.addEvent(event);
+            job.setLastUpdated(new DateTime().toDate());
+            return;
+        }
+        else if (status == CLEANING_UP)
+        {
+            // if job was not running, then fetch the job start time from the 
+            // remote system offline so we have accurate reporting
+            if (job.getStatus() != RUNNING) {
+//                RemoteAccountingValidator validator = new RemoteAccoutingValidator(job);
+//                validator.run();
             }
-            
-            // the HEARTBEAT status is used to update the job timestamp and is used
-            // by app developers just to keep aware of a job being alive.
-            if (!job.isArchiveOutput() && (status == ARCHIVING || 
-                    status == ARCHIVING_FAILED || 
-                    status == ARCHIVING_FINISHED)) 
-            {
-                // can't update an archive status when the job is not set to archive
-                throw new JobCallbackException("Job " + job.getUuid()
-                        + " is not configured for archive.");
-            } 
-            else if (!job.getStatus().getNextValidStates().contains(status))
-            {
-                throw new JobCallbackException("Job " + job.getUuid()
-                        + " cannot update status from " + job.getStatus().name() 
-                        + " to " + status.name() + ".");
+            if (job.getStatus() == CLEANING_UP) {
+                log.debug("Job " + job.getUuid() + " received notification identical to its current status.");
+                message = "Job receieved duplicate " + status.name() + " notification";
+            } else {
+                log.debug("Job " + job.getUuid() + " received " + status.name() + " notification.");
+                message = CLEANING_UP.getDescription();
             }
-            else
-            {
-                // heartbeats need to set an event, but they do not udpate the job status.
-                if (status == HEARTBEAT) 
-                {
-                    log.debug("Job " + job.getUuid() + " received heartbeat notification.");
-                    JobEvent event = new JobEvent(HEARTBEAT, HEARTBEAT.getDescription(), job.getOwner());
-                    job.addEvent(event);
-                    JobDao.persist(job);
-                    
-                    status = job.getStatus();
-                    message = job.getErrorMessage();
-                }
-                else if (status == CLEANING_UP)
-                {
-                    // if job was not running, then fetch the job start time from the 
-                    // remote system offline so we have accurate reporting
-                    if (job.getStatus() != RUNNING) {
-//                        RemoteAccountingValidator validator = new RemoteAccoutingValidator(job);
-//                        validator.run();
-                    }
-                    if (job.getStatus() == CLEANING_UP) {
-                        log.debug("Job " + job.getUuid() + " received notification identical to its current status.");
-                        message = "Job receieved duplicate " + status.name() + " notification";
-                    } else {
-                        log.debug("Job " + job.getUuid() + " received " + status.name() + " notification.");
-                        message = CLEANING_UP.getDescription();
-                    }
-                    
-                    job = JobManager.updateStatus(job, CLEANING_UP, message);
-                    
-                    if (!job.isArchiveOutput()) {
-                        log.debug("Job " + job.getUuid() + " will skip archiving at user request.");
-                        status = JobStatusType.FINISHED;
-                        message = "Job completed. Skipping archiving at user request.";
-                    }
-                }
-                else if (job.getStatus() == status) 
-                {
-                    log.debug("Job " + job.getUuid() + " received notification identical to its current status.");
-                    message = "Job receieved duplicate " + status.name() + " notification";
-                }
-                else 
-                {
-                    log.debug("Job " + job.getUuid() + " received " + status.name() + " notification.");
-                    message = status.getDescription();
-                }
             
-                return JobManager.updateStatus(job, status, message);
+            JobManager.applyStatus(job, CLEANING_UP, message);
+            
+            if (!job.isArchiveOutput()) {
+                log.debug("Job " + job.getUuid() + " will skip archiving at user request.");
+                status = JobStatusType.FINISHED;
+                message = "Job completed. Skipping archiving at user request.";
             }
         }
+        else if (job.getStatus() == status) 
+        {
+            log.debug("Job " + job.getUuid() + " received notification identical to its current status.");
+            message = "Job receieved duplicate " + status.name() + " notification";
+        }
+        else 
+        {
+            log.debug("Job " + job.getUuid() + " received " + status.name() + " notification.");
+            message = status.getDescription();
+        }
+    
+        JobManager.applyStatus(job, status, message);
     }
     
     /**
@@ -285,37 +318,45 @@ public class JobCallbackManager {
     * to update this more than once if job ids are reused on the 
     * remote {@link ExecutionSystem} (<em>I'm talking about you LSF</em>)
     * 
-    * @param callback
-    * @throws JobCallbackException
-    * @throws JobException
+    * @param job the job receiving the callback
+    * @param localSchedulerJobId the local job id sent with the callback
+    * @throws JobCallbackException if the job already has a different local job id
     */
-   private void validateLocalSchedulerJobId(JobCallback callback) 
-   throws JobCallbackException, JobException
+   private void validateLocalSchedulerJobId(Job job, String localSchedulerJobId) 
+   throws JobCallbackException
    {   
-       if (StringUtils.equals(callback.getJob().getLocalJobId(), callback.getLocalSchedulerJobId())) 
-       {
-           // if the job new local job id is null, ignore
-           return;
-       }
-       else if (StringUtils.isEmpty(callback.getLocalSchedulerJobId())) 
-       {
-           // ignore when the new local job id is empty or null
-           return;
-       }
-       // if the current local scheduler job id is empty, approve the update
-       else if (StringUtils.isEmpty(callback.getJob().getLocalJobId()))
-       {
-           log.debug("Job " + callback.getJob().getUuid() + " received notification of its local job id " 
-                   + callback.getLocalSchedulerJobId());
-           callback.getJob().setLocalJobId(callback.getLocalSchedulerJobId());
-       } 
        // If the local scheduler job is already set, throw an exception. We can 
        // just as easily fail silently or update the job in case of local scheduler 
        // job id reuse.
-       else 
+       if (!StringUtils.isEmpty(localSchedulerJobId) 
+               && !StringUtils.isEmpty(job.getLocalJobId())
+               && !StringUtils.equals(job.getLocalJobId(), localSchedulerJobId)) 
        {
-           throw new JobCallbackException("Job " + callback.getJob().getUuid() 
+           throw new JobCallbackException("Job " + job.getUuid() 
                    + " has already been assigned a local id by the scheduler.");
        }
    }
+   
+   /**
+    * Assigns the local job id sent with a callback to the job if the job does 
+    * not already have one.
+    * 
+    * @param job the job receiving the callback
+    * @param localSchedulerJobId the local job id sent with the callback
+    * @throws JobCallbackException if the job already has a different local job id
+    * @see #validateLocalSchedulerJobId(Job, String)
+    */
+   public void applyLocalSchedulerJobId(Job job, String localSchedulerJobId) 
+   throws JobCallbackException
+   {
+       validateLocalSchedulerJobId(job, localSchedulerJobId);
+       
+       // ignore when the new local job id is empty or null
+       if (!StringUtils.isEmpty(localSchedulerJobId) && StringUtils.isEmpty(job.getLocalJobId()))
+       {
+           log.debug("Job " + job.getUuid() + " received notification of its local job id " 
+                   + localSchedulerJobId);
+           job.setLocalJobId(localSchedulerJobId);
+       } 
+   }
 }
@@ -0,0 +1,380 @@
+package org.iplantc.service.jobs.callbacks;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.hibernate.ObjectNotFoundException;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobCallbackException;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for {@link Job} status callbacks. Callbacks are validated and
+ * accepted immediately, then collapsed per job until the next flush. Each flush
+ * reloads the job, applies the distinct statuses received for it in the order they
+ * arrived, and saves the jobs in batches with {@link JobDao#persistAll(List, Map)}.
+ * A job is therefore written once per flush interval no matter how many callbacks
+ * it sent, while every distinct status transition still adds its {@link org.iplantc.service.jobs.model.JobEvent}.
+ * The events of a job, and the notifications they send, are only processed once the
+ * job has been committed.
+ *
+ * Callers wait on the future returned by {@link #offer(JobCallback)} before acknowledging
+ * the callback, so every acknowledged callback has been saved. Callbacks arriving within
+ * the same flush interval share a single commit.
+ *
+ * Callbacks that are invalid for the job's status at flush time are logged and dropped,
+ * just as they would have been rejected by {@link JobCallbackManager#process(JobCallback)}.
+ *
+ * @author dooley
+ */
+public class JobCallbackQueue {
+
+    private static final Logger log = Logger.getLogger(JobCallbackQueue.class);
+
+    private static volatile JobCallbackQueue _instance;
+
+    private final ConcurrentHashMap<String, PendingJobCallbacks> pending = new ConcurrentHashMap<String, PendingJobCallbacks>();
+    private final JobCallbackManager callbackManager = new JobCallbackManager();
+    private final Object flushLock = new Object();
+    private final int batchSize;
+    private final int maxJobs;
+
+    /**
+     * @return the shared callback queue for this api instance
+     */
+    public static JobCallbackQueue getInstance() {
+        if (_instance == null) {
+            synchronized (JobCallbackQueue.class) {
+                if (_instance == null) {
+                    _instance = new JobCallbackQueue(Settings.JOB_CALLBACK_FLUSH_INTERVAL_MS,
+                            Settings.JOB_CALLBACK_FLUSH_BATCH_SIZE, Settings.JOB_CALLBACK_QUEUE_MAX_JOBS);
+                }
+            }
+        }
+        return _instance;
+    }
+
+    /**
+     * @param flushIntervalMs milliseconds between flushes, or 0 to only flush when {@link #flush()} is called
+     * @param batchSize maximum number of jobs saved in a single transaction
+     * @param maxJobs maximum number of jobs with callbacks waiting to be flushed
+     */
+    protected JobCallbackQueue(int flushIntervalMs, int batchSize, int maxJobs) {
+        this.batchSize = Math.max(1, batchSize);
+        this.maxJobs = maxJobs;
+
+        if (flushIntervalMs > 0) {
+            ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "job-callback-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flush,
+                    flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+            // best effort to save accepted callbacks when the container stops
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "job-callback-flush-shutdown"));
+        }
+    }
+
+    /**
+     * Validates the callback and queues it for the next flush. Callbacks for jobs
+     * that already have callbacks waiting are always accepted. Callbacks for other
+     * jobs are only accepted while fewer than the maximum number of jobs are waiting.
+     *
+     * @param callback the status callback sent by the job
+     * @return a future completed with the saved job once the flush containing the callback
+     * commits, or with null if none of the job's callbacks applied. The future fails if the
+     * job could not be saved. Null if the callback was not queued and the caller should
+     * process it immediately.
+     * @throws JobCallbackException if the callback can never be applied to the job
+     * @throws ObjectNotFoundException if the callback has no job
+     * @throws JobException
+     */
+    public CompletableFuture<Job> offer(JobCallback callback)
+    throws JobCallbackException, ObjectNotFoundException, JobException
+    {
+        callbackManager.validate(callback);
+
+        Job job = callback.getJob();
+        if (pending.size() >= maxJobs && !pending.containsKey(job.getUuid())) {
+            return null;
+        }
+
+        return pending.compute(job.getUuid(), (uuid, callbacks) -> {
+            if (callbacks == null) {
+                callbacks = new PendingJobCallbacks(uuid, job.getTenantId());
+            }
+            callbacks.add(callback.getStatus(), callback.getLocalSchedulerJobId());
+            return callbacks;
+        }).getSaved();
+    }
+
+    /**
+     * @return the number of jobs with callbacks waiting to be flushed
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Applies and saves all waiting callbacks. Failures are logged so the scheduled
+     * flush keeps running.
+     *
+     * @return the number of jobs saved
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            List<PendingJobCallbacks> drained = new ArrayList<PendingJobCallbacks>();
+            try {
+                for (String uuid: pending.keySet()) {
+                    PendingJobCallbacks callbacks = pending.remove(uuid);
+                    if (callbacks != null) {
+                        drained.add(callbacks);
+                    }
+                }
+
+                // batches are saved within a single tenant
+                Map<String, List<PendingJobCallbacks>> tenantCallbacks = new HashMap<String, List<PendingJobCallbacks>>();
+                for (PendingJobCallbacks callbacks: drained) {
+                    tenantCallbacks.computeIfAbsent(callbacks.getTenantId(), t -> new ArrayList<PendingJobCallbacks>()).add(callbacks);
+                }
+
+                int saved = 0;
+                for (List<PendingJobCallbacks> callbacks: tenantCallbacks.values()) {
+                    for (int i = 0; i < callbacks.size(); i += batchSize) {
+                        saved += flushBatch(callbacks.subList(i, Math.min(i + batchSize, callbacks.size())));
+                    }
+                }
+                return saved;
+            }
+            catch (Throwable e) {
+                log.error("Failed to flush queued job callbacks.", e);
+                return 0;
+            }
+            finally {
+                // nobody should wait on callbacks a failed flush never reached
+                for (PendingJobCallbacks callbacks: drained) {
+                    callbacks.getSaved().completeExceptionally(
+                            new JobException("Failed to flush queued callbacks for job " + callbacks.getUuid()));
+                }
+                try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Applies and saves the callbacks of a batch of jobs in one transaction. The events
+     * of each job are only processed once the batch commits. If the batch fails to save,
+     * its events are discarded and each job is reloaded and saved on its own so one stale
+     * job does not drop the callbacks of the others.
+     *
+     * @param batch the waiting callbacks of up to {@link #batchSize} jobs in the same tenant
+     * @return the number of jobs saved
+     */
+    protected int flushBatch(List<PendingJobCallbacks> batch) {
+        Map<PendingJobCallbacks, Job> jobs = new LinkedHashMap<PendingJobCallbacks, Job>();
+        Map<String, JobStatusType> previousStatuses = new HashMap<String, JobStatusType>();
+        for (PendingJobCallbacks callbacks: batch) {
+            Job job = applyPendingCallbacks(callbacks, previousStatuses);
+            if (job != null) {
+                jobs.put(callbacks, job);
+            } else {
+                callbacks.getSaved().complete(null);
+            }
+        }
+
+        try {
+            saveJobs(new ArrayList<Job>(jobs.values()), previousStatuses);
+        }
+        catch (Throwable e) {
+            log.error("Failed to save " + jobs.size() + " jobs updated by queued callbacks. " +
+                    "Saving each job individually.", e);
+            for (Job job: jobs.values()) {
+                job.discardDeferredEvents();
+            }
+            return flushEach(jobs.keySet());
+        }
+
+        for (Map.Entry<PendingJobCallbacks, Job> entry: jobs.entrySet()) {
+            entry.getValue().processDeferredEvents();
+            entry.getKey().getSaved().complete(entry.getValue());
+        }
+        return jobs.size();
+    }
+
+    /**
+     * Reloads, applies and saves the callbacks of each job in its own transaction. Jobs
+     * are reloaded because the failed batch left the previously loaded jobs with the
+     * versions and event ids of a rolled back transaction.
+     *
+     * @param batch the waiting callbacks of jobs whose batch failed to save
+     * @return the number of jobs saved
+     */
+    private int flushEach(Collection<PendingJobCallbacks> batch) {
+        int saved = 0;
+        for (PendingJobCallbacks callbacks: batch) {
+            Job job = null;
+            try {
+                Map<String, JobStatusType> previousStatuses = new HashMap<String, JobStatusType>();
+                job = applyPendingCallbacks(callbacks, previousStatuses);
+                if (job != null) {
+                    saveJob(job, previousStatuses.get(job.getUuid()));
+                    job.processDeferredEvents();
+                    saved++;
+                }
+                callbacks.getSaved().complete(job);
+            }
+            catch (Throwable e) {
+                log.error("Failed to save queued " + callbacks.getStatuses() +
+                        " callbacks for job " + callbacks.getUuid(), e);
+                if (job != null) {
+                    job.discardDeferredEvents();
+                }
+                callbacks.getSaved().completeExceptionally(e);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Reloads the job and applies its waiting callbacks in memory. Processing of the
+     * events added to the job is deferred until the job is saved.
+     *
+     * @param callbacks the waiting callbacks of a job
+     * @param previousStatuses map into which the status of the job prior to the callbacks is put
+     * @return the updated job, or null if the job no longer exists or none of the callbacks applied
+     */
+    private Job applyPendingCallbacks(PendingJobCallbacks callbacks, Map<String, JobStatusType> previousStatuses) {
+        try {
+            Job job = loadJob(callbacks.getUuid());
+            if (job == null || !job.isVisible()) {
+                log.debug("Ignoring queued callbacks for job " + callbacks.getUuid() + ". Job has been deleted.");
+                return null;
+            }
+
+            TenancyHelper.setCurrentEndUser(job.getOwner());
+            TenancyHelper.setCurrentTenantId(job.getTenantId());
+            previousStatuses.put(job.getUuid(), job.getStatus());
+            job.deferEventProcessing();
+
+            boolean updated = false;
+            try {
+                String localJobId = job.getLocalJobId();
+                callbackManager.applyLocalSchedulerJobId(job, callbacks.getLocalSchedulerJobId());
+                updated = !StringUtils.equals(localJobId, job.getLocalJobId());
+            } catch (JobCallbackException e) {
+                log.debug("Ignoring queued local job id for job " + job.getUuid() + ". " + e.getMessage());
+            }
+
+            for (JobStatusType status: callbacks.getStatuses()) {
+                try {
+                    callbackManager.apply(job, status);
+                    updated = true;
+                } catch (JobCallbackException e) {
+                    log.debug("Ignoring queued " + status + " callback. " + e.getMessage());
+                }
+            }
+
+            if (!updated) {
+                job.discardDeferredEvents();
+                return null;
+            }
+            return job;
+        }
+        catch (JobException e) {
+            log.error("Failed to apply queued callbacks for job " + callbacks.getUuid(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param uuid the uuid of the job
+     * @return the current job, or null if it does not exist
+     * @throws JobException if the job could not be loaded
+     */
+    protected Job loadJob(String uuid) throws JobException {
+        return JobDao.getByUuid(uuid);
+    }
+
+    /**
+     * Saves a batch of jobs in a single transaction. Returns only once the batch commits.
+     *
+     * @param jobs the jobs to save
+     * @param previousStatuses the status of each job, by uuid, before its callbacks were applied
+     * @throws JobException if the batch could not be saved
+     * @see JobDao#persistAll(List, Map)
+     */
+    protected void saveJobs(List<Job> jobs, Map<String, JobStatusType> previousStatuses) throws JobException {
+        JobDao.persistAll(jobs, previousStatuses);
+    }
+
+    /**
+     * Saves a single job in its own transaction. Returns only once the job commits.
+     *
+     * @param job the job to save
+     * @param previousStatus the status of the job before its callbacks were applied
+     * @throws JobException if the job could not be saved
+     * @see JobDao#persist(Job, boolean, JobStatusType)
+     */
+    protected void saveJob(Job job, JobStatusType previousStatus) throws JobException {
+        JobDao.persist(job, false, previousStatus);
+    }
+
+    /**
+     * The callbacks received for a single job since the last flush. Each status is kept
+     * once, in the order it was first received, along with the latest local job id.
+     */
+    static class PendingJobCallbacks {
+        private final String uuid;
+        private final String tenantId;
+        private final List<JobStatusType> statuses = new ArrayList<JobStatusType>();
+        private final CompletableFuture<Job> saved = new CompletableFuture<Job>();
+        private String localSchedulerJobId;
+
+        PendingJobCallbacks(String uuid, String tenantId) {
+            this.uuid = uuid;
+            this.tenantId = tenantId;
+        }
+
+        void add(JobStatusType status, String localSchedulerJobId) {
+            if (!statuses.contains(status)) {
+                statuses.add(status);
+            }
+            if (!StringUtils.isEmpty(localSchedulerJobId)) {
+                this.localSchedulerJobId = localSchedulerJobId;
+            }
+        }
+
+        String getUuid() {
+            return uuid;
+        }
+
+        String getTenantId() {
+            return tenantId;
+        }
+
+        List<JobStatusType> getStatuses() {
+            return statuses;
+        }
+
+        String getLocalSchedulerJobId() {
+            return localSchedulerJobId;
+        }
+
+        CompletableFuture<Job> getSaved() {
+            return saved;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.hibernate.transform.AliasToEntityMapResultTransformer;
 import org.hibernate.transform.Transformers;
 import org.hibernate.type.StandardBasicTypes;
 import org.iplantc.service.apps.util.ServiceUtils;
+import org.iplantc.service.common.exceptions.PersistenceException;
 import org.iplantc.service.common.persistence.HibernateUtil;
 import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.common.search.AgaveResourceResultOrdering;
@@ -22,6 +23,7 @@ import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.dto.JobDTO;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
 import org.iplantc.service.jobs.model.enumerations.PermissionType;
+import org.iplantc.service.jobs.search.JobSearchCursor;
 import org.iplantc.service.jobs.search.JobSearchFilter;
 import org.iplantc.service.systems.model.BatchQueue;
 import org.iplantc.service.systems.model.ExecutionSystem;
@@ -254,7 +256,237 @@ public class JobDao
             try { HibernateUtil.commitTransaction();} catch (Exception ignored) {}
 		}
 	}
-	
+
+	/**
+	 * Gets the {@link Job}s in the current tenant with the given uuids in a single query.
+	 * Uuids with no matching job are ignored.
+	 *
+	 * @param uuids agave uuids of the jobs
+	 * @return the matching jobs, in no particular order
+	 * @throws JobException if unable to perform the query.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Job> getByUuids(Collection<String> uuids) throws JobException
+	{
+		if (uuids == null || uuids.isEmpty()) return new ArrayList<Job>();
+
+		try
+		{
+			HibernateUtil.beginTransaction();
+			Session session = HibernateUtil.getSession();
+			session.clear();
+
+			// force a query that bypasses the hibernate cache
+			List<Job> jobs = (List<Job>) session.createSQLQuery("select * from jobs where uuid in (:uuids) and tenant_id = :tenantid")
+					.addEntity(Job.class)
+					.setParameterList("uuids", uuids)
+					.setString("tenantid", TenancyHelper.getCurrentTenantId())
+					.setCacheable(false)
+					.setCacheMode(CacheMode.IGNORE)
+					.list();
+
+			session.flush();
+
+			return jobs;
+		} catch (HibernateException ex) {
+			throw new JobException(ex);
+		} finally {
+            try { HibernateUtil.commitTransaction();} catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Claims up to {@code limit} {@link JobStatusType#STAGED} jobs from the given job array for submission
+	 * by moving them to {@link JobStatusType#SUBMITTING} in a single update. The update only matches jobs
+	 * still in the staged state, so concurrent callers never claim the same job. Claimed jobs are marked
+	 * with a claim token in their scheduler job id until they are submitted, and are leased to the
+	 * {@code leaseOwner} in the same update so they are never mistaken for abandoned jobs.
+	 *
+	 * @param arrayUuid the uuid of the job array
+	 * @param limit the maximum number of jobs to claim
+	 * @param leaseOwner unique id of the worker claiming the jobs
+	 * @param leaseDurationSecs seconds until the leases on the claimed jobs expire unless renewed
+	 * @return the claimed jobs ordered by array index
+	 * @throws JobException if unable to perform the query.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Job> claimStagedArrayJobs(String arrayUuid, int limit, String leaseOwner, int leaseDurationSecs)
+	throws JobException
+	{
+		if (StringUtils.isEmpty(arrayUuid) || limit <= 0) return new ArrayList<Job>();
+
+		String claimToken = "claim-" + UUID.randomUUID().toString();
+
+		try
+		{
+			HibernateUtil.beginTransaction();
+			Session session = HibernateUtil.getSession();
+			session.clear();
+
+			session.createSQLQuery("update jobs set status = :submitting, scheduler_job_id = :claimtoken, " +
+							"last_updated = :now, OPTLOCK = OPTLOCK + 1, lease_owner = :owner, " +
+							"lease_expires = DATE_ADD(NOW(), INTERVAL :duration SECOND) " +
+							"where tenant_id = :tenantid and array_uuid = :arrayuuid and status = :staged and visible = 1 " +
+							"order by array_index asc limit :limit")
+					.setString("submitting", JobStatusType.SUBMITTING.name())
+					.setString("claimtoken", claimToken)
+					.setTimestamp("now", new DateTime().toDate())
+					.setString("tenantid", TenancyHelper.getCurrentTenantId())
+					.setString("arrayuuid", arrayUuid)
+					.setString("staged", JobStatusType.STAGED.name())
+					.setInteger("limit", limit)
+					.setString("owner", leaseOwner)
+					.setInteger("duration", leaseDurationSecs)
+					.executeUpdate();
+
+			List<Job> jobs = (List<Job>) session.createSQLQuery("select * from jobs " +
+							"where tenant_id = :tenantid and scheduler_job_id = :claimtoken order by array_index asc")
+					.addEntity(Job.class)
+					.setString("tenantid", TenancyHelper.getCurrentTenantId())
+					.setString("claimtoken", claimToken)
+					.setCacheable(false)
+					.setCacheMode(CacheMode.IGNORE)
+					.list();
+
+			session.flush();
+
+			return jobs;
+		} catch (HibernateException ex) {
+			try {
+				if (HibernateUtil.getSession().isOpen()) {
+					HibernateUtil.rollbackTransaction();
+				}
+			} catch (Exception ignored) {}
+
+			throw new JobException(ex);
+		} finally {
+            try { HibernateUtil.commitTransaction();} catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Gives the {@code leaseOwner} the processing lease on the job with the given id for the next
+	 * {@code durationSecs} seconds. Any previous lease on the job is replaced. Lease columns are
+	 * written directly so the job version is not changed and the worker's own updates are not
+	 * treated as stale.
+	 *
+	 * @param jobId the db id of the job to lease
+	 * @param leaseOwner unique id of the worker taking the lease
+	 * @param durationSecs seconds until the lease expires unless renewed
+	 * @throws JobException if unable to perform the query.
+	 */
+	public static void acquireLease(long jobId, String leaseOwner, int durationSecs)
+	throws JobException
+	{
+		try
+		{
+			Session session = getSession();
+
+			session.createSQLQuery("update jobs set lease_owner = :owner, " +
+							"lease_expires = DATE_ADD(NOW(), INTERVAL :duration SECOND) where id = :id")
+					.setString("owner", leaseOwner)
+					.setInteger("duration", durationSecs)
+					.setLong("id", jobId)
+					.executeUpdate();
+
+			session.flush();
+		} catch (HibernateException ex) {
+			throw new JobException(ex);
+		} finally {
+			try {
+				HibernateUtil.commitTransaction();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Extends the processing leases held by the {@code leaseOwner} on the jobs with the given ids
+	 * for another {@code durationSecs} seconds. Leases since taken over by another worker, or
+	 * cleared when the job was rolled back, are left alone and are missing from the result.
+	 *
+	 * @param jobIds the db ids of the jobs whose leases should be renewed
+	 * @param leaseOwner unique id of the worker holding the leases
+	 * @param durationSecs seconds until the leases expire unless renewed again
+	 * @return the ids of the jobs whose leases were renewed
+	 * @throws JobException if unable to perform the query.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Long> renewLeases(Collection<Long> jobIds, String leaseOwner, int durationSecs)
+	throws JobException
+	{
+		if (jobIds == null || jobIds.isEmpty()) return new ArrayList<Long>();
+
+		try
+		{
+			Session session = getSession();
+
+			session.createSQLQuery("update jobs set " +
+							"lease_expires = DATE_ADD(NOW(), INTERVAL :duration SECOND) " +
+							"where id in (:ids) and lease_owner = :owner")
+					.setInteger("duration", durationSecs)
+					.setParameterList("ids", jobIds)
+					.setString("owner", leaseOwner)
+					.executeUpdate();
+
+			List<Long> renewedIds = new ArrayList<Long>();
+			for (Number jobId: (List<Number>) session.createSQLQuery("select id from jobs " +
+							"where id in (:ids) and lease_owner = :owner")
+					.setParameterList("ids", jobIds)
+					.setString("owner", leaseOwner)
+					.setCacheable(false)
+					.setCacheMode(CacheMode.IGNORE)
+					.list()) {
+				renewedIds.add(jobId.longValue());
+			}
+
+			session.flush();
+
+			return renewedIds;
+		} catch (HibernateException ex) {
+			throw new JobException(ex);
+		} finally {
+			try {
+				HibernateUtil.commitTransaction();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Ends the processing lease held by the {@code leaseOwner} on the job with the given id by
+	 * clearing it. A job whose lease was released is no longer treated as abandoned by a dead
+	 * worker, so the zombie check falls back to the time since its last update. Any renewal by
+	 * the previous owner after the release fails.
+	 *
+	 * @param jobId the db id of the job whose lease should be released
+	 * @param leaseOwner unique id of the worker holding the lease
+	 * @throws JobException if unable to perform the query.
+	 */
+	public static void releaseLease(long jobId, String leaseOwner)
+	throws JobException
+	{
+		try
+		{
+			Session session = getSession();
+
+			session.createSQLQuery("update jobs set lease_expires = NULL, lease_owner = NULL " +
+							"where id = :id and lease_owner = :owner")
+					.setLong("id", jobId)
+					.setString("owner", leaseOwner)
+					.executeUpdate();
+
+			session.flush();
+		} catch (HibernateException ex) {
+			throw new JobException(ex);
+		} finally {
+			try {
+				HibernateUtil.commitTransaction();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
 	/**
 	 * Refreshes a stale job. This is helpful to call after a failed concurrent modification update to get the
      * latest revision number for future updates.
@@ -540,6 +772,8 @@ public class JobDao
 			
     			sql    += "\nwhere j.visible = 1 and j.created < j.last_updated + INTERVAL 60 DAY \n"
     					+ "    and (\n"
+    					+ "      (j.next_status_check is not null and CURRENT_TIMESTAMP >= j.next_status_check) or \n"
+    					+ "      (j.next_status_check is null and ( \n"
     					+ "        (j.status_checks < 4 and CURRENT_TIMESTAMP >= j.last_updated + INTERVAL 15 SECOND) or  \n"
     					+ "        (j.status_checks < 14 and CURRENT_TIMESTAMP >= j.last_updated + INTERVAL 30 SECOND) or  \n"
     					+ "        (j.status_checks < 44 and CURRENT_TIMESTAMP >= j.last_updated + INTERVAL 60 SECOND) or  \n"
@@ -547,6 +781,7 @@ public class JobDao
     					+ "        (j.status_checks < 104 and CURRENT_TIMESTAMP >= j.last_updated + INTERVAL 15 MINUTE) or  \n"
     					+ "        (j.status_checks < 152 and CURRENT_TIMESTAMP >= j.last_updated + INTERVAL 30 MINUTE) or  \n"
     					+ "        (CURRENT_TIMESTAMP >= j.last_updated + INTERVAL 1 HOUR) \n"
+    					+ "      )) \n"
     					+ "    )  \n"
     					+ "    and (\n"
     					+ "      j.status = :queuedstatus \n"
@@ -687,14 +922,37 @@ public class JobDao
 	}
 
     /**
-     * Saves or updates a job, optionally forcing the lastUpdated timestamp to update.
+     * Saves or updates a job, optionally forcing the lastUpdated timestamp to update. The
+     * job quota counters are adjusted against the status the job had when it was loaded
+     * or last saved.
      *
      * @param job the job to save
      * @param forceTimestamp true if a timestamp should be set, false otherwise
      * @throws JobException if unable to save the job
+     * @see Job#getPersistedStatus()
      */
 	public static void persist(Job job, boolean forceTimestamp) 
 	throws JobException, StaleStateException
+	{
+		if (job == null)
+			throw new JobException("Job cannot be null");
+		
+		persist(job, forceTimestamp, job.getPersistedStatus());
+	}
+
+	/**
+	 * Saves or updates a job, optionally forcing the lastUpdated timestamp to update. If the
+	 * job moved into or out of an active status since {@code previousStatus}, the job quota
+	 * counters are adjusted in the same transaction.
+	 *
+	 * @param job the job to save
+	 * @param forceTimestamp true if a timestamp should be set, false otherwise
+	 * @param previousStatus the status of the job when it was last saved, or null if unknown
+	 * @throws JobException if unable to save the job
+	 * @see JobQuotaCounterDao#adjust(Session, Job, int)
+	 */
+	public static void persist(Job job, boolean forceTimestamp, JobStatusType previousStatus)
+	throws JobException, StaleStateException
 	{
 		if (job == null)
 			throw new JobException("Job cannot be null");
@@ -710,6 +968,17 @@ public class JobDao
 			}
 			
 			session.saveOrUpdate(job);
+
+			int delta = JobQuotaCounterDao.getActiveTransitionDelta(previousStatus, job.getStatus());
+			if (Settings.ENABLE_JOB_QUOTA_COUNTERS && delta != 0) {
+				// flush first so a stale job update fails before the counters move
+				session.flush();
+				JobQuotaCounterDao.adjust(session, job, delta);
+			}
+
+			// commit here so a failed commit is reported to the caller rather than swallowed
+			HibernateUtil.commitTransaction();
+			job.setPersistedStatus(job.getStatus());
         } catch (StaleStateException ex) {
             // TODO: swallow this and rethrow a JobException for consistent behavior and easier exception handling upstream
             throw ex;
@@ -723,6 +992,9 @@ public class JobDao
             } catch (Exception ignored) {
             }
 
+            throw new JobException(ex);
+        } catch (PersistenceException ex) {
+            log.error("Failed to commit update of job " + job.getUuid() + ".");
             throw new JobException(ex);
         } finally {
             try {
@@ -732,6 +1004,80 @@ public class JobDao
         }
 	}
 
+	/**
+	 * Saves or updates several jobs in a single transaction. Job quota counters are adjusted
+	 * for each job that moved into or out of an active status since its entry in
+	 * {@code previousStatuses}. If any job fails to save, none of them are saved.
+	 *
+	 * @param jobs the jobs to save
+	 * @param previousStatuses the status of each job, by uuid, when it was last saved
+	 * @throws JobException if unable to save the jobs
+	 * @throws StaleStateException if any of the jobs was concurrently modified
+	 * @see #persist(Job, boolean, JobStatusType)
+	 */
+	public static void persistAll(List<Job> jobs, Map<String, JobStatusType> previousStatuses)
+	throws JobException, StaleStateException
+	{
+		if (jobs == null || jobs.isEmpty()) return;
+
+		Session session = null;
+
+		try
+		{
+			session = getSession();
+
+			for (Job job: jobs) {
+				session.saveOrUpdate(job);
+			}
+			// flush first so a stale job update fails before the counters move
+			session.flush();
+
+			if (Settings.ENABLE_JOB_QUOTA_COUNTERS) {
+				for (Job job: jobs) {
+					int delta = JobQuotaCounterDao.getActiveTransitionDelta(previousStatuses.get(job.getUuid()), job.getStatus());
+					if (delta != 0) {
+						JobQuotaCounterDao.adjust(session, job, delta);
+					}
+				}
+			}
+
+			// commit here so callers only act on the jobs once they are saved
+			HibernateUtil.commitTransaction();
+			for (Job job: jobs) {
+				job.setPersistedStatus(job.getStatus());
+			}
+		} catch (StaleStateException ex) {
+			try {
+				if (session != null && session.isOpen()) {
+					HibernateUtil.rollbackTransaction();
+					session.close();
+				}
+			} catch (Exception ignored) {
+			}
+
+			throw ex;
+		} catch (HibernateException ex) {
+			log.error("Failed to save batch of " + jobs.size() + " jobs. Aborting save.");
+			try {
+				if (session != null && session.isOpen()) {
+					HibernateUtil.rollbackTransaction();
+					session.close();
+				}
+			} catch (Exception ignored) {
+			}
+
+			throw new JobException(ex);
+		} catch (PersistenceException ex) {
+			log.error("Failed to commit batch of " + jobs.size() + " jobs.");
+			throw new JobException(ex);
+		} finally {
+			try {
+				HibernateUtil.commitTransaction();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
 	/**
 	 * Deletes a job from the db.
 	 * @param job the job to delete
@@ -1631,10 +1977,54 @@ public class JobDao
      * @return list of matching jobs, marshalled to {@link JobDTO}
 	 * @throws JobException if unable to perform the query
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<JobDTO> findMatching(String username,
 			Map<SearchTerm, Object> searchCriteria,
 			int offset, int limit, AgaveResourceResultOrdering order, SearchTerm orderBy) throws JobException
+	{
+		return findMatching(username, searchCriteria, offset, limit, order, orderBy, null, false);
+	}
+
+	/**
+	 * Searches for jobs by the given user who matches the given map of {@link SearchTerm}s parameters
+	 * using keyset pagination. Results are ordered by {@code last_updated, id} and the page starts
+	 * immediately after the {@code cursor} position, so the cost of a page does not grow with its
+	 * depth into the result set. Permissions are honored in this query.
+	 *
+	 * @param username the user for whom to search for user jobs
+	 * @param searchCriteria Map of key value pairs by which to query.
+	 * @param cursor the position of the last job of the previous page, or null for the first page
+	 * @param limit the maximum number of records  to return.
+	 * @param order the direction to order
+	 * @param slim if true, the {@code inputs} and {@code parameters} fields are not read
+	 * @return list of matching jobs, marshalled to {@link JobDTO}
+	 * @throws JobException if unable to perform the query
+	 */
+	public static List<JobDTO> findMatching(String username,
+			Map<SearchTerm, Object> searchCriteria,
+			JobSearchCursor cursor, int limit, AgaveResourceResultOrdering order, boolean slim) throws JobException
+	{
+		return findMatching(username, searchCriteria, 0, limit, order, null, cursor, slim);
+	}
+
+	/**
+	 * Builds and runs the job search query for both offset and keyset pagination.
+	 *
+	 * @param username the user for whom to search for user jobs
+	 * @param searchCriteria Map of key value pairs by which to query.
+	 * @param offset the number of records to skip in the result set
+	 * @param limit the maximum number of records  to return.
+	 * @param order the direction to order
+	 * @param orderBy the search field by which to order.
+	 * @param cursor the position after which to start the page, or null
+	 * @param slim if true, the {@code inputs} and {@code parameters} fields are not read
+	 * @return list of matching jobs, marshalled to {@link JobDTO}
+	 * @throws JobException if unable to perform the query
+	 */
+	@SuppressWarnings("unchecked")
+	protected static List<JobDTO> findMatching(String username,
+			Map<SearchTerm, Object> searchCriteria,
+			int offset, int limit, AgaveResourceResultOrdering order, SearchTerm orderBy,
+			JobSearchCursor cursor, boolean slim) throws JobException
 	{
 		if (order == null) {
 			order = AgaveResourceResultOrdering.ASCENDING;
@@ -1643,6 +2033,12 @@ public class JobDao
 		if (orderBy == null) {
 			orderBy = new JobSearchFilter().filterAttributeName("lastupdated");
 		}
+
+		// ties on last_updated are broken by id so keyset pages never skip or repeat a job
+		boolean orderedByLastUpdated = StringUtils.equals(orderBy.getMappedField(), "%slast_updated");
+		if (cursor != null && !orderedByLastUpdated) {
+			throw new JobException("Cursor pagination is only supported when ordering by lastUpdated.");
+		}
 		
 		try
 		{
@@ -1660,7 +2056,7 @@ public class JobDao
 					"       j.execution_system, \n" +
 					"       j.execution_type, \n" +
 					"       j.id, \n" + 
-					"       j.inputs, \n" + 
+					(slim ? "" : "       j.inputs, \n") + 
 					"       j.internal_username, \n" + 
 					"       j.last_updated, \n" + 
 					"       j.local_job_id, \n" + 
@@ -1668,7 +2064,7 @@ public class JobDao
 					"       j.name, \n" + 
 					"       j.node_count, \n" + 
 					"       j.owner, \n" + 
-					"       j.parameters, \n" + 
+					(slim ? "" : "       j.parameters, \n") + 
 					"       j.processor_count, \n" + 
 					"       j.queue_request, \n" + 
 					"       j.requested_time, \n" + 
@@ -1691,9 +2087,9 @@ public class JobDao
 				
 				sql += " WHERE ( \n" +
 				    "       j.owner = :jobowner OR \n" +
-					"       j.id in ( \n" + 
-				    "               SELECT pm.job_id FROM job_permissions as pm \n" +
-					"               WHERE pm.username = :jobowner AND pm.permission <> :none \n" +
+					"       EXISTS ( \n" + 
+				    "               SELECT 1 FROM job_permissions as pm \n" +
+					"               WHERE pm.job_id = j.id AND pm.username = :jobowner AND pm.permission <> :none \n" +
 					"              ) \n" +
 					"      ) AND \n";
 			} else {
@@ -1711,7 +2107,17 @@ public class JobDao
 				sql +=  "\n       AND j.visible = :visiblebydefault ";
 			}
 			
-			sql +=	"\n ORDER BY " + String.format(orderBy.getMappedField(), orderBy.getPrefix()) + " " + order + " \n";
+			if (cursor != null) {
+				String comparator = order.isAscending() ? ">" : "<";
+				sql += "\n       AND (j.last_updated " + comparator + " :cursorlastupdated " +
+						"OR (j.last_updated = :cursorlastupdated AND j.id " + comparator + " :cursorid)) ";
+			}
+			
+			sql +=	"\n ORDER BY " + String.format(orderBy.getMappedField(), orderBy.getPrefix()) + " " + order;
+			if (orderedByLastUpdated) {
+				sql += ", j.id " + order;
+			}
+			sql += " \n";
 			
 			String q = sql;
 //			log.debug(q);
@@ -1732,13 +2138,11 @@ public class JobDao
 				.addScalar("error_message", StandardBasicTypes.STRING)
 				.addScalar("execution_system", StandardBasicTypes.STRING)
 				.addScalar("execution_type", StandardBasicTypes.STRING)
-				.addScalar("inputs", StandardBasicTypes.STRING)
 				.addScalar("internal_username", StandardBasicTypes.STRING)
 				.addScalar("last_updated", StandardBasicTypes.TIMESTAMP)
 				.addScalar("local_job_id", StandardBasicTypes.STRING)
 				.addScalar("name", StandardBasicTypes.STRING)
 				.addScalar("owner", StandardBasicTypes.STRING)
-				.addScalar("parameters", StandardBasicTypes.STRING)
 				.addScalar("queue_request", StandardBasicTypes.STRING)
 				.addScalar("requested_time", StandardBasicTypes.STRING)
 				.addScalar("scheduler_type", StandardBasicTypes.STRING)
@@ -1753,7 +2157,17 @@ public class JobDao
 				.addScalar("work_path", StandardBasicTypes.STRING)
 				.setResultTransformer(Transformers.aliasToBean(JobDTO.class));
 			
+			if (!slim) {
+				query.addScalar("inputs", StandardBasicTypes.STRING)
+					.addScalar("parameters", StandardBasicTypes.STRING);
+			}
+			
             query.setString("tenantid", TenancyHelper.getCurrentTenantId());
+
+			if (cursor != null) {
+				query.setTimestamp("cursorlastupdated", cursor.getLastUpdated())
+					.setLong("cursorid", cursor.getId());
+			}
 			
 			q = StringUtils.replace(q, ":tenantid", "'" + TenancyHelper.getCurrentTenantId() + "'");
 			
@@ -1891,6 +2305,76 @@ public class JobDao
 		}
 	}
 
+	/**
+	 * Returns the run times of the most recently completed jobs matching the given app, system, and queue.
+	 * Run times are calculated the same way as {@link #getJobRunTime(String)}. Any null criteria are
+	 * ignored, so passing only a {@code softwareName} returns run times across all systems and queues
+	 * for that app. Only {@link JobStatusType#FINISHED} jobs in the given tenant are considered.
+	 *
+	 * @param tenantId the tenant of the jobs
+	 * @param softwareName the unique name of the app, or null for any app
+	 * @param systemId the execution system id, or null for any system
+	 * @param queueName the batch queue name, or null for any queue
+	 * @param limit the maximum number of run times to return
+	 * @return the run times in seconds of the most recently completed matching jobs
+	 * @throws JobException if unable to query the db
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Integer> getCompletedJobRunTimes(String tenantId, String softwareName, String systemId, String queueName, int limit)
+	throws JobException
+	{
+		try
+		{
+			Session session = getSession();
+
+			String sql = "SELECT abs(unix_timestamp(j.end_time) - unix_timestamp(j.start_time)) as runtime \n"
+					+ "from jobs j \n"
+					+ "where j.tenant_id = :tenantid \n"
+					+ "    and j.status = :status \n"
+					+ "    and j.start_time is not null \n"
+					+ "    and j.end_time is not null \n";
+
+			if (StringUtils.isNotEmpty(softwareName)) {
+				sql += "    and j.software_name = :softwarename \n";
+			}
+			if (StringUtils.isNotEmpty(systemId)) {
+				sql += "    and j.execution_system = :systemid \n";
+			}
+			if (StringUtils.isNotEmpty(queueName)) {
+				sql += "    and j.queue_request = :queuename \n";
+			}
+			sql += "order by j.end_time desc";
+
+			Query query = session.createSQLQuery(sql)
+					.addScalar("runtime", StandardBasicTypes.INTEGER)
+					.setString("tenantid", tenantId)
+					.setString("status", JobStatusType.FINISHED.name());
+
+			if (StringUtils.isNotEmpty(softwareName)) {
+				query.setString("softwarename", softwareName);
+			}
+			if (StringUtils.isNotEmpty(systemId)) {
+				query.setString("systemid", systemId);
+			}
+			if (StringUtils.isNotEmpty(queueName)) {
+				query.setString("queuename", queueName);
+			}
+
+			return (List<Integer>)query
+					.setCacheable(false)
+					.setMaxResults(limit)
+					.list();
+
+		} catch (Throwable ex) {
+			throw new JobException(ex);
+		} finally {
+			try {
+				HibernateUtil.commitTransaction();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
 	/**
 	 * Fetches all jobs from the current tenant. No pagination is performed here, so beware this result set.
 	 * @return list of all jobs
@@ -2044,6 +2528,10 @@ public class JobDao
 	 * updated in the last 15 minutes or which have been in intermediate 
 	 * statuses without transfers for over an hour.
 	 *
+	 * Jobs whose worker lease has expired are found with a range query on the
+	 * lease expiry index. Jobs which have never been leased fall back to the
+	 * time since their last update.
+	 *
 	 * @param tenantId the tenant for which to search.
 	 * @return {@link List<Long>} of zombie {@link Job} ids
 	 */
@@ -2069,11 +2557,18 @@ public class JobDao
 			
 			String sql ="SELECT j.id " + 
 						"FROM jobs j " +
-						"WHERE j.status in ('PROCESSING_INPUTS', 'STAGING_INPUTS', 'STAGING_JOB', 'SUBMITTING_JOB', 'SUBMITTING', 'ARCHIVING')  " + 
-						"	   AND NOW() > DATE_ADD(j.last_updated, INTERVAL 45 minute) " +  
+						"WHERE j.lease_expires < NOW() " +
+						"	   AND j.status in ('PROCESSING_INPUTS', 'STAGING_INPUTS', 'STAGING_JOB', 'SUBMITTING_JOB', 'SUBMITTING', 'ARCHIVING')  " + 
 						"	   AND j.visible = 1 " + 
 						"	   AND j.tenant_id :excludetenant like :tenantId " + 
-						"ORDER BY j.last_updated ASC ";
+						"UNION " +
+						"SELECT j.id " + 
+						"FROM jobs j " +
+						"WHERE j.lease_expires IS NULL " +
+						"	   AND j.status in ('PROCESSING_INPUTS', 'STAGING_INPUTS', 'STAGING_JOB', 'SUBMITTING_JOB', 'SUBMITTING', 'ARCHIVING')  " + 
+						"	   AND NOW() > DATE_ADD(j.last_updated, INTERVAL 45 minute) " +  
+						"	   AND j.visible = 1 " + 
+						"	   AND j.tenant_id :excludetenant like :tenantId ";
 			
 			sql = StringUtils.replace(sql, ":excludetenant", excludeTenant ? "not" : "");
 			
@@ -0,0 +1,379 @@
+package org.iplantc.service.jobs.dao;
+
+import org.apache.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.type.StandardBasicTypes;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+
+import java.util.*;
+
+/**
+ * Reads and maintains the {@code job_quota_counters} table, which holds the number of
+ * jobs in an active state, as defined by {@link JobStatusType#getActiveStatuses()},
+ * for each tenant, execution system, queue, and owner. Hidden jobs are counted like any
+ * other, since they still hold a slot on the system until they finish. Rollup rows use
+ * {@link #ANY} as the queue and/or owner, so each quota check reads a single row.
+ *
+ * Counters are adjusted in the same transaction as the job status change that caused them
+ * to move. {@link #reconcile()} corrects any drift from status changes made outside of
+ * {@link JobDao#persist(Job, boolean, JobStatusType)}. A single row with {@link #ANY} in every
+ * key column records when counters were last reconciled so only one worker reconciles at a time.
+ *
+ * @author dooley
+ */
+public class JobQuotaCounterDao {
+
+	private static final Logger log = Logger.getLogger(JobQuotaCounterDao.class);
+
+	/**
+	 * Wildcard queue and owner value used for rollup rows.
+	 */
+	public static final String ANY = "*";
+
+	/**
+	 * Calculates the change in active job count caused by a job moving between two statuses.
+	 *
+	 * @param previousStatus the status of the job before the change, or null if unknown
+	 * @param currentStatus the status of the job after the change
+	 * @return 1 if the job became active, -1 if it became inactive, 0 otherwise
+	 */
+	public static int getActiveTransitionDelta(JobStatusType previousStatus, JobStatusType currentStatus)
+	{
+		if (previousStatus == null || currentStatus == null) return 0;
+
+		boolean wasActive = JobStatusType.isActive(previousStatus);
+		boolean isActive = JobStatusType.isActive(currentStatus);
+
+		if (!wasActive && isActive) return 1;
+		else if (wasActive && !isActive) return -1;
+		else return 0;
+	}
+
+	/**
+	 * Adds {@code delta} to every counter the job contributes to. This runs on the given
+	 * session so it commits or rolls back with the job update. Counters never drop below zero.
+	 *
+	 * @param session the session holding the open job update transaction
+	 * @param job the job whose status changed
+	 * @param delta the change in active job count
+	 * @throws HibernateException if the counters cannot be updated
+	 */
+	public static void adjust(Session session, Job job, int delta) throws HibernateException
+	{
+		if (delta == 0) return;
+
+		// rows are always listed in the same order so concurrent updates lock them in the same order
+		String sql = "INSERT INTO job_quota_counters \n"
+				+ "    (tenant_id, execution_system, queue_request, owner, active_jobs, last_updated) \n"
+				+ "VALUES \n"
+				+ "    (:tenantid, :systemid, :queuename, :owner, GREATEST(0, :delta), CURRENT_TIMESTAMP), \n"
+				+ "    (:tenantid, :systemid, :queuename, :any, GREATEST(0, :delta), CURRENT_TIMESTAMP), \n"
+				+ "    (:tenantid, :systemid, :any, :owner, GREATEST(0, :delta), CURRENT_TIMESTAMP), \n"
+				+ "    (:tenantid, :systemid, :any, :any, GREATEST(0, :delta), CURRENT_TIMESTAMP) \n"
+				+ "ON DUPLICATE KEY UPDATE \n"
+				+ "    active_jobs = GREATEST(0, active_jobs + :delta), \n"
+				+ "    last_updated = CURRENT_TIMESTAMP";
+
+		session.createSQLQuery(sql)
+				.setString("tenantid", job.getTenantId())
+				.setString("systemid", job.getSystem())
+				.setString("queuename", job.getBatchQueue())
+				.setString("owner", job.getOwner())
+				.setString("any", ANY)
+				.setInteger("delta", delta)
+				.executeUpdate();
+	}
+
+	/**
+	 * Returns the number of active jobs counted for the given key. Pass {@link #ANY} as the
+	 * {@code queueName} or {@code owner} to read the rollup across all queues or owners.
+	 *
+	 * @param tenantId the tenant of the jobs
+	 * @param systemId the execution system of the jobs
+	 * @param queueName the queue of the jobs or {@link #ANY}
+	 * @param owner the owner of the jobs or {@link #ANY}
+	 * @return the counted number of active jobs, 0 if nothing has been counted
+	 * @throws JobException if the query cannot be performed
+	 */
+	public static long getActiveJobCount(String tenantId, String systemId, String queueName, String owner)
+	throws JobException
+	{
+		try
+		{
+			Session session = HibernateUtil.getSession();
+			HibernateUtil.beginTransaction();
+
+			String sql = "SELECT active_jobs \n"
+					+ "FROM job_quota_counters \n"
+					+ "WHERE tenant_id = :tenantid \n"
+					+ "    AND execution_system = :systemid \n"
+					+ "    AND queue_request = :queuename \n"
+					+ "    AND owner = :owner";
+
+			Long count = (Long) session.createSQLQuery(sql)
+					.addScalar("active_jobs", StandardBasicTypes.LONG)
+					.setString("tenantid", tenantId)
+					.setString("systemid", systemId)
+					.setString("queuename", queueName)
+					.setString("owner", owner)
+					.setCacheable(false)
+					.uniqueResult();
+
+			return count == null ? 0 : count;
+		}
+		catch (HibernateException ex) {
+			throw new JobException(ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Claims the next reconcile for this worker. A reconcile may only be claimed once the last
+	 * claim is older than {@code minIntervalSecs}, so concurrent workers never reconcile at the
+	 * same time as long as a reconcile finishes within that interval.
+	 *
+	 * @param minIntervalSecs seconds which must pass between claims
+	 * @return true if this worker should reconcile, false if another worker claimed it recently
+	 * @throws JobException if the claim cannot be made
+	 */
+	public static boolean claimReconcile(int minIntervalSecs) throws JobException
+	{
+		try
+		{
+			Session session = HibernateUtil.getSession();
+			HibernateUtil.beginTransaction();
+
+			// active_jobs on the marker row is 1 once a claimed reconcile has completed
+			session.createSQLQuery("INSERT IGNORE INTO job_quota_counters \n"
+					+ "    (tenant_id, execution_system, queue_request, owner, active_jobs, last_updated) \n"
+					+ "VALUES (:any, :any, :any, :any, 0, FROM_UNIXTIME(1))")
+					.setString("any", ANY)
+					.executeUpdate();
+
+			int claimed = session.createSQLQuery("UPDATE job_quota_counters \n"
+					+ "SET active_jobs = 0, last_updated = CURRENT_TIMESTAMP \n"
+					+ "WHERE tenant_id = :any AND execution_system = :any AND queue_request = :any AND owner = :any \n"
+					+ "    AND last_updated <= DATE_SUB(CURRENT_TIMESTAMP, INTERVAL :interval SECOND)")
+					.setString("any", ANY)
+					.setInteger("interval", Math.max(1, minIntervalSecs))
+					.executeUpdate();
+
+			HibernateUtil.commitTransaction();
+
+			return claimed > 0;
+		}
+		catch (HibernateException ex) {
+			try { HibernateUtil.rollbackTransaction(); } catch (Exception ignored) {}
+			throw new JobException("Failed to claim the job quota counter reconcile", ex);
+		}
+	}
+
+	/**
+	 * Checks whether any worker completed a reconcile within the given window. Workers which
+	 * did not claim a reconcile use this to decide whether the counters can be trusted.
+	 *
+	 * @param withinSecs how recently the reconcile must have completed
+	 * @return true if a reconcile completed within the window
+	 * @throws JobException if the query cannot be performed
+	 */
+	public static boolean isRecentlyReconciled(int withinSecs) throws JobException
+	{
+		try
+		{
+			Session session = HibernateUtil.getSession();
+			HibernateUtil.beginTransaction();
+
+			Number count = (Number) session.createSQLQuery("SELECT count(*) \n"
+					+ "FROM job_quota_counters \n"
+					+ "WHERE tenant_id = :any AND execution_system = :any AND queue_request = :any AND owner = :any \n"
+					+ "    AND active_jobs = 1 \n"
+					+ "    AND last_updated > DATE_SUB(CURRENT_TIMESTAMP, INTERVAL :within SECOND)")
+					.setString("any", ANY)
+					.setInteger("within", Math.max(1, withinSecs))
+					.setCacheable(false)
+					.uniqueResult();
+
+			return count != null && count.intValue() > 0;
+		}
+		catch (HibernateException ex) {
+			throw new JobException(ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Corrects all counters against the current contents of the jobs table. Active job counts
+	 * and the counters are read in one transaction, so both come from the same consistent
+	 * snapshot and the difference between them is exactly the drift at that point. Each
+	 * counter that drifted is then moved by that difference in a single relative update,
+	 * so adjustments committed by job updates while the reconcile runs are kept. Each update
+	 * runs in its own short transaction so a reconcile never holds more than one counter row
+	 * lock at a time and cannot deadlock with job updates.
+	 *
+	 * Callers should claim the reconcile with {@link #claimReconcile(int)} first. Two reconciles
+	 * running at once would both apply the same correction.
+	 *
+	 * @return the number of counters that were corrected
+	 * @throws JobException if the counters cannot be read or written
+	 */
+	@SuppressWarnings("unchecked")
+	public static int reconcile() throws JobException
+	{
+		Map<List<String>, Long> expected = new HashMap<List<String>, Long>();
+		Map<List<String>, Long> current = new HashMap<List<String>, Long>();
+
+		try
+		{
+			Session session = HibernateUtil.getSession();
+			HibernateUtil.beginTransaction();
+
+			String sql = "SELECT tenant_id, execution_system, queue_request, owner, count(*) as active_jobs \n"
+					+ "FROM jobs \n"
+					+ "WHERE status in (" + JobStatusType.getActiveStatusValues() + ") \n"
+					+ "GROUP BY tenant_id, execution_system, queue_request, owner";
+
+			List<Object[]> rows = session.createSQLQuery(sql)
+					.addScalar("tenant_id", StandardBasicTypes.STRING)
+					.addScalar("execution_system", StandardBasicTypes.STRING)
+					.addScalar("queue_request", StandardBasicTypes.STRING)
+					.addScalar("owner", StandardBasicTypes.STRING)
+					.addScalar("active_jobs", StandardBasicTypes.LONG)
+					.setCacheable(false)
+					.list();
+
+			for (Object[] row : rows) {
+				addExpectedCounts(expected, (String) row[0], (String) row[1], (String) row[2], (String) row[3], (Long) row[4]);
+			}
+
+			sql = "SELECT tenant_id, execution_system, queue_request, owner, active_jobs \n"
+					+ "FROM job_quota_counters \n"
+					+ "WHERE tenant_id <> :any";
+
+			rows = session.createSQLQuery(sql)
+					.addScalar("tenant_id", StandardBasicTypes.STRING)
+					.addScalar("execution_system", StandardBasicTypes.STRING)
+					.addScalar("queue_request", StandardBasicTypes.STRING)
+					.addScalar("owner", StandardBasicTypes.STRING)
+					.addScalar("active_jobs", StandardBasicTypes.LONG)
+					.setString("any", ANY)
+					.setCacheable(false)
+					.list();
+
+			for (Object[] row : rows) {
+				current.put(Arrays.asList((String) row[0], (String) row[1], (String) row[2], (String) row[3]), (Long) row[4]);
+			}
+		}
+		catch (HibernateException ex) {
+			throw new JobException(ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+
+		Map<List<String>, Long> corrections = getCorrections(expected, current);
+
+		for (Map.Entry<List<String>, Long> correction : corrections.entrySet()) {
+			List<String> key = correction.getKey();
+			try
+			{
+				Session session = HibernateUtil.getSession();
+				HibernateUtil.beginTransaction();
+
+				String sql = "INSERT INTO job_quota_counters \n"
+						+ "    (tenant_id, execution_system, queue_request, owner, active_jobs, last_updated) \n"
+						+ "VALUES (:tenantid, :systemid, :queuename, :owner, GREATEST(0, :delta), CURRENT_TIMESTAMP) \n"
+						+ "ON DUPLICATE KEY UPDATE \n"
+						+ "    active_jobs = GREATEST(0, active_jobs + :delta), \n"
+						+ "    last_updated = CURRENT_TIMESTAMP";
+
+				session.createSQLQuery(sql)
+						.setString("tenantid", key.get(0))
+						.setString("systemid", key.get(1))
+						.setString("queuename", key.get(2))
+						.setString("owner", key.get(3))
+						.setLong("delta", correction.getValue())
+						.executeUpdate();
+
+				HibernateUtil.commitTransaction();
+
+				log.debug("Corrected job quota counter " + key + " by " + correction.getValue());
+			}
+			catch (HibernateException ex) {
+				try { HibernateUtil.rollbackTransaction(); } catch (Exception ignored) {}
+				throw new JobException("Failed to reconcile job quota counter " + key, ex);
+			}
+		}
+
+		markReconciled();
+
+		return corrections.size();
+	}
+
+	/**
+	 * Adds the active job count of one tenant, system, queue, and owner to every counter it
+	 * contributes to.
+	 */
+	protected static void addExpectedCounts(Map<List<String>, Long> expected, String tenantId, String systemId,
+											String queueName, String owner, long count)
+	{
+		expected.merge(Arrays.asList(tenantId, systemId, queueName, owner), count, Long::sum);
+		expected.merge(Arrays.asList(tenantId, systemId, queueName, ANY), count, Long::sum);
+		expected.merge(Arrays.asList(tenantId, systemId, ANY, owner), count, Long::sum);
+		expected.merge(Arrays.asList(tenantId, systemId, ANY, ANY), count, Long::sum);
+	}
+
+	/**
+	 * Calculates the change needed to bring each counter from its current value to its expected
+	 * value. Counters with no expected value are expected to be 0.
+	 *
+	 * @param expected the expected value of each counter
+	 * @param current the current value of each counter
+	 * @return the non-zero change for each counter which drifted
+	 */
+	protected static Map<List<String>, Long> getCorrections(Map<List<String>, Long> expected, Map<List<String>, Long> current)
+	{
+		Set<List<String>> keys = new HashSet<List<String>>(expected.keySet());
+		keys.addAll(current.keySet());
+
+		Map<List<String>, Long> corrections = new HashMap<List<String>, Long>();
+		for (List<String> key : keys) {
+			long delta = expected.getOrDefault(key, 0L) - current.getOrDefault(key, 0L);
+			if (delta != 0 || !current.containsKey(key)) {
+				corrections.put(key, delta);
+			}
+		}
+		return corrections;
+	}
+
+	/**
+	 * Records that the claimed reconcile completed.
+	 */
+	private static void markReconciled() throws JobException
+	{
+		try
+		{
+			Session session = HibernateUtil.getSession();
+			HibernateUtil.beginTransaction();
+
+			session.createSQLQuery("UPDATE job_quota_counters \n"
+					+ "SET active_jobs = 1, last_updated = CURRENT_TIMESTAMP \n"
+					+ "WHERE tenant_id = :any AND execution_system = :any AND queue_request = :any AND owner = :any")
+					.setString("any", ANY)
+					.executeUpdate();
+
+			HibernateUtil.commitTransaction();
+		}
+		catch (HibernateException ex) {
+			try { HibernateUtil.rollbackTransaction(); } catch (Exception ignored) {}
+			throw new JobException("Failed to record the job quota counter reconcile", ex);
+		}
+	}
+}
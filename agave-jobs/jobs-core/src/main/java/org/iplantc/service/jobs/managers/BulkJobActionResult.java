@@ -0,0 +1,118 @@
+package org.iplantc.service.jobs.managers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.BulkJobActionType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link BulkJobManager} action for each job it was asked to act upon.
+ * A job appears in either the succeeded or failed list, never both.
+ *
+ * @author dooley
+ */
+public class BulkJobActionResult {
+
+    private final BulkJobActionType action;
+    private final Map<String, ObjectNode> succeeded = new LinkedHashMap<String, ObjectNode>();
+    private final Map<String, String> failed = new LinkedHashMap<String, String>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public BulkJobActionResult(BulkJobActionType action) {
+        this.action = action;
+    }
+
+    /**
+     * Records the job as successfully acted upon with its resulting status.
+     *
+     * @param job the updated job
+     */
+    public void addSuccess(Job job) {
+        failed.remove(job.getUuid());
+
+        ObjectNode json = mapper.createObjectNode()
+                .put("id", job.getUuid())
+                .put("status", job.getStatus().name());
+        succeeded.put(job.getUuid(), json);
+    }
+
+    /**
+     * Records the job as successfully resubmitted.
+     *
+     * @param job the original job
+     * @param resubmittedJob the new job created from the original
+     */
+    public void addSuccess(Job job, Job resubmittedJob) {
+        addSuccess(job);
+        succeeded.get(job.getUuid()).put("resubmittedId", resubmittedJob.getUuid());
+    }
+
+    /**
+     * Records that the action could not be applied to the job.
+     *
+     * @param uuid the uuid of the job
+     * @param message the reason the action failed
+     */
+    public void addFailure(String uuid, String message) {
+        succeeded.remove(uuid);
+        failed.put(uuid, message);
+    }
+
+    /**
+     * Adds the outcomes recorded in another result for the same action.
+     *
+     * @param other the result to add
+     * @return this result
+     */
+    public BulkJobActionResult addAll(BulkJobActionResult other) {
+        succeeded.putAll(other.succeeded);
+        failed.putAll(other.failed);
+        return this;
+    }
+
+    /**
+     * @param uuid the uuid of a job
+     * @return true if the action failed for the job
+     */
+    public boolean isFailed(String uuid) {
+        return failed.containsKey(uuid);
+    }
+
+    public BulkJobActionType getAction() {
+        return action;
+    }
+
+    public int getSucceededCount() {
+        return succeeded.size();
+    }
+
+    public int getFailedCount() {
+        return failed.size();
+    }
+
+    /**
+     * @return json object with the action and the succeeded and failed jobs
+     */
+    public String toJSON() {
+        ObjectNode json = mapper.createObjectNode();
+        json.put("action", action.toString());
+
+        ArrayNode succeededJson = json.putArray("succeeded");
+        for (ObjectNode job: succeeded.values()) {
+            succeededJson.add(job);
+        }
+
+        ArrayNode failedJson = json.putArray("failed");
+        for (Map.Entry<String, String> entry: failed.entrySet()) {
+            failedJson.addObject()
+                    .put("id", entry.getKey())
+                    .put("message", entry.getValue());
+        }
+
+        return json.toString();
+    }
+}
@@ -0,0 +1,409 @@
+package org.iplantc.service.jobs.managers;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobMacroResolutionException;
+import org.iplantc.service.jobs.exceptions.JobTerminationException;
+import org.iplantc.service.jobs.managers.killers.AbstractJobKiller;
+import org.iplantc.service.jobs.managers.killers.BatchJobKiller;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.JobEvent;
+import org.iplantc.service.jobs.model.enumerations.BulkJobActionType;
+import org.iplantc.service.jobs.model.enumerations.JobEventType;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.systems.dao.SystemSnapshotCache;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.systems.model.RemoteSystem;
+import org.iplantc.service.systems.model.enumerations.SystemStatusType;
+import org.joda.time.DateTime;
+
+import java.util.*;
+
+/**
+ * Applies the stop, hide, restore, and resubmit actions of {@link JobManager} to many
+ * jobs at once. Running jobs are grouped by execution system and killed with one
+ * scheduler command per system, internal user, and batch of jobs rather than one
+ * connection per job. Status and visibility changes are saved in batched transactions.
+ * Jobs whose batch kill fails fall back to {@link JobManager#kill(Job)}.
+ *
+ * Job quota counters count hidden jobs, so they only move with status transitions.
+ * Hiding a job moves them only when the job is stopped first, and restoring a job
+ * never moves them.
+ *
+ * Callers are responsible for checking the requesting user has permission to modify
+ * each job.
+ *
+ * @author dooley
+ */
+public class BulkJobManager {
+
+    private static final Logger log = Logger.getLogger(BulkJobManager.class);
+
+    private final int batchSize;
+
+    public BulkJobManager() {
+        this(Settings.BULK_JOB_ACTION_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize the maximum number of jobs killed with a single command and saved in a single transaction
+     */
+    public BulkJobManager(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Stops all the given jobs.
+     *
+     * @param jobs the jobs to stop
+     * @return the outcome for each job
+     * @see JobManager#kill(Job)
+     */
+    public BulkJobActionResult stop(List<Job> jobs) {
+        BulkJobActionResult result = new BulkJobActionResult(BulkJobActionType.STOP);
+        JobUpdates updates = new JobUpdates();
+
+        List<Job> cancelledJobs = new ArrayList<Job>();
+        stopJobs(jobs, result, updates, cancelledJobs);
+
+        save(updates, result);
+        cancelActiveTransfers(cancelledJobs, result);
+
+        return result;
+    }
+
+    /**
+     * Stops any of the given jobs that are running and hides all of them. Jobs that
+     * cannot be stopped are not hidden.
+     *
+     * @param jobs the jobs to hide
+     * @param invokingUsername the user requesting the jobs be hidden
+     * @return the outcome for each job
+     * @see JobManager#hide(long, String)
+     */
+    public BulkJobActionResult hide(List<Job> jobs, String invokingUsername) {
+        BulkJobActionResult result = new BulkJobActionResult(BulkJobActionType.HIDE);
+        JobUpdates updates = new JobUpdates();
+
+        List<Job> runningJobs = new ArrayList<Job>();
+        for (Job job: jobs) {
+            if (job.isRunning()) runningJobs.add(job);
+        }
+
+        List<Job> cancelledJobs = new ArrayList<Job>();
+        Map<String, Job> stoppedJobs = stopJobs(runningJobs, result, updates, cancelledJobs);
+
+        Date jobHiddenDate = new DateTime().toDate();
+        for (Job job: jobs) {
+            if (result.isFailed(job.getUuid())) {
+                result.addFailure(job.getUuid(), "Unable to kill job " + job.getUuid() + ". Aborting hide operation.");
+                continue;
+            }
+
+            // the kill may have returned a newer copy of the job
+            Job jobToHide = stoppedJobs.containsKey(job.getUuid()) ? stoppedJobs.get(job.getUuid()) : job;
+
+            updates.track(jobToHide);
+            jobToHide.setVisible(Boolean.FALSE);
+            jobToHide.setLastUpdated(jobHiddenDate);
+            jobToHide.addEvent(new JobEvent(
+                    JobEventType.DELETED.name(),
+                    "Job was deleted by user " + invokingUsername + ".",
+                    invokingUsername));
+
+            result.addSuccess(jobToHide);
+        }
+
+        save(updates, result);
+        cancelActiveTransfers(cancelledJobs, result);
+
+        return result;
+    }
+
+    /**
+     * Makes all the given hidden jobs visible again.
+     *
+     * @param jobs the jobs to restore
+     * @param invokingUsername the user requesting the jobs be restored
+     * @return the outcome for each job
+     * @see JobManager#restore(long, String)
+     */
+    public BulkJobActionResult restore(List<Job> jobs, String invokingUsername) {
+        BulkJobActionResult result = new BulkJobActionResult(BulkJobActionType.RESTORE);
+        JobUpdates updates = new JobUpdates();
+
+        Date jobRestoredDate = new DateTime().toDate();
+        for (Job job: jobs) {
+            if (job.isVisible()) {
+                result.addFailure(job.getUuid(), "Job is already visible.");
+                continue;
+            }
+
+            updates.track(job);
+            job.setVisible(Boolean.TRUE);
+            job.setLastUpdated(jobRestoredDate);
+            job.addEvent(new JobEvent(
+                    JobEventType.RESTORED.name(),
+                    "Job was restored by " + invokingUsername,
+                    invokingUsername));
+
+            result.addSuccess(job);
+        }
+
+        save(updates, result);
+
+        return result;
+    }
+
+    /**
+     * Resubmits each of the given jobs as a new job. Every resubmission is a new job request,
+     * so these are processed one at a time.
+     *
+     * @param jobs the jobs to resubmit
+     * @param newJobOwner the owner of the new jobs
+     * @param newJobInternalUsername the internal user of the new jobs
+     * @param ignoreInputConflicts true to ignore app input changes since the original jobs
+     * @param ignoreParameterConflicts true to ignore app parameter changes since the original jobs
+     * @return the outcome for each job
+     * @see JobManager#resubmitJob(Job, String, String, boolean, boolean)
+     */
+    public BulkJobActionResult resubmit(List<Job> jobs, String newJobOwner, String newJobInternalUsername,
+                                        boolean ignoreInputConflicts, boolean ignoreParameterConflicts) {
+        BulkJobActionResult result = new BulkJobActionResult(BulkJobActionType.RESUBMIT);
+
+        for (Job job: jobs) {
+            if (!job.isVisible()) {
+                result.addFailure(job.getUuid(), "Job with uuid " + job.getUuid() + " is not visible.");
+                continue;
+            }
+
+            try {
+                Job resubmittedJob = JobManager.resubmitJob(job, newJobOwner, newJobInternalUsername,
+                        ignoreInputConflicts, ignoreParameterConflicts);
+                result.addSuccess(job, resubmittedJob);
+            } catch (Exception e) {
+                log.debug("Failed to resubmit job " + job.getUuid() + ": " + e.getMessage());
+                result.addFailure(job.getUuid(), "Failed to submit job: " + e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stops the given jobs in memory. Jobs not yet queued on their execution system are
+     * stopped directly. Running jobs are killed in batches per execution system.
+     *
+     * @param jobs the jobs to stop
+     * @param result the outcome for each job
+     * @param updates the jobs modified in memory that still need to be saved
+     * @param cancelledJobs list to which jobs whose transfers need to be cancelled once saved are added
+     * @return the current copy of each stopped job by uuid
+     */
+    protected Map<String, Job> stopJobs(List<Job> jobs, BulkJobActionResult result, JobUpdates updates, List<Job> cancelledJobs) {
+        Map<String, Job> stoppedJobs = new HashMap<String, Job>();
+        Map<String, List<Job>> systemJobs = new LinkedHashMap<String, List<Job>>();
+
+        for (Job job: jobs) {
+            try {
+                if (!JobStatusType.hasQueued(job.getStatus()) || job.getStatus() == JobStatusType.ARCHIVING) {
+                    // if it's not in queue, just update the status
+                    updates.track(job);
+                    JobManager.applyStatus(job, JobStatusType.STOPPED, "Job cancelled by user.");
+                    cancelledJobs.add(job);
+                    stoppedJobs.put(job.getUuid(), job);
+                    result.addSuccess(job);
+                } else if (!job.isRunning()) {
+                    // nothing to be done for jobs that are not running
+                    stoppedJobs.put(job.getUuid(), job);
+                    result.addSuccess(job);
+                } else if (StringUtils.isEmpty(job.getLocalJobId())) {
+                    killIndividually(job, result, stoppedJobs);
+                } else {
+                    systemJobs.computeIfAbsent(job.getSystem(), s -> new ArrayList<Job>()).add(job);
+                }
+            } catch (Exception e) {
+                log.error("Failed to stop job " + job.getUuid(), e);
+                result.addFailure(job.getUuid(), "Job termination failed");
+            }
+        }
+
+        for (Map.Entry<String, List<Job>> entry: systemJobs.entrySet()) {
+            killOnSystem(entry.getKey(), entry.getValue(), result, updates, stoppedJobs);
+        }
+
+        return stoppedJobs;
+    }
+
+    /**
+     * Kills the given running jobs on a single execution system. Jobs are grouped by the
+     * internal user and startup script used to connect, and each group is killed with one
+     * scheduler command per batch.
+     *
+     * @param systemId the execution system of the jobs
+     * @param jobs the running jobs to kill
+     * @param result the outcome for each job
+     * @param updates the jobs modified in memory that still need to be saved
+     * @param stoppedJobs map to which the current copy of each killed job is added
+     */
+    protected void killOnSystem(String systemId, List<Job> jobs, BulkJobActionResult result,
+                                JobUpdates updates, Map<String, Job> stoppedJobs) {
+        RemoteSystem system = SystemSnapshotCache.getSystem(systemId);
+        if (!(system instanceof ExecutionSystem) || !system.isAvailable() || system.getStatus() != SystemStatusType.UP) {
+            for (Job job: jobs) {
+                String message = "Failed to kill job " + job.getUuid()
+                        + " identified by id " + job.getLocalJobId() + " on " + job.getSystem()
+                        + ". The system is currently unavailable.";
+                try {
+                    updates.track(job);
+                    JobManager.applyStatus(job, job.getStatus(), message);
+                } catch (Exception e) {
+                    log.error("Failed to update job " + job.getUuid(), e);
+                }
+                result.addFailure(job.getUuid(), message);
+            }
+            return;
+        }
+
+        ExecutionSystem executionSystem = (ExecutionSystem) system;
+
+        // jobs can only share a command if they connect as the same user and source the same startup script
+        Map<String, List<Job>> commandJobs = new LinkedHashMap<String, List<Job>>();
+        Map<String, String> startupScriptCommands = new HashMap<String, String>();
+        for (Job job: jobs) {
+            try {
+                String startupScriptCommand = AbstractJobKiller.getStartupScriptCommand(job, executionSystem);
+                String key = job.getInternalUsername() + "\n" + startupScriptCommand;
+                startupScriptCommands.put(key, startupScriptCommand);
+                commandJobs.computeIfAbsent(key, k -> new ArrayList<Job>()).add(job);
+            } catch (JobMacroResolutionException e) {
+                killIndividually(job, result, stoppedJobs);
+            }
+        }
+
+        for (Map.Entry<String, List<Job>> entry: commandJobs.entrySet()) {
+            List<Job> commandJobList = entry.getValue();
+            String internalUsername = commandJobList.get(0).getInternalUsername();
+
+            for (int i = 0; i < commandJobList.size(); i += batchSize) {
+                List<Job> batch = commandJobList.subList(i, Math.min(i + batchSize, commandJobList.size()));
+                BatchJobKiller killer = new BatchJobKiller(executionSystem, internalUsername,
+                        startupScriptCommands.get(entry.getKey()), batch);
+                try {
+                    String response = killer.attack();
+
+                    for (Job job: batch) {
+                        updates.track(job);
+                        String notFoundResponse = BatchJobKiller.getNotFoundResponse(job, response);
+                        if (notFoundResponse == null) {
+                            JobManager.applyStatus(job, JobStatusType.FAILED, "Successfully killed remote job process.");
+                            result.addSuccess(job);
+                        } else {
+                            String message = "Failed to kill job " + job.getUuid()
+                                    + " identified by id " + job.getLocalJobId() + " on " + job.getSystem()
+                                    + " Response from " + job.getSystem() + ": " + notFoundResponse;
+                            JobManager.applyStatus(job, JobStatusType.FAILED, message);
+                            result.addFailure(job.getUuid(), message);
+                        }
+                        stoppedJobs.put(job.getUuid(), job);
+                    }
+                } catch (Exception e) {
+                    log.debug("Batch kill of " + batch.size() + " jobs on " + systemId
+                            + " failed. Killing each job individually. " + e.getMessage());
+                    for (Job job: batch) {
+                        killIndividually(job, result, stoppedJobs);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Kills and saves a single job with {@link JobManager#kill(Job)}.
+     *
+     * @param job the job to kill
+     * @param result the outcome for each job
+     * @param stoppedJobs map to which the current copy of the job is added if killed
+     */
+    protected void killIndividually(Job job, BulkJobActionResult result, Map<String, Job> stoppedJobs) {
+        try {
+            Job killedJob = JobManager.kill(job);
+            stoppedJobs.put(killedJob.getUuid(), killedJob);
+            result.addSuccess(killedJob);
+        } catch (JobTerminationException e) {
+            result.addFailure(job.getUuid(), e.getMessage());
+        } catch (Exception e) {
+            log.error("Job termination failed for job " + job.getUuid(), e);
+            result.addFailure(job.getUuid(), "Failed to kill remote job. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the modified jobs in batches. If a batch fails to save, each job in it is
+     * reported as failed so the request can be retried. The job quota counters are
+     * adjusted in the same transaction for each job whose status moved into or out of
+     * an active status since it was tracked.
+     *
+     * @param updates the jobs modified in memory
+     * @param result the outcome for each job
+     */
+    protected void save(JobUpdates updates, BulkJobActionResult result) {
+        List<Job> jobs = updates.getJobs();
+        for (int i = 0; i < jobs.size(); i += batchSize) {
+            List<Job> batch = jobs.subList(i, Math.min(i + batchSize, jobs.size()));
+            try {
+                JobDao.persistAll(batch, updates.getPreviousStatuses());
+            } catch (Exception e) {
+                log.error("Failed to save " + batch.size() + " jobs updated by bulk " + result.getAction() + " action.", e);
+                for (Job job: batch) {
+                    result.addFailure(job.getUuid(), "Failed to save job " + job.getUuid()
+                            + ". Please retry the request.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels the transfers of the saved, stopped jobs.
+     *
+     * @param cancelledJobs jobs stopped before they were queued
+     * @param result the outcome for each job
+     */
+    protected void cancelActiveTransfers(List<Job> cancelledJobs, BulkJobActionResult result) {
+        for (Job job: cancelledJobs) {
+            if (!result.isFailed(job.getUuid())) {
+                JobManager.cancelActiveTransfers(job);
+            }
+        }
+    }
+
+    /**
+     * Jobs modified in memory along with their status when they were loaded.
+     */
+    protected static class JobUpdates {
+        private final Map<String, Job> jobs = new LinkedHashMap<String, Job>();
+        private final Map<String, JobStatusType> previousStatuses = new HashMap<String, JobStatusType>();
+
+        /**
+         * Records the job as modified. Must be called before the job is changed.
+         *
+         * @param job the job about to be modified
+         */
+        void track(Job job) {
+            if (!previousStatuses.containsKey(job.getUuid())) {
+                previousStatuses.put(job.getUuid(), job.getStatus());
+            }
+            jobs.put(job.getUuid(), job);
+        }
+
+        List<Job> getJobs() {
+            return new ArrayList<Job>(jobs.values());
+        }
+
+        Map<String, JobStatusType> getPreviousStatuses() {
+            return previousStatuses;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.iplantc.service.jobs.managers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.apps.exceptions.SoftwareException;
+import org.iplantc.service.apps.model.SoftwareParameter;
+import org.iplantc.service.common.uuid.AgaveUUID;
+import org.iplantc.service.common.uuid.UUIDType;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.exceptions.JobProcessingException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.JobArchivePathMacroType;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.notification.exceptions.NotificationException;
+import org.joda.time.DateTime;
+
+import java.util.*;
+
+/**
+ * Handles processing and validation of job array requests. A job array request is a regular job
+ * request with an additional {@code sweep} object mapping app parameter ids to the list of values
+ * each should take. One child job is created for every combination of sweep values. The shared
+ * parts of the request are validated once, and only the parameters are validated per child.
+ * <p>
+ * The child jobs share a common {@link Job#getArrayUuid()} so they can be submitted to the
+ * scheduler as a single native job array when the scheduler supports it.
+ *
+ * @see JobRequestProcessor
+ * @see org.iplantc.service.jobs.managers.launchers.HPCArrayLauncher
+ */
+public class JobArrayRequestProcessor extends JobRequestProcessor {
+
+	private static final Logger log = Logger.getLogger(JobArrayRequestProcessor.class);
+
+	public static final String SWEEP_FIELD = "sweep";
+
+	public JobArrayRequestProcessor() {
+		super();
+	}
+
+	public JobArrayRequestProcessor(String jobRequestOwner, String internalUsername) {
+		super(jobRequestOwner, internalUsername);
+	}
+
+	/**
+	 * Takes a JsonNode representing a job array request and expands it into the child jobs of
+	 * the array. The child jobs are saved in {@link JobStatusType#PENDING} state, so they are
+	 * available to the job queue when this method returns.
+	 *
+	 * @param json a JsonNode containing the job array request
+	 * @return the child jobs of the array ordered by {@link Job#getArrayIndex()}
+	 * @throws JobProcessingException if the job array request cannot be validated
+	 */
+	public List<Job> processJobArray(JsonNode json)
+	throws JobProcessingException
+	{
+		try
+		{
+			List<Map<String, Object>> sweep = getSweepCombinations(json);
+
+			ObjectNode template = json.deepCopy();
+			template.remove(SWEEP_FIELD);
+
+			HashMap<String, Object> jobRequestMap = getJobRequestMap(template);
+
+			List<Job> jobs = createJobs(jobRequestMap, sweep);
+
+			// every child gets the same notifications, so a bad one is rejected before any child is saved
+			try {
+				validateNotifications(template, jobs.get(0));
+			} catch (NotificationException e) {
+				throw new JobProcessingException(400, e);
+			}
+
+			saveJobs(jobs);
+
+			for (Job job: jobs) {
+				processNotifications(template, job);
+			}
+
+			return jobs;
+		}
+		catch (NotificationException e) {
+			throw new JobProcessingException(500, e);
+		}
+		catch (JobProcessingException e) {
+			throw e;
+		}
+		catch (SoftwareException e) {
+			throw new JobProcessingException(400, e);
+		}
+		catch (Throwable e) {
+			throw new JobProcessingException(400,
+					"Job array processing failed with exception type " +
+					e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Expands the {@code sweep} object of the job array request into the list of parameter
+	 * values for each child job. The combinations are ordered with the first sweep parameter
+	 * varying slowest.
+	 *
+	 * @param json a JsonNode containing the job array request
+	 * @return one map of parameter id to job request value for each child job
+	 * @throws JobProcessingException if the sweep is missing, empty, or too large
+	 */
+	protected List<Map<String, Object>> getSweepCombinations(JsonNode json)
+	throws JobProcessingException
+	{
+		JsonNode sweep = json.get(SWEEP_FIELD);
+		if (sweep == null || !sweep.isObject() || sweep.size() == 0) {
+			throw new JobProcessingException(400, "Job array requests must include a " + SWEEP_FIELD +
+					" object mapping one or more parameter ids to the list of values to run.");
+		}
+
+		long total = 1;
+		Iterator<String> fields = sweep.fieldNames();
+		while (fields.hasNext()) {
+			String key = fields.next();
+			JsonNode values = sweep.get(key);
+			if (!values.isArray() || values.size() == 0) {
+				throw new JobProcessingException(400, "Invalid " + SWEEP_FIELD + " value for " + key +
+						". Sweep values must be a non-empty array.");
+			}
+			total *= values.size();
+			if (total > Settings.JOB_ARRAY_MAX_SIZE) {
+				throw new JobProcessingException(400, "Job array requests may not expand to more than " +
+						Settings.JOB_ARRAY_MAX_SIZE + " jobs.");
+			}
+		}
+
+		List<Map<String, Object>> combinations = new ArrayList<Map<String, Object>>();
+		combinations.add(new LinkedHashMap<String, Object>());
+
+		fields = sweep.fieldNames();
+		while (fields.hasNext()) {
+			String key = fields.next();
+			List<Map<String, Object>> expanded = new ArrayList<Map<String, Object>>();
+			for (Map<String, Object> combination: combinations) {
+				for (JsonNode value: sweep.get(key)) {
+					Map<String, Object> next = new LinkedHashMap<String, Object>(combination);
+					next.put(key, getJobRequestValue(value));
+					expanded.add(next);
+				}
+			}
+			combinations = expanded;
+		}
+
+		return combinations;
+	}
+
+	/**
+	 * Creates the child jobs of the array. The first child is validated in full. The remaining
+	 * children reuse its resolved queue, system, inputs, and archive settings, and only have
+	 * their parameters validated.
+	 *
+	 * @param jobRequestMap the job request form shared by all children
+	 * @param sweep the parameter values of each child
+	 * @return the unsaved child jobs
+	 * @throws JobProcessingException if any child fails validation
+	 */
+	protected List<Job> createJobs(Map<String, Object> jobRequestMap, List<Map<String, Object>> sweep)
+	throws JobProcessingException
+	{
+		String arrayUuid = new AgaveUUID(UUIDType.JOB).toString();
+
+		Map<String, Object> firstRequestMap = new HashMap<String, Object>(jobRequestMap);
+		firstRequestMap.putAll(sweep.get(0));
+		Job template = createJob(firstRequestMap);
+
+		assertSweepKeysAreParameters(sweep.get(0).keySet());
+
+		// a user supplied archive path has macros resolved per child so they do not overwrite each other
+		String requestedArchivePath = (String)jobRequestMap.get("archivePath");
+		boolean customArchivePath = template.isArchiveOutput() && StringUtils.isNotEmpty(requestedArchivePath);
+
+		List<Job> jobs = new ArrayList<Job>();
+		try
+		{
+			template.setArrayUuid(arrayUuid);
+			template.setArrayIndex(0);
+			jobs.add(template);
+
+			for (int i = 1; i < sweep.size(); i++)
+			{
+				Map<String, Object> childRequestMap = new HashMap<String, Object>(jobRequestMap);
+				childRequestMap.putAll(sweep.get(i));
+
+				JobRequestParameterProcessor childParameterProcessor = new JobRequestParameterProcessor(getSoftware());
+				childParameterProcessor.process(childRequestMap);
+
+				Job job = new Job();
+				job.setName(template.getName());
+				job.setOwner(template.getOwner());
+				job.setSoftwareName(template.getSoftwareName());
+				job.setInternalUsername(template.getInternalUsername());
+				job.setSystem(template.getSystem());
+				job.setSchedulerType(template.getSchedulerType());
+				job.setExecutionType(template.getExecutionType());
+				job.setBatchQueue(template.getBatchQueue());
+				job.setNodeCount(template.getNodeCount());
+				job.setProcessorsPerNode(template.getProcessorsPerNode());
+				job.setMemoryPerNode(template.getMemoryPerNode());
+				job.setMaxRunTime(template.getMaxRunTime());
+				job.setInputsAsJsonObject(template.getInputsAsJsonObject());
+				job.setParametersAsJsonObject(childParameterProcessor.getJobParameters());
+				job.setSubmitTime(template.getSubmitTime());
+				job.setArchiveOutput(template.isArchiveOutput());
+				job.setArchiveSystem(template.getArchiveSystem());
+				job.setArrayUuid(arrayUuid);
+				job.setArrayIndex(i);
+
+				processCallbackUrlRequest(jobRequestMap, job);
+
+				if (customArchivePath) {
+					String archivePath = JobArchivePathMacroType.resolveMacrosInPath(job, requestedArchivePath);
+					if (!StringUtils.equals(archivePath, template.getArchivePath())) {
+						createArchivePath(template.getArchiveSystem(), archivePath);
+					}
+					job.setArchivePath(archivePath);
+				} else {
+					job.setArchivePath(getUsername() + "/archive/jobs/job-" + job.getUuid());
+				}
+
+				jobs.add(job);
+			}
+		}
+		catch (JobProcessingException e) {
+			throw e;
+		}
+		catch (JobException e) {
+			throw new JobProcessingException(500, e.getMessage(), e);
+		}
+
+		return jobs;
+	}
+
+	/**
+	 * Ensures every sweep key names a parameter of the app. Inputs and job attributes cannot be swept.
+	 *
+	 * @param sweepKeys the parameter ids in the sweep
+	 * @throws JobProcessingException if a sweep key is not a parameter of the app
+	 */
+	protected void assertSweepKeysAreParameters(Set<String> sweepKeys) throws JobProcessingException
+	{
+		Set<String> parameterKeys = new HashSet<String>();
+		for (SoftwareParameter softwareParameter: getSoftware().getParameters()) {
+			parameterKeys.add(softwareParameter.getKey());
+		}
+
+		for (String key: sweepKeys) {
+			if (!parameterKeys.contains(key)) {
+				throw new JobProcessingException(400, "Invalid " + SWEEP_FIELD + " key " + key +
+						". Only parameters of " + getSoftware().getUniqueName() + " may be swept.");
+			}
+		}
+	}
+
+	/**
+	 * Validates the notifications in the job array request against a child job without adding
+	 * them to it. The request is left unchanged.
+	 *
+	 * @param json a JsonNode containing the job array request
+	 * @param job the unsaved child job to validate the notifications against
+	 * @throws NotificationException if a notification is invalid
+	 */
+	protected void validateNotifications(JsonNode json, Job job) throws NotificationException
+	{
+		JsonNode notifications = json.has("notifications") ? json.get("notifications") : json.get("callbackUrl");
+		if (notifications != null) {
+			JsonNode copy = notifications.deepCopy();
+			new JobRequestNotificationProcessor(getUsername(), job).process(copy);
+		}
+	}
+
+	/**
+	 * Saves the child jobs in batches of {@link Settings#JOB_ARRAY_SUBMISSION_BATCH_SIZE}, which
+	 * makes them available to the job queue for submission.
+	 *
+	 * @param jobs the child jobs to save
+	 * @throws JobProcessingException if the jobs cannot be saved
+	 */
+	protected void saveJobs(List<Job> jobs) throws JobProcessingException
+	{
+		try
+		{
+			Date created = new DateTime().toDate();
+			for (Job job: jobs) {
+				job.setCreated(created);
+				job.setStatus(JobStatusType.PENDING, JobStatusType.PENDING.getDescription());
+			}
+
+			int batchSize = Math.max(1, Settings.JOB_ARRAY_SUBMISSION_BATCH_SIZE);
+			for (int i = 0; i < jobs.size(); i += batchSize) {
+				JobDao.persistAll(jobs.subList(i, Math.min(jobs.size(), i + batchSize)),
+						new HashMap<String, JobStatusType>());
+			}
+
+			log.debug("Saved " + jobs.size() + " jobs of job array " + jobs.get(0).getArrayUuid());
+		}
+		catch (Throwable e)
+		{
+			throw new JobProcessingException(500, "Failed to submit the job array request to the job queue.", e);
+		}
+	}
+}
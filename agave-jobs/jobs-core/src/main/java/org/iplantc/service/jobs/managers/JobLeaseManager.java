@@ -0,0 +1,223 @@
+package org.iplantc.service.jobs.managers;
+
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.queue.ZombieJobWatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the processing leases of the jobs being handled by workers in this container alive.
+ * A worker takes a lease on its job before processing it and releases it when done. While
+ * held, all leases of the container are renewed together by a single heartbeat update every
+ * {@link Settings#JOB_LEASE_HEARTBEAT_INTERVAL_SECS} seconds. When a container dies, its
+ * heartbeat stops and the leases expire, which lets {@link ZombieJobWatch} roll the jobs
+ * back as soon as the lease duration has passed. A worker whose lease could not be renewed
+ * because its job was rolled back or taken over is told to stop, so two workers never
+ * process the same job.
+ *
+ * @author dooley
+ */
+public class JobLeaseManager {
+
+    private static final Logger log = Logger.getLogger(JobLeaseManager.class);
+
+    private static volatile JobLeaseManager _instance;
+
+    private final ConcurrentHashMap<Long, Lease> leases = new ConcurrentHashMap<Long, Lease>();
+    private final String leaseOwner;
+    private final int leaseDurationSecs;
+
+    /**
+     * @return the shared lease manager for this container
+     */
+    public static JobLeaseManager getInstance() {
+        if (_instance == null) {
+            synchronized (JobLeaseManager.class) {
+                if (_instance == null) {
+                    _instance = new JobLeaseManager(Settings.JOB_LEASE_DURATION_SECS,
+                            Settings.JOB_LEASE_HEARTBEAT_INTERVAL_SECS);
+                }
+            }
+        }
+        return _instance;
+    }
+
+    /**
+     * @param leaseDurationSecs seconds a lease stays valid after it is taken or renewed
+     * @param heartbeatIntervalSecs seconds between lease renewals, or 0 to only renew when {@link #heartbeat()} is called
+     */
+    protected JobLeaseManager(int leaseDurationSecs, int heartbeatIntervalSecs) {
+        this.leaseDurationSecs = leaseDurationSecs;
+        this.leaseOwner = Settings.HOSTNAME + "-" + UUID.randomUUID().toString();
+
+        if (heartbeatIntervalSecs > 0) {
+            ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "job-lease-heartbeat");
+                t.setDaemon(true);
+                return t;
+            });
+            heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat,
+                    heartbeatIntervalSecs, heartbeatIntervalSecs, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Takes the processing lease on the job for this container. Failure to take the lease is
+     * logged and otherwise ignored so it never blocks the worker. The job is then handled
+     * by the slower fallback zombie check.
+     *
+     * @param job the job about to be processed
+     * @param onLeaseLost called from the heartbeat thread if the lease is lost before it is released
+     */
+    public void acquire(Job job, Runnable onLeaseLost) {
+        try {
+            acquireLease(job.getId());
+            leases.put(job.getId(), new Lease(job.getUuid(), onLeaseLost));
+        } catch (JobException e) {
+            log.error("Failed to acquire lease on job " + job.getUuid(), e);
+        }
+    }
+
+    /**
+     * Starts renewing a lease which was already written to the job by this container as part
+     * of another update, such as when claiming jobs with {@link JobDao#claimStagedArrayJobs(String, int, String, int)}.
+     *
+     * @param job the leased job
+     * @param onLeaseLost called from the heartbeat thread if the lease is lost before it is released
+     */
+    public void track(Job job, Runnable onLeaseLost) {
+        leases.put(job.getId(), new Lease(job.getUuid(), onLeaseLost));
+    }
+
+    /**
+     * Stops renewing the lease on the job and clears it.
+     *
+     * @param job the job whose processing has completed
+     */
+    public void release(Job job) {
+        if (leases.remove(job.getId()) == null) return;
+
+        try {
+            releaseLease(job.getId());
+        } catch (JobException e) {
+            log.error("Failed to release lease on job " + job.getUuid(), e);
+        }
+    }
+
+    /**
+     * Renews every lease currently held by this container with a single update. Leases which
+     * could not be renewed are dropped and the workers holding them are told to stop.
+     */
+    public void heartbeat() {
+        Map<Long, Lease> heldLeases = new HashMap<Long, Lease>(leases);
+        if (heldLeases.isEmpty()) return;
+
+        List<Long> renewedIds;
+        try {
+            renewedIds = renewLeases(new ArrayList<Long>(heldLeases.keySet()));
+        } catch (Throwable e) {
+            log.error("Failed to renew " + heldLeases.size() + " job leases held by " + leaseOwner, e);
+            return;
+        }
+
+        heldLeases.keySet().removeAll(renewedIds);
+        for (Map.Entry<Long, Lease> entry: heldLeases.entrySet()) {
+            Lease lease = entry.getValue();
+            // leases released or taken again while the heartbeat ran are left alone
+            if (!leases.remove(entry.getKey(), lease)) continue;
+
+            log.error("Lease on job " + lease.jobUuid + " held by " + leaseOwner +
+                    " was lost. The worker processing it will be stopped.");
+            if (lease.onLeaseLost != null) {
+                try {
+                    lease.onLeaseLost.run();
+                } catch (Throwable e) {
+                    log.error("Failed to stop the worker processing job " + lease.jobUuid +
+                            " after its lease was lost.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the lease on the job to the db.
+     *
+     * @param jobId the db id of the job to lease
+     * @throws JobException if the lease cannot be written
+     */
+    protected void acquireLease(long jobId) throws JobException {
+        JobDao.acquireLease(jobId, leaseOwner, leaseDurationSecs);
+    }
+
+    /**
+     * Renews the leases on the jobs in the db.
+     *
+     * @param jobIds the db ids of the leased jobs
+     * @return the ids of the jobs whose leases are still held by this container
+     * @throws JobException if the leases cannot be renewed
+     */
+    protected List<Long> renewLeases(List<Long> jobIds) throws JobException {
+        try {
+            return JobDao.renewLeases(jobIds, leaseOwner, leaseDurationSecs);
+        } finally {
+            try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+        }
+    }
+
+    /**
+     * Clears the lease on the job in the db.
+     *
+     * @param jobId the db id of the leased job
+     * @throws JobException if the lease cannot be cleared
+     */
+    protected void releaseLease(long jobId) throws JobException {
+        JobDao.releaseLease(jobId, leaseOwner);
+    }
+
+    /**
+     * @return the number of leases currently held by this container
+     */
+    public int size() {
+        return leases.size();
+    }
+
+    /**
+     * @return seconds a lease stays valid after it is taken or renewed
+     */
+    public int getLeaseDurationSecs() {
+        return leaseDurationSecs;
+    }
+
+    /**
+     * @return the unique id this container writes as the owner of its leases
+     */
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    /**
+     * A lease held by this container and the callback used to stop its worker if it is lost.
+     */
+    private static class Lease {
+        private final String jobUuid;
+        private final Runnable onLeaseLost;
+
+        Lease(String jobUuid, Runnable onLeaseLost) {
+            this.jobUuid = jobUuid;
+            this.onLeaseLost = onLeaseLost;
+        }
+    }
+}
@@ -7,13 +7,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.StaleStateException;
 import org.hibernate.UnresolvableObjectException;
-import org.iplantc.service.apps.dao.SoftwareDao;
+import org.iplantc.service.apps.dao.SoftwareSnapshotCache;
 import org.iplantc.service.apps.exceptions.SoftwareException;
 import org.iplantc.service.apps.exceptions.UnknownSoftwareException;
 import org.iplantc.service.apps.model.Software;
@@ -24,6 +23,8 @@ import org.iplantc.service.common.util.TimeUtils;
 import org.iplantc.service.jobs.Settings;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.*;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest;
+import org.iplantc.service.jobs.managers.archivers.JobArchiver;
 import org.iplantc.service.jobs.managers.killers.JobKiller;
 import org.iplantc.service.jobs.managers.killers.JobKillerFactory;
 import org.iplantc.service.jobs.model.Job;
@@ -36,6 +37,7 @@ import org.iplantc.service.jobs.queue.factory.AbstractJobProducerFactory;
 import org.iplantc.service.jobs.util.Slug;
 import org.iplantc.service.remote.exceptions.RemoteExecutionException;
 import org.iplantc.service.systems.dao.SystemDao;
+import org.iplantc.service.systems.dao.SystemSnapshotCache;
 import org.iplantc.service.systems.exceptions.RemoteCredentialException;
 import org.iplantc.service.systems.exceptions.SystemUnavailableException;
 import org.iplantc.service.systems.exceptions.SystemUnknownException;
@@ -44,11 +46,8 @@ import org.iplantc.service.systems.model.ExecutionSystem;
 import org.iplantc.service.systems.model.RemoteSystem;
 import org.iplantc.service.systems.model.enumerations.SystemStatusType;
 import org.iplantc.service.transfer.RemoteDataClient;
-import org.iplantc.service.transfer.RemoteFileInfo;
-import org.iplantc.service.transfer.URLCopy;
 import org.iplantc.service.transfer.dao.TransferTaskDao;
 import org.iplantc.service.transfer.exceptions.RemoteDataException;
-import org.iplantc.service.transfer.exceptions.TransferException;
 import org.iplantc.service.transfer.model.TransferTask;
 import org.iplantc.service.transfer.model.enumerations.TransferStatusType;
 import org.joda.time.DateTime;
@@ -57,8 +56,9 @@ import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.impl.StdSchedulerFactory;
 
-import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
 import java.time.Instant;
 import java.util.*;
 
@@ -76,7 +76,7 @@ public class JobManager {
      * @throws SystemUnavailableException if the system is no longer available
      */
     public ExecutionSystem getJobExecutionSystem(Job job) throws SystemUnavailableException {
-        RemoteSystem jobExecutionSystem = new SystemDao().findBySystemId(job.getSystem());
+        RemoteSystem jobExecutionSystem = SystemSnapshotCache.getSystem(job.getSystem());
         if (jobExecutionSystem == null) {
             throw new SystemUnavailableException("Job execution system " + job.getSystem() +
                     " is not currently available");
@@ -114,7 +114,7 @@ public class JobManager {
      */
     public Software getJobSoftware(String softwareName) throws UnknownSoftwareException, SoftwareUnavailableException {
         try {
-            Software software = SoftwareDao.getSoftwareByUniqueName(softwareName);
+            Software software = SoftwareSnapshotCache.getSoftware(softwareName);
             if (software == null) {
                 throw new UnknownSoftwareException("No app found matching id " + softwareName);
             } else if (!software.isAvailable()) {
@@ -264,22 +264,7 @@ public class JobManager {
 //			JobDao.refresh(job);
             job = JobManager.updateStatus(job, JobStatusType.STOPPED, "Job cancelled by user.");
 
-            for (JobEvent event : job.getEvents()) {
-                if (event.getTransferTask() != null) {
-                    if (event.getTransferTask().getStatus() == TransferStatusType.PAUSED ||
-                            event.getTransferTask().getStatus() == TransferStatusType.QUEUED ||
-                            event.getTransferTask().getStatus() == TransferStatusType.RETRYING ||
-                            event.getTransferTask().getStatus() == TransferStatusType.TRANSFERRING) {
-                        try {
-                            TransferTaskDao.cancelAllRelatedTransfers(event.getTransferTask().getId());
-                        } catch (Exception e) {
-                            log.error("Failed to cancel transfer task " +
-                                    event.getTransferTask().getUuid() + " while stopping job " +
-                                    job.getUuid(), e);
-                        }
-                    }
-                }
-            }
+            cancelActiveTransfers(job);
 
             return job;
         } else if (!job.isRunning()) {
@@ -370,24 +355,34 @@ public class JobManager {
 //			job.setEndTime(job.getLastUpdated());
 //			JobDao.persist(job);
 
-            for (JobEvent event : job.getEvents()) {
-                if (event.getTransferTask() != null) {
-                    if (event.getTransferTask().getStatus() == TransferStatusType.PAUSED ||
-                            event.getTransferTask().getStatus() == TransferStatusType.QUEUED ||
-                            event.getTransferTask().getStatus() == TransferStatusType.RETRYING ||
-                            event.getTransferTask().getStatus() == TransferStatusType.TRANSFERRING) {
-                        try {
-                            TransferTaskDao.cancelAllRelatedTransfers(event.getTransferTask().getId());
-                        } catch (Exception e) {
-                            log.error("Failed to cancel transfer task " +
-                                    event.getTransferTask().getUuid() + " while stopping job " +
-                                    job.getUuid(), e);
-                        }
+            cancelActiveTransfers(job);
+
+            return job;
+        }
+    }
+
+    /**
+     * Cancels the transfers still in progress for the data staging and archiving events
+     * of a stopped job. Failures are logged and ignored.
+     *
+     * @param job the stopped job
+     */
+    static void cancelActiveTransfers(Job job) {
+        for (JobEvent event : job.getEvents()) {
+            if (event.getTransferTask() != null) {
+                if (event.getTransferTask().getStatus() == TransferStatusType.PAUSED ||
+                        event.getTransferTask().getStatus() == TransferStatusType.QUEUED ||
+                        event.getTransferTask().getStatus() == TransferStatusType.RETRYING ||
+                        event.getTransferTask().getStatus() == TransferStatusType.TRANSFERRING) {
+                    try {
+                        TransferTaskDao.cancelAllRelatedTransfers(event.getTransferTask().getId());
+                    } catch (Exception e) {
+                        log.error("Failed to cancel transfer task " +
+                                event.getTransferTask().getUuid() + " while stopping job " +
+                                job.getUuid(), e);
                     }
                 }
             }
-
-            return job;
         }
     }
 
@@ -515,6 +510,28 @@ public class JobManager {
      */
     public static Job updateStatus(Job job, JobStatusType status, String eventMessage) throws JobException {
 
+        JobStatusType previousStatus = job.getStatus();
+
+        applyStatus(job, status, eventMessage);
+
+        JobDao.persist(job, false, previousStatus);
+
+        return job;
+    }
+
+    /**
+     * Updates the status of a job, its timestamps, and adds a new JobEvent to the
+     * job's history with the given status and message without saving the job. Callers
+     * are responsible for persisting the job.
+     *
+     * @param job the job to update
+     * @param status the status to assign to the job
+     * @param eventMessage the message to use in the resulting {@link JobEvent}
+     * @throws JobException if the event could not be added
+     * @see #updateStatus(Job, JobStatusType, String)
+     */
+    public static void applyStatus(Job job, JobStatusType status, String eventMessage) throws JobException {
+
         job.setStatus(status, eventMessage);
 
         Date date = new DateTime().toDate();
@@ -537,10 +554,6 @@ public class JobManager {
         } else if (status.equals(JobStatusType.STAGED)) {
             // nothing to do here?
         }
-
-        JobDao.persist(job, false);
-
-        return job;
     }
 
     /**
@@ -558,7 +571,7 @@ public class JobManager {
         // flag to ignore deleting of archiving folder in the event of a race condition
         boolean skipCleanup = false;
 
-        ExecutionSystem executionSystem = (ExecutionSystem) new SystemDao().findBySystemId(job.getSystem());
+        ExecutionSystem executionSystem = (ExecutionSystem) SystemSnapshotCache.getSystem(job.getSystem());
 
         if (executionSystem == null || !executionSystem.isAvailable() || !executionSystem.getStatus().equals(SystemStatusType.UP)) {
             throw new SystemUnavailableException("Job execution system " + job.getSystem() + " is not available.");
@@ -576,7 +589,6 @@ public class JobManager {
         // this point we are guaranteed that the worker running this bit of code has
         // access to the job output folder. The RemoteDataClient abstraction will handle
         // the rest.
-        File archiveFile = null;
         try {
             try {
                 executionDataClient = executionSystem.getRemoteDataClient(job.getInternalUsername());
@@ -586,46 +598,29 @@ public class JobManager {
                         + executionSystem.getSystemId());
             }
 
-            // copy remote archive file to temp space
-            String remoteArchiveFile = job.getWorkPath() + File.separator + ".agave.archive";
-
-            String localArchiveFile = FileUtils.getTempDirectoryPath() + File.separator +
-                    "job-" + job.getUuid() + "-" + System.currentTimeMillis();
-
-            // pull remote .archive file and parse it for a list of paths relative
-            // to the job.workDir to exclude from archiving. Generally this will be
-            // the application binaries, but the app itself may have added or removed
-            // things from this file, so we need to process it anyway.
-            List<String> jobFileList = new ArrayList<String>();
+            // list the job work directory and read the .agave.archive file in a single pass.
+            // The archive file holds a list of paths relative to the job.workDir to exclude
+            // from archiving. Generally this will be the application binaries, but the app
+            // itself may have added or removed things from this file, so we need to process
+            // it anyway.
+            JobArchiveManifest manifest = null;
             try {
-                if (executionDataClient.doesExist(remoteArchiveFile)) {
-                    executionDataClient.get(remoteArchiveFile, localArchiveFile);
-
-                    // read it in to find the original job files
-                    archiveFile = new File(localArchiveFile);
-                    if (archiveFile.exists()) {
-                        if (archiveFile.isFile()) {
-                            jobFileList.addAll(FileUtils.readLines(archiveFile));
-                        } else {
-                            archiveFile = new File(localArchiveFile, ".agave.archive");
-                            if (archiveFile.exists() && archiveFile.isFile()) {
-                                jobFileList.addAll(FileUtils.readLines(archiveFile));
-                            }
-                        }
-                    }
-                } else {
-                    log.debug("No archive file found for job " + job.getUuid() + " on system " +
-                            executionSystem.getSystemId() + " at " + remoteArchiveFile +
-                            ". Entire job directory will be archived.");
-                    JobManager.updateStatus(job, JobStatusType.ARCHIVING,
-                            "No archive file found. Entire job directory will be archived.");
-                }
-            } catch (Exception e) {
+                manifest = JobArchiver.buildManifest(job, executionSystem, executionDataClient);
+            } catch (FileNotFoundException e) {
+                throw new JobException("Failed to retrieve directory listing of "
+                        + job.getWorkPath() + " from " + executionSystem.getSystemId(), e);
+            }
+
+            if (manifest.isExclusionFileUnreadable()) {
                 log.debug("Unable to parse archive file for job " + job.getUuid() + " on system " +
-                        executionSystem.getSystemId() + " at " + remoteArchiveFile +
-                        ". Entire job directory will be archived.");
+                        executionSystem.getSystemId() + ". Entire job directory will be archived.");
                 JobManager.updateStatus(job, JobStatusType.ARCHIVING,
                         "Unable to parse job archive file. Entire job directory will be archived.");
+            } else if (!manifest.isExclusionFileFound()) {
+                log.debug("No archive file found for job " + job.getUuid() + " on system " +
+                        executionSystem.getSystemId() + ". Entire job directory will be archived.");
+                JobManager.updateStatus(job, JobStatusType.ARCHIVING,
+                        "No archive file found. Entire job directory will be archived.");
             }
 
             remoteArchiveSystem = job.getArchiveSystem();
@@ -657,20 +652,10 @@ public class JobManager {
                         + job.getArchivePath() + " on " + remoteArchiveSystem.getSystemId(), e);
             }
 
-            // read in remote job work directory listing
-            List<RemoteFileInfo> outputFiles = null;
-            try {
-                outputFiles = executionDataClient.ls(job.getWorkPath());
-            } catch (Exception e) {
-                throw new JobException("Failed to retrieve directory listing of "
-                        + job.getWorkPath() + " from " + executionSystem.getSystemId(), e);
-            }
-
-            // iterate over the work folder and archive everything that wasn't
-            // listed in the archive file. We use URL copy here to abstract the
-            // third party transfer we would like to do. If possible, URLCopy will
-            // do a 3rd party transfer. When not possible, such as when we're going
-            // cross-protocol, it will proxy the transfer.
+            // archive everything in the manifest that wasn't listed in the archive
+            // file. Files are copied concurrently with URLCopy, which will do a 3rd
+            // party transfer if possible and proxy the transfer when not, such as
+            // when we're going cross-protocol.
             TransferTask rootTask = new TransferTask(
                     "agave://" + job.getSystem() + "/" + job.getWorkPath(),
                     "agave://" + job.getArchiveSystem().getSystemId() + "/" + job.getArchivePath(),
@@ -687,39 +672,20 @@ public class JobManager {
 
             JobDao.persist(job);
 
-            for (RemoteFileInfo outputFile : outputFiles) {
-                JobDao.refresh(job);
-
-                if (job.getStatus() != JobStatusType.ARCHIVING) break;
-
-                if (StringUtils.equals(outputFile.getName(), ".") || StringUtils.equals(outputFile.getName(), ".."))
-                    continue;
-
-                String workFileName = job.getWorkPath() + File.separator + outputFile.getName();
-                String archiveFileName = job.getArchivePath() + File.separator + outputFile.getName();
-                if (!jobFileList.contains(outputFile.getName())) {
-                    final URLCopy urlCopy = new URLCopy(executionDataClient, archiveDataClient);
-                    TransferTask childTransferTask = new TransferTask(
-                            "agave://" + job.getSystem() + "/" + workFileName,
-                            "agave://" + job.getArchiveSystem().getSystemId() + "/" + archiveFileName,
-                            job.getOwner(),
-                            rootTask,
-                            rootTask);
-                    try {
-                        TransferTaskDao.persist(childTransferTask);
-                        urlCopy.copy(workFileName, archiveFileName, childTransferTask);
-                        rootTask.updateSummaryStats(childTransferTask);
-                        TransferTaskDao.persist(rootTask);
-                    } catch (TransferException e) {
-                        throw new JobException("Failed to archive file " + workFileName +
-                                " to " + childTransferTask.getDest() +
-                                " due to an error persisting the transfer record.", e);
-                    } catch (Exception e) {
-                        throw new JobException("Failed to archive file " + workFileName +
-                                " to " + childTransferTask.getDest() +
-                                " due to an error during transfer ", e);
-                    }
-                }
+            JobArchiver archiver = new JobArchiver(job, executionSystem, remoteArchiveSystem,
+                    executionDataClient, archiveDataClient, () -> {
+                        try {
+                            JobDao.refresh(job);
+                        } catch (JobException e) {
+                            log.error("Failed to refresh job " + job.getUuid() + " while archiving.", e);
+                        }
+                        return job.getStatus() != JobStatusType.ARCHIVING;
+                    });
+            try {
+                archiver.archive(manifest, rootTask);
+            } catch (ClosedByInterruptException e) {
+                // the job left the ARCHIVING status while its output was being archived
+                skipCleanup = true;
             }
 
             try {
@@ -737,11 +703,11 @@ public class JobManager {
 
             // if it all worked as expected, then delete the job work directory
             try {
-//			    if (!skipCleanup) {
-                executionDataClient.delete(job.getWorkPath());
-                JobManager.updateStatus(job, JobStatusType.ARCHIVING_FINISHED,
-                        "Job archiving completed successfully.");
-//    			}
+                if (!skipCleanup) {
+                    executionDataClient.delete(job.getWorkPath());
+                    JobManager.updateStatus(job, JobStatusType.ARCHIVING_FINISHED,
+                            "Job archiving completed successfully.");
+                }
             } catch (Exception e) {
                 log.error("Archiving of job " + job.getUuid() + " completed, "
                         + "but an error occurred deleting the remote work directory "
@@ -758,8 +724,6 @@ public class JobManager {
         } catch (Exception e) {
             throw new JobException("Failed to archive data due to internal failure.", e);
         } finally {
-            // clean up the local archive file
-            FileUtils.deleteQuietly(archiveFile);
             try {
                 if (archiveDataClient.isPermissionMirroringRequired() && StringUtils.isEmpty(job.getInternalUsername())) {
                     archiveDataClient.setOwnerPermission(job.getOwner(), job.getArchivePath(), true);
@@ -937,7 +901,7 @@ public class JobManager {
             Map<String, String[]> map = new HashMap<String, String[]>();
 
             JsonNode jobInputJson = job.getInputsAsJsonObject();
-            Software software = SoftwareDao.getSoftwareByUniqueName(job.getSoftwareName());
+            Software software = SoftwareSnapshotCache.getSoftware(job.getSoftwareName());
             if (software != null) {
                 for (SoftwareInput input : software.getInputs()) {
                     if (jobInputJson.has(input.getKey())) {
@@ -1,6 +1,5 @@
 package org.iplantc.service.jobs.managers;
 
-import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.JobException;
 import org.iplantc.service.jobs.exceptions.QuotaViolationException;
 import org.iplantc.service.jobs.model.Job;
@@ -41,6 +40,7 @@ public class JobQuotaCheck implements QuotaCheck {
 	public void check(Job job, ExecutionSystem executionSystem) throws QuotaViolationException, JobException
 	{
 		BatchQueue jobQueue = getJobQueue(job, executionSystem);
+		JobQuotaCounterManager counters = JobQuotaCounterManager.getInstance();
         
         // todo end hack for queueless condor
 //        if ( jobQueue == null ) {
@@ -54,24 +54,60 @@ public class JobQuotaCheck implements QuotaCheck {
 		// if the job queue is not unbounded, ensure it doesn't violate the system limits
         if (jobQueue.getMaxJobs() != -1) {
 			// verify the system is not at capacity
-			if (executionSystem.getMaxSystemJobs() > 0 && JobDao.countActiveJobsOnSystem(job.getSystem()) >= executionSystem.getMaxSystemJobs()) {
+			if (executionSystem.getMaxSystemJobs() > 0 && counters.countActiveJobsOnSystem(job) >= executionSystem.getMaxSystemJobs()) {
 				throw new QuotaViolationException(job.getSystem() + " is currently at capacity for new jobs.");
 			}
 			// verify the system queue is not at capacity
-			else if (jobQueue.getMaxJobs() > 0 && JobDao.countActiveJobsOnSystemQueue(job.getSystem(), job.getBatchQueue()) >= jobQueue.getMaxJobs()) {
+			else if (jobQueue.getMaxJobs() > 0 && counters.countActiveJobsOnSystemQueue(job) >= jobQueue.getMaxJobs()) {
 				throw new QuotaViolationException("System " + executionSystem.getSystemId() + " is currently at maximum capacity for "
 						+ "concurrent active jobs.");
 			}
 			// verify the user is not at system capacity
-			else if (executionSystem.getMaxSystemJobsPerUser() > 0 && JobDao.countActiveUserJobsOnSystem(job.getOwner(), job.getSystem()) >= executionSystem.getMaxSystemJobsPerUser()) {
+			else if (executionSystem.getMaxSystemJobsPerUser() > 0 && counters.countActiveUserJobsOnSystem(job) >= executionSystem.getMaxSystemJobsPerUser()) {
 				throw new QuotaViolationException("User " + job.getOwner() + " has reached their quota for "
 						+ "concurrent active jobs on " + executionSystem.getSystemId());
 			}
 			// verify the user is not at queue capacity
-			else if (jobQueue.getMaxUserJobs() > 0 && JobDao.countActiveUserJobsOnSystemQueue(job.getOwner(), job.getSystem(), job.getBatchQueue()) >= jobQueue.getMaxUserJobs()) {
+			else if (jobQueue.getMaxUserJobs() > 0 && counters.countActiveUserJobsOnSystemQueue(job) >= jobQueue.getMaxUserJobs()) {
 				throw new QuotaViolationException("User " + job.getOwner() + " has reached their quota for "
 						+ "concurrent active jobs on the " + jobQueue.getName() + " queue of " + executionSystem.getSystemId());
 			}
 		}
 	}
+
+	/**
+	 * Calculates how many more jobs like the given {@code job} can become active on the
+	 * {@code executionSystem} before one of the system, queue, or user quotas is reached.
+	 * This is used when submitting many jobs at once so the batch can be sized to fit
+	 * within the quotas rather than checking them one job at a time.
+	 *
+	 * @param job the job for which to calculate the remaining capacity
+	 * @param executionSystem the job execution system
+	 * @return the number of jobs that can still be made active, or {@link Integer#MAX_VALUE} if unbounded
+	 * @throws JobException if the active job counts cannot be read
+	 */
+	public int getRemainingCapacity(Job job, ExecutionSystem executionSystem) throws JobException
+	{
+		BatchQueue jobQueue = getJobQueue(job, executionSystem);
+		JobQuotaCounterManager counters = JobQuotaCounterManager.getInstance();
+
+		long remaining = Integer.MAX_VALUE;
+
+		if (jobQueue.getMaxJobs() != -1) {
+			if (executionSystem.getMaxSystemJobs() > 0) {
+				remaining = Math.min(remaining, executionSystem.getMaxSystemJobs() - counters.countActiveJobsOnSystem(job));
+			}
+			if (jobQueue.getMaxJobs() > 0) {
+				remaining = Math.min(remaining, jobQueue.getMaxJobs() - counters.countActiveJobsOnSystemQueue(job));
+			}
+			if (executionSystem.getMaxSystemJobsPerUser() > 0) {
+				remaining = Math.min(remaining, executionSystem.getMaxSystemJobsPerUser() - counters.countActiveUserJobsOnSystem(job));
+			}
+			if (jobQueue.getMaxUserJobs() > 0) {
+				remaining = Math.min(remaining, jobQueue.getMaxUserJobs() - counters.countActiveUserJobsOnSystemQueue(job));
+			}
+		}
+
+		return (int)Math.max(0, remaining);
+	}
 }
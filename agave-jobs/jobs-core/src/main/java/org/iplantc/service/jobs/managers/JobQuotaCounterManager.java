@@ -0,0 +1,147 @@
+package org.iplantc.service.jobs.managers;
+
+import org.apache.log4j.Logger;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.dao.JobQuotaCounterDao;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves active job counts for quota checks from the {@code job_quota_counters} table
+ * and periodically reconciles that table against the jobs table. Only one worker
+ * reconciles per interval. Counters are only trusted once a reconcile has completed
+ * recently, so a fresh deployment, or one where the counters were disabled for a while,
+ * never enforces quotas on stale counts.
+ * Until then, and whenever counters are disabled, counts are queried from the jobs table.
+ *
+ * @author dooley
+ * @see JobQuotaCounterDao
+ */
+public class JobQuotaCounterManager {
+
+    private static final Logger log = Logger.getLogger(JobQuotaCounterManager.class);
+
+    private static volatile JobQuotaCounterManager _instance;
+
+    private final int reconcileIntervalSecs;
+    private volatile boolean reconciled = false;
+
+    /**
+     * @return the shared counter manager for this worker
+     */
+    public static JobQuotaCounterManager getInstance() {
+        if (_instance == null) {
+            synchronized (JobQuotaCounterManager.class) {
+                if (_instance == null) {
+                    _instance = new JobQuotaCounterManager(Settings.JOB_QUOTA_COUNTER_RECONCILE_INTERVAL_SECS);
+                }
+            }
+        }
+        return _instance;
+    }
+
+    /**
+     * @param reconcileIntervalSecs seconds between reconciles, or 0 to never reconcile
+     */
+    protected JobQuotaCounterManager(int reconcileIntervalSecs) {
+        this.reconcileIntervalSecs = reconcileIntervalSecs;
+        if (Settings.ENABLE_JOB_QUOTA_COUNTERS && reconcileIntervalSecs > 0) {
+            ScheduledExecutorService reconcileExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "job-quota-counter-reconcile");
+                t.setDaemon(true);
+                return t;
+            });
+            reconcileExecutor.scheduleWithFixedDelay(this::reconcile,
+                    0, reconcileIntervalSecs, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Corrects the counters against the jobs table when no other worker has done so within
+     * the last half interval. Workers which skip the reconcile trust the counters once another
+     * worker has completed one recently. Failures are logged and retried on the next interval.
+     */
+    protected void reconcile() {
+        try {
+            if (JobQuotaCounterDao.claimReconcile(reconcileIntervalSecs / 2)) {
+                int corrected = JobQuotaCounterDao.reconcile();
+                if (reconciled && corrected > 0) {
+                    log.info("Corrected " + corrected + " job quota counters that drifted from the jobs table.");
+                }
+                reconciled = true;
+            } else if (!reconciled) {
+                reconciled = JobQuotaCounterDao.isRecentlyReconciled(reconcileIntervalSecs * 2);
+            }
+        } catch (Throwable e) {
+            log.error("Failed to reconcile job quota counters.", e);
+        }
+    }
+
+    /**
+     * @return true if counts are being served from the counters table
+     */
+    public boolean isEnabled() {
+        return Settings.ENABLE_JOB_QUOTA_COUNTERS && reconciled;
+    }
+
+    /**
+     * @param job the job whose execution system to count
+     * @return the number of active jobs on the job's execution system
+     * @throws JobException if unable to query the db
+     */
+    public long countActiveJobsOnSystem(Job job) throws JobException {
+        if (isEnabled()) {
+            return JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(),
+                    JobQuotaCounterDao.ANY, JobQuotaCounterDao.ANY);
+        } else {
+            return JobDao.countActiveJobsOnSystem(job.getSystem());
+        }
+    }
+
+    /**
+     * @param job the job whose execution system queue to count
+     * @return the number of active jobs on the job's execution system queue
+     * @throws JobException if unable to query the db
+     */
+    public long countActiveJobsOnSystemQueue(Job job) throws JobException {
+        if (isEnabled()) {
+            return JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(),
+                    job.getBatchQueue(), JobQuotaCounterDao.ANY);
+        } else {
+            return JobDao.countActiveJobsOnSystemQueue(job.getSystem(), job.getBatchQueue());
+        }
+    }
+
+    /**
+     * @param job the job whose owner and execution system to count
+     * @return the number of active jobs of the job owner on the job's execution system
+     * @throws JobException if unable to query the db
+     */
+    public long countActiveUserJobsOnSystem(Job job) throws JobException {
+        if (isEnabled()) {
+            return JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(),
+                    JobQuotaCounterDao.ANY, job.getOwner());
+        } else {
+            return JobDao.countActiveUserJobsOnSystem(job.getOwner(), job.getSystem());
+        }
+    }
+
+    /**
+     * @param job the job whose owner and execution system queue to count
+     * @return the number of active jobs of the job owner on the job's execution system queue
+     * @throws JobException if unable to query the db
+     */
+    public long countActiveUserJobsOnSystemQueue(Job job) throws JobException {
+        if (isEnabled()) {
+            return JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(),
+                    job.getBatchQueue(), job.getOwner());
+        } else {
+            return JobDao.countActiveUserJobsOnSystemQueue(job.getOwner(), job.getSystem(), job.getBatchQueue());
+        }
+    }
+}
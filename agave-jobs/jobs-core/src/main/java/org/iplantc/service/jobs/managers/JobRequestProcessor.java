@@ -15,6 +15,7 @@ import org.iplantc.service.io.model.LogicalFile;
 import org.iplantc.service.io.permissions.PermissionManager;
 import org.iplantc.service.jobs.Settings;
 import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobEventProcessingException;
 import org.iplantc.service.jobs.exceptions.JobException;
 import org.iplantc.service.jobs.exceptions.JobProcessingException;
 import org.iplantc.service.jobs.exceptions.NoMatchingBatchQueueException;
@@ -87,93 +88,9 @@ public class JobRequestProcessor {
 	public Job processJob(JsonNode json)
 	throws JobProcessingException
 	{
-	    HashMap<String, Object> jobRequestMap = new HashMap<String, Object>();
-
-		String currentKey = null;
-
 		try
 		{
-		    try {
-				Iterator<String> fields = json.fieldNames();
-				while(fields.hasNext()) {
-		            String key = fields.next();
-
-				    if (StringUtils.isEmpty(key)) continue;
-
-				    currentKey = key;
-
-				    if (key.equals("notifications")) {
-					    continue;
-				    }
-				
-				    if (key.equals("callbackUrl")) {
-					    continue;
-				    }
-
-				    if (key.equals("dependencies"))
-				    {
-				        String msg = "Job dependencies are not yet supported.";
-				        log.error(msg);
-					    throw new JobProcessingException(400, msg);
-				    }
-
-				    JsonNode child = json.get(key);
-
-				    if (child.isNull()) {
-				        jobRequestMap.put(key, null);
-				    }
-				    else if (child.isNumber())
-				    {
-				        jobRequestMap.put(key, child.asText());
-				    }
-				    else if (child.isObject())
-				    {
-					    Iterator<String> childFields = child.fieldNames();
-					    while(childFields.hasNext())
-					    {
-						    String childKey = childFields.next();
-						    JsonNode childchild = child.path(childKey);
-						    if (StringUtils.isEmpty(childKey) || childchild.isNull() || childchild.isMissingNode()) {
-							    continue;
-						    }
-						    else if (childchild.isDouble()) {
-						        jobRequestMap.put(childKey, childchild.decimalValue().toPlainString());
-						    }
-						    else if (childchild.isNumber())
-						    {
-						        jobRequestMap.put(childKey, childchild.longValue());
-						    }
-						    else if (childchild.isArray()) {
-						        List<String> arrayValues = new ArrayList<String>();
-								for (JsonNode argValue : childchild) {
-									if (argValue.isNull() || argValue.isMissingNode()) {
-										continue;
-									} else {
-										arrayValues.add(argValue.asText());
-									}
-								}
-							    jobRequestMap.put(childKey, StringUtils.join(arrayValues, Settings.AGAVE_SERIALIZED_LIST_DELIMITER));
-						    }
-						    else if (childchild.isTextual()) {
-						        jobRequestMap.put(childKey, childchild.textValue());
-						    }
-						    else if (childchild.isBoolean()) {
-						        jobRequestMap.put(childKey, childchild.asBoolean() ? "true" : "false");
-						    }
-					    }
-				    }
-				    else
-				    {
-				        jobRequestMap.put(key, json.get(key).asText());
-				    }
-		        }
-		    }
-		    catch (Exception e) {
-                String msg = "Assignment for json key " + currentKey + " failed: " +
-                             e.getMessage();
-                log.error(msg);
-                throw e;
-		    }
+			HashMap<String, Object> jobRequestMap = getJobRequestMap(json);
 
    			Job job = null;
    			try {
@@ -183,57 +100,8 @@ public class JobRequestProcessor {
 				log.error(msg);
 				throw e;
 			}
-   			
-   			setNotificationProcessor(new JobRequestNotificationProcessor(getUsername(), job));
-   			
-			if (json.has("notifications")) {
-				try {
-					getNotificationProcessor().process(json.get("notifications"));
-				} catch (Exception e) {
-					String input = "";
-					try { input = json.get("notifications").toString(); } catch (Exception ignored) {}
-					String msg = "General notification processing failed with input [" +
-								 input + "]\n" + e.getMessage();
-					log.error(msg);
-					throw e;
-				}
-			}
-			else if (json.has("callbackUrl")) {
-				try {
-					getNotificationProcessor().process(json.get("callbackUrl"));
-				} catch (Exception e) {
-					String input = "";
-					try {input = json.get("callbackUrl").toString();} catch (Exception ignored) {}
-					String msg = "Callback notification processing failed with input [" +
-								 input + "]\n" + e.getMessage();
-					log.error(msg);
-					throw e;
-				}
-			}
-			
-			for (Notification notification: getNotificationProcessor().getNotifications()) {
-				try {
-					job.addNotification(notification);
-				} catch (Exception e) {
-					String msg = "Add notification to job failure: " + e.getMessage();
-					log.error(msg);
-					throw e;
-				}
-			}
 
-			// If the job request had notification configured for job creation
-			// they could not have fired yet. Here we explicitly add them.
-			for (JobEvent jobEvent: job.getEvents()) {
-			    try {
-			        JobEventProcessor eventProcessor = new JobEventProcessor(jobEvent);
-			        eventProcessor.process();
-			    } catch (Exception e) {
-					String msg = "Failure to process job event " + jobEvent.getUuid() +
-								 " for tenant " + jobEvent.getTenantId() + ": " + e.getMessage();
-					log.error(msg);
-					throw e;
-				}
-			}
+			processNotifications(json, job);
 
 			return job;
 		}
@@ -257,6 +125,190 @@ public class JobRequestProcessor {
 		}
 	}
 	
+	/**
+	 * Flattens a json job request into the map of job request fields used to validate the job. Fields of
+	 * nested objects, such as inputs and parameters, are added to the top level of the map.
+	 *
+	 * @param json a JsonNode containing the job request
+	 * @return map of job request field names to values
+	 * @throws Exception if a field cannot be read or is not supported
+	 */
+	protected HashMap<String, Object> getJobRequestMap(JsonNode json)
+	throws Exception
+	{
+	    HashMap<String, Object> jobRequestMap = new HashMap<String, Object>();
+
+		String currentKey = null;
+
+	    try {
+			Iterator<String> fields = json.fieldNames();
+			while(fields.hasNext()) {
+	            String key = fields.next();
+
+			    if (StringUtils.isEmpty(key)) continue;
+
+			    currentKey = key;
+
+			    if (key.equals("notifications")) {
+				    continue;
+			    }
+			
+			    if (key.equals("callbackUrl")) {
+				    continue;
+			    }
+
+			    if (key.equals("dependencies"))
+			    {
+			        String msg = "Job dependencies are not yet supported.";
+			        log.error(msg);
+				    throw new JobProcessingException(400, msg);
+			    }
+
+			    JsonNode child = json.get(key);
+
+			    if (child.isNull()) {
+			        jobRequestMap.put(key, null);
+			    }
+			    else if (child.isNumber())
+			    {
+			        jobRequestMap.put(key, child.asText());
+			    }
+			    else if (child.isObject())
+			    {
+				    Iterator<String> childFields = child.fieldNames();
+				    while(childFields.hasNext())
+				    {
+					    String childKey = childFields.next();
+					    Object childValue = getJobRequestValue(child.path(childKey));
+					    if (StringUtils.isEmpty(childKey) || childValue == null) {
+						    continue;
+					    }
+					    else {
+					        jobRequestMap.put(childKey, childValue);
+					    }
+				    }
+			    }
+			    else
+			    {
+			        jobRequestMap.put(key, json.get(key).asText());
+			    }
+	        }
+	    }
+	    catch (Exception e) {
+                String msg = "Assignment for json key " + currentKey + " failed: " +
+                             e.getMessage();
+                log.error(msg);
+                throw e;
+	    }
+
+		return jobRequestMap;
+	}
+
+	/**
+	 * Converts the value of an input or parameter in a json job request into its job request map value.
+	 * Array values are joined with {@link Settings#AGAVE_SERIALIZED_LIST_DELIMITER}.
+	 *
+	 * @param value the json value of the input or parameter
+	 * @return the job request map value, or null if the value is empty or not supported
+	 */
+	protected Object getJobRequestValue(JsonNode value)
+	{
+	    if (value == null || value.isNull() || value.isMissingNode()) {
+		    return null;
+	    }
+	    else if (value.isDouble()) {
+	        return value.decimalValue().toPlainString();
+	    }
+	    else if (value.isNumber())
+	    {
+	        return value.longValue();
+	    }
+	    else if (value.isArray()) {
+	        List<String> arrayValues = new ArrayList<String>();
+			for (JsonNode argValue : value) {
+				if (argValue.isNull() || argValue.isMissingNode()) {
+					continue;
+				} else {
+					arrayValues.add(argValue.asText());
+				}
+			}
+		    return StringUtils.join(arrayValues, Settings.AGAVE_SERIALIZED_LIST_DELIMITER);
+	    }
+	    else if (value.isTextual()) {
+	        return value.textValue();
+	    }
+	    else if (value.isBoolean()) {
+	        return value.asBoolean() ? "true" : "false";
+	    }
+	    else {
+	        return null;
+	    }
+	}
+
+	/**
+	 * Adds the notifications in the job request to the job and raises the events already recorded
+	 * for the job now that the notifications exist.
+	 *
+	 * @param json a JsonNode containing the job request
+	 * @param job the persisted job
+	 * @throws NotificationException if a notification is invalid
+	 * @throws JobEventProcessingException if the job events cannot be raised
+	 */
+	protected void processNotifications(JsonNode json, Job job)
+	throws NotificationException, JobEventProcessingException
+	{
+		setNotificationProcessor(new JobRequestNotificationProcessor(getUsername(), job));
+
+		if (json.has("notifications")) {
+			try {
+				getNotificationProcessor().process(json.get("notifications"));
+			} catch (Exception e) {
+				String input = "";
+				try { input = json.get("notifications").toString(); } catch (Exception ignored) {}
+				String msg = "General notification processing failed with input [" +
+							 input + "]\n" + e.getMessage();
+				log.error(msg);
+				throw e;
+			}
+		}
+		else if (json.has("callbackUrl")) {
+			try {
+				getNotificationProcessor().process(json.get("callbackUrl"));
+			} catch (Exception e) {
+				String input = "";
+				try {input = json.get("callbackUrl").toString();} catch (Exception ignored) {}
+				String msg = "Callback notification processing failed with input [" +
+							 input + "]\n" + e.getMessage();
+				log.error(msg);
+				throw e;
+			}
+		}
+		
+		for (Notification notification: getNotificationProcessor().getNotifications()) {
+			try {
+				job.addNotification(notification);
+			} catch (Exception e) {
+				String msg = "Add notification to job failure: " + e.getMessage();
+				log.error(msg);
+				throw e;
+			}
+		}
+
+		// If the job request had notification configured for job creation
+		// they could not have fired yet. Here we explicitly add them.
+		for (JobEvent jobEvent: job.getEvents()) {
+		    try {
+		        JobEventProcessor eventProcessor = new JobEventProcessor(jobEvent);
+		        eventProcessor.process();
+		    } catch (Exception e) {
+				String msg = "Failure to process job event " + jobEvent.getUuid() +
+							 " for tenant " + jobEvent.getTenantId() + ": " + e.getMessage();
+				log.error(msg);
+				throw e;
+			}
+		}
+	}
+
 	/**
 	 * Takes a JsonNode representing a job request and parses it into a job object.
 	 *
@@ -280,6 +332,38 @@ public class JobRequestProcessor {
 	 */
 	public Job processJob(Map<String, Object> jobRequestMap)
 	throws JobProcessingException
+	{
+		Job job = createJob(jobRequestMap);
+
+		try
+        {
+            // persisting the job makes it available to the job queue
+            // for submission
+		    DateTime created = new DateTime();
+		    job.setCreated(created.toDate());
+            JobDao.persist(job);
+            job.setCreated(created.toDate());
+            job.setStatus(JobStatusType.PENDING, JobStatusType.PENDING.getDescription());
+            JobDao.persist(job);
+
+            return job;
+        }
+        catch (Throwable e)
+        {
+            throw new JobProcessingException(500, "Failed to submit the request to the job queue.", e);
+        }
+	}
+
+	/**
+	 * Validates a job request and creates the job it describes. The job is not saved, so it
+	 * is not yet visible to the job queue.
+	 *
+	 * @param jobRequestMap a map representing the job request form
+	 * @return validated job instance
+	 * @throws JobProcessingException when validation fails
+	 */
+	protected Job createJob(Map<String, Object> jobRequestMap)
+	throws JobProcessingException
 	{
 	    Job job = new Job();
 
@@ -427,20 +511,11 @@ public class JobRequestProcessor {
         {
 		    job.setArchivePath(archivePath);
 
-            // persisting the job makes it available to the job queue
-            // for submission
-		    DateTime created = new DateTime();
-		    job.setCreated(created.toDate());
-            JobDao.persist(job);
-            job.setCreated(created.toDate());
-            job.setStatus(JobStatusType.PENDING, JobStatusType.PENDING.getDescription());
-            JobDao.persist(job);
-
             return job;
         }
-        catch (Throwable e)
+        catch (JobException e)
         {
-            throw new JobProcessingException(500, "Failed to submit the request to the job queue.", e);
+            throw new JobProcessingException(500, e.getMessage(), e);
         }
 	}
 
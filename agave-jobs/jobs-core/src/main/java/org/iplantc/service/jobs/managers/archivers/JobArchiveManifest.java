@@ -0,0 +1,200 @@
+package org.iplantc.service.jobs.managers.archivers;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.*;
+
+/**
+ * Full recursive listing of a job work directory along with the paths listed in its
+ * {@code .agave.archive} file. All paths are relative to the work directory. An entry
+ * is excluded from archiving when its path, or the path of any of its parent directories,
+ * appears in the archive file.
+ *
+ * @author dooley
+ */
+public class JobArchiveManifest {
+
+    public enum EntryType { FILE, DIRECTORY, LINK }
+
+    /**
+     * A single file item in the job work directory.
+     */
+    public static class Entry {
+        private final String path;
+        private final EntryType type;
+        private final long size;
+
+        public Entry(String path, EntryType type, long size) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+        }
+
+        /**
+         * @return the path of the entry relative to the job work directory
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public EntryType getType() {
+            return type;
+        }
+
+        /**
+         * @return the size of the entry in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isDirectory() {
+            return type == EntryType.DIRECTORY;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final Set<String> exclusions = new HashSet<String>();
+    private boolean exclusionFileFound = false;
+    private boolean exclusionFileUnreadable = false;
+    private boolean remoteListing = false;
+
+    /**
+     * Adds an entry to the manifest.
+     *
+     * @param path the path relative to the job work directory
+     * @param type the type of file item
+     * @param size the size of the file item in bytes
+     */
+    public void addEntry(String path, EntryType type, long size) {
+        String normalizedPath = normalize(path);
+        if (StringUtils.isNotEmpty(normalizedPath)) {
+            entries.add(new Entry(normalizedPath, type, size));
+        }
+    }
+
+    /**
+     * Adds the contents of a {@code .agave.archive} file to the exclusions of this manifest.
+     *
+     * @param lines the lines of the archive file
+     */
+    public void addExclusions(Collection<String> lines) {
+        exclusionFileFound = true;
+        for (String line : lines) {
+            String exclusion = normalize(line);
+            if (StringUtils.isNotEmpty(exclusion)) {
+                exclusions.add(exclusion);
+            }
+        }
+    }
+
+    /**
+     * Strips surrounding whitespace, leading {@code ./} and slashes, and trailing slashes
+     * from a relative path.
+     */
+    protected static String normalize(String path) {
+        String normalizedPath = StringUtils.trimToEmpty(path);
+        while (normalizedPath.startsWith("./")) {
+            normalizedPath = normalizedPath.substring(2);
+        }
+        normalizedPath = StringUtils.strip(normalizedPath, "/");
+        return ".".equals(normalizedPath) ? "" : normalizedPath;
+    }
+
+    /**
+     * @param path the path relative to the job work directory
+     * @return true if the path or any of its parent directories is listed in the archive file
+     */
+    public boolean isExcluded(String path) {
+        String candidate = normalize(path);
+        while (StringUtils.isNotEmpty(candidate)) {
+            if (exclusions.contains(candidate)) return true;
+            int lastSlash = candidate.lastIndexOf('/');
+            candidate = lastSlash == -1 ? "" : candidate.substring(0, lastSlash);
+        }
+        return false;
+    }
+
+    /**
+     * @return all entries in the manifest, excluded or not
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the files and links to archive
+     */
+    public List<Entry> getArchivableFiles() {
+        List<Entry> files = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (!entry.isDirectory() && !isExcluded(entry.getPath())) {
+                files.add(entry);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the archivable directories that contain no other archivable directory.
+     * Creating these recursively recreates the whole directory tree to be archived,
+     * including empty directories.
+     *
+     * @return the deepest archivable directories sorted by path
+     */
+    public List<String> getArchivableLeafDirectories() {
+        Set<String> directories = new TreeSet<String>();
+        for (Entry entry : entries) {
+            if (entry.isDirectory() && !isExcluded(entry.getPath())) {
+                directories.add(entry.getPath());
+            }
+        }
+
+        Set<String> parents = new HashSet<String>();
+        for (String directory : directories) {
+            int lastSlash = directory.lastIndexOf('/');
+            while (lastSlash != -1) {
+                directory = directory.substring(0, lastSlash);
+                parents.add(directory);
+                lastSlash = directory.lastIndexOf('/');
+            }
+        }
+
+        List<String> leaves = new ArrayList<String>();
+        for (String directory : directories) {
+            if (!parents.contains(directory)) {
+                leaves.add(directory);
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * @return true if an archive file was found and read
+     */
+    public boolean isExclusionFileFound() {
+        return exclusionFileFound;
+    }
+
+    /**
+     * @return true if an archive file exists, but could not be read
+     */
+    public boolean isExclusionFileUnreadable() {
+        return exclusionFileUnreadable;
+    }
+
+    public void setExclusionFileUnreadable(boolean exclusionFileUnreadable) {
+        this.exclusionFileUnreadable = exclusionFileUnreadable;
+    }
+
+    /**
+     * @return true if the manifest was built by a remote command on the execution system
+     */
+    public boolean isRemoteListing() {
+        return remoteListing;
+    }
+
+    public void setRemoteListing(boolean remoteListing) {
+        this.remoteListing = remoteListing;
+    }
+}
@@ -0,0 +1,772 @@
+package org.iplantc.service.jobs.managers.archivers;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest.Entry;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest.EntryType;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.util.RemoteDataClientPool;
+import org.iplantc.service.jobs.util.TransferLanes;
+import org.iplantc.service.remote.RemoteSubmissionClient;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.systems.model.RemoteSystem;
+import org.iplantc.service.transfer.RemoteDataClient;
+import org.iplantc.service.transfer.RemoteFileInfo;
+import org.iplantc.service.transfer.URLCopy;
+import org.iplantc.service.transfer.dao.TransferTaskDao;
+import org.iplantc.service.transfer.exceptions.TransferException;
+import org.iplantc.service.transfer.model.TransferTask;
+import org.iplantc.service.transfer.model.enumerations.TransferStatusType;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.iplantc.service.jobs.util.ServiceUtils.quoteRemotePath;
+
+/**
+ * Archives the output of a job from its work directory on the execution system to its
+ * archive path on the archive system. The work directory is listed once, along with the
+ * contents of its {@code .agave.archive} file, by a single remote command. Exclusions are
+ * applied in memory and the remaining files are split into batches copied concurrently,
+ * each tracked by a single child {@link TransferTask}. When the archive system also accepts
+ * remote commands, small files are packed into tar bundles on the execution system, copied
+ * as one file, and unpacked on the archive system. Any bundle that cannot be packed or
+ * unpacked falls back to copying its files one at a time under the bundle's task.
+ *
+ * When the execution system does not accept the listing command, the work directory is
+ * walked with the {@link RemoteDataClient} instead.
+ *
+ * @author dooley
+ */
+public class JobArchiver {
+
+    private static final Logger log = Logger.getLogger(JobArchiver.class);
+
+    protected static final String ARCHIVE_FILE_NAME = ".agave.archive";
+    protected static final String EXCLUSIONS_MARKER = "AGAVE_ARCHIVE_EXCLUSIONS";
+    protected static final String MANIFEST_MARKER = "AGAVE_ARCHIVE_MANIFEST";
+    protected static final String MANIFEST_END_MARKER = "AGAVE_ARCHIVE_MANIFEST_END";
+    protected static final String SUCCESS_TOKEN = "AGAVE_ARCHIVE_OK";
+
+    // how long to wait on a transfer before checking whether archiving was stopped
+    private static final long TRANSFER_POLL_MILLIS = 1000;
+    // how long to wait for running transfers to stop once archiving fails or is stopped
+    private static final int TRANSFER_SHUTDOWN_SECS = 30;
+    // keeps each remote command well under the smallest exec request size ssh servers accept
+    private static final int MAX_REMOTE_COMMAND_LENGTH = 24 * 1024;
+    // individually copied files are split into this many batches per transfer lane so lanes stay busy
+    private static final int BATCHES_PER_TRANSFER_LANE = 4;
+
+    private final Job job;
+    private final ExecutionSystem executionSystem;
+    private final RemoteSystem archiveSystem;
+    private final RemoteDataClient executionDataClient;
+    private final RemoteDataClient archiveDataClient;
+    private final BooleanSupplier stopCondition;
+
+    private final AtomicBoolean killed = new AtomicBoolean(false);
+    private final Set<URLCopy> activeUrlCopies = ConcurrentHashMap.newKeySet();
+    private final RemoteDataClientPool executionSystemClients = new RemoteDataClientPool();
+    private final RemoteDataClientPool archiveSystemClients = new RemoteDataClientPool();
+
+    private String absoluteWorkPath;
+    private String absoluteArchivePath;
+
+    /**
+     * @param job the job to archive
+     * @param executionSystem the system on which the job ran
+     * @param archiveSystem the system to which the job output is archived
+     * @param executionDataClient an authenticated client to the execution system
+     * @param archiveDataClient an authenticated client to the archive system
+     * @param stopCondition checked periodically from the calling thread. Archiving stops when it returns true.
+     */
+    public JobArchiver(Job job, ExecutionSystem executionSystem, RemoteSystem archiveSystem,
+                       RemoteDataClient executionDataClient, RemoteDataClient archiveDataClient,
+                       BooleanSupplier stopCondition) {
+        this.job = job;
+        this.executionSystem = executionSystem;
+        this.archiveSystem = archiveSystem;
+        this.executionDataClient = executionDataClient;
+        this.archiveDataClient = archiveDataClient;
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Lists the job work directory and reads its {@code .agave.archive} file. A single
+     * remote command is tried first. If the system does not accept it, the directory is
+     * walked with the {@code executionDataClient}.
+     *
+     * @param job the job whose work directory to list
+     * @param executionSystem the system on which the job ran
+     * @param executionDataClient an authenticated client to the execution system
+     * @return the manifest of the job work directory
+     * @throws FileNotFoundException if the job work directory no longer exists
+     * @throws JobException if the work directory cannot be listed
+     */
+    public static JobArchiveManifest buildManifest(Job job, ExecutionSystem executionSystem, RemoteDataClient executionDataClient)
+    throws FileNotFoundException, JobException {
+        try {
+            JobArchiveManifest manifest = buildManifestFromRemoteListing(job, executionSystem, executionDataClient);
+            if (manifest != null) return manifest;
+        } catch (Exception e) {
+            log.debug("Unable to list work directory of job " + job.getUuid() + " with a remote command on " +
+                    executionSystem.getSystemId() + ". Falling back to a directory walk. " + e.getMessage());
+        }
+
+        return buildManifestFromDirectoryListing(job, executionDataClient);
+    }
+
+    /**
+     * Lists the job work directory with {@code find} and prints the archive file in the same command.
+     *
+     * @return the manifest, or null if the command did not complete
+     */
+    protected static JobArchiveManifest buildManifestFromRemoteListing(Job job, ExecutionSystem executionSystem, RemoteDataClient executionDataClient)
+    throws Exception {
+        String command = String.format(
+                "cd %s && { if [ -f %s ]; then echo %s; cat %s; echo; fi; echo %s; find . -mindepth 1 -printf '%%y\\t%%s\\t%%P\\n' 2>/dev/null && echo %s; }",
+                quoteRemotePath(executionDataClient.resolvePath(job.getWorkPath())),
+                ARCHIVE_FILE_NAME,
+                EXCLUSIONS_MARKER,
+                ARCHIVE_FILE_NAME,
+                MANIFEST_MARKER,
+                MANIFEST_END_MARKER);
+
+        try (RemoteSubmissionClient submissionClient = executionSystem.getRemoteSubmissionClient(job.getInternalUsername())) {
+            return parseRemoteListing(submissionClient.runCommand(command));
+        }
+    }
+
+    /**
+     * Parses the response of the listing command. Each manifest line holds the {@code find}
+     * type, size, and relative path of an entry separated by tabs.
+     *
+     * @param response the output of the listing command
+     * @return the manifest, or null if the listing did not complete
+     */
+    protected static JobArchiveManifest parseRemoteListing(String response) {
+        if (response == null) return null;
+
+        JobArchiveManifest manifest = new JobArchiveManifest();
+        manifest.setRemoteListing(true);
+        List<String> exclusions = null;
+        boolean inManifest = false;
+        boolean complete = false;
+
+        for (String line : StringUtils.split(response, "\r\n")) {
+            String marker = line.trim();
+            if (marker.equals(EXCLUSIONS_MARKER)) {
+                exclusions = new ArrayList<String>();
+            } else if (marker.equals(MANIFEST_MARKER)) {
+                inManifest = true;
+            } else if (marker.equals(MANIFEST_END_MARKER)) {
+                complete = true;
+                break;
+            } else if (inManifest) {
+                String[] fields = StringUtils.splitPreserveAllTokens(line, "\t", 3);
+                if (fields.length < 3) continue;
+
+                EntryType type;
+                if (fields[0].equals("f")) type = EntryType.FILE;
+                else if (fields[0].equals("d")) type = EntryType.DIRECTORY;
+                else if (fields[0].equals("l")) type = EntryType.LINK;
+                else continue;
+
+                manifest.addEntry(fields[2], type, NumberUtils.toLong(fields[1], 0));
+            } else if (exclusions != null) {
+                exclusions.add(line);
+            }
+        }
+
+        if (!complete) return null;
+
+        if (exclusions != null) {
+            manifest.addExclusions(exclusions);
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Walks the job work directory with the {@code executionDataClient}, then streams the
+     * archive file into memory.
+     */
+    protected static JobArchiveManifest buildManifestFromDirectoryListing(Job job, RemoteDataClient executionDataClient)
+    throws FileNotFoundException, JobException {
+        JobArchiveManifest manifest = new JobArchiveManifest();
+        try {
+            if (!executionDataClient.doesExist(job.getWorkPath())) {
+                throw new FileNotFoundException("Job work directory " + job.getWorkPath() + " no longer exists.");
+            }
+
+            Deque<String> directories = new ArrayDeque<String>();
+            directories.add("");
+            while (!directories.isEmpty()) {
+                String directory = directories.pop();
+                String remoteDirectory = directory.isEmpty() ? job.getWorkPath() : job.getWorkPath() + "/" + directory;
+
+                for (RemoteFileInfo fileInfo : executionDataClient.ls(remoteDirectory)) {
+                    if (StringUtils.equals(fileInfo.getName(), ".") || StringUtils.equals(fileInfo.getName(), "..")) continue;
+
+                    String path = directory.isEmpty() ? fileInfo.getName() : directory + "/" + fileInfo.getName();
+                    if (fileInfo.isDirectory()) {
+                        manifest.addEntry(path, EntryType.DIRECTORY, 0);
+                        directories.push(path);
+                    } else {
+                        manifest.addEntry(path, fileInfo.isSoftLink() ? EntryType.LINK : EntryType.FILE, fileInfo.getSize());
+                    }
+                }
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JobException("Failed to retrieve directory listing of " + job.getWorkPath(), e);
+        }
+
+        boolean hasArchiveFile = false;
+        for (Entry entry : manifest.getEntries()) {
+            if (entry.getPath().equals(ARCHIVE_FILE_NAME) && !entry.isDirectory()) {
+                hasArchiveFile = true;
+                break;
+            }
+        }
+
+        if (hasArchiveFile) {
+            try (InputStream in = executionDataClient.getInputStream(job.getWorkPath() + "/" + ARCHIVE_FILE_NAME, true)) {
+                manifest.addExclusions(IOUtils.readLines(in));
+            } catch (Exception e) {
+                log.debug("Unable to read archive file for job " + job.getUuid() + ". " + e.getMessage());
+                manifest.setExclusionFileUnreadable(true);
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Copies every file in the manifest not excluded by the archive file to the job archive
+     * path. Each batch of files and each bundle is tracked by one child task of
+     * {@code rootTask}, into which its progress is rolled up.
+     *
+     * @param manifest the manifest of the job work directory
+     * @param rootTask the persisted parent task of all archive transfers
+     * @throws ClosedByInterruptException if archiving was stopped
+     * @throws JobException if any file fails to archive
+     */
+    public void archive(JobArchiveManifest manifest, TransferTask rootTask)
+    throws ClosedByInterruptException, JobException {
+        TransferLanes<TransferTask> transferLanes = null;
+        try {
+            absoluteWorkPath = executionDataClient.resolvePath(job.getWorkPath());
+            absoluteArchivePath = archiveDataClient.resolvePath(job.getArchivePath());
+
+            boolean bundlingSupported = isBundlingSupported(manifest);
+
+            createArchiveDirectories(manifest.getArchivableLeafDirectories(), bundlingSupported);
+
+            List<Entry> files = new ArrayList<Entry>();
+            List<List<Entry>> bundles = new ArrayList<List<Entry>>();
+            partitionFiles(manifest.getArchivableFiles(), bundlingSupported, files, bundles);
+
+            int maxConcurrentTransfers = Math.max(1, Settings.MAX_ARCHIVE_TRANSFER_CONCURRENCY);
+            List<List<Entry>> batches = batchFiles(files, maxConcurrentTransfers * BATCHES_PER_TRANSFER_LANE);
+
+            log.debug("Archiving " + files.size() + " files in " + batches.size() + " batches and " +
+                    bundles.size() + " bundles for job " + job.getUuid());
+
+            transferLanes = new TransferLanes<TransferTask>("archiving-" + job.getUuid() + "-", maxConcurrentTransfers);
+
+            for (int i = 0; i < bundles.size(); i++) {
+                final List<Entry> bundle = bundles.get(i);
+                final int bundleIndex = i;
+                transferLanes.submit(getArchiveTransfer(() -> transferBundle(bundle, bundleIndex, rootTask)));
+            }
+            for (final List<Entry> batch : batches) {
+                transferLanes.submit(getArchiveTransfer(() -> transferFiles(batch, rootTask)));
+            }
+
+            while (transferLanes.hasPending()) {
+                awaitNextTransfer(transferLanes, rootTask);
+            }
+        } catch (ClosedByInterruptException | JobException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JobException("Failed to archive job output directory " + job.getWorkPath() +
+                    " to " + job.getArchivePath() + ". " + e.getMessage(), e);
+        } finally {
+            // on failure or stop, interrupt the transfers and kill any copies still running
+            if (transferLanes != null && !transferLanes.shutdown(TRANSFER_SHUTDOWN_SECS, this::killActiveUrlCopies)) {
+                log.error("Timed out waiting for archive transfers of job " + job.getUuid() + " to stop.");
+            }
+
+            disconnectClients();
+        }
+    }
+
+    /**
+     * Stops archiving. Running copies are killed and no further transfers are started.
+     */
+    public void kill() {
+        killed.set(true);
+        killActiveUrlCopies();
+    }
+
+    protected void killActiveUrlCopies() {
+        for (URLCopy activeUrlCopy : activeUrlCopies) {
+            activeUrlCopy.setKilled(true);
+        }
+    }
+
+    protected void checkKilled() throws ClosedByInterruptException {
+        if (killed.get()) {
+            throw new ClosedByInterruptException();
+        }
+    }
+
+    /**
+     * Bundling requires remote commands on both systems. The execution system proved it
+     * accepts them when it returned the manifest. The archive system is probed for tar.
+     */
+    protected boolean isBundlingSupported(JobArchiveManifest manifest) {
+        if (!Settings.ENABLE_ARCHIVE_BUNDLING || !manifest.isRemoteListing() ||
+                !(archiveSystem instanceof ExecutionSystem)) {
+            return false;
+        }
+
+        try {
+            return runRemoteCommand((ExecutionSystem) archiveSystem,
+                    String.format("cd %s && command -v tar >/dev/null && echo %s",
+                            quoteRemotePath(absoluteArchivePath), SUCCESS_TOKEN));
+        } catch (Exception e) {
+            log.debug("Archive bundling is not available on " + archiveSystem.getSystemId() + ". " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Splits the files to archive into those copied individually and bundles of small files.
+     * Bundles are bounded by file count and by the length of the command that packs them.
+     *
+     * @param archivableFiles the files to archive
+     * @param bundlingSupported whether small files may be bundled
+     * @param files receives the files to copy individually
+     * @param bundles receives the bundles of small files
+     */
+    protected void partitionFiles(List<Entry> archivableFiles, boolean bundlingSupported,
+                                  List<Entry> files, List<List<Entry>> bundles) {
+        if (!bundlingSupported) {
+            files.addAll(archivableFiles);
+            return;
+        }
+
+        long maxBundledFileSize = Settings.ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB * 1024;
+        int maxBundledFiles = Math.max(2, Settings.ARCHIVE_BUNDLE_MAX_FILES);
+
+        List<Entry> bundle = new ArrayList<Entry>();
+        int bundleCommandLength = 0;
+        for (Entry file : archivableFiles) {
+            if (file.getSize() > maxBundledFileSize) {
+                files.add(file);
+                continue;
+            }
+
+            int argumentLength = quoteRemotePath(file.getPath()).length() + 1;
+            if (!bundle.isEmpty() && (bundle.size() >= maxBundledFiles ||
+                    bundleCommandLength + argumentLength > MAX_REMOTE_COMMAND_LENGTH)) {
+                addBundle(bundle, files, bundles);
+                bundle = new ArrayList<Entry>();
+                bundleCommandLength = 0;
+            }
+            bundle.add(file);
+            bundleCommandLength += argumentLength;
+        }
+        addBundle(bundle, files, bundles);
+    }
+
+    private void addBundle(List<Entry> bundle, List<Entry> files, List<List<Entry>> bundles) {
+        // a bundle of one is just a slower copy
+        if (bundle.size() == 1) files.addAll(bundle);
+        else if (bundle.size() > 1) bundles.add(bundle);
+    }
+
+    /**
+     * Splits the files copied individually into at most {@code maxBatches} batches of
+     * consecutive files, each copied on one lane and tracked by one transfer task.
+     *
+     * @param files the files to copy individually
+     * @param maxBatches the most batches to create
+     * @return the batches, none of which is empty
+     */
+    protected static List<List<Entry>> batchFiles(List<Entry> files, int maxBatches) {
+        List<List<Entry>> batches = new ArrayList<List<Entry>>();
+        if (files.isEmpty()) return batches;
+
+        int batchSize = (files.size() + Math.max(1, maxBatches) - 1) / Math.max(1, maxBatches);
+        for (int i = 0; i < files.size(); i += batchSize) {
+            batches.add(new ArrayList<Entry>(files.subList(i, Math.min(files.size(), i + batchSize))));
+        }
+        return batches;
+    }
+
+    /**
+     * Recreates the directory tree to archive under the job archive path, using batched
+     * {@code mkdir -p} commands when the archive system accepts them.
+     *
+     * @param leafDirectories the deepest directories to create, relative to the archive path
+     * @param remoteCommandsSupported whether the archive system accepts remote commands
+     * @throws JobException if a directory cannot be created
+     */
+    protected void createArchiveDirectories(List<String> leafDirectories, boolean remoteCommandsSupported)
+    throws JobException {
+        if (leafDirectories.isEmpty()) return;
+
+        if (remoteCommandsSupported) {
+            try {
+                String prefix = "cd " + quoteRemotePath(absoluteArchivePath) + " && mkdir -p --";
+                String suffix = " && echo " + SUCCESS_TOKEN;
+                StringBuilder command = new StringBuilder(prefix);
+                boolean created = true;
+                for (String directory : leafDirectories) {
+                    String argument = " " + quoteRemotePath(directory);
+                    if (command.length() > prefix.length() &&
+                            command.length() + argument.length() + suffix.length() > MAX_REMOTE_COMMAND_LENGTH) {
+                        created &= runRemoteCommand((ExecutionSystem) archiveSystem, command.append(suffix).toString());
+                        command = new StringBuilder(prefix);
+                    }
+                    command.append(argument);
+                }
+                created &= runRemoteCommand((ExecutionSystem) archiveSystem, command.append(suffix).toString());
+
+                if (created) return;
+            } catch (Exception e) {
+                log.debug("Failed to create archive directories for job " + job.getUuid() +
+                        " with a remote command. " + e.getMessage());
+            }
+        }
+
+        for (String directory : leafDirectories) {
+            String archiveDirectory = job.getArchivePath() + "/" + directory;
+            try {
+                archiveDataClient.mkdirs(archiveDirectory);
+            } catch (Exception e) {
+                throw new JobException("Failed to create archive directory " + archiveDirectory +
+                        " on " + archiveSystem.getSystemId(), e);
+            }
+        }
+    }
+
+    /**
+     * Wraps a transfer so it runs with the tenancy of the job and releases its db session when done.
+     */
+    protected Callable<TransferTask> getArchiveTransfer(final Callable<TransferTask> transfer) {
+        final String tenantId = job.getTenantId();
+        final String owner = job.getOwner();
+
+        return () -> {
+            // transfer threads do not inherit the tenancy of the archiving thread
+            TenancyHelper.setCurrentTenantId(tenantId);
+            TenancyHelper.setCurrentEndUser(owner);
+            try {
+                return transfer.call();
+            } finally {
+                try { HibernateUtil.closeSession(); } catch (Exception ignored) {}
+            }
+        };
+    }
+
+    /**
+     * Waits up to {@link #TRANSFER_POLL_MILLIS} for the next transfer to finish, checking the
+     * stop condition first. Completed transfers are rolled up into {@code rootTask}.
+     *
+     * @return true if a transfer finished, false if the wait timed out
+     * @throws ClosedByInterruptException if archiving was stopped
+     * @throws JobException if the transfer failed
+     */
+    protected boolean awaitNextTransfer(TransferLanes<TransferTask> transferLanes, TransferTask rootTask)
+    throws ClosedByInterruptException, JobException {
+        if (killed.get() || stopCondition.getAsBoolean()) {
+            kill();
+            throw new ClosedByInterruptException();
+        }
+
+        TransferTask transferTask;
+        try {
+            Future<TransferTask> transfer = transferLanes.poll(TRANSFER_POLL_MILLIS);
+            if (transfer == null) return false;
+
+            transferTask = transfer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ClosedByInterruptException) throw (ClosedByInterruptException) cause;
+            if (cause instanceof JobException) throw (JobException) cause;
+            throw new JobException("Failed to archive output of job " + job.getUuid() + ". " + cause.getMessage(), cause);
+        }
+
+        rootTask.updateSummaryStats(transferTask);
+        try {
+            TransferTaskDao.updateProgress(rootTask);
+        } catch (TransferException e) {
+            log.debug("Unable to update archiving progress for job " + job.getUuid() + ". " + e.getMessage());
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies a batch of files from the job work directory to the same relative paths under
+     * the job archive path. The batch is tracked by a single child task of {@code rootTask}
+     * which holds the combined totals of every file once the batch completes.
+     *
+     * @param batch the files to copy
+     * @param rootTask the parent task of all archive transfers
+     * @return the completed transfer task of the batch
+     * @throws ClosedByInterruptException if archiving was stopped
+     * @throws JobException if any copy failed
+     */
+    protected TransferTask transferFiles(List<Entry> batch, TransferTask rootTask)
+    throws ClosedByInterruptException, JobException {
+        checkKilled();
+
+        TransferTask batchTransferTask = createChildTransferTask(job.getWorkPath(), job.getArchivePath(), rootTask);
+
+        long totalSize = 0;
+        long bytesTransferred = 0;
+        for (Entry file : batch) {
+            batchTransferTask = transferFile(file.getPath(), batchTransferTask);
+            totalSize += batchTransferTask.getTotalSize();
+            bytesTransferred += batchTransferTask.getBytesTransferred();
+        }
+
+        return completeChildTransferTask(batchTransferTask, batch.size(), totalSize, bytesTransferred);
+    }
+
+    /**
+     * Copies a single file from the job work directory to the same relative path under the
+     * job archive path, tracking it with the given task. The task is reused across files,
+     * so its totals only reflect the last copy.
+     *
+     * @param relativePath the path of the file relative to the job work directory
+     * @param transferTask the persisted task tracking the copy
+     * @return the transfer task updated by the copy
+     * @throws ClosedByInterruptException if archiving was stopped
+     * @throws JobException if the copy failed
+     */
+    protected TransferTask transferFile(String relativePath, TransferTask transferTask)
+    throws ClosedByInterruptException, JobException {
+        checkKilled();
+
+        String workFileName = job.getWorkPath() + "/" + relativePath;
+        String archiveFileName = job.getArchivePath() + "/" + relativePath;
+
+        RemoteDataClient sourceClient = null;
+        RemoteDataClient destClient = null;
+        URLCopy urlCopy = null;
+        boolean succeeded = false;
+        try {
+            sourceClient = borrowClient(executionSystemClients, executionSystem);
+            destClient = borrowClient(archiveSystemClients, archiveSystem);
+
+            urlCopy = new URLCopy(sourceClient, destClient);
+            activeUrlCopies.add(urlCopy);
+            if (killed.get()) urlCopy.setKilled(true);
+
+            TransferTask copiedTransferTask = urlCopy.copy(workFileName, archiveFileName, transferTask);
+            succeeded = true;
+
+            return copiedTransferTask == null ? transferTask : copiedTransferTask;
+        } catch (ClosedByInterruptException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JobException("Failed to archive file " + workFileName + " to " +
+                    "agave://" + archiveSystem.getSystemId() + "/" + archiveFileName +
+                    " due to an error during transfer ", e);
+        } finally {
+            if (urlCopy != null) activeUrlCopies.remove(urlCopy);
+            // clients from failed transfers are not reused. they are disconnected with the rest when archiving ends.
+            if (succeeded) {
+                executionSystemClients.release(sourceClient);
+                archiveSystemClients.release(destClient);
+            }
+        }
+    }
+
+    /**
+     * Creates and persists a child task of {@code rootTask} for a batch or bundle.
+     */
+    private TransferTask createChildTransferTask(String workPath, String archivePath, TransferTask rootTask)
+    throws JobException {
+        TransferTask childTransferTask = new TransferTask(
+                "agave://" + job.getSystem() + "/" + workPath,
+                "agave://" + archiveSystem.getSystemId() + "/" + archivePath,
+                job.getOwner(),
+                rootTask,
+                rootTask);
+        try {
+            persistTransferTask(childTransferTask);
+            return childTransferTask;
+        } catch (TransferException e) {
+            throw new JobException("Failed to archive " + workPath + " to " + childTransferTask.getDest() +
+                    " due to an error persisting the transfer record.", e);
+        }
+    }
+
+    /**
+     * Records the combined totals of a batch or bundle on its task and marks it complete.
+     */
+    private TransferTask completeChildTransferTask(TransferTask childTransferTask, int totalFiles,
+                                                   long totalSize, long bytesTransferred)
+    throws JobException {
+        childTransferTask.setTotalFiles(totalFiles);
+        childTransferTask.setTotalSize(totalSize);
+        childTransferTask.setBytesTransferred(bytesTransferred);
+        childTransferTask.setStatus(TransferStatusType.COMPLETED);
+        childTransferTask.setEndTime(new Date());
+        try {
+            persistTransferTask(childTransferTask);
+            return childTransferTask;
+        } catch (TransferException e) {
+            throw new JobException("Failed to update the transfer record of " + childTransferTask.getSource() +
+                    " for job " + job.getUuid(), e);
+        }
+    }
+
+    protected void persistTransferTask(TransferTask transferTask) throws TransferException {
+        TransferTaskDao.persist(transferTask);
+    }
+
+    /**
+     * Packs a bundle of small files into a tar file in the job work directory, copies it to
+     * the job archive path, and unpacks it there. If the bundle cannot be packed or unpacked,
+     * its files are copied individually under the same task.
+     *
+     * @param bundle the files to bundle
+     * @param bundleIndex the index of the bundle, used to name the tar file
+     * @param rootTask the parent task of all archive transfers
+     * @return the completed transfer task of the bundle
+     * @throws ClosedByInterruptException if archiving was stopped
+     * @throws JobException if the files could not be archived
+     */
+    protected TransferTask transferBundle(List<Entry> bundle, int bundleIndex, TransferTask rootTask)
+    throws ClosedByInterruptException, JobException {
+        checkKilled();
+
+        String bundleName = ".agave-archive-bundle-" + job.getUuid() + "-" + bundleIndex + ".tar";
+        TransferTask bundleTransferTask = createChildTransferTask(
+                job.getWorkPath() + "/" + bundleName, job.getArchivePath() + "/" + bundleName, rootTask);
+
+        long totalSize = 0;
+        for (Entry file : bundle) {
+            totalSize += file.getSize();
+        }
+
+        boolean packed = false;
+        boolean unpacked = false;
+        try {
+            StringBuilder packCommand = new StringBuilder("cd ")
+                    .append(quoteRemotePath(absoluteWorkPath))
+                    .append(" && tar -cf ").append(quoteRemotePath(bundleName)).append(" --");
+            for (Entry file : bundle) {
+                packCommand.append(" ").append(quoteRemotePath(file.getPath()));
+            }
+            packCommand.append(" && echo ").append(SUCCESS_TOKEN);
+
+            packed = runRemoteCommand(executionSystem, packCommand.toString());
+            if (packed) {
+                bundleTransferTask = transferFile(bundleName, bundleTransferTask);
+
+                checkKilled();
+
+                unpacked = runRemoteCommand((ExecutionSystem) archiveSystem, String.format(
+                        "cd %s && tar -xf %s && rm -f %s && echo %s",
+                        quoteRemotePath(absoluteArchivePath),
+                        quoteRemotePath(bundleName),
+                        quoteRemotePath(bundleName),
+                        SUCCESS_TOKEN));
+
+                if (unpacked) {
+                    return completeChildTransferTask(bundleTransferTask, bundle.size(), totalSize, totalSize);
+                }
+            }
+        } catch (ClosedByInterruptException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("Failed to archive bundle " + bundleName + " of job " + job.getUuid() + ". " + e.getMessage());
+        } finally {
+            if (packed) deleteQuietly(executionSystemClients, executionSystem, job.getWorkPath() + "/" + bundleName);
+            if (packed && !unpacked) deleteQuietly(archiveSystemClients, archiveSystem, job.getArchivePath() + "/" + bundleName);
+        }
+
+        log.debug("Archiving " + bundle.size() + " files of bundle " + bundleName + " of job " +
+                job.getUuid() + " individually.");
+
+        long bytesTransferred = 0;
+        for (Entry file : bundle) {
+            bundleTransferTask = transferFile(file.getPath(), bundleTransferTask);
+            bytesTransferred += bundleTransferTask.getBytesTransferred();
+        }
+        return completeChildTransferTask(bundleTransferTask, bundle.size(), totalSize, bytesTransferred);
+    }
+
+    /**
+     * Runs a command on the given system and checks it printed {@link #SUCCESS_TOKEN}.
+     */
+    protected boolean runRemoteCommand(ExecutionSystem system, String command) throws Exception {
+        try (RemoteSubmissionClient submissionClient = system.getRemoteSubmissionClient(job.getInternalUsername())) {
+            return StringUtils.contains(submissionClient.runCommand(command), SUCCESS_TOKEN);
+        }
+    }
+
+    /**
+     * Deletes a remote path with a pooled client, ignoring any errors.
+     */
+    private void deleteQuietly(RemoteDataClientPool clients, RemoteSystem system, String remotePath) {
+        RemoteDataClient remoteDataClient = null;
+        try {
+            remoteDataClient = borrowClient(clients, system);
+            remoteDataClient.delete(remotePath);
+        } catch (Exception ignored) {
+        } finally {
+            clients.release(remoteDataClient);
+        }
+    }
+
+    /**
+     * Takes an idle authenticated client to the given system from the pool, creating a new one
+     * when none is idle.
+     */
+    protected RemoteDataClient borrowClient(RemoteDataClientPool clients, RemoteSystem system)
+    throws Exception {
+        RemoteDataClient remoteDataClient = clients.poll();
+        if (remoteDataClient == null) {
+            remoteDataClient = system.getRemoteDataClient(job.getInternalUsername());
+            clients.add(remoteDataClient);
+            remoteDataClient.authenticate();
+        }
+        return remoteDataClient;
+    }
+
+    /**
+     * Disconnects every pooled client opened by this archiver.
+     */
+    protected void disconnectClients() {
+        executionSystemClients.disconnectAll();
+        archiveSystemClients.disconnectAll();
+    }
+}
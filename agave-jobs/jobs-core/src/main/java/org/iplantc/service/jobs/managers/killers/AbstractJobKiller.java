@@ -24,6 +24,12 @@ import org.iplantc.service.systems.model.enumerations.SchedulerType;
 public abstract class AbstractJobKiller implements JobKiller {
 	
 	private static final Logger log = Logger.getLogger(AbstractJobKiller.class);
+
+	/**
+	 * Lower case terms in a scheduler kill response indicating the job was not found
+	 */
+	static final String[] NOT_FOUND_TERMS = new String[]{"does not exist", "has deleted job", "couldn't find"};
+
     private Job	job;
 	private ExecutionSystem executionSystem;
 
@@ -75,8 +81,7 @@ public abstract class AbstractJobKiller implements JobKiller {
 				// if it's killed
 				throw new RemoteExecutionException(result);
 			} else {
-				String[] notFoundTerms = new String[]{"does not exist", "has deleted job", "couldn't find"};
-				for (String notfoundTerm : notFoundTerms) {
+				for (String notfoundTerm : NOT_FOUND_TERMS) {
 					if (result.toLowerCase().contains(notfoundTerm)) {
 						throw new RemoteExecutionException(result);
 					}
@@ -98,7 +103,20 @@ public abstract class AbstractJobKiller implements JobKiller {
 	 *   system not being available
 	 */
 	public String getStartupScriptCommand() throws JobMacroResolutionException {
-		String resolvedStartupScript = new StartupScriptJobMacroResolver(getJob(), getExecutionSystem()).resolve();
+		return getStartupScriptCommand(getJob(), getExecutionSystem());
+	}
+
+	/**
+	 * Generates the command to source the {@link ExecutionSystem#getStartupScript()} for the given job.
+	 * Response is written to /dev/null.
+	 *
+	 * @param job the job whose macros are used to resolve the startup script
+	 * @param executionSystem the system on which the job is running
+	 * @return the properly escaped command to be run on the remote system.
+	 * @throws JobMacroResolutionException when the startup script cannot be resolved
+	 */
+	public static String getStartupScriptCommand(Job job, ExecutionSystem executionSystem) throws JobMacroResolutionException {
+		String resolvedStartupScript = new StartupScriptJobMacroResolver(job, executionSystem).resolve();
 		if (resolvedStartupScript != null) {
 			return String.format("echo $(source %s 2>&1) >> /dev/null ", resolvedStartupScript);
 		} else {
@@ -0,0 +1,119 @@
+package org.iplantc.service.jobs.managers.killers;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.jobs.exceptions.JobTerminationException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.remote.RemoteSubmissionClient;
+import org.iplantc.service.systems.model.ExecutionSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Kills several jobs on the same {@link ExecutionSystem} with a single invocation of
+ * the scheduler kill command over a single connection. Every scheduler kill command
+ * accepts a list of job ids, so this replaces one {@link JobKiller} per job when
+ * stopping jobs in bulk.
+ *
+ * @author dooley
+ */
+public class BatchJobKiller {
+
+	private static final Logger log = Logger.getLogger(BatchJobKiller.class);
+
+	private final ExecutionSystem executionSystem;
+	private final String internalUsername;
+	private final String startupScriptCommand;
+	private final List<Job> jobs;
+
+	/**
+	 * @param executionSystem the system on which all the jobs are running
+	 * @param internalUsername the internal user whose credentials are used to connect to the system
+	 * @param startupScriptCommand the resolved startup script command shared by all the jobs
+	 * @param jobs the jobs to kill. Each must have a local job id.
+	 * @see AbstractJobKiller#getStartupScriptCommand()
+	 */
+	public BatchJobKiller(ExecutionSystem executionSystem, String internalUsername, String startupScriptCommand, List<Job> jobs)
+	{
+		this.executionSystem = executionSystem;
+		this.internalUsername = internalUsername;
+		this.startupScriptCommand = startupScriptCommand;
+		this.jobs = jobs;
+	}
+
+	/**
+	 * Runs the scheduler kill command for all the jobs.
+	 *
+	 * @return the response from the remote system
+	 * @throws JobTerminationException if the command could not be run
+	 */
+	public String attack() throws JobTerminationException
+	{
+		try (RemoteSubmissionClient remoteSubmissionClient = executionSystem.getRemoteSubmissionClient(internalUsername)) {
+			String result = remoteSubmissionClient.runCommand(startupScriptCommand + " ; " + getCommand());
+
+			log.debug("Killed " + jobs.size() + " jobs on " + executionSystem.getSystemId() + " with a single command.");
+
+			return StringUtils.trimToEmpty(result);
+		} catch (Throwable e) {
+			throw new JobTerminationException("Failed to stop " + jobs.size() + " jobs on "
+					+ executionSystem.getSystemId(), e);
+		}
+	}
+
+	/**
+	 * Replaces the {@code ${AGAVE_JOB_LOCALJOB_ID}} macro in the scheduler kill command
+	 * with the space separated local job ids of all the jobs.
+	 *
+	 * @return the filtered job kill command
+	 */
+	public String getCommand()
+	{
+		List<String> localJobIds = new ArrayList<String>();
+		for (Job job: jobs) {
+			localJobIds.add(job.getLocalJobId());
+		}
+
+		return StringUtils.replace(
+				executionSystem.getScheduler().getBatchKillCommand(),
+				"${AGAVE_JOB_LOCALJOB_ID}",
+				StringUtils.join(localJobIds, " "));
+	}
+
+	/**
+	 * Finds the line in the kill command response reporting that the given job could
+	 * not be found by the scheduler.
+	 *
+	 * @param job one of the jobs killed
+	 * @param response the response from {@link #attack()}
+	 * @return the line of the response reporting the job was not found, or null
+	 */
+	public static String getNotFoundResponse(Job job, String response)
+	{
+		if (StringUtils.isEmpty(response) || StringUtils.isEmpty(job.getLocalJobId())) return null;
+
+		// match the whole id so job 12 is not confused with job 123
+		Pattern localJobIdPattern = Pattern.compile("(?<![\\w.])" + Pattern.quote(job.getLocalJobId()) + "(?!\\.?\\w)");
+		for (String line: StringUtils.split(response, "\n")) {
+			if (!localJobIdPattern.matcher(line).find()) continue;
+
+			for (String notFoundTerm : AbstractJobKiller.NOT_FOUND_TERMS) {
+				if (line.toLowerCase().contains(notFoundTerm)) {
+					return line.trim();
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the jobs killed by this killer
+	 */
+	public List<Job> getJobs()
+	{
+		return jobs;
+	}
+}
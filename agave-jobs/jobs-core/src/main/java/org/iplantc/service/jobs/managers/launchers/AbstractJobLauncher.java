@@ -28,6 +28,7 @@ import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.JobEvent;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
 import org.iplantc.service.jobs.model.enumerations.WrapperTemplateStatusVariableType;
+import org.iplantc.service.remote.RemoteSubmissionClient;
 import org.iplantc.service.systems.exceptions.RemoteCredentialException;
 import org.iplantc.service.systems.exceptions.SystemUnavailableException;
 import org.iplantc.service.systems.exceptions.SystemUnknownException;
@@ -50,8 +51,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.iplantc.service.jobs.util.ServiceUtils.quoteRemotePath;
+
 /**
  * Interface to define how to launch applications on various resources
  *
@@ -61,6 +69,11 @@ public abstract class AbstractJobLauncher implements JobLauncher {
     private static final Logger log = Logger.getLogger(AbstractJobLauncher.class);
     public static final String ARCHIVE_FILENAME = ".agave.archive";
 
+    // marker written beside an app cache entry on the execution system once the entry is complete
+    private static final String REMOTE_CACHE_COMPLETE_SUFFIX = ".complete";
+    // echoed by remote cache commands on success so a silent failure is never taken for a hit
+    private static final String REMOTE_CACHE_SUCCESS_TOKEN = "AGAVE_APP_CACHE_OK";
+
     private final AtomicBoolean stopped = new AtomicBoolean(false);
 
     protected File tempAppDir = null;
@@ -219,6 +232,80 @@ public abstract class AbstractJobLauncher implements JobLauncher {
         return resolver.removeReservedJobStatusMacros(appTemplate);
     }
 
+    /**
+     * Resolves the body of the app wrapper template in a single pass, removing the reserved status macros,
+     * then resolving the runtime notification, status callback, and job attribute macros. This produces the
+     * same result as calling {@link #filterRuntimeStatusMacros(String)},
+     * {@link #resolveRuntimeNotificationMacros(String)}, and {@link #resolveMacros(String)} in turn.
+     *
+     * @param appTemplate the wrapper template with the job inputs and parameters already resolved
+     * @return the resolved wrapper template
+     * @throws JobMacroResolutionException when the execution system or batch queue is not available
+     */
+    protected String resolveWrapperTemplateMacros(String appTemplate) throws JobMacroResolutionException {
+        WrapperTemplateMacroResolver resolver = new WrapperTemplateMacroResolver(getJob(), getExecutionSystem());
+        return resolver.resolveWrapperTemplate(appTemplate);
+    }
+
+    /**
+     * Replaces the app input and parameter variables in the template with their values from the job request
+     * in a single pass. Variable names are matched case-insensitively. Parameters take precedence over inputs
+     * with the same key. Hidden inputs and parameters resolve to their default values, and visible ones
+     * missing from the job request resolve to an empty string. The parsed form of the template is cached
+     * per app revision, so only the values are computed for each job.
+     *
+     * @param appTemplate the app wrapper template content
+     * @return the filtered content
+     * @throws JobException if the inputs or parameters cannot be fetched as a JsonObject
+     * @throws URISyntaxException when invalid input URI are found in the job inputs.
+     */
+    protected String resolveJobRequestTemplateVariables(String appTemplate) throws JobException, URISyntaxException {
+        WrapperTemplate template = WrapperTemplate.forSoftware(getSoftware(), appTemplate);
+
+        Set<String> templateVariableNames = new HashSet<String>();
+        for (String name : template.getVariableNames()) {
+            templateVariableNames.add(name.toLowerCase(Locale.ENGLISH));
+        }
+
+        // only the values of the variables which actually appear in the template are serialized
+        final Map<String, String> templateVariableValues = new HashMap<String, String>();
+
+        JsonNode jobParameters = getJob().getParametersAsJsonObject();
+        for (SoftwareParameter param : getSoftware().getParameters()) {
+            String key = param.getKey().toLowerCase(Locale.ENGLISH);
+            if (templateVariableValues.containsKey(key) || !templateVariableNames.contains(key)) continue;
+
+            if (jobParameters.has(param.getKey())) {
+                templateVariableValues.put(key, parseSoftwareParameterValueIntoTemplateVariableValue(param, jobParameters.get(param.getKey())));
+            } else if (!param.isVisible()) {
+                templateVariableValues.put(key, parseSoftwareParameterValueIntoTemplateVariableValue(param, param.getDefaultValueAsJsonArray()));
+            } else {
+                templateVariableValues.put(key, "");
+            }
+        }
+
+        JsonNode jobInputs = getJob().getInputsAsJsonObject();
+        for (SoftwareInput input : getSoftware().getInputs()) {
+            String key = input.getKey().toLowerCase(Locale.ENGLISH);
+            if (templateVariableValues.containsKey(key) || !templateVariableNames.contains(key)) continue;
+
+            if (jobInputs.has(input.getKey())) {
+                templateVariableValues.put(key, parseSoftwareInputValueIntoTemplateVariableValue(input, jobInputs.get(input.getKey())));
+            } else if (!input.isVisible()) {
+                templateVariableValues.put(key, parseSoftwareInputValueIntoTemplateVariableValue(input, input.getDefaultValueAsJsonArray()));
+            } else {
+                templateVariableValues.put(key, "");
+            }
+        }
+
+        try {
+            return template.render(name -> templateVariableValues.get(name.toLowerCase(Locale.ENGLISH)));
+        } catch (JobMacroResolutionException e) {
+            // values are all computed up front, so rendering cannot fail
+            throw new JobException("Failed to resolve wrapper template variables", e);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.iplantc.service.jobs.managers.launchers.JobLauncher#resolveMacros(java.lang.String)
      */
@@ -308,6 +395,14 @@ public abstract class AbstractJobLauncher implements JobLauncher {
         log.debug(step);
 
         try {
+            // public app bundles do not change once published, so a verified, unpacked copy may already be
+            // in the local app asset cache. If so, it is linked into the tempAppDir and the fetch is skipped.
+            if (getSoftware().isPubliclyAvailable() && getAppAssetCache() != null &&
+                    getAppAssetCache().materialize(getSoftware(), getTempAppDir())) {
+                log.debug("Using cached app assets of " + getSoftware().getUniqueName() + " for job " +
+                        getJob().getUuid());
+                return;
+            }
 
             // downloads the software deployment directory to the tempAppDir, optimizing data movement whenever possible
             fetchSoftwareDeploymentDirectory();
@@ -318,6 +413,11 @@ public abstract class AbstractJobLauncher implements JobLauncher {
             // to decompress the assets in the local tempAppDir before continuing.
             if (getSoftware().isPubliclyAvailable()) {
                 unzipPublicSoftwareArchive();
+
+                // keep the verified assets for the next job using this app
+                if (getAppAssetCache() != null) {
+                    getAppAssetCache().store(getSoftware(), getTempAppDir());
+                }
             }
         } catch (ClosedByInterruptException e) {
             log.debug("Software asset copying for job " + getJob().getUuid() + " aborted due to interrupt by worker process.");
@@ -342,6 +442,15 @@ public abstract class AbstractJobLauncher implements JobLauncher {
         }
     }
 
+    /**
+     * Getter for the local cache of public app assets. This is primarily here for easier mocking during tests.
+     *
+     * @return the shared app asset cache, or null if caching is disabled
+     */
+    protected AppAssetCache getAppAssetCache() {
+        return org.iplantc.service.jobs.Settings.ENABLE_APP_ASSET_CACHE ? AppAssetCache.getInstance() : null;
+    }
+
     /**
      * Unzips a public {@link Software} deployment archive and ensures the contents corresponding to the
      * {@link Software#getExecutablePath()} are rooted at the tempAppDir.
@@ -742,6 +851,11 @@ public abstract class AbstractJobLauncher implements JobLauncher {
 
             checkStopped();
 
+            // reuse the copy of the app assets cached on the execution system rather than uploading them again
+            if (stageSoftwareApplicationFromRemoteCache()) {
+                return;
+            }
+
             transferTask = createJobWorkDirectoryTransferTask();
 
             // first time around we copy everything
@@ -769,6 +883,144 @@ public abstract class AbstractJobLauncher implements JobLauncher {
         }
     }
 
+    /**
+     * Stages public app assets into the job work directory from the app cache directory on the execution system.
+     * Entries are keyed the same way as the local {@link AppAssetCache}. On a miss, the tempAppDir is uploaded into
+     * the cache once and reused by every later job of the app on the system. Any failure falls back to uploading
+     * the assets straight to the job work directory.
+     *
+     * @return true if the assets were staged from the remote cache, false if they still need to be uploaded
+     * @throws ClosedByInterruptException if the launcher is stopped while staging
+     */
+    protected boolean stageSoftwareApplicationFromRemoteCache() throws ClosedByInterruptException {
+        if (!org.iplantc.service.jobs.Settings.ENABLE_REMOTE_APP_ASSET_CACHE) return false;
+
+        String cacheKey = AppAssetCache.getCacheKey(getSoftware());
+        if (cacheKey == null) return false;
+
+        RemoteDataClient remoteDataClient = getRemoteExecutionDataClient();
+        String cacheRootPath = org.iplantc.service.jobs.Settings.REMOTE_APP_ASSET_CACHE_PATH;
+        String cachePath = cacheRootPath + "/" + cacheKey;
+        String stagingPath = cacheRootPath + "/.staging-" + getJob().getUuid();
+        boolean uploaded = false;
+
+        try (RemoteSubmissionClient submissionClient = getExecutionSystem().getRemoteSubmissionClient(getJob().getInternalUsername())) {
+            String absoluteCachePath = remoteDataClient.resolvePath(cachePath);
+            String absoluteWorkPath = remoteDataClient.resolvePath(getJob().getWorkPath());
+            String absoluteSourcePath = absoluteCachePath;
+
+            if (!remoteDataClient.doesExist(cachePath + REMOTE_CACHE_COMPLETE_SUFFIX)) {
+                log.debug("App assets of " + getSoftware().getUniqueName() + " are not cached on " +
+                        getJob().getSystem() + ". Uploading to the app cache for job " + getJob().getUuid());
+
+                // the assets are uploaded to a staging directory first, then moved into the cache. mkdir is
+                // atomic, so only one job ever claims an entry and no job sees it partially written.
+                remoteDataClient.mkdirs(stagingPath);
+                uploaded = true;
+
+                TransferTask transferTask = createJobWorkDirectoryTransferTask();
+                remoteDataClient.put(getTempAppDir().getPath(), stagingPath, new RemoteTransferListener(transferTask));
+
+                checkStopped();
+
+                String absoluteStagedAppPath = remoteDataClient.resolvePath(stagingPath + "/" + getTempAppDir().getName());
+                String claimResponse = submissionClient.runCommand(getRemoteCacheClaimCommand(
+                        absoluteCachePath, absoluteStagedAppPath, getJob().getUuid(),
+                        org.iplantc.service.jobs.Settings.REMOTE_APP_ASSET_CACHE_LOCK_TIMEOUT_MINS));
+
+                // another job claimed the entry and has not finished it. this job uses its own upload.
+                if (!StringUtils.contains(claimResponse, REMOTE_CACHE_SUCCESS_TOKEN)) {
+                    absoluteSourcePath = absoluteStagedAppPath;
+                }
+            } else {
+                JobDao.refresh(getJob());
+                getJob().addEvent(new JobEvent(JobStatusType.STAGING_JOB,
+                        "Staging runtime assets from the app cache at agave://" + getJob().getSystem() + "/" + cachePath,
+                        getJob().getOwner()));
+                JobDao.persist(getJob());
+            }
+
+            checkStopped();
+
+            String stageCommand = getRemoteCacheStageCommand(absoluteSourcePath, absoluteWorkPath,
+                    org.iplantc.service.jobs.Settings.REMOTE_APP_ASSET_CACHE_SYMLINK && absoluteSourcePath.equals(absoluteCachePath));
+            String stageResponse = submissionClient.runCommand(stageCommand);
+            if (!StringUtils.contains(stageResponse, REMOTE_CACHE_SUCCESS_TOKEN)) {
+                log.error("Failed to stage app assets of " + getSoftware().getUniqueName() + " for job " +
+                        getJob().getUuid() + " from the app cache on " + getJob().getSystem() +
+                        ". Response from the server was: " + stageResponse);
+                return false;
+            }
+
+            return true;
+        } catch (ClosedByInterruptException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to stage app assets of " + getSoftware().getUniqueName() + " for job " +
+                    getJob().getUuid() + " from the app cache on " + getJob().getSystem() +
+                    ". The assets will be uploaded to the job work directory.", e);
+            return false;
+        } finally {
+            if (uploaded) {
+                try { remoteDataClient.delete(stagingPath); } catch (Exception ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Builds the remote command which moves a staged upload into the app cache on the execution system. The
+     * entry is claimed by creating a lock directory beside it, since mkdir is atomic. A lock left by a job
+     * that died before finishing the entry is taken over once it is older than {@code lockTimeoutMins}.
+     * The command echoes {@link #REMOTE_CACHE_SUCCESS_TOKEN} when the entry is complete, whoever finished it.
+     *
+     * @param absoluteCachePath the absolute path of the cache entry
+     * @param absoluteStagedAppPath the absolute path of the uploaded app assets to move into the cache
+     * @param ownerId unique id of the job claiming the entry
+     * @param lockTimeoutMins age in minutes after which an unfinished claim is considered abandoned
+     * @return the shell command
+     */
+    protected static String getRemoteCacheClaimCommand(String absoluteCachePath, String absoluteStagedAppPath,
+                                                       String ownerId, int lockTimeoutMins) {
+        String completePath = quoteRemotePath(absoluteCachePath + REMOTE_CACHE_COMPLETE_SUFFIX);
+        String lockPath = quoteRemotePath(absoluteCachePath + ".lock");
+        // the stale lock is renamed before removal so only one job can take it over
+        String staleLockPath = quoteRemotePath(absoluteCachePath + ".lock-" + ownerId);
+        String cachePath = quoteRemotePath(absoluteCachePath);
+
+        return String.format(
+                "if [ ! -e %1$s ] && [ -n \"$(find %2$s -maxdepth 0 -mmin +%3$d 2>/dev/null)\" ] && mv %2$s %4$s 2>/dev/null; " +
+                        "then rm -rf %5$s %4$s; fi; " +
+                        "mkdir %2$s 2>/dev/null && mv %6$s %5$s && touch %1$s; [ -e %1$s ] && echo %7$s",
+                completePath, lockPath, Math.max(1, lockTimeoutMins), staleLockPath, cachePath,
+                quoteRemotePath(absoluteStagedAppPath), REMOTE_CACHE_SUCCESS_TOKEN);
+    }
+
+    /**
+     * Builds the remote command which copies, or links, app assets into the job work directory. The command
+     * echoes {@link #REMOTE_CACHE_SUCCESS_TOKEN} on success.
+     *
+     * @param absoluteSourcePath the absolute path of the app assets
+     * @param absoluteWorkPath the absolute path of the job work directory
+     * @param symlink true to link each top level asset rather than copying the assets
+     * @return the shell command
+     */
+    protected static String getRemoteCacheStageCommand(String absoluteSourcePath, String absoluteWorkPath, boolean symlink) {
+        if (symlink) {
+            // link each top level asset into the work directory
+            return String.format(
+                    "( cd %s && for f in * .[!.]*; do if [ -e \"$f\" ]; then ln -sfn %s/\"$f\" %s/\"$f\" || exit 1; fi; done ) && echo %s",
+                    quoteRemotePath(absoluteSourcePath),
+                    quoteRemotePath(absoluteSourcePath),
+                    quoteRemotePath(absoluteWorkPath),
+                    REMOTE_CACHE_SUCCESS_TOKEN);
+        } else {
+            return String.format("cp -pR %s/. %s/ && echo %s",
+                    quoteRemotePath(absoluteSourcePath),
+                    quoteRemotePath(absoluteWorkPath),
+                    REMOTE_CACHE_SUCCESS_TOKEN);
+        }
+    }
+
     /**
      * This method creates a manifest file for the job work directory that contains all the file items that will be
      * present when the job starts. These file items will be ignored during archiving.
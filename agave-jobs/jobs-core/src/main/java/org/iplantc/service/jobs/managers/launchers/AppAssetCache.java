@@ -0,0 +1,425 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.apps.dao.SoftwareDao;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.apps.util.ZipUtil;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.systems.model.StorageSystem;
+import org.iplantc.service.systems.model.enumerations.SystemStatusType;
+import org.iplantc.service.transfer.RemoteDataClient;
+import org.iplantc.service.transfer.util.MD5Checksum;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node-local cache of verified, unpacked public app bundles. Public app bundles do not change once
+ * published, so entries are keyed by the {@link Software#getChecksum()} of the published zip archive,
+ * or by the {@link Software#getUniqueName()}, which includes the revision, when no checksum was recorded.
+ * Launchers hard link the cached assets into their temp app directory rather than fetching and unzipping
+ * the archive for every job, falling back to a copy when the cache and temp directory are on different
+ * file systems.
+ *
+ * Entries are evicted least recently used first once the cache grows past
+ * {@link Settings#APP_ASSET_CACHE_MAX_SIZE_MB}. Apps published since the last scan are fetched into the
+ * cache in the background so the first job using a newly published app also hits the cache.
+ *
+ * @author dooley
+ */
+public class AppAssetCache {
+
+    private static final Logger log = Logger.getLogger(AppAssetCache.class);
+
+    // prefix of directories still being written. these are never served and are removed on startup.
+    private static final String STAGING_PREFIX = ".staging-";
+
+    private static volatile AppAssetCache _instance;
+
+    private final Path cacheDirectory;
+    private final long maxSizeBytes;
+    private final int prefetchIntervalSecs;
+    // access ordered, so iteration starts with the least recently used entry
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSizeBytes = 0;
+    private Date lastPrefetchScan;
+    private ScheduledExecutorService prefetchExecutor;
+
+    private static class CacheEntry {
+        final Path path;
+        final long sizeBytes;
+        // number of launchers currently linking from this entry. entries in use are never evicted.
+        int readers = 0;
+
+        CacheEntry(Path path, long sizeBytes) {
+            this.path = path;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    /**
+     * @return the shared app asset cache for this worker
+     */
+    public static AppAssetCache getInstance() {
+        if (_instance == null) {
+            synchronized (AppAssetCache.class) {
+                if (_instance == null) {
+                    AppAssetCache cache = new AppAssetCache(Paths.get(Settings.APP_ASSET_CACHE_DIRECTORY),
+                            Settings.APP_ASSET_CACHE_MAX_SIZE_MB * 1024 * 1024,
+                            Settings.APP_ASSET_CACHE_PREFETCH_INTERVAL_SECS);
+                    cache.startPrefetching();
+                    _instance = cache;
+                }
+            }
+        }
+        return _instance;
+    }
+
+    /**
+     * Creates a cache rooted at the given directory, loading any entries left by a previous run.
+     * Prefetching does not begin until {@link #startPrefetching()} is called.
+     *
+     * @param cacheDirectory the local directory in which to keep cached app assets
+     * @param maxSizeBytes the disk budget of the cache
+     * @param prefetchIntervalSecs how often to scan for newly published apps. 0 disables prefetching.
+     */
+    protected AppAssetCache(Path cacheDirectory, long maxSizeBytes, int prefetchIntervalSecs) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxSizeBytes = maxSizeBytes;
+        this.prefetchIntervalSecs = prefetchIntervalSecs;
+
+        loadExistingEntries();
+    }
+
+    /**
+     * Starts scanning for newly published apps in the background. Calls after the first, or when
+     * prefetching is disabled, have no effect.
+     */
+    public synchronized void startPrefetching() {
+        if (prefetchIntervalSecs <= 0 || prefetchExecutor != null) return;
+
+        prefetchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "app-asset-cache-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+        prefetchExecutor.scheduleWithFixedDelay(this::prefetchPublishedApps,
+                0, prefetchIntervalSecs, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background scan for newly published apps.
+     */
+    public synchronized void stopPrefetching() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+    }
+
+    /**
+     * @return true if newly published apps are being prefetched in the background
+     */
+    public synchronized boolean isPrefetching() {
+        return prefetchExecutor != null;
+    }
+
+    /**
+     * Returns the key under which the assets of the given app are cached.
+     *
+     * @param software the app
+     * @return the cache key, or null if the app's assets cannot be cached
+     */
+    public static String getCacheKey(Software software) {
+        // private apps are fetched from a live deployment directory that can change at any time
+        if (software == null || !software.isPubliclyAvailable()) return null;
+
+        String key = StringUtils.isNotBlank(software.getChecksum()) ? software.getChecksum() : software.getUniqueName();
+
+        return StringUtils.isBlank(key) ? null : key.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * @param software the app
+     * @return true if the assets of the given app are cached
+     */
+    public synchronized boolean contains(Software software) {
+        String key = getCacheKey(software);
+        return key != null && entries.containsKey(key);
+    }
+
+    /**
+     * Links the cached assets of the given app into the target directory. On any failure, the target
+     * directory is emptied so the caller can fall back to fetching the assets itself.
+     *
+     * @param software the app whose assets to materialize
+     * @param targetDir the directory into which the assets are linked
+     * @return true if the assets were cached and linked into the target directory, false otherwise
+     */
+    public boolean materialize(Software software, File targetDir) {
+        String key = getCacheKey(software);
+        if (key == null) return false;
+
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) return false;
+            entry.readers++;
+        }
+
+        try {
+            linkTree(entry.path, targetDir.toPath());
+            // the modification time of the entry keeps the lru order across restarts
+            entry.path.toFile().setLastModified(System.currentTimeMillis());
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to link cached assets of " + software.getUniqueName() + " from " + entry.path +
+                    " to " + targetDir.getPath() + ". Assets will be fetched from the deployment system.", e);
+            try { FileUtils.cleanDirectory(targetDir); } catch (Exception ignored) {}
+            return false;
+        } finally {
+            synchronized (this) {
+                entry.readers--;
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Adds the verified, unpacked assets of the given app to the cache. The source directory is linked
+     * into the cache, so it can be removed once this method returns. Failures are logged and otherwise
+     * ignored since the cache is only an optimization.
+     *
+     * @param software the app whose assets are being cached
+     * @param sourceDir directory containing the unpacked app assets with the executable path at its root
+     */
+    public void store(Software software, File sourceDir) {
+        String key = getCacheKey(software);
+        if (key == null || contains(software)) return;
+
+        Path stagingPath = cacheDirectory.resolve(STAGING_PREFIX + key + "-" + UUID.randomUUID().toString());
+        try {
+            linkTree(sourceDir.toPath(), stagingPath);
+            long sizeBytes = FileUtils.sizeOfDirectory(stagingPath.toFile());
+
+            synchronized (this) {
+                if (entries.containsKey(key)) return;
+
+                Path entryPath = cacheDirectory.resolve(key);
+                FileUtils.deleteQuietly(entryPath.toFile());
+                Files.move(stagingPath, entryPath, StandardCopyOption.ATOMIC_MOVE);
+
+                entries.put(key, new CacheEntry(entryPath, sizeBytes));
+                totalSizeBytes += sizeBytes;
+
+                evict();
+            }
+
+            log.debug("Cached " + sizeBytes + " bytes of app assets for " + software.getUniqueName() + " at " + key);
+        } catch (IOException e) {
+            log.error("Failed to cache app assets of " + software.getUniqueName() + " from " + sourceDir.getPath(), e);
+        } finally {
+            FileUtils.deleteQuietly(stagingPath.toFile());
+        }
+    }
+
+    /**
+     * @return the total size in bytes of all cached app assets
+     */
+    public synchronized long getSize() {
+        return totalSizeBytes;
+    }
+
+    /**
+     * Fetches the bundles of public apps published since the last scan into the cache. The first scan
+     * only records the time, as existing apps are cached as jobs use them.
+     */
+    protected void prefetchPublishedApps() {
+        try {
+            Date scanStart = new Date();
+            if (lastPrefetchScan != null) {
+                for (Software software : SoftwareDao.getPublicPublishedSince(lastPrefetchScan)) {
+                    if (contains(software)) continue;
+
+                    try {
+                        prefetch(software);
+                    } catch (Throwable e) {
+                        log.error("Failed to prefetch app assets of newly published app " +
+                                software.getUniqueName(), e);
+                    }
+                }
+            }
+            lastPrefetchScan = scanStart;
+        } catch (Throwable e) {
+            log.error("Failed to scan for newly published apps to add to the app asset cache", e);
+        } finally {
+            try { HibernateUtil.closeSession(); } catch (Exception ignored) {}
+        }
+    }
+
+    /**
+     * Downloads, verifies, and unpacks the public bundle of the given app, then adds it to the cache.
+     *
+     * @param software the public app to cache
+     * @throws Exception if the bundle cannot be fetched or unpacked
+     */
+    protected void prefetch(Software software) throws Exception {
+        StorageSystem storageSystem = software.getStorageSystem();
+        if (storageSystem == null || !storageSystem.isAvailable() ||
+                storageSystem.getStatus() != SystemStatusType.UP) {
+            log.debug("Skipping prefetch of " + software.getUniqueName() + ". The deployment system is unavailable.");
+            return;
+        }
+
+        TenancyHelper.setCurrentTenantId(software.getTenantId());
+
+        Files.createDirectories(cacheDirectory);
+        Path workPath = Files.createTempDirectory(cacheDirectory, STAGING_PREFIX + "prefetch-");
+        RemoteDataClient remoteDataClient = null;
+        try {
+            remoteDataClient = storageSystem.getRemoteDataClient();
+            remoteDataClient.authenticate();
+            remoteDataClient.get(software.getDeploymentPath(), workPath.toString());
+
+            File zippedFile = workPath.resolve(FilenameUtils.getName(software.getDeploymentPath())).toFile();
+            if (StringUtils.isNotBlank(software.getChecksum()) &&
+                    !StringUtils.equals(MD5Checksum.getMD5Checksum(zippedFile), software.getChecksum())) {
+                // launchers will report the change when the app is next used
+                log.debug("Skipping prefetch of " + software.getUniqueName() + ". The bundle checksum has changed.");
+                return;
+            }
+
+            Path unzippedPath = workPath.resolve("app");
+            ZipUtil.unzip(zippedFile, unzippedPath.toFile());
+
+            // bundles created from the deployment folder rather than its contents have their assets
+            // under a single enclosing directory. The cache holds the assets rooted at the executable path.
+            Path appPath = null;
+            if (Files.exists(unzippedPath.resolve(software.getExecutablePath()))) {
+                appPath = unzippedPath;
+            } else {
+                File[] unzippedFiles = unzippedPath.toFile().listFiles();
+                if (unzippedFiles != null) {
+                    for (File unzippedFileItem : unzippedFiles) {
+                        if (unzippedFileItem.isDirectory() &&
+                                Files.exists(unzippedFileItem.toPath().resolve(software.getExecutablePath()))) {
+                            appPath = unzippedFileItem.toPath();
+                            break;
+                        }
+                    }
+                }
+            }
+
+            if (appPath == null) {
+                log.debug("Skipping prefetch of " + software.getUniqueName() + ". The executable path was not found in the bundle.");
+                return;
+            }
+
+            store(software, appPath.toFile());
+        } finally {
+            if (remoteDataClient != null) remoteDataClient.disconnect();
+            FileUtils.deleteQuietly(workPath.toFile());
+        }
+    }
+
+    /**
+     * Evicts least recently used entries not in use until the cache fits its disk budget. Callers must
+     * hold the cache lock.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, CacheEntry>> iter = entries.entrySet().iterator();
+        while (totalSizeBytes > maxSizeBytes && iter.hasNext()) {
+            Map.Entry<String, CacheEntry> entry = iter.next();
+            if (entry.getValue().readers > 0) continue;
+
+            iter.remove();
+            totalSizeBytes -= entry.getValue().sizeBytes;
+            FileUtils.deleteQuietly(entry.getValue().path.toFile());
+
+            log.debug("Evicted app assets " + entry.getKey() + " from the app asset cache");
+        }
+    }
+
+    /**
+     * Loads entries left in the cache directory by a previous run, oldest first, and removes any
+     * directories that were still being written.
+     */
+    private void loadExistingEntries() {
+        File[] cachedDirs = cacheDirectory.toFile().listFiles();
+        if (cachedDirs == null) return;
+
+        List<File> entryDirs = new ArrayList<>();
+        for (File cachedDir : cachedDirs) {
+            if (cachedDir.getName().startsWith(STAGING_PREFIX) || !cachedDir.isDirectory()) {
+                FileUtils.deleteQuietly(cachedDir);
+            } else {
+                entryDirs.add(cachedDir);
+            }
+        }
+        entryDirs.sort(Comparator.comparingLong(File::lastModified));
+
+        synchronized (this) {
+            for (File entryDir : entryDirs) {
+                long sizeBytes = FileUtils.sizeOfDirectory(entryDir);
+                entries.put(entryDir.getName(), new CacheEntry(entryDir.toPath(), sizeBytes));
+                totalSizeBytes += sizeBytes;
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Recreates the directory tree at {@code source} under {@code target}, hard linking each file.
+     * Files are copied instead when a link cannot be created, such as across file systems. Existing
+     * files in the target are replaced.
+     *
+     * @param source the directory to link from
+     * @param target the directory to link into
+     * @throws IOException if the tree cannot be recreated
+     */
+    protected static void linkTree(final Path source, final Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path dest = target.resolve(source.relativize(file).toString());
+                Files.deleteIfExists(dest);
+                try {
+                    Files.createLink(dest, file);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(file, dest, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
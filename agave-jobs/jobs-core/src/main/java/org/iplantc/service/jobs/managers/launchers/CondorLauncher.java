@@ -1,12 +1,9 @@
 package org.iplantc.service.jobs.managers.launchers;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.apps.model.Software;
-import org.iplantc.service.apps.model.SoftwareInput;
-import org.iplantc.service.apps.model.SoftwareParameter;
 import org.iplantc.service.common.persistence.HibernateUtil;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.*;
@@ -416,67 +413,8 @@ public class CondorLauncher  extends AbstractJobLauncher {
 	 */
 	protected String resolveTemplateMacros(String appTemplate)
 	throws JobException, URISyntaxException, JobMacroResolutionException {
-		// replace the parameters with their passed in values
-		JsonNode jobParameters = getJob().getParametersAsJsonObject();
-		
-		for (SoftwareParameter param: getSoftware().getParameters())
-		{
-			if (jobParameters.has(param.getKey())) 
-			{
-				JsonNode jobJsonParam = jobParameters.get(param.getKey());
-
-				// serialized the runtime parameters into a string of space-delimited 
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareParameterValueIntoTemplateVariableValue(param, jobJsonParam);
-				
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + param.getKey() + "\\}", templateVariableValue);
-			}
-			else if (!param.isVisible())
-			{
-				// serialized the runtime parameters into a string of space-delimited 
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareParameterValueIntoTemplateVariableValue(param, param.getDefaultValueAsJsonArray());
-				
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + param.getKey() + "\\}", templateVariableValue);
-			}
-			else 
-			{
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + param.getKey() + "\\}", "");
-			}
-		}
-		
-		// replace the parameters with their passed in values
-		JsonNode jobInputs = getJob().getInputsAsJsonObject();
-		
-		for (SoftwareInput input: getSoftware().getInputs())
-		{
-			if (jobInputs.has(input.getKey())) 
-			{
-				JsonNode jobJsonInput = jobInputs.get(input.getKey());
-
-				// serialized the runtime parameters into a string of space-delimited 
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareInputValueIntoTemplateVariableValue(input, jobJsonInput);
-				
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + input.getKey() + "\\}", templateVariableValue);
-			}
-			else if (!input.isVisible())
-			{
-				// serialized the runtime parameters into a string of space-delimited 
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareInputValueIntoTemplateVariableValue(input, input.getDefaultValueAsJsonArray());
-				
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + input.getKey() + "\\}", templateVariableValue);
-			}
-			else 
-			{
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + input.getKey() + "\\}", "");
-			}
-		}
+		// replace the parameters and inputs with their passed in values
+		appTemplate = resolveJobRequestTemplateVariables(appTemplate);
 		
 		// strip out all references to icommands and it irods shadow files
 		if (getExecutionSystem().isPubliclyAvailable()) {
@@ -484,15 +422,9 @@ public class CondorLauncher  extends AbstractJobLauncher {
 		}
 		
 		// strip out premature completion callbacks that might result in archiving starting before
-		// the script exists.
-		appTemplate = filterRuntimeStatusMacros(appTemplate);
-		
-		// Replace all the runtime callback notifications
-		appTemplate = resolveRuntimeNotificationMacros(appTemplate);
-
-        // Replace all the agave job attribute macros
-		appTemplate = resolveMacros(appTemplate);
-		return appTemplate;
+		// the script exists, then replace all the runtime callback notifications and agave job
+		// attribute macros
+		return resolveWrapperTemplateMacros(appTemplate);
 	}
 
     /**
@@ -0,0 +1,450 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.*;
+import org.iplantc.service.jobs.managers.JobLeaseManager;
+import org.iplantc.service.jobs.managers.JobManager;
+import org.iplantc.service.jobs.managers.JobQuotaCheck;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.JobEvent;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.jobs.model.scripts.SubmitScript;
+import org.iplantc.service.jobs.model.scripts.SubmitScriptFactory;
+import org.iplantc.service.jobs.util.Slug;
+import org.iplantc.service.systems.exceptions.SystemUnavailableException;
+import org.iplantc.service.systems.exceptions.SystemUnknownException;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.systems.model.enumerations.SchedulerType;
+import org.joda.time.DateTime;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Submits the child jobs of a job array to the scheduler as a single native job array. The job
+ * handed to this launcher by the submission queue leads the array. Any other child jobs of the
+ * same array which are waiting in the {@link JobStatusType#STAGED} state are claimed and staged
+ * alongside it, then all of them are submitted with one scheduler call. Each array task runs the
+ * wrapper script of its own child job in that job's work directory, so status callbacks,
+ * monitoring, and archiving continue to work per child job.
+ *
+ * @see SchedulerType#isJobArraySupported()
+ */
+public class HPCArrayLauncher extends HPCLauncher
+{
+	private static final Logger log = Logger.getLogger(HPCArrayLauncher.class);
+
+	/**
+	 * Default no-args constructor for mock testing
+	 */
+	protected HPCArrayLauncher() {
+		super();
+	}
+
+	/**
+	 * Creates an instance of a JobLauncher capable of submitting the child jobs of a job array
+	 * to batch queuing systems on HPC resources.
+	 * @param job the job to launch
+	 * @param software the software corresponding to the {@link Job#getSoftwareName()}
+	 * @param executionSystem the system corresponding to the {@link Job#getSystem()}
+	 */
+	public HPCArrayLauncher(Job job, Software software, ExecutionSystem executionSystem) {
+		super(job, software, executionSystem);
+	}
+
+	/*
+	 * Put the job and its staged siblings in the batch scheduling queue as one job array.
+	 *
+	 * @throws IOException when there is an issue parsing or locating the application template and deployment assets.
+	 * @throws JobException when an error occurs interacting with the remote system or updating the job details.
+	 * @throws SchedulerException when the scheduler on the {@link ExecutionSystem} rejects the job.
+	 * @throws SoftwareUnavailableException when the job software is disabled, or deployment assets are missing.
+	 * @throws SystemUnavailableException when one or more dependent systems is unavailable.
+	 * @throws SystemUnknownException when a dependent system (job execution, software deployment, etc) are no longer in the db.
+	 */
+	@Override
+	public void launch() throws IOException, JobException, SoftwareUnavailableException, SchedulerException, SystemUnknownException, SystemUnavailableException
+	{
+		List<Job> siblings = claimSiblingJobs();
+		if (siblings.isEmpty()) {
+			super.launch();
+			return;
+		}
+
+		try
+		{
+			List<HPCLauncher> taskLaunchers;
+			try
+			{
+				taskLaunchers = stageJobArray(siblings);
+			}
+			catch (IOException | JobException | SoftwareUnavailableException | SchedulerException | SystemUnknownException | SystemUnavailableException | RuntimeException e)
+			{
+				// nothing was submitted, so the lead job is handled by the submission queue and
+				// the siblings still claimed go back to wait their turn.
+				for (Job sibling: siblings) {
+					if (sibling.getStatus() == JobStatusType.SUBMITTING) {
+						releaseJob(sibling, "Job array submission with job " + getJob().getUuid() +
+								" failed. " + e.getMessage());
+					}
+				}
+				throw e;
+			}
+
+			submitJobArray(taskLaunchers);
+		}
+		finally
+		{
+			for (Job sibling: siblings) {
+				JobLeaseManager.getInstance().release(sibling);
+			}
+			FileUtils.deleteQuietly(getTempAppDir());
+			if (getRemoteExecutionDataClient() != null) { getRemoteExecutionDataClient().disconnect(); }
+			try { HibernateUtil.closeSession(); } catch (Exception ignored) {}
+		}
+	}
+
+	/**
+	 * Stages this job and the claimed siblings, then writes the job array batch script to the
+	 * remote work directory of this job. Siblings which fail to stage are released right away
+	 * and left out of the array.
+	 *
+	 * @param siblings the claimed sibling jobs
+	 * @return the launchers of the staged jobs in array task order, starting with this one
+	 */
+	protected List<HPCLauncher> stageJobArray(List<Job> siblings)
+	throws IOException, JobException, SoftwareUnavailableException, SchedulerException, SystemUnknownException, SystemUnavailableException
+	{
+		List<HPCLauncher> taskLaunchers = new ArrayList<HPCLauncher>();
+
+		stageJobAssets();
+		taskLaunchers.add(this);
+
+		for (Job sibling: siblings) {
+			ArrayTaskLauncher taskLauncher = new ArrayTaskLauncher(sibling, this);
+			try {
+				taskLauncher.stageJobAssets();
+				taskLaunchers.add(taskLauncher);
+			} catch (ClosedByInterruptException e) {
+				throw e;
+			} catch (Exception e) {
+				log.error("Failed to stage job " + sibling.getUuid() + " of job array " +
+						getJob().getArrayUuid() + ". It will be submitted separately.", e);
+				releaseJob(sibling, "Failed to stage job as part of job array " + getJob().getArrayUuid() +
+						". " + e.getMessage());
+			} finally {
+				FileUtils.deleteQuietly(taskLauncher.getTempAppDir());
+			}
+			checkStopped();
+		}
+
+		// the lead job's wrapper is replaced with the array dispatch script for submission
+		String arrayScriptName = Slug.toSlug(getJob().getName()) + "-array.ipcexe";
+		writeToRemoteJobDir(arrayScriptName, processJobArrayScript(taskLaunchers));
+		setBatchScriptName(arrayScriptName);
+
+		return taskLaunchers;
+	}
+
+	/**
+	 * Submits the staged jobs to the scheduler as one job array and saves the scheduler ids of
+	 * every job in a single transaction. Status events are only processed once the jobs are
+	 * saved. If the array never reaches the scheduler, the siblings are released back to the
+	 * submission queue. Once it has, releasing them would run their tasks twice, so each
+	 * sibling is reconciled with its array task instead.
+	 *
+	 * @param taskLaunchers the launchers of the staged jobs in array task order, starting with this one
+	 */
+	protected void submitJobArray(List<HPCLauncher> taskLaunchers)
+	throws IOException, JobException, SchedulerException
+	{
+		SchedulerType scheduler = getExecutionSystem().getScheduler();
+		String arrayJobId = null;
+		List<Job> jobs = new ArrayList<Job>();
+		try
+		{
+			checkStopped();
+
+			arrayJobId = submitJobToQueue();
+
+			Map<String, JobStatusType> previousStatuses = new HashMap<String, JobStatusType>();
+			for (int i = 0; i < taskLaunchers.size(); i++) {
+				HPCLauncher taskLauncher = taskLaunchers.get(i);
+				Job job = taskLauncher.getJob();
+				previousStatuses.put(job.getUuid(), JobStatusType.SUBMITTING);
+
+				job.setSchedulerJobId(arrayJobId);
+				job.setSubmitTime(new DateTime().toDate());   // Date job submitted to queue
+				job.setLastUpdated(new DateTime().toDate());  // Date job started by queue
+				job.setLocalJobId(scheduler.getJobArrayTaskId(arrayJobId, scheduler.getJobArrayFirstTaskIndex() + i));
+
+				job.deferEventProcessing();
+				jobs.add(job);
+				taskLauncher.checkJobStatus();
+			}
+
+			saveSubmittedJobs(jobs, previousStatuses);
+
+			for (Job job: jobs) {
+				job.processDeferredEvents();
+			}
+
+			log.info("Submitted " + jobs.size() + " jobs of job array " + getJob().getArrayUuid() +
+					" to " + getJob().getSystem() + " as array job " + arrayJobId);
+		}
+		catch (IOException | JobException | SchedulerException | RuntimeException e)
+		{
+			for (Job job: jobs) {
+				job.discardDeferredEvents();
+			}
+
+			// the lead job is handled by the submission queue.
+			for (int i = 0; i < taskLaunchers.size(); i++) {
+				HPCLauncher taskLauncher = taskLaunchers.get(i);
+				if (taskLauncher == this) continue;
+
+				if (arrayJobId == null) {
+					releaseJob(taskLauncher.getJob(), "Job array submission with job " + getJob().getUuid() +
+							" failed. " + e.getMessage());
+				} else {
+					reconcileSubmittedJob(taskLauncher.getJob(), arrayJobId,
+							scheduler.getJobArrayTaskId(arrayJobId, scheduler.getJobArrayFirstTaskIndex() + i),
+							e.getMessage());
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Saves the jobs of a submitted job array in a single transaction.
+	 *
+	 * @param jobs the submitted jobs
+	 * @param previousStatuses the status of each job, by uuid, when it was last saved
+	 * @throws JobException if unable to save the jobs
+	 */
+	protected void saveSubmittedJobs(List<Job> jobs, Map<String, JobStatusType> previousStatuses)
+	throws JobException
+	{
+		JobDao.persistAll(jobs, previousStatuses);
+	}
+
+	/**
+	 * Claims the other staged child jobs of the array to submit with this one. The number claimed
+	 * is limited by {@link Settings#JOB_ARRAY_SUBMISSION_BATCH_SIZE} and the remaining job quota
+	 * of the user and system, so the array never pushes them over capacity. The claim is recorded
+	 * in the history of each claimed job.
+	 *
+	 * @return the claimed sibling jobs, or an empty list if there are none
+	 * @throws JobException if the jobs cannot be claimed
+	 */
+	protected List<Job> claimSiblingJobs() throws JobException
+	{
+		int limit = Settings.JOB_ARRAY_SUBMISSION_BATCH_SIZE - 1;
+		limit = Math.min(limit, new JobQuotaCheck().getRemainingCapacity(getJob(), getExecutionSystem()) - 1);
+
+		JobLeaseManager leaseManager = JobLeaseManager.getInstance();
+		List<Job> siblings = JobDao.claimStagedArrayJobs(getJob().getArrayUuid(), limit,
+				leaseManager.getLeaseOwner(), leaseManager.getLeaseDurationSecs());
+		if (siblings.isEmpty()) return siblings;
+
+		Map<String, JobStatusType> previousStatuses = new HashMap<String, JobStatusType>();
+		for (Job sibling: siblings) {
+			// losing the lease on any sibling means it was rolled back, so the array must not be submitted
+			leaseManager.track(sibling, () -> setStopped(true));
+			previousStatuses.put(sibling.getUuid(), JobStatusType.SUBMITTING);
+
+			sibling.deferEventProcessing();
+			sibling.addEvent(new JobEvent(JobStatusType.SUBMITTING,
+					"Job claimed for submission with job " + getJob().getUuid() +
+					" as part of job array " + getJob().getArrayUuid(), getJob().getOwner()));
+		}
+
+		try {
+			JobDao.persistAll(siblings, previousStatuses);
+		} catch (JobException | RuntimeException e) {
+			log.error("Failed to record the claim of " + siblings.size() + " jobs of job array " +
+					getJob().getArrayUuid() + ". They will be submitted separately.", e);
+			for (Job sibling: siblings) {
+				sibling.discardDeferredEvents();
+				releaseJob(sibling, "Failed to claim job for submission as part of job array " +
+						getJob().getArrayUuid() + ". " + e.getMessage());
+				leaseManager.release(sibling);
+			}
+			return new ArrayList<Job>();
+		}
+
+		for (Job sibling: siblings) {
+			sibling.processDeferredEvents();
+		}
+
+		return siblings;
+	}
+
+	/**
+	 * Returns a claimed sibling to the {@link JobStatusType#STAGED} state so it is picked up
+	 * again by the submission queue.
+	 *
+	 * @param job the sibling job to release
+	 * @param message the reason the job was released
+	 */
+	protected void releaseJob(Job job, String message)
+	{
+		try {
+			job.setSchedulerJobId(null);
+			JobManager.updateStatus(job, JobStatusType.STAGED, message);
+		} catch (Exception e) {
+			log.error("Failed to return job " + job.getUuid() + " of job array " + job.getArrayUuid() +
+					" to the submission queue.", e);
+		}
+	}
+
+	/**
+	 * Records the array task of a sibling whose job array reached the scheduler, but whose
+	 * submission could not be saved with the rest of the array. The job is reloaded and saved
+	 * on its own. If that fails too, the job is failed rather than released, since its task
+	 * is already in the scheduler queue.
+	 *
+	 * @param job the sibling job submitted with the array
+	 * @param arrayJobId the scheduler id of the job array
+	 * @param taskId the scheduler id of the array task running the job
+	 * @param reason the reason the array submission could not be saved
+	 */
+	protected void reconcileSubmittedJob(Job job, String arrayJobId, String taskId, String reason)
+	{
+		Job currentJob = null;
+		try {
+			currentJob = JobDao.getByUuid(job.getUuid());
+			JobStatusType previousStatus = currentJob.getStatus();
+
+			currentJob.setSchedulerJobId(arrayJobId);
+			currentJob.setLocalJobId(taskId);
+			currentJob.setSubmitTime(new DateTime().toDate());
+			currentJob.deferEventProcessing();
+			if (previousStatus == JobStatusType.SUBMITTING) {
+				currentJob.setStatus(JobStatusType.QUEUED, "HPC job " + currentJob.getUuid() +
+						" successfully placed into " + currentJob.getBatchQueue() + " queue as task " +
+						taskId + " of array job " + arrayJobId);
+			}
+
+			JobDao.persist(currentJob, true, previousStatus);
+			currentJob.processDeferredEvents();
+			return;
+		} catch (Exception e) {
+			if (currentJob != null) currentJob.discardDeferredEvents();
+			log.error("Failed to record the submission of job " + job.getUuid() + " as task " + taskId +
+					" of array job " + arrayJobId + ". The job will be failed.", e);
+		}
+
+		try {
+			currentJob = JobDao.getByUuid(job.getUuid());
+			JobManager.updateStatus(currentJob, JobStatusType.FAILED, "Job was submitted as task " + taskId +
+					" of array job " + arrayJobId + ", but its submission could not be recorded. " + reason);
+		} catch (Exception e) {
+			log.error("Failed to fail job " + job.getUuid() + " after its submission as task " + taskId +
+					" of array job " + arrayJobId + " could not be recorded.", e);
+		}
+	}
+
+	/**
+	 * Creates the batch script submitted for the job array. The scheduler directives are taken
+	 * from the lead job and extended with the array directive. Each array task changes into the
+	 * work directory of its child job and runs that job's wrapper script, writing to the same
+	 * output files the child job would use when submitted on its own.
+	 *
+	 * @param taskLaunchers the launchers of the child jobs in array task order
+	 * @return the content of the job array batch script
+	 * @throws JobException if the script cannot be generated
+	 */
+	protected String processJobArrayScript(List<HPCLauncher> taskLaunchers) throws JobException
+	{
+		SchedulerType scheduler = getExecutionSystem().getScheduler();
+
+		try {
+			SubmitScript script = getSubmitScript(getJob());
+			script.setStandardOutputFile(script.getName() + "-" + getJob().getArrayUuid() + ".out");
+			script.setStandardErrorFile(script.getName() + "-" + getJob().getArrayUuid() + ".err");
+
+			String header = script.getScriptText();
+			int firstLineEnd = header.indexOf('\n') + 1;
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(header, 0, firstLineEnd);
+			sb.append(scheduler.getJobArrayDirective(taskLaunchers.size())).append("\n");
+			sb.append(header.substring(firstLineEnd));
+			sb.append("\n");
+			sb.append("# Run the wrapper script of the job assigned to this array task\n");
+			sb.append("case \"${").append(scheduler.getJobArrayTaskIdVariable()).append("}\" in\n");
+
+			for (int i = 0; i < taskLaunchers.size(); i++) {
+				HPCLauncher taskLauncher = taskLaunchers.get(i);
+				SubmitScript taskScript = getSubmitScript(taskLauncher.getJob());
+
+				sb.append("  ").append(scheduler.getJobArrayFirstTaskIndex() + i).append(") ")
+				  .append("cd '").append(taskLauncher.getAbsoluteRemoteJobDirPath()).append("' && ")
+				  .append("exec bash ./").append(taskLauncher.getBatchScriptName())
+				  .append(" > ").append(taskScript.getStandardOutputFile())
+				  .append(" 2> ").append(taskScript.getStandardErrorFile())
+				  .append(" ;;\n");
+			}
+
+			sb.append("  *) echo \"Unknown job array task ${").append(scheduler.getJobArrayTaskIdVariable())
+			  .append("}\" >&2; exit 1 ;;\n");
+			sb.append("esac\n");
+
+			return sb.toString();
+		}
+		catch (Exception e) {
+			throw new JobException("Failed to create the batch script for job array " +
+					getJob().getArrayUuid() + ". " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param job the job whose batch script is needed
+	 * @return the submit script of the job on the execution system of this launcher
+	 */
+	protected SubmitScript getSubmitScript(Job job)
+	{
+		return SubmitScriptFactory.getInstance(job, getSoftware(), getExecutionSystem());
+	}
+
+	/**
+	 * Launcher used to stage a sibling job of the array. It shares the remote connection of the
+	 * lead launcher and copies the app assets the lead already fetched rather than fetching them
+	 * again from the app deployment system.
+	 */
+	protected static class ArrayTaskLauncher extends HPCLauncher
+	{
+		private final File leadTempAppDir;
+
+		protected ArrayTaskLauncher(Job job, HPCArrayLauncher leadLauncher) {
+			super(job, leadLauncher.getSoftware(), leadLauncher.getExecutionSystem());
+			this.leadTempAppDir = leadLauncher.getTempAppDir();
+			setRemoteExecutionDataClient(leadLauncher.getRemoteExecutionDataClient());
+		}
+
+		@Override
+		protected void copySoftwareToTempAppDir() throws JobException {
+			step = "Copying app assets for job " + getJob().getUuid() + " from local temp directory " +
+					leadTempAppDir.getPath();
+
+			try {
+				FileUtils.copyDirectory(leadTempAppDir, getTempAppDir());
+			} catch (IOException e) {
+				throw new JobException("Failed to copy app assets for job " + getJob().getUuid() +
+						" to temp application directory " + getTempAppDir().getPath(), e);
+			}
+		}
+	}
+}
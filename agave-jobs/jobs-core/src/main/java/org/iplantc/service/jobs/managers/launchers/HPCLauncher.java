@@ -3,13 +3,10 @@
  */
 package org.iplantc.service.jobs.managers.launchers;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.apps.model.Software;
-import org.iplantc.service.apps.model.SoftwareInput;
-import org.iplantc.service.apps.model.SoftwareParameter;
 import org.iplantc.service.common.persistence.HibernateUtil;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.*;
@@ -91,58 +88,10 @@ public class HPCLauncher extends AbstractJobLauncher
 	@Override
 	public void launch() throws IOException, JobException, SoftwareUnavailableException, SchedulerException, SystemUnknownException, SystemUnavailableException
 	{
-		File tempAppDir = null;
 		try
 		{
-			try {
-				if (getRemoteExecutionDataClient() == null) {
-					setRemoteExecutionDataClient(getExecutionSystem().getRemoteDataClient(getJob().getInternalUsername()));
-					getRemoteExecutionDataClient().authenticate();
-				}
-			} catch (IOException | RemoteDataException | RemoteCredentialException e) {
-				String msg = "Failed to create a remote connection to " + getJob().getSystem() +
-						". App assets cannot be staged to the job execution system.";
-				throw new JobException(msg, e);
-			}
-
-			// Calculate and sets the remote job path if not already set. This folder could not exist at this
-			// point if the job had no inputs to stage in. We create the directory here just to ensure it's
-			// present when we write the wrapper template
-			String remoteJobWorkPath = calculateRemoteJobPath();
-			createJobRemoteWorkPath(getExecutionSystem(), getRemoteExecutionDataClient(), remoteJobWorkPath);
-			getJob().setWorkPath(remoteJobWorkPath);
-
-
-			// sets up the application directory to execute this job launch; see comments in method
-            createTempAppDir();
-            
-            checkStopped();
-            
-            // copy our application package from the software.deploymentPath to our tempAppDir
-            copySoftwareToTempAppDir();
-            
-            checkStopped();
-
-            // prepend the application template with call back to let the Job service know the job has started
-            // parse the application template and replace tokens with the inputs, parameters and outputs.
-            String applicationWrapperContent = processApplicationWrapperTemplate();
-			writeToRemoteJobDir(getBatchScriptName(), applicationWrapperContent);
-			
-            checkStopped();
+			stageJobAssets();
 
-
-            // create the shadow file containing the exclusion files for archiving
-            String jobArchiveManifestContent = processJobArchiveManifest();
-			writeToRemoteJobDir(ARCHIVE_FILENAME, jobArchiveManifestContent);
-
-            checkStopped();
-
-
-            // copy the local temp directory to the remote system
-            stageSofwareApplication();
-			
-            checkStopped();
-            
             String remoteJobId = submitJobToQueue();
             
             getJob().setSubmitTime(new DateTime().toDate());   // Date job submitted to queue
@@ -176,6 +125,69 @@ public class HPCLauncher extends AbstractJobLauncher
 		}
 	}
 
+	/**
+	 * Prepares the job work directory on the execution system for submission. This fetches the app
+	 * assets, resolves the wrapper template and archive manifest, and stages everything to the
+	 * remote job work directory. Nothing is submitted to the scheduler.
+	 *
+	 * @throws IOException when there is an issue parsing or locating the application template and deployment assets.
+	 * @throws JobException when an error occurs interacting with the remote system or updating the job details.
+	 * @throws SoftwareUnavailableException when the job software is disabled, or deployment assets are missing.
+	 * @throws SystemUnavailableException when one or more dependent systems is unavailable.
+	 * @throws SystemUnknownException when a dependent system (job execution, software deployment, etc) are no longer in the db.
+	 */
+	protected void stageJobAssets() throws IOException, JobException, SoftwareUnavailableException, SystemUnknownException, SystemUnavailableException
+	{
+		try {
+			if (getRemoteExecutionDataClient() == null) {
+				setRemoteExecutionDataClient(getExecutionSystem().getRemoteDataClient(getJob().getInternalUsername()));
+				getRemoteExecutionDataClient().authenticate();
+			}
+		} catch (IOException | RemoteDataException | RemoteCredentialException e) {
+			String msg = "Failed to create a remote connection to " + getJob().getSystem() +
+					". App assets cannot be staged to the job execution system.";
+			throw new JobException(msg, e);
+		}
+
+		// Calculate and sets the remote job path if not already set. This folder could not exist at this
+		// point if the job had no inputs to stage in. We create the directory here just to ensure it's
+		// present when we write the wrapper template
+		String remoteJobWorkPath = calculateRemoteJobPath();
+		createJobRemoteWorkPath(getExecutionSystem(), getRemoteExecutionDataClient(), remoteJobWorkPath);
+		getJob().setWorkPath(remoteJobWorkPath);
+
+
+		// sets up the application directory to execute this job launch; see comments in method
+        createTempAppDir();
+        
+        checkStopped();
+        
+        // copy our application package from the software.deploymentPath to our tempAppDir
+        copySoftwareToTempAppDir();
+        
+        checkStopped();
+
+        // prepend the application template with call back to let the Job service know the job has started
+        // parse the application template and replace tokens with the inputs, parameters and outputs.
+        String applicationWrapperContent = processApplicationWrapperTemplate();
+		writeToRemoteJobDir(getBatchScriptName(), applicationWrapperContent);
+		
+        checkStopped();
+
+
+        // create the shadow file containing the exclusion files for archiving
+        String jobArchiveManifestContent = processJobArchiveManifest();
+		writeToRemoteJobDir(ARCHIVE_FILENAME, jobArchiveManifestContent);
+
+        checkStopped();
+
+
+        // copy the local temp directory to the remote system
+        stageSofwareApplication();
+		
+        checkStopped();
+	}
+
 	/**
 	 * Checks to see if the job already started running right after submission. This can happen when a callback
 	 * comes in immediately and is processed prior to the job submission process completing.
@@ -282,23 +294,18 @@ public class HPCLauncher extends AbstractJobLauncher
             			  "# Begin App Wrapper Template Logic \n" +
 					      "##########################################################\n\n";
 
-            // read in the template file
-			appTemplate += getAppTemplateFileContents();
-
-			// replace parameters
-			appTemplate = resolveJobRequestParameters(appTemplate);
-
-			// replace inputs
-			appTemplate = resolveJobRequestInputs(appTemplate);
+            // read in the template file and replace the parameters and inputs
+			String wrapperTemplate = resolveJobRequestTemplateVariables(getAppTemplateFileContents());
 
 			// strip out all references to banned commands such as icommands, etc
 			if (getExecutionSystem().isPubliclyAvailable()) {
-				appTemplate = CommandStripper.strip(appTemplate); 
+				wrapperTemplate = CommandStripper.strip(wrapperTemplate);
 			}
 			
 			// strip out premature completion callbacks that might result in archiving starting before
-			// the script exists.
-			appTemplate = filterRuntimeStatusMacros(appTemplate);
+			// the script exists, then replace all the runtime callback notifications and agave job
+			// attribute macros
+			appTemplate += resolveWrapperTemplateMacros(wrapperTemplate);
 			
 			// add the success statement after the template by default. The user can add failure catches
 			// in their scripts that will trump a later success status.
@@ -307,13 +314,7 @@ public class HPCLauncher extends AbstractJobLauncher
             		"# End App Wrapper Template Logic \n" +
             		"##########################################################\n\n" +
             		"# Callback to signal the job has completed all user-defined logic\n" +
-            		"${AGAVE_JOB_CALLBACK_CLEANING_UP}";
-           
-			// Replace all the runtime callback notifications
-			appTemplate = resolveRuntimeNotificationMacros(appTemplate);
-						
-			// Replace all the agave job attribute macros
-			appTemplate = resolveMacros(appTemplate);
+            		resolveMacros("${AGAVE_JOB_CALLBACK_CLEANING_UP}");
 			
 			batchWriter.write(appTemplate);
 			batchWriter.write("\n\n");
@@ -388,89 +389,6 @@ public class HPCLauncher extends AbstractJobLauncher
 		return getRemoteExecutionDataClient().resolvePath(getJob().getWorkPath());
 	}
 
-	/**
-	 * Filters the app template with the parameter values from the job request
-	 * @param appTemplate the app wrapper template content
-	 * @return the filtered content
-	 * @throws JobException if the parameters cannot be fetched as a JsonObject
-	 */
-	protected String resolveJobRequestParameters(String appTemplate) throws JobException {
-		// replace the parameters with their passed in values
-		JsonNode jobParameters = getJob().getParametersAsJsonObject();
-
-		for (SoftwareParameter param: getSoftware().getParameters())
-		{
-			if (jobParameters.has(param.getKey()))
-			{
-				JsonNode jobJsonParam = jobParameters.get(param.getKey());
-
-				// serialized the runtime parameters into a string of space-delimited
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareParameterValueIntoTemplateVariableValue(param, jobJsonParam);
-
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + param.getKey() + "\\}", templateVariableValue);
-			}
-			else if (!param.isVisible())
-			{
-				// serialized the runtime parameters into a string of space-delimited
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareParameterValueIntoTemplateVariableValue(param, param.getDefaultValueAsJsonArray());
-
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + param.getKey() + "\\}", templateVariableValue);
-			}
-			else
-			{
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + param.getKey() + "\\}", "");
-			}
-		}
-
-		return appTemplate;
-	}
-
-	/**
-	 * Filters the app template with the input values from the job request
-	 *
-	 * @param appTemplate the app wrapper template content
-	 * @return the filtered content
-	 * @throws JobException if the parameters cannot be fetched as a JsonObject
-	 */
-	protected String resolveJobRequestInputs(String appTemplate) throws JobException, URISyntaxException {
-		// replace the parameters with their passed in values
-		JsonNode jobInputs = getJob().getInputsAsJsonObject();
-
-		for (SoftwareInput input: getSoftware().getInputs())
-		{
-			if (jobInputs.has(input.getKey()))
-			{
-				JsonNode jobJsonInput = jobInputs.get(input.getKey());
-
-				// serialized the runtime parameters into a string of space-delimited
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareInputValueIntoTemplateVariableValue(input, jobJsonInput);
-
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + input.getKey() + "\\}", templateVariableValue);
-			}
-			else if (!input.isVisible())
-			{
-				// serialized the runtime parameters into a string of space-delimited
-				// values after enquoting and adding relevant argument(s)
-				String templateVariableValue = parseSoftwareInputValueIntoTemplateVariableValue(input, input.getDefaultValueAsJsonArray());
-
-				// now actually filter the template for this parameter
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + input.getKey() + "\\}", templateVariableValue);
-			}
-			else
-			{
-				appTemplate = appTemplate.replaceAll("(?i)\\$\\{" + input.getKey() + "\\}", "");
-			}
-		}
-
-		return appTemplate;
-	}
-
 	/**
 	 * Reads the contents of the app wrapper template already staged to the server host.
 	 *
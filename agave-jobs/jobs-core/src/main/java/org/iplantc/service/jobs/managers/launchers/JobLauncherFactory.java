@@ -3,6 +3,7 @@
  */
 package org.iplantc.service.jobs.managers.launchers;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.apps.exceptions.UnknownSoftwareException;
 import org.iplantc.service.apps.model.Software;
@@ -63,6 +64,10 @@ public class JobLauncherFactory
 
 		// now submit the job to the target system using the correct launcher.
 		if (software.getExecutionType().equals(ExecutionType.HPC)){
+			// child jobs of a job array are submitted together as a native array when the scheduler allows it
+			if (StringUtils.isNotEmpty(job.getArrayUuid()) && executionSystem.getScheduler().isJobArraySupported()) {
+				return new HPCArrayLauncher(job, software, executionSystem);
+			}
 			return new HPCLauncher(job, software, executionSystem);
 		}else if (software.getExecutionType().equals(ExecutionType.CONDOR)) {
 			return new CondorLauncher(job, software, executionSystem);
@@ -0,0 +1,197 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.apache.commons.lang.StringUtils;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.exceptions.JobMacroResolutionException;
+
+import java.util.*;
+
+/**
+ * Immutable, tokenized form of a wrapper template. The template is split once into literal text and
+ * {@code ${NAME}} variable references so it can be rendered any number of times in a single pass over
+ * the segments rather than searching and rewriting the whole template once per variable. Values are
+ * inserted verbatim and are never rescanned for variables, so they may safely contain {@code $},
+ * {@code \} or other variable references.
+ *
+ * Templates parsed from an app's wrapper are cached per {@link Software} revision by
+ * {@link #forSoftware(Software, String)}, so every job of the same app reuses the same parsed form.
+ */
+public class WrapperTemplate {
+
+    /**
+     * Looks up the value of a template variable during {@link #render(VariableResolver)}.
+     */
+    public interface VariableResolver {
+
+        /**
+         * @param name the text between the braces of the variable reference
+         * @return the value to insert, or null to leave the variable reference in place unchanged
+         * @throws JobMacroResolutionException when the variable cannot be resolved
+         */
+        String resolve(String name) throws JobMacroResolutionException;
+    }
+
+    private static final String VARIABLE_PREFIX = "${";
+    private static final String VARIABLE_SUFFIX = "}";
+
+    private static final Map<String, WrapperTemplate> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, WrapperTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, WrapperTemplate> eldest) {
+                    return size() > Settings.WRAPPER_TEMPLATE_CACHE_SIZE;
+                }
+            });
+
+    private final String source;
+    // literal segments are stored as-is, variable segments as their name. isVariable marks which is which.
+    private final String[] segments;
+    private final boolean[] isVariable;
+    private final Set<String> variableNames;
+
+    private WrapperTemplate(String source, List<String> segments, List<Boolean> isVariable) {
+        this.source = source;
+        this.segments = segments.toArray(new String[0]);
+        this.isVariable = new boolean[this.segments.length];
+        Set<String> names = new LinkedHashSet<String>();
+        for (int i = 0; i < this.segments.length; i++) {
+            this.isVariable[i] = isVariable.get(i);
+            if (this.isVariable[i]) {
+                names.add(this.segments[i]);
+            }
+        }
+        this.variableNames = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Tokenizes the given template. A variable is the text between a {@code ${} and the next
+     * {@code }}. When another {@code ${} appears before the closing brace, as in the shell expansion
+     * {@code ${FOO:-${BAR}}}, the outer reference is kept as literal text and only the innermost
+     * reference is treated as a variable. An unterminated {@code ${} is literal text.
+     *
+     * @param template the template to parse
+     * @return the parsed template
+     */
+    public static WrapperTemplate parse(String template) {
+        String source = template == null ? "" : template;
+        List<String> segments = new ArrayList<String>();
+        List<Boolean> isVariable = new ArrayList<Boolean>();
+
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf(VARIABLE_PREFIX, position);
+            if (start == -1) {
+                literal.append(source, position, source.length());
+                break;
+            }
+
+            int end = source.indexOf(VARIABLE_SUFFIX, start + VARIABLE_PREFIX.length());
+            if (end == -1) {
+                literal.append(source, position, source.length());
+                break;
+            }
+
+            int nested = source.indexOf(VARIABLE_PREFIX, start + VARIABLE_PREFIX.length());
+            if (nested != -1 && nested < end) {
+                // keep the outer reference as text and resume at the inner one
+                literal.append(source, position, nested);
+                position = nested;
+                continue;
+            }
+
+            literal.append(source, position, start);
+            if (literal.length() > 0) {
+                segments.add(literal.toString());
+                isVariable.add(false);
+                literal.setLength(0);
+            }
+            segments.add(source.substring(start + VARIABLE_PREFIX.length(), end));
+            isVariable.add(true);
+            position = end + VARIABLE_SUFFIX.length();
+        }
+
+        if (literal.length() > 0) {
+            segments.add(literal.toString());
+            isVariable.add(false);
+        }
+
+        return new WrapperTemplate(source, segments, isVariable);
+    }
+
+    /**
+     * Returns the parsed form of a {@link Software} wrapper template, reusing a previous parse of the same
+     * app revision and content when available. The content is part of the cache key and is compared on
+     * every hit, so an edited wrapper or a different template rendered for the same app is never served
+     * a stale parse.
+     *
+     * @param software the app whose template is being parsed
+     * @param template the template content
+     * @return the parsed template
+     */
+    public static WrapperTemplate forSoftware(Software software, String template) {
+        if (software == null || StringUtils.isEmpty(software.getUuid())
+                || Settings.WRAPPER_TEMPLATE_CACHE_SIZE <= 0 || template == null) {
+            return parse(template);
+        }
+
+        String key = software.getUuid() + ":" + software.getRevisionCount() + ":"
+                + (software.getLastUpdated() == null ? 0 : software.getLastUpdated().getTime()) + ":"
+                + template.length() + ":" + template.hashCode();
+
+        WrapperTemplate parsedTemplate = cache.get(key);
+        if (parsedTemplate == null || !parsedTemplate.source.equals(template)) {
+            parsedTemplate = parse(template);
+            cache.put(key, parsedTemplate);
+        }
+
+        return parsedTemplate;
+    }
+
+    /**
+     * Removes all cached templates.
+     */
+    public static void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Renders the template, replacing each variable with the value returned by the {@code resolver}.
+     * Variables for which the resolver returns null are written back out unchanged.
+     *
+     * @param resolver looks up the value of each variable
+     * @return the rendered template
+     * @throws JobMacroResolutionException if the resolver cannot resolve a variable
+     */
+    public String render(VariableResolver resolver) throws JobMacroResolutionException {
+        StringBuilder sb = new StringBuilder(source.length() + (source.length() >> 2));
+        for (int i = 0; i < segments.length; i++) {
+            if (isVariable[i]) {
+                String value = resolver.resolve(segments[i]);
+                if (value == null) {
+                    sb.append(VARIABLE_PREFIX).append(segments[i]).append(VARIABLE_SUFFIX);
+                } else {
+                    sb.append(value);
+                }
+            } else {
+                sb.append(segments[i]);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the names of all variables referenced in the template, in order of first appearance
+     */
+    public Set<String> getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * @return the original template text
+     */
+    public String getSource() {
+        return source;
+    }
+}
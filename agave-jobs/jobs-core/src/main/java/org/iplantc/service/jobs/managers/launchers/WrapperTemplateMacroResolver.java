@@ -19,8 +19,10 @@ import org.joda.time.DateTime;
 
 import javax.validation.constraints.NotNull;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,9 +32,21 @@ import java.util.regex.Pattern;
 public class WrapperTemplateMacroResolver {
 
     private static final Logger log = Logger.getLogger(WrapperTemplateMacroResolver.class);
-    private static final String EMPTY_CALLBACK_MACRO_REGEX = "(?s).*\\$\\{AGAVE_JOB_CALLBACK_NOTIFICATION\\}.*";
-    private static final String DEFAULT_CALLBACK_MACRO_REGEX = "(?s)(?:.*)?(?:(\\$\\{AGAVE_JOB_CALLBACK_NOTIFICATION\\|(?:([a-zA-Z0-9_,\\s]*))\\}))(?:.*)?";
-    private static final String CUSTOM_CALLBACK_MACRO_REGEX = "(?s)(?:.*)?(?:(\\$\\{AGAVE_JOB_CALLBACK_NOTIFICATION\\|(?:(\\s*[a-zA-Z0-9_]*\\s*))\\|(?:([a-zA-Z0-9_,\\s]*))\\}))(?:.*)?";
+    private static final String NOTIFICATION_MACRO_NAME = WrapperTemplateStatusVariableType.AGAVE_JOB_CALLBACK_NOTIFICATION.name();
+    // matched against the variable name only, ie. the text between the braces of the macro
+    private static final Pattern DEFAULT_CALLBACK_MACRO_PATTERN = Pattern.compile("AGAVE_JOB_CALLBACK_NOTIFICATION\\|([a-zA-Z0-9_,\\s]*)");
+    private static final Pattern CUSTOM_CALLBACK_MACRO_PATTERN = Pattern.compile("AGAVE_JOB_CALLBACK_NOTIFICATION\\|(\\s*[a-zA-Z0-9_]*\\s*)\\|([a-zA-Z0-9_,\\s]*)");
+
+    private static final Map<String, WrapperTemplateAttributeVariableType> attributeMacros = new HashMap<String, WrapperTemplateAttributeVariableType>();
+    private static final Map<String, WrapperTemplateStatusVariableType> statusMacros = new HashMap<String, WrapperTemplateStatusVariableType>();
+    static {
+        for (WrapperTemplateAttributeVariableType macro : WrapperTemplateAttributeVariableType.values()) {
+            attributeMacros.put(macro.name(), macro);
+        }
+        for (WrapperTemplateStatusVariableType macro : WrapperTemplateStatusVariableType.values()) {
+            statusMacros.put(macro.name(), macro);
+        }
+    }
 
     private final Job job;
     private final ExecutionSystem executionSystem;
@@ -53,34 +67,15 @@ public class WrapperTemplateMacroResolver {
      */
     public String resolve(String wrapperTemplate) throws JobMacroResolutionException
     {
-        String resolvedTemplate = resolveJobAttributeMacros(wrapperTemplate);
-        resolvedTemplate = resolveJobStatusMacros(resolvedTemplate);
-
-        return resolvedTemplate == null ? "" : resolvedTemplate;
-//
-//        try {
-//            ExecutionSystem executionSystem = getExecutionSystem();
-//
-//            if (StringUtils.isBlank(executionSystem.getStartupScript())) {
-//                return null;
-//            }
-//            else {
-//                String resolvedStartupScript = executionSystem.getStartupScript();
-//
-//                for (WrapperTemplateAttributeVariableType jobMacro: WrapperTemplateAttributeVariableType.values()) {
-//                    resolvedStartupScript = StringUtils.replace(resolvedStartupScript, "${" + jobMacro.name() + "}", resolveJobAttributeMacros(getJob(), executionSystem, jobMacro));
-//                }
-//
-//                for (WrapperTemplateStatusVariableType macro: WrapperTemplateStatusVariableType.values()) {
-//                    wrapperTemplate = StringUtils.replace(wrapperTemplate, "${" + macro.name() + "}", macro.resolveForJob(getJob()));
-//                }
-//
-//                return resolvedStartupScript;
-//            }
-//        } catch (SystemUnavailableException e) {
-//            throw new JobMacroResolutionException("Execution system " + getJob().getSystem() +
-//                    " is no longer available to resolve batch queue for job " + getJob().getUuid());
-//        }
+        if (StringUtils.isBlank(wrapperTemplate)) {
+            return "";
+        }
+
+        final Map<String, String> resolvedMacros = new HashMap<String, String>();
+        return WrapperTemplate.parse(wrapperTemplate).render(name -> {
+            String value = lookupJobStatusMacro(name, resolvedMacros);
+            return value == null ? lookupJobAttributeMacro(name, resolvedMacros) : value;
+        });
     }
 
     /**
@@ -91,28 +86,12 @@ public class WrapperTemplateMacroResolver {
      * @throws JobMacroResolutionException when the execution system or batch queue is not available
      */
     public String resolveJobAttributeMacros(String wrapperTemplate) throws JobMacroResolutionException {
-//        try {
-            ExecutionSystem executionSystem = getExecutionSystem();
-
-            if (StringUtils.isBlank(wrapperTemplate)) {
-                return null;
-            }
-            else {
-                String resolvedTemplate = wrapperTemplate;
-                for (WrapperTemplateAttributeVariableType jobAttributeMacro : WrapperTemplateAttributeVariableType.values()) {
-                    String escapedJobAttributeMacro = "${" + jobAttributeMacro.name() + "}";
-                    // checking for existence first so we can skip resolving the value when not necessary
-                    if (resolvedTemplate.contains(escapedJobAttributeMacro)) {
-                        resolvedTemplate = StringUtils.replace(resolvedTemplate, escapedJobAttributeMacro, resolveJobAttributeMacro(executionSystem, jobAttributeMacro));
-                    }
-                }
+        if (StringUtils.isBlank(wrapperTemplate)) {
+            return null;
+        }
 
-                return resolvedTemplate;
-            }
-//        } catch (SystemUnavailableException e) {
-//            throw new JobMacroResolutionException("Execution system " + getJob().getSystem() +
-//                    " is no longer available to resolve batch queue for job " + getJob().getUuid());
-//        }
+        final Map<String, String> resolvedMacros = new HashMap<String, String>();
+        return WrapperTemplate.parse(wrapperTemplate).render(name -> lookupJobAttributeMacro(name, resolvedMacros));
     }
 
     /**
@@ -123,28 +102,132 @@ public class WrapperTemplateMacroResolver {
      * @throws JobMacroResolutionException when the execution system or batch queue is not available
      */
     public String resolveJobStatusMacros(String wrapperTemplate) throws JobMacroResolutionException {
-//        try {
-            ExecutionSystem executionSystem = getExecutionSystem();
+        if (StringUtils.isBlank(wrapperTemplate)) {
+            return null;
+        }
+
+        final Map<String, String> resolvedMacros = new HashMap<String, String>();
+        return WrapperTemplate.parse(wrapperTemplate).render(name -> lookupJobStatusMacro(name, resolvedMacros));
+    }
+
+    /**
+     * Resolves the body of an app wrapper template in a single pass. This is equivalent to calling
+     * {@link #removeReservedJobStatusMacros(String)}, {@link #resolveRuntimeNotificationMacros(String)}, and
+     * {@link #resolve(String)} in that order, but each macro is resolved at most once and inserted values are
+     * never rescanned for further macros.
+     *
+     * @param wrapperTemplate the wrapper template with the job inputs and parameters already resolved
+     * @return the resolved {@code wrapperTemplate}
+     * @throws JobMacroResolutionException when the execution system or batch queue is not available
+     */
+    public String resolveWrapperTemplate(String wrapperTemplate) throws JobMacroResolutionException {
+        if (StringUtils.isBlank(wrapperTemplate)) {
+            return "";
+        }
+
+        final Map<String, String> resolvedMacros = new HashMap<String, String>();
+        final List<WrapperTemplateStatusVariableType> userAccessibleStatusCallbacks = WrapperTemplateStatusVariableType.userAccessibleJobCallbackMacros();
+        return WrapperTemplate.parse(wrapperTemplate).render(name -> {
+            WrapperTemplateStatusVariableType statusMacro = statusMacros.get(name);
+            if (statusMacro != null && !userAccessibleStatusCallbacks.contains(statusMacro)) {
+                return "";
+            }
+
+            String value = lookupNotificationMacro(name, resolvedMacros);
+            if (value == null) {
+                value = lookupJobStatusMacro(name, resolvedMacros);
+            }
+            if (value == null) {
+                value = lookupJobAttributeMacro(name, resolvedMacros);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Resolves the named {@link WrapperTemplateAttributeVariableType} macro, reusing values already resolved
+     * for this template.
+     *
+     * @param name the macro name
+     * @param resolvedMacros values resolved so far while rendering the current template
+     * @return the resolved value, or null if {@code name} is not a job attribute macro or has no value
+     * @throws JobMacroResolutionException when the macro cannot be resolved
+     */
+    private String lookupJobAttributeMacro(String name, Map<String, String> resolvedMacros) throws JobMacroResolutionException {
+        WrapperTemplateAttributeVariableType jobAttributeMacro = attributeMacros.get(name);
+        if (jobAttributeMacro == null) {
+            return null;
+        }
 
-            if (StringUtils.isBlank(wrapperTemplate)) {
-                return null;
+        String value = resolvedMacros.get(name);
+        if (value == null) {
+            // unset job attributes leave the macro in place, as they always have
+            value = resolveJobAttributeMacro(getExecutionSystem(), jobAttributeMacro);
+            if (value != null) {
+                resolvedMacros.put(name, value);
             }
-            else {
-                String resolvedTemplate = wrapperTemplate;
-                for (WrapperTemplateStatusVariableType jobStatusCallbackMacro : WrapperTemplateStatusVariableType.values()) {
-                    String escapedJobStatusCallbackMacro = "${" + jobStatusCallbackMacro.name() + "}";
-                    // checking for existence first so we can skip resolving the value when not necessary
-                    if (resolvedTemplate.contains(escapedJobStatusCallbackMacro)) {
-                        resolvedTemplate = StringUtils.replace(resolvedTemplate, escapedJobStatusCallbackMacro, resolveJobCallbackMacro(executionSystem, jobStatusCallbackMacro));
+        }
+        return value;
+    }
+
+    /**
+     * Resolves the named {@link WrapperTemplateStatusVariableType} macro, reusing values already resolved
+     * for this template.
+     *
+     * @param name the macro name
+     * @param resolvedMacros values resolved so far while rendering the current template
+     * @return the resolved value, or null if {@code name} is not a job status macro
+     * @throws JobMacroResolutionException when the macro cannot be resolved
+     */
+    private String lookupJobStatusMacro(String name, Map<String, String> resolvedMacros) throws JobMacroResolutionException {
+        WrapperTemplateStatusVariableType jobStatusMacro = statusMacros.get(name);
+        if (jobStatusMacro == null) {
+            return null;
+        }
+
+        String value = resolvedMacros.get(name);
+        if (value == null) {
+            value = resolveJobCallbackMacro(getExecutionSystem(), jobStatusMacro);
+            resolvedMacros.put(name, value);
+        }
+        return value;
+    }
+
+    /**
+     * Resolves a runtime notification macro of the form {@code AGAVE_JOB_CALLBACK_NOTIFICATION},
+     * {@code AGAVE_JOB_CALLBACK_NOTIFICATION|VARS} or {@code AGAVE_JOB_CALLBACK_NOTIFICATION|EVENT|VARS}.
+     *
+     * @param name the macro name
+     * @param resolvedMacros values resolved so far while rendering the current template
+     * @return the callback snippet, or null if {@code name} is not a runtime notification macro
+     */
+    private String lookupNotificationMacro(String name, Map<String, String> resolvedMacros) {
+        if (!name.startsWith(NOTIFICATION_MACRO_NAME)) {
+            return null;
+        }
+
+        String value = resolvedMacros.get(name);
+        if (value == null) {
+            if (name.equals(NOTIFICATION_MACRO_NAME)) {
+                value = resolveNotificationEventMacro("JOB_RUNTIME_CALLBACK_EVENT", new String[]{});
+            } else {
+                Matcher callbackMatcher = DEFAULT_CALLBACK_MACRO_PATTERN.matcher(name);
+                if (callbackMatcher.matches()) {
+                    value = resolveNotificationEventMacro(
+                            "JOB_RUNTIME_CALLBACK_EVENT", StringUtils.split(callbackMatcher.group(1), ","));
+                } else {
+                    callbackMatcher = CUSTOM_CALLBACK_MACRO_PATTERN.matcher(name);
+                    if (callbackMatcher.matches()) {
+                        value = resolveNotificationEventMacro(
+                                callbackMatcher.group(1), StringUtils.split(callbackMatcher.group(2), ","));
+                    } else {
+                        return null;
                     }
                 }
-
-                return resolvedTemplate;
             }
-//        } catch (SystemUnavailableException e) {
-//            throw new JobMacroResolutionException("Execution system " + getJob().getSystem() +
-//                    " is no longer available to resolve batch queue for job " + getJob().getUuid());
-//        }
+            resolvedMacros.put(name, value);
+        }
+        return value;
     }
 
     /**
@@ -265,43 +348,17 @@ public class WrapperTemplateMacroResolver {
      * @return
      */
     public String resolveRuntimeNotificationMacros(String wrapperTemplate) {
-        String resolvedTemplate = wrapperTemplate;
-
-        Pattern emptyCallbackPattern = Pattern.compile(EMPTY_CALLBACK_MACRO_REGEX);
-        Matcher callbackMatcher = emptyCallbackPattern.matcher(resolvedTemplate);
-        while (callbackMatcher.matches()) {
-            String callbackSnippet = resolveNotificationEventMacro(
-                    "JOB_RUNTIME_CALLBACK_EVENT", new String[]{});
-
-            resolvedTemplate = StringUtils.replace(resolvedTemplate, callbackMatcher.group(0), callbackSnippet);
-
-            callbackMatcher = emptyCallbackPattern.matcher(resolvedTemplate);
-        }
-
-        // process the notification template first so there is no confusion or namespace conflict prior to resolution
-        Pattern defaultCallbackPattern = Pattern.compile(DEFAULT_CALLBACK_MACRO_REGEX);
-        callbackMatcher = defaultCallbackPattern.matcher(resolvedTemplate);
-        while (callbackMatcher.matches()) {
-            String callbackSnippet = resolveNotificationEventMacro(
-                    "JOB_RUNTIME_CALLBACK_EVENT", StringUtils.split(callbackMatcher.group(2), ","));
-
-            resolvedTemplate = StringUtils.replace(resolvedTemplate, callbackMatcher.group(1), callbackSnippet);
-
-            callbackMatcher = defaultCallbackPattern.matcher(resolvedTemplate);
+        if (wrapperTemplate == null) {
+            return null;
         }
 
-        Pattern customCallbackPattern = Pattern.compile(CUSTOM_CALLBACK_MACRO_REGEX);
-        callbackMatcher = customCallbackPattern.matcher(resolvedTemplate);
-        while (callbackMatcher.matches()) {
-            String callbackSnippet = resolveNotificationEventMacro(
-                    callbackMatcher.group(2), StringUtils.split(callbackMatcher.group(3), ","));
-
-            resolvedTemplate = StringUtils.replace(resolvedTemplate, callbackMatcher.group(1), callbackSnippet);
-
-            callbackMatcher = customCallbackPattern.matcher(resolvedTemplate);
+        final Map<String, String> resolvedMacros = new HashMap<String, String>();
+        try {
+            return WrapperTemplate.parse(wrapperTemplate).render(name -> lookupNotificationMacro(name, resolvedMacros));
+        } catch (JobMacroResolutionException e) {
+            // notification macros are resolved from the job alone and never fail
+            throw new IllegalStateException(e);
         }
-
-        return resolvedTemplate;
     }
 
     /**
@@ -374,14 +431,20 @@ public class WrapperTemplateMacroResolver {
      * @return the wrapper with the reserved {@link WrapperTemplateStatusVariableType} macros removed
      */
     public String removeReservedJobStatusMacros(String wrapperTemplate) {
-        List<WrapperTemplateStatusVariableType> userAccessibleStatuCallbacks = WrapperTemplateStatusVariableType.userAccessibleJobCallbackMacros();
-        for (WrapperTemplateStatusVariableType jobCallbackMacro: WrapperTemplateStatusVariableType.values()) {
-            if (!userAccessibleStatuCallbacks.contains(jobCallbackMacro)) {
-                wrapperTemplate = StringUtils.replace(wrapperTemplate, "${" + jobCallbackMacro.name() + "}", "");
-            }
+        if (wrapperTemplate == null) {
+            return null;
         }
 
-        return wrapperTemplate;
+        final List<WrapperTemplateStatusVariableType> userAccessibleStatusCallbacks = WrapperTemplateStatusVariableType.userAccessibleJobCallbackMacros();
+        try {
+            return WrapperTemplate.parse(wrapperTemplate).render(name -> {
+                WrapperTemplateStatusVariableType statusMacro = statusMacros.get(name);
+                return statusMacro != null && !userAccessibleStatusCallbacks.contains(statusMacro) ? "" : null;
+            });
+        } catch (JobMacroResolutionException e) {
+            // removing macros never resolves a value, so this cannot happen
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
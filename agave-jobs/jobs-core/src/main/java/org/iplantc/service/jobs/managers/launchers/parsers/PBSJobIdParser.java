@@ -21,7 +21,8 @@ public class PBSJobIdParser implements RemoteJobIdParser {
 	public String getJobId(String output) throws RemoteJobIDParsingException, JobException, SchedulerException
 	{
 		String jobID = null;
-		Pattern pattern = Pattern.compile("([0-9]+\\.[^\\s]*)");
+		// job arrays are returned with an empty index, ie. 1234[].server
+		Pattern pattern = Pattern.compile("([0-9]+(?:\\[\\])?\\.[^\\s]*)");
 
 		String[] lines = output.replaceAll("\r", "\\n").split("\n");
 		for (String line : lines) {
@@ -16,6 +16,7 @@ import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.JobEvent;
 import org.iplantc.service.jobs.model.enumerations.JobEventType;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.jobs.schedulers.AdaptiveMonitoringScheduler;
 import org.iplantc.service.remote.RemoteSubmissionClient;
 import org.iplantc.service.systems.exceptions.SystemUnavailableException;
 import org.iplantc.service.systems.exceptions.SystemUnknownException;
@@ -68,6 +69,8 @@ public class DefaultJobMonitor extends AbstractJobMonitor {
 				// increment the number of checks
 				getJob().setLastUpdated(new DateTime().toDate());
 				getJob().setStatusChecks(getJob().getStatusChecks() + 1);
+				// schedule the following check from the run times of similar jobs
+				getJob().setNextStatusCheck(AdaptiveMonitoringScheduler.getInstance().getNextStatusCheck(getJob()));
 				updateJobStatus(getJob().getStatus(), getJob().getErrorMessage());
 
 				checkStopped();
@@ -108,6 +111,11 @@ public class DefaultJobMonitor extends AbstractJobMonitor {
 									getJob().getSystem() + " as local job id " + getJob().getLocalJobId() +
 									". Updating status to " + JobStatusType.CLEANING_UP.name() + ".");
 
+							if (getJob().getEndTime() == null) {
+								getJob().setEndTime(new DateTime().toDate());
+							}
+							AdaptiveMonitoringScheduler.getInstance().recordCompletion(getJob());
+
 							updateJobStatus(JobStatusType.CLEANING_UP,
 									"Job status change to completed detected by job monitor.");
 						} else if (response.getRemoteSchedulerJobStatus().getRunningStatuses().contains(response.getRemoteSchedulerJobStatus())) {
@@ -0,0 +1,51 @@
+package org.iplantc.service.jobs.managers.monitors.parsers;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Utility for matching job array task indexes against the compact task range expressions schedulers
+ * use when reporting array tasks which have not yet been split into individual jobs, such as
+ * {@code 0-9}, {@code 1-10:2}, or {@code 0,3,5-7%4}.
+ */
+class ArrayTaskRanges {
+
+	private ArrayTaskRanges() {}
+
+	/**
+	 * Checks whether the {@code taskIndex} is covered by the {@code ranges} expression. Ranges may be
+	 * comma separated lists of single indexes, {@code start-end} ranges, or {@code start-end:step} ranges.
+	 * A trailing {@code %N} concurrency limit and surrounding brackets are ignored.
+	 *
+	 * @param ranges the task range expression reported by the scheduler
+	 * @param taskIndex the index of the array task to look for
+	 * @return true if the task index is in the range expression, false otherwise or if it cannot be parsed
+	 */
+	static boolean contains(String ranges, int taskIndex) {
+		if (StringUtils.isBlank(ranges)) return false;
+
+		String expression = StringUtils.substringBefore(StringUtils.strip(ranges.trim(), "[]"), "%");
+
+		for (String range : StringUtils.split(expression, ',')) {
+			try {
+				range = range.trim();
+				int step = 1;
+				if (range.contains(":")) {
+					step = Integer.parseInt(StringUtils.substringAfter(range, ":"));
+					range = StringUtils.substringBefore(range, ":");
+				}
+
+				if (range.contains("-")) {
+					int start = Integer.parseInt(StringUtils.substringBefore(range, "-"));
+					int end = Integer.parseInt(StringUtils.substringAfter(range, "-"));
+					if (taskIndex >= start && taskIndex <= end && step > 0 && (taskIndex - start) % step == 0) {
+						return true;
+					}
+				} else if (Integer.parseInt(range) == taskIndex) {
+					return true;
+				}
+			} catch (NumberFormatException ignored) {}
+		}
+
+		return false;
+	}
+}
@@ -47,6 +47,7 @@ public class SGEJobStatusResponseParser implements JobStatusResponseParser {
         Integer JB_dlcontr;
         String JB_name;
         String JB_owner;
+        String tasks;
 
 		public String getState() {
 			return state;
@@ -132,6 +133,14 @@ public class SGEJobStatusResponseParser implements JobStatusResponseParser {
 			return JB_owner;
 		}
 
+		public String getTasks() {
+			return tasks;
+		}
+
+		public void setTasks(String tasks) {
+			this.tasks = tasks;
+		}
+
 		public void setJB_owner(String JB_owner) {
 			this.JB_owner = JB_owner;
 		}
@@ -143,6 +152,7 @@ public class SGEJobStatusResponseParser implements JobStatusResponseParser {
         private static final String JOB_ID = "JB_job_number";
         private static final String JOB_NAME = "JB_name";
 		private static final String JOB_STATE = "state";
+		private static final String JOB_TASKS = "tasks";
 
         private SGEJobInfo sgeJobInfo;
         private String elementValue;
@@ -179,6 +189,9 @@ public class SGEJobStatusResponseParser implements JobStatusResponseParser {
                 case JOB_NAME:
 					latestSGEJob().JB_name = elementValue;
                     break;
+                case JOB_TASKS:
+					latestSGEJob().tasks = elementValue;
+                    break;
             }
         }
 
@@ -304,7 +317,7 @@ public class SGEJobStatusResponseParser implements JobStatusResponseParser {
 
 			SGEJob sgeJob = null;
 			for (SGEJob job: info.queueInfo) {
-				if (job.getJB_job_number().equals(remoteJobId)) {
+				if (job.getJB_job_number().equals(remoteJobId) || isArrayTask(remoteJobId, job)) {
 					sgeJob = job;
 					break;
 				}
@@ -318,10 +331,28 @@ public class SGEJobStatusResponseParser implements JobStatusResponseParser {
 			String exitCode = "0";
 			SGEJobStatus remoteJobStatus = SGEJobStatus.valueOfCode(sgeJob.state);
 
-			return new JobStatusResponse<>(sgeJob.JB_job_number, remoteJobStatus, exitCode );
+			return new JobStatusResponse<>(remoteJobId, remoteJobStatus, exitCode );
 
         } catch (SAXException|ParserConfigurationException|IOException e) {
 			throw new RemoteJobMonitorResponseParsingException("Unexpected fields in the response from the scheduler: " + statusLine);
 		}
     }
+
+	/**
+	 * Job array tasks are referenced by a {@code <job_number>.<task>} id, while qstat reports the
+	 * job number and the task or range of pending tasks, ie. {@code 1-10:1}, separately.
+	 *
+	 * @param remoteJobId the remote job id of the array task, ie. {@code 1234.5}
+	 * @param job the job entry from the qstat response
+	 * @return true if the entry is for the array and covers the task in {@code remoteJobId}
+	 */
+	protected boolean isArrayTask(String remoteJobId, SGEJob job) {
+		String taskIndex = StringUtils.substringAfter(remoteJobId, ".");
+		if (StringUtils.isEmpty(taskIndex) || !StringUtils.isNumeric(taskIndex) || StringUtils.isEmpty(job.getTasks())) {
+			return false;
+		}
+
+		return StringUtils.substringBefore(remoteJobId, ".").equals(job.getJB_job_number())
+				&& ArrayTaskRanges.contains(job.getTasks(), Integer.parseInt(taskIndex));
+	}
 }
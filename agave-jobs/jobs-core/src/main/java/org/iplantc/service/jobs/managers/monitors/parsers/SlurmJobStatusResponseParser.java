@@ -62,7 +62,7 @@ public class SlurmJobStatusResponseParser implements JobStatusResponseParser {
 			for (String line : lines) {
 				// job id is the first token on the job status line, so if it doesn't start with that, pass
 				// note: we do risk missing a match here due to truncated job id in the response
-				if (!line.startsWith(remoteJobId)) continue;
+				if (!line.startsWith(remoteJobId) && !isPendingArrayTaskLine(remoteJobId, line)) continue;
 
 				// split on pipe characters, removing the trailing pipe
 				line = StringUtils.removeEnd(line, "|");
@@ -89,6 +89,26 @@ public class SlurmJobStatusResponseParser implements JobStatusResponseParser {
 		}
 	}
 
+	/**
+	 * Job array tasks which have not started are reported by sacct on a single line for the whole array
+	 * using a compact task range, ie. {@code 1234_[0-9,12%4]|PENDING|0:0|}, rather than the
+	 * {@code 1234_5} id of the individual task. This checks whether such a line covers the task.
+	 *
+	 * @param remoteJobId the remote job id of the array task, ie. {@code 1234_5}
+	 * @param line the status line from the scheduler response
+	 * @return true if the line describes a task range containing the task in {@code remoteJobId}
+	 */
+	protected boolean isPendingArrayTaskLine(String remoteJobId, String line) {
+		String arrayJobId = StringUtils.substringBefore(remoteJobId, "_");
+		String taskIndex = StringUtils.substringAfter(remoteJobId, "_");
+		if (StringUtils.isEmpty(taskIndex) || !StringUtils.isNumeric(taskIndex)) return false;
+
+		String lineJobId = StringUtils.substringBefore(line, "|");
+		if (!lineJobId.startsWith(arrayJobId + "_[")) return false;
+
+		return ArrayTaskRanges.contains(StringUtils.substringAfter(lineJobId, "_"), Integer.parseInt(taskIndex));
+	}
+
 	/**
 	 * Splits the response by newline characters
 	 * @param schedulerResponse the raw response from the remote scheduler
@@ -137,10 +137,19 @@ public class Job {
 	 * The current status of the job.
 	 */
 	private JobStatusType		status = JobStatusType.PENDING;
+	/**
+	 * The status of the job when it was last loaded from or saved to the db.
+	 */
+	private JobStatusType		persistedStatus;
 	/**
 	 * Number of times this job's status has been checked by the {@link JobMonitor}. Used in exponential backoff calculation.
 	 */
 	private Integer				statusChecks = 0;
+	/**
+	 * Earliest time at which the monitoring tasks should check this job's status again. When null, the
+	 * default status check backoff is used.
+	 */
+	private Date				nextStatusCheck;
 	/**
 	 * Token needed to validate all callbacks to update job status.
 	 */
@@ -163,6 +172,22 @@ public class Job {
 	 * process id. For containers, pods, etc, it will be the UUID of the running container.
 	 */
 	private String				schedulerJobId;
+	/**
+	 * Uuid shared by all the jobs created from the same job array request. Null for individual jobs.
+	 */
+	private String				arrayUuid;
+	/**
+	 * Position of this job in its job array, starting at zero. Null for individual jobs.
+	 */
+	private Integer				arrayIndex;
+	/**
+	 * Worker currently holding the processing lease on this job. Written only by the job lease heartbeat.
+	 */
+	private String				leaseOwner;
+	/**
+	 * Time at which the processing lease on this job expires unless renewed by a worker heartbeat.
+	 */
+	private Date				leaseExpires;
 	/**
 	 * Normalized charge for this job.
 	 */
@@ -225,6 +250,11 @@ public class Job {
 	 * Lazy loaded list of persisted events to this job.
 	 */
 	private List<JobEvent>		events = new ArrayList<JobEvent>(); // complete history of events for this job
+	/**
+	 * Events added while event processing is deferred. These are only processed once the
+	 * job is known to be saved. Null when events are processed as they are added.
+	 */
+	private List<JobEvent>		deferredEvents;
 	
 //	private Set<Notification>	notifications = new HashSet<Notification>(); // all notifications registered to this job
 	
@@ -675,6 +705,27 @@ public class Job {
 		this.statusChecks = statusChecks;
 	}
 
+	/**
+	 * Returns the earliest time at which this job's status should be checked
+	 * again. This is set by the monitoring tasks from the observed run times of
+	 * similar jobs. A null value means the default exponential backoff on
+	 * {@link #getStatusChecks()} applies.
+	 *
+	 * @return the next scheduled status check or null
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "next_status_check", nullable = true, length = 19)
+	public Date getNextStatusCheck() {
+		return nextStatusCheck;
+	}
+
+	/**
+	 * @param nextStatusCheck the earliest time the job status should be checked again
+	 */
+	public void setNextStatusCheck(Date nextStatusCheck) {
+		this.nextStatusCheck = nextStatusCheck;
+	}
+
 	/**
 	 * Returns a list of job events in the history of this job.
 	 * 
@@ -704,6 +755,52 @@ public class Job {
 	public void addEvent(JobEvent event) {
 		event.setJob(this);
 		this.events.add(event);
+		if (deferredEvents != null) {
+			deferredEvents.add(event);
+		} else {
+			processEvent(event);
+		}
+	}
+	
+	/**
+	 * Defers processing of events added to this job, and the notifications they send, until
+	 * {@link #processDeferredEvents()} is called. Used when the job is saved after a batch of
+	 * updates so no notification is sent for a change that fails to save.
+	 */
+	public void deferEventProcessing() {
+		if (deferredEvents == null) {
+			deferredEvents = new ArrayList<JobEvent>();
+		}
+	}
+	
+	/**
+	 * Processes the events added since {@link #deferEventProcessing()} was called, in the
+	 * order they were added. Events added afterwards are processed immediately again.
+	 */
+	public void processDeferredEvents() {
+		List<JobEvent> pendingEvents = deferredEvents;
+		deferredEvents = null;
+		if (pendingEvents != null) {
+			for (JobEvent event: pendingEvents) {
+				processEvent(event);
+			}
+		}
+	}
+	
+	/**
+	 * Drops the events added since {@link #deferEventProcessing()} was called without
+	 * processing them. Events added afterwards are processed immediately again.
+	 */
+	public void discardDeferredEvents() {
+		deferredEvents = null;
+	}
+	
+	/**
+	 * Processes a single event of this job, sending any notifications subscribed to it.
+	 * 
+	 * @param event the event to process
+	 */
+	protected void processEvent(JobEvent event) {
 		try {
 			JobEventProcessor jep = new JobEventProcessor(event);
             jep.process();
@@ -791,7 +888,7 @@ public class Job {
 			// job deletion and, then if visible, propagate the event. Otherwise, we 
 			// simply add it to the history for reference and move on.
 			if (this.isVisible()) {
-				setStatus(status);
+				this.status = status;
 				setErrorMessage(event.getDescription());
 				addEvent(event);
 			}
@@ -805,12 +902,37 @@ public class Job {
 	}
 	
 	/**
+	 * Only called by hibernate when the job is loaded, so the status is also recorded
+	 * as the {@link #getPersistedStatus()}.
+	 * 
 	 * @param status
 	 *            the status to set
 	 */
 	private void setStatus(JobStatusType status)
 	{
 		this.status = status;
+		this.persistedStatus = status;
+	}
+
+	/**
+	 * Returns the status of the job when it was last loaded from or saved to the db.
+	 * This is the previous status used to adjust the job quota counters when the
+	 * job is saved.
+	 * 
+	 * @return the saved status, or null if the job has never been saved
+	 */
+	@Transient
+	public JobStatusType getPersistedStatus()
+	{
+		return persistedStatus;
+	}
+
+	/**
+	 * @param persistedStatus the status of the job as it is now saved in the db
+	 */
+	public void setPersistedStatus(JobStatusType persistedStatus)
+	{
+		this.persistedStatus = persistedStatus;
 	}
 
 	/**
@@ -1093,6 +1215,79 @@ public class Job {
 		this.schedulerJobId = schedulerJobId;
 	}
 
+	/**
+	 * @return the uuid of the job array this job belongs to, or null
+	 */
+	@Column(name = "array_uuid", nullable = true, length = 64)
+	public String getArrayUuid()
+	{
+		return arrayUuid;
+	}
+
+	/**
+	 * @param arrayUuid the uuid of the job array this job belongs to
+	 */
+	public void setArrayUuid(String arrayUuid)
+	{
+		this.arrayUuid = arrayUuid;
+	}
+
+	/**
+	 * @return the position of this job in its job array, or null
+	 */
+	@Column(name = "array_index", nullable = true)
+	public Integer getArrayIndex()
+	{
+		return arrayIndex;
+	}
+
+	/**
+	 * @param arrayIndex the position of this job in its job array
+	 */
+	public void setArrayIndex(Integer arrayIndex)
+	{
+		this.arrayIndex = arrayIndex;
+	}
+
+	/**
+	 * The lease is renewed outside of the normal job updates, so it is never written when the job is saved.
+	 *
+	 * @return the worker holding the processing lease on this job, or null
+	 */
+	@Column(name = "lease_owner", nullable = true, length = 128, insertable = false, updatable = false)
+	public String getLeaseOwner()
+	{
+		return leaseOwner;
+	}
+
+	/**
+	 * @param leaseOwner the worker holding the processing lease on this job
+	 */
+	public void setLeaseOwner(String leaseOwner)
+	{
+		this.leaseOwner = leaseOwner;
+	}
+
+	/**
+	 * The lease is renewed outside of the normal job updates, so it is never written when the job is saved.
+	 *
+	 * @return the time the processing lease on this job expires, or null if never leased
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "lease_expires", nullable = true, insertable = false, updatable = false)
+	public Date getLeaseExpires()
+	{
+		return leaseExpires;
+	}
+
+	/**
+	 * @param leaseExpires the time the processing lease on this job expires
+	 */
+	public void setLeaseExpires(Date leaseExpires)
+	{
+		this.leaseExpires = leaseExpires;
+	}
+
 	/**
 	 * @return the charge
 	 */
@@ -1443,6 +1638,12 @@ public class Job {
 		//	.put("schedulerType", schedulerType.name())
 			.put("created", new DateTime(created).toString())
 			.put("lastUpdated", new DateTime(lastUpdated).toString());
+
+		if (arrayUuid != null)
+		{
+			json.put("arrayId", arrayUuid);
+			json.put("arrayIndex", arrayIndex);
+		}
 			
 		if (archiveOutput)
 		{
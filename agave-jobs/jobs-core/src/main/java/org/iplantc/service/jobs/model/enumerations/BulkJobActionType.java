@@ -0,0 +1,14 @@
+package org.iplantc.service.jobs.model.enumerations;
+
+/**
+ * Actions that can be applied to many jobs in a single request.
+ */
+public enum BulkJobActionType
+{
+	STOP, HIDE, RESTORE, RESUBMIT;
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+}
@@ -92,6 +92,11 @@ public enum JobStatusType
 				status.equals(QUEUED) );
 	}
 
+	public static boolean isActive(JobStatusType status)
+	{
+		return status != null && Arrays.asList(getActiveStatuses()).contains(status);
+	}
+
 	public static JobStatusType[] getActiveStatuses()
 	{
 		return new JobStatusType[]{ CLEANING_UP, ARCHIVING, RUNNING, PAUSED, QUEUED };
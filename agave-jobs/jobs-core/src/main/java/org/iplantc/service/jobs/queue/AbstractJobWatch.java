@@ -6,13 +6,14 @@ import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.dao.JobEventDao;
 import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.managers.JobLeaseManager;
 import org.iplantc.service.jobs.managers.JobManager;
 import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.JobEvent;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
 import org.iplantc.service.jobs.queue.actions.WorkerAction;
 import org.iplantc.service.jobs.queue.factory.AbstractJobProducerFactory;
-import org.iplantc.service.systems.dao.SystemDao;
+import org.iplantc.service.systems.dao.SystemSnapshotCache;
 import org.iplantc.service.systems.exceptions.SystemUnavailableException;
 import org.iplantc.service.systems.exceptions.SystemUnknownException;
 import org.iplantc.service.systems.model.ExecutionSystem;
@@ -52,7 +53,7 @@ public abstract class AbstractJobWatch implements WorkerWatch {
      * @throws SystemUnknownException if the system is not in the db
      */
     protected ExecutionSystem getJobExecutionSystem() throws SystemUnavailableException, SystemUnknownException {
-        ExecutionSystem jobExecutionSystem = (ExecutionSystem) new SystemDao().findBySystemId(getJob().getSystem());
+        ExecutionSystem jobExecutionSystem = (ExecutionSystem) SystemSnapshotCache.getSystem(getJob().getSystem());
         if (jobExecutionSystem == null) {
             throw new SystemUnknownException("No system found matching job execution system " + getJob().getSystem());
         } else if (!jobExecutionSystem.isAvailable() || !jobExecutionSystem.getStatus().equals(SystemStatusType.UP)) {
@@ -91,6 +92,11 @@ public abstract class AbstractJobWatch implements WorkerWatch {
                 TenancyHelper.setCurrentTenantId(getJob().getTenantId());
                 TenancyHelper.setCurrentEndUser(getJob().getOwner());
                 
+                // lease the job so it is not mistaken for a zombie while we work on it
+                if (isLeaseRequired()) {
+                    JobLeaseManager.getInstance().acquire(getJob(), this::stopOnLeaseLost);
+                }
+                
     			doExecute();
             } 
 
@@ -107,6 +113,7 @@ public abstract class AbstractJobWatch implements WorkerWatch {
     	finally {
     	    if (getJob() != null) {
     	        log.debug("Releasing job " + getJob().getUuid() + " after task completion");
+    	        JobLeaseManager.getInstance().release(getJob());
     	        AbstractJobProducerFactory.releaseJob(getJob().getUuid());
     	    }
     	}
@@ -149,6 +156,29 @@ public abstract class AbstractJobWatch implements WorkerWatch {
     	}
     }
     
+    /**
+     * Whether this worker should hold a lease on its job while processing it. Workers which
+     * move the job through intermediate states must hold one so {@link ZombieJobWatch} can
+     * tell when they have died.
+     *
+     * @return true if a lease should be taken on the job before processing
+     */
+    protected boolean isLeaseRequired() {
+        return true;
+    }
+
+    /**
+     * Stops this worker once its lease on the job is lost. The job has already been rolled back
+     * or picked up by another worker, so unlike {@link #interrupt()} nothing is rolled back here.
+     */
+    protected void stopOnLeaseLost() {
+        try {
+            setStopped(true);
+        } catch (UnableToInterruptJobException e) {
+            log.error("Failed to stop worker for job " + this.jobUuid + " after its lease was lost.", e);
+        }
+    }
+
     /**
      * Performs the job status rollback to a previous state allowing it 
      * to be picked up by other workers.
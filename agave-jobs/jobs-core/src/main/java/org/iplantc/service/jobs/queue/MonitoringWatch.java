@@ -66,6 +66,15 @@ public class MonitoringWatch extends AbstractJobWatch
                 org.iplantc.service.common.Settings.getDedicatedSystemIdsFromServiceProperties());
     }
 	
+	/**
+	 * Monitoring only checks on jobs already queued or running on the remote system, so it
+	 * never leaves them in a state the zombie cleanup would need to recover.
+	 */
+	@Override
+	protected boolean isLeaseRequired() {
+		return false;
+	}
+
 	public void doExecute() throws JobExecutionException
 	{
 		// pull the oldest job with JobStatusType.CLEANING_UP from the db
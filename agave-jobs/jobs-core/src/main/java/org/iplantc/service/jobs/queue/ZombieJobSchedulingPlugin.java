@@ -66,14 +66,14 @@ public class ZombieJobSchedulingPlugin extends GenericSchedulingPlugin
                         .storeDurably()
                         .build();
 	            
-	            log.debug("Zombie cleanup task will run every 5 minutes.");
+	            log.debug("Zombie cleanup task will run every " + Settings.ZOMBIE_CLEANUP_INTERVAL_SECS + " seconds.");
 	            
 	            Trigger trigger = newTrigger()
 	                    .withIdentity(getPluginGroup().toLowerCase() + "-trigger"+i, getPluginGroup())
 	                    .startAt(new DateTime().plusSeconds(5+i).toDate())
 	                    .withSchedule(simpleSchedule()
 	                            .withMisfireHandlingInstructionNextWithExistingCount()
-	                            .withIntervalInMinutes(5)
+	                            .withIntervalInSeconds(Settings.ZOMBIE_CLEANUP_INTERVAL_SECS)
 	                            .repeatForever())
 	                    .forJob(customJobDetail)
 	                    .withPriority(5)
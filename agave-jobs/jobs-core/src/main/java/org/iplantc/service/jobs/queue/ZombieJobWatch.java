@@ -33,8 +33,9 @@ import static org.iplantc.service.jobs.model.enumerations.JobStatusType.*;
 
 /**
  * This is a reaper task designed to clean up any {@link Job}
- * who has an unresponsive transfer for more than 15 minutes
- * or an intermediate status for more than an hour.
+ * whose worker lease has expired, or which was never leased and
+ * has an unresponsive transfer for more than 15 minutes or an
+ * intermediate status for more than an hour.
  *
  * @author dooley
  */
@@ -92,6 +93,18 @@ public class ZombieJobWatch implements org.quartz.Job
 					case ARCHIVING:
 					case STAGING_JOB:
 					case SUBMITTING:
+						// an expired lease means the worker died, taking its transfers with it
+						if (job.getLeaseExpires() != null) {
+							log.info("Job " + job.getUuid() + " in the " + job.getTenantId() +
+									" tenant was leased by " + job.getLeaseOwner() + " until " +
+									new DateTime(job.getLeaseExpires()) + ". This indicates an abandonded job. " +
+									"Rolling back now." );
+
+							rollbackJob(job, job.getOwner());
+							resultUuids.add(job.getUuid());
+							break;
+						}
+
 						Date lastUpdatedTransferTime = JobEventDao.getMostRecentTransferUpdateForJob(job.getId());
 						if (lastUpdatedTransferTime == null ||
 								new DateTime(lastUpdatedTransferTime).plusMinutes(120).isBeforeNow()) {
@@ -169,6 +182,11 @@ public class ZombieJobWatch implements org.quartz.Job
 		{
 			JobStatusType rollbackJobStatus = job.getStatus().rollbackState();
 
+			// clear the abandoned lease first so its worker is stopped if it ever renews again
+			if (job.getLeaseOwner() != null) {
+				JobDao.releaseLease(job.getId(), job.getLeaseOwner());
+			}
+
 			RemoteSystem executionSystem = new SystemDao().findBySystemId(job.getSystem());
 
 			if (executionSystem == null)
@@ -9,6 +9,8 @@ import org.iplantc.service.transfer.URLCopy;
 import org.iplantc.service.transfer.model.TransferTask;
 
 import java.nio.channels.ClosedByInterruptException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AbstractWorkerAction implements WorkerAction {
@@ -21,6 +23,8 @@ public abstract class AbstractWorkerAction implements WorkerAction {
     protected Job job;
     protected URLCopy urlCopy;
     protected TransferTask rootTask;
+    // copies running concurrently on behalf of this action, killed along with urlCopy when stopped
+    private final Set<URLCopy> activeUrlCopies = ConcurrentHashMap.newKeySet();
 
 
     /**
@@ -59,6 +63,43 @@ public abstract class AbstractWorkerAction implements WorkerAction {
         if (getUrlCopy() != null) {
             getUrlCopy().setKilled(true);
         }
+
+        if (stopped) {
+            killActiveUrlCopies();
+        }
+    }
+
+    /**
+     * Kills every {@link URLCopy} registered with {@link #addActiveUrlCopy(URLCopy)} that
+     * is still running.
+     */
+    protected void killActiveUrlCopies() {
+        for (URLCopy activeUrlCopy : activeUrlCopies) {
+            activeUrlCopy.setKilled(true);
+        }
+    }
+
+    /**
+     * Registers a {@link URLCopy} running concurrently on behalf of this action so it will be
+     * killed when the action is stopped. If the action is already stopped, the copy is killed
+     * immediately.
+     *
+     * @param activeUrlCopy the copy to track
+     */
+    protected void addActiveUrlCopy(URLCopy activeUrlCopy) {
+        activeUrlCopies.add(activeUrlCopy);
+        if (isStopped()) {
+            activeUrlCopy.setKilled(true);
+        }
+    }
+
+    /**
+     * Stops tracking a {@link URLCopy} once it has completed.
+     *
+     * @param activeUrlCopy the copy to remove
+     */
+    protected void removeActiveUrlCopy(URLCopy activeUrlCopy) {
+        activeUrlCopies.remove(activeUrlCopy);
     }
 
     /**
@@ -3,14 +3,14 @@
  */
 package org.iplantc.service.jobs.queue.actions;
 
-import com.google.common.io.Files;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.hibernate.StaleObjectStateException;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.JobException;
 import org.iplantc.service.jobs.managers.JobManager;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest;
+import org.iplantc.service.jobs.managers.archivers.JobArchiver;
 import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.JobEvent;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
@@ -20,18 +20,13 @@ import org.iplantc.service.systems.model.ExecutionSystem;
 import org.iplantc.service.systems.model.RemoteSystem;
 import org.iplantc.service.systems.model.enumerations.SystemStatusType;
 import org.iplantc.service.transfer.RemoteDataClient;
-import org.iplantc.service.transfer.URLCopy;
 import org.iplantc.service.transfer.dao.TransferTaskDao;
-import org.iplantc.service.transfer.exceptions.TransferException;
 import org.iplantc.service.transfer.model.TransferTask;
 import org.iplantc.service.transfer.model.enumerations.TransferStatusType;
 import org.joda.time.DateTime;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.nio.channels.ClosedByInterruptException;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * @author dooley
@@ -42,11 +37,25 @@ public class ArchiveAction extends AbstractWorkerAction {
     private static final Logger log = Logger.getLogger(ArchiveAction.class);
 
     protected JobManager jobManager = null;
+    
+    private JobArchiver archiver = null;
 
     public ArchiveAction(Job job) {
         super(job);
     }
 
+    /**
+     * Stops this action along with any transfers its {@link JobArchiver} is running.
+     */
+    @Override
+    public synchronized void setStopped(boolean stopped) {
+        super.setStopped(stopped);
+        
+        if (stopped && archiver != null) {
+            archiver.kill();
+        }
+    }
+
 
     /**
      * This method attempts to archive a job's output by retrieving the
@@ -87,8 +96,6 @@ public class ArchiveAction extends AbstractWorkerAction {
         // this point we are guaranteed that the worker running this bit of code has
         // access to the job output folder. The RemoteDataClient abstraction will handle
         // the rest.
-        File tempDir = Files.createTempDir();
-        File agaveIgnoreFile = null;
         try 
         {
             try 
@@ -102,56 +109,36 @@ public class ArchiveAction extends AbstractWorkerAction {
                         + executionSystem.getSystemId());
             }
             
-            // copy remote archive file to temp space
-            String remoteAgaveIgnoreFile = getJob().getWorkPath() + File.separator + ".agave.archive";
-            
-            agaveIgnoreFile = new File(tempDir, ".agave.archive");
-            
-            // pull remote .archive file and parse it for a list of paths relative
-            // to the job.workDir to exclude from archiving. Generally this will be
-            // the application binaries, but the app itself may have added or removed
-            // things from this file, so we need to process it anyway.
-            List<String> jobFileList = new ArrayList<String>();
+            // list the job work directory and read the .agave.archive file in a single pass.
+            // The archive file holds a list of paths relative to the job.workDir to exclude
+            // from archiving. Generally this will be the application binaries, but the app
+            // itself may have added or removed things from this file, so we need to process
+            // it anyway.
+            JobArchiveManifest manifest = null;
             try
             {
-                if (!executionDataClient.doesExist(getJob().getWorkPath())) {
-                    throw new TransferException("Job work directory no longer exists.", new FileNotFoundException());
-                }
-                else if (executionDataClient.doesExist(remoteAgaveIgnoreFile) && 
-                        executionDataClient.isFile(remoteAgaveIgnoreFile)) 
-                { 
-                    executionDataClient.get(remoteAgaveIgnoreFile, agaveIgnoreFile.getAbsolutePath());
-                    
-                    // read it in to find the original job files
-                    if (agaveIgnoreFile.exists() && agaveIgnoreFile.length() > 0) {
-                        for (String ignoreItem: FileUtils.readLines(agaveIgnoreFile)) {
-                            jobFileList.add(getJob().getWorkPath() + File.separator + ignoreItem);
-                        }
-                    }
-                }
-                
-                if (jobFileList.isEmpty()) 
-                {
-                    log.debug("No archive file found for job " + getJob().getUuid() + " on system " + 
-                            executionSystem.getSystemId() + " at " + remoteAgaveIgnoreFile + 
-                            ". Entire job directory will be archived.");
-                    this.job = getJobManager().updateStatus(getJob(), JobStatusType.ARCHIVING,
-                            "No archive file found. Entire job directory will be archived.");
-                }
-            } 
-            catch (TransferException e) {
+                manifest = JobArchiver.buildManifest(getJob(), executionSystem, executionDataClient);
+            }
+            catch (FileNotFoundException e) {
                 throw new JobException("Failed to archive job output directory " + getJob().getWorkPath() + 
                         " to " + getJob().getArchivePath() + 
                         ". Job output directory no longer exists.", e);
             }
-            catch (Exception e)
+            
+            if (manifest.isExclusionFileUnreadable())
             {
                 log.debug("Unable to parse archive file for job " + getJob().getUuid() + " on system " + 
-                        executionSystem.getSystemId() + " at " + remoteAgaveIgnoreFile + 
-                        ". Entire job directory will be archived.");
+                        executionSystem.getSystemId() + ". Entire job directory will be archived.");
                 this.job = getJobManager().updateStatus(getJob(), JobStatusType.ARCHIVING,
                         "Unable to parse job archive file. Entire job directory will be archived.");
             }
+            else if (!manifest.isExclusionFileFound()) 
+            {
+                log.debug("No archive file found for job " + getJob().getUuid() + " on system " + 
+                        executionSystem.getSystemId() + ". Entire job directory will be archived.");
+                this.job = getJobManager().updateStatus(getJob(), JobStatusType.ARCHIVING,
+                        "No archive file found. Entire job directory will be archived.");
+            }
             
             remoteArchiveSystem = getJob().getArchiveSystem();
             
@@ -196,11 +183,10 @@ public class ArchiveAction extends AbstractWorkerAction {
                         + getJob().getArchivePath() + " on " + remoteArchiveSystem.getSystemId(), e);
             }
             
-            // iterate over the work folder and archive everything that wasn't
-            // listed in the archive file. We use URL copy here to abstract the 
-            // third party transfer we would like to do. If possible, URLCopy will
-            // do a 3rd party transfer. When not possible, such as when we're going
-            // cross-protocol, it will proxy the transfer.
+            // archive everything in the manifest that wasn't listed in the archive
+            // file. Files are copied concurrently with URLCopy, which will do a 3rd
+            // party transfer if possible and proxy the transfer when not, such as
+            // when we're going cross-protocol.
             this.rootTask = new TransferTask(
                     "agave://" + getJob().getSystem() + "/" + getJob().getWorkPath(), 
                     "agave://" + getJob().getArchiveSystem().getSystemId() + "/" +getJob().getArchivePath(), 
@@ -217,25 +203,10 @@ public class ArchiveAction extends AbstractWorkerAction {
             
             JobDao.persist(getJob());
             
-            urlCopy = new URLCopy(executionDataClient, archiveDataClient);
+            archiver = new JobArchiver(getJob(), executionSystem, remoteArchiveSystem,
+                    executionDataClient, archiveDataClient, this::isStopped);
             
-            try 
-            {
-                rootTask = urlCopy.copy(getJob().getWorkPath(), getJob().getArchivePath(), rootTask, jobFileList);
-            } 
-            catch (ClosedByInterruptException e) {
-               throw e; 
-            } 
-            catch (TransferException e) {
-                throw new JobException("Failed to archive job output directory " + getJob().getWorkPath() + 
-                        " to " + getJob().getArchivePath() + 
-                        " due to an error persisting the transfer record.", e);
-            }
-            catch (Exception e) {
-                throw new JobException("Failed to archive file " + getJob().getWorkPath() + 
-                        " to " + getJob().getArchivePath() + 
-                        " due to an error during transfer ", e);
-            }
+            archiver.archive(manifest, rootTask);
             
             try 
             {
@@ -280,8 +251,6 @@ public class ArchiveAction extends AbstractWorkerAction {
         }
         finally 
         {
-            // clean up the local archive file
-            FileUtils.deleteQuietly(tempDir);
             try {
                 if (archiveDataClient.isPermissionMirroringRequired() && StringUtils.isEmpty(getJob().getInternalUsername())) {
                     archiveDataClient.setOwnerPermission(getJob().getOwner(), getJob().getArchivePath(), true);
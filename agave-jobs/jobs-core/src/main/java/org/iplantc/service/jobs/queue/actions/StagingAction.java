@@ -9,11 +9,14 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.common.exceptions.AgaveNamespaceException;
 import org.iplantc.service.common.exceptions.PermissionException;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.common.uri.AgaveUriRegex;
 import org.iplantc.service.common.uri.UrlPathEscaper;
 import org.iplantc.service.io.dao.LogicalFileDao;
 import org.iplantc.service.io.model.LogicalFile;
 import org.iplantc.service.io.permissions.PermissionManager;
+import org.iplantc.service.jobs.Settings;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.exceptions.JobDependencyException;
 import org.iplantc.service.jobs.exceptions.JobException;
@@ -24,6 +27,9 @@ import org.iplantc.service.jobs.managers.JobPermissionManager;
 import org.iplantc.service.jobs.model.Job;
 import org.iplantc.service.jobs.model.JobEvent;
 import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.jobs.util.RemoteDataClientPool;
+import org.iplantc.service.jobs.util.SystemTransferPermits;
+import org.iplantc.service.jobs.util.TransferLanes;
 import org.iplantc.service.systems.exceptions.RemoteCredentialException;
 import org.iplantc.service.systems.exceptions.SystemUnavailableException;
 import org.iplantc.service.systems.exceptions.SystemUnknownException;
@@ -40,6 +46,7 @@ import org.iplantc.service.transfer.exceptions.AuthenticationException;
 import org.iplantc.service.transfer.exceptions.RemoteDataException;
 import org.iplantc.service.transfer.exceptions.TransferException;
 import org.iplantc.service.transfer.model.TransferTask;
+import org.iplantc.service.transfer.model.enumerations.TransferStatusType;
 import org.joda.time.DateTime;
 
 import java.io.IOException;
@@ -47,7 +54,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Paths;
+import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 /**
@@ -58,6 +69,17 @@ public class StagingAction extends AbstractWorkerAction {
 
     private static final Logger log = Logger.getLogger(StagingAction.class);
 
+    // how often the staging thread wakes to check for a stop request while waiting on transfers
+    private static final long TRANSFER_POLL_MILLIS = 1000;
+    // how long to wait for running transfers to unwind after a failure or stop
+    private static final long TRANSFER_SHUTDOWN_SECS = 30;
+
+    // bounds concurrent input transfers into each execution system across all staging tasks in this worker
+    private static final SystemTransferPermits executionSystemTransferPermits = new SystemTransferPermits();
+
+    // authenticated clients to the execution system, shared by the staging lanes of this action
+    private final RemoteDataClientPool executionSystemClients = new RemoteDataClientPool();
+
     public StagingAction(Job job) {
         super(job);
     }
@@ -76,27 +98,30 @@ public class StagingAction extends AbstractWorkerAction {
      */
     public void run() throws SystemUnavailableException, JobException, ClosedByInterruptException, JobDependencyException {
 
-        RemoteDataClient jobInputRemoteDataClient = null;
-        RemoteDataClient jobExecutionSystemRemoteDataClient = null;
+        TransferLanes<TransferTask> transferLanes = null;
+        TransferTask aggregateTransferTask = null;
 
         try {
             ExecutionSystem executionSystem = getExecutionSystem();
 
-            // copy to remote execution work directory
-            jobExecutionSystemRemoteDataClient = getRemoteDataClientForExecutionSystem(executionSystem);
+            // copy to remote execution work directory. clients to the execution system are pooled
+            // and reused across inputs rather than reconnecting for every input.
+            RemoteDataClient jobExecutionSystemRemoteDataClient = borrowExecutionSystemClient(executionSystem);
 
             // calculate the job work directory. we do this here in the event the execution system
             // root, home, work, or scratch directories change between job request time and  input staging.
             String remoteJobWorkPath = calculateRemoteJobPath(executionSystem);
-            createJobRemoteWorkPath(executionSystem, jobExecutionSystemRemoteDataClient, remoteJobWorkPath);
+            try {
+                createJobRemoteWorkPath(executionSystem, jobExecutionSystemRemoteDataClient, remoteJobWorkPath);
+            } finally {
+                returnExecutionSystemClient(jobExecutionSystemRemoteDataClient);
+            }
 
             getJob().setWorkPath(remoteJobWorkPath);
 
             log.debug("Beginning staging inputs for job " + getJob().getUuid() + " to " +
                     executionSystem.getSystemId() + ":" + getJob().getWorkPath());
 
-            // we need a way to parallelize this task. Ideally we'd just throw each input
-            // file to the staging queue and let 'em rip
             JobManager.updateStatus(getJob(), JobStatusType.PROCESSING_INPUTS);
 
             // Get a well-formed map of user-supplied + default + hidden/required inputs for the job
@@ -104,6 +129,12 @@ public class StagingAction extends AbstractWorkerAction {
             // method to make it less nasty to work with
             Map<String, String[]> jobInputMap = JobManager.getJobInputMap(getJob());
 
+            // inputs are resolved and permission checked serially on this thread, then handed off to be
+            // transferred concurrently. Resolution waits for a free staging lane before opening the next
+            // input client, so no more than maxConcurrentTransfers inputs are open at any time.
+            transferLanes = new TransferLanes<TransferTask>("staging-" + getJob().getUuid() + "-",
+                    Settings.MAX_STAGING_INPUT_CONCURRENCY);
+
             // each job input corresponds to a SoftwareInput, which may have multiple values, so we iterate over
             // each job input, processing all values for that input in turn.
             for (String inputKey : jobInputMap.keySet()) {
@@ -112,58 +143,92 @@ public class StagingAction extends AbstractWorkerAction {
 
                 String[] rawInputValues = jobInputMap.get(inputKey);
 
-                URI singleRawInputUri = null;
-                RemoteSystem jobInputSystem = null;
-
                 // inputs can have multiple values provided to them by the user and/or their defaults.
                 // here we iterate over each input value, staging them to the remote system.
                 for (String singleRawInputValue : rawInputValues) {
                     checkStopped();
 
-                    // ensure it's a valid URI we can pass for parsing.
-                    singleRawInputUri = new URI(singleRawInputValue);
-
-                    // URL will be handled differently depending on the scheme and whether it points to an internal
-                    // API resource. We check that first before proceeding.
-                    String remoteJobInputPath = null;
-                    if (ApiUriUtil.isInternalURI(singleRawInputUri)) {
-                        // get system for an input URI representing an internal or agave url
-                        jobInputSystem = ApiUriUtil.getRemoteSystem(getJob().getOwner(), singleRawInputUri);
-
-                        // get a client to the remote system for the input
-                        jobInputRemoteDataClient = getRemoteDataClientForInputSystem(jobInputSystem, singleRawInputValue);
-
-                        remoteJobInputPath = getRemoteJobInputPathIfJobOwnerHasPermission(singleRawInputUri, jobInputSystem, jobInputRemoteDataClient);
-                    } else {
-                        // We handle non-internal URL as standard URL. We parse based on URI schema and generate
-                        // a client dynamically based on URI components.
-                        jobInputRemoteDataClient = getRemoteDataClientForUri(singleRawInputUri);
-
-                        // for non-internal URL, the client will use "/" as the rootdir and homedir, so the given path
-                        // will be treated as absolute regardless.
-                        remoteJobInputPath = singleRawInputUri.getPath();
+                    // wait for a staging lane to free up before resolving the next input
+                    while (transferLanes.isFull()) {
+                        awaitNextTransfer(transferLanes, aggregateTransferTask);
                     }
 
-                    // figure out the agave relative path of the job input on the execution system
-                    String destPath = Paths.get(remoteJobWorkPath).resolve(FilenameUtils.getName(remoteJobInputPath)).toString();
-
-                    // circuit breaker
-                    checkStopped();
+                    // ensure it's a valid URI we can pass for parsing.
+                    URI singleRawInputUri = new URI(singleRawInputValue);
 
+                    RemoteDataClient jobInputRemoteDataClient = null;
+                    boolean transferSubmitted = false;
                     try {
+                        // URL will be handled differently depending on the scheme and whether it points to an internal
+                        // API resource. We check that first before proceeding.
+                        String remoteJobInputPath = null;
+                        if (ApiUriUtil.isInternalURI(singleRawInputUri)) {
+                            // get system for an input URI representing an internal or agave url
+                            RemoteSystem jobInputSystem = ApiUriUtil.getRemoteSystem(getJob().getOwner(), singleRawInputUri);
+
+                            // get a client to the remote system for the input
+                            jobInputRemoteDataClient = getRemoteDataClientForInputSystem(jobInputSystem, singleRawInputValue);
+
+                            remoteJobInputPath = getRemoteJobInputPathIfJobOwnerHasPermission(singleRawInputUri, jobInputSystem, jobInputRemoteDataClient);
+                        } else {
+                            // We handle non-internal URL as standard URL. We parse based on URI schema and generate
+                            // a client dynamically based on URI components.
+                            jobInputRemoteDataClient = getRemoteDataClientForUri(singleRawInputUri);
+
+                            // for non-internal URL, the client will use "/" as the rootdir and homedir, so the given path
+                            // will be treated as absolute regardless.
+                            remoteJobInputPath = singleRawInputUri.getPath();
+                        }
+
+                        // figure out the agave relative path of the job input on the execution system
+                        String destPath = Paths.get(remoteJobWorkPath).resolve(FilenameUtils.getName(remoteJobInputPath)).toString();
+
+                        // circuit breaker
+                        checkStopped();
+
                         // see if we can skip this transfer due to prior success
-                        if (!isJobInputAlreadyTransferred(singleRawInputValue, destPath, jobExecutionSystemRemoteDataClient, remoteJobInputPath, jobInputRemoteDataClient)) {
+                        boolean alreadyTransferred;
+                        jobExecutionSystemRemoteDataClient = borrowExecutionSystemClient(executionSystem);
+                        try {
+                            alreadyTransferred = isJobInputAlreadyTransferred(singleRawInputValue, destPath, jobExecutionSystemRemoteDataClient, remoteJobInputPath, jobInputRemoteDataClient);
+                        } finally {
+                            returnExecutionSystemClient(jobExecutionSystemRemoteDataClient);
+                        }
+
+                        if (!alreadyTransferred) {
+                            if (aggregateTransferTask == null) {
+                                aggregateTransferTask = createAggregateTransferTask(remoteJobWorkPath);
+                            }
+
+                            // job status and events are only updated from this thread. the staging lanes
+                            // only carry out the copy itself.
+                            TransferTask inputTransferTask = createInputTransferTask(singleRawInputValue, destPath, aggregateTransferTask);
+
                             // finally ok to make the remote transfer
-                            transferJobInput(jobInputRemoteDataClient, jobExecutionSystemRemoteDataClient, singleRawInputValue, remoteJobInputPath, destPath);
+                            transferLanes.submit(getInputTransfer(executionSystem, jobInputRemoteDataClient,
+                                    singleRawInputValue, remoteJobInputPath, destPath, inputTransferTask));
+                            transferSubmitted = true;
                         }
                     } finally {
-                        // close connections every time since we reuse these RDC.
-                        try { jobExecutionSystemRemoteDataClient.disconnect(); } catch (Exception ignored) {}
-                        try { jobInputRemoteDataClient.disconnect(); } catch (Exception ignored) {}
+                        // submitted transfers disconnect their input client once the copy completes
+                        if (!transferSubmitted && jobInputRemoteDataClient != null) {
+                            try { jobInputRemoteDataClient.disconnect(); } catch (Exception ignored) {}
+                        }
                     }
                 }
             }
 
+            // wait for the remaining transfers to finish
+            while (transferLanes.hasPending()) {
+                awaitNextTransfer(transferLanes, aggregateTransferTask);
+            }
+
+            if (aggregateTransferTask != null) {
+                aggregateTransferTask.setStatus(TransferStatusType.COMPLETED);
+                aggregateTransferTask.setEndTime(new Date());
+                TransferTaskDao.persist(aggregateTransferTask);
+            }
+
             log.debug("Completed staging inputs for job " + getJob().getUuid() + " to " +
                     executionSystem.getSystemId() + ":" + getJob().getWorkPath());
 
@@ -216,8 +281,22 @@ public class StagingAction extends AbstractWorkerAction {
             throw new JobException(e.getMessage(), e);
         }
         finally {
-            if (jobInputRemoteDataClient != null) jobInputRemoteDataClient.disconnect();
-            if (jobExecutionSystemRemoteDataClient != null) jobExecutionSystemRemoteDataClient.disconnect();
+            // on failure or stop, interrupt the staging lanes and kill any copies still running
+            if (transferLanes != null && !transferLanes.shutdown(TRANSFER_SHUTDOWN_SECS, this::killActiveUrlCopies)) {
+                log.error("Timed out waiting for input transfers of job " + getJob().getUuid() + " to stop.");
+            }
+
+            if (aggregateTransferTask != null && aggregateTransferTask.getStatus() != TransferStatusType.COMPLETED) {
+                try {
+                    aggregateTransferTask.setStatus(isStopped() ? TransferStatusType.CANCELLED : TransferStatusType.FAILED);
+                    aggregateTransferTask.setEndTime(new Date());
+                    TransferTaskDao.persist(aggregateTransferTask);
+                } catch (Throwable e) {
+                    log.error("Failed to update input staging transfer task for job " + getJob().getUuid(), e);
+                }
+            }
+
+            disconnectExecutionSystemClients();
         }
 
         if (!isStopped()) {
@@ -348,45 +427,192 @@ public class StagingAction extends AbstractWorkerAction {
     }
 
     /**
-     * Carries out the transfer of the job input file using a {@link URLCopy} operation. This will handle both
-     * files and folders regardless of protocol and track the transfers with {@link TransferTask} linked to
-     * {@link JobStatusType#STAGING_INPUTS} events associated with the current job.
+     * Creates the parent {@link TransferTask} under which every input transfer of the job is tracked. Progress of
+     * each input is rolled up into this task as the input completes.
+     *
+     * @param remoteJobWorkPath the job work directory on the execution system
+     * @return the persisted aggregate transfer task
+     * @throws TransferException when the transfer task cannot be saved
+     */
+    protected TransferTask createAggregateTransferTask(String remoteJobWorkPath) throws TransferException {
+        TransferTask aggregateTransferTask = new TransferTask(
+                TenancyHelper.resolveURLToCurrentTenant(Settings.IPLANT_JOB_SERVICE) + getJob().getUuid(),
+                "agave://" + getJob().getSystem() + "/" + remoteJobWorkPath,
+                getJob().getOwner(),
+                null,
+                null);
+        aggregateTransferTask.setStatus(TransferStatusType.TRANSFERRING);
+        aggregateTransferTask.setStartTime(new Date());
+
+        TransferTaskDao.persist(aggregateTransferTask);
+
+        return aggregateTransferTask;
+    }
+
+    /**
+     * Creates the {@link TransferTask} tracking the copy of a single job input and records it on the job with a
+     * {@link JobStatusType#STAGING_INPUTS} event. This must be called from the staging thread, as it updates the job.
      *
-     * @param jobInputRemoteDataClient a preauthenticated clien to the job input
-     * @param jobExecutionSystemRemoteDataClient a preauthenticated client to the execution system
      * @param singleRawInputValue the raw job input value
-     * @param remoteJobInputPath the path to the job input on the source system
      * @param destPath the target path to which data will be copied
-     * @throws TransferException when the transfer cannot be carried out due to procedural issues
+     * @param aggregateTransferTask the parent task of all input transfers for the job
+     * @return the persisted transfer task for the input
+     * @throws TransferException when the transfer task cannot be saved
      * @throws JobException when the job status and/or event cannot be udpated
-     * @throws ClosedByInterruptException when the transfer is interrupted by an outside process
      */
-    protected void transferJobInput(RemoteDataClient jobInputRemoteDataClient, RemoteDataClient jobExecutionSystemRemoteDataClient, String singleRawInputValue, String remoteJobInputPath, String destPath)
-    throws TransferException, JobException, ClosedByInterruptException {
-        // nope. still have to copy them. proceed
-        TransferTask rootTransferTask = new TransferTask(
+    protected TransferTask createInputTransferTask(String singleRawInputValue, String destPath, TransferTask aggregateTransferTask)
+    throws TransferException, JobException {
+        TransferTask inputTransferTask = new TransferTask(
                 singleRawInputValue,
                 "agave://" + getJob().getSystem() + "/" + destPath,
                 getJob().getOwner(),
-                null,
-                null);
+                aggregateTransferTask,
+                aggregateTransferTask);
 
-        TransferTaskDao.persist(rootTransferTask);
+        TransferTaskDao.persist(inputTransferTask);
 
         JobEvent event = new JobEvent(
                 JobStatusType.STAGING_INPUTS,
                 "Copy in progress",
-                rootTransferTask,
+                inputTransferTask,
                 getJob().getOwner());
 
         getJob().setStatus(JobStatusType.STAGING_INPUTS, event);
         getJob().setLastUpdated(new DateTime().toDate());
         JobDao.persist(getJob());
 
+        return inputTransferTask;
+    }
+
+    /**
+     * Creates the task run on a staging lane to copy a single job input. The task waits for a transfer slot on the
+     * execution system, borrows a pooled client to the execution system, and disconnects the input client when done.
+     *
+     * @param executionSystem the system on which the job will run
+     * @param jobInputRemoteDataClient a preauthenticated client to the job input. This will be disconnected by the task.
+     * @param singleRawInputValue the raw job input value
+     * @param remoteJobInputPath the path to the job input on the source system
+     * @param destPath the target path to which data will be copied
+     * @param inputTransferTask the task tracking this input's transfer
+     * @return the task to submit to the staging lanes
+     */
+    protected Callable<TransferTask> getInputTransfer(final ExecutionSystem executionSystem,
+                                                      final RemoteDataClient jobInputRemoteDataClient,
+                                                      final String singleRawInputValue,
+                                                      final String remoteJobInputPath,
+                                                      final String destPath,
+                                                      final TransferTask inputTransferTask) {
+        final String tenantId = getJob().getTenantId();
+        final String owner = getJob().getOwner();
+
+        return () -> {
+            // staging lanes do not inherit the tenancy of the staging thread
+            TenancyHelper.setCurrentTenantId(tenantId);
+            TenancyHelper.setCurrentEndUser(owner);
+
+            String systemKey = tenantId + "/" + executionSystem.getSystemId();
+            RemoteDataClient jobExecutionSystemRemoteDataClient = null;
+            boolean permitAcquired = false;
+            boolean succeeded = false;
+            try {
+                try {
+                    executionSystemTransferPermits.acquire(systemKey, Settings.MAX_STAGING_SYSTEM_CONCURRENCY);
+                    permitAcquired = true;
+                } catch (InterruptedException e) {
+                    throw new ClosedByInterruptException();
+                }
+
+                checkStopped();
+
+                jobExecutionSystemRemoteDataClient = borrowExecutionSystemClient(executionSystem);
+
+                TransferTask transferTask = transferJobInput(jobInputRemoteDataClient, jobExecutionSystemRemoteDataClient,
+                        singleRawInputValue, remoteJobInputPath, destPath, inputTransferTask);
+                succeeded = true;
+
+                return transferTask;
+            }
+            finally {
+                if (permitAcquired) executionSystemTransferPermits.release(systemKey);
+                // clients from failed transfers are not reused. they are disconnected with the rest when staging ends.
+                if (succeeded) returnExecutionSystemClient(jobExecutionSystemRemoteDataClient);
+                try { jobInputRemoteDataClient.disconnect(); } catch (Exception ignored) {}
+                try { HibernateUtil.closeSession(); } catch (Exception ignored) {}
+            }
+        };
+    }
+
+    /**
+     * Waits up to {@link #TRANSFER_POLL_MILLIS} for the next input transfer to finish, checking for a stop request
+     * before waiting. Completed transfers are rolled up into the {@code aggregateTransferTask}. Failed transfers
+     * rethrow the exception raised on the staging lane.
+     *
+     * @param transferLanes the lanes to which input transfers were submitted
+     * @param aggregateTransferTask the parent task of all input transfers for the job
+     * @return true if a transfer finished, false if the wait timed out
+     * @throws ClosedByInterruptException when the action was stopped or a transfer was interrupted
+     * @throws TransferException when a transfer failed
+     * @throws RemoteDataException when a connection to the execution system could not be established
+     * @throws AuthenticationException when authentication to the execution system failed
+     * @throws JobException when a transfer failed for any other reason
+     */
+    protected boolean awaitNextTransfer(TransferLanes<TransferTask> transferLanes, TransferTask aggregateTransferTask)
+    throws ClosedByInterruptException, TransferException, RemoteDataException, AuthenticationException, JobException {
+        checkStopped();
+
+        TransferTask inputTransferTask = null;
+        try {
+            Future<TransferTask> transfer = transferLanes.poll(TRANSFER_POLL_MILLIS);
+            if (transfer == null) return false;
+
+            inputTransferTask = transfer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ClosedByInterruptException) throw (ClosedByInterruptException) cause;
+            if (cause instanceof TransferException) throw (TransferException) cause;
+            if (cause instanceof RemoteDataException) throw (RemoteDataException) cause;
+            if (cause instanceof AuthenticationException) throw (AuthenticationException) cause;
+            throw new JobException("Failed to stage input for job " + getJob().getUuid() + ". " + cause.getMessage(), cause);
+        }
+
+        if (inputTransferTask != null && aggregateTransferTask != null) {
+            try {
+                aggregateTransferTask.updateSummaryStats(TransferTaskDao.getById(inputTransferTask.getId()));
+                TransferTaskDao.updateProgress(aggregateTransferTask);
+            } catch (TransferException e) {
+                log.debug("Unable to update input staging progress for job " + getJob().getUuid() + ". " + e.getMessage());
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Carries out the transfer of the job input file using a {@link URLCopy} operation. This will handle both
+     * files and folders regardless of protocol and track the transfers with the given {@link TransferTask}. The
+     * copy is registered with this action so it will be killed if the action is stopped.
+     *
+     * @param jobInputRemoteDataClient a preauthenticated clien to the job input
+     * @param jobExecutionSystemRemoteDataClient a preauthenticated client to the execution system
+     * @param singleRawInputValue the raw job input value
+     * @param remoteJobInputPath the path to the job input on the source system
+     * @param destPath the target path to which data will be copied
+     * @param inputTransferTask the task tracking this input's transfer
+     * @return the updated transfer task
+     * @throws TransferException when the transfer cannot be carried out due to procedural issues
+     * @throws ClosedByInterruptException when the transfer is interrupted by an outside process
+     */
+    protected TransferTask transferJobInput(RemoteDataClient jobInputRemoteDataClient, RemoteDataClient jobExecutionSystemRemoteDataClient, String singleRawInputValue, String remoteJobInputPath, String destPath, TransferTask inputTransferTask)
+    throws TransferException, ClosedByInterruptException {
+
         URLCopy urlCopy = getURLCopy(jobInputRemoteDataClient, jobExecutionSystemRemoteDataClient);
+        addActiveUrlCopy(urlCopy);
 
         try {
-            urlCopy.copy(remoteJobInputPath, destPath, rootTransferTask);
+            return urlCopy.copy(remoteJobInputPath, destPath, inputTransferTask);
         } catch (ClosedByInterruptException e) {
             throw e;
         } catch (Throwable e) {
@@ -399,6 +625,8 @@ public class StagingAction extends AbstractWorkerAction {
             }
             throw new TransferException("Failed to transfer input " + singleRawInputValue + " for job " +
                     getJob().getUuid(), e);
+        } finally {
+            removeActiveUrlCopy(urlCopy);
         }
     }
 
@@ -625,6 +853,51 @@ public class StagingAction extends AbstractWorkerAction {
         return remoteDataClient;
     }
 
+    /**
+     * Takes an idle authenticated client to the execution system from this action's pool, creating a new one
+     * when none is idle. Clients must be handed back with {@link #returnExecutionSystemClient(RemoteDataClient)}.
+     *
+     * @param executionSystem the system for which to get a remote data client.
+     * @return an authenticated client capable of staging data to the remote system.
+     * @throws AuthenticationException when credentials are bad or {@link RemoteDataClient#authenticate()} fails.
+     * @throws RemoteDataException when unable to establish a connection due to system outage or connectivity issues.
+     */
+    protected RemoteDataClient borrowExecutionSystemClient(ExecutionSystem executionSystem)
+    throws AuthenticationException, RemoteDataException {
+        RemoteDataClient remoteDataClient = executionSystemClients.poll();
+        if (remoteDataClient == null) {
+            remoteDataClient = getRemoteDataClientForExecutionSystem(executionSystem);
+            executionSystemClients.add(remoteDataClient);
+        }
+        return remoteDataClient;
+    }
+
+    /**
+     * Returns a client taken with {@link #borrowExecutionSystemClient(ExecutionSystem)} to the pool for reuse.
+     *
+     * @param remoteDataClient the client to return. Null values are ignored.
+     */
+    protected void returnExecutionSystemClient(RemoteDataClient remoteDataClient) {
+        executionSystemClients.release(remoteDataClient);
+    }
+
+    /**
+     * Disconnects every client to the execution system opened by this action.
+     */
+    protected void disconnectExecutionSystemClients() {
+        executionSystemClients.disconnectAll();
+    }
+
+    /**
+     * Gets the permits bounding concurrent input transfers into each execution system across all staging
+     * tasks in this worker.
+     *
+     * @return the shared transfer permits
+     */
+    protected static SystemTransferPermits getExecutionSystemTransferPermits() {
+        return executionSystemTransferPermits;
+    }
+
     /**
      * Gets the job execution system with proper avaialbility checks
      * @return the execution system for the job
@@ -0,0 +1,204 @@
+package org.iplantc.service.jobs.schedulers;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.dao.JobDao;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.joda.time.DateTime;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predicts the next useful status check time for a running {@link Job} from the run
+ * times of previously completed jobs of the same app and of the same system queue.
+ * The next check is placed where a fixed share of the remaining completion probability
+ * has accumulated, so checks are dense around the expected completion time and sparse
+ * when a job is far from it. When there is too little history, or the job has already
+ * outrun nearly everything seen before, no prediction is made and the default status
+ * check backoff in {@link JobDao#getNextExecutingJobUuid(String, String[], String[])}
+ * applies.
+ *
+ * Histograms are seeded lazily from the db and refreshed periodically so that
+ * completions observed by other workers are eventually reflected here.
+ *
+ * @author dooley
+ */
+public class AdaptiveMonitoringScheduler {
+
+    private static final Logger log = Logger.getLogger(AdaptiveMonitoringScheduler.class);
+
+    // share of the remaining completion probability to let pass between checks
+    private static final double COMPLETION_PROBABILITY_STEP = 0.2;
+    // below this share of history still running, the job is an outlier and we stop predicting
+    private static final double MIN_SURVIVAL_PROBABILITY = 0.02;
+    // number of historical run times loaded per histogram
+    private static final int HISTORY_SIZE = 500;
+    // how often histograms are rebuilt from the db
+    private static final long REFRESH_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    private static volatile AdaptiveMonitoringScheduler _instance;
+
+    private final ConcurrentHashMap<String, HistogramEntry> histograms = new ConcurrentHashMap<>();
+
+    private static class HistogramEntry {
+        final JobRuntimeHistogram histogram = new JobRuntimeHistogram();
+        volatile long loaded = 0;
+    }
+
+    /**
+     * @return the shared scheduler for this worker
+     */
+    public static AdaptiveMonitoringScheduler getInstance() {
+        if (_instance == null) {
+            synchronized (AdaptiveMonitoringScheduler.class) {
+                if (_instance == null) {
+                    _instance = new AdaptiveMonitoringScheduler();
+                }
+            }
+        }
+        return _instance;
+    }
+
+    protected AdaptiveMonitoringScheduler() {}
+
+    /**
+     * Calculates the earliest time the given job's status should be checked again.
+     *
+     * @param job the job being monitored
+     * @return the time of the next check, or null if the default backoff should be used
+     */
+    public Date getNextStatusCheck(Job job) {
+        if (!Settings.ENABLE_ADAPTIVE_MONITORING || job == null) return null;
+
+        // queue wait time is not predicted. only running jobs have a meaningful elapsed run time
+        if (job.getStatus() != JobStatusType.RUNNING || job.getStartTime() == null) return null;
+
+        double elapsed = Math.max(0, (System.currentTimeMillis() - job.getStartTime().getTime()) / 1000.0);
+
+        JobRuntimeHistogram histogram = getAppHistogram(job);
+        if (histogram.getCount() < Settings.ADAPTIVE_MONITORING_MIN_SAMPLES) {
+            histogram = getQueueHistogram(job);
+        }
+
+        Long delay = predictDelaySeconds(histogram, elapsed);
+        if (delay == null) return null;
+
+        if (log.isDebugEnabled())
+            log.debug("Next adaptive status check for job " + job.getUuid() + " in " + delay +
+                    " seconds after " + (long) elapsed + " seconds of run time.");
+
+        return new DateTime().plusSeconds(delay.intValue()).toDate();
+    }
+
+    /**
+     * Records the run time of a job whose completion was just observed. The run time is
+     * measured from the job's start time to its end time, so lag in observing the
+     * completion does not skew the history.
+     *
+     * @param job the job that completed
+     */
+    public void recordCompletion(Job job) {
+        if (!Settings.ENABLE_ADAPTIVE_MONITORING || job == null
+                || job.getStartTime() == null || job.getEndTime() == null) return;
+
+        long runtime = Math.max(0, (job.getEndTime().getTime() - job.getStartTime().getTime()) / 1000);
+
+        HistogramEntry appEntry = histograms.get(getAppKey(job));
+        if (appEntry != null) appEntry.histogram.add(runtime);
+
+        HistogramEntry queueEntry = histograms.get(getQueueKey(job));
+        if (queueEntry != null) queueEntry.histogram.add(runtime);
+    }
+
+    /**
+     * Calculates how long to wait before the next check of a job that has been running
+     * for {@code elapsed} seconds. The delay is chosen so that, given the job has not yet
+     * completed, {@link #COMPLETION_PROBABILITY_STEP} of the remaining probability of
+     * completion falls before the next check.
+     *
+     * @param histogram the historical run times to predict from
+     * @param elapsed the current run time of the job in seconds
+     * @return the delay in seconds, or null if no prediction can be made
+     */
+    protected Long predictDelaySeconds(JobRuntimeHistogram histogram, double elapsed) {
+        if (histogram.getCount() < Settings.ADAPTIVE_MONITORING_MIN_SAMPLES) return null;
+
+        double completed = histogram.cdf(elapsed);
+        double survival = 1.0 - completed;
+        if (survival < MIN_SURVIVAL_PROBABILITY) return null;
+
+        double target = histogram.quantile(completed + (survival * COMPLETION_PROBABILITY_STEP));
+        long delay = (long) Math.ceil(target - elapsed);
+
+        return Math.min(Settings.ADAPTIVE_MONITORING_MAX_INTERVAL_SECS,
+                Math.max(Settings.ADAPTIVE_MONITORING_MIN_INTERVAL_SECS, delay));
+    }
+
+    /**
+     * @param job the job being monitored
+     * @return the run time history of the job's app in its tenant
+     */
+    JobRuntimeHistogram getAppHistogram(Job job) {
+        return getHistogram(getAppKey(job), job.getTenantId(), job.getSoftwareName(), null, null);
+    }
+
+    /**
+     * @param job the job being monitored
+     * @return the run time history of the job's system queue in its tenant
+     */
+    JobRuntimeHistogram getQueueHistogram(Job job) {
+        return getHistogram(getQueueKey(job), job.getTenantId(), null, job.getSystem(), job.getBatchQueue());
+    }
+
+    /**
+     * Loads the run times of the most recently completed jobs matching the given criteria.
+     *
+     * @see JobDao#getCompletedJobRunTimes(String, String, String, String, int)
+     */
+    protected List<Integer> loadRunTimes(String tenantId, String softwareName, String systemId, String queueName)
+    throws JobException {
+        return JobDao.getCompletedJobRunTimes(tenantId, softwareName, systemId, queueName, HISTORY_SIZE);
+    }
+
+    /**
+     * Returns the histogram for the given key, loading it from the db when it has not
+     * been loaded or is stale.
+     */
+    private JobRuntimeHistogram getHistogram(String key, String tenantId, String softwareName, String systemId, String queueName) {
+        HistogramEntry entry = histograms.computeIfAbsent(key, k -> new HistogramEntry());
+
+        if (System.currentTimeMillis() - entry.loaded > REFRESH_INTERVAL_MILLIS) {
+            synchronized (entry) {
+                if (System.currentTimeMillis() - entry.loaded > REFRESH_INTERVAL_MILLIS) {
+                    try {
+                        List<Integer> runtimes = loadRunTimes(tenantId, softwareName, systemId, queueName);
+                        entry.histogram.clear();
+                        for (Integer runtime : runtimes) {
+                            if (runtime != null) entry.histogram.add(runtime);
+                        }
+                    } catch (JobException e) {
+                        log.error("Failed to load job run time history for " + key, e);
+                    }
+                    // set even on failure so a db outage does not turn every check into a query
+                    entry.loaded = System.currentTimeMillis();
+                }
+            }
+        }
+
+        return entry.histogram;
+    }
+
+    // app and system ids are only unique within a tenant, so histograms are kept per tenant
+    private String getAppKey(Job job) {
+        return job.getTenantId() + "#app:" + job.getSoftwareName();
+    }
+
+    private String getQueueKey(Job job) {
+        return job.getTenantId() + "#queue:" + job.getSystem() + "#" + StringUtils.defaultString(job.getBatchQueue());
+    }
+}
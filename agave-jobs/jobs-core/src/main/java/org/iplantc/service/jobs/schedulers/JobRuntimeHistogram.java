@@ -0,0 +1,114 @@
+package org.iplantc.service.jobs.schedulers;
+
+/**
+ * Log-scaled histogram of job run times in seconds. Buckets grow geometrically by a
+ * factor of 2<sup>1/4</sup>, so resolution is relative to the run time and the whole
+ * range from one second to several months fits in a small fixed array. Cumulative
+ * probabilities are linearly interpolated within a bucket.
+ *
+ * This class is thread safe.
+ *
+ * @author dooley
+ */
+public class JobRuntimeHistogram {
+
+    // sub-buckets per power of two
+    private static final int RESOLUTION = 4;
+    // 2^24 seconds is roughly 194 days, well past any job's max run time
+    private static final int MAX_EXPONENT = 24;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT * RESOLUTION) + 1;
+    private static final double[] UPPER_BOUNDS = new double[BUCKET_COUNT];
+
+    static {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            UPPER_BOUNDS[i] = Math.pow(2, (double) i / RESOLUTION);
+        }
+    }
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total = 0;
+
+    /**
+     * Adds a run time observation.
+     *
+     * @param runtimeSeconds the observed run time in seconds
+     */
+    public synchronized void add(long runtimeSeconds) {
+        counts[bucketOf(runtimeSeconds)]++;
+        total++;
+    }
+
+    /**
+     * @return the number of run times recorded in this histogram
+     */
+    public synchronized long getCount() {
+        return total;
+    }
+
+    /**
+     * Removes all observations.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < BUCKET_COUNT; i++) counts[i] = 0;
+        total = 0;
+    }
+
+    /**
+     * Returns the fraction of observed run times less than or equal to the given value.
+     *
+     * @param seconds the run time in seconds
+     * @return the empirical cumulative probability in the range [0,1]
+     */
+    public synchronized double cdf(double seconds) {
+        if (total == 0) return 0;
+        if (seconds <= 0) return 0;
+
+        int bucket = bucketOf(seconds);
+        long below = 0;
+        for (int i = 0; i < bucket; i++) below += counts[i];
+
+        double lower = bucket == 0 ? 0 : UPPER_BOUNDS[bucket - 1];
+        double upper = UPPER_BOUNDS[bucket];
+        double fraction = Math.min(1.0, Math.max(0.0, (seconds - lower) / (upper - lower)));
+
+        return (below + (counts[bucket] * fraction)) / total;
+    }
+
+    /**
+     * Returns the run time in seconds at which the cumulative probability reaches
+     * the given value. This is the inverse of {@link #cdf(double)}.
+     *
+     * @param probability the cumulative probability in the range [0,1]
+     * @return the run time in seconds at the given quantile
+     */
+    public synchronized double quantile(double probability) {
+        if (total == 0) return 0;
+
+        double target = Math.min(1.0, Math.max(0.0, probability)) * total;
+        double cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] == 0) continue;
+
+            if (cumulative + counts[i] >= target) {
+                double lower = i == 0 ? 0 : UPPER_BOUNDS[i - 1];
+                double upper = UPPER_BOUNDS[i];
+                return lower + ((upper - lower) * ((target - cumulative) / counts[i]));
+            }
+            cumulative += counts[i];
+        }
+
+        return UPPER_BOUNDS[BUCKET_COUNT - 1];
+    }
+
+    /**
+     * Finds the bucket holding the given run time.
+     *
+     * @param seconds the run time in seconds
+     * @return the index of the bucket
+     */
+    private static int bucketOf(double seconds) {
+        if (seconds <= 1) return 0;
+        int bucket = (int) Math.ceil((Math.log(seconds) / Math.log(2)) * RESOLUTION);
+        return Math.min(Math.max(bucket, 0), BUCKET_COUNT - 1);
+    }
+}
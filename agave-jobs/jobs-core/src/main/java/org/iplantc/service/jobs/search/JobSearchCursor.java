@@ -0,0 +1,81 @@
+package org.iplantc.service.jobs.search;
+
+import org.apache.commons.lang.StringUtils;
+import org.iplantc.service.jobs.model.dto.JobDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position of the last job returned in a page of job search results ordered by
+ * {@code last_updated, id}. The next page is read by seeking past this position rather
+ * than skipping an offset, so each page costs the same regardless of how deep into the
+ * results it is. Cursors are serialized to an opaque, url-safe token for clients.
+ *
+ * @author dooley
+ */
+public class JobSearchCursor {
+
+    private final Date lastUpdated;
+    private final long id;
+
+    public JobSearchCursor(Date lastUpdated, long id) {
+        this.lastUpdated = lastUpdated;
+        this.id = id;
+    }
+
+    /**
+     * Creates a cursor positioned at the given job.
+     *
+     * @param job the last job of a page of results
+     * @return cursor positioned after the job
+     */
+    public static JobSearchCursor after(JobDTO job) {
+        return new JobSearchCursor(job.getLast_updated(), job.getId());
+    }
+
+    /**
+     * @return the last updated timestamp of the last job read
+     */
+    public Date getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @return the id of the last job read
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the opaque token representing this cursor
+     */
+    public String encode() {
+        String value = lastUpdated.getTime() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a token created by {@link #encode()}.
+     *
+     * @param token the opaque cursor token
+     * @return the cursor, or null if the token is blank
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static JobSearchCursor decode(String token) throws IllegalArgumentException {
+        if (StringUtils.isBlank(token)) return null;
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] fields = StringUtils.split(value, '.');
+            if (fields.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            return new JobSearchCursor(new Date(Long.parseLong(fields[0])), Long.parseLong(fields[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor \"" + token + "\".", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.iplantc.service.jobs.util;
+
+import org.iplantc.service.transfer.RemoteDataClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Authenticated clients to a single remote system shared by the transfer lanes of one job.
+ * Clients are only handed back once a transfer using them succeeds. Every client added to
+ * the pool, idle or not, is disconnected by {@link #disconnectAll()}.
+ *
+ * @author dooley
+ */
+public class RemoteDataClientPool {
+
+    // idle authenticated clients ready for reuse
+    private final BlockingQueue<RemoteDataClient> idleClients = new LinkedBlockingQueue<RemoteDataClient>();
+    // every client opened for the pool, disconnected when the job's transfers end
+    private final List<RemoteDataClient> openClients = Collections.synchronizedList(new ArrayList<RemoteDataClient>());
+
+    /**
+     * @return an idle client, or null if none is idle and the caller should open one
+     */
+    public RemoteDataClient poll() {
+        return idleClients.poll();
+    }
+
+    /**
+     * Tracks a newly opened client so it is disconnected with the rest of the pool. The
+     * client is considered in use until it is handed back with {@link #release(RemoteDataClient)}.
+     *
+     * @param remoteDataClient the client opened by the caller
+     */
+    public void add(RemoteDataClient remoteDataClient) {
+        if (remoteDataClient != null) {
+            openClients.add(remoteDataClient);
+        }
+    }
+
+    /**
+     * Hands a client back for reuse.
+     *
+     * @param remoteDataClient the client to return. Null values are ignored.
+     */
+    public void release(RemoteDataClient remoteDataClient) {
+        if (remoteDataClient != null) {
+            idleClients.offer(remoteDataClient);
+        }
+    }
+
+    /**
+     * Disconnects every client opened for the pool.
+     */
+    public void disconnectAll() {
+        idleClients.clear();
+        synchronized (openClients) {
+            for (RemoteDataClient remoteDataClient : openClients) {
+                try { remoteDataClient.disconnect(); } catch (Exception ignored) {}
+            }
+            openClients.clear();
+        }
+    }
+}
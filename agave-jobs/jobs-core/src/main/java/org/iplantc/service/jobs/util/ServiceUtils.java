@@ -171,6 +171,15 @@ public class ServiceUtils
 		return "\""+s+"\"";
 	}
 	
+	/**
+	 * Single quotes a path for use in a remote shell command.
+	 * @param path the remote path
+	 * @return the quoted path
+	 */
+	public static String quoteRemotePath(String path) {
+		return "'" + StringUtils.replace(path, "'", "'\\''") + "'";
+	}
+	
 	/**
 	 * Checks whether a string is a valid JSON array of value nodes.
 	 * This is used primarily when checking for job input arrays to enquote.
@@ -0,0 +1,87 @@
+package org.iplantc.service.jobs.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the number of concurrent transfers into each remote system. A permit
+ * entry only exists while a transfer holds or waits on it, so systems which are
+ * no longer in use do not accumulate in memory.
+ *
+ * @author dooley
+ *
+ */
+public class SystemTransferPermits {
+
+    private final Map<String, SystemPermits> permits = new HashMap<String, SystemPermits>();
+
+    private static class SystemPermits {
+        final Semaphore semaphore;
+        // transfers holding or waiting on a permit for the system
+        int users;
+
+        SystemPermits(int maxPermits) {
+            this.semaphore = new Semaphore(Math.max(1, maxPermits), true);
+        }
+    }
+
+    /**
+     * Waits for a transfer permit on the given system. Every successful call must be
+     * matched by a call to {@link #release(String)}.
+     *
+     * @param systemKey unique key of the system, including the tenant
+     * @param maxPermits the number of concurrent transfers allowed when the system has no entry yet
+     * @throws InterruptedException if interrupted while waiting. No permit is held in that case.
+     */
+    public void acquire(String systemKey, int maxPermits) throws InterruptedException {
+        SystemPermits systemPermits;
+        synchronized (permits) {
+            systemPermits = permits.computeIfAbsent(systemKey, k -> new SystemPermits(maxPermits));
+            systemPermits.users++;
+        }
+
+        boolean acquired = false;
+        try {
+            systemPermits.semaphore.acquire();
+            acquired = true;
+        } finally {
+            if (!acquired) {
+                synchronized (permits) {
+                    removeIfUnused(systemKey, systemPermits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases a permit taken with {@link #acquire(String, int)}. The entry for the
+     * system is removed once no transfer holds or waits on it.
+     *
+     * @param systemKey unique key of the system, including the tenant
+     */
+    public void release(String systemKey) {
+        synchronized (permits) {
+            SystemPermits systemPermits = permits.get(systemKey);
+            if (systemPermits != null) {
+                systemPermits.semaphore.release();
+                removeIfUnused(systemKey, systemPermits);
+            }
+        }
+    }
+
+    private void removeIfUnused(String systemKey, SystemPermits systemPermits) {
+        if (--systemPermits.users <= 0) {
+            permits.remove(systemKey, systemPermits);
+        }
+    }
+
+    /**
+     * @return the number of systems with transfers holding or waiting on a permit
+     */
+    public int size() {
+        synchronized (permits) {
+            return permits.size();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.iplantc.service.jobs.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of daemon threads on which the transfers of a single job run concurrently.
+ * Transfers are submitted and collected from one owning thread, which polls for finished
+ * transfers so it can check for stop requests while it waits.
+ *
+ * @param <T> the result of each transfer
+ * @author dooley
+ */
+public class TransferLanes<T> {
+
+    private final ExecutorService transferExecutor;
+    private final CompletionService<T> transferCompletionService;
+    private final int maxConcurrentTransfers;
+    // only read and written from the owning thread
+    private int pendingTransfers = 0;
+
+    /**
+     * @param threadPrefix prefix of the name of each lane thread
+     * @param maxConcurrentTransfers the number of lanes. Values below 1 are treated as 1.
+     */
+    public TransferLanes(final String threadPrefix, int maxConcurrentTransfers) {
+        this.maxConcurrentTransfers = Math.max(1, maxConcurrentTransfers);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.transferExecutor = Executors.newFixedThreadPool(this.maxConcurrentTransfers, r -> {
+            Thread t = new Thread(r, threadPrefix + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.transferCompletionService = new ExecutorCompletionService<T>(transferExecutor);
+    }
+
+    /**
+     * Queues a transfer to run on the next free lane.
+     *
+     * @param transfer the transfer to run
+     */
+    public void submit(Callable<T> transfer) {
+        transferCompletionService.submit(transfer);
+        pendingTransfers++;
+    }
+
+    /**
+     * @return true if every lane is busy, so a new transfer would wait for one to finish
+     */
+    public boolean isFull() {
+        return pendingTransfers >= maxConcurrentTransfers;
+    }
+
+    /**
+     * @return true if any submitted transfer has not been collected with {@link #poll(long)}
+     */
+    public boolean hasPending() {
+        return pendingTransfers > 0;
+    }
+
+    /**
+     * Waits up to {@code timeoutMillis} for the next transfer to finish.
+     *
+     * @param timeoutMillis how long to wait
+     * @return the finished transfer, or null if none finished in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Future<T> poll(long timeoutMillis) throws InterruptedException {
+        Future<T> transfer = transferCompletionService.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (transfer != null) {
+            pendingTransfers--;
+        }
+        return transfer;
+    }
+
+    /**
+     * Interrupts every running transfer, runs {@code onShutdown} to kill any copies which do
+     * not respond to interrupts, then waits for the lanes to stop.
+     *
+     * @param timeoutSecs how long to wait for the lanes to stop
+     * @param onShutdown run after the lanes are interrupted. May be null.
+     * @return true if every lane stopped in time
+     */
+    public boolean shutdown(long timeoutSecs, Runnable onShutdown) {
+        transferExecutor.shutdownNow();
+        if (onShutdown != null) {
+            onShutdown.run();
+        }
+        try {
+            return transferExecutor.awaitTermination(timeoutSecs, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
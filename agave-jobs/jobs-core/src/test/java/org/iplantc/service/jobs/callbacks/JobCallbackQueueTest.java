@@ -0,0 +1,198 @@
+package org.iplantc.service.jobs.callbacks;
+
+import org.iplantc.service.jobs.callbacks.JobCallbackQueue.PendingJobCallbacks;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.JobEvent;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.iplantc.service.jobs.model.enumerations.JobStatusType.*;
+
+@Test(groups={"unit"})
+public class JobCallbackQueueTest {
+
+    /**
+     * Job which records the events it processes rather than sending their notifications.
+     */
+    private static class RecordingJob extends Job {
+        final List<JobEvent> processedEvents = new ArrayList<JobEvent>();
+
+        RecordingJob(String uuid, JobStatusType status) throws JobException {
+            setUuid(uuid);
+            setOwner("testuser");
+            setStatus(status, "Loaded by the test.");
+            // start from a saved job with no unprocessed history
+            getEvents().clear();
+            processedEvents.clear();
+        }
+
+        @Override
+        protected void processEvent(JobEvent event) {
+            processedEvents.add(event);
+        }
+    }
+
+    /**
+     * Queue which loads jobs from memory and records each save rather than touching the db.
+     */
+    private static class TestJobCallbackQueue extends JobCallbackQueue {
+        final Map<String, JobStatusType> jobStatuses = new HashMap<String, JobStatusType>();
+        final List<RecordingJob> loadedJobs = new ArrayList<RecordingJob>();
+        final List<List<Job>> savedBatches = new ArrayList<List<Job>>();
+        final List<Job> savedJobs = new ArrayList<Job>();
+        final Set<String> failingJobs = new HashSet<String>();
+        boolean failBatches = false;
+        int eventsProcessedBeforeSave = 0;
+
+        TestJobCallbackQueue() {
+            super(0, 10, 10);
+        }
+
+        @Override
+        protected Job loadJob(String uuid) throws JobException {
+            if (!jobStatuses.containsKey(uuid)) return null;
+            RecordingJob job = new RecordingJob(uuid, jobStatuses.get(uuid));
+            loadedJobs.add(job);
+            return job;
+        }
+
+        @Override
+        protected void saveJobs(List<Job> jobs, Map<String, JobStatusType> previousStatuses) throws JobException {
+            for (Job job: jobs) {
+                eventsProcessedBeforeSave += ((RecordingJob) job).processedEvents.size();
+            }
+            if (failBatches) {
+                throw new JobException("batch failed to commit");
+            }
+            savedBatches.add(jobs);
+        }
+
+        @Override
+        protected void saveJob(Job job, JobStatusType previousStatus) throws JobException {
+            eventsProcessedBeforeSave += ((RecordingJob) job).processedEvents.size();
+            if (failingJobs.contains(job.getUuid())) {
+                throw new JobException("job failed to commit");
+            }
+            savedJobs.add(job);
+        }
+
+        RecordingJob lastLoaded(String uuid) {
+            RecordingJob lastLoaded = null;
+            for (RecordingJob job: loadedJobs) {
+                if (job.getUuid().equals(uuid)) lastLoaded = job;
+            }
+            return lastLoaded;
+        }
+    }
+
+    private PendingJobCallbacks callbacks(String uuid, JobStatusType... statuses) {
+        PendingJobCallbacks callbacks = new PendingJobCallbacks(uuid, "tenant");
+        for (JobStatusType status: statuses) {
+            callbacks.add(status, null);
+        }
+        return callbacks;
+    }
+
+    @Test
+    public void pendingCallbacksCollapseRepeatedStatuses() {
+        PendingJobCallbacks callbacks = new PendingJobCallbacks("job-uuid", "tenant");
+        for (JobStatusType status: new JobStatusType[]{ RUNNING, HEARTBEAT, RUNNING, HEARTBEAT, CLEANING_UP, RUNNING, FINISHED, FINISHED }) {
+            callbacks.add(status, null);
+        }
+
+        Assert.assertEquals(callbacks.getStatuses(), Arrays.asList(RUNNING, HEARTBEAT, CLEANING_UP, FINISHED),
+                "Each status should be kept once in the order it was first received.");
+    }
+
+    @Test
+    public void pendingCallbacksKeepLatestLocalJobId() {
+        PendingJobCallbacks callbacks = new PendingJobCallbacks("job-uuid", "tenant");
+        callbacks.add(RUNNING, "1234");
+        callbacks.add(HEARTBEAT, null);
+        callbacks.add(HEARTBEAT, "");
+
+        Assert.assertEquals(callbacks.getLocalSchedulerJobId(), "1234",
+                "Empty local job ids should not replace a received local job id.");
+    }
+
+    @Test
+    public void flushBatchProcessesEventsOnlyAfterTheBatchIsSaved() throws Exception {
+        TestJobCallbackQueue queue = new TestJobCallbackQueue();
+        queue.jobStatuses.put("job-1", QUEUED);
+        queue.jobStatuses.put("job-2", QUEUED);
+        PendingJobCallbacks first = callbacks("job-1", RUNNING);
+        PendingJobCallbacks second = callbacks("job-2", RUNNING, HEARTBEAT);
+
+        Assert.assertEquals(queue.flushBatch(Arrays.asList(first, second)), 2);
+
+        Assert.assertEquals(queue.savedBatches.size(), 1, "Both jobs should be saved in a single batch.");
+        Assert.assertEquals(queue.savedBatches.get(0).size(), 2);
+        Assert.assertEquals(queue.eventsProcessedBeforeSave, 0, "No event should be processed before the batch is saved.");
+        Assert.assertEquals(queue.lastLoaded("job-1").processedEvents.size(), 1);
+        Assert.assertEquals(queue.lastLoaded("job-2").processedEvents.size(), 2);
+        Assert.assertEquals(queue.loadedJobs.size(), 2, "Each job should only be loaded once.");
+
+        Assert.assertSame(first.getSaved().getNow(null), queue.lastLoaded("job-1"));
+        Assert.assertSame(second.getSaved().getNow(null), queue.lastLoaded("job-2"));
+        Assert.assertEquals(queue.lastLoaded("job-1").getStatus(), RUNNING);
+    }
+
+    @Test
+    public void flushBatchSavesEachJobWhenTheBatchFails() throws Exception {
+        TestJobCallbackQueue queue = new TestJobCallbackQueue();
+        queue.jobStatuses.put("job-1", QUEUED);
+        queue.jobStatuses.put("job-2", QUEUED);
+        queue.failBatches = true;
+        queue.failingJobs.add("job-2");
+        PendingJobCallbacks first = callbacks("job-1", RUNNING);
+        PendingJobCallbacks second = callbacks("job-2", RUNNING);
+
+        Assert.assertEquals(queue.flushBatch(Arrays.asList(first, second)), 1,
+                "Only the job which saved on its own should be counted.");
+
+        Assert.assertEquals(queue.loadedJobs.size(), 4, "Each job should be reloaded after the batch fails.");
+        for (RecordingJob batchJob: queue.loadedJobs.subList(0, 2)) {
+            Assert.assertTrue(batchJob.processedEvents.isEmpty(),
+                    "Events of the failed batch should never be processed.");
+        }
+        Assert.assertEquals(queue.eventsProcessedBeforeSave, 0, "No event should be processed before its job is saved.");
+
+        RecordingJob savedJob = queue.lastLoaded("job-1");
+        Assert.assertEquals(queue.savedJobs, Arrays.asList(savedJob));
+        Assert.assertEquals(savedJob.processedEvents.size(), 1, "Events of the saved job should be processed once.");
+        Assert.assertSame(first.getSaved().getNow(null), savedJob);
+
+        Assert.assertTrue(queue.lastLoaded("job-2").processedEvents.isEmpty(),
+                "Events of a job which failed to save should not be processed.");
+        Assert.assertTrue(second.getSaved().isCompletedExceptionally(),
+                "Callers waiting on a job which failed to save should be told.");
+    }
+
+    @Test
+    public void flushBatchCompletesIgnoredCallbacksWithoutSaving() throws Exception {
+        TestJobCallbackQueue queue = new TestJobCallbackQueue();
+        queue.jobStatuses.put("stopped-job", STOPPED);
+        PendingJobCallbacks stopped = callbacks("stopped-job", RUNNING);
+        PendingJobCallbacks deleted = callbacks("deleted-job", RUNNING);
+
+        Assert.assertEquals(queue.flushBatch(Arrays.asList(stopped, deleted)), 0);
+
+        Assert.assertTrue(queue.savedBatches.isEmpty() || queue.savedBatches.get(0).isEmpty(),
+                "Jobs no callback applied to should not be saved.");
+        for (CompletableFuture<Job> saved: Arrays.asList(stopped.getSaved(), deleted.getSaved())) {
+            Assert.assertTrue(saved.isDone() && !saved.isCompletedExceptionally());
+            Assert.assertNull(saved.getNow(null));
+        }
+    }
+}
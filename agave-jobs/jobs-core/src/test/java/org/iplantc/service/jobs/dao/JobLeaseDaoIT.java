@@ -0,0 +1,79 @@
+package org.iplantc.service.jobs.dao;
+
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Test(groups={"integration"})
+public class JobLeaseDaoIT extends AbstractDaoTest {
+
+    private boolean isZombie(Job job) throws Exception {
+        List<BigInteger> zombieIds = JobDao.findZombieJobs(job.getTenantId());
+        return zombieIds.contains(BigInteger.valueOf(job.getId()));
+    }
+
+    @Test
+    public void acquireLeaseSetsOwnerAndExpiry() throws Exception {
+        Job job = createJob(JobStatusType.STAGING_INPUTS, createSoftware());
+
+        JobDao.acquireLease(job.getId(), "worker-a", 60);
+
+        Job leasedJob = JobDao.getByUuid(job.getUuid());
+        Assert.assertEquals(leasedJob.getLeaseOwner(), "worker-a");
+        Assert.assertNotNull(leasedJob.getLeaseExpires());
+        Assert.assertTrue(leasedJob.getLeaseExpires().getTime() > System.currentTimeMillis(),
+                "A new lease should expire in the future.");
+        Assert.assertFalse(isZombie(leasedJob), "Jobs with a live lease are not zombies.");
+    }
+
+    @Test
+    public void renewLeasesOnlyRenewsLeasesOfTheOwner() throws Exception {
+        Job job = createJob(JobStatusType.STAGING_INPUTS, createSoftware());
+        Job otherJob = createJob(JobStatusType.STAGING_INPUTS, createSoftware());
+        JobDao.acquireLease(job.getId(), "worker-a", 60);
+        JobDao.acquireLease(otherJob.getId(), "worker-b", 60);
+
+        List<Long> renewedIds = JobDao.renewLeases(Arrays.asList(job.getId(), otherJob.getId()), "worker-a", 120);
+
+        Assert.assertEquals(renewedIds, Collections.singletonList(job.getId()),
+                "Only leases held by the owner should be renewed.");
+        Assert.assertEquals(JobDao.getByUuid(otherJob.getUuid()).getLeaseOwner(), "worker-b",
+                "Leases of other workers should be left alone.");
+    }
+
+    @Test
+    public void releaseLeaseClearsTheLease() throws Exception {
+        Job job = createJob(JobStatusType.STAGING_INPUTS, createSoftware());
+        JobDao.acquireLease(job.getId(), "worker-a", 60);
+
+        JobDao.releaseLease(job.getId(), "worker-b");
+        Assert.assertEquals(JobDao.getByUuid(job.getUuid()).getLeaseOwner(), "worker-a",
+                "Only the owner should be able to release a lease.");
+
+        JobDao.releaseLease(job.getId(), "worker-a");
+        Job releasedJob = JobDao.getByUuid(job.getUuid());
+        Assert.assertNull(releasedJob.getLeaseOwner(), "Released leases should have no owner.");
+        Assert.assertNull(releasedJob.getLeaseExpires(), "Released leases should have no expiry.");
+        Assert.assertTrue(JobDao.renewLeases(Collections.singletonList(job.getId()), "worker-a", 60).isEmpty(),
+                "A released lease should not be renewed by its previous owner.");
+    }
+
+    @Test
+    public void expiredLeasesAreZombies() throws Exception {
+        Job job = createJob(JobStatusType.STAGING_INPUTS, createSoftware());
+
+        JobDao.acquireLease(job.getId(), "worker-a", -60);
+
+        Assert.assertTrue(isZombie(job), "Jobs whose lease expired should be found by the zombie check.");
+
+        JobDao.releaseLease(job.getId(), "worker-a");
+        Assert.assertFalse(isZombie(job),
+                "Released jobs updated recently should not be found by the zombie check.");
+    }
+}
@@ -0,0 +1,165 @@
+package org.iplantc.service.jobs.dao;
+
+import org.hibernate.Session;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.jobs.managers.launchers.HPCLauncher;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.iplantc.service.jobs.dao.JobQuotaCounterDao.ANY;
+
+@Test(groups={"integration"})
+public class JobQuotaCounterDaoIT extends AbstractDaoTest {
+
+    @BeforeMethod
+    protected void beforeMethod() throws Exception {
+        clearCounters();
+    }
+
+    @AfterMethod
+    @Override
+    protected void afterMethod() throws Exception {
+        super.afterMethod();
+        clearCounters();
+    }
+
+    private void clearCounters() {
+        try {
+            HibernateUtil.beginTransaction();
+            Session session = HibernateUtil.getSession();
+            session.createSQLQuery("DELETE FROM job_quota_counters").executeUpdate();
+        } finally {
+            try { HibernateUtil.commitTransaction(); } catch (Throwable ignored) {}
+        }
+    }
+
+    private void setCounter(Job job, long value) {
+        try {
+            HibernateUtil.beginTransaction();
+            Session session = HibernateUtil.getSession();
+            session.createSQLQuery("UPDATE job_quota_counters SET active_jobs = :value " +
+                    "WHERE tenant_id = :tenantid AND execution_system = :systemid AND queue_request = :any AND owner = :any")
+                    .setLong("value", value)
+                    .setString("tenantid", job.getTenantId())
+                    .setString("systemid", job.getSystem())
+                    .setString("any", ANY)
+                    .executeUpdate();
+        } finally {
+            try { HibernateUtil.commitTransaction(); } catch (Throwable ignored) {}
+        }
+    }
+
+    private void assertCounters(Job job, long expected, String message) throws Exception {
+        Assert.assertEquals(JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(), job.getBatchQueue(), job.getOwner()),
+                expected, message + " (queue and owner)");
+        Assert.assertEquals(JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(), job.getBatchQueue(), ANY),
+                expected, message + " (queue)");
+        Assert.assertEquals(JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(), ANY, job.getOwner()),
+                expected, message + " (owner)");
+        Assert.assertEquals(JobQuotaCounterDao.getActiveJobCount(job.getTenantId(), job.getSystem(), ANY, ANY),
+                expected, message + " (system)");
+    }
+
+    @Test
+    public void statusChangesIncrementAndDecrementCounters() throws Exception {
+        Software software = createSoftware();
+        Job job = createJob(JobStatusType.STAGED, software);
+        assertCounters(job, 0, "Inactive jobs should not be counted.");
+
+        job.setStatus(JobStatusType.QUEUED, JobStatusType.QUEUED.getDescription());
+        JobDao.persist(job, true, JobStatusType.STAGED);
+        assertCounters(job, 1, "Queueing a job should increment its counters.");
+
+        job.setStatus(JobStatusType.RUNNING, JobStatusType.RUNNING.getDescription());
+        JobDao.persist(job, true, JobStatusType.QUEUED);
+        assertCounters(job, 1, "Moving between active statuses should not change the counters.");
+
+        job.setVisible(Boolean.FALSE);
+        JobDao.persist(job, true, JobStatusType.RUNNING);
+        assertCounters(job, 1, "Hidden jobs should still be counted while active.");
+
+        job.setStatus(JobStatusType.FINISHED, JobStatusType.FINISHED.getDescription());
+        JobDao.persist(job, true, JobStatusType.RUNNING);
+        assertCounters(job, 0, "Finishing a job should decrement its counters.");
+    }
+
+    @Test
+    public void statusChangesSavedWithoutAPreviousStatusAreCounted() throws Exception {
+        Software software = createSoftware();
+        Job job = JobDao.getById(createJob(JobStatusType.STAGED, software).getId());
+        Assert.assertEquals(job.getPersistedStatus(), JobStatusType.STAGED,
+                "The status loaded from the db should be recorded on the job.");
+
+        job.setStatus(JobStatusType.QUEUED, JobStatusType.QUEUED.getDescription());
+        JobDao.persist(job);
+        assertCounters(job, 1, "Queueing a loaded job should increment its counters.");
+
+        JobDao.persist(job);
+        assertCounters(job, 1, "Saving the job again should not count it twice.");
+
+        job.setStatus(JobStatusType.FINISHED, JobStatusType.FINISHED.getDescription());
+        JobDao.persist(job);
+        assertCounters(job, 0, "Finishing the job should decrement its counters.");
+    }
+
+    @Test
+    public void launcherSubmissionsIncrementCounters() throws Exception {
+        Software software = createSoftware();
+        Job job = JobDao.getById(createJob(JobStatusType.SUBMITTING, software).getId());
+
+        // submits without staging assets or connecting to the execution system
+        HPCLauncher launcher = new HPCLauncher(job, software, software.getExecutionSystem()) {
+            @Override
+            protected void stageJobAssets() {}
+
+            @Override
+            protected String submitJobToQueue() {
+                return "12345";
+            }
+        };
+        launcher.launch();
+
+        Assert.assertEquals(JobDao.getById(job.getId()).getStatus(), JobStatusType.QUEUED);
+        assertCounters(job, 1, "A submitted job should be counted once it is queued.");
+    }
+
+    @Test
+    public void reconcileCorrectsDriftedCounters() throws Exception {
+        Software software = createSoftware();
+        // inserted without a previous status, so the counters do not see these jobs
+        Job job = createJob(JobStatusType.RUNNING, software);
+        Job hiddenJob = createJob(JobStatusType.QUEUED, software);
+        hiddenJob.setVisible(Boolean.FALSE);
+        JobDao.persist(hiddenJob, false);
+        createJob(JobStatusType.FINISHED, software);
+        assertCounters(job, 0, "Counters should not move for jobs saved without a previous status.");
+
+        Assert.assertTrue(JobQuotaCounterDao.reconcile() > 0, "Missing counters should be corrected.");
+        assertCounters(job, 2, "Reconcile should count every active job, hidden or not.");
+
+        setCounter(job, 7);
+        Assert.assertEquals(JobQuotaCounterDao.reconcile(), 1, "Only the drifted counter should be corrected.");
+        assertCounters(job, 2, "Reconcile should move a drifted counter back to the active job count.");
+
+        Assert.assertEquals(JobQuotaCounterDao.reconcile(), 0, "Counters which match should be left alone.");
+    }
+
+    @Test
+    public void onlyOneWorkerClaimsEachReconcile() throws Exception {
+        Assert.assertFalse(JobQuotaCounterDao.isRecentlyReconciled(600), "Nothing should be reconciled yet.");
+
+        Assert.assertTrue(JobQuotaCounterDao.claimReconcile(600), "The first claim should succeed.");
+        Assert.assertFalse(JobQuotaCounterDao.claimReconcile(600), "A second claim within the interval should fail.");
+        Assert.assertFalse(JobQuotaCounterDao.isRecentlyReconciled(600),
+                "A claimed reconcile should not be trusted until it completes.");
+
+        JobQuotaCounterDao.reconcile();
+        Assert.assertTrue(JobQuotaCounterDao.isRecentlyReconciled(600), "A completed reconcile should be trusted.");
+        Assert.assertFalse(JobQuotaCounterDao.claimReconcile(600), "A recent reconcile should not be claimed again.");
+    }
+}
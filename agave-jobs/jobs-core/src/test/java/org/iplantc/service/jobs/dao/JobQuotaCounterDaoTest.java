@@ -0,0 +1,73 @@
+package org.iplantc.service.jobs.dao;
+
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.iplantc.service.jobs.dao.JobQuotaCounterDao.ANY;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups={"unit"})
+public class JobQuotaCounterDaoTest {
+
+    @DataProvider
+    protected Object[][] getActiveTransitionDeltaProvider() {
+        return new Object[][] {
+                { JobStatusType.SUBMITTING, JobStatusType.QUEUED, 1, "Queueing a job should count it as active." },
+                { JobStatusType.QUEUED, JobStatusType.RUNNING, 0, "Moving between active statuses should not change the count." },
+                { JobStatusType.RUNNING, JobStatusType.CLEANING_UP, 0, "Moving between active statuses should not change the count." },
+                { JobStatusType.ARCHIVING, JobStatusType.FINISHED, -1, "Finishing a job should no longer count it as active." },
+                { JobStatusType.RUNNING, JobStatusType.KILLED, -1, "Killing a job should no longer count it as active." },
+                { JobStatusType.PENDING, JobStatusType.STAGING_INPUTS, 0, "Moving between inactive statuses should not change the count." },
+                { null, JobStatusType.QUEUED, 0, "Unknown previous statuses should be left to reconciliation." },
+        };
+    }
+
+    @Test(dataProvider = "getActiveTransitionDeltaProvider")
+    public void getActiveTransitionDelta(JobStatusType previousStatus, JobStatusType currentStatus, int expectedDelta, String message) {
+        assertEquals(JobQuotaCounterDao.getActiveTransitionDelta(previousStatus, currentStatus), expectedDelta, message);
+    }
+
+    @Test
+    public void addExpectedCountsRollsUpQueuesAndOwners() {
+        Map<List<String>, Long> expected = new HashMap<List<String>, Long>();
+        JobQuotaCounterDao.addExpectedCounts(expected, "tenant", "system", "normal", "alice", 2);
+        JobQuotaCounterDao.addExpectedCounts(expected, "tenant", "system", "debug", "alice", 1);
+        JobQuotaCounterDao.addExpectedCounts(expected, "tenant", "system", "normal", "bob", 3);
+
+        assertEquals(expected.get(Arrays.asList("tenant", "system", "normal", "alice")), Long.valueOf(2));
+        assertEquals(expected.get(Arrays.asList("tenant", "system", "normal", ANY)), Long.valueOf(5));
+        assertEquals(expected.get(Arrays.asList("tenant", "system", ANY, "alice")), Long.valueOf(3));
+        assertEquals(expected.get(Arrays.asList("tenant", "system", ANY, ANY)), Long.valueOf(6));
+    }
+
+    @Test
+    public void getCorrectionsReturnsTheDriftOfEachCounter() {
+        List<String> matching = Arrays.asList("tenant", "system", ANY, ANY);
+        List<String> tooHigh = Arrays.asList("tenant", "system", "normal", ANY);
+        List<String> missing = Arrays.asList("tenant", "system", "normal", "alice");
+        List<String> stale = Arrays.asList("tenant", "other", ANY, ANY);
+
+        Map<List<String>, Long> expected = new HashMap<List<String>, Long>();
+        expected.put(matching, 4L);
+        expected.put(tooHigh, 2L);
+        expected.put(missing, 1L);
+
+        Map<List<String>, Long> current = new HashMap<List<String>, Long>();
+        current.put(matching, 4L);
+        current.put(tooHigh, 5L);
+        current.put(stale, 3L);
+
+        Map<List<String>, Long> corrections = JobQuotaCounterDao.getCorrections(expected, current);
+
+        assertEquals(corrections.size(), 3, "Only drifted and missing counters should be corrected.");
+        assertEquals(corrections.get(tooHigh), Long.valueOf(-3), "Counters above the active job count should be decremented.");
+        assertEquals(corrections.get(missing), Long.valueOf(1), "Missing counters should be created.");
+        assertEquals(corrections.get(stale), Long.valueOf(-3), "Counters with no active jobs should be decremented to zero.");
+    }
+}
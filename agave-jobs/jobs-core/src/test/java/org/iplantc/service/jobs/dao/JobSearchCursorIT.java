@@ -0,0 +1,130 @@
+package org.iplantc.service.jobs.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.common.search.AgaveResourceResultOrdering;
+import org.iplantc.service.common.search.SearchTerm;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.dto.JobDTO;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.jobs.search.JobSearchCursor;
+import org.joda.time.DateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+@Test(groups={"integration"})
+public class JobSearchCursorIT extends AbstractDaoTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    /**
+     * Saves jobs sharing the same last updated timestamp, bracketed by a job updated
+     * before them and one updated after them.
+     *
+     * @return the saved jobs in ascending {@code last_updated, id} order
+     */
+    private List<Job> createJobsUpdatedTogether() throws Exception {
+        Software software = createSoftware();
+        DateTime lastUpdated = new DateTime().minusHours(1).withMillisOfSecond(0);
+
+        List<Job> jobs = new ArrayList<Job>();
+        jobs.add(createJobUpdatedAt(software, lastUpdated.minusMinutes(5)));
+        for (int i = 0; i < 7; i++) {
+            jobs.add(createJobUpdatedAt(software, lastUpdated));
+        }
+        jobs.add(createJobUpdatedAt(software, lastUpdated.plusMinutes(5)));
+
+        jobs.sort(Comparator.comparing(Job::getLastUpdated).thenComparing(Job::getId));
+        return jobs;
+    }
+
+    private Job createJobUpdatedAt(Software software, DateTime lastUpdated) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Job job = createJob(JobStatusType.FINISHED, software);
+        // the full results should have something to leave out
+        job.setInputsAsJsonObject(mapper.createObjectNode().put("input", "agave://example.com/input.txt"));
+        job.setParametersAsJsonObject(mapper.createObjectNode().put("parameter", "value"));
+        job.setLastUpdated(lastUpdated.toDate());
+        JobDao.persist(job, false);
+        return job;
+    }
+
+    /**
+     * Reads every page of the search results by following the cursor of each page.
+     *
+     * @return the uuids of the jobs in the order they were returned
+     */
+    private List<String> readAllPages(String owner, AgaveResourceResultOrdering order, boolean slim) throws Exception {
+        Map<SearchTerm, Object> searchCriteria = new HashMap<SearchTerm, Object>();
+        List<String> uuids = new ArrayList<String>();
+        JobSearchCursor cursor = null;
+        for (int pages = 0; pages < 10; pages++) {
+            List<JobDTO> page = JobDao.findMatching(owner, searchCriteria, cursor, PAGE_SIZE, order, slim);
+            for (JobDTO dto: page) {
+                uuids.add(dto.getUuid());
+                if (slim) {
+                    Assert.assertNull(dto.getInputs(), "Slim results should not include the job inputs.");
+                    Assert.assertNull(dto.getParameters(), "Slim results should not include the job parameters.");
+                } else {
+                    Assert.assertNotNull(dto.getInputs(), "Full results should include the job inputs.");
+                    Assert.assertNotNull(dto.getParameters(), "Full results should include the job parameters.");
+                }
+            }
+            if (page.size() < PAGE_SIZE) {
+                return uuids;
+            }
+            cursor = JobSearchCursor.after(page.get(page.size() - 1));
+        }
+
+        Assert.fail("Paging through the results should end once every job has been read.");
+        return uuids;
+    }
+
+    private List<String> uuids(List<Job> jobs) {
+        List<String> uuids = new ArrayList<String>();
+        for (Job job: jobs) {
+            uuids.add(job.getUuid());
+        }
+        return uuids;
+    }
+
+    @Test
+    public void ascendingPagesNeitherSkipNorRepeatJobsUpdatedTogether() throws Exception {
+        List<Job> jobs = createJobsUpdatedTogether();
+
+        List<String> uuids = readAllPages(jobs.get(0).getOwner(), AgaveResourceResultOrdering.ASCENDING, false);
+
+        Assert.assertEquals(new HashSet<String>(uuids).size(), uuids.size(), "No job should be returned twice.");
+        Assert.assertEquals(uuids, uuids(jobs),
+                "Every job should be returned once in last updated then id order.");
+    }
+
+    @Test
+    public void descendingPagesNeitherSkipNorRepeatJobsUpdatedTogether() throws Exception {
+        List<Job> jobs = createJobsUpdatedTogether();
+        Collections.reverse(jobs);
+
+        List<String> uuids = readAllPages(jobs.get(0).getOwner(), AgaveResourceResultOrdering.DESCENDING, false);
+
+        Assert.assertEquals(new HashSet<String>(uuids).size(), uuids.size(), "No job should be returned twice.");
+        Assert.assertEquals(uuids, uuids(jobs),
+                "Every job should be returned once in descending last updated then id order.");
+    }
+
+    @Test
+    public void slimPagesLeaveOutInputsAndParameters() throws Exception {
+        List<Job> jobs = createJobsUpdatedTogether();
+
+        List<String> uuids = readAllPages(jobs.get(0).getOwner(), AgaveResourceResultOrdering.ASCENDING, true);
+
+        Assert.assertEquals(uuids, uuids(jobs), "Slim results should page the same as full results.");
+    }
+}
@@ -0,0 +1,179 @@
+package org.iplantc.service.jobs.managers;
+
+import org.iplantc.service.jobs.dao.JobQuotaCounterDao;
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.JobEvent;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.iplantc.service.jobs.model.enumerations.JobStatusType.*;
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class BulkJobManagerTest {
+
+    /**
+     * Job which does not send notifications for its events.
+     */
+    private static class TestJob extends Job {
+        TestJob(String uuid, JobStatusType status, String localJobId) throws JobException {
+            setUuid(uuid);
+            setOwner("testuser");
+            setSystem("execution-system");
+            setLocalJobId(localJobId);
+            setStatus(status, "Created by the test.");
+            getEvents().clear();
+        }
+
+        @Override
+        protected void processEvent(JobEvent event) {
+        }
+    }
+
+    /**
+     * Manager which records the kills and saves it would make rather than touching any
+     * remote system or the db.
+     */
+    private static class TestBulkJobManager extends BulkJobManager {
+        final Map<String, List<String>> systemKills = new LinkedHashMap<String, List<String>>();
+        final List<String> individualKills = new ArrayList<String>();
+        final Set<String> unkillableJobs = new HashSet<String>();
+        final Map<String, Integer> counterDeltas = new HashMap<String, Integer>();
+        final List<String> savedJobs = new ArrayList<String>();
+        final List<String> cancelledTransfers = new ArrayList<String>();
+
+        TestBulkJobManager() {
+            super(10);
+        }
+
+        @Override
+        protected void killOnSystem(String systemId, List<Job> jobs, BulkJobActionResult result,
+                                    JobUpdates updates, Map<String, Job> stoppedJobs) {
+            for (Job job: jobs) {
+                systemKills.computeIfAbsent(systemId, s -> new ArrayList<String>()).add(job.getUuid());
+                if (unkillableJobs.contains(job.getUuid())) {
+                    result.addFailure(job.getUuid(), "Failed to kill job " + job.getUuid());
+                    continue;
+                }
+                try {
+                    updates.track(job);
+                    JobManager.applyStatus(job, FAILED, "Successfully killed remote job process.");
+                    stoppedJobs.put(job.getUuid(), job);
+                    result.addSuccess(job);
+                } catch (JobException e) {
+                    fail("Applying a status in memory should not fail.", e);
+                }
+            }
+        }
+
+        @Override
+        protected void killIndividually(Job job, BulkJobActionResult result, Map<String, Job> stoppedJobs) {
+            individualKills.add(job.getUuid());
+            stoppedJobs.put(job.getUuid(), job);
+            result.addSuccess(job);
+        }
+
+        @Override
+        protected void save(JobUpdates updates, BulkJobActionResult result) {
+            for (Job job: updates.getJobs()) {
+                savedJobs.add(job.getUuid());
+                counterDeltas.put(job.getUuid(), JobQuotaCounterDao.getActiveTransitionDelta(
+                        updates.getPreviousStatuses().get(job.getUuid()), job.getStatus()));
+            }
+        }
+
+        @Override
+        protected void cancelActiveTransfers(List<Job> cancelledJobs, BulkJobActionResult result) {
+            for (Job job: cancelledJobs) {
+                if (!result.isFailed(job.getUuid())) cancelledTransfers.add(job.getUuid());
+            }
+        }
+    }
+
+    @Test
+    public void stopKillsRunningJobsOnePerSystemAndStopsUnqueuedJobs() throws Exception {
+        TestBulkJobManager manager = new TestBulkJobManager();
+        Job staging = new TestJob("staging-job", STAGING_INPUTS, null);
+        Job runningOne = new TestJob("running-1", RUNNING, "1001");
+        Job runningTwo = new TestJob("running-2", QUEUED, "1002");
+        Job noLocalId = new TestJob("no-local-id", RUNNING, null);
+        Job finished = new TestJob("finished-job", FINISHED, "1003");
+
+        BulkJobActionResult result = manager.stop(Arrays.asList(staging, runningOne, runningTwo, noLocalId, finished));
+
+        assertEquals(result.getSucceededCount(), 5);
+        assertEquals(manager.systemKills.get("execution-system"), Arrays.asList("running-1", "running-2"),
+                "Running jobs with a local id should be killed together on their system.");
+        assertEquals(manager.individualKills, Arrays.asList("no-local-id"),
+                "Running jobs without a local id can only be killed individually.");
+        assertEquals(staging.getStatus(), STOPPED);
+        assertEquals(manager.cancelledTransfers, Arrays.asList("staging-job"),
+                "Transfers should only be cancelled for jobs stopped before they were queued.");
+        assertFalse(manager.savedJobs.contains("finished-job"), "Jobs which were not changed should not be saved.");
+
+        assertEquals(manager.counterDeltas.get("running-1"), Integer.valueOf(-1));
+        assertEquals(manager.counterDeltas.get("running-2"), Integer.valueOf(-1));
+        assertEquals(manager.counterDeltas.get("staging-job"), Integer.valueOf(0),
+                "Jobs stopped before they were queued were never counted as active.");
+    }
+
+    @Test
+    public void hideStopsRunningJobsAndOnlyMovesCountersForStoppedJobs() throws Exception {
+        TestBulkJobManager manager = new TestBulkJobManager();
+        Job running = new TestJob("running-job", RUNNING, "1001");
+        Job unkillable = new TestJob("unkillable-job", RUNNING, "1002");
+        Job archiving = new TestJob("archiving-job", ARCHIVING, "1003");
+        Job finished = new TestJob("finished-job", FINISHED, "1004");
+        manager.unkillableJobs.add("unkillable-job");
+
+        BulkJobActionResult result = manager.hide(Arrays.asList(running, unkillable, archiving, finished), "testuser");
+
+        assertEquals(result.getSucceededCount(), 3);
+        assertTrue(result.isFailed("unkillable-job"), "Jobs which cannot be killed should not be hidden.");
+        assertTrue(unkillable.isVisible());
+        assertFalse(manager.savedJobs.contains("unkillable-job"));
+
+        for (Job job: Arrays.asList(running, archiving, finished)) {
+            assertFalse(job.isVisible(), "Job " + job.getUuid() + " should be hidden.");
+            assertEquals(job.getEvents().get(job.getEvents().size() - 1).getStatus(), "DELETED");
+        }
+        assertEquals(running.getStatus(), FAILED, "Running jobs should be killed before they are hidden.");
+
+        assertEquals(manager.counterDeltas.get("running-job"), Integer.valueOf(-1),
+                "Killing a running job should free its slot.");
+        assertEquals(manager.counterDeltas.get("archiving-job"), Integer.valueOf(0),
+                "Hiding a job should not move the counters, which count hidden jobs.");
+        assertEquals(manager.counterDeltas.get("finished-job"), Integer.valueOf(0));
+    }
+
+    @Test
+    public void restoreOnlyRestoresHiddenJobsAndNeverMovesCounters() throws Exception {
+        TestBulkJobManager manager = new TestBulkJobManager();
+        Job hiddenRunning = new TestJob("hidden-running", RUNNING, "1001");
+        hiddenRunning.setVisible(Boolean.FALSE);
+        Job hiddenFinished = new TestJob("hidden-finished", FINISHED, "1002");
+        hiddenFinished.setVisible(Boolean.FALSE);
+        Job visible = new TestJob("visible-job", FINISHED, "1003");
+
+        BulkJobActionResult result = manager.restore(Arrays.asList(hiddenRunning, hiddenFinished, visible), "testuser");
+
+        assertEquals(result.getSucceededCount(), 2);
+        assertTrue(result.isFailed("visible-job"), "Visible jobs cannot be restored.");
+        assertTrue(hiddenRunning.isVisible());
+        assertTrue(hiddenFinished.isVisible());
+        assertEquals(manager.savedJobs, Arrays.asList("hidden-running", "hidden-finished"));
+        for (Integer delta: manager.counterDeltas.values()) {
+            assertEquals(delta, Integer.valueOf(0), "Restoring a job should not move the counters.");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.iplantc.service.jobs.managers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.exceptions.JobProcessingException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.notification.exceptions.NotificationException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class JobArrayRequestProcessorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Processor which creates child jobs without an app and records saves rather than touching the db.
+     */
+    private static class TestJobArrayRequestProcessor extends JobArrayRequestProcessor {
+        final List<Job> savedJobs = new ArrayList<Job>();
+        boolean invalidNotifications = false;
+
+        TestJobArrayRequestProcessor() {
+            super("testuser", null);
+        }
+
+        @Override
+        protected List<Job> createJobs(Map<String, Object> jobRequestMap, List<Map<String, Object>> sweep) {
+            List<Job> jobs = new ArrayList<Job>();
+            for (int i = 0; i < sweep.size(); i++) {
+                Job job = new Job();
+                job.setOwner("testuser");
+                job.setArrayIndex(i);
+                jobs.add(job);
+            }
+            return jobs;
+        }
+
+        @Override
+        protected void validateNotifications(JsonNode json, Job job) throws NotificationException {
+            if (invalidNotifications) {
+                throw new NotificationException("Invalid notification url.");
+            }
+        }
+
+        @Override
+        protected void saveJobs(List<Job> jobs) {
+            savedJobs.addAll(jobs);
+        }
+    }
+
+    private ObjectNode sweepRequest() {
+        ObjectNode json = mapper.createObjectNode();
+        json.put("name", "sweep-test");
+        ObjectNode sweep = json.putObject(JobArrayRequestProcessor.SWEEP_FIELD);
+        sweep.putArray("alpha").add(1).add(2);
+        sweep.putArray("beta").add("x").add("y").add("z");
+        return json;
+    }
+
+    @Test
+    public void getSweepCombinationsVariesTheFirstParameterSlowest() throws Exception {
+        List<Map<String, Object>> combinations = new JobArrayRequestProcessor().getSweepCombinations(sweepRequest());
+
+        assertEquals(combinations.size(), 6, "Every combination of sweep values should become a child job.");
+        assertEquals(combinations.get(0).get("alpha"), 1L);
+        assertEquals(combinations.get(0).get("beta"), "x");
+        assertEquals(combinations.get(2).get("alpha"), 1L);
+        assertEquals(combinations.get(2).get("beta"), "z");
+        assertEquals(combinations.get(3).get("alpha"), 2L);
+        assertEquals(combinations.get(3).get("beta"), "x");
+        assertEquals(combinations.get(5).get("alpha"), 2L);
+        assertEquals(combinations.get(5).get("beta"), "z");
+    }
+
+    @DataProvider
+    public Object[][] invalidSweepProvider() {
+        ObjectNode missing = mapper.createObjectNode();
+
+        ObjectNode emptySweep = mapper.createObjectNode();
+        emptySweep.putObject(JobArrayRequestProcessor.SWEEP_FIELD);
+
+        ObjectNode emptyValues = mapper.createObjectNode();
+        emptyValues.putObject(JobArrayRequestProcessor.SWEEP_FIELD).putArray("alpha");
+
+        ObjectNode scalarValues = mapper.createObjectNode();
+        scalarValues.putObject(JobArrayRequestProcessor.SWEEP_FIELD).put("alpha", 1);
+
+        return new Object[][] {
+                { missing, "A request without a sweep should be rejected." },
+                { emptySweep, "A sweep without parameters should be rejected." },
+                { emptyValues, "A sweep parameter without values should be rejected." },
+                { scalarValues, "A sweep parameter whose values are not an array should be rejected." },
+        };
+    }
+
+    @Test(dataProvider = "invalidSweepProvider")
+    public void getSweepCombinationsRejectsInvalidSweeps(ObjectNode json, String message) {
+        try {
+            new JobArrayRequestProcessor().getSweepCombinations(json);
+            fail(message);
+        } catch (JobProcessingException e) {
+            assertEquals(e.getStatus(), 400, message);
+        }
+    }
+
+    @Test
+    public void getSweepCombinationsRejectsArraysLargerThanTheMaxSize() {
+        int originalMaxSize = Settings.JOB_ARRAY_MAX_SIZE;
+        Settings.JOB_ARRAY_MAX_SIZE = 5;
+        try {
+            new JobArrayRequestProcessor().getSweepCombinations(sweepRequest());
+            fail("A sweep expanding past the max job array size should be rejected.");
+        } catch (JobProcessingException e) {
+            assertEquals(e.getStatus(), 400);
+        } finally {
+            Settings.JOB_ARRAY_MAX_SIZE = originalMaxSize;
+        }
+    }
+
+    @Test
+    public void invalidNotificationsAreRejectedBeforeAnyJobIsSaved() {
+        TestJobArrayRequestProcessor processor = new TestJobArrayRequestProcessor();
+        processor.invalidNotifications = true;
+
+        try {
+            processor.processJobArray(sweepRequest());
+            fail("A job array request with invalid notifications should be rejected.");
+        } catch (JobProcessingException e) {
+            assertEquals(e.getStatus(), 400, "Invalid notifications are a bad request.");
+        }
+        assertTrue(processor.savedJobs.isEmpty(), "No child job should be saved when the notifications are invalid.");
+    }
+}
@@ -0,0 +1,124 @@
+package org.iplantc.service.jobs.managers;
+
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.model.Job;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class JobLeaseManagerTest {
+
+    /**
+     * Lease manager which keeps its leases in memory rather than in the db.
+     */
+    private static class TestJobLeaseManager extends JobLeaseManager {
+        final Set<Long> heldLeases = new HashSet<Long>();
+        final List<List<Long>> renewals = new ArrayList<List<Long>>();
+        boolean failAcquire = false;
+        boolean failRenew = false;
+
+        TestJobLeaseManager() {
+            super(60, 0);
+        }
+
+        @Override
+        protected void acquireLease(long jobId) throws JobException {
+            if (failAcquire) throw new JobException("db unavailable");
+            heldLeases.add(jobId);
+        }
+
+        @Override
+        protected List<Long> renewLeases(List<Long> jobIds) throws JobException {
+            if (failRenew) throw new JobException("db unavailable");
+            renewals.add(jobIds);
+            List<Long> renewedIds = new ArrayList<Long>(jobIds);
+            renewedIds.retainAll(heldLeases);
+            return renewedIds;
+        }
+
+        @Override
+        protected void releaseLease(long jobId) {
+            heldLeases.remove(jobId);
+        }
+    }
+
+    private Job job(long id) {
+        Job job = new Job();
+        job.setId(id);
+        return job;
+    }
+
+    @Test
+    public void acquiredLeasesAreRenewedUntilReleased() {
+        TestJobLeaseManager leaseManager = new TestJobLeaseManager();
+        Job job = job(1);
+
+        leaseManager.heartbeat();
+        assertTrue(leaseManager.renewals.isEmpty(), "Nothing should be renewed without leases.");
+
+        leaseManager.acquire(job, null);
+        assertEquals(leaseManager.size(), 1);
+        assertTrue(leaseManager.heldLeases.contains(1L));
+
+        leaseManager.heartbeat();
+        assertEquals(leaseManager.renewals.size(), 1);
+        assertEquals(leaseManager.size(), 1, "Renewed leases should still be held.");
+
+        leaseManager.release(job);
+        assertEquals(leaseManager.size(), 0);
+        assertFalse(leaseManager.heldLeases.contains(1L), "Released leases should be cleared.");
+
+        leaseManager.heartbeat();
+        assertEquals(leaseManager.renewals.size(), 1, "Released leases should no longer be renewed.");
+    }
+
+    @Test
+    public void failedAcquireIsNotTracked() {
+        TestJobLeaseManager leaseManager = new TestJobLeaseManager();
+        leaseManager.failAcquire = true;
+
+        leaseManager.acquire(job(1), null);
+
+        assertEquals(leaseManager.size(), 0, "A lease which was never written should not be renewed.");
+    }
+
+    @Test
+    public void lostLeasesStopTheirWorker() {
+        TestJobLeaseManager leaseManager = new TestJobLeaseManager();
+        AtomicInteger lostJob = new AtomicInteger();
+        AtomicInteger keptJob = new AtomicInteger();
+        leaseManager.acquire(job(1), lostJob::incrementAndGet);
+        leaseManager.acquire(job(2), keptJob::incrementAndGet);
+
+        // the zombie cleanup rolled job 1 back and cleared its lease
+        leaseManager.heldLeases.remove(1L);
+        leaseManager.heartbeat();
+
+        assertEquals(lostJob.get(), 1, "The worker whose lease was lost should be stopped.");
+        assertEquals(keptJob.get(), 0, "Workers still holding their lease should keep going.");
+        assertEquals(leaseManager.size(), 1, "Lost leases should no longer be tracked.");
+
+        leaseManager.heartbeat();
+        assertEquals(lostJob.get(), 1, "A worker should only be stopped once.");
+    }
+
+    @Test
+    public void failedRenewalsDoNotStopWorkers() {
+        TestJobLeaseManager leaseManager = new TestJobLeaseManager();
+        AtomicInteger stopped = new AtomicInteger();
+        leaseManager.track(job(1), stopped::incrementAndGet);
+        leaseManager.failRenew = true;
+
+        leaseManager.heartbeat();
+
+        assertEquals(stopped.get(), 0, "A failed renewal says nothing about who holds the lease.");
+        assertEquals(leaseManager.size(), 1);
+    }
+}
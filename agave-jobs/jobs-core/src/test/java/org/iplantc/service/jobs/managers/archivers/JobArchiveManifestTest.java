@@ -0,0 +1,103 @@
+package org.iplantc.service.jobs.managers.archivers;
+
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest.Entry;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest.EntryType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class JobArchiveManifestTest {
+
+    private List<String> getPaths(List<Entry> entries) {
+        List<String> paths = new ArrayList<String>();
+        for (Entry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+
+    @Test
+    public void parseRemoteListingReadsEntriesAndExclusions() {
+        String response = "some login banner\n" +
+                JobArchiver.EXCLUSIONS_MARKER + "\n" +
+                "wrapper.sh\n" +
+                "./lib/\n" +
+                "\n" +
+                JobArchiver.MANIFEST_MARKER + "\n" +
+                "f\t120\twrapper.sh\n" +
+                "d\t4096\tlib\n" +
+                "f\t2048\tlib/tool.jar\n" +
+                "d\t4096\toutput\n" +
+                "d\t4096\toutput/empty\n" +
+                "f\t10\toutput/result with spaces.txt\n" +
+                "l\t8\toutput/latest\n" +
+                "f\t64\t.agave.archive\n" +
+                JobArchiver.MANIFEST_END_MARKER + "\n";
+
+        JobArchiveManifest manifest = JobArchiver.parseRemoteListing(response);
+
+        assertNotNull(manifest, "Completed listing should be parsed.");
+        assertTrue(manifest.isRemoteListing(), "Manifest should record it came from a remote listing.");
+        assertTrue(manifest.isExclusionFileFound(), "Archive file should be recorded as found.");
+        assertEquals(manifest.getEntries().size(), 8, "Every manifest line should be parsed.");
+
+        assertEquals(getPaths(manifest.getArchivableFiles()),
+                Arrays.asList("output/result with spaces.txt", "output/latest", ".agave.archive"),
+                "Excluded files and files in excluded directories should not be archived.");
+        assertEquals(manifest.getArchivableLeafDirectories(), Arrays.asList("output/empty"),
+                "Only the deepest archivable directories should be returned.");
+    }
+
+    @Test
+    public void parseRemoteListingRejectsIncompleteListing() {
+        String response = JobArchiver.MANIFEST_MARKER + "\n" +
+                "f\t120\twrapper.sh\n";
+
+        assertNull(JobArchiver.parseRemoteListing(response),
+                "Listing without an end marker should be rejected so the directory walk is used.");
+    }
+
+    @Test
+    public void parseRemoteListingWithoutArchiveFile() {
+        String response = JobArchiver.MANIFEST_MARKER + "\n" +
+                "f\t120\twrapper.sh\n" +
+                JobArchiver.MANIFEST_END_MARKER + "\n";
+
+        JobArchiveManifest manifest = JobArchiver.parseRemoteListing(response);
+
+        assertNotNull(manifest);
+        assertFalse(manifest.isExclusionFileFound(), "Archive file should not be recorded as found.");
+        assertEquals(getPaths(manifest.getArchivableFiles()), Arrays.asList("wrapper.sh"),
+                "Everything should be archived without an archive file.");
+    }
+
+    @Test
+    public void isExcludedMatchesPathAndParents() {
+        JobArchiveManifest manifest = new JobArchiveManifest();
+        manifest.addExclusions(Arrays.asList("bin", "data/input.csv"));
+
+        assertTrue(manifest.isExcluded("bin"));
+        assertTrue(manifest.isExcluded("bin/tool"), "Children of excluded directories should be excluded.");
+        assertTrue(manifest.isExcluded("./data/input.csv"), "Paths should be normalized before matching.");
+        assertFalse(manifest.isExcluded("data"), "Parents of excluded paths should not be excluded.");
+        assertFalse(manifest.isExcluded("data/output.csv"));
+        assertFalse(manifest.isExcluded("binary"), "Exclusions should only match whole path segments.");
+    }
+
+    @Test
+    public void getArchivableLeafDirectoriesIncludesParentsOfExcludedDirectories() {
+        JobArchiveManifest manifest = new JobArchiveManifest();
+        manifest.addEntry("a", EntryType.DIRECTORY, 0);
+        manifest.addEntry("a/b", EntryType.DIRECTORY, 0);
+        manifest.addEntry("c", EntryType.DIRECTORY, 0);
+        manifest.addExclusions(Arrays.asList("a/b"));
+
+        assertEquals(manifest.getArchivableLeafDirectories(), Arrays.asList("a", "c"),
+                "A directory whose only child is excluded should be created.");
+    }
+}
@@ -0,0 +1,192 @@
+package org.iplantc.service.jobs.managers.archivers;
+
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest.Entry;
+import org.iplantc.service.jobs.managers.archivers.JobArchiveManifest.EntryType;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.util.RemoteDataClientPool;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.systems.model.RemoteSystem;
+import org.iplantc.service.transfer.RemoteDataClient;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.model.TransferTask;
+import org.iplantc.service.transfer.model.enumerations.TransferStatusType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class JobArchiverTest {
+
+    /**
+     * Archiver which records the transfer tasks it saves and the files it copies rather than
+     * touching the db or any remote system.
+     */
+    private class TestJobArchiver extends JobArchiver {
+
+        final Map<TransferTask, Integer> persistedTasks = new IdentityHashMap<TransferTask, Integer>();
+        final List<String> copiedFiles = new ArrayList<String>();
+        final Map<String, Long> fileSizes = new HashMap<String, Long>();
+        boolean remoteCommandsSucceed = true;
+
+        TestJobArchiver() throws Exception {
+            super(job(), system("execution-system"), system("archive-system"), null, null, () -> false);
+        }
+
+        @Override
+        protected void persistTransferTask(TransferTask transferTask) {
+            persistedTasks.merge(transferTask, 1, Integer::sum);
+        }
+
+        @Override
+        protected TransferTask transferFile(String relativePath, TransferTask transferTask) {
+            copiedFiles.add(relativePath);
+            // copies overwrite the totals of the task with those of the last file
+            long size = fileSizes.containsKey(relativePath) ? fileSizes.get(relativePath) : 0;
+            transferTask.setTotalSize(size);
+            transferTask.setBytesTransferred(size);
+            transferTask.setStatus(TransferStatusType.COMPLETED);
+            return transferTask;
+        }
+
+        @Override
+        protected RemoteDataClient borrowClient(RemoteDataClientPool clients, RemoteSystem system) throws Exception {
+            throw new RemoteDataException("No remote systems are available to the test.");
+        }
+
+        @Override
+        protected boolean runRemoteCommand(ExecutionSystem system, String command) {
+            return remoteCommandsSucceed;
+        }
+    }
+
+    private static Job job() {
+        Job job = new Job();
+        job.setTenantId("archiving.test");
+        job.setOwner("testuser");
+        job.setSystem("execution-system");
+        job.setWorkPath("/work/job");
+        job.setArchivePath("/archive/job");
+        return job;
+    }
+
+    private static ExecutionSystem system(String systemId) {
+        ExecutionSystem system = new ExecutionSystem();
+        system.setSystemId(systemId);
+        return system;
+    }
+
+    private List<Entry> files(int count, long size) {
+        List<Entry> files = new ArrayList<Entry>();
+        for (int i = 0; i < count; i++) {
+            files.add(new Entry("output/file-" + i + ".txt", EntryType.FILE, size));
+        }
+        return files;
+    }
+
+    @Test
+    public void batchFilesSplitsFilesIntoAtMostMaxBatches() {
+        assertTrue(JobArchiver.batchFiles(new ArrayList<Entry>(), 4).isEmpty(), "No files should mean no batches.");
+
+        List<List<Entry>> batches = JobArchiver.batchFiles(files(10, 1), 4);
+        assertEquals(batches.size(), 4);
+        int batchedFiles = 0;
+        for (List<Entry> batch : batches) {
+            assertFalse(batch.isEmpty(), "Batches should never be empty.");
+            assertTrue(batch.size() <= 3, "Files should be spread across the batches.");
+            batchedFiles += batch.size();
+        }
+        assertEquals(batchedFiles, 10, "Every file should be in a batch.");
+
+        assertEquals(JobArchiver.batchFiles(files(3, 1), 8).size(), 3,
+                "There should never be more batches than files.");
+        assertEquals(JobArchiver.batchFiles(files(3, 1), 0).size(), 1,
+                "A bad batch count should fall back to a single batch.");
+    }
+
+    @Test
+    public void partitionFilesBundlesOnlySmallFiles() throws Exception {
+        long originalMaxFileSize = Settings.ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB;
+        int originalMaxFiles = Settings.ARCHIVE_BUNDLE_MAX_FILES;
+        Settings.ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB = 1;
+        Settings.ARCHIVE_BUNDLE_MAX_FILES = 2;
+        try {
+            List<Entry> archivableFiles = files(5, 10);
+            archivableFiles.add(new Entry("output/large.bin", EntryType.FILE, 4096));
+
+            List<Entry> files = new ArrayList<Entry>();
+            List<List<Entry>> bundles = new ArrayList<List<Entry>>();
+            new TestJobArchiver().partitionFiles(archivableFiles, true, files, bundles);
+
+            assertEquals(bundles.size(), 2, "Small files should be bundled up to the bundle size.");
+            assertEquals(files.size(), 2, "Large files and bundles of one should be copied individually.");
+            assertTrue(files.contains(archivableFiles.get(5)));
+
+            files.clear();
+            bundles.clear();
+            new TestJobArchiver().partitionFiles(archivableFiles, false, files, bundles);
+            assertTrue(bundles.isEmpty(), "Nothing should be bundled when bundling is not supported.");
+            assertEquals(files.size(), archivableFiles.size());
+        } finally {
+            Settings.ARCHIVE_BUNDLE_MAX_FILE_SIZE_KB = originalMaxFileSize;
+            Settings.ARCHIVE_BUNDLE_MAX_FILES = originalMaxFiles;
+        }
+    }
+
+    @Test
+    public void eachBatchIsTrackedByOneTransferTask() throws Exception {
+        TestJobArchiver archiver = new TestJobArchiver();
+        List<Entry> batch = files(5, 0);
+        for (int i = 0; i < batch.size(); i++) {
+            archiver.fileSizes.put(batch.get(i).getPath(), (long) (i + 1) * 100);
+        }
+        TransferTask rootTask = new TransferTask("agave://execution-system//work/job", "agave://archive-system//archive/job");
+
+        TransferTask batchTask = archiver.transferFiles(batch, rootTask);
+
+        assertEquals(archiver.copiedFiles.size(), 5, "Every file in the batch should be copied.");
+        assertEquals(archiver.persistedTasks.size(), 1, "Only one transfer task should be saved for the batch.");
+        assertSame(archiver.persistedTasks.keySet().iterator().next(), batchTask);
+        assertSame(batchTask.getRootTask(), rootTask);
+        assertEquals(batchTask.getTotalFiles(), 5);
+        assertEquals(batchTask.getTotalSize(), 1500, "The batch should hold the combined size of its files.");
+        assertEquals(batchTask.getBytesTransferred(), 1500);
+        assertEquals(batchTask.getStatus(), TransferStatusType.COMPLETED);
+    }
+
+    @Test
+    public void bundlesAreTrackedByOneTransferTask() throws Exception {
+        TestJobArchiver archiver = new TestJobArchiver();
+        List<Entry> bundle = files(4, 10);
+        TransferTask rootTask = new TransferTask("agave://execution-system//work/job", "agave://archive-system//archive/job");
+
+        TransferTask bundleTask = archiver.transferBundle(bundle, 0, rootTask);
+        assertEquals(archiver.copiedFiles.size(), 1, "A bundle should be copied as a single file.");
+        assertEquals(archiver.persistedTasks.size(), 1, "Only one transfer task should be saved for the bundle.");
+        assertEquals(bundleTask.getTotalFiles(), 4);
+        assertEquals(bundleTask.getTotalSize(), 40);
+
+        archiver = new TestJobArchiver();
+        archiver.remoteCommandsSucceed = false;
+        bundleTask = archiver.transferBundle(bundle, 1, rootTask);
+        assertEquals(archiver.copiedFiles, pathsOf(bundle),
+                "Files of a bundle which cannot be packed should be copied individually.");
+        assertEquals(archiver.persistedTasks.size(), 1,
+                "Files of a bundle copied individually should share the bundle's transfer task.");
+        assertEquals(bundleTask.getTotalFiles(), 4);
+    }
+
+    private List<String> pathsOf(List<Entry> entries) {
+        List<String> paths = new ArrayList<String>();
+        for (Entry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+}
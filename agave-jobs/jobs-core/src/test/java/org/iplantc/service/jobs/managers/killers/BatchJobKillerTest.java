@@ -0,0 +1,52 @@
+package org.iplantc.service.jobs.managers.killers;
+
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.systems.model.enumerations.SchedulerType;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class BatchJobKillerTest {
+
+    private Job mockJob(String localJobId) {
+        Job job = mock(Job.class);
+        when(job.getLocalJobId()).thenReturn(localJobId);
+        return job;
+    }
+
+    @Test
+    public void getCommandJoinsLocalJobIds() {
+        ExecutionSystem executionSystem = mock(ExecutionSystem.class);
+        when(executionSystem.getScheduler()).thenReturn(SchedulerType.SLURM);
+
+        BatchJobKiller killer = new BatchJobKiller(executionSystem, null, "",
+                Arrays.asList(mockJob("101"), mockJob("102"), mockJob("103")));
+
+        assertEquals(killer.getCommand(), "scancel 101 102 103",
+                "All local job ids should be passed to a single kill command.");
+    }
+
+    @DataProvider
+    public Object[][] getNotFoundResponseProvider() {
+        return new Object[][] {
+                { "12", "", null, "Empty response should never report a job as not found." },
+                { "12", "Job 123.head does not exist", null, "Job id prefix of another job should not match." },
+                { "123", "Job 12 does not exist", null, "Another job id that is a prefix of this job id should not match." },
+                { "123", "Job <123> does not exist.", "Job <123> does not exist.", "Job id followed by a period should match." },
+                { "123", "Job <122> is being terminated\nJob <123> does not exist.", "Job <123> does not exist.", "Only the line for the job should be returned." },
+                { "4567", "scancel: error: Kill job error on job id 4567: Invalid job id specified", null, "Lines without a not found term should not match." },
+                { "4567", "llcancel: couldn't find job 4567", "llcancel: couldn't find job 4567", "Loadleveler not found response should match." },
+        };
+    }
+
+    @Test(dataProvider = "getNotFoundResponseProvider")
+    public void getNotFoundResponse(String localJobId, String response, String expected, String message) {
+        assertEquals(BatchJobKiller.getNotFoundResponse(mockJob(localJobId), response), expected, message);
+    }
+}
@@ -0,0 +1,138 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.apps.model.Software;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class AppAssetCacheTest {
+
+    private Path testDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws IOException {
+        testDir = Files.createTempDirectory("app-asset-cache-test");
+    }
+
+    @AfterMethod
+    protected void afterMethod() {
+        FileUtils.deleteQuietly(testDir.toFile());
+    }
+
+    private Software getPublicSoftware(String checksum) {
+        Software software = mock(Software.class);
+        when(software.isPubliclyAvailable()).thenReturn(true);
+        when(software.getChecksum()).thenReturn(checksum);
+        when(software.getUniqueName()).thenReturn("app-" + checksum + "u1");
+        return software;
+    }
+
+    /**
+     * Creates an unpacked app directory holding a wrapper template and a nested library file
+     * of the given size.
+     */
+    private File createAppDir(String name, int libSizeBytes) throws IOException {
+        File appDir = testDir.resolve(name).toFile();
+        FileUtils.writeStringToFile(new File(appDir, "wrapper.sh"), "#!/bin/bash\necho hello", StandardCharsets.UTF_8);
+        FileUtils.writeByteArrayToFile(new File(appDir, "lib/data.bin"), new byte[libSizeBytes]);
+        return appDir;
+    }
+
+    @Test
+    public void getCacheKeyOnlyForPublicApps() {
+        Software privateSoftware = mock(Software.class);
+        when(privateSoftware.isPubliclyAvailable()).thenReturn(false);
+        when(privateSoftware.getChecksum()).thenReturn("abc123");
+        assertNull(AppAssetCache.getCacheKey(privateSoftware), "Private apps should never be cached.");
+
+        assertEquals(AppAssetCache.getCacheKey(getPublicSoftware("abc123")), "abc123",
+                "Public apps should be keyed on their checksum.");
+
+        Software noChecksumSoftware = getPublicSoftware(null);
+        when(noChecksumSoftware.getUniqueName()).thenReturn("app-1.0u3");
+        assertEquals(AppAssetCache.getCacheKey(noChecksumSoftware), "app-1.0u3",
+                "Public apps without a checksum should be keyed on their unique name.");
+    }
+
+    @Test
+    public void storeThenMaterializeLinksAssets() throws IOException {
+        AppAssetCache cache = new AppAssetCache(testDir.resolve("cache"), 1024 * 1024, 0);
+        Software software = getPublicSoftware("abc123");
+
+        File targetDir = testDir.resolve("job").toFile();
+        assertFalse(cache.materialize(software, targetDir), "Nothing should be materialized before the app is stored.");
+
+        File sourceDir = createAppDir("source", 100);
+        cache.store(software, sourceDir);
+        FileUtils.deleteDirectory(sourceDir);
+
+        assertTrue(cache.contains(software), "App should be cached after storing.");
+        assertTrue(cache.materialize(software, targetDir), "Cached app should be materialized.");
+        assertTrue(new File(targetDir, "wrapper.sh").exists(), "Wrapper template should be present in the target dir.");
+        assertEquals(new File(targetDir, "lib/data.bin").length(), 100L,
+                "Nested assets should be present in the target dir after the source was deleted.");
+    }
+
+    @Test
+    public void storeEvictsLeastRecentlyUsed() throws IOException {
+        AppAssetCache cache = new AppAssetCache(testDir.resolve("cache"), 2500, 0);
+        Software first = getPublicSoftware("first");
+        Software second = getPublicSoftware("second");
+        Software third = getPublicSoftware("third");
+
+        cache.store(first, createAppDir("first", 1000));
+        cache.store(second, createAppDir("second", 1000));
+
+        // touch the first app so the second becomes least recently used
+        assertTrue(cache.materialize(first, testDir.resolve("job").toFile()));
+
+        cache.store(third, createAppDir("third", 1000));
+
+        assertTrue(cache.contains(first), "Recently used app should be retained.");
+        assertFalse(cache.contains(second), "Least recently used app should be evicted.");
+        assertTrue(cache.contains(third), "Newly stored app should be retained.");
+        assertTrue(cache.getSize() <= 2500, "Cache should fit within its disk budget after eviction.");
+    }
+
+    @Test
+    public void existingEntriesAreReloaded() throws IOException {
+        Path cacheDir = testDir.resolve("cache");
+        Software software = getPublicSoftware("abc123");
+
+        new AppAssetCache(cacheDir, 1024 * 1024, 0).store(software, createAppDir("source", 100));
+
+        AppAssetCache reloadedCache = new AppAssetCache(cacheDir, 1024 * 1024, 0);
+        assertTrue(reloadedCache.contains(software), "Entries from a previous run should be reloaded.");
+        assertTrue(reloadedCache.getSize() > 0, "Size of reloaded entries should be tracked.");
+    }
+
+    @Test
+    public void prefetchingOnlyStartsWhenRequested() throws IOException {
+        AppAssetCache cache = new AppAssetCache(testDir.resolve("cache"), 1024 * 1024, 3600);
+        try {
+            assertFalse(cache.isPrefetching(), "Creating a cache should not start the prefetch thread.");
+
+            cache.startPrefetching();
+            assertTrue(cache.isPrefetching(), "Prefetching should run once started.");
+        } finally {
+            cache.stopPrefetching();
+        }
+        assertFalse(cache.isPrefetching(), "Prefetching should end once stopped.");
+
+        AppAssetCache disabledCache = new AppAssetCache(testDir.resolve("disabled"), 1024 * 1024, 0);
+        disabledCache.startPrefetching();
+        assertFalse(disabledCache.isPrefetching(), "Prefetching should not start when disabled.");
+    }
+}
@@ -0,0 +1,188 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.iplantc.service.jobs.exceptions.JobException;
+import org.iplantc.service.jobs.exceptions.SchedulerException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.JobEvent;
+import org.iplantc.service.jobs.model.enumerations.JobStatusType;
+import org.iplantc.service.jobs.model.scripts.SubmitScript;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.systems.model.enumerations.SchedulerType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class HPCArrayLauncherTest {
+
+    /**
+     * Job which records the events it processes rather than sending their notifications.
+     */
+    private static class RecordingJob extends Job {
+        final List<JobEvent> processedEvents = new ArrayList<JobEvent>();
+
+        RecordingJob(String uuid) throws JobException {
+            setUuid(uuid);
+            setOwner("testuser");
+            setArrayUuid("array-uuid");
+            setStatus(JobStatusType.SUBMITTING, "Claimed by the test.");
+            getEvents().clear();
+            processedEvents.clear();
+        }
+
+        @Override
+        protected void processEvent(JobEvent event) {
+            processedEvents.add(event);
+        }
+    }
+
+    /**
+     * Launcher which records what it releases, reconciles, and saves rather than touching
+     * the db or the scheduler.
+     */
+    private static class TestHPCArrayLauncher extends HPCArrayLauncher {
+        final List<Job> releasedJobs = new ArrayList<Job>();
+        final Map<String, String> reconciledTasks = new HashMap<String, String>();
+        final List<Job> savedJobs = new ArrayList<Job>();
+        String arrayJobId = "1234";
+        boolean failSave = false;
+        int eventsProcessedBeforeSave = 0;
+
+        TestHPCArrayLauncher(Job job) {
+            super();
+            setJob(job);
+            ExecutionSystem executionSystem = new ExecutionSystem();
+            executionSystem.setScheduler(SchedulerType.SLURM);
+            setExecutionSystem(executionSystem);
+        }
+
+        @Override
+        protected String submitJobToQueue() throws JobException, SchedulerException {
+            if (arrayJobId == null) {
+                throw new SchedulerException("Scheduler rejected the job array.");
+            }
+            return arrayJobId;
+        }
+
+        @Override
+        protected void saveSubmittedJobs(List<Job> jobs, Map<String, JobStatusType> previousStatuses) throws JobException {
+            for (Job job: jobs) {
+                eventsProcessedBeforeSave += ((RecordingJob) job).processedEvents.size();
+            }
+            if (failSave) {
+                throw new JobException("batch failed to commit");
+            }
+            savedJobs.addAll(jobs);
+        }
+
+        @Override
+        protected void releaseJob(Job job, String message) {
+            releasedJobs.add(job);
+        }
+
+        @Override
+        protected void reconcileSubmittedJob(Job job, String arrayJobId, String taskId, String reason) {
+            reconciledTasks.put(job.getUuid(), taskId);
+        }
+    }
+
+    private HPCLauncher taskLauncher(Job job, String workPath, String batchScriptName) throws Exception {
+        HPCLauncher taskLauncher = mock(HPCLauncher.class);
+        when(taskLauncher.getJob()).thenReturn(job);
+        when(taskLauncher.getAbsoluteRemoteJobDirPath()).thenReturn(workPath);
+        when(taskLauncher.getBatchScriptName()).thenReturn(batchScriptName);
+        return taskLauncher;
+    }
+
+    @Test
+    public void processJobArrayScriptDispatchesEachTaskToItsJob() throws Exception {
+        final SubmitScript script = mock(SubmitScript.class);
+        when(script.getScriptText()).thenReturn("#!/bin/bash\n#SBATCH -J lead\n");
+        when(script.getName()).thenReturn("lead");
+        when(script.getStandardOutputFile()).thenReturn("task.out");
+        when(script.getStandardErrorFile()).thenReturn("task.err");
+
+        HPCArrayLauncher launcher = new TestHPCArrayLauncher(new RecordingJob("lead-uuid")) {
+            @Override
+            protected SubmitScript getSubmitScript(Job job) {
+                return script;
+            }
+        };
+
+        List<HPCLauncher> taskLaunchers = Arrays.asList(
+                taskLauncher(new RecordingJob("job-0"), "/work/job-0", "job-0.ipcexe"),
+                taskLauncher(new RecordingJob("job-1"), "/work/job-1", "job-1.ipcexe"));
+
+        String arrayScript = launcher.processJobArrayScript(taskLaunchers);
+
+        assertTrue(arrayScript.startsWith("#!/bin/bash\n#SBATCH --array=0-1\n#SBATCH -J lead\n"),
+                "The array directive should follow the shebang of the lead job's script.");
+        assertTrue(arrayScript.contains("case \"${SLURM_ARRAY_TASK_ID}\" in\n"));
+        assertTrue(arrayScript.contains("  0) cd '/work/job-0' && exec bash ./job-0.ipcexe > task.out 2> task.err ;;\n"));
+        assertTrue(arrayScript.contains("  1) cd '/work/job-1' && exec bash ./job-1.ipcexe > task.out 2> task.err ;;\n"));
+        assertTrue(arrayScript.endsWith("esac\n"));
+        verify(script).setStandardOutputFile("lead-array-uuid.out");
+        verify(script).setStandardErrorFile("lead-array-uuid.err");
+    }
+
+    @Test
+    public void submittedJobsAreSavedBeforeTheirEventsAreProcessed() throws Exception {
+        RecordingJob lead = new RecordingJob("lead-uuid");
+        RecordingJob sibling = new RecordingJob("sibling-uuid");
+        TestHPCArrayLauncher launcher = new TestHPCArrayLauncher(lead);
+
+        launcher.submitJobArray(Arrays.asList(launcher, taskLauncher(sibling, "/work/sibling", "sibling.ipcexe")));
+
+        assertEquals(launcher.savedJobs, Arrays.asList(lead, sibling));
+        assertEquals(launcher.eventsProcessedBeforeSave, 0, "No event should be processed before the jobs are saved.");
+        assertEquals(lead.getLocalJobId(), "1234_0");
+        assertEquals(sibling.getLocalJobId(), "1234_1");
+        assertEquals(sibling.getSchedulerJobId(), "1234");
+        assertEquals(lead.getStatus(), JobStatusType.QUEUED);
+        assertEquals(lead.processedEvents.size(), 1, "The queued event should be processed once the jobs are saved.");
+        assertTrue(launcher.releasedJobs.isEmpty());
+        assertTrue(launcher.reconciledTasks.isEmpty());
+    }
+
+    @Test
+    public void siblingsAreReleasedWhenTheArrayIsNotSubmitted() throws Exception {
+        RecordingJob sibling = new RecordingJob("sibling-uuid");
+        TestHPCArrayLauncher launcher = new TestHPCArrayLauncher(new RecordingJob("lead-uuid"));
+        launcher.arrayJobId = null;
+
+        try {
+            launcher.submitJobArray(Arrays.asList(launcher, taskLauncher(sibling, "/work/sibling", "sibling.ipcexe")));
+            fail("A rejected job array should fail the launch.");
+        } catch (SchedulerException expected) {}
+
+        assertEquals(launcher.releasedJobs, Arrays.asList((Job) sibling),
+                "Siblings should go back to the submission queue when nothing was submitted.");
+        assertTrue(launcher.reconciledTasks.isEmpty());
+    }
+
+    @Test
+    public void siblingsAreReconciledWhenTheSubmittedArrayCannotBeSaved() throws Exception {
+        RecordingJob lead = new RecordingJob("lead-uuid");
+        RecordingJob sibling = new RecordingJob("sibling-uuid");
+        TestHPCArrayLauncher launcher = new TestHPCArrayLauncher(lead);
+        launcher.failSave = true;
+
+        try {
+            launcher.submitJobArray(Arrays.asList(launcher, taskLauncher(sibling, "/work/sibling", "sibling.ipcexe")));
+            fail("A job array which cannot be saved should fail the launch.");
+        } catch (JobException expected) {}
+
+        assertTrue(launcher.releasedJobs.isEmpty(),
+                "Siblings of a submitted job array should never be released to be submitted again.");
+        assertEquals(launcher.reconciledTasks.size(), 1);
+        assertEquals(launcher.reconciledTasks.get("sibling-uuid"), "1234_1");
+        assertTrue(lead.processedEvents.isEmpty(), "Events of jobs which failed to save should be discarded.");
+    }
+}
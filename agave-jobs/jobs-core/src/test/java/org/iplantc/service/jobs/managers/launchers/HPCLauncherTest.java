@@ -179,8 +179,8 @@ public class HPCLauncherTest {
         // pass through all the actual parsing scripts
         doCallRealMethod().when(launcher).setBatchScriptName(anyString());
         when(launcher.getBatchScriptName()).thenCallRealMethod();
-        when(launcher.resolveJobRequestParameters(anyString())).thenCallRealMethod();
-        when(launcher.resolveJobRequestInputs(anyString())).thenCallRealMethod();
+        when(launcher.resolveJobRequestTemplateVariables(anyString())).thenCallRealMethod();
+        when(launcher.resolveWrapperTemplateMacros(anyString())).thenCallRealMethod();
         when(launcher.filterRuntimeStatusMacros(anyString())).thenCallRealMethod();
         when(launcher.resolveRuntimeNotificationMacros(anyString())).thenCallRealMethod();
         when(launcher.resolveMacros(anyString())).thenCallRealMethod();
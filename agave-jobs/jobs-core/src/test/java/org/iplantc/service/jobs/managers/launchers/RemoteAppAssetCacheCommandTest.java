@@ -0,0 +1,117 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the remote app cache commands built by {@link AbstractJobLauncher} in a local shell.
+ */
+@Test(groups={"unit"})
+public class RemoteAppAssetCacheCommandTest {
+
+    private static final String SUCCESS_TOKEN = "AGAVE_APP_CACHE_OK";
+
+    private Path testDir;
+    private File cacheDir;
+
+    @BeforeMethod
+    protected void beforeMethod() throws IOException {
+        testDir = Files.createTempDirectory("remote app cache's test");
+        cacheDir = testDir.resolve("app-cache/abc123").toFile();
+        cacheDir.getParentFile().mkdirs();
+    }
+
+    @AfterMethod
+    protected void afterMethod() {
+        FileUtils.deleteQuietly(testDir.toFile());
+    }
+
+    private String run(String command) throws Exception {
+        Process process = new ProcessBuilder("/bin/sh", "-c", command).redirectErrorStream(true).start();
+        String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        process.waitFor(30, TimeUnit.SECONDS);
+        return output;
+    }
+
+    private File stageUpload(String name) throws IOException {
+        File stagedApp = testDir.resolve(name + "/app").toFile();
+        FileUtils.writeStringToFile(new File(stagedApp, "wrapper.sh"), "#!/bin/bash\necho " + name, StandardCharsets.UTF_8);
+        return stagedApp;
+    }
+
+    private String claim(File stagedApp, String owner) throws Exception {
+        return run(AbstractJobLauncher.getRemoteCacheClaimCommand(cacheDir.getPath(), stagedApp.getPath(), owner, 60));
+    }
+
+    @Test
+    public void firstUploadIsMovedIntoTheCache() throws Exception {
+        File stagedApp = stageUpload("first");
+
+        assertTrue(claim(stagedApp, "job-1").contains(SUCCESS_TOKEN), "An unclaimed entry should be filled by the upload.");
+        assertTrue(new File(cacheDir, "wrapper.sh").exists(), "The upload should be moved into the cache.");
+        assertTrue(new File(cacheDir.getPath() + ".complete").exists(), "The entry should be marked complete.");
+        assertFalse(stagedApp.exists());
+
+        File secondApp = stageUpload("second");
+        assertTrue(claim(secondApp, "job-2").contains(SUCCESS_TOKEN), "A complete entry should be reported as complete.");
+        assertTrue(secondApp.exists(), "A later upload should not replace a complete entry.");
+    }
+
+    @Test
+    public void entriesClaimedByAnotherJobAreNotTaken() throws Exception {
+        File lock = new File(cacheDir.getPath() + ".lock");
+        assertTrue(lock.mkdir());
+
+        File stagedApp = stageUpload("first");
+        assertFalse(claim(stagedApp, "job-1").contains(SUCCESS_TOKEN),
+                "An entry being written by another job should not be used.");
+        assertTrue(stagedApp.exists(), "The upload should be left for the job to use directly.");
+        assertTrue(lock.exists(), "A recent lock should be left to its owner.");
+    }
+
+    @Test
+    public void abandonedClaimsAreTakenOver() throws Exception {
+        File lock = new File(cacheDir.getPath() + ".lock");
+        assertTrue(lock.mkdir());
+        FileUtils.writeStringToFile(new File(cacheDir, "partial.bin"), "partial", StandardCharsets.UTF_8);
+        assertTrue(lock.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+
+        File stagedApp = stageUpload("first");
+        assertTrue(claim(stagedApp, "job-1").contains(SUCCESS_TOKEN), "A stale lock should be taken over.");
+        assertTrue(new File(cacheDir, "wrapper.sh").exists(), "The upload should replace the abandoned entry.");
+        assertFalse(new File(cacheDir, "partial.bin").exists(), "Files of the abandoned entry should be removed.");
+        assertFalse(new File(cacheDir.getPath() + ".lock-job-1").exists(), "The stale lock should be removed.");
+    }
+
+    @Test
+    public void cachedAssetsAreCopiedOrLinkedIntoTheWorkDirectory() throws Exception {
+        FileUtils.writeStringToFile(new File(cacheDir, "wrapper.sh"), "#!/bin/bash", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(cacheDir, ".hidden"), "hidden", StandardCharsets.UTF_8);
+
+        File copyDir = testDir.resolve("copy").toFile();
+        assertTrue(copyDir.mkdirs());
+        assertTrue(run(AbstractJobLauncher.getRemoteCacheStageCommand(cacheDir.getPath(), copyDir.getPath(), false))
+                .contains(SUCCESS_TOKEN));
+        assertTrue(new File(copyDir, "wrapper.sh").isFile());
+        assertTrue(new File(copyDir, ".hidden").isFile(), "Hidden assets should be copied.");
+
+        File linkDir = testDir.resolve("link").toFile();
+        assertTrue(linkDir.mkdirs());
+        assertTrue(run(AbstractJobLauncher.getRemoteCacheStageCommand(cacheDir.getPath(), linkDir.getPath(), true))
+                .contains(SUCCESS_TOKEN));
+        assertTrue(Files.isSymbolicLink(linkDir.toPath().resolve("wrapper.sh")), "Assets should be linked.");
+        assertTrue(Files.isSymbolicLink(linkDir.toPath().resolve(".hidden")), "Hidden assets should be linked.");
+    }
+}
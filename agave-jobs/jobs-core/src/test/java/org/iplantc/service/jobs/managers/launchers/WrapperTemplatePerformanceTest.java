@@ -0,0 +1,138 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.apache.commons.lang.StringUtils;
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.common.uuid.AgaveUUID;
+import org.iplantc.service.common.uuid.UUIDType;
+import org.iplantc.service.jobs.exceptions.JobMacroResolutionException;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.jobs.model.enumerations.WrapperTemplateAttributeVariableType;
+import org.iplantc.service.jobs.model.enumerations.WrapperTemplateStatusVariableType;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Resolves a large wrapper template with the previous whole-template regex replacement passes
+ * and with the cached, single pass {@link WrapperTemplate}, and checks both produce the same
+ * wrapper for every job rendered from the cached template.
+ */
+@Test(groups={"performance"})
+public class WrapperTemplatePerformanceTest
+{
+	private static final int PARAMETER_COUNT = 200;
+	private static final int RENDERED_JOBS = 20;
+
+	private String appTemplate;
+	private Map<String, String> parameterValues;
+	private Software software;
+	private WrapperTemplateMacroResolver resolver;
+
+	@BeforeClass
+	public void beforeClass() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < PARAMETER_COUNT; i++) {
+			sb.append("# step ").append(i).append(" of the app logic\n");
+			sb.append("echo \"[$(date)] running step ").append(i).append("\" >> \"$LOG_FILE\"\n");
+			sb.append("./bin/tool --option").append(i).append(" ${param").append(i).append("} --work \"${PWD}\"\n");
+			if (i % 20 == 0) {
+				sb.append("echo 'job ${AGAVE_JOB_ID} ${AGAVE_JOB_NAME} on ${AGAVE_JOB_EXECUTION_SYSTEM}'\n");
+				sb.append("${AGAVE_JOB_CALLBACK_NOTIFICATION|STEP").append(i).append(",LOG_FILE}\n");
+				sb.append("${AGAVE_JOB_CALLBACK_NOTIFICATION|step_done|LOG_FILE}\n");
+				sb.append("if [[ $? -ne 0 ]]; then\n  ${AGAVE_JOB_CALLBACK_FAILURE}\nfi\n");
+				sb.append("${AGAVE_JOB_CALLBACK_ARCHIVING}\n");
+			}
+		}
+		appTemplate = sb.toString();
+
+		parameterValues = new HashMap<String, String>();
+		for (int i = 0; i < PARAMETER_COUNT; i++) {
+			parameterValues.put("param" + i, "'value " + i + "'");
+		}
+
+		software = mock(Software.class);
+		when(software.getUuid()).thenReturn(new AgaveUUID(UUIDType.APP).toString());
+		when(software.getRevisionCount()).thenReturn(1);
+		when(software.getLastUpdated()).thenReturn(new Date());
+
+		Job job = mock(Job.class);
+		when(job.getUuid()).thenReturn(new AgaveUUID(UUIDType.JOB).toString());
+		when(job.getName()).thenReturn("performance test job");
+		when(job.getSystem()).thenReturn("execution.example.com");
+		when(job.getTenantId()).thenReturn(TenancyHelper.getCurrentTenantId());
+		when(job.getUpdateToken()).thenReturn(UUID.randomUUID().toString());
+		resolver = new WrapperTemplateMacroResolver(job, null);
+	}
+
+	/**
+	 * The wrapper template resolution as it was done prior to {@link WrapperTemplate}: one regex
+	 * replacement over the whole template per parameter, then one pass per reserved status macro,
+	 * notification form, and job macro.
+	 */
+	private String resolveWithRegexReplacement() throws JobMacroResolutionException {
+		String template = appTemplate;
+		for (int i = 0; i < PARAMETER_COUNT; i++) {
+			template = template.replaceAll("(?i)\\$\\{param" + i + "\\}", parameterValues.get("param" + i));
+		}
+
+		List<WrapperTemplateStatusVariableType> userAccessible = WrapperTemplateStatusVariableType.userAccessibleJobCallbackMacros();
+		for (WrapperTemplateStatusVariableType macro : WrapperTemplateStatusVariableType.values()) {
+			if (!userAccessible.contains(macro)) {
+				template = StringUtils.replace(template, "${" + macro.name() + "}", "");
+			}
+		}
+
+		Pattern defaultPattern = Pattern.compile("(?s)(?:.*)?(?:(\\$\\{AGAVE_JOB_CALLBACK_NOTIFICATION\\|(?:([a-zA-Z0-9_,\\s]*))\\}))(?:.*)?");
+		Matcher matcher = defaultPattern.matcher(template);
+		while (matcher.matches()) {
+			template = StringUtils.replace(template, matcher.group(1),
+					resolver.resolveNotificationEventMacro("JOB_RUNTIME_CALLBACK_EVENT", StringUtils.split(matcher.group(2), ",")));
+			matcher = defaultPattern.matcher(template);
+		}
+
+		Pattern customPattern = Pattern.compile("(?s)(?:.*)?(?:(\\$\\{AGAVE_JOB_CALLBACK_NOTIFICATION\\|(?:(\\s*[a-zA-Z0-9_]*\\s*))\\|(?:([a-zA-Z0-9_,\\s]*))\\}))(?:.*)?");
+		matcher = customPattern.matcher(template);
+		while (matcher.matches()) {
+			template = StringUtils.replace(template, matcher.group(1),
+					resolver.resolveNotificationEventMacro(matcher.group(2), StringUtils.split(matcher.group(3), ",")));
+			matcher = customPattern.matcher(template);
+		}
+
+		for (WrapperTemplateAttributeVariableType macro : WrapperTemplateAttributeVariableType.values()) {
+			if (template.contains("${" + macro.name() + "}")) {
+				template = StringUtils.replace(template, "${" + macro.name() + "}", resolver.resolveJobAttributeMacro(null, macro));
+			}
+		}
+		for (WrapperTemplateStatusVariableType macro : WrapperTemplateStatusVariableType.values()) {
+			if (template.contains("${" + macro.name() + "}")) {
+				template = StringUtils.replace(template, "${" + macro.name() + "}", resolver.resolveJobCallbackMacro(null, macro));
+			}
+		}
+
+		return template;
+	}
+
+	private String resolveWithWrapperTemplate() throws JobMacroResolutionException {
+		String template = WrapperTemplate.forSoftware(software, appTemplate)
+				.render(name -> parameterValues.get(name.toLowerCase(Locale.ENGLISH)));
+
+		return resolver.resolveWrapperTemplate(template);
+	}
+
+	@Test
+	public void resolveWrapperTemplate() throws JobMacroResolutionException {
+		String expected = resolveWithRegexReplacement();
+		for (int i = 0; i < RENDERED_JOBS; i++) {
+			Assert.assertEquals(resolveWithWrapperTemplate(), expected,
+					"Single pass resolution should produce the same wrapper as the regex replacement passes.");
+		}
+	}
+}
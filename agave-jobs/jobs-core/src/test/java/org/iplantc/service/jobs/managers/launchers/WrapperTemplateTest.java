@@ -0,0 +1,83 @@
+package org.iplantc.service.jobs.managers.launchers;
+
+import org.iplantc.service.apps.model.Software;
+import org.iplantc.service.jobs.exceptions.JobMacroResolutionException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Test(groups={"unit"})
+public class WrapperTemplateTest
+{
+	private String render(String template, Map<String, String> values) throws JobMacroResolutionException {
+		return WrapperTemplate.parse(template).render(values::get);
+	}
+
+	@DataProvider
+	protected Object[][] renderProvider()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("FOO", "foo");
+		values.put("BAR", "$1 \\bar");
+
+		return new Object[][] {
+				{ "echo ${FOO}", values, "echo foo" },
+				{ "${FOO}${FOO}-${BAR}", values, "foofoo-$1 \\bar" },
+				{ "echo ${UNKNOWN} ${FOO}", values, "echo ${UNKNOWN} foo" },
+				{ "echo ${FOO:-${BAR}}", values, "echo ${FOO:-$1 \\bar}" },
+				{ "echo ${FOO", values, "echo ${FOO" },
+				{ "echo $FOO {FOO}", values, "echo $FOO {FOO}" },
+				{ "", values, "" },
+		};
+	}
+
+	@Test(dataProvider = "renderProvider")
+	public void render(String template, Map<String, String> values, String expected) throws JobMacroResolutionException {
+		Assert.assertEquals(render(template, values), expected, "Template was not rendered as expected.");
+	}
+
+	@Test
+	public void renderDoesNotRescanValues() throws JobMacroResolutionException {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("FOO", "${BAR}");
+		values.put("BAR", "bar");
+
+		Assert.assertEquals(render("${FOO} ${BAR}", values), "${BAR} bar",
+				"Variable references in resolved values should be inserted verbatim.");
+	}
+
+	@Test
+	public void getVariableNames() {
+		WrapperTemplate template = WrapperTemplate.parse("${B} ${A} ${B} ${C:-${D}}");
+		Assert.assertEquals(template.getVariableNames().toArray(), Arrays.asList("B", "A", "D").toArray(),
+				"Variable names should be unique and in order of first appearance.");
+	}
+
+	@Test
+	public void forSoftwareReusesParsedTemplate() {
+		WrapperTemplate.clearCache();
+		Software software = mock(Software.class);
+		when(software.getUuid()).thenReturn("0001-software");
+		when(software.getRevisionCount()).thenReturn(1);
+		when(software.getLastUpdated()).thenReturn(new Date(1546300800000L));
+
+		WrapperTemplate template = WrapperTemplate.forSoftware(software, "echo ${FOO}");
+
+		Assert.assertSame(WrapperTemplate.forSoftware(software, new String("echo ${FOO}")), template,
+				"The same app revision and content should reuse the parsed template.");
+		Assert.assertNotSame(WrapperTemplate.forSoftware(software, "echo ${BAR}"), template,
+				"Different content should not reuse the parsed template.");
+
+		when(software.getRevisionCount()).thenReturn(2);
+		Assert.assertNotSame(WrapperTemplate.forSoftware(software, "echo ${FOO}"), template,
+				"A new app revision should not reuse the parsed template.");
+	}
+}
@@ -18,7 +18,8 @@ public class PBSJobIdParserTest {
 				{ "Something\nSomething\n525638.mike3\nSomething\n\n", "525638.mike3" },
 				{ " 525638.mike3 ", "525638.mike3" },
 				{ "  525638.mike3  ", "525638.mike3" },
-				{ "Job 525638.mike3 submitted successfully ", "525638.mike3" }
+				{ "Job 525638.mike3 submitted successfully ", "525638.mike3" },
+				{ "525638[].mike3", "525638[].mike3" }
 		};
 	}
 	
@@ -0,0 +1,36 @@
+package org.iplantc.service.jobs.managers.monitors.parsers;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test(groups={"unit"})
+public class ArrayTaskRangesTest {
+
+	@DataProvider
+	protected Object[][] containsProvider()
+	{
+		return new Object[][] {
+				{ "4", 4, true, "Single index should match itself." },
+				{ "4", 5, false, "Single index should not match another index." },
+				{ "0-9", 0, true, "Range should include its start." },
+				{ "0-9", 9, true, "Range should include its end." },
+				{ "0-9", 10, false, "Range should not include indexes past its end." },
+				{ "[0-9%4]", 5, true, "Brackets and concurrency limit should be ignored." },
+				{ "1-10:3", 7, true, "Stepped range should include indexes on the step." },
+				{ "1-10:3", 8, false, "Stepped range should not include indexes off the step." },
+				{ "0,3,5-7", 6, true, "Comma separated list should match any of its ranges." },
+				{ "0,3,5-7", 4, false, "Comma separated list should not match indexes outside all ranges." },
+				{ "abc", 1, false, "Unparsable ranges should not match." },
+				{ "", 1, false, "Empty ranges should not match." },
+				{ null, 1, false, "Null ranges should not match." },
+		};
+	}
+
+	@Test(dataProvider = "containsProvider")
+	public void contains(String ranges, int taskIndex, boolean expected, String message)
+	{
+		assertEquals(ArrayTaskRanges.contains(ranges, taskIndex), expected, message);
+	}
+}
@@ -3,6 +3,7 @@ package org.iplantc.service.jobs.managers.monitors.parsers;
 import org.apache.commons.fileupload.util.Streams;
 import org.iplantc.service.jobs.exceptions.RemoteJobMonitorEmptyResponseException;
 import org.iplantc.service.jobs.exceptions.RemoteJobMonitorResponseParsingException;
+import org.iplantc.service.jobs.managers.JobStatusResponse;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -243,4 +244,63 @@ public class SGEJobStatusResponseParserTest extends AbstractJobStatusResponsePar
 		_parseMultilineSchedulerResponse(rawServerResponse, expectedStatus);
 	}
 
+	/**
+	 * Resolves the qstat status response template for a job array entry covering the given tasks.
+	 *
+	 * @param testSchedulerJobId the job number of the array
+	 * @param testSchedulerJobStatus the status of the array entry
+	 * @param tasks the task range reported for the entry, ie. {@code 1-10:1}
+	 * @return a formatted job status response with the given values injected
+	 */
+	private String getArraySchedulerResponseString(String testSchedulerJobId, SGEJobStatus testSchedulerJobStatus, String tasks) {
+		return getSchedulerResponseString(testSchedulerJobId, testSchedulerJobStatus)
+				.replace("<slots>1</slots>", "<slots>1</slots>\n            <tasks>" + tasks + "</tasks>");
+	}
+
+	@DataProvider
+	protected Object[][] isArrayTaskProvider()
+	{
+		return new Object[][] {
+				{ "1234.5", "1234", "1-10:1", true },
+				{ "1234.5", "1234", "5", true },
+				{ "1234.5", "1234", "1-9:2", true },
+				{ "1234.4", "1234", "1-9:2", false },
+				{ "1234.11", "1234", "1-10:1", false },
+				{ "1234.5", "1235", "1-10:1", false },
+				{ "1234.5", "1234", null, false },
+				{ "1234", "1234", "1-10:1", false },
+				{ "1234.x", "1234", "1-10:1", false },
+		};
+	}
+
+	@Test(dataProvider = "isArrayTaskProvider")
+	public void isArrayTask(String remoteJobId, String jobNumber, String tasks, boolean expected)
+	{
+		SGEJobStatusResponseParser parser = new SGEJobStatusResponseParser();
+		SGEJobStatusResponseParser.SGEJob job = parser.new SGEJob();
+		job.setJB_job_number(jobNumber);
+		job.setTasks(tasks);
+
+		Assert.assertEquals(parser.isArrayTask(remoteJobId, job), expected,
+				"Array task " + remoteJobId + " should only match entries of its array whose tasks cover it.");
+	}
+
+	@Test
+	public void parseArrayTaskSchedulerResponse() throws RemoteJobMonitorEmptyResponseException, RemoteJobMonitorResponseParsingException
+	{
+		JobStatusResponse response = getJobMonitorResponseParser().parse("1234.5",
+				getArraySchedulerResponseString("1234", SGEJobStatus.qw, "1-10:1"));
+
+		Assert.assertEquals(response.getRemoteSchedulerJobStatus(), SGEJobStatus.qw,
+				"Array task status should be parsed from the entry covering the task.");
+		Assert.assertEquals(response.getRemoteJobId(), "1234.5",
+				"Array task status should be reported against the task id.");
+	}
+
+	@Test(expectedExceptions = RemoteJobMonitorResponseParsingException.class)
+	public void parseArrayTaskSchedulerResponseOutsideRangeThrowsRemoteJobMonitorResponseParsingException() throws RemoteJobMonitorEmptyResponseException, RemoteJobMonitorResponseParsingException
+	{
+		getJobMonitorResponseParser().parse("1234.12", getArraySchedulerResponseString("1234", SGEJobStatus.qw, "1-10:1"));
+	}
+
 }
@@ -2,12 +2,15 @@ package org.iplantc.service.jobs.managers.monitors.parsers;
 
 import org.iplantc.service.jobs.exceptions.RemoteJobMonitorEmptyResponseException;
 import org.iplantc.service.jobs.exceptions.RemoteJobMonitorResponseParsingException;
+import org.iplantc.service.jobs.managers.JobStatusResponse;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.testng.Assert.assertEquals;
+
 @Test(groups={"unit"})
 public class SlurmJobStatusResponseParserTest extends AbstractJobStatusResponseParserTest {
 
@@ -176,4 +179,29 @@ public class SlurmJobStatusResponseParserTest extends AbstractJobStatusResponseP
 		_parseMultilineSchedulerResponse(rawServerResponse, expectedStatus);
 	}
 
+	@DataProvider
+	protected Object[][] parseArrayTaskSchedulerResponseProvider()
+	{
+		return new Object[][] {
+				{ TEST_SCHEDULER_JOB_ID + "_4", TEST_SCHEDULER_JOB_ID + "_[0-9%2]|PENDING|0:0|", SlurmJobStatus.PENDING },
+				{ TEST_SCHEDULER_JOB_ID + "_4", TEST_SCHEDULER_JOB_ID + "_[0,2,4]|PENDING|0:0|", SlurmJobStatus.PENDING },
+				{ TEST_SCHEDULER_JOB_ID + "_4", TEST_SCHEDULER_JOB_ID + "_3|COMPLETED|0:0|\n" +
+						TEST_SCHEDULER_JOB_ID + "_4|RUNNING|0:0|\n" +
+						TEST_SCHEDULER_JOB_ID + "_[5-9]|PENDING|0:0|", SlurmJobStatus.RUNNING },
+		};
+	}
+
+	@Test(dataProvider = "parseArrayTaskSchedulerResponseProvider")
+	public void parseArrayTaskSchedulerResponse(String remoteJobId, String rawServerResponse, RemoteSchedulerJobStatus expectedStatus) throws RemoteJobMonitorEmptyResponseException, RemoteJobMonitorResponseParsingException
+	{
+		JobStatusResponse response = getJobMonitorResponseParser().parse(remoteJobId, rawServerResponse);
+		assertEquals(response.getRemoteSchedulerJobStatus(), expectedStatus,
+				"Array task status should be parsed from the line covering the task.");
+	}
+
+	@Test(expectedExceptions = RemoteJobMonitorResponseParsingException.class)
+	public void parseArrayTaskSchedulerResponseOutsideRangeThrowsRemoteJobMonitorResponseParsingException() throws RemoteJobMonitorEmptyResponseException, RemoteJobMonitorResponseParsingException
+	{
+		getJobMonitorResponseParser().parse(TEST_SCHEDULER_JOB_ID + "_12", TEST_SCHEDULER_JOB_ID + "_[0-9]|PENDING|0:0|");
+	}
 }
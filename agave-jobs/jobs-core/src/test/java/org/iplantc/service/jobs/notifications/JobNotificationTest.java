@@ -9,6 +9,9 @@ import org.apache.log4j.Logger;
 import org.iplantc.service.apps.model.Software;
 import org.iplantc.service.common.Settings;
 import org.iplantc.service.common.clients.RequestBin;
+import org.iplantc.service.common.exceptions.MessageProcessingException;
+import org.iplantc.service.common.messaging.MessageQueueConsumer;
+import org.iplantc.service.common.messaging.MessageQueueListener;
 import org.iplantc.service.jobs.dao.AbstractDaoTest;
 import org.iplantc.service.jobs.dao.JobDao;
 import org.iplantc.service.jobs.managers.JobManager;
@@ -20,24 +23,15 @@ import org.iplantc.service.notification.model.Notification;
 import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
 import org.iplantc.service.notification.queue.NewNotificationQueueProcessor;
 import org.iplantc.service.transfer.exceptions.RemoteDataException;
-import org.quartz.*;
-import org.quartz.impl.StdSchedulerFactory;
-import org.quartz.impl.matchers.KeyMatcher;
 import org.testng.Assert;
 import org.testng.annotations.*;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
-
 /**
  * @author dooley
  *
@@ -53,8 +47,7 @@ public class JobNotificationTest extends AbstractDaoTest
 	private final NotificationDao notificationDao = new NotificationDao();
 	private final JobDao jobDao = new JobDao();
 	private final ObjectMapper mapper = new ObjectMapper();
-	private Scheduler sched;
-	private SimpleTrigger trigger;
+	private MessageQueueConsumer consumer;
 	private RequestBin requestBin;
 	
 	final AtomicBoolean notificationProcessed = new AtomicBoolean(false);
@@ -62,85 +55,49 @@ public class JobNotificationTest extends AbstractDaoTest
 	@BeforeClass
 	public void beforeClass() throws Exception {
 		super.beforeClass();
-
-		startTestNotificationScheduler();
 	}
 
 	@AfterClass
 	public void afterClass() throws Exception {
 		super.afterClass();
-		sched.clear();
-		sched.shutdown();
+		stopNotificationQueue();
 	}
 	
 	@BeforeMethod
-	public void beforeMethod(Method m) throws Exception {
+	public void beforeMethod() throws Exception {
 		clearJobs();
-		sched.clear();
-		startNotificationQueue(m.getName());
+		startNotificationQueue();
 	}
 	
-	/**
-     * Fetches the custom quartz scheduler needed to manage notification processing.
-     * @throws SchedulerException
-     */
-    private void startTestNotificationScheduler() throws SchedulerException {
-        StdSchedulerFactory schedulerFactory = new StdSchedulerFactory();
-        Properties props = new Properties();
-        props.put("org.quartz.scheduler.instanceName", "AgaveNotificationScheduler");
-        props.put("org.quartz.threadPool.threadCount", "1");
-        props.put("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
-        props.put("org.quartz.plugin.shutdownhook.class", "org.quartz.plugins.management.ShutdownHookPlugin");
-        props.put("org.quartz.plugin.shutdownhook.cleanShutdown", "true");
-        props.put("org.quartz.scheduler.skipUpdateCheck","true");
-        schedulerFactory.initialize(props);
-        
-        sched = schedulerFactory.getScheduler();
-        sched.start();
-    }
-	
-	private void startNotificationQueue(String name) throws SchedulerException {
+	private void startNotificationQueue() {
+		stopNotificationQueue();
 		
-		JobDetail jobDetail = newJob(NewNotificationQueueProcessor.class)
-			.withIdentity("test-" + name)
-			.build();
-		
-		trigger = newTrigger()
-				.withIdentity("trigger-JobNotificationTest")
-				.startNow()
-				.withSchedule(simpleSchedule()
-		            .withIntervalInMilliseconds(500)
-		            .repeatForever()
-		            .withMisfireHandlingInstructionNextWithExistingCount())
-		        .build();
-	        
-        sched.scheduleJob(jobDetail, trigger);
-        
-        sched.getListenerManager().addJobListener(
-            new JobListener() {
-
-                @Override
-                public String getName() {
-                    return getClass().getSimpleName() + " Unit Test Listener";
-                }
-
-                @Override
-                public void jobToBeExecuted(JobExecutionContext context) {
-                    log.debug("working on a new notification event");                        
-                }
-
-                @Override
-                public void jobExecutionVetoed(JobExecutionContext context) {
-                    // no idea here
-                }
-
-                @Override
-                public void jobWasExecuted(JobExecutionContext context, JobExecutionException e) {
-                    notificationProcessed.set(true);
-                }
-                
-            }, KeyMatcher.keyEquals(jobDetail.getKey())
-        );
+		final NewNotificationQueueProcessor processor = new NewNotificationQueueProcessor();
+		consumer = new MessageQueueConsumer(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE,
+				new MessageQueueListener() {
+					@Override
+					public void processMessage(String body) throws MessageProcessingException {
+						log.debug("working on a new notification event");
+						try {
+							processor.processMessage(body);
+						} finally {
+							notificationProcessed.set(true);
+						}
+					}
+					
+					@Override
+					public void stop() {
+						processor.stop();
+					}
+				}, 1, 1);
+		consumer.start();
+	}
+	
+	private void stopNotificationQueue() {
+		if (consumer != null) {
+			consumer.stop();
+			consumer = null;
+		}
 	}
 	
 	public String createRequestBin() throws IOException, RemoteDataException {
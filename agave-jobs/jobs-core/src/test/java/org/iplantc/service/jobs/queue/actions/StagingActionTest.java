@@ -0,0 +1,97 @@
+package org.iplantc.service.jobs.queue.actions;
+
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.model.Job;
+import org.iplantc.service.systems.model.ExecutionSystem;
+import org.iplantc.service.transfer.RemoteDataClient;
+import org.iplantc.service.transfer.model.TransferTask;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups={"unit"})
+public class StagingActionTest {
+
+    // copies running at once across every test action
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    /**
+     * Staging action which records how many copies run at once rather than transferring data.
+     */
+    private class TestStagingAction extends StagingAction {
+
+        TestStagingAction(Job job) {
+            super(job);
+        }
+
+        @Override
+        protected RemoteDataClient borrowExecutionSystemClient(ExecutionSystem executionSystem) {
+            return null;
+        }
+
+        @Override
+        protected TransferTask transferJobInput(RemoteDataClient jobInputRemoteDataClient, RemoteDataClient jobExecutionSystemRemoteDataClient,
+                                                String singleRawInputValue, String remoteJobInputPath, String destPath, TransferTask inputTransferTask) {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            } finally {
+                running.decrementAndGet();
+            }
+            return inputTransferTask;
+        }
+    }
+
+    private TestStagingAction action() throws Exception {
+        Job job = new Job();
+        job.setTenantId("staging.test");
+        job.setOwner("testuser");
+        return new TestStagingAction(job);
+    }
+
+    private ExecutionSystem system(String systemId) throws Exception {
+        ExecutionSystem executionSystem = new ExecutionSystem();
+        executionSystem.setSystemId(systemId);
+        return executionSystem;
+    }
+
+    @Test
+    public void inputTransfersAreLimitedPerExecutionSystemAcrossJobs() throws Exception {
+        int originalConcurrency = Settings.MAX_STAGING_SYSTEM_CONCURRENCY;
+        Settings.MAX_STAGING_SYSTEM_CONCURRENCY = 2;
+        ExecutorService lanes = Executors.newFixedThreadPool(8);
+        try {
+            ExecutionSystem executionSystem = system("staging-test-system");
+            TestStagingAction firstJob = action();
+            TestStagingAction secondJob = action();
+
+            List<Future<TransferTask>> transfers = new ArrayList<Future<TransferTask>>();
+            for (int i = 0; i < 4; i++) {
+                for (TestStagingAction job : new TestStagingAction[]{ firstJob, secondJob }) {
+                    transfers.add(lanes.submit(job.getInputTransfer(executionSystem, null,
+                            "agave://input/" + i, "/input/" + i, "/work/" + i, new TransferTask())));
+                }
+            }
+            for (Future<TransferTask> transfer : transfers) {
+                transfer.get();
+            }
+
+            Assert.assertEquals(maxRunning.get(), 2,
+                    "Transfers from every job should share the limit of the execution system.");
+            Assert.assertEquals(StagingAction.getExecutionSystemTransferPermits().size(), 0,
+                    "Permits for the system should be dropped once its transfers finish.");
+        } finally {
+            lanes.shutdownNow();
+            Settings.MAX_STAGING_SYSTEM_CONCURRENCY = originalConcurrency;
+        }
+    }
+}
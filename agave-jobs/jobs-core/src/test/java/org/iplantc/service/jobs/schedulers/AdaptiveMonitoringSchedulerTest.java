@@ -0,0 +1,142 @@
+package org.iplantc.service.jobs.schedulers;
+
+import org.iplantc.service.jobs.Settings;
+import org.iplantc.service.jobs.model.Job;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class AdaptiveMonitoringSchedulerTest {
+
+    private int originalMinSamples;
+    private int originalMinInterval;
+    private int originalMaxInterval;
+    private boolean originalEnabled;
+
+    @BeforeClass
+    protected void beforeClass() {
+        originalMinSamples = Settings.ADAPTIVE_MONITORING_MIN_SAMPLES;
+        originalMinInterval = Settings.ADAPTIVE_MONITORING_MIN_INTERVAL_SECS;
+        originalMaxInterval = Settings.ADAPTIVE_MONITORING_MAX_INTERVAL_SECS;
+        originalEnabled = Settings.ENABLE_ADAPTIVE_MONITORING;
+        Settings.ENABLE_ADAPTIVE_MONITORING = true;
+        Settings.ADAPTIVE_MONITORING_MIN_SAMPLES = 20;
+        Settings.ADAPTIVE_MONITORING_MIN_INTERVAL_SECS = 15;
+        Settings.ADAPTIVE_MONITORING_MAX_INTERVAL_SECS = 3600;
+    }
+
+    @AfterClass
+    protected void afterClass() {
+        Settings.ADAPTIVE_MONITORING_MIN_SAMPLES = originalMinSamples;
+        Settings.ADAPTIVE_MONITORING_MIN_INTERVAL_SECS = originalMinInterval;
+        Settings.ADAPTIVE_MONITORING_MAX_INTERVAL_SECS = originalMaxInterval;
+        Settings.ENABLE_ADAPTIVE_MONITORING = originalEnabled;
+    }
+
+    /**
+     * Builds a histogram of 100 jobs that all ran between 1 hour and 1 hour and 10 minutes.
+     */
+    private JobRuntimeHistogram getNarrowHistogram() {
+        JobRuntimeHistogram histogram = new JobRuntimeHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.add(3600 + (i * 6));
+        }
+        return histogram;
+    }
+
+    @Test
+    public void histogramCdfAndQuantileAreConsistent() {
+        JobRuntimeHistogram histogram = getNarrowHistogram();
+
+        assertEquals(histogram.getCount(), 100L, "All observations should be counted.");
+        assertEquals(histogram.cdf(60), 0.0, 0.0001, "No jobs completed within a minute.");
+        assertEquals(histogram.cdf(86400), 1.0, 0.0001, "All jobs completed within a day.");
+
+        double median = histogram.quantile(0.5);
+        assertTrue(median > 3000 && median < 4800, "Median should fall within the bucket holding the observations.");
+        assertEquals(histogram.cdf(median), 0.5, 0.01, "cdf should invert quantile.");
+    }
+
+    @Test
+    public void predictDelayReturnsNullWithoutEnoughHistory() {
+        AdaptiveMonitoringScheduler scheduler = new AdaptiveMonitoringScheduler();
+        JobRuntimeHistogram histogram = new JobRuntimeHistogram();
+        for (int i = 0; i < Settings.ADAPTIVE_MONITORING_MIN_SAMPLES - 1; i++) {
+            histogram.add(3600);
+        }
+
+        assertNull(scheduler.predictDelaySeconds(histogram, 60),
+                "No prediction should be made with fewer than the minimum number of samples.");
+    }
+
+    @Test
+    public void predictDelayIsSparseFarFromCompletionAndDenseNearIt() {
+        AdaptiveMonitoringScheduler scheduler = new AdaptiveMonitoringScheduler();
+        JobRuntimeHistogram histogram = getNarrowHistogram();
+
+        Long earlyDelay = scheduler.predictDelaySeconds(histogram, 60);
+        Long lateDelay = scheduler.predictDelaySeconds(histogram, 3700);
+
+        assertNotNull(earlyDelay, "A prediction should be made early in the run.");
+        assertNotNull(lateDelay, "A prediction should be made near expected completion.");
+        assertTrue(earlyDelay > lateDelay,
+                "Checks should be sparser far from the expected completion than near it.");
+        assertTrue(earlyDelay <= Settings.ADAPTIVE_MONITORING_MAX_INTERVAL_SECS,
+                "Delay should never exceed the max interval.");
+        assertTrue(lateDelay >= Settings.ADAPTIVE_MONITORING_MIN_INTERVAL_SECS,
+                "Delay should never fall below the min interval.");
+    }
+
+    @Test
+    public void predictDelayReturnsNullForOutliers() {
+        AdaptiveMonitoringScheduler scheduler = new AdaptiveMonitoringScheduler();
+        JobRuntimeHistogram histogram = getNarrowHistogram();
+
+        assertNull(scheduler.predictDelaySeconds(histogram, 86400),
+                "No prediction should be made once a job has outrun all previous jobs.");
+    }
+
+    @Test
+    public void completionsAreRecordedFromStartToEndTimePerTenant() throws Exception {
+        final List<String> loadedTenants = new ArrayList<String>();
+        AdaptiveMonitoringScheduler scheduler = new AdaptiveMonitoringScheduler() {
+            @Override
+            protected List<Integer> loadRunTimes(String tenantId, String softwareName, String systemId, String queueName) {
+                loadedTenants.add(tenantId);
+                return new ArrayList<Integer>();
+            }
+        };
+
+        // the completion was observed long after the job ended
+        long now = System.currentTimeMillis();
+        Job job = new Job();
+        job.setTenantId("tenant.a");
+        job.setSoftwareName("app-1.0");
+        job.setStartTime(new Date(now - 10 * 3600 * 1000L));
+        job.setEndTime(new Date(now - 9 * 3600 * 1000L));
+
+        JobRuntimeHistogram histogram = scheduler.getAppHistogram(job);
+        scheduler.recordCompletion(job);
+
+        assertEquals(histogram.getCount(), 1L, "The completion should be recorded.");
+        double median = histogram.quantile(0.5);
+        assertTrue(median > 3000 && median < 4800,
+                "The run time should be measured to the end time, not to when the completion was observed.");
+
+        Job otherTenant = new Job();
+        otherTenant.setTenantId("tenant.b");
+        otherTenant.setSoftwareName("app-1.0");
+        assertEquals(scheduler.getAppHistogram(otherTenant).getCount(), 0L,
+                "Run times should not be shared across tenants.");
+        assertEquals(loadedTenants, Arrays.asList("tenant.a", "tenant.b"),
+                "History should be loaded for the tenant of the job.");
+    }
+}
@@ -0,0 +1,46 @@
+package org.iplantc.service.jobs.search;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+
+@Test(groups={"unit"})
+public class JobSearchCursorTest
+{
+	@Test
+	public void encodeDecodeRoundTrip()
+	{
+		JobSearchCursor cursor = new JobSearchCursor(new Date(1546300800123L), 42L);
+
+		JobSearchCursor decoded = JobSearchCursor.decode(cursor.encode());
+
+		Assert.assertEquals(decoded.getLastUpdated(), cursor.getLastUpdated(), "Decoded cursor should have the same last updated time.");
+		Assert.assertEquals(decoded.getId(), cursor.getId(), "Decoded cursor should have the same job id.");
+		Assert.assertFalse(cursor.encode().contains("="), "Encoded cursor should not be padded.");
+	}
+
+	@Test
+	public void decodeBlankTokenReturnsNull()
+	{
+		Assert.assertNull(JobSearchCursor.decode(""), "Empty cursor should start from the first page.");
+		Assert.assertNull(JobSearchCursor.decode(null), "Null cursor should start from the first page.");
+	}
+
+	@DataProvider
+	protected Object[][] decodeRejectsInvalidTokenProvider()
+	{
+		return new Object[][] {
+				{ "not a cursor!" },
+				{ "MTIz" },
+				{ "YWJjLjEy" },
+		};
+	}
+
+	@Test(dataProvider = "decodeRejectsInvalidTokenProvider", expectedExceptions = IllegalArgumentException.class)
+	public void decodeRejectsInvalidToken(String token)
+	{
+		JobSearchCursor.decode(token);
+	}
+}
@@ -0,0 +1,48 @@
+package org.iplantc.service.jobs.util;
+
+import org.iplantc.service.transfer.RemoteDataClient;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+@Test(groups={"unit"})
+public class RemoteDataClientPoolTest {
+
+    @Test
+    public void releasedClientsAreReused() {
+        RemoteDataClientPool pool = new RemoteDataClientPool();
+        Assert.assertNull(pool.poll(), "An empty pool should have no idle clients.");
+
+        RemoteDataClient client = mock(RemoteDataClient.class);
+        pool.add(client);
+        Assert.assertNull(pool.poll(), "Added clients should be in use until released.");
+
+        pool.release(client);
+        Assert.assertSame(pool.poll(), client, "Released clients should be handed out again.");
+        Assert.assertNull(pool.poll(), "A client should only be handed out once per release.");
+
+        pool.release(null);
+        Assert.assertNull(pool.poll(), "Null clients should be ignored.");
+    }
+
+    @Test
+    public void disconnectAllClosesIdleAndBorrowedClients() throws Exception {
+        RemoteDataClientPool pool = new RemoteDataClientPool();
+        RemoteDataClient idleClient = mock(RemoteDataClient.class);
+        RemoteDataClient borrowedClient = mock(RemoteDataClient.class);
+        doThrow(new RuntimeException("already closed")).when(borrowedClient).disconnect();
+        pool.add(idleClient);
+        pool.add(borrowedClient);
+        pool.release(idleClient);
+
+        pool.disconnectAll();
+
+        verify(idleClient).disconnect();
+        verify(borrowedClient).disconnect();
+        Assert.assertNull(pool.poll(), "No clients should be handed out once the pool is disconnected.");
+
+        pool.disconnectAll();
+        verify(idleClient, times(1)).disconnect();
+    }
+}
@@ -0,0 +1,83 @@
+package org.iplantc.service.jobs.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Test(groups={"unit"})
+public class SystemTransferPermitsTest {
+
+    @Test
+    public void permitsAreLimitedPerSystem() throws Exception {
+        SystemTransferPermits permits = new SystemTransferPermits();
+        permits.acquire("tenant/system-a", 1);
+        permits.acquire("tenant/system-b", 1);
+
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                permits.acquire("tenant/system-a", 1);
+                acquired.set(true);
+                permits.release("tenant/system-a");
+            } catch (InterruptedException ignored) {
+            } finally {
+                done.countDown();
+            }
+        });
+        waiter.start();
+
+        Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS),
+                "A second transfer into a system at its limit should wait for a permit.");
+
+        permits.release("tenant/system-a");
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS), "Releasing a permit should let the waiting transfer run.");
+        Assert.assertTrue(acquired.get());
+
+        permits.release("tenant/system-b");
+    }
+
+    @Test
+    public void unusedSystemsAreRemoved() throws Exception {
+        SystemTransferPermits permits = new SystemTransferPermits();
+        permits.acquire("tenant/system-a", 2);
+        permits.acquire("tenant/system-a", 2);
+        permits.acquire("tenant/system-b", 2);
+        Assert.assertEquals(permits.size(), 2);
+
+        permits.release("tenant/system-a");
+        Assert.assertEquals(permits.size(), 2, "A system should be kept while a transfer holds a permit.");
+
+        permits.release("tenant/system-a");
+        permits.release("tenant/system-b");
+        Assert.assertEquals(permits.size(), 0, "Systems with no active transfers should be removed.");
+    }
+
+    @Test
+    public void interruptedWaitersDoNotLeakPermits() throws Exception {
+        SystemTransferPermits permits = new SystemTransferPermits();
+        permits.acquire("tenant/system-a", 1);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                permits.acquire("tenant/system-a", 1);
+            } catch (InterruptedException ignored) {
+            } finally {
+                done.countDown();
+            }
+        });
+        waiter.start();
+        waiter.interrupt();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        permits.release("tenant/system-a");
+        Assert.assertEquals(permits.size(), 0, "An interrupted waiter should not keep the system entry alive.");
+
+        permits.acquire("tenant/system-a", 1);
+        permits.release("tenant/system-a");
+    }
+}
@@ -0,0 +1,83 @@
+package org.iplantc.service.jobs.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Test(groups={"unit"})
+public class TransferLanesTest {
+
+    @Test
+    public void lanesReportWhenFullAndPending() throws Exception {
+        TransferLanes<Integer> lanes = new TransferLanes<Integer>("lanes-test-", 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            Assert.assertFalse(lanes.hasPending());
+            Assert.assertFalse(lanes.isFull());
+
+            lanes.submit(() -> { release.await(); return 1; });
+            Assert.assertFalse(lanes.isFull(), "One transfer should leave a lane free.");
+            lanes.submit(() -> { release.await(); return 2; });
+            Assert.assertTrue(lanes.isFull(), "Two transfers should fill both lanes.");
+            Assert.assertNull(lanes.poll(50), "Nothing should finish while the transfers are blocked.");
+
+            release.countDown();
+            int total = 0;
+            while (lanes.hasPending()) {
+                Future<Integer> transfer = lanes.poll(1000);
+                if (transfer != null) total += transfer.get();
+            }
+            Assert.assertEquals(total, 3, "Every transfer should be collected once.");
+            Assert.assertFalse(lanes.isFull());
+        } finally {
+            Assert.assertTrue(lanes.shutdown(5, null));
+        }
+    }
+
+    @Test
+    public void failedTransfersAreRethrownFromTheirFuture() throws Exception {
+        TransferLanes<Integer> lanes = new TransferLanes<Integer>("lanes-test-", 0);
+        try {
+            lanes.submit(() -> { throw new IllegalStateException("copy failed"); });
+            Future<Integer> transfer = lanes.poll(5000);
+            Assert.assertNotNull(transfer);
+            Assert.assertFalse(lanes.hasPending());
+            try {
+                transfer.get();
+                Assert.fail("The failure of the transfer should be rethrown.");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            lanes.shutdown(5, null);
+        }
+    }
+
+    @Test
+    public void shutdownInterruptsRunningTransfersAndRunsCallback() throws Exception {
+        TransferLanes<Integer> lanes = new TransferLanes<Integer>("lanes-test-", 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final AtomicBoolean callbackRun = new AtomicBoolean(false);
+
+        lanes.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return 0;
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(lanes.shutdown(5, () -> callbackRun.set(true)), "Lanes should stop once interrupted.");
+        Assert.assertTrue(interrupted.get(), "Running transfers should be interrupted.");
+        Assert.assertTrue(callbackRun.get(), "The shutdown callback should run.");
+    }
+}
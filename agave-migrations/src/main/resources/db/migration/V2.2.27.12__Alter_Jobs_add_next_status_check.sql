@@ -0,0 +1,25 @@
+###############################################################
+# Migration: V2.2.27.12__Alter_Jobs_add_next_status_check.sql
+#
+# Adding next_status_check column to jobs table to hold the
+# adaptive monitoring schedule for running jobs
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+#
+# Column changes:
+# + jobs.next_status_check
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'jobs' AND column_name = 'next_status_check' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `jobs` ADD `next_status_check` DATETIME NULL DEFAULT NULL;" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,32 @@
+###############################################################
+# Migration: V2.2.27.13__Create_job_quota_counters_table.sql
+#
+# Adding job_quota_counters table to hold the number of active
+# jobs per tenant, execution system, queue, and owner. Rollup
+# rows use '*' as the queue and/or owner so every quota check
+# is a single row lookup.
+#
+# Database changes:
+#
+# Table changes:
+# + job_quota_counters
+#
+# Index changes:
+#
+# Column changes:
+#
+# Data changes:
+#
+#################################################################
+
+CREATE TABLE IF NOT EXISTS `job_quota_counters` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `tenant_id` varchar(128) NOT NULL,
+  `execution_system` varchar(64) NOT NULL,
+  `queue_request` varchar(128) NOT NULL,
+  `owner` varchar(32) NOT NULL,
+  `active_jobs` bigint(20) NOT NULL DEFAULT 0,
+  `last_updated` datetime NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `job_quota_counters_key` (`tenant_id`,`execution_system`,`queue_request`,`owner`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
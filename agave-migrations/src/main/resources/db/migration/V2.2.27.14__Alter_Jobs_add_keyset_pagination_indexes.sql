@@ -0,0 +1,33 @@
+###############################################################
+# Migration: V2.2.27.14__Alter_Jobs_add_keyset_pagination_indexes.sql
+#
+# Adding composite indexes to the jobs table to support keyset
+# pagination of job listings ordered by last_updated and id.
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+# + tenant_id_owner_visible_last_updated_id
+# + tenant_id_visible_last_updated_id
+#
+# Column changes:
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'jobs' AND index_name = 'tenant_id_owner_visible_last_updated_id' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `tenant_id_owner_visible_last_updated_id` ON `jobs` (`tenant_id`, `owner`, `visible`, `last_updated`, `id`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'jobs' AND index_name = 'tenant_id_visible_last_updated_id' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `tenant_id_visible_last_updated_id` ON `jobs` (`tenant_id`, `visible`, `last_updated`, `id`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,42 @@
+###############################################################
+# Migration: V2.2.27.15__Alter_Jobs_add_job_array_columns.sql
+#
+# Adding array_uuid and array_index columns to the jobs table
+# to group the jobs created from a single job array request so
+# they can be submitted to the scheduler as one native job array.
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+# + tenant_id_array_uuid_status
+#
+# Column changes:
+# + jobs.array_uuid
+# + jobs.array_index
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'jobs' AND column_name = 'array_uuid' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `jobs` ADD `array_uuid` VARCHAR(64) NULL DEFAULT NULL;" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'jobs' AND column_name = 'array_index' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `jobs` ADD `array_index` INT NULL DEFAULT NULL;" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'jobs' AND index_name = 'tenant_id_array_uuid_status' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `tenant_id_array_uuid_status` ON `jobs` (`tenant_id`, `array_uuid`, `status`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
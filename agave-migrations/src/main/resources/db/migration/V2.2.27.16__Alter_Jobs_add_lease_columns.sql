@@ -0,0 +1,43 @@
+###############################################################
+# Migration: V2.2.27.16__Alter_Jobs_add_lease_columns.sql
+#
+# Adding lease_owner and lease_expires columns to the jobs table.
+# Workers renew the lease on the job they are processing with a
+# periodic heartbeat so abandoned jobs can be found with a range
+# query on the lease expiry rather than a scan of the job table.
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+# + status_lease_expires
+#
+# Column changes:
+# + jobs.lease_owner
+# + jobs.lease_expires
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'jobs' AND column_name = 'lease_owner' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `jobs` ADD `lease_owner` VARCHAR(128) NULL DEFAULT NULL;" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'jobs' AND column_name = 'lease_expires' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `jobs` ADD `lease_expires` DATETIME NULL DEFAULT NULL;" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'jobs' AND index_name = 'status_lease_expires' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `status_lease_expires` ON `jobs` (`status`, `lease_expires`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,26 @@
+###############################################################
+# Migration: V2.2.27.17__Alter_Notifications_add_last_updated_index.sql
+#
+# Adding an index on last_updated to the notifications table so
+# the subscription index of each service can fetch notifications
+# changed since its last refresh with a range query.
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+# + last_updated
+#
+# Column changes:
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'notifications' AND index_name = 'last_updated' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `last_updated` ON `notifications` (`last_updated`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,35 @@
+###############################################################
+# Migration: V2.2.27.18__Alter_Notifications_add_coalesce_policy_columns.sql
+#
+# Adding coalesce_strategy and coalesce_window columns to the
+# notifications table so a notification policy can deliver at most
+# one message per window with the latest event or a digest of all
+# events in the window. Existing notifications are not coalesced.
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+#
+# Column changes:
+# + notifications.coalesce_strategy
+# + notifications.coalesce_window
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'notifications' AND column_name = 'coalesce_strategy' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `notifications` ADD `coalesce_strategy` VARCHAR(12) NOT NULL DEFAULT 'NONE';" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE table_name = 'notifications' AND column_name = 'coalesce_window' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "ALTER TABLE `notifications` ADD `coalesce_window` INT NOT NULL DEFAULT 0;" ));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
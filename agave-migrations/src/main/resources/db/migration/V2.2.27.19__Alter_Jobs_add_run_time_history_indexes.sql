@@ -0,0 +1,34 @@
+###############################################################
+# Migration: V2.2.27.19__Alter_Jobs_add_run_time_history_indexes.sql
+#
+# Adding indexes to the jobs table so the adaptive monitoring
+# scheduler can read the most recent run times of an app or a
+# system queue within a tenant without sorting on end_time.
+#
+# Database changes:
+#
+# Table changes:
+#
+# Index changes:
+# + tenant_id_status_software_name_end_time
+# + tenant_id_status_system_queue_end_time
+#
+# Column changes:
+#
+# Data changes:
+#
+#################################################################
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'jobs' AND index_name = 'tenant_id_status_software_name_end_time' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `tenant_id_status_software_name_end_time` ON `jobs` (`tenant_id`, `status`, `software_name`, `end_time`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @s = (SELECT IF((SELECT DISTINCT COUNT(*) FROM INFORMATION_SCHEMA.statistics
+    WHERE table_name = 'jobs' AND index_name = 'tenant_id_status_system_queue_end_time' AND table_schema = DATABASE() ) > 0, "SELECT 1",
+    "CREATE INDEX `tenant_id_status_system_queue_end_time` ON `jobs` (`tenant_id`, `status`, `execution_system`, `queue_request`, `end_time`);"));
+PREPARE stmt FROM @s;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
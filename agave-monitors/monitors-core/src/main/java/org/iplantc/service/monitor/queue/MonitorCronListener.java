@@ -1,13 +1,12 @@
 package org.iplantc.service.monitor.queue;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
 import org.hibernate.StaleObjectStateException;
 import org.iplantc.service.common.dao.TenantDao;
 import org.iplantc.service.common.exceptions.MessagingException;
 import org.iplantc.service.common.messaging.MessageClientFactory;
+import org.iplantc.service.common.messaging.MessageCodecRegistry;
 import org.iplantc.service.common.messaging.MessageQueueClient;
 import org.iplantc.service.common.model.Tenant;
 import org.iplantc.service.common.persistence.TenancyHelper;
@@ -16,12 +15,15 @@ import org.iplantc.service.monitor.dao.MonitorDao;
 import org.iplantc.service.monitor.exceptions.MonitorException;
 import org.iplantc.service.monitor.managers.MonitorManager;
 import org.iplantc.service.monitor.model.Monitor;
+import org.iplantc.service.monitor.queue.messaging.MonitorMessageBody;
 import org.iplantc.service.monitor.util.ServiceUtils;
 import org.iplantc.service.notification.util.EmailMessage;
 import org.joda.time.DateTime;
 import org.quartz.JobExecutionContext;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Class to check for monitors who are past their next run time and need to run.
@@ -34,6 +36,9 @@ public class MonitorCronListener implements org.quartz.Job
 {
 	private static final Logger	log	= Logger.getLogger(MonitorCronListener.class);
 
+	/* number of monitors put on the work queue in a single publish */
+	private static final int PUBLISH_BATCH_SIZE = 100;
+
 	private final MonitorDao dao = new MonitorDao();
 	private MessageQueueClient messageClient;
 
@@ -47,6 +52,9 @@ public class MonitorCronListener implements org.quartz.Job
 		{
 			messageClient = MessageClientFactory.getMessageClient();
 
+			List<Monitor> pendingMonitors = new ArrayList<Monitor>();
+			List<String> pendingMessages = new ArrayList<String>();
+
 			Monitor monitor = dao.getNextPendingActiveMonitor();
 			while (monitor != null)
 			{
@@ -55,46 +63,28 @@ public class MonitorCronListener implements org.quartz.Job
 					MonitorManager manager = new MonitorManager();
 					manager.resetNextUpdateTime(monitor);
 
-					JsonNode json = new ObjectMapper().createObjectNode()
-							.put("uuid", monitor.getUuid())
-							.put("target", monitor.getSystem().getSystemId())
-							.put("owner", monitor.getOwner());
-
-					messageClient.push(Settings.MONITOR_TOPIC, Settings.MONITOR_QUEUE, json.toString());
+					MonitorMessageBody messageBody = new MonitorMessageBody(monitor.getUuid(),
+							monitor.getOwner(), monitor.getTenantId(), monitor.getSystem().getSystemId());
 
 					// we could just process them here, but by pushing to the work queue
 					// we can cleanly separte the workers from the service and run
 					// workers anywhere
 					//MonitorManager.check(monitor);
+					pendingMonitors.add(monitor);
+					pendingMessages.add(MessageCodecRegistry.encode(messageBody));
+
+					if (pendingMessages.size() >= PUBLISH_BATCH_SIZE) {
+						publish(pendingMonitors, pendingMessages);
+					}
 				}
 				catch (Exception e)
 				{
-					log.error("Failed to put monitor on work queue. Monitor will be queued again during next cron check.", e);
-					DateTime maxFailureDate = new DateTime(monitor.getLastUpdated()).plusMinutes(Settings.MAX_MONITOR_QUEUE_FAILURES * monitor.getFrequency());
-					if (new Date().after(maxFailureDate.toDate()))
-					{
-						monitor.setActive(false);
-						monitor.setLastUpdated(new Date());
-						dao.persist(monitor);
-						try {
-							// send an email to whoever mans the default tenant.
-							Tenant tenant = new TenantDao().findByTenantId(TenancyHelper.getCurrentTenantId());
-							String message = "Monitor " + monitor.getUuid() + " for target " + monitor.getSystem().getSystemId() +
-                                    " failed to process after " + Settings.MAX_MONITOR_QUEUE_FAILURES + " attemptes. " +
-                                    "This monitor has been disabled ";
-							EmailMessage.send(tenant.getContactName(),
-								tenant.getContactEmail(),
-								"Monitor worker died unexpectedly",
-								message + "\n" + ExceptionUtils.getStackTrace(e),
-								"<p>" + message + "</p><pre>" + ExceptionUtils.getStackTrace(e) + "</pre></p>");
-						} catch (Throwable e1) {
-							log.error("Failed to send monitor worker failure message to admin.",e1);
-						}
-					}
+					handleQueueFailure(monitor, e);
 				}
 				monitor = dao.getNextPendingActiveMonitor();
 			}
 
+			publish(pendingMonitors, pendingMessages);
 		}
 		catch (StaleObjectStateException e) {
 			log.debug("Just avoided a monitor check race condition.");
@@ -143,4 +133,66 @@ public class MonitorCronListener implements org.quartz.Job
 		}
 
 	}
+
+	/**
+	 * Puts the pending monitors on the work queue in a single batch and clears the
+	 * pending lists. If the batch cannot be published, every monitor in it is
+	 * treated as a queue failure.
+	 *
+	 * @param pendingMonitors the monitors waiting to be queued
+	 * @param pendingMessages the work queue message for each pending monitor
+	 * @throws MonitorException if a monitor cannot be disabled after too many failures
+	 */
+	private void publish(List<Monitor> pendingMonitors, List<String> pendingMessages)
+	throws MonitorException
+	{
+		if (pendingMessages.isEmpty()) return;
+
+		try {
+			messageClient.pushAll(Settings.MONITOR_TOPIC, Settings.MONITOR_QUEUE, pendingMessages);
+		}
+		catch (MessagingException e) {
+			for (Monitor monitor: pendingMonitors) {
+				handleQueueFailure(monitor, e);
+			}
+		}
+		finally {
+			pendingMonitors.clear();
+			pendingMessages.clear();
+		}
+	}
+
+	/**
+	 * Disables a monitor and notifies the tenant admin once it has failed to be put on
+	 * the work queue for more than {@link Settings#MAX_MONITOR_QUEUE_FAILURES} checks.
+	 *
+	 * @param monitor the monitor which could not be queued
+	 * @param e the cause of the failure
+	 * @throws MonitorException if the monitor cannot be disabled
+	 */
+	private void handleQueueFailure(Monitor monitor, Exception e) throws MonitorException
+	{
+		log.error("Failed to put monitor on work queue. Monitor will be queued again during next cron check.", e);
+		DateTime maxFailureDate = new DateTime(monitor.getLastUpdated()).plusMinutes(Settings.MAX_MONITOR_QUEUE_FAILURES * monitor.getFrequency());
+		if (new Date().after(maxFailureDate.toDate()))
+		{
+			monitor.setActive(false);
+			monitor.setLastUpdated(new Date());
+			dao.persist(monitor);
+			try {
+				// send an email to whoever mans the default tenant.
+				Tenant tenant = new TenantDao().findByTenantId(TenancyHelper.getCurrentTenantId());
+				String message = "Monitor " + monitor.getUuid() + " for target " + monitor.getSystem().getSystemId() +
+                        " failed to process after " + Settings.MAX_MONITOR_QUEUE_FAILURES + " attemptes. " +
+                        "This monitor has been disabled ";
+				EmailMessage.send(tenant.getContactName(),
+					tenant.getContactEmail(),
+					"Monitor worker died unexpectedly",
+					message + "\n" + ExceptionUtils.getStackTrace(e),
+					"<p>" + message + "</p><pre>" + ExceptionUtils.getStackTrace(e) + "</pre></p>");
+			} catch (Throwable e1) {
+				log.error("Failed to send monitor worker failure message to admin.",e1);
+			}
+		}
+	}
 }
@@ -1,24 +1,18 @@
 package org.iplantc.service.monitor.queue;
 
 import org.apache.log4j.Logger;
+import org.iplantc.service.common.messaging.MessageQueueConsumer;
 import org.iplantc.service.common.queue.GenericSchedulingPlugin;
 import org.iplantc.service.monitor.Settings;
-import org.joda.time.DateTime;
-import org.quartz.JobDetail;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
-import org.quartz.Trigger;
-
-import java.util.Date;
-
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
 
 /**
  * Class to initialize worker tasks to process monitor events.
  * This class is called by a servlet filter on startup so it will 
- * begin running even if no service is called.
+ * begin running even if no service is called. Messages are processed
+ * in parallel by a {@link MessageQueueConsumer} with 
+ * {@link Settings#MAX_MONITOR_TASKS} workers.
  * 
  * @author dooley
  *
@@ -27,6 +21,8 @@ public class MonitorQueueSchedulingPlugin extends GenericSchedulingPlugin
 {
 	private static final Logger log = Logger.getLogger(MonitorQueueSchedulingPlugin.class);
 	
+	private MessageQueueConsumer consumer = null;
+	
 	/**
 	 * 
 	 */
@@ -69,41 +65,25 @@ public class MonitorQueueSchedulingPlugin extends GenericSchedulingPlugin
 	        return;
         }
         
-		try {
-			log.debug("Initializaing " + getPluginGroup().toLowerCase() + " job...");
-			
-			int totalTasks = getTaskCount();
-			
-			for (int i = 0; i < totalTasks; i++)
-			{
-				log.debug("Setting trigger " + i + " for " + getPluginGroup().toLowerCase() + " job");
-				
-				Date startTime = new DateTime().plusSeconds(5 + (2*(i+1))).toDate();
-				
-				JobDetail jobDetail = newJob(MonitorQueueListener.class)
-						.withIdentity(getPluginGroup().toLowerCase() + "-job" + i, getPluginGroup())
-						.build();
-				
-				Trigger trigger = newTrigger()
-					    .withIdentity("trigger" + i, getPluginGroup())
-					    .startAt(startTime)
-					    .withSchedule(simpleSchedule()
-					    		.withIntervalInSeconds(1)
-//					    		.withMisfireHandlingInstructionNowWithExistingCount()
-					    		.repeatForever())
-					    .withPriority(i+5)
-					    .forJob(jobDetail)
-					    .build();
-				
-				scheduler.scheduleJob(jobDetail, trigger);
-			}
-			
-			log.debug("Finished initializing " + getPluginGroup().toLowerCase() + " job with " + 
-					getTaskCount() + " triggers.");
-			
-		} catch (SchedulerException e) {
-			log.error("Error initializing " + getPluginGroup().toLowerCase() + " job.", e);
-		} 
+		if (getTaskCount() <= 0) return;
+		
+		// monitor messages are consumed by worker threads of the consumer runtime
+		// rather than by polling quartz jobs.
+		consumer = new MessageQueueConsumer(Settings.MONITOR_TOPIC, Settings.MONITOR_QUEUE,
+				new MonitorQueueListener(), getTaskCount(), 
+				org.iplantc.service.common.Settings.MESSAGING_CONSUMER_PREFETCH);
+		consumer.start();
+		
+		log.debug("Started " + getPluginGroup().toLowerCase() + " consumer with " + getTaskCount() + " workers.");
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		if (consumer != null) {
+			consumer.stop();
+		}
+		super.shutdown();
 	}
 
 	@Override
@@ -0,0 +1,38 @@
+package org.iplantc.service.monitor.queue.messaging;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.iplantc.service.common.messaging.DefaultMessageBody;
+import org.iplantc.service.common.messaging.MessageCodecRegistry;
+
+/**
+ * Message put on the monitor queue for each monitor due to be checked. The
+ * context is the system id of the monitored system.
+ * 
+ * @author dooley
+ *
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MonitorMessageBody extends DefaultMessageBody<String>
+{
+	static {
+		MessageCodecRegistry.register(MonitorMessageBody.class, new MonitorMessageCodec());
+	}
+
+	/**
+	 * Default no-args constructor for use by Jackson
+	 */
+	public MonitorMessageBody() {
+		super();
+	}
+
+	/**
+	 * @param uuid the uuid of the monitor
+	 * @param owner the owner of the monitor
+	 * @param tenant the tenant of the monitor
+	 * @param target the system id of the monitored system
+	 */
+	public MonitorMessageBody(String uuid, String owner, String tenant, String target)
+	{
+		super(uuid, owner, tenant, target);
+	}
+}
@@ -0,0 +1,75 @@
+package org.iplantc.service.monitor.queue.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.iplantc.service.common.messaging.MessageCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static org.iplantc.service.common.messaging.MessageCodec.readString;
+import static org.iplantc.service.common.messaging.MessageCodec.writeString;
+
+/**
+ * Codec for {@link MonitorMessageBody} messages on the monitor queue.
+ *
+ * @author dooley
+ *
+ */
+public class MonitorMessageCodec implements MessageCodec<MonitorMessageBody>
+{
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#getType()
+	 */
+	@Override
+	public String getType()
+	{
+		return "monitor";
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#getVersion()
+	 */
+	@Override
+	public int getVersion()
+	{
+		return 1;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#write(java.lang.Object, java.io.DataOutput)
+	 */
+	@Override
+	public void write(MonitorMessageBody body, DataOutput out) throws IOException
+	{
+		writeString(out, body.getUuid());
+		writeString(out, body.getOwner());
+		writeString(out, body.getTenant());
+		writeString(out, body.getContext());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#read(java.io.DataInput, int)
+	 */
+	@Override
+	public MonitorMessageBody read(DataInput in, int version) throws IOException
+	{
+		return new MonitorMessageBody(readString(in), readString(in), readString(in), readString(in));
+	}
+
+	/*
+	 * Older publishers sent the system id in a "target" field.
+	 */
+	@Override
+	public MonitorMessageBody readJson(JsonNode json) throws IOException
+	{
+		if (!json.hasNonNull("uuid")) {
+			throw new IOException("Monitor message has no uuid");
+		}
+
+		JsonNode target = json.hasNonNull("target") ? json.get("target") : json.path("context");
+
+		return new MonitorMessageBody(json.get("uuid").asText(), json.path("owner").textValue(),
+				json.path("tenant").textValue(), target.textValue());
+	}
+}
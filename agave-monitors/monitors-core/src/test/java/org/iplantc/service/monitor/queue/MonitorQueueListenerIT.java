@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.iplantc.service.common.messaging.MessageClientFactory;
 import org.iplantc.service.common.messaging.MessageQueueClient;
+import org.iplantc.service.common.messaging.MessageQueueConsumer;
 import org.iplantc.service.monitor.AbstractMonitorIT;
 import org.iplantc.service.monitor.Settings;
 import org.iplantc.service.monitor.dao.MonitorDao;
@@ -154,9 +155,9 @@ public class MonitorQueueListenerIT extends AbstractMonitorIT
 	}
 
 	@Test(dependsOnMethods={"processExecutionSystemMonitorMessage"})
-	public void testExecuteReadsMessageFromQueue()
+	public void testConsumerReadsMessageFromQueue()
 	{
-		MonitorQueueListener listener = null;
+		MessageQueueConsumer consumer = null;
 		MessageQueueClient messageClient = null;
 		try
 		{
@@ -173,11 +174,15 @@ public class MonitorQueueListenerIT extends AbstractMonitorIT
 					
 			messageClient.push(Settings.MONITOR_TOPIC, Settings.MONITOR_QUEUE, json.toString());
 			
-			listener = new MonitorQueueListener();
+			consumer = new MessageQueueConsumer(Settings.MONITOR_TOPIC, Settings.MONITOR_QUEUE, 
+					new MonitorQueueListener(), 1, 1);
+			consumer.start();
 			
-			listener.execute(null);
-			
-			MonitorCheck check = checkDao.getLastMonitorCheck(monitor.getId());
+			MonitorCheck check = null;
+			for (int i = 0; check == null && i < 20; i++) {
+				Thread.sleep(500);
+				check = checkDao.getLastMonitorCheck(monitor.getId());
+			}
 			
 			Assert.assertNotNull(check, "No check found for monitor");
 			Assert.assertEquals(check.getResult(), MonitorStatusType.PASSED, "Monitor check did not pass");
@@ -206,11 +211,9 @@ public class MonitorQueueListenerIT extends AbstractMonitorIT
 				}
 			} catch (Exception ignore) {}
 
-			try {
-				if (listener != null) {
-					listener.stop();
-				}
-			} catch (Exception ignore) {}
+			if (consumer != null) {
+				consumer.stop();
+			}
 		}
 	}
 }
\ No newline at end of file
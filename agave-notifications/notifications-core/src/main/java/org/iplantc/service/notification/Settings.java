@@ -90,6 +90,22 @@ public class Settings
 	public static String 						NOTIFICATION_TOPIC;
 	public static String 						NOTIFICATION_RETRY_QUEUE;
 	public static String 						NOTIFICATION_RETRY_TOPIC;
+	public static int 							NOTIFICATION_QUEUE_BATCH_SIZE;
+	public static boolean 						NOTIFICATION_SUBSCRIPTION_INDEX_ENABLED;
+	public static int 							NOTIFICATION_SUBSCRIPTION_INDEX_REFRESH_SECS;
+	public static int 							NOTIFICATION_SUBSCRIPTION_INDEX_RELOAD_SECS;
+	public static int 							WEBHOOK_MAX_CONNECTIONS;
+	public static int 							WEBHOOK_MAX_CONNECTIONS_PER_HOST;
+	public static int 							WEBHOOK_CONNECT_TIMEOUT;
+	public static int 							WEBHOOK_SOCKET_TIMEOUT;
+	public static int 							WEBHOOK_IO_THREADS;
+	public static int 							NOTIFICATION_ATTEMPT_CALLBACK_THREADS;
+	public static int 							NOTIFICATION_ATTEMPT_CALLBACK_QUEUE_SIZE;
+	public static boolean 						NOTIFICATION_CIRCUIT_BREAKER_ENABLED;
+	public static int 							NOTIFICATION_CIRCUIT_BREAKER_FAILURES;
+	public static int 							NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS;
+	public static int 							NOTIFICATION_CIRCUIT_BREAKER_MAX_OPEN_SECS;
+	public static int 							NOTIFICATION_COALESCE_MAX_BUFFERED_EVENTS;
 	
 	public static String 						FAILED_NOTIFICATION_DB_HOST;
 	public static String 						FAILED_NOTIFICATION_DB_SCHEME;
@@ -307,6 +323,102 @@ public class Settings
 		NOTIFICATION_RETRY_QUEUE = props.getProperty("iplant.notification.service.retry.queue", "retry." + NOTIFICATION_QUEUE);
 		NOTIFICATION_RETRY_TOPIC = props.getProperty("iplant.notification.service.retry.topic", "retry." + NOTIFICATION_TOPIC);
 		
+		try {NOTIFICATION_QUEUE_BATCH_SIZE = Integer.valueOf(props.getProperty("iplant.notification.service.queue.batch.size", "25"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.service.queue.batch.size.", e);
+			NOTIFICATION_QUEUE_BATCH_SIZE = 25;
+		}
+		
+		try {NOTIFICATION_SUBSCRIPTION_INDEX_ENABLED = Boolean.valueOf(props.getProperty("iplant.notification.subscription.index.enabled", "true"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.subscription.index.enabled.", e);
+			NOTIFICATION_SUBSCRIPTION_INDEX_ENABLED = true;
+		}
+		
+		try {NOTIFICATION_SUBSCRIPTION_INDEX_REFRESH_SECS = Integer.valueOf(props.getProperty("iplant.notification.subscription.index.refresh", "5"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.subscription.index.refresh.", e);
+			NOTIFICATION_SUBSCRIPTION_INDEX_REFRESH_SECS = 5;
+		}
+		
+		try {NOTIFICATION_SUBSCRIPTION_INDEX_RELOAD_SECS = Integer.valueOf(props.getProperty("iplant.notification.subscription.index.reload", "900"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.subscription.index.reload.", e);
+			NOTIFICATION_SUBSCRIPTION_INDEX_RELOAD_SECS = 900;
+		}
+		
+		try {WEBHOOK_MAX_CONNECTIONS = Integer.valueOf(props.getProperty("iplant.notification.webhook.max.connections", "1000"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.webhook.max.connections.", e);
+			WEBHOOK_MAX_CONNECTIONS = 1000;
+		}
+		
+		try {WEBHOOK_MAX_CONNECTIONS_PER_HOST = Integer.valueOf(props.getProperty("iplant.notification.webhook.max.connections.per.host", "20"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.webhook.max.connections.per.host.", e);
+			WEBHOOK_MAX_CONNECTIONS_PER_HOST = 20;
+		}
+		
+		try {WEBHOOK_CONNECT_TIMEOUT = Integer.valueOf(props.getProperty("iplant.notification.webhook.connect.timeout", "20000"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.webhook.connect.timeout.", e);
+			WEBHOOK_CONNECT_TIMEOUT = 20000;
+		}
+		
+		try {WEBHOOK_SOCKET_TIMEOUT = Integer.valueOf(props.getProperty("iplant.notification.webhook.socket.timeout", "10000"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.webhook.socket.timeout.", e);
+			WEBHOOK_SOCKET_TIMEOUT = 10000;
+		}
+		
+		try {WEBHOOK_IO_THREADS = Integer.valueOf(props.getProperty("iplant.notification.webhook.io.threads", String.valueOf(Runtime.getRuntime().availableProcessors())));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.webhook.io.threads.", e);
+			WEBHOOK_IO_THREADS = Runtime.getRuntime().availableProcessors();
+		}
+		
+		try {NOTIFICATION_ATTEMPT_CALLBACK_THREADS = Integer.valueOf(props.getProperty("iplant.notification.attempt.callback.threads", "16"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.attempt.callback.threads.", e);
+			NOTIFICATION_ATTEMPT_CALLBACK_THREADS = 16;
+		}
+		
+		try {NOTIFICATION_ATTEMPT_CALLBACK_QUEUE_SIZE = Integer.valueOf(props.getProperty("iplant.notification.attempt.callback.queue.size", "1000"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.attempt.callback.queue.size.", e);
+			NOTIFICATION_ATTEMPT_CALLBACK_QUEUE_SIZE = 1000;
+		}
+		
+		try {NOTIFICATION_CIRCUIT_BREAKER_ENABLED = Boolean.valueOf(props.getProperty("iplant.notification.circuit.breaker.enabled", "true"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.circuit.breaker.enabled.", e);
+			NOTIFICATION_CIRCUIT_BREAKER_ENABLED = true;
+		}
+		
+		try {NOTIFICATION_CIRCUIT_BREAKER_FAILURES = Integer.valueOf(props.getProperty("iplant.notification.circuit.breaker.failures", "5"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.circuit.breaker.failures.", e);
+			NOTIFICATION_CIRCUIT_BREAKER_FAILURES = 5;
+		}
+		
+		try {NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS = Integer.valueOf(props.getProperty("iplant.notification.circuit.breaker.open", "30"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.circuit.breaker.open.", e);
+			NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS = 30;
+		}
+		
+		try {NOTIFICATION_CIRCUIT_BREAKER_MAX_OPEN_SECS = Integer.valueOf(props.getProperty("iplant.notification.circuit.breaker.max.open", "900"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.circuit.breaker.max.open.", e);
+			NOTIFICATION_CIRCUIT_BREAKER_MAX_OPEN_SECS = 900;
+		}
+		
+		try {NOTIFICATION_COALESCE_MAX_BUFFERED_EVENTS = Integer.valueOf(props.getProperty("iplant.notification.coalesce.max.buffered.events", "100"));}
+		catch (Exception e) {
+			log.error("Failure loading setting iplant.notification.coalesce.max.buffered.events.", e);
+			NOTIFICATION_COALESCE_MAX_BUFFERED_EVENTS = 100;
+		}
+		
 		
 		FAILED_NOTIFICATION_DB_SCHEME = props.getProperty("iplant.notification.failed.db.scheme", "api");
 		FAILED_NOTIFICATION_DB_HOST = props.getProperty("iplant.notification.failed.db.host", "mongodb");
@@ -11,14 +11,17 @@ import org.hibernate.Query;
 import org.hibernate.Session;
 import org.iplantc.service.common.auth.AuthorizationHelper;
 import org.iplantc.service.common.dao.AbstractDao;
+import org.iplantc.service.common.exceptions.PersistenceException;
 import org.iplantc.service.common.persistence.HibernateUtil;
 import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.common.search.SearchTerm;
 import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.enumerations.CoalesceStrategyType;
 import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -383,6 +386,89 @@ public class NotificationDao extends AbstractDao
 		}
 	}
 	
+	/**
+	 * Returns all active notifications regardless of tenant. Used to load the
+	 * {@link NotificationSubscriptionIndex}.
+	 * 
+	 * @return the active notifications
+	 * @throws NotificationException
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Notification> getActiveAcrossTenants() throws NotificationException
+	{
+		try
+		{
+			HibernateUtil.beginTransaction();
+			Session session = HibernateUtil.getSession();
+			session.disableFilter("notificationTenantFilter");
+			
+			List<Notification> notifications = (List<Notification>)session
+					.createQuery("FROM Notification WHERE status = :activeStatus")
+					.setString("activeStatus", NotificationStatusType.ACTIVE.name())
+					.setReadOnly(true)
+					.list();
+			
+			return notifications;
+		}
+		catch (HibernateException ex)
+		{
+			try
+			{
+				if (HibernateUtil.getSession().isOpen()) {
+					HibernateUtil.rollbackTransaction();
+				}
+			}
+			catch (Exception ignored) {}
+			
+			throw new NotificationException(ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+	
+	/**
+	 * Returns all notifications regardless of tenant or status which were updated at
+	 * or after the given time. Used to refresh the {@link NotificationSubscriptionIndex}.
+	 * 
+	 * @param since the earliest last updated time to return
+	 * @return the updated notifications
+	 * @throws NotificationException
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Notification> getUpdatedSinceAcrossTenants(Date since) throws NotificationException
+	{
+		try
+		{
+			HibernateUtil.beginTransaction();
+			Session session = HibernateUtil.getSession();
+			session.disableFilter("notificationTenantFilter");
+			
+			List<Notification> notifications = (List<Notification>)session
+					.createQuery("FROM Notification WHERE lastUpdated >= :since")
+					.setTimestamp("since", since)
+					.setReadOnly(true)
+					.list();
+			
+			return notifications;
+		}
+		catch (HibernateException ex)
+		{
+			try
+			{
+				if (HibernateUtil.getSession().isOpen()) {
+					HibernateUtil.rollbackTransaction();
+				}
+			}
+			catch (Exception ignored) {}
+			
+			throw new NotificationException(ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+	
 	/**
 	 * Merges the current instance with the one in the db.
 	 * @param notification
@@ -413,7 +499,9 @@ public class NotificationDao extends AbstractDao
 					+ "	    n.retry_limit = :retrylimit, "
 					+ "	    n.retry_rate = :retryrate, "
 					+ "	    n.retry_delay = :retrydelay, "
-					+ "	    n.save_on_failure = :saveonfailure "
+					+ "	    n.save_on_failure = :saveonfailure, "
+					+ "	    n.coalesce_strategy = :coalescestrategy, "
+					+ "	    n.coalesce_window = :coalescewindow "
 					+ "WHERE n.uuid = :uuid ";
 			
 			int rowsAffected = session.createSQLQuery(sql)
@@ -429,9 +517,17 @@ public class NotificationDao extends AbstractDao
 					.setInteger("retryrate",notification.getPolicy().getRetryRate())
 					.setInteger("retrydelay",notification.getPolicy().getRetryDelay())
 					.setInteger("saveonfailure",notification.getPolicy().isSaveOnFailure() ? 1 : 0)
+					.setString("coalescestrategy",notification.getPolicy().getCoalesceStrategyType() == null ? 
+							CoalesceStrategyType.NONE.name() : notification.getPolicy().getCoalesceStrategyType().name())
+					.setInteger("coalescewindow",notification.getPolicy().getCoalesceWindow())
 					.executeUpdate();
 			
 			session.flush();
+			commit();
+			
+			if (NotificationSubscriptionIndex.isEnabled()) {
+				NotificationSubscriptionIndex.getInstance().put(notification);
+			}
 			
 			return rowsAffected > 0;
 		}
@@ -466,9 +562,16 @@ public class NotificationDao extends AbstractDao
 		{	
 			Session session = getSession();
 			
+			// other services refresh their subscription index by this timestamp
+			notification.setLastUpdated(new Date());
 			session.saveOrUpdate(notification);
 //			session.clear();
 			session.flush();
+			commit();
+			
+			if (NotificationSubscriptionIndex.isEnabled()) {
+				NotificationSubscriptionIndex.getInstance().put(notification);
+			}
 		}
 		catch (HibernateException ex)
 		{
@@ -506,6 +609,11 @@ public class NotificationDao extends AbstractDao
             
 			session.delete(notification);
 			session.flush();
+			commit();
+			
+			if (NotificationSubscriptionIndex.isEnabled()) {
+				NotificationSubscriptionIndex.getInstance().remove(notification.getUuid());
+			}
 		}
 		catch (HibernateException ex)
 		{
@@ -725,6 +833,15 @@ public class NotificationDao extends AbstractDao
 					.executeUpdate();
 			
 			session.flush();
+			commit();
+			
+			if (NotificationSubscriptionIndex.isEnabled() && rowsAffected > 0) {
+				if (status == NotificationStatusType.ACTIVE) {
+					NotificationSubscriptionIndex.getInstance().put(findByUuidAcrossTenants(notificationUuid));
+				} else {
+					NotificationSubscriptionIndex.getInstance().remove(notificationUuid);
+				}
+			}
 			
 			return rowsAffected > 0;
 		}
@@ -861,7 +978,11 @@ public class NotificationDao extends AbstractDao
 					.executeUpdate();
 			
 			session.flush();
+			commit();
 			
+			if (NotificationSubscriptionIndex.isEnabled()) {
+				NotificationSubscriptionIndex.getInstance().remove(notificationUuid);
+			}
 		}
 		catch (HibernateException ex)
 		{
@@ -879,4 +1000,21 @@ public class NotificationDao extends AbstractDao
 			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
 		}
 	}
+
+	/**
+	 * Commits the current transaction. Changes are applied to the
+	 * {@link NotificationSubscriptionIndex} only after this, so the index never
+	 * holds a change which was rolled back.
+	 * 
+	 * @throws NotificationException if the transaction cannot be committed
+	 */
+	private void commit() throws NotificationException
+	{
+		try {
+			HibernateUtil.commitTransaction();
+		}
+		catch (PersistenceException ex) {
+			throw new NotificationException("Failed to commit notification changes", ex);
+		}
+	}
 }
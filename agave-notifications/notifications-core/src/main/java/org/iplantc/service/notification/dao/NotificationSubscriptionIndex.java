@@ -0,0 +1,331 @@
+package org.iplantc.service.notification.dao;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.notification.Settings;
+import org.iplantc.service.notification.exceptions.NotificationException;
+import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of active {@link Notification}s by tenant, associated uuid and event.
+ * Matching an event to its subscriptions is a lookup of the four combinations of the
+ * associated uuid, the event, and their wildcards, rather than a database query per event.
+ *
+ * The index is kept current by the {@link NotificationDao} as notifications are saved,
+ * updated and deleted. Notifications changed by other services are fetched every
+ * {@link Settings#NOTIFICATION_SUBSCRIPTION_INDEX_REFRESH_SECS} seconds by their last
+ * updated time, and the whole index is reloaded every
+ * {@link Settings#NOTIFICATION_SUBSCRIPTION_INDEX_RELOAD_SECS} seconds to drop those
+ * deleted elsewhere. Lookups never wait on a refresh once the index is loaded.
+ *
+ * The index holds detached copies of the notifications it is given and returns copies
+ * from lookups, so no instance in it is ever attached to, or changed through, a session.
+ *
+ * @author dooley
+ *
+ */
+public class NotificationSubscriptionIndex
+{
+	private static final Logger log = Logger.getLogger(NotificationSubscriptionIndex.class);
+
+	private static final String WILDCARD = "*";
+
+	/* refreshes look back this far to catch updates committed out of order or under clock skew */
+	private static final long REFRESH_OVERLAP_MS = 60000;
+
+	private static final Comparator<Notification> NEWEST_FIRST = new Comparator<Notification>() {
+		@Override
+		public int compare(Notification a, Notification b) {
+			if (a.getCreated() == null) return b.getCreated() == null ? 0 : 1;
+			if (b.getCreated() == null) return -1;
+			return b.getCreated().compareTo(a.getCreated());
+		}
+	};
+
+	private static NotificationSubscriptionIndex _instance;
+
+	private final long refreshMs;
+	private final long reloadMs;
+	private final ReentrantLock reconcileLock = new ReentrantLock();
+
+	/* subscription key to the active notifications with that key by uuid */
+	private Map<String, Map<String, Notification>> subscriptions = new ConcurrentHashMap<String, Map<String, Notification>>();
+
+	/* notification uuid to the key it is indexed under */
+	private Map<String, String> keysByUuid = new ConcurrentHashMap<String, String>();
+
+	private volatile long lastReload = 0;
+	private volatile long lastRefresh = 0;
+	private Date refreshedThrough = null;
+
+	/**
+	 * @return the index shared by this JVM
+	 */
+	public static synchronized NotificationSubscriptionIndex getInstance()
+	{
+		if (_instance == null) {
+			_instance = new NotificationSubscriptionIndex(Settings.NOTIFICATION_SUBSCRIPTION_INDEX_REFRESH_SECS,
+					Settings.NOTIFICATION_SUBSCRIPTION_INDEX_RELOAD_SECS);
+		}
+		return _instance;
+	}
+
+	/**
+	 * @return true if events should be matched from the index rather than the database
+	 */
+	public static boolean isEnabled()
+	{
+		return Settings.NOTIFICATION_SUBSCRIPTION_INDEX_ENABLED;
+	}
+
+	/**
+	 * @param refreshSecs seconds between fetching notifications changed by other services
+	 * @param reloadSecs seconds between reloading the whole index
+	 */
+	public NotificationSubscriptionIndex(int refreshSecs, int reloadSecs)
+	{
+		this.refreshMs = Math.max(refreshSecs, 0) * 1000L;
+		this.reloadMs = Math.max(reloadSecs, 1) * 1000L;
+	}
+
+	/**
+	 * Returns all active notifications in the tenant for the given associated uuid registered
+	 * for the given event or the wildcard event, newest first. This matches
+	 * {@link NotificationDao#getActiveForAssociatedUuidAndEvent(String, String)}.
+	 *
+	 * @param tenantId the tenant of the event
+	 * @param associatedUuid the uuid of the resource on which the event occurred
+	 * @param event the name of the event
+	 * @return the matching notifications
+	 * @throws NotificationException if the index cannot be loaded
+	 */
+	public List<Notification> getActive(String tenantId, String associatedUuid, String event)
+	throws NotificationException
+	{
+		if (StringUtils.isEmpty(associatedUuid)) {
+			throw new NotificationException("No UUID provided.");
+		}
+
+		if (StringUtils.isEmpty(event)) {
+			throw new NotificationException("No notification event provided.");
+		}
+
+		reconcile();
+
+		List<Notification> matches = new ArrayList<Notification>();
+		addAll(matches, getKey(tenantId, associatedUuid, event));
+		if (!WILDCARD.equals(event)) {
+			addAll(matches, getKey(tenantId, associatedUuid, WILDCARD));
+		}
+		if (!WILDCARD.equals(associatedUuid)) {
+			addAll(matches, getKey(tenantId, WILDCARD, event));
+			if (!WILDCARD.equals(event)) {
+				addAll(matches, getKey(tenantId, WILDCARD, WILDCARD));
+			}
+		}
+
+		if (matches.size() > 1) {
+			Collections.sort(matches, NEWEST_FIRST);
+		}
+		return matches;
+	}
+
+	/**
+	 * Indexes a copy of a notification which was saved or updated, replacing any previous
+	 * version. Notifications which are not active are removed.
+	 *
+	 * @param notification the saved notification
+	 */
+	public synchronized void put(Notification notification)
+	{
+		if (notification == null || notification.getUuid() == null) return;
+
+		remove(notification.getUuid());
+
+		if (notification.getStatus() == NotificationStatusType.ACTIVE) {
+			String key = getKey(notification.getTenantId(), notification.getAssociatedUuid(), notification.getEvent());
+			subscriptions.computeIfAbsent(key, k -> new ConcurrentHashMap<String, Notification>())
+						 .put(notification.getUuid(), notification.copy());
+			keysByUuid.put(notification.getUuid(), key);
+		}
+	}
+
+	/**
+	 * Removes a notification which was deleted or deactivated.
+	 *
+	 * @param uuid the uuid of the notification
+	 */
+	public synchronized void remove(String uuid)
+	{
+		if (uuid == null) return;
+
+		String key = keysByUuid.remove(uuid);
+		if (key != null) {
+			Map<String, Notification> notifications = subscriptions.get(key);
+			if (notifications != null) {
+				notifications.remove(uuid);
+				if (notifications.isEmpty()) {
+					subscriptions.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forces the index to be reloaded from the database on the next lookup.
+	 */
+	public void invalidate()
+	{
+		lastReload = 0;
+	}
+
+	/**
+	 * @return the number of active notifications in the index
+	 */
+	public int size()
+	{
+		return keysByUuid.size();
+	}
+
+	/**
+	 * Loads the index if it has not been loaded, otherwise reloads or refreshes it when
+	 * due. Only the first load blocks. Later ones are made by a single caller while
+	 * others read the current index.
+	 */
+	protected void reconcile() throws NotificationException
+	{
+		long now = currentTimeMillis();
+		if (lastReload == 0) {
+			reconcileLock.lock();
+			try {
+				if (lastReload == 0) {
+					reload(now);
+				}
+			} finally {
+				reconcileLock.unlock();
+			}
+		}
+		else if ((now - lastReload >= reloadMs || now - lastRefresh >= refreshMs) && reconcileLock.tryLock()) {
+			try {
+				if (now - lastReload >= reloadMs) {
+					reload(now);
+				} else if (now - lastRefresh >= refreshMs) {
+					refresh(now);
+				}
+			}
+			catch (NotificationException e) {
+				// serve the current index and try again on the next lookup
+				log.error("Failed to refresh the notification subscription index", e);
+			}
+			finally {
+				reconcileLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return all active notifications across tenants
+	 */
+	protected List<Notification> loadActive() throws NotificationException
+	{
+		return new NotificationDao().getActiveAcrossTenants();
+	}
+
+	/**
+	 * @param since the earliest last updated time to return
+	 * @return all notifications across tenants updated since the given time
+	 */
+	protected List<Notification> loadUpdatedSince(Date since) throws NotificationException
+	{
+		return new NotificationDao().getUpdatedSinceAcrossTenants(since);
+	}
+
+	/**
+	 * @return the current time in epoch millis
+	 */
+	protected long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+
+	private void reload(long now) throws NotificationException
+	{
+		List<Notification> notifications = loadActive();
+
+		Map<String, Map<String, Notification>> reloadedSubscriptions = new ConcurrentHashMap<String, Map<String, Notification>>();
+		Map<String, String> reloadedKeys = new ConcurrentHashMap<String, String>();
+		for (Notification notification: notifications) {
+			if (notification.getStatus() != NotificationStatusType.ACTIVE) continue;
+
+			String key = getKey(notification.getTenantId(), notification.getAssociatedUuid(), notification.getEvent());
+			reloadedSubscriptions.computeIfAbsent(key, k -> new ConcurrentHashMap<String, Notification>())
+								 .put(notification.getUuid(), notification.copy());
+			reloadedKeys.put(notification.getUuid(), key);
+		}
+
+		synchronized (this) {
+			subscriptions = reloadedSubscriptions;
+			keysByUuid = reloadedKeys;
+		}
+
+		// changes saved while loading are picked up by the next refresh. Timestamps come from
+		// the database clock, so the local clock is only used when there are none yet.
+		refreshedThrough = latest(notifications, refreshedThrough);
+		if (refreshedThrough == null) {
+			refreshedThrough = new Date(now);
+		}
+		lastReload = now;
+		lastRefresh = now;
+
+		log.debug("Loaded " + reloadedKeys.size() + " active notifications into the subscription index");
+	}
+
+	private void refresh(long now) throws NotificationException
+	{
+		List<Notification> notifications = loadUpdatedSince(new Date(refreshedThrough.getTime() - REFRESH_OVERLAP_MS));
+		for (Notification notification: notifications) {
+			put(notification);
+		}
+
+		refreshedThrough = latest(notifications, refreshedThrough);
+		lastRefresh = now;
+	}
+
+	private void addAll(List<Notification> matches, String key)
+	{
+		Map<String, Notification> notifications = subscriptions.get(key);
+		if (notifications != null) {
+			for (Notification notification: notifications.values()) {
+				matches.add(notification.copy());
+			}
+		}
+	}
+
+	/*
+	 * Notification columns use a case insensitive collation, so keys are too.
+	 */
+	private static String getKey(String tenantId, String associatedUuid, String event)
+	{
+		return StringUtils.lowerCase(tenantId) + "\n" + StringUtils.lowerCase(associatedUuid) + "\n" + StringUtils.lowerCase(event);
+	}
+
+	private static Date latest(List<Notification> notifications, Date latest)
+	{
+		for (Notification notification: notifications) {
+			if (notification.getLastUpdated() != null && (latest == null || notification.getLastUpdated().after(latest))) {
+				latest = notification.getLastUpdated();
+			}
+		}
+		return latest;
+	}
+}
@@ -9,9 +9,12 @@ import org.apache.log4j.Logger;
 import org.iplantc.service.common.exceptions.MessagingException;
 import org.iplantc.service.common.messaging.MessageClientFactory;
 import org.iplantc.service.common.messaging.MessageQueueClient;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.notification.Settings;
 import org.iplantc.service.notification.dao.FailedNotificationAttemptQueue;
 import org.iplantc.service.notification.dao.NotificationDao;
+import org.iplantc.service.notification.exceptions.CircuitOpenException;
 import org.iplantc.service.notification.exceptions.DisabledNotificationException;
 import org.iplantc.service.notification.exceptions.MissingNotificationException;
 import org.iplantc.service.notification.exceptions.NotificationException;
@@ -21,8 +24,18 @@ import org.iplantc.service.notification.model.*;
 import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
 import org.iplantc.service.notification.providers.NotificationAttemptProvider;
 import org.iplantc.service.notification.providers.NotificationAttemptProviderFactory;
+import org.iplantc.service.notification.providers.http.DestinationCircuitBreaker;
+import org.iplantc.service.notification.providers.http.clients.WebhookClient;
 
 import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author dooley
@@ -32,6 +45,8 @@ public class NotificationAttemptProcessor {
 	
 	private static final Logger	log	= Logger.getLogger(NotificationAttemptProcessor.class);
 
+	private static ExecutorService callbackExecutor;
+
 	private NotificationAttempt attempt;
 	private Notification notification;
 	
@@ -77,12 +92,28 @@ public class NotificationAttemptProcessor {
 	 * {@link NotificationAttempt} will either be placed back into the retry message
 	 * queue, or failed to the notification failure queue or abandonded if 
 	 * {@link NotificationPolicy#isSaveOnFailure()} is false for the parent 
-	 * {@link Notification}.
+	 * {@link Notification}. This blocks until {@link #fireAsync()} completes.
 	 * 
 	 * @return true if the attempt was successfully delivered, false otherwise.
 	 */
 	public boolean fire() 
 	{
+		return fireAsync().join();
+	}
+	
+	/**
+	 * Handles the processing and cleanup of a {@link NotificationAttempt} as described in
+	 * {@link #fire()} without blocking on the delivery. Webhooks are sent by the shared
+	 * {@link WebhookClient#publishAsync()}, and the response is handled on the attempt 
+	 * callback threads once it arrives. Other providers are published on the calling 
+	 * thread and their response handled there as well.
+	 * 
+	 * @return a future completing with true if the attempt was successfully delivered, 
+	 * false otherwise. It does not complete exceptionally.
+	 */
+	public CompletableFuture<Boolean> fireAsync() 
+	{
+		CompletableFuture<NotificationAttemptResponse> delivery;
 		try {
 			
 			if (!isNotificationStillActive()) {
@@ -91,7 +122,52 @@ public class NotificationAttemptProcessor {
 			
 			// process the attempt and save the timestamps
 			getAttempt().setStartTime(Instant.now());
-			NotificationAttemptResponse response = getNotificationAttemptProvider().publish();
+			NotificationAttemptProvider provider = getNotificationAttemptProvider();
+			if (provider instanceof WebhookClient) {
+				delivery = ((WebhookClient)provider).publishAsync();
+			} else {
+				delivery = CompletableFuture.completedFuture(provider.publish());
+			}
+		}
+		catch (Throwable e) {
+			return CompletableFuture.completedFuture(handleFireException(e));
+		}
+		
+		// responses already in hand are handled on this thread. Others are handed off
+		// from the http client io threads, which must not block on the database or queue.
+		if (delivery.isDone()) {
+			return delivery.handle(this::handleResponse).thenCompose(result -> result);
+		}
+		else {
+			final String tenantId = getAttempt().getTenantId();
+			final String owner = getAttempt().getOwner();
+			return delivery.handleAsync((response, error) -> {
+						TenancyHelper.setCurrentTenantId(tenantId);
+						TenancyHelper.setCurrentEndUser(owner);
+						try {
+							return handleResponse(response, error);
+						} finally {
+							afterCallback();
+						}
+					}, getCallbackExecutor())
+					.thenCompose(result -> result);
+		}
+	}
+	
+	/**
+	 * Decides what to do with the attempt once its delivery completes.
+	 * 
+	 * @param response the response from the provider, if it responded
+	 * @param error the reason the provider failed, if it did
+	 * @return a future completing with true if the attempt was successfully delivered, false otherwise.
+	 */
+	private CompletableFuture<Boolean> handleResponse(NotificationAttemptResponse response, Throwable error)
+	{
+		try {
+			if (error != null) {
+				throw error instanceof CompletionException ? error.getCause() : error;
+			}
+			
 			getAttempt().setEndTime(Instant.now());
 			
 			// save the response for the decision making step
@@ -99,37 +175,86 @@ public class NotificationAttemptProcessor {
 			
 			if (getAttempt().isSuccess()) {
 				handleSuccess();
-				return true;
+				return CompletableFuture.completedFuture(true);
 			} 
 			// if there was a non-critical failure, retry immediately
 			// if this is the first attempt at satisfying the attempt
 			else if (getAttempt().getAttemptNumber() == 0) {
 				getAttempt().setAttemptNumber(1);
-				return fire();
+				return fireAsync();
 			} 
 			// if this is not the first attempt and the delivery failed,
 			// then handle the failure according to the notification policy.
 			else {
 				handleFailure(getAttempt());
-				return false;
+				return CompletableFuture.completedFuture(false);
 			}
 		}
-		catch (DisabledNotificationException e) {
+		catch (Throwable e) {
+			return CompletableFuture.completedFuture(handleFireException(e));
+		}
+	}
+	
+	/**
+	 * Handles an attempt which could not be delivered due to an exception.
+	 * 
+	 * @param e the exception thrown while delivering the attempt
+	 * @return false, as the attempt was not delivered
+	 */
+	private boolean handleFireException(Throwable e)
+	{
+		if (e instanceof DisabledNotificationException) {
 			handleCancelledNotification(null, getAttempt());
-			return false;
 		}
-		catch (NotImplementedException e) {
+		else if (e instanceof CircuitOpenException) {
+			// the destination is down. park the attempt until it is due to be tried again.
+			handleFailure(getAttempt(), ((CircuitOpenException)e).getRetryAfterSecs());
+		}
+		else if (e instanceof NotImplementedException) {
 			// can't process the notification due to unsupported provider fail immediately
 			handlePolicyViolation(null, getAttempt());
-			return false;
 		}
-		catch (Throwable e) {
+		else {
 			// failed to publish due to a system exception of some sort. 
 			// we don't want to retry right away because this is something 
 			// more than just a blip.
 			handleFailure(getAttempt());
-			return false;
 		}
+		return false;
+	}
+	
+	/**
+	 * Called on the callback thread after each webhook response is handled. Closes the 
+	 * thread's hibernate session, since callback threads are shared, so each attempt 
+	 * starts with a fresh session.
+	 */
+	protected void afterCallback()
+	{
+		try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+	}
+	
+	/**
+	 * Returns the executor on which webhook responses are handled. Up to 
+	 * {@link Settings#NOTIFICATION_ATTEMPT_CALLBACK_QUEUE_SIZE} responses wait for a 
+	 * callback thread. Once they are all taken, the thread completing the delivery
+	 * handles the response itself. That is usually a webhook io thread, so reading
+	 * further responses slows down until the callback threads catch up.
+	 * 
+	 * @return the executor on which webhook responses are handled
+	 */
+	protected static synchronized ExecutorService getCallbackExecutor()
+	{
+		if (callbackExecutor == null) {
+			final AtomicInteger threadCount = new AtomicInteger(0);
+			int poolSize = Math.max(Settings.NOTIFICATION_ATTEMPT_CALLBACK_THREADS, 1);
+			callbackExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(Settings.NOTIFICATION_ATTEMPT_CALLBACK_QUEUE_SIZE, 1)), r -> {
+						Thread t = new Thread(r, "notification-attempt-callback-" + threadCount.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return callbackExecutor;
 	}
 		
 	/**
@@ -194,6 +319,44 @@ public class NotificationAttemptProcessor {
 	 * @throws NotificationException
 	 */
 	protected void handleFailure(NotificationAttempt attempt) 
+	{
+		handleFailure(attempt, getCircuitRetryAfterSecs(attempt));
+	}
+	
+	/**
+	 * Returns the seconds until the destination of the attempt will be tried again. The
+	 * destination is looked up by the same filtered url the webhook client sends to, so
+	 * the circuit consulted here is the one its deliveries were counted against.
+	 * 
+	 * @param attempt the failed attempt
+	 * @return seconds until the destination will be tried again, or 0 if it has no open circuit
+	 */
+	protected int getCircuitRetryAfterSecs(NotificationAttempt attempt)
+	{
+		try {
+			NotificationAttemptProvider provider = getNotificationAttemptProvider();
+			if (provider instanceof WebhookClient) {
+				return DestinationCircuitBreaker.getRetryAfterSecs(
+						((WebhookClient)provider).getFilteredCallbackUrl(attempt.getCallbackUrl()));
+			}
+		}
+		catch (Exception e) {
+			// email addresses, phone numbers and urls which cannot be filtered have no circuit
+		}
+		return 0;
+	}
+	
+	/**
+	 * Handles cleanup after a {@link NotificationAttempt} fails to deliver its message,
+	 * waiting at least {@code minimumDelaySecs} before the next attempt. The delay adapts
+	 * the {@link NotificationPolicy} backoff to a destination which is known to be down, so
+	 * retries do not arrive before it is due to be tried again. Parked attempts still count
+	 * against the {@link NotificationPolicy#getRetryLimit()}.
+	 * 
+	 * @param attempt the failed attempt
+	 * @param minimumDelaySecs the fewest seconds to wait before the next attempt
+	 */
+	protected void handleFailure(NotificationAttempt attempt, int minimumDelaySecs) 
 	{
 		try {
 			// calculate the next runttime
@@ -202,6 +365,13 @@ public class NotificationAttemptProcessor {
 			// figure out the next time it should run based on the retry policy
 			int secondsUntilNextScheduledAttempt = calculator.getNextScheduledTime();
 			
+			// spread out attempts parked on the same destination so they do not all
+			// arrive the moment it is tried again
+			if (minimumDelaySecs > secondsUntilNextScheduledAttempt) {
+				secondsUntilNextScheduledAttempt = minimumDelaySecs + 
+						ThreadLocalRandom.current().nextInt(minimumDelaySecs / 5 + 1);
+			}
+			
 			// increment the number of attempts
 			attempt.setAttemptNumber(attempt.getAttemptNumber() + 1);
 			
@@ -0,0 +1,399 @@
+package org.iplantc.service.notification.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.common.messaging.MessageCodecRegistry;
+import org.iplantc.service.common.persistence.HibernateUtil;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.notification.Settings;
+import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.NotificationAttempt;
+import org.iplantc.service.notification.model.NotificationPolicy;
+import org.iplantc.service.notification.model.enumerations.CoalesceStrategyType;
+import org.iplantc.service.notification.model.enumerations.NotificationCallbackProviderType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits deliveries of a {@link Notification} with a coalescing {@link NotificationPolicy} to
+ * one per {@link NotificationPolicy#getCoalesceWindow()} seconds. The first event is delivered
+ * as soon as it arrives and opens a window. Events arriving while the window is open are
+ * buffered and delivered together when it closes, which opens the next window. Once a window
+ * closes with nothing buffered, the next event is again delivered immediately.
+ *
+ * With {@link CoalesceStrategyType#LATEST}, only the last buffered event is delivered. With
+ * {@link CoalesceStrategyType#DIGEST}, the buffered events are combined into a single digest
+ * in the format of the notification's provider. Digests hold at most
+ * {@link Settings#NOTIFICATION_COALESCE_MAX_BUFFERED_EVENTS} events per notification. Older
+ * events are dropped once the buffer is full and the digest reports how many were dropped.
+ *
+ * Windows and their buffers are held in memory by the JVM which received the events. When
+ * several service instances consume the same queue, each keeps its own windows, so a
+ * notification may be delivered once per window by every instance. Buffered events which
+ * have not been delivered when the service stops are delivered by {@link #shutdown()}.
+ *
+ * @author dooley
+ *
+ */
+public class NotificationCoalescer
+{
+	private static final Logger log = Logger.getLogger(NotificationCoalescer.class);
+
+	private static NotificationCoalescer _instance;
+
+	private final int maxBufferedEvents;
+
+	/* notification uuid to its open window */
+	private final Map<String, Window> windows = new ConcurrentHashMap<String, Window>();
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @return the coalescer shared by this JVM
+	 */
+	public static synchronized NotificationCoalescer getInstance()
+	{
+		if (_instance == null) {
+			_instance = new NotificationCoalescer(Settings.NOTIFICATION_COALESCE_MAX_BUFFERED_EVENTS);
+		}
+		return _instance;
+	}
+
+	/**
+	 * Delivers everything still buffered and stops the shared coalescer. A new one is
+	 * created the next time {@link #getInstance()} is called.
+	 */
+	public static synchronized void shutdown()
+	{
+		if (_instance != null) {
+			_instance.close();
+			_instance = null;
+		}
+	}
+
+	/**
+	 * @param notification the notification for which an event occurred
+	 * @return true if events for the notification should be coalesced
+	 */
+	public static boolean isCoalesced(Notification notification)
+	{
+		NotificationPolicy policy = notification.getPolicy();
+		return policy != null
+				&& policy.getCoalesceStrategyType() != null
+				&& policy.getCoalesceStrategyType() != CoalesceStrategyType.NONE
+				&& policy.getCoalesceWindow() > 0;
+	}
+
+	/**
+	 * @param maxBufferedEvents the most events buffered for a digest of a single notification
+	 */
+	public NotificationCoalescer(int maxBufferedEvents)
+	{
+		this.maxBufferedEvents = Math.max(maxBufferedEvents, 1);
+	}
+
+	/**
+	 * Delivers the attempt if no window is open for its notification, otherwise buffers it
+	 * until the window closes.
+	 *
+	 * @param notification the notification for which the event occurred
+	 * @param attempt the attempt created from the event
+	 * @return a future completing with the result of the delivery, or with the attempt itself
+	 * if it was buffered
+	 */
+	public CompletableFuture<NotificationAttempt> offer(Notification notification, NotificationAttempt attempt)
+	{
+		final boolean[] opened = { false };
+		windows.compute(notification.getUuid(), (uuid, window) -> {
+			if (window == null) {
+				opened[0] = true;
+				return new Window(notification);
+			}
+			window.add(notification, attempt, maxBufferedEvents);
+			return window;
+		});
+
+		if (opened[0]) {
+			schedule(notification.getUuid(), notification.getPolicy().getCoalesceWindow());
+			return deliver(attempt);
+		}
+		else {
+			log.debug("Buffered " + attempt.getEventName() + " event for notification " + notification.getUuid());
+			return CompletableFuture.completedFuture(attempt);
+		}
+	}
+
+	/**
+	 * Closes the window of a notification. Events buffered during the window are delivered
+	 * and the next window is opened. If nothing was buffered, the notification is delivered
+	 * immediately on its next event.
+	 *
+	 * @param notificationUuid the uuid of the notification
+	 * @return a future completing with the result of the delivery, or null if nothing was buffered
+	 */
+	protected CompletableFuture<NotificationAttempt> flush(String notificationUuid)
+	{
+		final Window[] closed = { null };
+		windows.computeIfPresent(notificationUuid, (uuid, window) -> {
+			if (window.attempts.isEmpty()) {
+				return null;
+			}
+			closed[0] = window;
+			return new Window(window.notification);
+		});
+
+		if (closed[0] == null) {
+			return null;
+		}
+
+		schedule(notificationUuid, closed[0].notification.getPolicy().getCoalesceWindow());
+		return deliverBuffered(closed[0]);
+	}
+
+	/**
+	 * Delivers the events buffered in a closed window.
+	 *
+	 * @param window the closed window
+	 * @return a future completing with the result of the delivery
+	 */
+	private CompletableFuture<NotificationAttempt> deliverBuffered(Window window)
+	{
+		NotificationAttempt attempt = window.attempts.getLast();
+		if (window.notification.getPolicy().getCoalesceStrategyType() == CoalesceStrategyType.DIGEST) {
+			try {
+				attempt = createDigest(NotificationCallbackProviderType.getInstanceForUri(
+						window.notification.getCallbackUrl(), window.notification.getTenantId()),
+						window.attempts, window.dropped);
+			} catch (Exception e) {
+				// the callback is no longer valid, so the last attempt will fail on its own once fired
+				log.error("Unable to create digest for notification " + window.notification.getUuid(), e);
+			}
+		}
+
+		TenancyHelper.setCurrentTenantId(window.notification.getTenantId());
+		TenancyHelper.setCurrentEndUser(window.notification.getOwner());
+		return deliver(attempt);
+	}
+
+	/**
+	 * Sends a coalesced attempt to its notification's provider.
+	 *
+	 * @param attempt the attempt to send
+	 * @return a future completing with the result of the delivery
+	 */
+	protected CompletableFuture<NotificationAttempt> deliver(NotificationAttempt attempt)
+	{
+		NotificationAttemptProcessor processor = new NotificationAttemptProcessor(attempt);
+		return processor.fireAsync().thenApply(delivered -> processor.getAttempt());
+	}
+
+	/**
+	 * Closes the window of a notification after the given number of seconds. Windows are
+	 * closed on the attempt callback threads, since email and sms deliveries block.
+	 *
+	 * @param notificationUuid the uuid of the notification
+	 * @param windowSecs seconds until the window closes
+	 */
+	protected synchronized void schedule(String notificationUuid, int windowSecs)
+	{
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "notification-coalesce-scheduler");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+
+		scheduler.schedule(() -> NotificationAttemptProcessor.getCallbackExecutor().execute(() -> {
+			try {
+				flush(notificationUuid);
+			} catch (Throwable e) {
+				log.error("Failed to deliver coalesced events for notification " + notificationUuid, e);
+			} finally {
+				try { HibernateUtil.closeSession(); } catch (Throwable ignored) {}
+			}
+		}), Math.max(windowSecs, 1), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @return the number of notifications with an open window
+	 */
+	public int size()
+	{
+		return windows.size();
+	}
+
+	/**
+	 * Stops closing windows on schedule and delivers everything still buffered.
+	 */
+	public void close()
+	{
+		synchronized (this) {
+			if (scheduler != null) {
+				scheduler.shutdownNow();
+			}
+			scheduler = null;
+		}
+
+		for (String notificationUuid: new ArrayList<String>(windows.keySet())) {
+			Window window = windows.remove(notificationUuid);
+			if (window == null || window.attempts.isEmpty()) continue;
+
+			try {
+				deliverBuffered(window).join();
+			} catch (Throwable e) {
+				log.error("Failed to deliver coalesced events for notification " + notificationUuid + " on shutdown", e);
+			}
+		}
+	}
+
+	/**
+	 * Combines the buffered attempts of a notification into a single attempt for the last
+	 * event. Emails list each event in the body. Slack and sms messages list each event's
+	 * subject. Webhook and realtime deliveries receive a json object with the content of
+	 * each event in the order they occurred.
+	 *
+	 * @param provider the provider to which the digest is delivered
+	 * @param attempts the buffered attempts, oldest first
+	 * @param dropped the number of older events dropped from the buffer
+	 * @return the digest attempt
+	 */
+	protected static NotificationAttempt createDigest(NotificationCallbackProviderType provider, List<NotificationAttempt> attempts, int dropped)
+	{
+		NotificationAttempt last = attempts.get(attempts.size() - 1);
+		NotificationAttempt digest = new NotificationAttempt(last.getNotificationId(), last.getCallbackUrl(),
+				last.getOwner(), last.getAssociatedUuid(), last.getEventName(), last.getContent(), Instant.now());
+		digest.setTenantId(last.getTenantId());
+
+		ObjectMapper mapper = MessageCodecRegistry.getObjectMapper();
+		int total = attempts.size() + dropped;
+		String droppedMessage = dropped > 0 ? dropped + " earlier events were not included in this digest." : null;
+
+		if (provider == NotificationCallbackProviderType.EMAIL) {
+			List<String> bodies = new ArrayList<String>();
+			List<String> htmlBodies = new ArrayList<String>();
+			String subject = null;
+			for (NotificationAttempt attempt: attempts) {
+				JsonNode json = readContent(mapper, attempt);
+				subject = json.path("subject").asText();
+				bodies.add(json.path("body").asText());
+				htmlBodies.add(json.path("htmlBody").asText());
+			}
+			if (droppedMessage != null) {
+				bodies.add(0, droppedMessage);
+				htmlBodies.add(0, "<p>" + droppedMessage + "</p>");
+			}
+
+			digest.setContent(mapper.createObjectNode()
+					.put("subject", subject + " (" + total + " events)")
+					.put("body", StringUtils.join(bodies, "\n\n----------\n\n"))
+					.put("htmlBody", StringUtils.join(htmlBodies, "<hr/>"))
+					.toString());
+		}
+		else if (provider == NotificationCallbackProviderType.SLACK || provider == NotificationCallbackProviderType.SMS) {
+			List<String> subjects = new ArrayList<String>();
+			List<String> bodies = new ArrayList<String>();
+			String color = "good";
+			for (NotificationAttempt attempt: attempts) {
+				JsonNode json = readContent(mapper, attempt);
+				subjects.add(json.path("subject").asText());
+				if (json.hasNonNull("body")) {
+					bodies.add(json.get("body").asText());
+				}
+				// the worst event decides the color of the digest
+				if ("danger".equals(json.path("color").asText())) {
+					color = "danger";
+				} else if ("warning".equals(json.path("color").asText()) && !"danger".equals(color)) {
+					color = "warning";
+				}
+			}
+			if (droppedMessage != null) {
+				subjects.add(0, droppedMessage);
+			}
+
+			ObjectNode json = mapper.createObjectNode()
+					.put("subject", StringUtils.join(subjects, "\n"))
+					.put("color", color);
+			if (!bodies.isEmpty()) {
+				json.put("body", StringUtils.join(bodies, "\n"));
+			}
+			digest.setContent(json.toString());
+		}
+		else {
+			ObjectNode json = mapper.createObjectNode();
+			json.putObject("digest")
+				.put("total", total)
+				.put("dropped", dropped);
+			ArrayNode events = json.putArray("events");
+			for (NotificationAttempt attempt: attempts) {
+				ObjectNode event = events.addObject()
+						.put("event", attempt.getEventName())
+						.put("associatedUuid", attempt.getAssociatedUuid())
+						.put("created", attempt.getCreated() == null ? null : attempt.getCreated().toString());
+				try {
+					event.set("content", mapper.readTree(StringUtils.defaultString(attempt.getContent())));
+				} catch (IOException e) {
+					event.put("content", attempt.getContent());
+				}
+			}
+			digest.setContent(json.toString());
+		}
+
+		return digest;
+	}
+
+	private static JsonNode readContent(ObjectMapper mapper, NotificationAttempt attempt)
+	{
+		try {
+			return mapper.readTree(StringUtils.defaultString(attempt.getContent(), "{}"));
+		} catch (IOException e) {
+			return mapper.createObjectNode().put("subject", attempt.getContent());
+		}
+	}
+
+	/**
+	 * The events buffered for a notification while its window is open.
+	 */
+	private static class Window
+	{
+		private Notification notification;
+		private final LinkedList<NotificationAttempt> attempts = new LinkedList<NotificationAttempt>();
+		private int dropped = 0;
+
+		Window(Notification notification)
+		{
+			this.notification = notification;
+		}
+
+		/* called within ConcurrentHashMap.compute, so never concurrently for one window */
+		void add(Notification notification, NotificationAttempt attempt, int maxBufferedEvents)
+		{
+			// the latest version of the notification decides how the window is delivered
+			this.notification = notification;
+
+			if (notification.getPolicy().getCoalesceStrategyType() != CoalesceStrategyType.DIGEST) {
+				dropped += attempts.size();
+				attempts.clear();
+			}
+			else if (attempts.size() >= maxBufferedEvents) {
+				attempts.removeFirst();
+				dropped++;
+			}
+			attempts.add(attempt);
+		}
+	}
+}
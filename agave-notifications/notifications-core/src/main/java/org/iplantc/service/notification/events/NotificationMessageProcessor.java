@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 import static org.iplantc.service.notification.model.enumerations.NotificationCallbackProviderType.*;
 
@@ -53,6 +54,29 @@ public class NotificationMessageProcessor
 	 */
 	public static NotificationAttempt process(Notification notification, String eventName, String owner, String associatedUuid, String customNotificationMessageContextData) 
 	throws NotificationException
+	{
+		return processAsync(notification, eventName, owner, associatedUuid, customNotificationMessageContextData).join();
+	}
+	
+	/**
+	 * Converts a notification into a {@link NotificationAttempt} and starts sending it as
+	 * described in {@link #process(Notification, String, String, String, String)}. Webhook 
+	 * attempts do not block the calling thread while waiting on the remote server, so one
+	 * thread can have many attempts in flight.
+	 * 
+	 * If the {@link NotificationPolicy} coalesces events, the attempt is handed to the
+	 * {@link NotificationCoalescer}, which may buffer it for delivery with later events.
+	 * 
+	 * @param notification
+	 * @param eventName
+	 * @param owner
+	 * @param associatedUuid
+	 * @param customNotificationMessageContextData
+	 * @return a future completing with the result of attempting to deliver the notification
+	 * @throws NotificationException if the notification cannot be resolved to a valid event
+	 */
+	public static CompletableFuture<NotificationAttempt> processAsync(Notification notification, String eventName, String owner, String associatedUuid, String customNotificationMessageContextData) 
+	throws NotificationException
 	{
 		try 
 		{
@@ -86,18 +110,23 @@ public class NotificationMessageProcessor
 					uuid.getResourceType().name(),
 					attempt.getAssociatedUuid()));
 
+			// bursts of events to a coalescing notification are combined per its policy window
+			if (NotificationCoalescer.isCoalesced(notification)) {
+				return NotificationCoalescer.getInstance().offer(notification, attempt);
+			}
+
 			NotificationAttemptProcessor processor = new NotificationAttemptProcessor(attempt);
 			
-			processor.fire();
-			
-			log.debug(String.format("Attempt [%s]: Completed attempt at notification %s for %s event on %s entity with associatedUuid %s", 
-					attempt.getAttemptNumber(),
-					attempt.getNotificationId(),
-					processor.getAttempt().getEventName(),
-					uuid.getResourceType().name(),
-					processor.getAttempt().getAssociatedUuid()));
-			
-			return processor.getAttempt();
+			return processor.fireAsync().thenApply(delivered -> {
+				log.debug(String.format("Attempt [%s]: Completed attempt at notification %s for %s event on %s entity with associatedUuid %s", 
+						attempt.getAttemptNumber(),
+						attempt.getNotificationId(),
+						processor.getAttempt().getEventName(),
+						uuid.getResourceType().name(),
+						processor.getAttempt().getAssociatedUuid()));
+				
+				return processor.getAttempt();
+			});
 		}
 		catch (UUIDException e) {
 			throw new NotificationException("Could not identify associated resource from notification uuid. Trigger cannot be processed.");
@@ -0,0 +1,31 @@
+package org.iplantc.service.notification.exceptions;
+
+/**
+ * Thrown when a notification is not sent because the circuit to its destination is open.
+ * 
+ * @author dooley
+ *
+ */
+public class CircuitOpenException extends NotificationException {
+
+	private static final long serialVersionUID = 6172640738592146315L;
+	
+	private final int retryAfterSecs;
+
+	/**
+	 * @param message
+	 * @param retryAfterSecs seconds until the destination will be tried again
+	 */
+	public CircuitOpenException(String message, int retryAfterSecs)
+	{
+		super(message);
+		this.retryAfterSecs = retryAfterSecs;
+	}
+
+	/**
+	 * @return seconds until the destination will be tried again
+	 */
+	public int getRetryAfterSecs() {
+		return retryAfterSecs;
+	}
+}
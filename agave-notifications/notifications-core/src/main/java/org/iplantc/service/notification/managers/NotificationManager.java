@@ -3,15 +3,21 @@ package org.iplantc.service.notification.managers;
 import org.apache.log4j.Logger;
 import org.iplantc.service.common.exceptions.MessagingException;
 import org.iplantc.service.common.messaging.MessageClientFactory;
+import org.iplantc.service.common.messaging.MessageCodecRegistry;
 import org.iplantc.service.common.messaging.MessageQueueClient;
+import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.notification.Settings;
 import org.iplantc.service.notification.dao.NotificationDao;
+import org.iplantc.service.notification.dao.NotificationSubscriptionIndex;
 import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.model.Notification;
 import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
 import org.iplantc.service.notification.queue.messaging.NotificationMessageBody;
 import org.iplantc.service.notification.queue.messaging.NotificationMessageContext;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Helper class to queue up all the registered notifications for a given
  * resource event.
@@ -53,11 +59,19 @@ public class NotificationManager {
 		int totalProcessed = 0;
 		try {
 			queue = MessageClientFactory.getMessageClient();
-			NotificationDao dao = new NotificationDao();
+			
+			List<Notification> subscriptions;
+			if (NotificationSubscriptionIndex.isEnabled()) {
+				subscriptions = NotificationSubscriptionIndex.getInstance().getActive(
+						TenancyHelper.getCurrentTenantId(), associatedUuid, notificationEvent);
+			} else {
+				subscriptions = new NotificationDao().getActiveForAssociatedUuidAndEvent(associatedUuid, notificationEvent);
+			}
 			
 			// find all messages that match the given event and uuid and throw
-			// them into queue
-			for (Notification n : dao.getActiveForAssociatedUuidAndEvent(associatedUuid, notificationEvent)) {
+			// them into queue together
+			List<String> messages = new ArrayList<String>();
+			for (Notification n : subscriptions) {
 				try {
 					NotificationMessageContext messageBodyContext = new NotificationMessageContext(
 							notificationEvent, customData, associatedUuid);
@@ -66,13 +80,13 @@ public class NotificationManager {
 							n.getUuid(), affectedUser, n.getTenantId(),
 							messageBodyContext);
 
-					queue.push(Settings.NOTIFICATION_TOPIC,
-							Settings.NOTIFICATION_QUEUE, messageBody.toJSON());
-					totalProcessed++;
+					messages.add(MessageCodecRegistry.encode(messageBody));
 				} catch (Exception e) {
 					log.error("Failed to queue up notification " + n.getUuid());
 				}
-			}			
+			}
+			
+			totalProcessed = pushAll(queue, messages);
 		} catch (MessagingException e) {
 			log.error(
 					"Failed to connect to the messaging queue. No notifications will be sent for "
@@ -95,6 +109,40 @@ public class NotificationManager {
 		return totalProcessed;
 	}
 
+	/**
+	 * Publishes the notification messages for an event together. If the batch fails, each
+	 * message is pushed on its own so one bad message or a dropped connection part way through
+	 * does not cost the others their delivery. Messages published before the batch failed may
+	 * be sent twice.
+	 *
+	 * @param queue the client used to publish the messages
+	 * @param messages the encoded notification messages
+	 * @return the number of messages published
+	 */
+	protected static int pushAll(MessageQueueClient queue, List<String> messages)
+	{
+		if (messages.isEmpty()) return 0;
+
+		try {
+			queue.pushAll(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE, messages);
+			return messages.size();
+		} catch (Throwable e) {
+			log.error("Failed to publish a batch of " + messages.size() + 
+					" notification messages. Publishing them individually.", e);
+		}
+
+		int totalPushed = 0;
+		for (int i = 0; i < messages.size(); i++) {
+			try {
+				queue.push(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE, messages.get(i));
+				totalPushed++;
+			} catch (Throwable e) {
+				log.error("Failed to publish notification message " + (i + 1) + " of " + messages.size(), e);
+			}
+		}
+		return totalPushed;
+	}
+
 	/**
 	 * Threadsafe update of a {@link Notification} object to set the new status.
 	 *  
@@ -622,6 +622,31 @@ public class Notification
 
 	}
 
+	/**
+	 * Creates a detached copy of this notification with the same id, uuid and state.
+	 * The copy is not attached to any session, so changes to either one never
+	 * reach the other.
+	 * 
+	 * @return a copy of this notification
+	 */
+	public Notification copy() {
+		Notification copy = new Notification();
+		copy.id = id;
+		copy.uuid = uuid;
+		copy.associatedUuid = associatedUuid;
+		copy.owner = owner;
+		copy.event = event;
+		copy.callbackUrl = callbackUrl;
+		copy.persistent = persistent;
+		copy.visible = visible;
+		copy.status = status;
+		copy.policy = policy == null ? null : policy.copy();
+		copy.tenantId = tenantId;
+		copy.lastUpdated = lastUpdated == null ? null : new Date(lastUpdated.getTime());
+		copy.created = created == null ? null : new Date(created.getTime());
+		return copy;
+	}
+	
 	public String toString() {
 		return associatedUuid + " - " + event + " " + callbackUrl;
 	}
@@ -10,6 +10,7 @@ import javax.validation.constraints.NotNull;
 
 import org.iplantc.service.notification.Settings;
 import org.iplantc.service.notification.model.constraints.ValidNotifiationPolicy;
+import org.iplantc.service.notification.model.enumerations.CoalesceStrategyType;
 import org.iplantc.service.notification.model.enumerations.RetryStrategyType;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -72,6 +73,27 @@ public class NotificationPolicy
 	@Column(name = "save_on_failure", columnDefinition = "TINYINT(1)")
 	private boolean saveOnFailure = false; 
 	
+	/**
+	 * How events arriving within {@link #coalesceWindow} seconds of 
+	 * each other are combined before delivery. By default every event
+	 * is delivered. Windows are kept by each service instance, so events
+	 * handled by different instances are not combined with each other.
+	 */
+	@Enumerated(EnumType.STRING)
+	@Column(name = "coalesce_strategy", nullable=false, length = 12)
+	@NotNull(message="Invalid notification policy coalesceStrategy. Strategy must be one of: NONE, LATEST, or DIGEST")
+	@JsonProperty("coalesceStrategy")
+	private CoalesceStrategyType coalesceStrategyType = CoalesceStrategyType.NONE;
+	
+	/**
+	 * Number of seconds over which events are coalesced into a single
+	 * delivery. Max 3600 (1 hour).
+	 */
+	@Column(name = "coalesce_window", nullable=false, length = 12)
+	@Min(0)
+	@Max(3600)
+	private int coalesceWindow = 0;
+	
 	public NotificationPolicy() {}
 	
 	/**
@@ -153,13 +175,62 @@ public class NotificationPolicy
 		this.saveOnFailure = saveOnFailure;
 	}
 
+
+	/**
+	 * @return the coalesceStrategyType
+	 */
+	public CoalesceStrategyType getCoalesceStrategyType() {
+		return coalesceStrategyType;
+	}
+
+
+	/**
+	 * @param coalesceStrategyType the coalesceStrategyType to set
+	 */
+	public void setCoalesceStrategyType(CoalesceStrategyType coalesceStrategyType) {
+		this.coalesceStrategyType = coalesceStrategyType;
+	}
+
+
+	/**
+	 * @return the coalesceWindow
+	 */
+	public int getCoalesceWindow() {
+		return coalesceWindow;
+	}
+
+
+	/**
+	 * @param coalesceWindow the coalesceWindow to set
+	 */
+	public void setCoalesceWindow(int coalesceWindow) {
+		this.coalesceWindow = coalesceWindow;
+	}
+
+	/**
+	 * @return a copy of this policy
+	 */
+	public NotificationPolicy copy() {
+		NotificationPolicy copy = new NotificationPolicy();
+		copy.retryStrategyType = retryStrategyType;
+		copy.retryLimit = retryLimit;
+		copy.retryRate = retryRate;
+		copy.retryDelay = retryDelay;
+		copy.saveOnFailure = saveOnFailure;
+		copy.coalesceStrategyType = coalesceStrategyType;
+		copy.coalesceWindow = coalesceWindow;
+		return copy;
+	}
+
 	@Override
 	public String toString() {
-		return String.format("%s - %d/%s/%d/%s", 
+		return String.format("%s - %d/%s/%d/%s - %s/%d", 
 				retryStrategyType.name(),
 				retryLimit,
 				retryRate,
 				retryDelay,
-				Boolean.toString(saveOnFailure));
+				Boolean.toString(saveOnFailure),
+				coalesceStrategyType == null ? CoalesceStrategyType.NONE.name() : coalesceStrategyType.name(),
+				coalesceWindow);
 	}
 }
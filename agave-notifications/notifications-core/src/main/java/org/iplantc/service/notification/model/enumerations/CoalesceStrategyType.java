@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package org.iplantc.service.notification.model.enumerations;
+
+/**
+ * Valid behaviors by which events arriving in quick succession for a
+ * single notification are combined before delivery.
+ *
+ * @author dooley
+ *
+ */
+public enum CoalesceStrategyType {
+
+	/**
+	 * Every event is delivered as it arrives
+	 */
+	NONE,
+
+	/**
+	 * At most one event is delivered per window. Events arriving during
+	 * the window are replaced by the latest one.
+	 */
+	LATEST,
+
+	/**
+	 * At most one message is delivered per window. Events arriving during
+	 * the window are delivered together as a single digest.
+	 */
+	DIGEST;
+}
@@ -14,6 +14,7 @@ import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.exceptions.NotificationPolicyViolationException;
 import org.iplantc.service.notification.model.constraints.ValidAssociatedUuid;
 import org.iplantc.service.notification.model.constraints.ValidNotifiationPolicy;
+import org.iplantc.service.notification.model.enumerations.CoalesceStrategyType;
 import org.iplantc.service.notification.model.enumerations.RetryStrategyType;
 import org.iplantc.service.notification.util.ServiceUtils;
 
@@ -49,6 +50,23 @@ public class ValidNotifiationPolicyValidator implements ConstraintValidator<Vali
         			throw new NotificationPolicyViolationException("Invalid notification policy retryDelay. retryDely must be a positive integer value when retryStrategy is DELAYED");
         		}
         	}
+        	
+        	final String sCoalesceStrategyType = BeanUtils.getProperty(notificationPolicy, "coalesceStrategyType");
+        	final int coalesceWindow = NumberUtils.toInt(BeanUtils.getProperty(notificationPolicy, "coalesceWindow"));
+        	CoalesceStrategyType coalesceStrategyType = null;
+        	if (!StringUtils.isEmpty(sCoalesceStrategyType)) {
+        		try {
+        			coalesceStrategyType = CoalesceStrategyType.valueOf(sCoalesceStrategyType.toUpperCase());
+        		} catch (IllegalArgumentException e) {
+        			throw new NotificationPolicyViolationException("Unknown notification policy coalesceStrategy. Strategy must be one of: NONE, LATEST, or DIGEST");
+        		}
+        	}
+        	
+        	if (coalesceStrategyType != null && 
+        			coalesceStrategyType != CoalesceStrategyType.NONE && 
+        			coalesceWindow < 1) {
+        		throw new NotificationPolicyViolationException("Invalid notification policy coalesceWindow. coalesceWindow must be a positive integer value when coalesceStrategy is LATEST or DIGEST");
+        	}
 		}
         catch (IllegalArgumentException e) {
         	isValid = false;
@@ -0,0 +1,241 @@
+package org.iplantc.service.notification.providers.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.notification.Settings;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker for a single webhook destination, identified by the scheme, host and port
+ * of the callback url. The breakers are shared by every worker and callback thread in the
+ * JVM, so once a destination is known to be down, no thread waits on it.
+ *
+ * After {@link Settings#NOTIFICATION_CIRCUIT_BREAKER_FAILURES} consecutive failures the
+ * circuit opens and attempts to the destination are not sent. They fail immediately and are
+ * parked on the retry queue until the circuit is due to be tried again. Once
+ * {@link Settings#NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS} have passed, a single attempt is
+ * let through. If it succeeds the circuit closes. If it fails, the circuit opens again for
+ * twice as long, up to {@link Settings#NOTIFICATION_CIRCUIT_BREAKER_MAX_OPEN_SECS}.
+ *
+ * At most {@link #MAX_DESTINATIONS} breakers are kept. A breaker which has not been used
+ * for {@link #IDLE_EXPIRY_SECS}, or for longer than its circuit can stay open if that is
+ * longer, is forgotten, so destinations which are only seen once do not pile up.
+ *
+ * @author dooley
+ *
+ */
+public class DestinationCircuitBreaker
+{
+	private static final Logger log = Logger.getLogger(DestinationCircuitBreaker.class);
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	/**
+	 * The most destinations whose breakers are kept at once
+	 */
+	public static final int MAX_DESTINATIONS = 10000;
+
+	/**
+	 * Seconds an unused breaker is kept if its circuit cannot stay open for longer
+	 */
+	public static final int IDLE_EXPIRY_SECS = 3600;
+
+	private static final Cache<String, DestinationCircuitBreaker> breakers = CacheBuilder.newBuilder()
+			.maximumSize(MAX_DESTINATIONS)
+			.expireAfterAccess(Math.max(Settings.NOTIFICATION_CIRCUIT_BREAKER_MAX_OPEN_SECS, IDLE_EXPIRY_SECS), TimeUnit.SECONDS)
+			.build();
+
+	private final String destination;
+	private final int failureThreshold;
+	private final long openMs;
+	private final long maxOpenMs;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures = 0;
+	private long currentOpenMs = 0;
+	private long retryAt = 0;
+
+	/**
+	 * @return true if deliveries should be checked against their destination circuit
+	 */
+	public static boolean isEnabled()
+	{
+		return Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED;
+	}
+
+	/**
+	 * Returns the breaker shared by all deliveries to the destination of the url.
+	 *
+	 * @param url the callback url
+	 * @return the breaker for the destination, or null if breakers are disabled or the url
+	 * is not an http url
+	 */
+	public static DestinationCircuitBreaker getInstance(URI url)
+	{
+		String destination = getDestination(url);
+		if (!isEnabled() || destination == null) {
+			return null;
+		}
+
+		return breakers.asMap().computeIfAbsent(destination, d -> new DestinationCircuitBreaker(d,
+				Settings.NOTIFICATION_CIRCUIT_BREAKER_FAILURES,
+				Settings.NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS,
+				Settings.NOTIFICATION_CIRCUIT_BREAKER_MAX_OPEN_SECS));
+	}
+
+	/**
+	 * Returns the seconds until the destination of the url will be tried again. This is
+	 * 0 unless the circuit to the destination is open.
+	 *
+	 * @param callbackUrl the callback url
+	 * @return seconds until the destination will be tried again
+	 */
+	public static int getRetryAfterSecs(String callbackUrl)
+	{
+		try {
+			String destination = getDestination(URI.create(callbackUrl));
+			DestinationCircuitBreaker breaker = destination == null ? null : breakers.getIfPresent(destination);
+			return breaker == null ? 0 : breaker.getRetryAfterSecs();
+		}
+		catch (Exception e) {
+			// email addresses, phone numbers and malformed urls have no circuit
+			return 0;
+		}
+	}
+
+	/**
+	 * Forgets the state of all destinations.
+	 */
+	public static void reset()
+	{
+		breakers.invalidateAll();
+	}
+
+	/**
+	 * @param url the callback url
+	 * @return the lower case {@code scheme://host:port} of the url, or null if it is not an http url
+	 */
+	public static String getDestination(URI url)
+	{
+		if (url == null || url.getHost() == null) {
+			return null;
+		}
+
+		String scheme = StringUtils.lowerCase(url.getScheme());
+		int port = url.getPort();
+		if ("http".equals(scheme)) {
+			port = port == -1 ? 80 : port;
+		} else if ("https".equals(scheme)) {
+			port = port == -1 ? 443 : port;
+		} else {
+			return null;
+		}
+
+		return scheme + "://" + url.getHost().toLowerCase() + ":" + port;
+	}
+
+	/**
+	 * @param destination the destination guarded by this breaker
+	 * @param failureThreshold consecutive failures after which the circuit opens
+	 * @param openSecs seconds the circuit stays open the first time it opens
+	 * @param maxOpenSecs the most seconds the circuit stays open
+	 */
+	public DestinationCircuitBreaker(String destination, int failureThreshold, int openSecs, int maxOpenSecs)
+	{
+		this.destination = destination;
+		this.failureThreshold = Math.max(failureThreshold, 1);
+		this.openMs = Math.max(openSecs, 1) * 1000L;
+		this.maxOpenMs = Math.max(maxOpenSecs, openSecs) * 1000L;
+	}
+
+	/**
+	 * Checks whether a delivery may be sent to the destination. When the circuit is due to
+	 * be tried again, the first caller is let through and the rest are refused until it
+	 * reports back or the circuit is due again.
+	 *
+	 * @return true if the delivery may be sent
+	 */
+	public synchronized boolean tryAcquire()
+	{
+		if (state == State.CLOSED) {
+			return true;
+		}
+		else if (currentTimeMillis() >= retryAt) {
+			// if the trial never reports back, another is let through after the same wait
+			state = State.HALF_OPEN;
+			retryAt = currentTimeMillis() + currentOpenMs;
+			log.debug("Trying " + destination + " again after its circuit was open for " + (currentOpenMs / 1000) + " seconds");
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * Records that the destination responded.
+	 */
+	public synchronized void recordSuccess()
+	{
+		if (state != State.CLOSED) {
+			log.info("Closing circuit to " + destination + ". Deliveries will resume.");
+		}
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+		currentOpenMs = 0;
+	}
+
+	/**
+	 * Records that the destination could not be reached or failed to handle the delivery.
+	 */
+	public synchronized void recordFailure()
+	{
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+			currentOpenMs = currentOpenMs == 0 ? openMs : Math.min(currentOpenMs * 2, maxOpenMs);
+			retryAt = currentTimeMillis() + currentOpenMs;
+			state = State.OPEN;
+			log.info("Opening circuit to " + destination + " after " + consecutiveFailures +
+					" consecutive failures. Deliveries will be held for " + (currentOpenMs / 1000) + " seconds.");
+		}
+	}
+
+	/**
+	 * @return seconds until the destination will be tried again, or 0 if the circuit is closed
+	 */
+	public synchronized int getRetryAfterSecs()
+	{
+		if (state == State.CLOSED) {
+			return 0;
+		}
+		return (int)Math.max((retryAt - currentTimeMillis() + 999) / 1000, 1);
+	}
+
+	/**
+	 * @return the current state of the circuit
+	 */
+	public synchronized State getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return the destination guarded by this breaker
+	 */
+	public String getDestination()
+	{
+		return destination;
+	}
+
+	/**
+	 * @return the current time in epoch millis
+	 */
+	protected long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,302 @@
+package org.iplantc.service.notification.providers.http;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+import org.iplantc.service.notification.Settings;
+import org.iplantc.service.notification.exceptions.NotificationException;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking http client shared by all webhook deliveries in the JVM. Connections are
+ * pooled per host and kept alive between deliveries, so a webhook to a host which was
+ * recently called does not pay for a new TCP or TLS handshake. Requests are sent by a
+ * small number of io threads and complete through the returned futures, so the caller
+ * does not hold a thread while waiting on the remote server.
+ *
+ * The number of connections, and thus concurrent deliveries, to a single host is capped by
+ * {@link Settings#WEBHOOK_MAX_CONNECTIONS_PER_HOST}. Deliveries beyond that wait for a
+ * connection to be released for up to {@link Settings#WEBHOOK_CONNECT_TIMEOUT} milliseconds.
+ *
+ * @author dooley
+ *
+ */
+public class WebhookHttpClient
+{
+	private static final Logger log = Logger.getLogger(WebhookHttpClient.class);
+
+	/* bytes of a response body kept for the attempt response message */
+	public static final int MAX_RESPONSE_BYTES = 2048;
+
+	private static final int IDLE_CONNECTION_SECS = 60;
+
+	private static WebhookHttpClient _instance;
+
+	private final CloseableHttpAsyncClient client;
+	private final PoolingNHttpClientConnectionManager connectionManager;
+	private final ScheduledExecutorService evictor;
+
+	/**
+	 * @return the started client shared by this JVM
+	 * @throws NotificationException if the client cannot be created
+	 */
+	public static synchronized WebhookHttpClient getInstance() throws NotificationException
+	{
+		if (_instance == null) {
+			_instance = new WebhookHttpClient(Settings.WEBHOOK_MAX_CONNECTIONS,
+					Settings.WEBHOOK_MAX_CONNECTIONS_PER_HOST, Settings.WEBHOOK_CONNECT_TIMEOUT,
+					Settings.WEBHOOK_SOCKET_TIMEOUT, Settings.WEBHOOK_IO_THREADS);
+		}
+		return _instance;
+	}
+
+	/**
+	 * Closes the shared client and its connections. A new client is created the next
+	 * time {@link #getInstance()} is called.
+	 */
+	public static synchronized void shutdown()
+	{
+		if (_instance != null) {
+			_instance.close();
+			_instance = null;
+		}
+	}
+
+	/**
+	 * @param maxConnections maximum open connections across all hosts
+	 * @param maxConnectionsPerHost maximum open connections to a single host
+	 * @param connectTimeout milliseconds to wait for a connection
+	 * @param socketTimeout milliseconds to wait for data from the remote host
+	 * @param ioThreads number of threads sending requests and reading responses
+	 * @throws NotificationException if the client cannot be created
+	 */
+	public WebhookHttpClient(int maxConnections, int maxConnectionsPerHost, int connectTimeout,
+			int socketTimeout, int ioThreads)
+	throws NotificationException
+	{
+		try {
+			// webhooks have always been sent regardless of the remote certificate
+			SSLContext sslContext = org.apache.http.ssl.SSLContextBuilder.create()
+					.loadTrustMaterial(null, (TrustStrategy) (chain, authType) -> true)
+					.setProtocol("TLS")
+					.build();
+
+			Registry<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+					.register("http", NoopIOSessionStrategy.INSTANCE)
+					.register("https", new SSLIOSessionStrategy(sslContext,
+							new String[]{"TLSv1", "TLSv1.1", "TLSv1.2"}, null, NoopHostnameVerifier.INSTANCE))
+					.build();
+
+			IOReactorConfig reactorConfig = IOReactorConfig.custom()
+					.setIoThreadCount(Math.max(ioThreads, 1))
+					.setConnectTimeout(connectTimeout)
+					.setSoTimeout(socketTimeout)
+					.setSoKeepAlive(true)
+					.setTcpNoDelay(true)
+					.build();
+
+			final AtomicInteger threadCount = new AtomicInteger(0);
+			DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(reactorConfig, r -> {
+				Thread t = new Thread(r, "webhook-io-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+
+			this.connectionManager = new PoolingNHttpClientConnectionManager(ioReactor, sessionStrategies);
+			this.connectionManager.setMaxTotal(Math.max(maxConnections, 1));
+			this.connectionManager.setDefaultMaxPerRoute(Math.max(maxConnectionsPerHost, 1));
+
+			RequestConfig requestConfig = RequestConfig.custom()
+					.setConnectTimeout(connectTimeout)
+					.setSocketTimeout(socketTimeout)
+					.setConnectionRequestTimeout(connectTimeout)
+					.build();
+
+			this.client = HttpAsyncClients.custom()
+					.setConnectionManager(connectionManager)
+					.setDefaultRequestConfig(requestConfig)
+					.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+					.setRedirectStrategy(LaxRedirectStrategy.INSTANCE)
+					.build();
+			this.client.start();
+
+			// connections closed by the remote side while idle would otherwise only be
+			// discovered when the next webhook to that host fails
+			this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "webhook-connection-evictor");
+				t.setDaemon(true);
+				return t;
+			});
+			this.evictor.scheduleWithFixedDelay(() -> {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(IDLE_CONNECTION_SECS, TimeUnit.SECONDS);
+			}, IDLE_CONNECTION_SECS, IDLE_CONNECTION_SECS, TimeUnit.SECONDS);
+
+			log.debug("Started webhook http client with " + maxConnections + " connections, " +
+					maxConnectionsPerHost + " per host, and " + ioThreads + " io threads");
+		}
+		catch (Exception e) {
+			throw new NotificationException("Failed to create the webhook http client", e);
+		}
+	}
+
+	/**
+	 * Sends a request to the target host. The returned future completes with the response
+	 * once it has been read, or exceptionally with the cause of the failure. Only the first
+	 * {@link #MAX_RESPONSE_BYTES} of the response body are kept. The rest is read and
+	 * discarded so the connection can be reused.
+	 *
+	 * @param target the host to which the request is sent
+	 * @param request the request to send
+	 * @param context the execution context, used for authentication
+	 * @return a future completing with the response
+	 */
+	public CompletableFuture<HttpResponse> execute(HttpHost target, HttpUriRequest request, HttpClientContext context)
+	{
+		final CompletableFuture<HttpResponse> future = new CompletableFuture<HttpResponse>();
+
+		client.execute(HttpAsyncMethods.create(target, request), new TruncatingResponseConsumer(MAX_RESPONSE_BYTES),
+				context == null ? HttpClientContext.create() : context, new FutureCallback<HttpResponse>() {
+					@Override
+					public void completed(HttpResponse response) {
+						future.complete(response);
+					}
+
+					@Override
+					public void failed(Exception e) {
+						future.completeExceptionally(e);
+					}
+
+					@Override
+					public void cancelled() {
+						future.completeExceptionally(new CancellationException("Request to " + target + " was cancelled"));
+					}
+				});
+
+		return future;
+	}
+
+	/**
+	 * @return the number of connections currently leased to requests in flight
+	 */
+	public int getLeasedConnectionCount()
+	{
+		return connectionManager.getTotalStats().getLeased();
+	}
+
+	/**
+	 * @return the number of requests waiting for a connection
+	 */
+	public int getPendingConnectionCount()
+	{
+		return connectionManager.getTotalStats().getPending();
+	}
+
+	/**
+	 * Closes the client and all its connections. Requests in flight fail.
+	 */
+	public void close()
+	{
+		evictor.shutdownNow();
+		try {
+			client.close();
+		} catch (IOException e) {
+			log.error("Failed to close the webhook http client", e);
+		}
+	}
+
+	/**
+	 * Keeps the status and first bytes of a response body in memory, discarding the rest.
+	 */
+	private static class TruncatingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse>
+	{
+		private final int maxBytes;
+		private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+		private HttpResponse response;
+		private ContentType contentType;
+		private ByteArrayOutputStream body;
+
+		TruncatingResponseConsumer(int maxBytes)
+		{
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		protected void onResponseReceived(HttpResponse response)
+		{
+			this.response = response;
+		}
+
+		@Override
+		protected void onEntityEnclosed(HttpEntity entity, ContentType contentType)
+		{
+			this.contentType = contentType;
+			this.body = new ByteArrayOutputStream(maxBytes);
+		}
+
+		@Override
+		protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException
+		{
+			while (decoder.read(buffer) > 0) {
+				buffer.flip();
+				int kept = Math.min(buffer.remaining(), maxBytes - body.size());
+				if (kept > 0) {
+					body.write(buffer.array(), buffer.position(), kept);
+				}
+				buffer.clear();
+			}
+		}
+
+		@Override
+		protected HttpResponse buildResult(HttpContext context)
+		{
+			if (body != null) {
+				response.setEntity(new ByteArrayEntity(body.toByteArray(), contentType));
+			}
+			return response;
+		}
+
+		@Override
+		protected void releaseResources()
+		{
+			response = null;
+			body = null;
+		}
+	}
+}
@@ -3,32 +3,35 @@ package org.iplantc.service.notification.providers.http.clients;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.conn.ConnectTimeoutException;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.*;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
+import org.iplantc.service.notification.exceptions.CircuitOpenException;
 import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.model.NotificationAttempt;
 import org.iplantc.service.notification.model.NotificationAttemptResponse;
+import org.iplantc.service.notification.providers.http.DestinationCircuitBreaker;
+import org.iplantc.service.notification.providers.http.WebhookHttpClient;
 
-import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
-import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public abstract class AbstractWebhookClient implements WebhookClient {
 	
@@ -79,7 +82,7 @@ public abstract class AbstractWebhookClient implements WebhookClient {
 	 * a {@code Content-Type: application/json} and body comprised of the 
 	 * {@link NotificationAttempt#getContent()}. If the {@link NotificationAttempt#getCallbackUrl()}
 	 * contains authorization informaiton, HTTP Basic auth is attempted with the
-	 * given credentials.
+	 * given credentials. This blocks until {@link #publishAsync()} completes.
 	 * 
 	 * @return contains the http response code and interpreted message from the response.
 	 * @throws NotificationException if the notification cannot be published
@@ -88,46 +91,49 @@ public abstract class AbstractWebhookClient implements WebhookClient {
 	public NotificationAttemptResponse publish() 
 	throws NotificationException
 	{	
-		long callstart = System.currentTimeMillis();
-		NotificationAttemptResponse attemptResponse = new NotificationAttemptResponse();
+		try {
+			return publishAsync().get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NotificationException("Interrupted while sending " + attempt.getEventName() + " " +
+					getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl(), e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof NotificationException) {
+				throw (NotificationException)e.getCause();
+			}
+			throw new NotificationException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Makes the request described in {@link #publish()} with the {@link WebhookHttpClient}
+	 * shared by all webhooks, reusing open connections to the callback host. The returned
+	 * future completes on one of the client io threads, so callers needing to do more than
+	 * inspect the response should continue on their own executor.
+	 * 
+	 * @return a future completing with the http response code and interpreted message from 
+	 * the response, or exceptionally with a {@link NotificationException} if the notification 
+	 * cannot be published
+	 */
+	@Override
+	public CompletableFuture<NotificationAttemptResponse> publishAsync()
+	{
+		final NotificationAttemptResponse attemptResponse = new NotificationAttemptResponse();
+		final URI escapedUri;
+		final HttpHost targetHost;
+		final HttpPost httpPost;
+		final HttpClientContext context = HttpClientContext.create();
+		final WebhookHttpClient httpClient;
 		try 
 		{
-			URI escapedUri = URI.create(getFilteredCallbackUrl(attempt.getCallbackUrl()));
-			
-			CloseableHttpClient httpclient = null;
-			if (escapedUri.getScheme().equalsIgnoreCase("https"))
-			{
-				SSLContext sslContext =  org.apache.http.ssl.SSLContextBuilder.create()
-						.loadTrustMaterial(null, (TrustStrategy) (chain, authType) -> true)
-						.setProtocol("TLS")
-						.build();
-			    
-			    SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(
-			    		sslContext,
-			    		new String[]{"TLSv1", "TLSv1.1", "TLSv1.2"},   
-			    	    null,
-						NoopHostnameVerifier.INSTANCE);
-			    
-			    httpclient = HttpClients.custom()
-			    		.setSSLSocketFactory(sslsf)
-			    		.setRedirectStrategy(LaxRedirectStrategy.INSTANCE)
-			    		.build();
-			}
-			else
-			{
-				httpclient = HttpClients.custom()
-						.setRedirectStrategy(LaxRedirectStrategy.INSTANCE)
-			    		.build();
-			}
+			httpClient = getHttpClient();
 			
-			HttpPost httpPost = new HttpPost(escapedUri);
-			CloseableHttpResponse response = null;
-			RequestConfig config = RequestConfig.custom()
-												.setConnectTimeout(20000)
-												.setSocketTimeout(10000)
-												.build();
-			httpPost.setConfig(config);
+			escapedUri = URI.create(getFilteredCallbackUrl(attempt.getCallbackUrl()));
+			targetHost = new HttpHost(escapedUri.getHost(), escapedUri.getPort(), escapedUri.getScheme());
 			
+			httpPost = new HttpPost(escapedUri);
 			httpPost.setEntity(new StringEntity(getFilteredContent(attempt.getContent())));
 			
 			Map<String,String> headerMap = new HashMap<>();
@@ -141,127 +147,178 @@ public abstract class AbstractWebhookClient implements WebhookClient {
             	httpPost.setHeader(key, headerMap.get(key));
             }
 			
-			callstart = System.currentTimeMillis();
-
-			try
+			if (escapedUri.getUserInfo() != null) 
 			{
-				if (escapedUri.getUserInfo() != null) 
-				{
-					String userInfo = escapedUri.getUserInfo();
-					String[] authTokens = userInfo.split(":");
-					String username = authTokens[0];
-					String password = authTokens.length > 1 ? authTokens[1] : "";
-					
-				    HttpHost targetHost = new HttpHost(escapedUri.getHost(), escapedUri.getPort(), escapedUri.getScheme());
-				    CredentialsProvider credsProvider = new BasicCredentialsProvider();
-				    credsProvider.setCredentials(
-				            new AuthScope(targetHost.getHostName(), targetHost.getPort()),
-				            new UsernamePasswordCredentials(username, password));
-		
-				    // Create AuthCache instance
-				    AuthCache authCache = new BasicAuthCache();
-				    // Generate BASIC scheme object and add it to the local auth cache
-				    BasicScheme basicAuth = new BasicScheme();
-				    authCache.put(targetHost, basicAuth);
-		
-				    // Add AuthCache to the execution context
-				    HttpClientContext context = HttpClientContext.create();
-				    context.setCredentialsProvider(credsProvider);
-				    context.setAuthCache(authCache);
-				    
-				    response = httpclient.execute(targetHost, httpPost, context);
-				}
-				else
-				{
-					response = httpclient.execute(httpPost);
-				}
-				
-				attemptResponse.setCode(response.getStatusLine().getStatusCode());
+				String userInfo = escapedUri.getUserInfo();
+				String[] authTokens = userInfo.split(":");
+				String username = authTokens[0];
+				String password = authTokens.length > 1 ? authTokens[1] : "";
 				
-//				StringUtils.isEmpty(getCustomNotificationMessageContextData())				
-				if (attemptResponse.getCode() >= 200 && attemptResponse.getCode() < 300) {
-					attemptResponse.setMessage("200 ok");
-					log.debug("[" + attempt.getUuid() + "] Successfully sent " + attempt.getEventName() + " " + 
-							getSupportedCallbackProviderType() + " notification  to " + attempt.getCallbackUrl());
-				} else {
-					InputStream in = null;
-					byte[] bs = new byte[2048]; 
-					try {
-						HttpEntity entity = response.getEntity();
-
-						// 304 is valid response, but will throw a NPE without a null check
-						if (entity != null && entity.getContentLength() > 0) {
-							in = entity.getContent();
-							int bytesRead = in.read(bs, 0, bs.length);
-							attemptResponse.setMessage(new String(bs, 0, bytesRead).replaceAll("\\s+$", ""));
-						}
-						else {
-							attemptResponse.setMessage(response.getStatusLine().getReasonPhrase());
-						}
-						
-						log.error("[" + attempt.getUuid() + "] Failed to send " + attempt.getEventName() + 
-								" " + getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() + 
-								". Server responded with: " + attemptResponse.getCode() + " - " + attemptResponse.getMessage());
-						
-					} catch (Exception e) {
-						attemptResponse.setMessage("[" + attempt.getUuid() + "] Failed to send " + attempt.getEventName() + 
-								" " + getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() + 
-								". Server responded with: " + attemptResponse.getCode() + " - " + response.getStatusLine().getReasonPhrase());
-						log.error(attemptResponse.getMessage(), e);
-					}
-					finally {
-						try { if (in != null) in.close();} catch (Exception ignore){}
-					}
-				}
-			} 
-			catch (ConnectTimeoutException e) {
-				attemptResponse.setCode(408);
-				attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
-						getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
-						". Remote call to " + escapedUri + " timed out after " +
-						(System.currentTimeMillis() - callstart) + " milliseconds.");
-				throw new NotificationException(attemptResponse.getMessage(),e);
-			} 
-			catch (SSLException e) {
-				attemptResponse.setCode(404);
-				if (StringUtils.equalsIgnoreCase(escapedUri.getScheme(), "https")) {
-					attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
-							getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
-							". Remote call to " + escapedUri + " failed due to the remote side not supporting SSL.");
-				} else {
-					attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
-							getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
-							". Remote call to " + escapedUri + " failed due a server side SSL failure.");
-				}
-				throw new NotificationException(attemptResponse.getMessage(),e);
-			} 
-			catch (Exception e) {
-				attemptResponse.setCode(500);
-				attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " notification " + 
-						getSupportedCallbackProviderType() + " to " + attempt.getCallbackUrl() +
-						" due to internal server error.");
-				throw new NotificationException(attemptResponse.getMessage(),e);
-			} 
-			finally {
-		        try { if (response != null) response.close(); } catch (Exception ignore) {}
-		    }	
+			    CredentialsProvider credsProvider = new BasicCredentialsProvider();
+			    credsProvider.setCredentials(
+			            new AuthScope(targetHost.getHostName(), targetHost.getPort()),
+			            new UsernamePasswordCredentials(username, password));
+	
+			    // Create AuthCache instance
+			    AuthCache authCache = new BasicAuthCache();
+			    // Generate BASIC scheme object and add it to the local auth cache
+			    BasicScheme basicAuth = new BasicScheme();
+			    authCache.put(targetHost, basicAuth);
+	
+			    // Add AuthCache to the execution context
+			    context.setCredentialsProvider(credsProvider);
+			    context.setAuthCache(authCache);
+			}
 		}
 		catch (NotificationException e) {
-			log.error("[" + attempt.getUuid() + "] " + attemptResponse.getMessage() + ". Remote call to " + attempt.getCallbackUrl() + " failed after " + 
-						(System.currentTimeMillis() - callstart) + " milliseconds.", e);
-			throw e;
+			log.error("[" + attempt.getUuid() + "] Failed to prepare " + attempt.getEventName() + " " +
+					getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl(), e);
+			return CompletableFuture.failedFuture(e);
 		}
 		catch(Exception e) {
 			attemptResponse.setCode(500);
 			attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
 					getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
-					" due to internal server error. Remote call failed after " + 
-						(System.currentTimeMillis() - callstart) + " milliseconds.");
+					" due to internal server error.");
 			log.error("[" + attempt.getUuid() + "] " + attemptResponse.getMessage(), e);
+			return CompletableFuture.completedFuture(attemptResponse);
+		}
+		
+		// destinations which keep failing are not called until their circuit is due to be
+		// tried again. the attempt fails without waiting and is parked on the retry queue.
+		final DestinationCircuitBreaker breaker = DestinationCircuitBreaker.getInstance(escapedUri);
+		if (breaker != null && !breaker.tryAcquire()) {
+			String message = "Skipped sending " + attempt.getEventName() + " " +
+					getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
+					". The circuit to " + breaker.getDestination() + " is open after repeated failures.";
+			log.debug("[" + attempt.getUuid() + "] " + message);
+			return CompletableFuture.failedFuture(new CircuitOpenException(message, breaker.getRetryAfterSecs()));
+		}
+		
+		final long callstart = System.currentTimeMillis();
+		
+		CompletableFuture<HttpResponse> response = httpClient.execute(targetHost, httpPost, context);
+		
+		final CompletableFuture<NotificationAttemptResponse> delivery = new CompletableFuture<>();
+		response.whenComplete((httpResponse, error) -> {
+			if (error == null) {
+				NotificationAttemptResponse result = readResponse(httpResponse, attemptResponse);
+				if (breaker != null) {
+					// a destination which is overloaded or erroring is as good as down
+					if (result.getCode() >= 500 || result.getCode() == 429) {
+						breaker.recordFailure();
+					} else {
+						breaker.recordSuccess();
+					}
+				}
+				delivery.complete(result);
+			}
+			else {
+				if (breaker != null) {
+					breaker.recordFailure();
+				}
+				NotificationException e = getFailure(error instanceof CompletionException ? error.getCause() : error, 
+						escapedUri, attemptResponse, callstart);
+				log.error("[" + attempt.getUuid() + "] " + attemptResponse.getMessage() + ". Remote call to " + attempt.getCallbackUrl() + " failed after " + 
+						(System.currentTimeMillis() - callstart) + " milliseconds.", e.getCause());
+				delivery.completeExceptionally(e);
+			}
+		});
+		
+		return delivery;
+	}
+	
+	/**
+	 * @return the client through which the webhook is sent
+	 * @throws NotificationException if the client cannot be created
+	 */
+	protected WebhookHttpClient getHttpClient() throws NotificationException
+	{
+		return WebhookHttpClient.getInstance();
+	}
+	
+	/**
+	 * Interprets the response from the callback url.
+	 * 
+	 * @param response the response with no more than {@link WebhookHttpClient#MAX_RESPONSE_BYTES} of its body
+	 * @param attemptResponse the attempt response to populate
+	 * @return the populated attempt response
+	 */
+	private NotificationAttemptResponse readResponse(HttpResponse response, NotificationAttemptResponse attemptResponse)
+	{
+		attemptResponse.setCode(response.getStatusLine().getStatusCode());
+		
+		if (attemptResponse.getCode() >= 200 && attemptResponse.getCode() < 300) {
+			attemptResponse.setMessage("200 ok");
+			log.debug("[" + attempt.getUuid() + "] Successfully sent " + attempt.getEventName() + " " + 
+					getSupportedCallbackProviderType() + " notification  to " + attempt.getCallbackUrl());
+		} else {
+			try {
+				HttpEntity entity = response.getEntity();
+
+				// 304 is valid response, but will throw a NPE without a null check
+				if (entity != null && entity.getContentLength() > 0) {
+					attemptResponse.setMessage(new String(EntityUtils.toByteArray(entity)).replaceAll("\\s+$", ""));
+				}
+				else {
+					attemptResponse.setMessage(response.getStatusLine().getReasonPhrase());
+				}
+				
+				log.error("[" + attempt.getUuid() + "] Failed to send " + attempt.getEventName() + 
+						" " + getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() + 
+						". Server responded with: " + attemptResponse.getCode() + " - " + attemptResponse.getMessage());
+				
+			} catch (Exception e) {
+				attemptResponse.setMessage("[" + attempt.getUuid() + "] Failed to send " + attempt.getEventName() + 
+						" " + getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() + 
+						". Server responded with: " + attemptResponse.getCode() + " - " + response.getStatusLine().getReasonPhrase());
+				log.error(attemptResponse.getMessage(), e);
+			}
 		}
 		
 		return attemptResponse;
 	}
+	
+	/**
+	 * Sets the code and message of the attempt response for a request which could not be 
+	 * completed.
+	 * 
+	 * @param cause the reason the request failed
+	 * @param escapedUri the uri which was called
+	 * @param attemptResponse the attempt response to populate
+	 * @param callstart the time the request was sent
+	 * @return an exception describing the failure
+	 */
+	private NotificationException getFailure(Throwable cause, URI escapedUri, NotificationAttemptResponse attemptResponse, long callstart)
+	{
+		if (cause instanceof ConnectTimeoutException || cause instanceof SocketTimeoutException) {
+			attemptResponse.setCode(408);
+			attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
+					getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
+					". Remote call to " + escapedUri + " timed out after " +
+					(System.currentTimeMillis() - callstart) + " milliseconds.");
+		} 
+		else if (cause instanceof SSLException) {
+			attemptResponse.setCode(404);
+			if (StringUtils.equalsIgnoreCase(escapedUri.getScheme(), "https")) {
+				attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
+						getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
+						". Remote call to " + escapedUri + " failed due to the remote side not supporting SSL.");
+			} else {
+				attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " " +
+						getSupportedCallbackProviderType() + " notification to " + attempt.getCallbackUrl() +
+						". Remote call to " + escapedUri + " failed due a server side SSL failure.");
+			}
+		} 
+		else {
+			attemptResponse.setCode(500);
+			attemptResponse.setMessage("Failed to send " + attempt.getEventName() + " notification " + 
+					getSupportedCallbackProviderType() + " to " + attempt.getCallbackUrl() +
+					" due to internal server error.");
+		}
+		
+		return new NotificationException(attemptResponse.getMessage(), cause);
+	}
 
 	/**
 	 * Allows implementing classes to alter the callback url as needed.
@@ -269,6 +326,7 @@ public abstract class AbstractWebhookClient implements WebhookClient {
 	 * @return the filtered callbackUrl. Defaults to the original url if not overridden
 	 * @throws NotificationException get the URL after filtering for authorization and invalid query parameters
 	 */
+	@Override
 	public String getFilteredCallbackUrl(String callbackUrl)
 			throws NotificationException {
 		return callbackUrl;
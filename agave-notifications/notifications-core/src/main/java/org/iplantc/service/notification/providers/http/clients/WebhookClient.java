@@ -8,6 +8,8 @@ import org.iplantc.service.notification.model.NotificationAttempt;
 import org.iplantc.service.notification.model.NotificationAttemptResponse;
 import org.iplantc.service.notification.providers.NotificationAttemptProvider;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author dooley
  *
@@ -27,4 +29,26 @@ public interface WebhookClient extends NotificationAttemptProvider {
 	 */
 	@Override
 	public abstract NotificationAttemptResponse publish() throws NotificationException;
+
+	/**
+	 * Makes the same request as {@link #publish()} without blocking the calling thread
+	 * while waiting on the remote server. The returned future completes with the response
+	 * in the cases {@link #publish()} would return it, and exceptionally with a
+	 * {@link NotificationException} in the cases {@link #publish()} would throw one.
+	 *
+	 * @return a future completing with the http response code and interpreted message from the response.
+	 */
+	public abstract CompletableFuture<NotificationAttemptResponse> publishAsync();
+
+	/**
+	 * Returns the url the client actually sends to for the given callback url. Deliveries
+	 * are counted against the circuit of this url's destination.
+	 *
+	 * @param callbackUrl the url to filter.
+	 * @return the filtered callbackUrl. Defaults to the original url if not overridden
+	 * @throws NotificationException if the url cannot be filtered
+	 */
+	public default String getFilteredCallbackUrl(String callbackUrl) throws NotificationException {
+		return callbackUrl;
+	}
 }
@@ -1,23 +1,19 @@
 package org.iplantc.service.notification.queue;
 
 import org.apache.log4j.Logger;
+import org.iplantc.service.common.messaging.MessageQueueConsumer;
 import org.iplantc.service.common.queue.GenericSchedulingPlugin;
 import org.iplantc.service.notification.Settings;
-import org.joda.time.DateTime;
-import org.quartz.JobDetail;
+import org.iplantc.service.notification.events.NotificationCoalescer;
+import org.iplantc.service.notification.providers.http.WebhookHttpClient;
 import org.quartz.SchedulerException;
-import org.quartz.Trigger;
-
-import java.util.Date;
-
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
 
 /**
  * Class to initialize worker tasks to process notification events.
  * This class is called by a servlet filter on startup so it will 
- * begin running even if no service is called.
+ * begin running even if no service is called. Messages are processed
+ * in parallel by a {@link MessageQueueConsumer} with 
+ * {@link Settings#MAX_NOTIFICATION_TASKS} workers.
  * 
  * @author dooley
  *
@@ -25,6 +21,9 @@ import static org.quartz.TriggerBuilder.newTrigger;
 public class NewNotificationMessageSchedulingPlugin extends GenericSchedulingPlugin
 {
 	private static final Logger log = Logger.getLogger(NewNotificationMessageSchedulingPlugin.class);
+	
+	private MessageQueueConsumer consumer = null;
+	
 	/**
 	 * 
 	 */
@@ -32,7 +31,6 @@ public class NewNotificationMessageSchedulingPlugin extends GenericSchedulingPlu
 		super();
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void start()
 	{
@@ -47,41 +45,27 @@ public class NewNotificationMessageSchedulingPlugin extends GenericSchedulingPlu
 	        return;
         }
         
-		try {
-			log.debug("Initializaing " + getPluginGroup().toLowerCase() + " job...");
-			
-			int totalTasks = getTaskCount();
-			
-			for (int i = 0; i < totalTasks; i++)
-			{
-				log.debug("Setting trigger " + i + " for " + getPluginGroup().toLowerCase() + " job");
-				
-				Date startTime = new DateTime().plusSeconds(5 + (2*(i+1))).toDate();
-				
-				JobDetail jobDetail = newJob(getJobClass())
-						.withIdentity(getPluginGroup().toLowerCase() + "-job" + i, getPluginGroup())
-						.build();
-				
-				Trigger trigger = newTrigger()
-					    .withIdentity("trigger" + i, getPluginGroup())
-					    .startAt(startTime)
-					    .withSchedule(simpleSchedule()
-					    		.withIntervalInMilliseconds(500)
-					    		.withMisfireHandlingInstructionNextWithRemainingCount()
-					    		.repeatForever())
-					    .withPriority(5)
-					    .forJob(jobDetail)
-					    .build();
-				
-				scheduler.scheduleJob(jobDetail, trigger);
-			}
-			
-			log.debug("Finished initializing " + getPluginGroup().toLowerCase() + " job with " + 
-					getTaskCount() + " triggers.");
-			
-		} catch (SchedulerException e) {
-			log.error("Error initializing " + getPluginGroup().toLowerCase() + " job.", e);
-		} 
+		if (getTaskCount() <= 0) return;
+		
+		// notification messages are consumed by worker threads of the consumer runtime
+		// rather than by blocking quartz jobs.
+		consumer = new MessageQueueConsumer(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE,
+				new NewNotificationQueueProcessor(), getTaskCount(), Settings.NOTIFICATION_QUEUE_BATCH_SIZE);
+		consumer.start();
+		
+		log.debug("Started " + getPluginGroup().toLowerCase() + " consumer with " + getTaskCount() + " workers.");
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		if (consumer != null) {
+			consumer.stop();
+		}
+		// buffered events go out before the http client they are sent with is closed
+		NotificationCoalescer.shutdown();
+		WebhookHttpClient.shutdown();
+		super.shutdown();
 	}
 	
 	@SuppressWarnings("rawtypes")
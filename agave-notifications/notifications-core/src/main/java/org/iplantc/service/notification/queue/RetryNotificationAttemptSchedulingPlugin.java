@@ -1,6 +1,8 @@
 package org.iplantc.service.notification.queue;
 
 import org.apache.log4j.Logger;
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.iplantc.service.common.messaging.DelayedMessageScheduler;
 import org.iplantc.service.common.queue.GenericSchedulingPlugin;
 import org.iplantc.service.notification.Settings;
 import org.joda.time.DateTime;
@@ -47,6 +49,16 @@ public class RetryNotificationAttemptSchedulingPlugin extends GenericSchedulingP
 	        return;
         }
         
+		// retries are published with a delay. start the scheduler now so retries held
+		// from before a restart are published without waiting for a new one.
+		if (DelayedMessageScheduler.isEnabled()) {
+			try {
+				DelayedMessageScheduler.getInstance();
+			} catch (MessagingException e) {
+				log.error("Failed to start the delayed message scheduler for notification retries.", e);
+			}
+		}
+		
 		try {
 			log.debug("Initializaing " + getPluginGroup().toLowerCase() + " job...");
 			
@@ -85,6 +97,14 @@ public class RetryNotificationAttemptSchedulingPlugin extends GenericSchedulingP
 		} 
 	}
 	
+	@Override
+	public void shutdown()
+	{
+		super.shutdown();
+		
+		DelayedMessageScheduler.shutdown();
+	}
+	
 	@SuppressWarnings("rawtypes")
 	@Override
 	protected Class getJobClass()
@@ -4,6 +4,7 @@
 package org.iplantc.service.notification.queue.messaging;
 
 import org.iplantc.service.common.messaging.DefaultMessageBody;
+import org.iplantc.service.common.messaging.MessageCodecRegistry;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -15,6 +16,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class NotificationMessageBody extends DefaultMessageBody<NotificationMessageContext>
 {
+    static {
+        MessageCodecRegistry.register(NotificationMessageBody.class, new NotificationMessageCodec());
+    }
 
     /**
      * Default no-args contructor
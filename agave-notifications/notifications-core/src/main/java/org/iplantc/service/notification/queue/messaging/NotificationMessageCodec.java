@@ -0,0 +1,118 @@
+package org.iplantc.service.notification.queue.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.iplantc.service.common.messaging.MessageCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static org.iplantc.service.common.messaging.MessageCodec.readString;
+import static org.iplantc.service.common.messaging.MessageCodec.writeString;
+
+/**
+ * Codec for {@link NotificationMessageBody} messages on the notification queue.
+ *
+ * @author dooley
+ *
+ */
+public class NotificationMessageCodec implements MessageCodec<NotificationMessageBody>
+{
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#getType()
+	 */
+	@Override
+	public String getType()
+	{
+		return "notification";
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#getVersion()
+	 */
+	@Override
+	public int getVersion()
+	{
+		return 1;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#write(java.lang.Object, java.io.DataOutput)
+	 */
+	@Override
+	public void write(NotificationMessageBody body, DataOutput out) throws IOException
+	{
+		writeString(out, body.getUuid());
+		writeString(out, body.getOwner());
+		writeString(out, body.getTenant());
+
+		NotificationMessageContext context = body.getContext();
+		out.writeBoolean(context != null);
+		if (context != null) {
+			writeString(out, context.getEvent());
+			writeString(out, context.getCustomData());
+			writeString(out, context.getAssociatedUuid());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.iplantc.service.common.messaging.MessageCodec#read(java.io.DataInput, int)
+	 */
+	@Override
+	public NotificationMessageBody read(DataInput in, int version) throws IOException
+	{
+		NotificationMessageBody body = new NotificationMessageBody(readString(in), readString(in), readString(in));
+
+		NotificationMessageContext context = new NotificationMessageContext();
+		if (in.readBoolean()) {
+			context.setEvent(readString(in));
+			context.setCustomData(readString(in));
+			context.setAssociatedUuid(readString(in));
+		}
+		body.setContext(context);
+
+		return body;
+	}
+
+	/*
+	 * Older publishers put the context in a "wrapper" field, and custom data may
+	 * be an embedded json object rather than a string.
+	 */
+	@Override
+	public NotificationMessageBody readJson(JsonNode json) throws IOException
+	{
+		if (!json.hasNonNull("uuid")) {
+			throw new IOException("Notification message has no uuid");
+		}
+
+		NotificationMessageBody body = new NotificationMessageBody(json.get("uuid").textValue(),
+				json.path("owner").textValue(), json.path("tenant").textValue());
+
+		JsonNode jsonContext = null;
+		if (json.hasNonNull("wrapper") && json.get("wrapper").isObject()) {
+			jsonContext = json.get("wrapper");
+		} else if (json.hasNonNull("context") && json.get("context").isObject()) {
+			jsonContext = json.get("context");
+		}
+
+		NotificationMessageContext context = new NotificationMessageContext();
+		if (jsonContext != null)
+		{
+			if (jsonContext.has("associatedUuid")) {
+				context.setAssociatedUuid(jsonContext.get("associatedUuid").asText());
+			}
+
+			if (jsonContext.hasNonNull("customData")) {
+				if (jsonContext.get("customData").isValueNode()) {
+					context.setCustomData(jsonContext.get("customData").asText());
+				} else {
+					context.setCustomData(jsonContext.get("customData").toString());
+				}
+			}
+			context.setEvent(jsonContext.path("event").asText());
+		}
+		body.setContext(context);
+
+		return body;
+	}
+}
@@ -8,21 +8,19 @@ import org.hibernate.Session;
 import org.iplantc.service.common.Settings;
 import org.iplantc.service.common.clients.RequestBin;
 import org.iplantc.service.common.exceptions.MessagingException;
+import org.iplantc.service.common.messaging.MessageQueueConsumer;
 import org.iplantc.service.common.persistence.HibernateUtil;
 import org.iplantc.service.common.persistence.TenancyHelper;
 import org.iplantc.service.common.uuid.AgaveUUID;
 import org.iplantc.service.common.uuid.UUIDType;
 import org.iplantc.service.notification.dao.NotificationDao;
+import org.iplantc.service.notification.dao.NotificationSubscriptionIndex;
 import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.model.Notification;
 import org.iplantc.service.notification.model.enumerations.NotificationCallbackProviderType;
 import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
 import org.iplantc.service.notification.model.enumerations.RetryStrategyType;
 import org.iplantc.service.notification.queue.NewNotificationQueueProcessor;
-import org.quartz.JobDetail;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.SimpleTrigger;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 
@@ -32,9 +30,6 @@ import java.util.Properties;
 
 import static org.iplantc.service.notification.TestDataHelper.*;
 import static org.iplantc.service.notification.model.enumerations.NotificationCallbackProviderType.*;
-import static org.quartz.JobBuilder.newJob;
-import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
-import static org.quartz.TriggerBuilder.newTrigger;
 
 public class AbstractNotificationTest {
 
@@ -48,8 +43,7 @@ public class AbstractNotificationTest {
 	protected NotificationDao dao = null;
 	protected TestDataHelper dataHelper;
 	protected RequestBin requestBin;
-	protected Scheduler sched;
-	protected SimpleTrigger trigger;
+	protected MessageQueueConsumer consumer;
 
 	public AbstractNotificationTest() {
 		dataHelper = TestDataHelper.getInstance();
@@ -186,6 +180,7 @@ public class AbstractNotificationTest {
             HibernateUtil.disableAllFilters();
 			session.createQuery("delete Notification").executeUpdate();
 			session.flush();
+			NotificationSubscriptionIndex.getInstance().invalidate();
 		}
 		catch (HibernateException ex)
 		{
@@ -197,21 +192,25 @@ public class AbstractNotificationTest {
 		}
 	}
 	
-	protected void startNotificationQueue(String name) throws SchedulerException {
-		
-		JobDetail jobDetail = newJob(NewNotificationQueueProcessor.class)
-			.withIdentity("test-" + name)
-			.build();
-		
-		trigger = newTrigger()
-				.withIdentity("trigger-JobNotificationTest")
-				.startNow()
-				.withSchedule(simpleSchedule()
-		            .withIntervalInMilliseconds(500)
-		            .repeatForever())
-				.build();
-		
-		sched.scheduleJob(jobDetail, trigger);
+	/**
+	 * Starts a consumer processing the notification queue until {@link #stopNotificationQueue()} is called.
+	 */
+	protected void startNotificationQueue() {
+		stopNotificationQueue();
+		consumer = new MessageQueueConsumer(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE,
+				new NewNotificationQueueProcessor(), 1, 
+				org.iplantc.service.notification.Settings.NOTIFICATION_QUEUE_BATCH_SIZE);
+		consumer.start();
+	}
+	
+	/**
+	 * Stops the consumer started by {@link #startNotificationQueue()}, if any.
+	 */
+	protected void stopNotificationQueue() {
+		if (consumer != null) {
+			consumer.stop();
+			consumer = null;
+		}
 	}
 	
 	/**
@@ -8,8 +8,10 @@ import org.iplantc.service.notification.AbstractNotificationTest;
 import org.iplantc.service.notification.TestDataHelper;
 import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.enumerations.CoalesceStrategyType;
 import org.iplantc.service.notification.model.enumerations.NotificationCallbackProviderType;
 import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
+import org.iplantc.service.notification.model.enumerations.RetryStrategyType;
 import org.testng.Assert;
 import org.testng.annotations.*;
 
@@ -157,6 +159,31 @@ public class NotificationDaoIT extends AbstractNotificationTest
 		}
 	}
 	
+	@Test
+	public void updateSavesThePolicy() throws Exception
+	{
+		Notification n = createWebhookNotification();
+		dao.persist(n);
+		
+		n.getPolicy().setRetryStrategyType(RetryStrategyType.DELAYED);
+		n.getPolicy().setRetryDelay(60);
+		n.getPolicy().setSaveOnFailure(true);
+		n.getPolicy().setCoalesceStrategyType(CoalesceStrategyType.DIGEST);
+		n.getPolicy().setCoalesceWindow(300);
+		Assert.assertTrue(dao.update(n), "The notification should have been updated.");
+		
+		HibernateUtil.closeSession();
+		Notification saved = dao.findByUuid(n.getUuid());
+		
+		Assert.assertEquals(saved.getPolicy().getRetryStrategyType(), RetryStrategyType.DELAYED);
+		Assert.assertEquals(saved.getPolicy().getRetryDelay(), 60);
+		Assert.assertTrue(saved.getPolicy().isSaveOnFailure());
+		Assert.assertEquals(saved.getPolicy().getCoalesceStrategyType(), CoalesceStrategyType.DIGEST,
+				"The coalesce strategy should be saved by an update.");
+		Assert.assertEquals(saved.getPolicy().getCoalesceWindow(), 300,
+				"The coalesce window should be saved by an update.");
+	}
+	
 	@Test//(dependsOnMethods={"persist"})
 	public void getAll()
 	{
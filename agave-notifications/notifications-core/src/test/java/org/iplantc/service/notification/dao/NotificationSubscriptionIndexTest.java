@@ -0,0 +1,185 @@
+package org.iplantc.service.notification.dao;
+
+import org.iplantc.service.notification.exceptions.NotificationException;
+import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.enumerations.NotificationStatusType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+@Test(groups={"unit"})
+public class NotificationSubscriptionIndexTest {
+
+	private static final String TENANT = "agave.dev";
+	private static final String JOB_UUID = "0001-job";
+	private static final String CALLBACK = "http://example.com/callback";
+
+	/**
+	 * Index backed by in-memory lists in place of the database, driven by a fixed clock.
+	 */
+	private static class TestIndex extends NotificationSubscriptionIndex {
+		long now = 1000000;
+		List<Notification> active = new ArrayList<Notification>();
+		List<Notification> updated = new ArrayList<Notification>();
+		int loads = 0;
+
+		TestIndex() {
+			super(5, 900);
+		}
+
+		@Override
+		protected List<Notification> loadActive() {
+			loads++;
+			return new ArrayList<Notification>(active);
+		}
+
+		@Override
+		protected List<Notification> loadUpdatedSince(Date since) {
+			List<Notification> changes = new ArrayList<Notification>(updated);
+			updated.clear();
+			return changes;
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return now;
+		}
+	}
+
+	private Notification notification(String tenant, String associatedUuid, String event, long created) throws Exception {
+		Notification notification = new Notification(associatedUuid, "testuser", event, CALLBACK, false);
+		notification.setTenantId(tenant);
+		notification.setCreated(new Date(created));
+		notification.setLastUpdated(new Date(created));
+		return notification;
+	}
+
+	private List<String> orderedUuids(Notification... notifications) {
+		return orderedUuids(Arrays.asList(notifications));
+	}
+
+	private List<String> orderedUuids(List<Notification> notifications) {
+		List<String> uuids = new ArrayList<String>();
+		for (Notification notification: notifications) {
+			uuids.add(notification.getUuid());
+		}
+		return uuids;
+	}
+
+	private HashSet<String> uuids(List<Notification> notifications) {
+		HashSet<String> uuids = new HashSet<String>();
+		for (Notification notification: notifications) {
+			uuids.add(notification.getUuid());
+		}
+		return uuids;
+	}
+
+	@Test
+	public void matchesTheEventAndUuidWithTheirWildcardsInTheTenant() throws Exception {
+		TestIndex index = new TestIndex();
+		Notification exact = notification(TENANT, JOB_UUID, "FINISHED", 1000);
+		Notification anyEvent = notification(TENANT, JOB_UUID, "*", 2000);
+		Notification anyUuid = notification(TENANT, "*", "FINISHED", 3000);
+		Notification everything = notification(TENANT, "*", "*", 4000);
+		Notification otherEvent = notification(TENANT, JOB_UUID, "RUNNING", 5000);
+		Notification otherTenant = notification("other.tenant", JOB_UUID, "FINISHED", 6000);
+		index.active.addAll(Arrays.asList(exact, anyEvent, anyUuid, everything, otherEvent, otherTenant));
+
+		List<Notification> matches = index.getActive(TENANT, JOB_UUID, "FINISHED");
+
+		Assert.assertEquals(orderedUuids(matches), orderedUuids(everything, anyUuid, anyEvent, exact),
+				"All wildcard combinations in the tenant should match, newest first.");
+		Assert.assertEquals(uuids(index.getActive(TENANT, JOB_UUID, "finished")), uuids(matches),
+				"Events should match regardless of case as they do in the database.");
+	}
+
+	@Test
+	public void savedAndDeletedNotificationsAreIndexedImmediately() throws Exception {
+		TestIndex index = new TestIndex();
+		Assert.assertTrue(index.getActive(TENANT, JOB_UUID, "FINISHED").isEmpty());
+
+		Notification notification = notification(TENANT, JOB_UUID, "FINISHED", 1000);
+		index.put(notification);
+		Assert.assertEquals(orderedUuids(index.getActive(TENANT, JOB_UUID, "FINISHED")), orderedUuids(notification),
+				"A saved notification should match without waiting for a refresh.");
+
+		notification.setEvent("RUNNING");
+		index.put(notification);
+		Assert.assertTrue(index.getActive(TENANT, JOB_UUID, "FINISHED").isEmpty(),
+				"An updated notification should no longer match its old event.");
+		Assert.assertEquals(index.getActive(TENANT, JOB_UUID, "RUNNING").size(), 1);
+
+		index.remove(notification.getUuid());
+		Assert.assertTrue(index.getActive(TENANT, JOB_UUID, "RUNNING").isEmpty(),
+				"A deleted notification should not match.");
+		Assert.assertEquals(index.size(), 0);
+	}
+
+	@Test
+	public void theIndexIsNotChangedThroughTheInstancesItWasGivenOrReturned() throws Exception {
+		TestIndex index = new TestIndex();
+		Notification notification = notification(TENANT, JOB_UUID, "FINISHED", 1000);
+		index.put(notification);
+
+		notification.setStatus(NotificationStatusType.COMPLETE);
+		notification.setCallbackUrl("http://example.com/changed");
+		Notification match = index.getActive(TENANT, JOB_UUID, "FINISHED").get(0);
+		Assert.assertNotSame(match, notification, "The index should hold a copy of the saved notification.");
+		Assert.assertEquals(match.getStatus(), NotificationStatusType.ACTIVE,
+				"Changes to the saved instance should not reach the index until it is saved again.");
+		Assert.assertEquals(match.getCallbackUrl(), CALLBACK);
+
+		match.setCallbackUrl("http://example.com/changed");
+		Assert.assertEquals(index.getActive(TENANT, JOB_UUID, "FINISHED").get(0).getCallbackUrl(), CALLBACK,
+				"Changes to a returned notification should not reach the index.");
+	}
+
+	@Test
+	public void changesFromOtherServicesArePickedUpOnRefresh() throws Exception {
+		TestIndex index = new TestIndex();
+		Notification existing = notification(TENANT, JOB_UUID, "FINISHED", 1000);
+		index.active.add(existing);
+		Assert.assertEquals(index.getActive(TENANT, JOB_UUID, "FINISHED").size(), 1);
+
+		Notification created = notification(TENANT, JOB_UUID, "FINISHED", 2000);
+		existing.setStatus(NotificationStatusType.INACTIVE);
+		index.updated.addAll(Arrays.asList(created, existing));
+
+		Assert.assertEquals(orderedUuids(index.getActive(TENANT, JOB_UUID, "FINISHED")), orderedUuids(existing),
+				"Changes should not be fetched before the refresh interval.");
+
+		index.now += 5000;
+		Assert.assertEquals(orderedUuids(index.getActive(TENANT, JOB_UUID, "FINISHED")), orderedUuids(created),
+				"New and deactivated notifications should be applied on refresh.");
+		Assert.assertEquals(index.loads, 1, "A refresh should not reload the whole index.");
+	}
+
+	@Test
+	public void theIndexIsReloadedPeriodicallyAndWhenInvalidated() throws Exception {
+		TestIndex index = new TestIndex();
+		Notification deletedElsewhere = notification(TENANT, JOB_UUID, "FINISHED", 1000);
+		index.active.add(deletedElsewhere);
+		Assert.assertEquals(index.getActive(TENANT, JOB_UUID, "FINISHED").size(), 1);
+
+		index.active.clear();
+		index.now += 900000;
+		Assert.assertTrue(index.getActive(TENANT, JOB_UUID, "FINISHED").isEmpty(),
+				"Notifications deleted elsewhere should be dropped on reload.");
+
+		index.active.add(deletedElsewhere);
+		index.invalidate();
+		Assert.assertEquals(index.getActive(TENANT, JOB_UUID, "FINISHED").size(), 1,
+				"An invalidated index should be reloaded on the next lookup.");
+		Assert.assertEquals(index.loads, 3);
+	}
+
+	@Test(expectedExceptions = NotificationException.class)
+	public void anEmptyUuidIsRejected() throws Exception {
+		new TestIndex().getActive(TENANT, "", "FINISHED");
+	}
+}
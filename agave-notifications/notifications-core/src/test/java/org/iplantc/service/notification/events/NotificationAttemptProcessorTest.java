@@ -0,0 +1,219 @@
+package org.iplantc.service.notification.events;
+
+import org.iplantc.service.notification.Settings;
+import org.iplantc.service.notification.exceptions.CircuitOpenException;
+import org.iplantc.service.notification.exceptions.DisabledNotificationException;
+import org.iplantc.service.notification.exceptions.NotificationException;
+import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.NotificationAttempt;
+import org.iplantc.service.notification.model.NotificationAttemptResponse;
+import org.iplantc.service.notification.model.enumerations.RetryStrategyType;
+import org.iplantc.service.notification.providers.NotificationAttemptProvider;
+import org.iplantc.service.notification.providers.http.DestinationCircuitBreaker;
+import org.iplantc.service.notification.providers.http.clients.WebhookClient;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups={"unit"})
+public class NotificationAttemptProcessorTest {
+
+	private static final String JOB_UUID = "0001-job";
+	private static final String CALLBACK = "http://example.com/callback";
+	private static final String FILTERED_CALLBACK = "https://internal.example.com/callback";
+
+	/**
+	 * Processor whose webhook deliveries are completed by the test, and which records
+	 * retries and failed attempts rather than queueing them.
+	 */
+	private static class TestProcessor extends NotificationAttemptProcessor {
+		final List<CompletableFuture<NotificationAttemptResponse>> deliveries = new ArrayList<CompletableFuture<NotificationAttemptResponse>>();
+		final List<Integer> retryDelays = new ArrayList<Integer>();
+		final List<NotificationAttempt> failedAttempts = new ArrayList<NotificationAttempt>();
+		boolean active = true;
+		int publishes = 0;
+		volatile String handledOn;
+
+		TestProcessor(NotificationAttempt attempt, Notification notification) {
+			super(attempt);
+			setNotification(notification);
+		}
+
+		@Override
+		public boolean isNotificationStillActive() throws DisabledNotificationException {
+			if (!active) {
+				throw new DisabledNotificationException("Notification has been disabled.");
+			}
+			return true;
+		}
+
+		@Override
+		protected NotificationAttemptProvider getNotificationAttemptProvider() {
+			return new WebhookClient() {
+				@Override
+				public NotificationAttemptResponse publish() {
+					return publishAsync().join();
+				}
+
+				@Override
+				public CompletableFuture<NotificationAttemptResponse> publishAsync() {
+					return deliveries.get(publishes++);
+				}
+
+				@Override
+				public String getFilteredCallbackUrl(String callbackUrl) {
+					return FILTERED_CALLBACK;
+				}
+			};
+		}
+
+		@Override
+		protected void handleSuccess() {
+			handledOn = Thread.currentThread().getName();
+			super.handleSuccess();
+		}
+
+		@Override
+		protected void pushNotificationAttemptToRetryQueue(NotificationAttempt attempt, int secondsUntilNextScheduledAttempt) {
+			retryDelays.add(secondsUntilNextScheduledAttempt);
+		}
+
+		@Override
+		protected void saveFailedAttempt(NotificationAttempt attempt) {
+			failedAttempts.add(attempt);
+		}
+
+		@Override
+		protected void afterCallback() {}
+	}
+
+	@SafeVarargs
+	private final TestProcessor processor(CompletableFuture<NotificationAttemptResponse>... deliveries) throws Exception {
+		// persistent notifications are not retired in the db after a successful delivery
+		Notification notification = new Notification(JOB_UUID, "testuser", "FINISHED", CALLBACK, true);
+		notification.getPolicy().setRetryStrategyType(RetryStrategyType.DELAYED);
+		notification.getPolicy().setRetryDelay(30);
+		notification.getPolicy().setRetryRate(30);
+		notification.getPolicy().setRetryLimit(5);
+
+		NotificationAttempt attempt = new NotificationAttempt(notification.getUuid(), CALLBACK,
+				"testuser", JOB_UUID, "FINISHED", "{}", Instant.now());
+
+		TestProcessor processor = new TestProcessor(attempt, notification);
+		processor.deliveries.addAll(Arrays.asList(deliveries));
+		return processor;
+	}
+
+	private CompletableFuture<NotificationAttemptResponse> responded(int code) {
+		return CompletableFuture.completedFuture(new NotificationAttemptResponse(code, "response " + code));
+	}
+
+	@Test
+	public void fireAsyncHandlesResponsesOnTheCallbackThreads() throws Exception {
+		CompletableFuture<NotificationAttemptResponse> delivery = new CompletableFuture<NotificationAttemptResponse>();
+		TestProcessor processor = processor(delivery);
+
+		CompletableFuture<Boolean> result = processor.fireAsync();
+		Assert.assertFalse(result.isDone(), "fireAsync should not wait for the remote server.");
+
+		delivery.complete(new NotificationAttemptResponse(200, "200 ok"));
+
+		Assert.assertTrue(result.get(5, TimeUnit.SECONDS), "A 2xx response should be a successful delivery.");
+		Assert.assertTrue(processor.handledOn.startsWith("notification-attempt-callback-"),
+				"Responses arriving later should be handled on the attempt callback threads.");
+		Assert.assertNull(processor.getAttempt().getScheduledTime());
+		Assert.assertTrue(processor.retryDelays.isEmpty());
+	}
+
+	@Test
+	public void fireAsyncRetriesAFailedFirstAttemptOnceBeforeSchedulingARetry() throws Exception {
+		TestProcessor processor = processor(responded(500), responded(500));
+
+		Assert.assertFalse(processor.fireAsync().join(), "A failed delivery should not be successful.");
+
+		Assert.assertEquals(processor.publishes, 2, "The first failure should be retried immediately.");
+		Assert.assertEquals(processor.retryDelays, Arrays.asList(30),
+				"The second failure should be scheduled by the notification policy.");
+		Assert.assertEquals(processor.getAttempt().getAttemptNumber(), 2);
+		Assert.assertEquals(processor.getAttempt().getResponse().getCode(), 500);
+	}
+
+	@Test
+	public void fireAsyncSchedulesARetryWhenTheDeliveryFails() throws Exception {
+		TestProcessor processor = processor(
+				CompletableFuture.failedFuture(new NotificationException("Connection refused")));
+
+		Assert.assertFalse(processor.fireAsync().join(),
+				"A failed delivery should complete with false rather than exceptionally.");
+		Assert.assertEquals(processor.retryDelays, Arrays.asList(30));
+		Assert.assertTrue(processor.failedAttempts.isEmpty());
+	}
+
+	@Test
+	public void fireAsyncParksAttemptsToAnOpenCircuitUntilItIsTriedAgain() throws Exception {
+		TestProcessor processor = processor(
+				CompletableFuture.failedFuture(new CircuitOpenException("The circuit is open.", 120)));
+
+		Assert.assertFalse(processor.fireAsync().join());
+		Assert.assertEquals(processor.retryDelays.size(), 1);
+		Assert.assertTrue(processor.retryDelays.get(0) >= 120,
+				"The retry should not be scheduled before the circuit is tried again.");
+	}
+
+	@Test
+	public void failedAttemptsWaitOnTheCircuitOfTheUrlTheyWereSentTo() throws Exception {
+		boolean enabled = Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED;
+		int openSecs = Settings.NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS;
+		Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED = true;
+		Settings.NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS = 600;
+		DestinationCircuitBreaker.reset();
+		try {
+			DestinationCircuitBreaker breaker = DestinationCircuitBreaker.getInstance(URI.create(FILTERED_CALLBACK));
+			for (int i = 0; i < Math.max(Settings.NOTIFICATION_CIRCUIT_BREAKER_FAILURES, 1); i++) {
+				breaker.recordFailure();
+			}
+			TestProcessor processor = processor(
+					CompletableFuture.failedFuture(new NotificationException("Connection refused")));
+
+			Assert.assertFalse(processor.fireAsync().join());
+			Assert.assertEquals(processor.retryDelays.size(), 1);
+			Assert.assertTrue(processor.retryDelays.get(0) >= 600,
+					"The retry should wait on the circuit of the filtered url, not the one in the attempt.");
+		}
+		finally {
+			Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED = enabled;
+			Settings.NOTIFICATION_CIRCUIT_BREAKER_OPEN_SECS = openSecs;
+			DestinationCircuitBreaker.reset();
+		}
+	}
+
+	@Test
+	public void fireAsyncDoesNotDeliverDisabledNotifications() throws Exception {
+		TestProcessor processor = processor(responded(200));
+		processor.active = false;
+
+		Assert.assertFalse(processor.fireAsync().join());
+		Assert.assertEquals(processor.publishes, 0, "Nothing should be sent for a disabled notification.");
+		Assert.assertEquals(processor.failedAttempts, Arrays.asList(processor.getAttempt()));
+		Assert.assertTrue(processor.retryDelays.isEmpty());
+	}
+
+	@Test
+	public void theCallbackExecutorQueueIsBoundedAndPushesBackOnTheCaller() {
+		ThreadPoolExecutor executor = (ThreadPoolExecutor)NotificationAttemptProcessor.getCallbackExecutor();
+
+		Assert.assertEquals(executor.getQueue().size() + executor.getQueue().remainingCapacity(),
+				Math.max(Settings.NOTIFICATION_ATTEMPT_CALLBACK_QUEUE_SIZE, 1),
+				"Responses waiting for a callback thread should be bounded.");
+		Assert.assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy,
+				"Responses beyond the queue should be handled by the thread which completed the delivery.");
+	}
+}
@@ -0,0 +1,139 @@
+package org.iplantc.service.notification.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iplantc.service.notification.model.Notification;
+import org.iplantc.service.notification.model.NotificationAttempt;
+import org.iplantc.service.notification.model.enumerations.CoalesceStrategyType;
+import org.iplantc.service.notification.model.enumerations.NotificationCallbackProviderType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Test(groups={"unit"})
+public class NotificationCoalescerTest {
+
+	private static final String JOB_UUID = "0001-job";
+
+	/**
+	 * Coalescer which records deliveries and scheduled windows rather than sending them.
+	 */
+	private static class TestCoalescer extends NotificationCoalescer {
+		List<NotificationAttempt> delivered = new ArrayList<NotificationAttempt>();
+		List<String> scheduled = new ArrayList<String>();
+
+		TestCoalescer(int maxBufferedEvents) {
+			super(maxBufferedEvents);
+		}
+
+		@Override
+		protected CompletableFuture<NotificationAttempt> deliver(NotificationAttempt attempt) {
+			delivered.add(attempt);
+			return CompletableFuture.completedFuture(attempt);
+		}
+
+		@Override
+		protected synchronized void schedule(String notificationUuid, int windowSecs) {
+			scheduled.add(notificationUuid);
+		}
+	}
+
+	private Notification notification(CoalesceStrategyType strategy) throws Exception {
+		Notification notification = new Notification(JOB_UUID, "testuser", "*", "someone@example.com", false);
+		notification.getPolicy().setCoalesceStrategyType(strategy);
+		notification.getPolicy().setCoalesceWindow(10);
+		return notification;
+	}
+
+	private NotificationAttempt attempt(Notification notification, String event, String content) {
+		return new NotificationAttempt(notification.getUuid(), notification.getCallbackUrl(),
+				"testuser", JOB_UUID, event, content, Instant.now());
+	}
+
+	@Test
+	public void onlyNotificationsWithAStrategyAndWindowAreCoalesced() throws Exception {
+		Assert.assertFalse(NotificationCoalescer.isCoalesced(notification(CoalesceStrategyType.NONE)));
+		Assert.assertTrue(NotificationCoalescer.isCoalesced(notification(CoalesceStrategyType.LATEST)));
+
+		Notification noWindow = notification(CoalesceStrategyType.DIGEST);
+		noWindow.getPolicy().setCoalesceWindow(0);
+		Assert.assertFalse(NotificationCoalescer.isCoalesced(noWindow));
+	}
+
+	@Test
+	public void theLatestEventInTheWindowIsDeliveredWhenItCloses() throws Exception {
+		TestCoalescer coalescer = new TestCoalescer(100);
+		Notification notification = notification(CoalesceStrategyType.LATEST);
+		NotificationAttempt first = attempt(notification, "RUNNING", "{}");
+		NotificationAttempt second = attempt(notification, "ARCHIVING", "{}");
+		NotificationAttempt third = attempt(notification, "FINISHED", "{}");
+
+		coalescer.offer(notification, first);
+		Assert.assertEquals(coalescer.delivered, Arrays.asList(first),
+				"The first event should be delivered without waiting on a window.");
+
+		coalescer.offer(notification, second);
+		coalescer.offer(notification, third);
+		Assert.assertEquals(coalescer.delivered.size(), 1, "Events in an open window should be buffered.");
+
+		coalescer.flush(notification.getUuid());
+		Assert.assertEquals(coalescer.delivered, Arrays.asList(first, third),
+				"Only the latest buffered event should be delivered when the window closes.");
+		Assert.assertEquals(coalescer.scheduled.size(), 2, "Closing a window with events should open the next one.");
+
+		Assert.assertNull(coalescer.flush(notification.getUuid()), "Nothing should be delivered for an empty window.");
+		Assert.assertEquals(coalescer.size(), 0, "An empty window should be closed.");
+
+		NotificationAttempt fourth = attempt(notification, "RUNNING", "{}");
+		coalescer.offer(notification, fourth);
+		Assert.assertEquals(coalescer.delivered.get(2), fourth,
+				"The next event after the windows close should be delivered immediately.");
+	}
+
+	@Test
+	public void digestsKeepTheNewestEventsUpToTheBufferSize() throws Exception {
+		TestCoalescer coalescer = new TestCoalescer(2);
+		Notification notification = notification(CoalesceStrategyType.DIGEST);
+
+		coalescer.offer(notification, attempt(notification, "PENDING", "{}"));
+		for (String event: Arrays.asList("RUNNING", "ARCHIVING", "FINISHED")) {
+			coalescer.offer(notification, attempt(notification, event,
+					"{\"subject\":\"Job " + event + "\",\"body\":\"" + event + "\",\"htmlBody\":\"<p>" + event + "</p>\"}"));
+		}
+
+		coalescer.flush(notification.getUuid());
+		NotificationAttempt digest = coalescer.delivered.get(1);
+		JsonNode json = new ObjectMapper().readTree(digest.getContent());
+
+		Assert.assertEquals(digest.getEventName(), "FINISHED", "The digest should be sent for the last event.");
+		Assert.assertEquals(json.get("subject").asText(), "Job FINISHED (3 events)");
+		Assert.assertTrue(json.get("body").asText().startsWith("1 earlier events were not included"),
+				"The digest should report dropped events.");
+		Assert.assertFalse(json.get("body").asText().contains("RUNNING"), "The oldest event should be dropped.");
+		Assert.assertTrue(json.get("body").asText().contains("ARCHIVING") && json.get("body").asText().contains("FINISHED"));
+	}
+
+	@Test
+	public void webhookDigestsListTheContentOfEachEvent() throws Exception {
+		Notification notification = notification(CoalesceStrategyType.DIGEST);
+		List<NotificationAttempt> attempts = Arrays.asList(
+				attempt(notification, "RUNNING", "{\"status\":\"RUNNING\"}"),
+				attempt(notification, "FINISHED", "not json"));
+
+		JsonNode json = new ObjectMapper().readTree(
+				NotificationCoalescer.createDigest(NotificationCallbackProviderType.WEBHOOK, attempts, 0).getContent());
+
+		Assert.assertEquals(json.get("digest").get("total").asInt(), 2);
+		Assert.assertEquals(json.get("digest").get("dropped").asInt(), 0);
+		Assert.assertEquals(json.get("events").size(), 2);
+		Assert.assertEquals(json.get("events").get(0).get("event").asText(), "RUNNING");
+		Assert.assertEquals(json.get("events").get(0).get("content").get("status").asText(), "RUNNING",
+				"Json content should be nested as json.");
+		Assert.assertEquals(json.get("events").get(1).get("content").asText(), "not json");
+	}
+}
@@ -11,6 +11,7 @@ import org.iplantc.service.notification.Settings;
 import org.iplantc.service.notification.TestDataHelper;
 import org.iplantc.service.notification.dao.FailedNotificationAttemptQueue;
 import org.iplantc.service.notification.dao.NotificationDao;
+import org.iplantc.service.notification.dao.NotificationSubscriptionIndex;
 import org.iplantc.service.notification.exceptions.NotificationException;
 import org.iplantc.service.notification.model.Notification;
 import org.iplantc.service.notification.model.NotificationAttempt;
@@ -49,6 +50,7 @@ public class NotificationEventIT extends AbstractNotificationTest {
 		super.drainQueue();
 		try { clearDeadLetterQueue(); } catch (Exception ignored) {}
 		HibernateUtil.getSession().createQuery("delete Notification").executeUpdate();
+		NotificationSubscriptionIndex.getInstance().invalidate();
 
 	}
 
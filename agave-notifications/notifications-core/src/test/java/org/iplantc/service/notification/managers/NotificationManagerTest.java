@@ -0,0 +1,55 @@
+package org.iplantc.service.notification.managers;
+
+import org.iplantc.service.common.exceptions.MessagingException;
+import org.iplantc.service.common.messaging.MessageQueueClient;
+import org.iplantc.service.notification.Settings;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@Test(groups={"unit"})
+public class NotificationManagerTest {
+
+	@Test
+	public void pushAllPublishesTheBatchTogether() throws Exception {
+		MessageQueueClient queue = mock(MessageQueueClient.class);
+		List<String> messages = Arrays.asList("one", "two", "three");
+
+		Assert.assertEquals(NotificationManager.pushAll(queue, messages), 3);
+
+		verify(queue).pushAll(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE, messages);
+		verify(queue, never()).push(anyString(), anyString(), anyString());
+	}
+
+	@Test
+	public void pushAllFallsBackToIndividualPushes() throws Exception {
+		MessageQueueClient queue = mock(MessageQueueClient.class);
+		doThrow(new MessagingException("connection dropped")).when(queue)
+				.pushAll(anyString(), anyString(), anyListOf(String.class));
+		doThrow(new MessagingException("message rejected")).when(queue)
+				.push(anyString(), anyString(), eq("two"));
+
+		int pushed = NotificationManager.pushAll(queue, Arrays.asList("one", "two", "three"));
+
+		Assert.assertEquals(pushed, 2, "A failed message should not stop the others from being published.");
+		verify(queue).push(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE, "one");
+		verify(queue).push(Settings.NOTIFICATION_TOPIC, Settings.NOTIFICATION_QUEUE, "three");
+	}
+
+	@Test
+	public void pushAllIgnoresEmptyBatches() throws Exception {
+		MessageQueueClient queue = mock(MessageQueueClient.class);
+
+		Assert.assertEquals(NotificationManager.pushAll(queue, new ArrayList<String>()), 0);
+
+		verifyZeroInteractions(queue);
+	}
+}
@@ -0,0 +1,116 @@
+package org.iplantc.service.notification.providers.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups={"unit"})
+public class WebhookHttpClientTest {
+
+	private HttpServer server;
+	private WebhookHttpClient client;
+	private final List<Integer> remotePorts = Collections.synchronizedList(new ArrayList<Integer>());
+	private volatile int status = 200;
+	private volatile byte[] body = new byte[0];
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		remotePorts.clear();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			remotePorts.add(exchange.getRemoteAddress().getPort());
+			exchange.getRequestBody().readAllBytes();
+			exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+			if (body.length > 0) {
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+		client = new WebhookHttpClient(10, 2, 5000, 5000, 1);
+	}
+
+	@AfterMethod
+	public void afterMethod() {
+		client.close();
+		server.stop(0);
+	}
+
+	private HttpResponse post() throws Exception {
+		int port = server.getAddress().getPort();
+		HttpPost request = new HttpPost("http://127.0.0.1:" + port + "/callback");
+		request.setEntity(new StringEntity("{}"));
+		return client.execute(new HttpHost("127.0.0.1", port, "http"), request, null).get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void onlyTheFirstBytesOfAResponseBodyAreKept() throws Exception {
+		status = 500;
+		body = new byte[WebhookHttpClient.MAX_RESPONSE_BYTES * 5];
+		for (int i = 0; i < body.length; i++) {
+			body[i] = (byte)('a' + i % 26);
+		}
+
+		HttpResponse response = post();
+
+		Assert.assertEquals(response.getStatusLine().getStatusCode(), 500);
+		Assert.assertEquals(EntityUtils.toByteArray(response.getEntity()),
+				Arrays.copyOf(body, WebhookHttpClient.MAX_RESPONSE_BYTES),
+				"The response body should be cut off after the first bytes.");
+	}
+
+	@Test
+	public void connectionsAreReusedAfterATruncatedResponse() throws Exception {
+		body = new byte[WebhookHttpClient.MAX_RESPONSE_BYTES * 50];
+
+		post();
+		post();
+
+		Assert.assertEquals(remotePorts.size(), 2);
+		Assert.assertEquals(remotePorts.get(1), remotePorts.get(0),
+				"The rest of a truncated body should be drained so the connection is reused.");
+		Assert.assertEquals(client.getLeasedConnectionCount(), 0, "The connection should be back in the pool.");
+	}
+
+	@Test
+	public void responsesWithoutABodyHaveNoEntity() throws Exception {
+		status = 204;
+
+		HttpResponse response = post();
+
+		Assert.assertEquals(response.getStatusLine().getStatusCode(), 204);
+		Assert.assertNull(response.getEntity());
+	}
+
+	@Test
+	public void requestsToAnUnreachableHostCompleteExceptionally() throws Exception {
+		server.stop(0);
+
+		try {
+			post();
+			Assert.fail("A request to a host which is not listening should fail.");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException,
+					"The future should complete with the connection failure.");
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package org.iplantc.service.notification.providers.http.clients;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import org.iplantc.service.notification.Settings;
+import org.iplantc.service.notification.exceptions.CircuitOpenException;
+import org.iplantc.service.notification.exceptions.NotificationException;
+import org.iplantc.service.notification.model.NotificationAttempt;
+import org.iplantc.service.notification.model.NotificationAttemptResponse;
+import org.iplantc.service.notification.providers.http.DestinationCircuitBreaker;
+import org.iplantc.service.notification.providers.http.WebhookHttpClient;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Instant;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups={"unit"})
+public class HttpWebhookClientTest {
+
+	private static final String CONTENT = "{\"status\":\"FINISHED\"}";
+
+	private HttpServer server;
+	private WebhookHttpClient httpClient;
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile int status = 200;
+	private volatile String body = "";
+	private volatile Headers requestHeaders;
+	private volatile String requestBody;
+	private boolean circuitBreakerEnabled;
+
+	/**
+	 * Webhook client which sends through a client of its own rather than the shared one.
+	 */
+	private class TestWebhookClient extends HttpWebhookClient {
+		TestWebhookClient(NotificationAttempt attempt) {
+			super(attempt);
+		}
+
+		@Override
+		protected WebhookHttpClient getHttpClient() {
+			return httpClient;
+		}
+	}
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		requests.set(0);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			requests.incrementAndGet();
+			requestHeaders = exchange.getRequestHeaders();
+			requestBody = new String(exchange.getRequestBody().readAllBytes());
+			byte[] bytes = body.getBytes();
+			exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+			if (bytes.length > 0) {
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+		httpClient = new WebhookHttpClient(10, 2, 5000, 5000, 1);
+
+		circuitBreakerEnabled = Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED;
+		Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED = true;
+		DestinationCircuitBreaker.reset();
+	}
+
+	@AfterMethod
+	public void afterMethod() {
+		httpClient.close();
+		server.stop(0);
+		Settings.NOTIFICATION_CIRCUIT_BREAKER_ENABLED = circuitBreakerEnabled;
+		DestinationCircuitBreaker.reset();
+	}
+
+	private String callbackUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/callback";
+	}
+
+	private NotificationAttempt attempt() {
+		return new NotificationAttempt("0001-notification", callbackUrl(), "testuser", "0001-job",
+				"FINISHED", CONTENT, Instant.now());
+	}
+
+	@Test
+	public void publishAsyncPostsTheAttemptContent() throws Exception {
+		NotificationAttempt attempt = attempt();
+
+		NotificationAttemptResponse response = new TestWebhookClient(attempt).publishAsync().join();
+
+		Assert.assertEquals(response.getCode(), 200);
+		Assert.assertEquals(response.getMessage(), "200 ok");
+		Assert.assertEquals(requestBody, CONTENT);
+		Assert.assertEquals(requestHeaders.getFirst("Content-Type"), "application/json");
+		Assert.assertEquals(requestHeaders.getFirst("X-Agave-Delivery"), attempt.getUuid());
+		Assert.assertEquals(requestHeaders.getFirst("X-Agave-Notification"), "0001-notification");
+	}
+
+	@Test
+	public void publishAsyncKeepsTheErrorReturnedByTheDestination() throws Exception {
+		status = 400;
+		body = "missing field\n";
+
+		NotificationAttemptResponse response = new TestWebhookClient(attempt()).publishAsync().join();
+
+		Assert.assertEquals(response.getCode(), 400);
+		Assert.assertEquals(response.getMessage(), "missing field",
+				"The body of an error response should become the attempt message.");
+	}
+
+	@Test
+	public void publishAsyncFailsWhenTheDestinationIsUnreachable() throws Exception {
+		NotificationAttempt attempt = attempt();
+		server.stop(0);
+
+		try {
+			new TestWebhookClient(attempt).publishAsync().join();
+			Assert.fail("A delivery to a destination which is not listening should fail.");
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof NotificationException,
+					"The future should complete with a NotificationException.");
+		}
+
+		try {
+			new TestWebhookClient(attempt).publish();
+			Assert.fail("publish should throw the failure of the delivery it waits on.");
+		} catch (NotificationException expected) {}
+	}
+
+	@Test
+	public void publishAsyncSkipsDestinationsWithAnOpenCircuit() throws Exception {
+		DestinationCircuitBreaker breaker = DestinationCircuitBreaker.getInstance(URI.create(callbackUrl()));
+		for (int i = 0; i < Math.max(Settings.NOTIFICATION_CIRCUIT_BREAKER_FAILURES, 1); i++) {
+			breaker.recordFailure();
+		}
+
+		try {
+			new TestWebhookClient(attempt()).publishAsync().join();
+			Assert.fail("A delivery to a destination with an open circuit should fail.");
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof CircuitOpenException,
+					"The delivery should fail with the time until the circuit is tried again.");
+		}
+		Assert.assertEquals(requests.get(), 0, "Nothing should be sent to a destination with an open circuit.");
+	}
+
+	@Test
+	public void serverErrorsCountAgainstTheDestinationCircuit() throws Exception {
+		status = 503;
+		int failures = Math.max(Settings.NOTIFICATION_CIRCUIT_BREAKER_FAILURES, 1);
+		for (int i = 0; i < failures; i++) {
+			Assert.assertEquals(new TestWebhookClient(attempt()).publishAsync().join().getCode(), 503);
+		}
+
+		Assert.assertEquals(DestinationCircuitBreaker.getInstance(URI.create(callbackUrl())).getState(),
+				DestinationCircuitBreaker.State.OPEN,
+				"Consecutive server errors should open the circuit to the destination.");
+	}
+}
@@ -17,16 +17,10 @@ import org.iplantc.service.notification.queue.messaging.NotificationMessageBody;
 import org.iplantc.service.notification.queue.messaging.NotificationMessageContext;
 import org.iplantc.service.notification.util.ServiceUtils;
 import org.json.JSONException;
-import org.quartz.JobExecutionContext;
-import org.quartz.SchedulerException;
-import org.quartz.impl.StdSchedulerFactory;
 import org.testng.Assert;
 import org.testng.annotations.*;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
-
-import static org.mockito.Mockito.mock;
 
 /**
  * Tests the listeners that pull messages off the notification queue and process
@@ -51,11 +45,6 @@ public class NewNotificationMessageQueueListenerIT extends AbstractNotificationT
 			dao = new NotificationDao();
 			
 			drainQueue();
-			
-			sched = StdSchedulerFactory.getDefaultScheduler();
-			if (!sched.isStarted()) {
-				sched.start();
-			}
 		}
 		catch (Exception e)
 		{	
@@ -64,22 +53,20 @@ public class NewNotificationMessageQueueListenerIT extends AbstractNotificationT
 	}
 
 	@AfterClass
-	public void afterClass() throws NotificationException, SchedulerException
+	public void afterClass() throws NotificationException
 	{
+		stopNotificationQueue();
 		clearNotifications();
 		drainQueue();
-		sched.clear();
-		sched.shutdown();
 	}
 	
 	
 
 	@BeforeMethod
-	public void beforeMethod(Method m) throws NotificationException, SchedulerException
+	public void beforeMethod() throws NotificationException
 	{
 		clearNotifications();
-		sched.clear();
-		startNotificationQueue(m.getName());
+		startNotificationQueue();
 	}
 	
 	@DataProvider(name="executeProvider")
@@ -111,12 +98,8 @@ public class NewNotificationMessageQueueListenerIT extends AbstractNotificationT
 			dao.persist(notification);
 			
 			Assert.assertNotNull(notification.getId(), "Failed to persist notification.");
-//			Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
 			
-			JobExecutionContext context = mock(JobExecutionContext.class);
-			//new JobExecutionContextImpl(scheduler, null, null);
 			listener = new NewNotificationQueueProcessor();
-			listener.setContext(context);
 			
 			NotificationMessageContext messageBodyContext = new NotificationMessageContext(
 					NotificationEventType.SUCCESS.name(), 
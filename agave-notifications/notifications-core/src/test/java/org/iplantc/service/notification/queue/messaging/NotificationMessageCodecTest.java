@@ -0,0 +1,58 @@
+package org.iplantc.service.notification.queue.messaging;
+
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.messaging.MessageCodecRegistry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups={"unit"})
+public class NotificationMessageCodecTest {
+
+	@Test
+	public void binaryEnvelopeRoundTripsAllFields() throws Exception {
+		NotificationMessageBody body = new NotificationMessageBody("1234-5678", "testuser", "agave.dev",
+				new NotificationMessageContext("CREATED", "{\"status\":\"CREATED\"}", "8765-4321"));
+
+		String message;
+		Settings.MESSAGING_BINARY_ENVELOPE_ENABLED = true;
+		try {
+			message = MessageCodecRegistry.encode(body);
+		} finally {
+			Settings.MESSAGING_BINARY_ENVELOPE_ENABLED = false;
+		}
+		Assert.assertEquals(message.charAt(0), MessageCodecRegistry.ENVELOPE_PREFIX);
+
+		NotificationMessageBody decoded = MessageCodecRegistry.decode(message, NotificationMessageBody.class);
+
+		Assert.assertEquals(decoded.getUuid(), body.getUuid());
+		Assert.assertEquals(decoded.getOwner(), body.getOwner());
+		Assert.assertEquals(decoded.getTenant(), body.getTenant());
+		Assert.assertEquals(decoded.getContext().getEvent(), "CREATED");
+		Assert.assertEquals(decoded.getContext().getCustomData(), "{\"status\":\"CREATED\"}");
+		Assert.assertEquals(decoded.getContext().getAssociatedUuid(), "8765-4321");
+	}
+
+	@Test
+	public void jsonMessagesWithAWrapperAndEmbeddedCustomDataAreRead() throws Exception {
+		String json = "{\"uuid\":\"1234-5678\",\"owner\":\"testuser\",\"tenant\":\"agave.dev\"," +
+				"\"wrapper\":{\"event\":\"CREATED\",\"associatedUuid\":\"8765-4321\",\"customData\":{\"status\":\"CREATED\"}}}";
+
+		NotificationMessageBody decoded = MessageCodecRegistry.decode(json, NotificationMessageBody.class);
+
+		Assert.assertEquals(decoded.getUuid(), "1234-5678");
+		Assert.assertEquals(decoded.getContext().getEvent(), "CREATED",
+				"The context should be read from the legacy wrapper field.");
+		Assert.assertEquals(decoded.getContext().getCustomData(), "{\"status\":\"CREATED\"}",
+				"Embedded custom data objects should be kept as serialized json.");
+		Assert.assertEquals(decoded.getContext().getAssociatedUuid(), "8765-4321");
+	}
+
+	@Test
+	public void jsonMessagesWithoutContextGetAnEmptyContext() throws Exception {
+		NotificationMessageBody decoded = MessageCodecRegistry.decode(
+				"{\"uuid\":\"1234-5678\",\"owner\":\"testuser\",\"tenant\":\"agave.dev\"}", NotificationMessageBody.class);
+
+		Assert.assertNotNull(decoded.getContext(), "A missing context should be read as an empty context.");
+		Assert.assertNull(decoded.getContext().getEvent());
+	}
+}
@@ -0,0 +1,292 @@
+package org.iplantc.service.remote.ssh;
+
+import org.apache.log4j.Logger;
+import org.iplantc.service.remote.exceptions.RemoteExecutionException;
+import org.iplantc.service.systems.Settings;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps authenticated SSH connections alive per host, port, user and credential
+ * so that {@link MaverickSSHSubmissionClient} instances created by launchers,
+ * monitors and killers can multiplex exec channels over a shared connection
+ * rather than repeating the key exchange and authentication for every command.
+ * Connections are capped at {@link Settings#SSH_SESSION_MAX_CHANNELS} concurrent
+ * channels, kept alive on a fixed interval, and reaped when idle or broken.
+ *
+ * @author dooley
+ */
+public class MaverickSSHSessionManager {
+    private static final Logger log = Logger.getLogger(MaverickSSHSessionManager.class);
+
+    // how long a caller will wait for a free channel when all connections are saturated
+    private static final long CHANNEL_WAIT_MILLIS = 30000;
+
+    private static volatile MaverickSSHSessionManager _instance;
+
+    private final Map<String, HostPool> connections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService keepaliveExecutor;
+
+    /**
+     * Opens a new authenticated {@link PooledSshConnection} when the pool has no
+     * connection with a free channel.
+     */
+    public interface ConnectionFactory {
+        PooledSshConnection connect(String poolKey) throws RemoteExecutionException;
+    }
+
+    /**
+     * The connections for a single pool key, along with the number being opened.
+     * Callers must hold the lock on the pool to read or change it.
+     */
+    private static class HostPool {
+        final List<PooledSshConnection> connections = new ArrayList<>();
+        int connecting = 0;
+        // set once the pool is removed from the map, so late callers fetch a new one
+        boolean retired = false;
+    }
+
+    /**
+     * @return the singleton session manager for this JVM
+     */
+    public static MaverickSSHSessionManager getInstance() {
+        if (_instance == null) {
+            synchronized (MaverickSSHSessionManager.class) {
+                if (_instance == null) {
+                    _instance = new MaverickSSHSessionManager();
+                }
+            }
+        }
+        return _instance;
+    }
+
+    private MaverickSSHSessionManager() {
+        keepaliveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ssh-session-keepalive");
+            t.setDaemon(true);
+            return t;
+        });
+        int interval = Math.max(5, Settings.SSH_SESSION_KEEPALIVE_SECS);
+        keepaliveExecutor.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reserves a channel on a pooled connection for the given key, opening a new
+     * connection with the {@code factory} when every existing connection is at its
+     * channel limit. When the per-key connection limit is also reached, the caller
+     * blocks until a channel is released.
+     *
+     * @param poolKey the unique key for the host, port, user and credential
+     * @param factory used to authenticate a new connection when needed
+     * @return a connection on which one channel has been reserved for the caller
+     * @throws RemoteExecutionException if no connection could be established or no
+     * channel became available in time
+     */
+    public PooledSshConnection acquire(String poolKey, ConnectionFactory factory)
+    throws RemoteExecutionException {
+        long deadline = System.currentTimeMillis() + CHANNEL_WAIT_MILLIS;
+
+        while (true) {
+            HostPool pool = connections.computeIfAbsent(poolKey, k -> new HostPool());
+
+            synchronized (pool) {
+                if (pool.retired) continue;
+
+                pruneUnhealthy(pool);
+
+                for (PooledSshConnection connection : pool.connections) {
+                    if (connection.tryReserveChannel(Settings.SSH_SESSION_MAX_CHANNELS)) {
+                        return connection;
+                    }
+                }
+
+                if (pool.connections.size() + pool.connecting >= Math.max(1, Settings.SSH_SESSION_MAX_CONNECTIONS)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new RemoteExecutionException("Timed out waiting for a free ssh channel to " +
+                                poolKey.substring(0, poolKey.lastIndexOf('#')));
+                    }
+
+                    try {
+                        pool.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RemoteExecutionException("Interrupted waiting for a free ssh channel", e);
+                    }
+                    continue;
+                }
+
+                pool.connecting++;
+            }
+
+            // the login happens outside the pool lock so callers waiting on channels of
+            // the existing connections are not held up by a slow or unreachable host.
+            PooledSshConnection connection = null;
+            boolean closed = false;
+            try {
+                connection = factory.connect(poolKey);
+                connection.tryReserveChannel(Settings.SSH_SESSION_MAX_CHANNELS);
+            } finally {
+                synchronized (pool) {
+                    pool.connecting--;
+                    closed = pool.retired;
+                    if (connection != null && !closed) {
+                        pool.connections.add(connection);
+                        if (log.isDebugEnabled())
+                            log.debug("Opened pooled ssh connection " + pool.connections.size() + " for " + poolKey);
+                    } else if (!closed) {
+                        retireIfEmpty(poolKey, pool);
+                    }
+                    pool.notifyAll();
+                }
+            }
+
+            // the pool was closed while this connection was being opened
+            if (closed) {
+                connection.disconnect();
+                throw new RemoteExecutionException("The ssh session pool for " +
+                        poolKey.substring(0, poolKey.lastIndexOf('#')) + " was closed");
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Returns a channel reserved by {@link #acquire(String, ConnectionFactory)}. Unhealthy
+     * connections are disconnected once their last channel is released.
+     *
+     * @param connection the connection the channel was reserved on
+     * @param healthy false if the caller saw a connection level failure
+     */
+    public void release(PooledSshConnection connection, boolean healthy) {
+        if (connection == null) return;
+
+        if (!healthy) connection.invalidate();
+
+        connection.releaseChannel();
+
+        // unhealthy connections may already have been pruned from the pool while
+        // this channel was in use, so they are disconnected here by the last user.
+        if (!connection.isHealthy() && connection.getActiveChannels() == 0) {
+            connection.disconnect();
+        }
+
+        HostPool pool = connections.get(connection.getPoolKey());
+        if (pool != null) {
+            synchronized (pool) {
+                pruneUnhealthy(pool);
+                retireIfEmpty(connection.getPoolKey(), pool);
+                pool.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Disconnects and removes every pooled connection. Mainly useful for shutdown hooks
+     * and tests.
+     */
+    public void closeAll() {
+        for (Map.Entry<String, HostPool> entry : connections.entrySet()) {
+            HostPool pool = entry.getValue();
+            synchronized (pool) {
+                for (PooledSshConnection connection : pool.connections) {
+                    connection.disconnect();
+                }
+                pool.connections.clear();
+                pool.retired = true;
+                connections.remove(entry.getKey(), pool);
+                pool.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of live pooled connections across all keys
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (HostPool pool : connections.values()) {
+            synchronized (pool) {
+                count += pool.connections.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of pool keys with live or opening connections
+     */
+    public int getPoolCount() {
+        return connections.size();
+    }
+
+    /**
+     * Removes broken or invalidated connections with no active channels from the pool.
+     * Callers must hold the pool lock.
+     *
+     * @param pool the pool to prune
+     */
+    private void pruneUnhealthy(HostPool pool) {
+        Iterator<PooledSshConnection> iter = pool.connections.iterator();
+        while (iter.hasNext()) {
+            PooledSshConnection connection = iter.next();
+            if (!connection.isHealthy()) {
+                connection.invalidate();
+                if (connection.getActiveChannels() == 0) {
+                    connection.disconnect();
+                }
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes a pool with no connections and none being opened, so the map does not
+     * keep an entry for every host ever connected to. Callers must hold the pool lock.
+     *
+     * @param poolKey the key of the pool
+     * @param pool the pool to remove if empty
+     */
+    private void retireIfEmpty(String poolKey, HostPool pool) {
+        if (pool.connections.isEmpty() && pool.connecting == 0) {
+            pool.retired = true;
+            connections.remove(poolKey, pool);
+        }
+    }
+
+    /**
+     * Periodic maintenance. Idle connections past the idle timeout are disconnected,
+     * the rest receive a keepalive so firewalls and login nodes do not drop them.
+     */
+    void maintain() {
+        long idleCutoff = System.currentTimeMillis() - (Settings.SSH_SESSION_IDLE_TIMEOUT_SECS * 1000L);
+        try {
+            for (Map.Entry<String, HostPool> entry : connections.entrySet()) {
+                HostPool pool = entry.getValue();
+                synchronized (pool) {
+                    Iterator<PooledSshConnection> iter = pool.connections.iterator();
+                    while (iter.hasNext()) {
+                        PooledSshConnection connection = iter.next();
+                        if (connection.getActiveChannels() > 0) continue;
+
+                        if (connection.getLastUsed() < idleCutoff || !connection.keepalive()) {
+                            connection.disconnect();
+                            iter.remove();
+                        }
+                    }
+                    retireIfEmpty(entry.getKey(), pool);
+                    pool.notifyAll();
+                }
+            }
+        } catch (Throwable t) {
+            log.error("Failed to maintain pooled ssh connections", t);
+        }
+    }
+}
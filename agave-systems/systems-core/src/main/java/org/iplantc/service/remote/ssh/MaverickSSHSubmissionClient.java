@@ -12,6 +12,7 @@ import com.sshtools.ssh2.KBIAuthentication;
 import com.sshtools.ssh2.Ssh2Client;
 import com.sshtools.ssh2.Ssh2Context;
 import com.sshtools.ssh2.Ssh2PublicKeyAuthentication;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.iplantc.service.remote.RemoteSubmissionClient;
@@ -37,7 +38,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Client to execute commands on remote systems via SSH. Tunneling is supported
  * when a proxyHost and proxyPort are specified. The authentication to the proxy
- * server is assumed to be the same as the target hostname.
+ * server is assumed to be the same as the target hostname. Non-tunneled commands
+ * are run over connections shared through the {@link MaverickSSHSessionManager}
+ * unless {@link Settings#SSH_SESSION_POOLING_ENABLED} is false.
  *
  * @author Rion Dooley <dooley@tacc.utexas.edu>
  */
@@ -447,6 +450,12 @@ public class MaverickSSHSubmissionClient implements RemoteSubmissionClient {
             // Get a key for the attempt mapping.
             String attemptKey = getAttemptKey(command);
 
+            // Multiplex the command over a pooled connection when possible. Tunneled
+            // connections are not pooled since they depend on a local forwarding port.
+            if (Settings.SSH_SESSION_POOLING_ENABLED && !useTunnel()) {
+                return runPooledCommand(command, attemptKey);
+            }
+
             /*
              * Start a session and do basic IO
              */
@@ -575,61 +584,10 @@ public class MaverickSSHSubmissionClient implements RemoteSubmissionClient {
                     }
 
 
-                    // Fork the command on the remote system.  Shell is not null if we get here.
-                    ShellProcess process = null;
-                    long startMs = Instant.now().toEpochMilli();
-                    try {
-                        process = shell.executeCommand(command, true, "UTF-8");
-                    } catch (Exception e) {
-                        String emsg = e.getMessage();
-                        String msg = "Unable to execute command \"" + command + "\" : " + emsg;
-                        log.error(msg, e);
-
-                        // Increment the number of failed attempts for this key only if the failure
-                        // was a timeout.  A new mapping will be inserted and its value incremented
-                        // to 1 if the key doesn't already appear in the map.  If key already exists
-                        // in the map, its value is incremented.
-                        if ((emsg != null) && (emsg.contains("connection timed out")))
-                            _attemptMap.computeIfAbsent(attemptKey, k -> new AtomicInteger()).incrementAndGet();
-
-                        throw e;
-                    } finally {
-                        if (log.isDebugEnabled()) {
-                            long stopMs = Instant.now().toEpochMilli();
-                            log.debug("***** Remote command took " + (stopMs - startMs) + "ms: " + command);
-                        }
-
-                        // Remove any attempt history on success or when attempts have been exhausted.
-                        if ((process != null) || isLastAttempt(attemptKey)) _attemptMap.remove(attemptKey);
-                    }
-
                     try {
-                        // no idea why, but this fails if we don't wait for 8 seconds
-                        long start = System.currentTimeMillis();
-                        while (process != null &&
-                                process.isActive() &&
-                                (System.currentTimeMillis() - start) < (Settings.MAX_REMOTE_OPERATION_TIME * 1000)) {
-                            if (log.isDebugEnabled())
-                                log.debug("Process has succeeded: " + process.hasSucceeded() + "\n"
-                                        + "Process exit code: " + process.getExitCode() + "\n"
-                                        + "Process command output: " + process.getCommandOutput());
-
-                            Thread.sleep(1000);
-                        }
-                        // TODO: wrap and pass back the exit code
-                        return process.getCommandOutput();
-                    } catch (Throwable t) {
-                        String msg = "Failed to read response from " + hostname;
-                        log.error(msg + ": " + t.getMessage());
-                        throw new RemoteExecutionException(msg, t);
+                        return executeInShell(shell, command, attemptKey);
                     } finally {
-                        try {
-                            shell.exit();
-                        } catch (Throwable e) {
-                            String msg = "Disregarding " + e.getClass().getSimpleName() +
-                                    " exception exiting SSH shell: " + e.getMessage();
-                            log.error(msg);
-                        }
+                        exitShell(shell);
                     }
                 }
             } else {
@@ -647,6 +605,250 @@ public class MaverickSSHSubmissionClient implements RemoteSubmissionClient {
         }
     }
 
+    /**
+     * Runs the command in a new shell channel on a connection obtained from the
+     * {@link MaverickSSHSessionManager}. If the pooled connection turns out to be
+     * stale, it is discarded and the command is retried once on a freshly
+     * authenticated connection.
+     *
+     * @param command the command to run
+     * @param attemptKey the key used to track timed out attempts of this command
+     * @return the output of the command
+     * @throws RemoteExecutionException when the command fails or cannot be run
+     */
+    private String runPooledCommand(String command, String attemptKey) throws RemoteExecutionException {
+        MaverickSSHSessionManager sessionManager = MaverickSSHSessionManager.getInstance();
+        final int timeoutMillis = getTimeoutMillis(attemptKey);
+
+        for (int attempt = 0; ; attempt++) {
+            PooledSshConnection connection = sessionManager.acquire(getPoolKey(),
+                    poolKey -> openPooledConnection(poolKey, timeoutMillis));
+            connection.ensureSoTimeout(timeoutMillis);
+
+            Shell shell;
+            try {
+                shell = new Shell(connection.getClient());
+            } catch (Exception e) {
+                sessionManager.release(connection, false);
+                if (attempt == 0) {
+                    log.debug("Discarding stale pooled connection to " + hostname + ":" + port +
+                            " after channel open failure: " + e.getMessage());
+                    continue;
+                }
+                String msg = "Unable to create new shell on pooled connection to " +
+                        hostname + ":" + port + ": " + e.getMessage();
+                log.error(msg, e);
+                throw new RemoteExecutionException(msg, e);
+            }
+
+            boolean healthy = false;
+            try {
+                String response = executeInShell(shell, command, attemptKey);
+                healthy = true;
+                return response;
+            } catch (RemoteExecutionException e) {
+                throw e;
+            } catch (Exception e) {
+                String msg = String.format("Failed to execute command \"%s\" on %s:%d: %s",
+                        command, hostname, port, e.getMessage());
+                log.error(msg);
+                throw new RemoteExecutionException(msg, e);
+            } finally {
+                exitShell(shell);
+                sessionManager.release(connection, healthy || connection.isHealthy());
+            }
+        }
+    }
+
+    /**
+     * Authenticates a new connection and hands ownership of it to the
+     * {@link MaverickSSHSessionManager}. The first session channel is opened and
+     * kept for the life of the connection since some old SSH2 servers kill the
+     * connection after the first session has closed and no others are open.
+     *
+     * @param poolKey the key under which the connection will be pooled
+     * @param soTimeoutMillis the socket read timeout
+     * @return the authenticated connection
+     * @throws RemoteExecutionException if authentication fails
+     */
+    private PooledSshConnection openPooledConnection(String poolKey, int soTimeoutMillis)
+    throws RemoteExecutionException {
+        if (!authenticate(soTimeoutMillis)) {
+            try { close(); } catch (Exception ignored) {}
+            throw new RemoteExecutionException("Failed to authenticate to " + hostname);
+        }
+
+        SshSession keeperSession;
+        try {
+            keeperSession = ssh2.openSessionChannel();
+            keeperSession.requestPseudoTerminal("vt100", 80, 24, 0, 0);
+            if (!keeperSession.startShell()) {
+                throw new RemoteExecutionException("Failed to establish interactive shell session to "
+                        + hostname + ":" + port);
+            }
+        } catch (Exception e) {
+            String msg = getMsgPrefix() + "Unable to start session on pooled connection: " + e.getMessage();
+            log.error(msg, e);
+            try { close(); } catch (Exception ignored) {}
+            throw new RemoteExecutionException(msg, e);
+        }
+
+        PooledSshConnection connection = new PooledSshConnection(poolKey, ssh2, transport, keeperSession);
+
+        // the pool owns the connection now, so this client must not close it.
+        ssh2 = null;
+        transport = null;
+        auth = null;
+        con = null;
+
+        return connection;
+    }
+
+    /**
+     * Create a key unique to the user, host, port and credential under which
+     * authenticated connections are pooled. Credentials are hashed so that a
+     * credential update never reuses a connection opened with the old one.
+     *
+     * @return the pool key
+     */
+    private String getPoolKey() {
+        return username + "@" + hostname + ":" + port + "#" +
+                DigestUtils.sha1Hex(StringUtils.defaultString(password) + "|" +
+                        StringUtils.defaultString(publicKey) + "|" +
+                        StringUtils.defaultString(privateKey));
+    }
+
+    /**
+     * Forks the command in the given interactive shell and waits up to
+     * {@link Settings#MAX_REMOTE_OPERATION_TIME} seconds for it to complete.
+     * The shell is left open for the caller to exit.
+     *
+     * @param shell an open shell on an authenticated connection
+     * @param command the command to run
+     * @param attemptKey the key used to track timed out attempts of this command
+     * @return the output of the command
+     * @throws Exception if the command could not be forked or its response read
+     */
+    private String executeInShell(Shell shell, String command, String attemptKey) throws Exception {
+        // Fork the command on the remote system.
+        ShellProcess process = null;
+        long startMs = Instant.now().toEpochMilli();
+        try {
+            process = shell.executeCommand(command, true, "UTF-8");
+        } catch (Exception e) {
+            String emsg = e.getMessage();
+            String msg = "Unable to execute command \"" + command + "\" : " + emsg;
+            log.error(msg, e);
+
+            // Increment the number of failed attempts for this key only if the failure
+            // was a timeout.  A new mapping will be inserted and its value incremented
+            // to 1 if the key doesn't already appear in the map.  If key already exists
+            // in the map, its value is incremented.
+            if ((emsg != null) && (emsg.contains("connection timed out")))
+                _attemptMap.computeIfAbsent(attemptKey, k -> new AtomicInteger()).incrementAndGet();
+
+            throw e;
+        } finally {
+            if (log.isDebugEnabled()) {
+                long stopMs = Instant.now().toEpochMilli();
+                log.debug("***** Remote command took " + (stopMs - startMs) + "ms: " + command);
+            }
+
+            // Remove any attempt history on success or when attempts have been exhausted.
+            if ((process != null) || isLastAttempt(attemptKey)) _attemptMap.remove(attemptKey);
+        }
+
+        try {
+            // no idea why, but this fails if we don't wait for 8 seconds
+            long start = System.currentTimeMillis();
+            while (process != null &&
+                    process.isActive() &&
+                    (System.currentTimeMillis() - start) < (Settings.MAX_REMOTE_OPERATION_TIME * 1000)) {
+                if (log.isDebugEnabled())
+                    log.debug("Process has succeeded: " + process.hasSucceeded() + "\n"
+                            + "Process exit code: " + process.getExitCode() + "\n"
+                            + "Process command output: " + process.getCommandOutput());
+
+                Thread.sleep(1000);
+            }
+            // TODO: wrap and pass back the exit code
+            return process.getCommandOutput();
+        } catch (Throwable t) {
+            String msg = "Failed to read response from " + hostname;
+            log.error(msg + ": " + t.getMessage());
+            throw new RemoteExecutionException(msg, t);
+        }
+    }
+
+    /**
+     * Exits the shell, closing its session channel. Failures are logged and swallowed.
+     *
+     * @param shell the shell to exit
+     */
+    private void exitShell(Shell shell) {
+        try {
+            shell.exit();
+        } catch (Throwable e) {
+            String msg = "Disregarding " + e.getClass().getSimpleName() +
+                    " exception exiting SSH shell: " + e.getMessage();
+            log.error(msg);
+        }
+    }
+
+    /**
+     * Whether commands can be started with {@link #startCommand(String)}. Streaming
+     * requires a direct connection, so tunneled clients do not support it.
+     *
+     * @return true if this client connects directly to the remote host
+     */
+    public boolean isStreamingSupported() {
+        return !useTunnel();
+    }
+
+    /**
+     * Starts the command on an exec channel of a new, unpooled connection and returns
+     * without waiting for it to complete. The caller owns the returned process and must
+     * close it, which also closes this client.
+     *
+     * @param command the command to run
+     * @return the running command
+     * @throws RemoteExecutionException if the connection cannot be made or the command cannot be started
+     */
+    public SshCommandProcess startCommand(String command) throws RemoteExecutionException {
+        if (useTunnel()) {
+            throw new RemoteExecutionException("Streaming commands are not supported when tunneling to "
+                    + hostname + ":" + port + " through " + proxyHost + ":" + proxyPort);
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("Starting streaming command " + command + " on " + hostname + ":" + port);
+
+        SshSession execSession = null;
+        try {
+            if (!authenticate(org.iplantc.service.transfer.Settings.STAGING_TIMEOUT_SECS * 1000)) {
+                throw new RemoteExecutionException("Failed to authenticate to " + hostname);
+            }
+
+            execSession = ssh2.openSessionChannel();
+            if (!execSession.executeCommand(command)) {
+                throw new RemoteExecutionException("Failed to start command \"" + command + "\" on "
+                        + hostname + ":" + port);
+            }
+
+            return new SshCommandProcess(this, execSession, command);
+        } catch (Throwable t) {
+            if (execSession != null) try { execSession.close(); } catch (Throwable ignored) {}
+            try { close(); } catch (Exception ignored) {}
+
+            if (t instanceof RemoteExecutionException) throw (RemoteExecutionException) t;
+
+            String msg = String.format("Failed to start command \"%s\" on %s:%d: %s",
+                    command, hostname, port, t.getMessage());
+            log.error(msg);
+            throw new RemoteExecutionException(msg, t);
+        }
+    }
+
     @Override
     public void close() throws Exception {
         // Disconnect all communication links.
@@ -0,0 +1,176 @@
+package org.iplantc.service.remote.ssh;
+
+import com.sshtools.ssh.SshSession;
+import com.sshtools.ssh2.Ssh2Client;
+import org.apache.log4j.Logger;
+
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An authenticated SSH connection held by the {@link MaverickSSHSessionManager}.
+ * Each connection tracks the number of exec channels currently multiplexed
+ * over it so the manager can cap channel usage per connection and reap idle
+ * connections.
+ *
+ * @author dooley
+ */
+public class PooledSshConnection {
+    private static final Logger log = Logger.getLogger(PooledSshConnection.class);
+
+    private final String poolKey;
+    private final Ssh2Client ssh2;
+    private final Socket transport;
+    private final SshSession keeperSession;
+    private final AtomicInteger activeChannels = new AtomicInteger(0);
+    private final long created;
+    private volatile long lastUsed;
+    private volatile boolean invalidated = false;
+
+    /**
+     * @param poolKey the key under which this connection is pooled
+     * @param ssh2 the authenticated client
+     * @param transport the socket backing the client
+     * @param keeperSession the otherwise unused session channel kept open for the
+     *                      life of the connection. Some old SSH2 servers drop the
+     *                      connection once the last session is closed.
+     */
+    public PooledSshConnection(String poolKey, Ssh2Client ssh2, Socket transport, SshSession keeperSession) {
+        this.poolKey = poolKey;
+        this.ssh2 = ssh2;
+        this.transport = transport;
+        this.keeperSession = keeperSession;
+        this.created = System.currentTimeMillis();
+        this.lastUsed = this.created;
+    }
+
+    /**
+     * Reserves a channel slot on this connection if fewer than {@code maxChannels}
+     * are currently in use and the connection is still healthy.
+     *
+     * @param maxChannels the maximum concurrent channels allowed on this connection
+     * @return true if a slot was reserved, false otherwise
+     */
+    public boolean tryReserveChannel(int maxChannels) {
+        if (!isHealthy()) return false;
+
+        while (true) {
+            int current = activeChannels.get();
+            if (current >= maxChannels) return false;
+            if (activeChannels.compareAndSet(current, current + 1)) {
+                lastUsed = System.currentTimeMillis();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a previously reserved channel slot to this connection.
+     */
+    public void releaseChannel() {
+        if (activeChannels.decrementAndGet() < 0) {
+            activeChannels.set(0);
+        }
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if the connection has not been invalidated and the underlying
+     * client is still connected and authenticated.
+     */
+    public boolean isHealthy() {
+        return !invalidated && ssh2 != null && ssh2.isConnected() && ssh2.isAuthenticated();
+    }
+
+    /**
+     * Flags this connection as unusable. It will be disconnected once the last
+     * active channel is released or the next time the manager reaps connections.
+     */
+    public void invalidate() {
+        this.invalidated = true;
+    }
+
+    /**
+     * Sends a keepalive over the connection by opening and immediately closing a
+     * session channel. Any failure invalidates the connection.
+     *
+     * @return true if the keepalive succeeded, false otherwise
+     */
+    public boolean keepalive() {
+        if (!isHealthy()) return false;
+
+        SshSession session = null;
+        try {
+            session = ssh2.openSessionChannel();
+            return true;
+        } catch (Exception e) {
+            log.debug("Keepalive failed for pooled ssh connection " + poolKey + ": " + e.getMessage());
+            invalidate();
+            return false;
+        } finally {
+            if (session != null) try { session.close(); } catch (Exception ignored) {}
+        }
+    }
+
+    /**
+     * Disconnects the client and closes the socket. All exceptions are swallowed.
+     */
+    public void disconnect() {
+        invalidate();
+        try {
+            if (keeperSession != null) keeperSession.close();
+        } catch (Throwable t) {
+            log.debug("Keeper session close failure for " + poolKey + ": " + t.getMessage());
+        }
+        try {
+            if (ssh2 != null) ssh2.disconnect();
+        } catch (Throwable t) {
+            log.debug("ssh2 disconnect failure for " + poolKey + ": " + t.getMessage());
+        }
+        try {
+            if (transport != null) transport.close();
+        } catch (Throwable t) {
+            log.debug("Socket close failure for " + poolKey + ": " + t.getMessage());
+        }
+    }
+
+    /**
+     * Raises the socket read timeout to at least the given value. The socket is shared
+     * by all channels on the connection, so the timeout is never lowered.
+     *
+     * @param soTimeoutMillis the minimum read timeout in milliseconds
+     */
+    public void ensureSoTimeout(int soTimeoutMillis) {
+        try {
+            if (transport != null && transport.getSoTimeout() < soTimeoutMillis) {
+                transport.setSoTimeout(soTimeoutMillis);
+            }
+        } catch (Exception e) {
+            log.debug("Unable to adjust socket timeout for " + poolKey + ": " + e.getMessage());
+        }
+    }
+
+    public String getPoolKey() {
+        return poolKey;
+    }
+
+    public Ssh2Client getClient() {
+        return ssh2;
+    }
+
+    public int getActiveChannels() {
+        return activeChannels.get();
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public boolean isInvalidated() {
+        return invalidated;
+    }
+}
@@ -0,0 +1,103 @@
+package org.iplantc.service.remote.ssh;
+
+import com.sshtools.ssh.SshSession;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A command started on an exec channel of a dedicated SSH connection. Unlike
+ * {@link MaverickSSHSubmissionClient#runCommand(String)}, the standard streams of
+ * the command are exposed directly, so large or binary payloads can be piped
+ * through the command without being buffered in memory. Closing the process
+ * closes both the channel and the connection it was started on.
+ *
+ * @see MaverickSSHSubmissionClient#startCommand(String)
+ */
+public class SshCommandProcess implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(SshCommandProcess.class);
+
+    private final MaverickSSHSubmissionClient client;
+    private final SshSession session;
+    private final String command;
+
+    protected SshCommandProcess(MaverickSSHSubmissionClient client, SshSession session, String command) {
+        this.client = client;
+        this.session = session;
+        this.command = command;
+    }
+
+    /**
+     * @return the standard output of the remote command
+     * @throws IOException if the channel is no longer open
+     */
+    public InputStream getInputStream() throws IOException {
+        return session.getInputStream();
+    }
+
+    /**
+     * @return the standard error of the remote command
+     * @throws IOException if the channel is no longer open
+     */
+    public InputStream getErrorStream() throws IOException {
+        return session.getStderrInputStream();
+    }
+
+    /**
+     * @return the standard input of the remote command
+     * @throws IOException if the channel is no longer open
+     */
+    public OutputStream getOutputStream() throws IOException {
+        return session.getOutputStream();
+    }
+
+    /**
+     * Sends EOF on the standard input of the remote command.
+     *
+     * @throws IOException if the channel is no longer open
+     */
+    public void closeInput() throws IOException {
+        session.getOutputStream().close();
+    }
+
+    /**
+     * Waits for the remote command to exit.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return the exit code of the command, or null if the command did not exit
+     * within the timeout or the server did not report an exit code
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public Integer waitFor(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!session.isClosed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        int exitCode = session.exitCode();
+        return exitCode == SshSession.EXITCODE_NOT_RECEIVED ? null : exitCode;
+    }
+
+    /**
+     * @return the command running on this channel
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close();
+        } catch (Throwable t) {
+            log.debug("Disregarding failure closing exec channel for command \"" + command + "\": " + t.getMessage());
+        }
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.debug("Disregarding failure closing connection to " + client.getHost() + ": " + e.getMessage());
+        }
+    }
+}
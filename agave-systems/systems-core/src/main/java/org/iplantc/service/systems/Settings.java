@@ -85,6 +85,13 @@ public class Settings {
 	public static String 						IPLANT_DOCS;
 
 	public static long							MAX_REMOTE_OPERATION_TIME;
+
+	/* Remote submission ssh session pooling settings */
+	public static boolean						SSH_SESSION_POOLING_ENABLED;
+	public static int							SSH_SESSION_MAX_CHANNELS;
+	public static int							SSH_SESSION_MAX_CONNECTIONS;
+	public static int							SSH_SESSION_KEEPALIVE_SECS;
+	public static int							SSH_SESSION_IDLE_TIMEOUT_SECS;
 	
 	static
 	{
@@ -218,6 +225,36 @@ public class Settings {
 			log.error("Failure loading setting iplant.max.remote.connection.time", e);
 			MAX_REMOTE_OPERATION_TIME = 90;
 		}
+
+		SSH_SESSION_POOLING_ENABLED = Boolean.valueOf(props.getProperty("iplant.ssh.session.pooling.enabled", "true"));
+
+		try {
+			SSH_SESSION_MAX_CHANNELS = Integer.parseInt(props.getProperty("iplant.ssh.session.max.channels", "8"));
+		} catch (Exception e){
+			log.error("Failure loading setting iplant.ssh.session.max.channels", e);
+			SSH_SESSION_MAX_CHANNELS = 8;
+		}
+
+		try {
+			SSH_SESSION_MAX_CONNECTIONS = Integer.parseInt(props.getProperty("iplant.ssh.session.max.connections", "2"));
+		} catch (Exception e){
+			log.error("Failure loading setting iplant.ssh.session.max.connections", e);
+			SSH_SESSION_MAX_CONNECTIONS = 2;
+		}
+
+		try {
+			SSH_SESSION_KEEPALIVE_SECS = Integer.parseInt(props.getProperty("iplant.ssh.session.keepalive.secs", "60"));
+		} catch (Exception e){
+			log.error("Failure loading setting iplant.ssh.session.keepalive.secs", e);
+			SSH_SESSION_KEEPALIVE_SECS = 60;
+		}
+
+		try {
+			SSH_SESSION_IDLE_TIMEOUT_SECS = Integer.parseInt(props.getProperty("iplant.ssh.session.idle.timeout.secs", "300"));
+		} catch (Exception e){
+			log.error("Failure loading setting iplant.ssh.session.idle.timeout.secs", e);
+			SSH_SESSION_IDLE_TIMEOUT_SECS = 300;
+		}
 	}
 
 }
@@ -286,6 +286,60 @@ public class SystemDao extends AbstractDao {
         }
     }
 
+    /**
+     * Returns an opaque version of the available {@link RemoteSystem} with the given
+     * {@code systemId} in the current tenant. The version changes whenever the system
+     * or its batch queues, credentials, or roles are added, removed, or updated, so it
+     * can be used to check whether a previously loaded system is still current without
+     * loading the full system.
+     *
+     * @param systemId the system id of the system
+     * @return the current version of the system, or null if no available system matches
+     */
+    public String getSnapshotVersion(String systemId) {
+        try {
+            Session session = getSession();
+            String sql = "select concat_ws('|', s.id, s.last_updated, s.`status`, "
+                    + "         (select concat_ws(',', count(*), max(a.last_updated)) from authconfigs a "
+                    + "             where a.remote_config_id in (s.storage_config, e.login_config)), "
+                    + "         (select concat_ws(',', count(*), max(q.last_updated)) from batchqueues q "
+                    + "             where q.execution_system_id = s.id), "
+                    + "         (select concat_ws(',', count(*), max(r.last_updated)) from systemroles r "
+                    + "             where r.remote_system_id = s.id) "
+                    + "     ) as version "
+                    + "from systems s "
+                    + "     left join executionsystems e on e.id = s.id "
+                    + "where s.system_id = :systemid "
+                    + "     and s.tenant_id = :tenantid "
+                    + "     and s.available = :available";
+
+            String version = (String) session.createSQLQuery(sql)
+                    .addScalar("version", StandardBasicTypes.STRING)
+                    .setString("systemid", systemId)
+                    .setString("tenantid", TenancyHelper.getCurrentTenantId())
+                    .setBoolean("available", Boolean.TRUE)
+                    .setMaxResults(1)
+                    .uniqueResult();
+
+            session.flush();
+
+            return version;
+        } catch (HibernateException ex) {
+            try {
+                if (HibernateUtil.getSession().isOpen()) {
+                    HibernateUtil.rollbackTransaction();
+                }
+            } catch (Exception ignored) {
+            }
+            throw ex;
+        } finally {
+            try {
+                HibernateUtil.commitTransaction();
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public List<RemoteSystem> findByExample(String name, Object value) {
         try {
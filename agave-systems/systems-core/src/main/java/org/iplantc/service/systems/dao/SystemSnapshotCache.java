@@ -0,0 +1,68 @@
+package org.iplantc.service.systems.dao;
+
+import org.iplantc.service.common.Settings;
+import org.iplantc.service.common.persistence.TenancyHelper;
+import org.iplantc.service.common.persistence.VersionedSnapshotCache;
+import org.iplantc.service.systems.model.RemoteSystem;
+
+/**
+ * Shared, versioned cache of available {@link RemoteSystem}s by tenant and system id. Long running
+ * workers use this rather than {@link SystemDao#findBySystemId(String)} to avoid loading the full system,
+ * with its queues and credentials, every time a job is processed. Cached systems are refreshed when
+ * {@link SystemDao#getSnapshotVersion(String)} changes and are invalidated by system update events
+ * processed in this JVM.
+ *
+ * Systems returned from this cache are shared between threads and must not be modified or reattached
+ * to a hibernate session. Use {@link SystemDao} to obtain a system that will be updated.
+ *
+ * @author dooley
+ */
+public class SystemSnapshotCache {
+
+    private static final VersionedSnapshotCache<RemoteSystem, RuntimeException> cache =
+            new VersionedSnapshotCache<RemoteSystem, RuntimeException>(
+                    Settings.ENTITY_SNAPSHOT_CACHE_SIZE,
+                    Settings.ENTITY_SNAPSHOT_CACHE_VERSION_CHECK_SECS * 1000L,
+                    key -> new SystemDao().findBySystemId(getSystemId(key)),
+                    key -> new SystemDao().getSnapshotVersion(getSystemId(key)));
+
+    private SystemSnapshotCache() {}
+
+    /**
+     * Returns the available system with the given id in the current tenant.
+     *
+     * @param systemId the system id of the system
+     * @return the shared system, or null if no available system matches
+     */
+    public static RemoteSystem getSystem(String systemId) {
+        if (systemId == null) return null;
+
+        return cache.get(getKey(TenancyHelper.getCurrentTenantId(), systemId));
+    }
+
+    /**
+     * Removes the given system from the cache so the next read loads it from the db.
+     *
+     * @param system the system that was updated
+     */
+    public static void invalidate(RemoteSystem system) {
+        if (system == null || system.getSystemId() == null) return;
+
+        cache.invalidate(getKey(system.getTenantId(), system.getSystemId()));
+    }
+
+    /**
+     * Removes all systems from the cache.
+     */
+    public static void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static String getKey(String tenantId, String systemId) {
+        return tenantId + "/" + systemId;
+    }
+
+    private static String getSystemId(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+}
@@ -8,6 +8,7 @@ import org.iplantc.service.common.exceptions.EntityEventPersistenceException;
 import org.iplantc.service.common.exceptions.EntityEventProcessingException;
 import org.iplantc.service.notification.managers.NotificationManager;
 import org.iplantc.service.systems.dao.SystemDao;
+import org.iplantc.service.systems.dao.SystemSnapshotCache;
 import org.iplantc.service.systems.model.RemoteSystem;
 import org.iplantc.service.systems.model.RemoteSystemEvent;
 import org.iplantc.service.systems.model.SystemRole;
@@ -84,6 +85,9 @@ public class RemoteSystemEventProcessor {
 			if (system == null) {
 				throw new EntityEventProcessingException("Valid system must be provided to process event.");
 			}
+
+			// readers in this jvm reload the system rather than wait for its version check
+			SystemSnapshotCache.invalidate(system);
 			
 			if (eventType == null) {
 				throw new EntityEventProcessingException("Valid system event type must be provided to process event.");
@@ -134,6 +138,8 @@ public class RemoteSystemEventProcessor {
 			if (system == null) {
 				throw new EntityEventProcessingException("Valid system must be provided to process event.");
 			}
+
+			SystemSnapshotCache.invalidate(system);
 			
 			if (systemRole == null) {
 				throw new EntityEventProcessingException("Valid system role must be provided to process event.");
@@ -212,6 +218,8 @@ public class RemoteSystemEventProcessor {
 			if (system == null) {
 				throw new EntityEventProcessingException("Valid system must be provided to process event.");
 			}
+
+			SystemSnapshotCache.invalidate(system);
 			
 			if (eventType == null) {
 				throw new EntityEventProcessingException("Valid system event type must be provided to process event.");
@@ -278,6 +286,8 @@ public class RemoteSystemEventProcessor {
 			if (system == null) {
 				throw new EntityEventProcessingException("Valid system must be provided to process event.");
 			}
+
+			SystemSnapshotCache.invalidate(system);
 			
 			if (oldStatus == null) {
 				throw new EntityEventProcessingException("Prior system status must be provided to process event.");
@@ -248,6 +248,129 @@ public enum SchedulerType
 		}
 	}
 	
+	/**
+	 * Whether jobs can be submitted to this {@link SchedulerType} as a native job array, where a single batch
+	 * script is queued once and run as many indexed tasks.
+	 *
+	 * @return true if the scheduler supports job arrays
+	 */
+	public boolean isJobArraySupported()
+	{
+		switch (this)
+		{
+			case SLURM:
+			case CUSTOM_SLURM:
+			case PBS:
+			case CUSTOM_PBS:
+			case SGE:
+			case CUSTOM_GRIDENGINE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Provides the index the scheduler assigns to the first task of a job array. Task indexes of
+	 * a job array are contiguous from this value.
+	 *
+	 * @return the first task index of a job array
+	 */
+	public int getJobArrayFirstTaskIndex()
+	{
+		switch (this)
+		{
+			case SGE:
+			case CUSTOM_GRIDENGINE:
+				return 1;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Provides the batch script directive requesting a job array of {@code taskCount} tasks.
+	 *
+	 * @param taskCount the number of tasks in the job array
+	 * @return the job array directive line for the batch script
+	 * @throws UnsupportedOperationException if the scheduler does not support job arrays
+	 * @see #isJobArraySupported()
+	 */
+	public String getJobArrayDirective(int taskCount)
+	{
+		int firstTask = getJobArrayFirstTaskIndex();
+		int lastTask = firstTask + taskCount - 1;
+
+		switch (this)
+		{
+			case SLURM:
+			case CUSTOM_SLURM:
+				return "#SBATCH --array=" + firstTask + "-" + lastTask;
+			case PBS:
+			case CUSTOM_PBS:
+				return "#PBS -J " + firstTask + "-" + lastTask;
+			case SGE:
+			case CUSTOM_GRIDENGINE:
+				return "#$ -t " + firstTask + "-" + lastTask;
+			default:
+				throw new UnsupportedOperationException(name() + " does not support job arrays");
+		}
+	}
+
+	/**
+	 * Provides the environment variable holding the task index within a running job array task.
+	 *
+	 * @return the name of the task index environment variable
+	 * @throws UnsupportedOperationException if the scheduler does not support job arrays
+	 * @see #isJobArraySupported()
+	 */
+	public String getJobArrayTaskIdVariable()
+	{
+		switch (this)
+		{
+			case SLURM:
+			case CUSTOM_SLURM:
+				return "SLURM_ARRAY_TASK_ID";
+			case PBS:
+			case CUSTOM_PBS:
+				return "PBS_ARRAY_INDEX";
+			case SGE:
+			case CUSTOM_GRIDENGINE:
+				return "SGE_TASK_ID";
+			default:
+				throw new UnsupportedOperationException(name() + " does not support job arrays");
+		}
+	}
+
+	/**
+	 * Provides the id by which the scheduler identifies a single task of a job array. This is used in
+	 * place of a job id when querying or killing the task.
+	 *
+	 * @param arrayJobId the job id returned by the scheduler when the job array was submitted
+	 * @param taskIndex the index of the task in the job array
+	 * @return the scheduler id of the task
+	 * @throws UnsupportedOperationException if the scheduler does not support job arrays
+	 * @see #isJobArraySupported()
+	 */
+	public String getJobArrayTaskId(String arrayJobId, int taskIndex)
+	{
+		switch (this)
+		{
+			case SLURM:
+			case CUSTOM_SLURM:
+				return arrayJobId + "_" + taskIndex;
+			case PBS:
+			case CUSTOM_PBS:
+				// array job ids have the form 1234[].server and subjob ids 1234[7].server
+				return arrayJobId.replace("[]", "[" + taskIndex + "]");
+			case SGE:
+			case CUSTOM_GRIDENGINE:
+				return arrayJobId + "." + taskIndex;
+			default:
+				throw new UnsupportedOperationException(name() + " does not support job arrays");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return name();
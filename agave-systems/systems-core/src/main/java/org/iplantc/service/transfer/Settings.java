@@ -85,6 +85,10 @@ public class Settings {
 	public static boolean						ALLOW_RELAY_TRANSFERS;
 	public static int 							MAX_RELAY_TRANSFER_SIZE;
 
+	public static boolean						ENABLE_TAR_STREAM_TRANSFERS;
+	public static int							TAR_STREAM_MIN_FILE_COUNT;
+	public static long							TAR_STREAM_MAX_AVERAGE_FILE_SIZE_KB;
+
 	public static String						SFTP_RELAY_HOST;
 	public static int							SFTP_RELAY_PORT;
 	
@@ -222,6 +226,24 @@ public class Settings {
             ALLOW_RELAY_TRANSFERS = false;
         }
 
+		try {ENABLE_TAR_STREAM_TRANSFERS = Boolean.valueOf(props.getProperty("iplant.enable.tar.stream.transfers", "true"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.enable.tar.stream.transfers.", e);
+            ENABLE_TAR_STREAM_TRANSFERS = true;
+        }
+
+		try {TAR_STREAM_MIN_FILE_COUNT = Integer.valueOf(props.getProperty("iplant.tar.stream.min.file.count", "100"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.tar.stream.min.file.count.", e);
+            TAR_STREAM_MIN_FILE_COUNT = 100;
+        }
+
+		try {TAR_STREAM_MAX_AVERAGE_FILE_SIZE_KB = Long.valueOf(props.getProperty("iplant.tar.stream.max.average.file.size.kb", "1024"));}
+        catch (Exception e) {
+            log.error("Failure loading setting iplant.tar.stream.max.average.file.size.kb.", e);
+            TAR_STREAM_MAX_AVERAGE_FILE_SIZE_KB = 1024;
+        }
+
 		try {SFTP_RELAY_HOST = props.getProperty("iplant.sftp.relay.host", "sftp-relay");}
 		catch (Exception e) {
 			log.error("Failure loading setting iplant.sftp.relay.host.", e);
@@ -0,0 +1,426 @@
+package org.iplantc.service.transfer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.iplantc.service.remote.exceptions.RemoteExecutionException;
+import org.iplantc.service.remote.ssh.SshCommandProcess;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.sftp.MaverickSFTP;
+
+import java.io.*;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Copies a directory between two SSH-capable systems as a single tar stream rather than
+ * one SFTP transfer per file. The source directory is listed with a single remote
+ * {@code find}, archived on the fly by {@code tar} on the source host, piped through
+ * this host, and unpacked by {@code tar} on the destination host. This removes the
+ * per-file round trips that dominate transfers of many small files.
+ * <p>
+ * Whether a directory is worth streaming is decided by {@link #isWorthStreaming(List)}
+ * from the listing returned by {@link #list(String, String, List)}. Callers are expected
+ * to fall back to per-file copies when any step throws a {@link RemoteDataException}.
+ * </p>
+ *
+ * @see URLCopy
+ */
+public class TarStreamTransfer {
+    private static final Logger log = Logger.getLogger(TarStreamTransfer.class);
+
+    static final String MANIFEST_END_MARKER = "AGAVE_TAR_MANIFEST_END";
+    static final String EXTRACT_SUCCESS_TOKEN = "AGAVE_TAR_EXTRACT_OK";
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final int MAX_ERROR_OUTPUT_LENGTH = 4096;
+    // how often the bytes streamed so far are reported while the stream runs
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    /**
+     * A single file item in the source directory.
+     */
+    public static class Entry {
+        private final String path;
+        private final char type;
+        private final long size;
+
+        public Entry(String path, char type, long size) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+        }
+
+        /**
+         * @return the path of the entry relative to the source directory
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the {@code find -printf %y} type of the entry
+         */
+        public char getType() {
+            return type;
+        }
+
+        /**
+         * @return the size of the entry in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isDirectory() {
+            return type == 'd';
+        }
+    }
+
+    private final MaverickSFTP sourceClient;
+    private final MaverickSFTP destClient;
+    private final BooleanSupplier killed;
+    private final List<SshCommandProcess> activeProcesses = Collections.synchronizedList(new ArrayList<SshCommandProcess>());
+
+    public TarStreamTransfer(MaverickSFTP sourceClient, MaverickSFTP destClient, BooleanSupplier killed) {
+        this.sourceClient = sourceClient;
+        this.destClient = destClient;
+        this.killed = killed;
+    }
+
+    /**
+     * Whether tar streaming can be used between the two clients. Both must be SFTP
+     * clients connecting directly to their hosts so commands can be streamed over SSH.
+     *
+     * @param sourceClient the client for the source system
+     * @param destClient the client for the destination system
+     * @return true if tar streaming is enabled and supported by both clients
+     */
+    public static boolean isSupported(RemoteDataClient sourceClient, RemoteDataClient destClient) {
+        return Settings.ENABLE_TAR_STREAM_TRANSFERS &&
+                sourceClient instanceof MaverickSFTP &&
+                destClient instanceof MaverickSFTP &&
+                ((MaverickSFTP) sourceClient).getSubmissionClient().isStreamingSupported() &&
+                ((MaverickSFTP) destClient).getSubmissionClient().isStreamingSupported();
+    }
+
+    /**
+     * Applies the file count and average file size heuristics to a directory listing.
+     * Directories with few files, or with files large enough that per-file transfers
+     * are bandwidth bound, are left to the regular copy.
+     *
+     * @param entries the listing of the source directory
+     * @return true if the directory should be streamed as a tar archive
+     */
+    public static boolean isWorthStreaming(List<Entry> entries) {
+        long fileCount = 0;
+        long totalSize = 0;
+        for (Entry entry : entries) {
+            if (!entry.isDirectory()) {
+                fileCount++;
+                totalSize += entry.getSize();
+            }
+        }
+
+        return fileCount > 0 &&
+                fileCount >= Settings.TAR_STREAM_MIN_FILE_COUNT &&
+                (totalSize / fileCount) <= (Settings.TAR_STREAM_MAX_AVERAGE_FILE_SIZE_KB * 1024);
+    }
+
+    /**
+     * Lists the source directory recursively with a single remote command.
+     *
+     * @param srcPath the agave path of the source directory
+     * @param resolvedSrcPath the absolute path of the source directory on the source host
+     * @param exclusions paths, absolute or relative to {@code srcPath}, to leave out of the listing
+     * @return every file, link and directory under the source directory that is not excluded
+     * @throws RemoteDataException if the listing cannot be obtained or is incomplete
+     */
+    public List<Entry> list(String srcPath, String resolvedSrcPath, List<String> exclusions)
+    throws RemoteDataException {
+        String command = "cd " + quote(resolvedSrcPath) +
+                " && find . -mindepth 1 -printf '%y %s %P\\0'" +
+                " && printf '" + MANIFEST_END_MARKER + "\\0'";
+
+        SshCommandProcess process = start(sourceClient, command);
+        try {
+            List<Entry> entries = parseListing(process.getInputStream());
+            if (entries == null) {
+                throw new RemoteDataException("Incomplete listing of " + resolvedSrcPath + " on " + sourceClient.getHost());
+            }
+            return filterExclusions(entries, srcPath, exclusions);
+        } catch (IOException e) {
+            throw new RemoteDataException("Failed to list " + resolvedSrcPath + " on " + sourceClient.getHost(), e);
+        } finally {
+            release(process);
+        }
+    }
+
+    /**
+     * Streams the given entries from the source directory into the destination directory,
+     * creating the destination directory if needed.
+     *
+     * @param resolvedSrcPath the absolute path of the source directory on the source host
+     * @param resolvedDestPath the absolute path of the destination directory on the destination host
+     * @param entries the entries to copy, parents before children
+     * @param progressListener receives the archive bytes streamed so far every few seconds. May be null.
+     * @return the number of archive bytes streamed
+     * @throws RemoteDataException if either end of the stream fails
+     * @throws ClosedByInterruptException if the transfer is killed
+     */
+    public long transfer(String resolvedSrcPath, String resolvedDestPath, List<Entry> entries, LongConsumer progressListener)
+    throws RemoteDataException, ClosedByInterruptException {
+        String destCommand = "mkdir -p " + quote(resolvedDestPath) +
+                " && cd " + quote(resolvedDestPath) +
+                " && tar -xf - && echo " + EXTRACT_SUCCESS_TOKEN;
+        String srcCommand = "cd " + quote(resolvedSrcPath) + " && tar --no-recursion --null -T - -cf -";
+
+        ExecutorService executor = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "tar-stream-transfer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        SshCommandProcess dest = null;
+        SshCommandProcess source = null;
+        try {
+            dest = start(destClient, destCommand);
+            source = start(sourceClient, srcCommand);
+
+            // stderr is drained on its own threads so a chatty tar cannot stall either channel
+            Future<String> destErrors = executor.submit(tail(dest.getErrorStream()));
+            Future<String> sourceErrors = executor.submit(tail(source.getErrorStream()));
+            Future<Void> names = executor.submit(writeNames(source, entries));
+
+            long bytes = 0;
+            long nextProgressTime = System.currentTimeMillis() + getProgressIntervalMillis();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            InputStream in = source.getInputStream();
+            OutputStream out = dest.getOutputStream();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                checkKilled();
+                out.write(buffer, 0, read);
+                bytes += read;
+
+                if (progressListener != null && System.currentTimeMillis() >= nextProgressTime) {
+                    progressListener.accept(bytes);
+                    nextProgressTime = System.currentTimeMillis() + getProgressIntervalMillis();
+                }
+            }
+            out.flush();
+            dest.closeInput();
+
+            String destOutput = IOUtils.toString(dest.getInputStream(), StandardCharsets.UTF_8);
+            names.get(Settings.STAGING_TIMEOUT_SECS, TimeUnit.SECONDS);
+            Integer sourceExitCode = source.waitFor(Settings.STAGING_TIMEOUT_SECS * 1000L);
+
+            checkKilled();
+
+            if (sourceExitCode == null) {
+                throw new RemoteDataException("tar did not report an exit status on " +
+                        sourceClient.getHost() + ": " + getQuietly(sourceErrors));
+            } else if (sourceExitCode != 0) {
+                throw new RemoteDataException("tar exited with status " + sourceExitCode + " on " +
+                        sourceClient.getHost() + ": " + getQuietly(sourceErrors));
+            } else if (!StringUtils.contains(destOutput, EXTRACT_SUCCESS_TOKEN)) {
+                throw new RemoteDataException("Failed to unpack tar stream into " + resolvedDestPath +
+                        " on " + destClient.getHost() + ": " + getQuietly(destErrors));
+            }
+
+            return bytes;
+        } catch (ClosedByInterruptException | RemoteDataException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        } catch (Exception e) {
+            if (killed.getAsBoolean()) throw new ClosedByInterruptException();
+            throw new RemoteDataException("Failed to stream " + resolvedSrcPath + " from " +
+                    sourceClient.getHost() + " to " + resolvedDestPath + " on " + destClient.getHost(), e);
+        } finally {
+            release(source);
+            release(dest);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Closes any running remote commands, unblocking the thread running the transfer.
+     */
+    public void kill() {
+        synchronized (activeProcesses) {
+            for (SshCommandProcess process : activeProcesses) {
+                process.close();
+            }
+        }
+    }
+
+    /**
+     * Parses the NUL-separated {@code %y %s %P} records printed by the listing command.
+     *
+     * @param in the output of the listing command
+     * @return the parsed entries, or null if the end marker was never read
+     * @throws IOException if the output cannot be read
+     */
+    static List<Entry> parseListing(InputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        BufferedInputStream bin = new BufferedInputStream(in, BUFFER_SIZE);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = bin.read()) != -1) {
+            if (b != 0) {
+                record.write(b);
+                continue;
+            }
+
+            String line = new String(record.toByteArray(), StandardCharsets.UTF_8);
+            record.reset();
+
+            if (line.equals(MANIFEST_END_MARKER)) {
+                return entries;
+            }
+
+            String[] fields = line.split(" ", 3);
+            if (fields.length < 3 || fields[0].length() != 1 || StringUtils.isEmpty(fields[2])) {
+                continue;
+            }
+
+            try {
+                entries.add(new Entry(fields[2], fields[0].charAt(0), Long.parseLong(fields[1])));
+            } catch (NumberFormatException e) {
+                log.debug("Skipping unparseable listing record: " + line);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the excluded paths, and everything beneath them, from a listing.
+     *
+     * @param entries the listing of the source directory
+     * @param srcPath the agave path of the source directory
+     * @param exclusions paths, absolute or relative to {@code srcPath}, to remove
+     * @return the entries that are not excluded
+     */
+    static List<Entry> filterExclusions(List<Entry> entries, String srcPath, List<String> exclusions) {
+        if (exclusions == null || exclusions.isEmpty()) return entries;
+
+        String prefix = StringUtils.removeEnd(srcPath, "/") + "/";
+        Set<String> excluded = new HashSet<String>();
+        for (String exclusion : exclusions) {
+            String relativePath = StringUtils.startsWith(exclusion, prefix) ? exclusion.substring(prefix.length()) : exclusion;
+            relativePath = StringUtils.strip(relativePath, "/");
+            if (StringUtils.isNotEmpty(relativePath)) {
+                excluded.add(relativePath);
+            }
+        }
+
+        List<Entry> filtered = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            boolean skip = false;
+            String candidate = entry.getPath();
+            while (!skip && StringUtils.isNotEmpty(candidate)) {
+                skip = excluded.contains(candidate);
+                int lastSlash = candidate.lastIndexOf('/');
+                candidate = lastSlash == -1 ? "" : candidate.substring(0, lastSlash);
+            }
+            if (!skip) filtered.add(entry);
+        }
+        return filtered;
+    }
+
+    private SshCommandProcess start(MaverickSFTP client, String command) throws RemoteDataException {
+        try {
+            SshCommandProcess process = startCommand(client, command);
+            activeProcesses.add(process);
+            return process;
+        } catch (RemoteExecutionException e) {
+            throw new RemoteDataException("Failed to start remote command on " + client.getHost(), e);
+        }
+    }
+
+    /**
+     * @return how often the bytes streamed so far are reported while the stream runs
+     */
+    protected long getProgressIntervalMillis() {
+        return PROGRESS_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Starts a command on the host of the given client over a dedicated SSH connection.
+     *
+     * @param client the client to the host on which to run the command
+     * @param command the command to run
+     * @return the running command
+     * @throws RemoteExecutionException if the command cannot be started
+     */
+    protected SshCommandProcess startCommand(MaverickSFTP client, String command) throws RemoteExecutionException {
+        return client.getSubmissionClient().startCommand(command);
+    }
+
+    private void release(SshCommandProcess process) {
+        if (process != null) {
+            activeProcesses.remove(process);
+            process.close();
+        }
+    }
+
+    private void checkKilled() throws ClosedByInterruptException {
+        if (killed.getAsBoolean()) {
+            throw new ClosedByInterruptException();
+        }
+    }
+
+    /**
+     * Writes the entry names to tar on the source host. Names are prefixed with
+     * {@code ./} so that none can be mistaken for a tar option.
+     */
+    private Callable<Void> writeNames(SshCommandProcess source, List<Entry> entries) {
+        return () -> {
+            OutputStream out = new BufferedOutputStream(source.getOutputStream(), BUFFER_SIZE);
+            for (Entry entry : entries) {
+                out.write(("./" + entry.getPath()).getBytes(StandardCharsets.UTF_8));
+                out.write(0);
+            }
+            out.flush();
+            source.closeInput();
+            return null;
+        };
+    }
+
+    /**
+     * Reads a stream to the end, keeping only its last few kilobytes.
+     */
+    private Callable<String> tail(InputStream in) {
+        return () -> {
+            StringBuilder sb = new StringBuilder();
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+                if (sb.length() > MAX_ERROR_OUTPUT_LENGTH) {
+                    sb.delete(0, sb.length() - MAX_ERROR_OUTPUT_LENGTH);
+                }
+            }
+            return sb.toString();
+        };
+    }
+
+    private String getQuietly(Future<String> output) {
+        try {
+            return StringUtils.trimToEmpty(output.get(5, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static String quote(String path) {
+        return "'" + StringUtils.replace(path, "'", "'\\''") + "'";
+    }
+}
@@ -17,13 +17,16 @@ import org.iplantc.service.transfer.local.Local;
 import org.iplantc.service.transfer.model.Range;
 import org.iplantc.service.transfer.model.TransferTask;
 import org.iplantc.service.transfer.model.enumerations.TransferStatusType;
+import org.iplantc.service.transfer.sftp.MaverickSFTP;
 
 import java.io.*;
 import java.net.URI;
 import java.nio.channels.ClosedByInterruptException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -40,6 +43,7 @@ public class URLCopy {
     private final RemoteDataClient sourceClient;
     private final RemoteDataClient destClient;
     private final AtomicBoolean killed = new AtomicBoolean(false);
+    private volatile TarStreamTransfer activeTarStream;
 
     public URLCopy(RemoteDataClient sourceClient, RemoteDataClient destClient) {
         this.sourceClient = sourceClient;
@@ -58,6 +62,10 @@ public class URLCopy {
      */
     public synchronized void setKilled(boolean killed) {
         this.killed.set(killed);
+        TarStreamTransfer tarStream = activeTarStream;
+        if (killed && tarStream != null) {
+            tarStream.kill();
+        }
         if ((sourceClient instanceof GridFTP) && (destClient instanceof GridFTP)) {
             try {
                 ((GridFTP) sourceClient).abort();
@@ -122,6 +130,20 @@ public class URLCopy {
      */
     public TransferTask copy(String srcPath, String destPath, TransferTask transferTask, List<String> exclusions)
             throws RemoteDataException, RemoteDataSyntaxException, IOException, TransferException, ClosedByInterruptException {
+        return copy(srcPath, destPath, transferTask, exclusions, true);
+    }
+
+    /**
+     * Copies one file item to another. A directory is only streamed as a tar archive when
+     * {@code allowTarStream} is true, so the stream is attempted once for the directory
+     * requested by the caller rather than again for every subdirectory after it falls back
+     * to per-file copies.
+     *
+     * @param allowTarStream whether a directory may be copied as a single tar stream
+     * @see #copy(String, String, TransferTask, List)
+     */
+    private TransferTask copy(String srcPath, String destPath, TransferTask transferTask, List<String> exclusions, boolean allowTarStream)
+            throws RemoteDataException, RemoteDataSyntaxException, IOException, TransferException, ClosedByInterruptException {
         if (transferTask == null) {
             throw new TransferException("TransferTask cannot be null. Please provide"
                     + "a valid transfer task to track this operation.");
@@ -218,6 +240,14 @@ public class URLCopy {
                     return transferTask;
                 } else { // source and dest directories are different
 
+                    // many small files between ssh hosts move far faster as a single tar stream
+                    if (allowTarStream && TarStreamTransfer.isSupported(sourceClient, destClient)) {
+                        TransferTask streamedTask = tarStreamTransfer(srcPath, destPath, transferTask, exclusions);
+                        if (streamedTask != null) {
+                            return streamedTask;
+                        }
+                    }
+
                     // create remote directory if it does not exist
                     if (destFileInfo == null) {
                         destClient.mkdirs(destPath, transferTask.getOwner());
@@ -269,7 +299,7 @@ public class URLCopy {
                         // Recursively copy this file item
                         // TODO: this should be queued up and processed as a list of tasks to avoid the overhead of
                         // queueing up a potentially large tree in memory.
-                        childTransferTask = copy(childSrcPath, childDestPath, childTransferTask);
+                        childTransferTask = copy(childSrcPath, childDestPath, childTransferTask, null, false);
                         childTransferTask = TransferTaskDao.getById(childTransferTask.getId());
 
                         transferTask.updateSummaryStats(childTransferTask);
@@ -410,6 +440,129 @@ public class URLCopy {
         }
     }
 
+    /**
+     * Copies a directory between two SSH-capable systems as a single tar stream when the
+     * directory holds enough small files to make per-file transfers inefficient. The
+     * aggregate {@code transferTask} records the totals of the whole directory, along with
+     * the progress of the stream while it runs. A completed child {@link TransferTask} is
+     * recorded for every file in the stream that does not already have one from an earlier
+     * attempt.
+     *
+     * @param srcPath agave path of the source directory
+     * @param destPath agave path of the destination directory
+     * @param transferTask the transfer task tracking the directory copy
+     * @param exclusions blacklist of paths relative to {@code srcPath} not to copy
+     * @return the completed transfer task, or null if the directory should be copied file by file
+     * @throws ClosedByInterruptException if the copy is killed
+     * @throws TransferException if the transfer records cannot be saved
+     */
+    protected TransferTask tarStreamTransfer(String srcPath, String destPath, TransferTask transferTask, List<String> exclusions)
+            throws ClosedByInterruptException, TransferException {
+        TarStreamTransfer tarStream = new TarStreamTransfer((MaverickSFTP) sourceClient, (MaverickSFTP) destClient, this::isKilled);
+        activeTarStream = tarStream;
+        // restored if the stream fails so the per-file copies start from the same totals
+        long originalTotalSize = transferTask.getTotalSize();
+        long originalBytesTransferred = transferTask.getBytesTransferred();
+        try {
+            String resolvedSrcPath = sourceClient.resolvePath(srcPath);
+            String resolvedDestPath = destClient.resolvePath(destPath);
+
+            List<TarStreamTransfer.Entry> entries = tarStream.list(srcPath, resolvedSrcPath, exclusions);
+            if (!TarStreamTransfer.isWorthStreaming(entries)) {
+                return null;
+            }
+
+            long totalFiles = 0;
+            long totalSize = 0;
+            for (TarStreamTransfer.Entry entry : entries) {
+                if (entry.isDirectory()) continue;
+                totalFiles++;
+                totalSize += entry.getSize();
+            }
+
+            Date startTime = new Date();
+            if (transferTask.getStartTime() == null) {
+                transferTask.setStartTime(startTime);
+            }
+            transferTask.setTotalSize(totalSize);
+            transferTask.setBytesTransferred(0);
+
+            final TransferTask streamedTask = transferTask;
+            final long streamedSize = totalSize;
+            long bytes = tarStream.transfer(resolvedSrcPath, resolvedDestPath, entries,
+                    archiveBytes -> updateTarStreamProgress(streamedTask, Math.min(archiveBytes, streamedSize)));
+            Date endTime = new Date();
+
+            String srcUriPrefix = "agave://" + getSystemId(transferTask.getSource()) + "/" + srcPath + File.separator;
+            String destUriPrefix = "agave://" + getSystemId(transferTask.getDest()) + "/" + destPath + File.separator;
+            TransferTask rootTask = transferTask.getRootTask() == null ? transferTask : transferTask.getRootTask();
+
+            // a retry of the same task streams the whole directory again, but files recorded by an
+            // earlier attempt keep their original record
+            Set<String> recordedSources = new HashSet<String>(TransferTaskDao.getChildTransferTaskSources(transferTask.getId()));
+
+            List<TransferTask> childTransferTasks = new ArrayList<TransferTask>();
+            for (TarStreamTransfer.Entry entry : entries) {
+                if (entry.isDirectory() || recordedSources.contains(srcUriPrefix + entry.getPath())) continue;
+
+                TransferTask childTransferTask = new TransferTask(
+                        srcUriPrefix + entry.getPath(),
+                        destUriPrefix + entry.getPath(),
+                        transferTask.getOwner(),
+                        transferTask,
+                        rootTask);
+                childTransferTask.setStatus(TransferStatusType.COMPLETED);
+                childTransferTask.setStartTime(startTime);
+                childTransferTask.setEndTime(endTime);
+                childTransferTask.setTotalFiles(1);
+                childTransferTask.setTotalSize(entry.getSize());
+                childTransferTask.setBytesTransferred(entry.getSize());
+                childTransferTask.updateTransferRate();
+                childTransferTasks.add(childTransferTask);
+            }
+            TransferTaskDao.persistAll(childTransferTasks);
+
+            log.debug("Streamed " + totalFiles + " files (" + bytes + " archive bytes) from " +
+                    sourceClient.getHost() + " to " + destClient.getHost() + " for transfer task " + transferTask.getUuid());
+
+            transferTask.setTotalFiles(totalFiles);
+            transferTask.setTotalSize(totalSize);
+            transferTask.setBytesTransferred(totalSize);
+            transferTask.setEndTime(endTime);
+            transferTask.setStatus(isKilled() ? TransferStatusType.CANCELLED : TransferStatusType.COMPLETED);
+            transferTask.updateTransferRate();
+            TransferTaskDao.persist(transferTask);
+
+            return transferTask;
+        } catch (RemoteDataException | FileNotFoundException e) {
+            log.info("Unable to stream " + srcPath + " as a tar archive for transfer task " +
+                    transferTask.getUuid() + ". Falling back to per-file transfers: " + e.getMessage());
+            transferTask.setTotalSize(originalTotalSize);
+            transferTask.setBytesTransferred(originalBytesTransferred);
+            return null;
+        } finally {
+            activeTarStream = null;
+        }
+    }
+
+    /**
+     * Records the bytes streamed so far on the task of a running tar stream. Failures are
+     * only logged so a stale record cannot abort the stream.
+     *
+     * @param transferTask the transfer task tracking the directory copy
+     * @param bytesTransferred the bytes streamed so far, capped at the size of the directory
+     */
+    private void updateTarStreamProgress(TransferTask transferTask, long bytesTransferred) {
+        transferTask.setBytesTransferred(bytesTransferred);
+        transferTask.setLastUpdated(new Date());
+        transferTask.updateTransferRate();
+        try {
+            TransferTaskDao.updateProgress(transferTask);
+        } catch (Exception e) {
+            log.debug("Unable to update progress of transfer task " + transferTask.getUuid() + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Proxies a file/folder transfer from source to destination by using the underlying
      * {@link RemoteDataClient#get(String, String, RemoteTransferListener)} and {@link RemoteDataClient#put(String, String, RemoteTransferListener)}
@@ -280,6 +280,49 @@ public class TransferTaskDao
 		}
 	}
 	
+	/**
+	 * Saves or updates a batch of {@link TransferTask} in a single transaction. The session
+	 * is flushed and cleared periodically so large batches do not accumulate in memory.
+	 * @param tasks
+	 * @throws TransferException
+	 */
+	public static void persistAll(List<TransferTask> tasks) throws TransferException
+	{
+		if (tasks == null || tasks.isEmpty()) return;
+
+		try
+		{
+			Session session = getSession();
+			Date now = new Date();
+			for (int i = 0; i < tasks.size(); i++)
+			{
+				TransferTask task = tasks.get(i);
+				task.setLastUpdated(now);
+				session.saveOrUpdate(task);
+				if ((i + 1) % 100 == 0) {
+					session.flush();
+					session.clear();
+				}
+			}
+			session.flush();
+		}
+		catch (HibernateException ex)
+		{
+			try
+			{
+				if (HibernateUtil.getSession().isOpen()) {
+					HibernateUtil.rollbackTransaction();
+				}
+			}
+			catch (Exception ignored) {}
+
+			throw new TransferException("Failed to save transfer tasks", ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+
 	/**
 	 * Copy the state of the given object onto the persistent object with the same identifier. 
 	 * If there is no persistent instance currently associated with the session, it will be loaded. 
@@ -740,6 +783,48 @@ public class TransferTaskDao
 		}
 	}
 
+	/**
+	 * Fetches the source of every direct child of a transfer task in a single query.
+	 * 
+	 * @param parentTaskId the id of the parent transfer task
+	 * @return the source uris of the child tasks
+	 * @throws TransferException
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<String> getChildTransferTaskSources(Long parentTaskId) 
+	throws TransferException
+	{
+		try
+		{
+			Session session = getSession();
+			
+			String hql = "select t.source from TransferTask t where t.parentTask.id = :parentid";
+
+			List<String> sources = (List<String>)session.createQuery(hql)
+					.setLong("parentid", parentTaskId)
+					.list();
+			
+			session.flush();
+			
+			return sources;
+		}
+		catch (HibernateException ex)
+		{
+			try
+			{
+				if (HibernateUtil.getSession().isOpen()) {
+					HibernateUtil.rollbackTransaction();
+				}
+			}
+			catch (Exception ignored) {}
+			
+			throw new TransferException(ex);
+		}
+		finally {
+			try { HibernateUtil.commitTransaction(); } catch (Exception ignored) {}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public static TransferTask findRootTransferTaskBySourceDestAndOwner(String srcUri, String destUri, String owner) 
 	throws TransferException
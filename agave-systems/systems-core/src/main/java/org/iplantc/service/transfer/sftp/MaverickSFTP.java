@@ -628,6 +628,17 @@ public final class MaverickSFTP implements RemoteDataClient {
         return retAuth;
     }
 
+    /**
+     * Creates a client that runs remote commands on this host with the same
+     * credentials used for file operations.
+     *
+     * @return a new, unconnected submission client
+     */
+    public MaverickSSHSubmissionClient getSubmissionClient() {
+        return new MaverickSSHSubmissionClient(getHost(), port, username,
+                password, proxyHost, proxyPort, publicKey, privateKey);
+    }
+
     private boolean useTunnel() {
         return (!StringUtils.isBlank(proxyHost));
     }
@@ -0,0 +1,169 @@
+package org.iplantc.service.remote.ssh;
+
+import com.sshtools.ssh2.Ssh2Client;
+import org.iplantc.service.remote.exceptions.RemoteExecutionException;
+import org.iplantc.service.systems.Settings;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups={"unit"})
+public class MaverickSSHSessionManagerTest {
+
+	private int originalMaxChannels;
+	private int originalMaxConnections;
+
+	@BeforeClass
+	protected void beforeClass() {
+		originalMaxChannels = Settings.SSH_SESSION_MAX_CHANNELS;
+		originalMaxConnections = Settings.SSH_SESSION_MAX_CONNECTIONS;
+		Settings.SSH_SESSION_MAX_CHANNELS = 2;
+		Settings.SSH_SESSION_MAX_CONNECTIONS = 2;
+	}
+
+	@AfterClass
+	protected void afterClass() {
+		Settings.SSH_SESSION_MAX_CHANNELS = originalMaxChannels;
+		Settings.SSH_SESSION_MAX_CONNECTIONS = originalMaxConnections;
+	}
+
+	@AfterMethod
+	protected void afterMethod() {
+		MaverickSSHSessionManager.getInstance().closeAll();
+	}
+
+	private Ssh2Client mockClient(boolean connected) {
+		Ssh2Client client = Mockito.mock(Ssh2Client.class);
+		Mockito.when(client.isConnected()).thenReturn(connected);
+		Mockito.when(client.isAuthenticated()).thenReturn(connected);
+		return client;
+	}
+
+	@Test
+	public void acquireReusesConnectionUntilChannelLimit() throws Exception {
+		MaverickSSHSessionManager manager = MaverickSSHSessionManager.getInstance();
+		AtomicInteger connectCount = new AtomicInteger();
+		MaverickSSHSessionManager.ConnectionFactory factory = poolKey -> {
+			connectCount.incrementAndGet();
+			return new PooledSshConnection(poolKey, mockClient(true), null, null);
+		};
+
+		PooledSshConnection first = manager.acquire("user@host:22#reuse", factory);
+		PooledSshConnection second = manager.acquire("user@host:22#reuse", factory);
+		Assert.assertSame(second, first, "Second channel should be multiplexed over the first connection.");
+		Assert.assertEquals(connectCount.get(), 1, "Only one connection should be opened while channels are available.");
+
+		PooledSshConnection third = manager.acquire("user@host:22#reuse", factory);
+		Assert.assertNotSame(third, first, "A new connection should be opened once the channel limit is reached.");
+		Assert.assertEquals(connectCount.get(), 2, "Exactly two connections should have been opened.");
+
+		manager.release(first, true);
+		PooledSshConnection fourth = manager.acquire("user@host:22#reuse", factory);
+		Assert.assertSame(fourth, first, "Released channels should be reused before opening new connections.");
+		Assert.assertEquals(connectCount.get(), 2, "No new connection should be opened when a channel is free.");
+	}
+
+	@Test
+	public void acquireReplacesUnhealthyConnection() throws Exception {
+		MaverickSSHSessionManager manager = MaverickSSHSessionManager.getInstance();
+		Ssh2Client deadClient = mockClient(true);
+		PooledSshConnection stale = new PooledSshConnection("user@host:22#stale", deadClient, null, null);
+
+		PooledSshConnection first = manager.acquire("user@host:22#stale", poolKey -> stale);
+		Assert.assertSame(first, stale);
+		manager.release(first, true);
+
+		// simulate the remote end dropping the connection
+		Mockito.when(deadClient.isConnected()).thenReturn(false);
+
+		PooledSshConnection replacement = manager.acquire("user@host:22#stale",
+				poolKey -> new PooledSshConnection(poolKey, mockClient(true), null, null));
+		Assert.assertNotSame(replacement, stale, "A dropped connection should be replaced with a new one.");
+		Mockito.verify(deadClient).disconnect();
+	}
+
+	@Test
+	public void releaseUnhealthyDisconnectsConnection() throws Exception {
+		MaverickSSHSessionManager manager = MaverickSSHSessionManager.getInstance();
+		Ssh2Client client = mockClient(true);
+
+		PooledSshConnection connection = manager.acquire("user@host:22#failed",
+				poolKey -> new PooledSshConnection(poolKey, client, null, null));
+		manager.release(connection, false);
+
+		Assert.assertTrue(connection.isInvalidated(), "Connection released as unhealthy should be invalidated.");
+		Mockito.verify(client).disconnect();
+		Assert.assertEquals(manager.getConnectionCount(), 0, "Invalidated connections should be removed from the pool.");
+	}
+
+	@Test
+	public void slowLoginDoesNotBlockCallersOfExistingConnections() throws Exception {
+		MaverickSSHSessionManager manager = MaverickSSHSessionManager.getInstance();
+		PooledSshConnection first = manager.acquire("user@host:22#slow",
+				poolKey -> new PooledSshConnection(poolKey, mockClient(true), null, null));
+		manager.acquire("user@host:22#slow", poolKey -> { throw new AssertionError("Channel should be free"); });
+
+		CountDownLatch connecting = new CountDownLatch(1);
+		CountDownLatch loggedIn = new CountDownLatch(1);
+		CompletableFuture<PooledSshConnection> slow = CompletableFuture.supplyAsync(() -> {
+			try {
+				return manager.acquire("user@host:22#slow", poolKey -> {
+					connecting.countDown();
+					try {
+						loggedIn.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return new PooledSshConnection(poolKey, mockClient(true), null, null);
+				});
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		try {
+			Assert.assertTrue(connecting.await(5, TimeUnit.SECONDS), "The second connection should be opening.");
+			manager.release(first, true);
+
+			CompletableFuture<PooledSshConnection> waiting = CompletableFuture.supplyAsync(() -> {
+				try {
+					return manager.acquire("user@host:22#slow", poolKey -> { throw new AssertionError("Channel should be free"); });
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			});
+			Assert.assertSame(waiting.get(5, TimeUnit.SECONDS), first,
+					"A released channel should be handed out while another connection is still logging in.");
+		} finally {
+			loggedIn.countDown();
+		}
+		Assert.assertNotSame(slow.get(5, TimeUnit.SECONDS), first);
+		Assert.assertEquals(manager.getConnectionCount(), 2);
+	}
+
+	@Test
+	public void emptyPoolsAreRemoved() throws Exception {
+		MaverickSSHSessionManager manager = MaverickSSHSessionManager.getInstance();
+		PooledSshConnection connection = manager.acquire("user@host:22#empty",
+				poolKey -> new PooledSshConnection(poolKey, mockClient(true), null, null));
+		Assert.assertEquals(manager.getPoolCount(), 1);
+
+		manager.release(connection, false);
+		Assert.assertEquals(manager.getPoolCount(), 0, "A pool should be removed once its last connection is gone.");
+
+		try {
+			manager.acquire("user@host:22#empty", poolKey -> { throw new RemoteExecutionException("unreachable"); });
+			Assert.fail("A failed login should be reported to the caller.");
+		} catch (RemoteExecutionException e) {
+			Assert.assertEquals(manager.getPoolCount(), 0, "A failed login should not leave an empty pool behind.");
+		}
+	}
+}
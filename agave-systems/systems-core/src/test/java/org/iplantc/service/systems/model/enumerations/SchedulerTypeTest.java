@@ -0,0 +1,77 @@
+package org.iplantc.service.systems.model.enumerations;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.iplantc.service.systems.model.enumerations.SchedulerType.*;
+
+/**
+ * Tests the job array methods of {@link SchedulerType} used to submit many jobs as a single
+ * native job array.
+ */
+@Test(groups={"unit"})
+public class SchedulerTypeTest {
+
+    private static final List<SchedulerType> JOB_ARRAY_SCHEDULERS =
+            List.of(SLURM, CUSTOM_SLURM, PBS, CUSTOM_PBS, SGE, CUSTOM_GRIDENGINE);
+
+    @Test
+    public void isJobArraySupportedOnlyForArrayCapableSchedulers() {
+        for (SchedulerType schedulerType: SchedulerType.values()) {
+            Assert.assertEquals(schedulerType.isJobArraySupported(), JOB_ARRAY_SCHEDULERS.contains(schedulerType),
+                    "Unexpected job array support for " + schedulerType);
+        }
+    }
+
+    @DataProvider
+    public static Object[][] jobArrayMethodsProvider() {
+        return new Object[][]{
+                {SLURM, "#SBATCH --array=0-4", "SLURM_ARRAY_TASK_ID", "1234", "1234_3"},
+                {CUSTOM_SLURM, "#SBATCH --array=0-4", "SLURM_ARRAY_TASK_ID", "1234", "1234_3"},
+                {PBS, "#PBS -J 0-4", "PBS_ARRAY_INDEX", "1234[].server", "1234[3].server"},
+                {CUSTOM_PBS, "#PBS -J 0-4", "PBS_ARRAY_INDEX", "1234[].server", "1234[3].server"},
+                {SGE, "#$ -t 1-5", "SGE_TASK_ID", "1234", "1234.3"},
+                {CUSTOM_GRIDENGINE, "#$ -t 1-5", "SGE_TASK_ID", "1234", "1234.3"},
+        };
+    }
+
+    @Test(dataProvider = "jobArrayMethodsProvider")
+    public void jobArrayMethods(SchedulerType schedulerType, String expectedDirective, String expectedTaskIdVariable,
+                                String arrayJobId, String expectedTaskId) {
+        Assert.assertEquals(schedulerType.getJobArrayDirective(5), expectedDirective,
+                "A five task array should span five contiguous task indexes from the first index.");
+        Assert.assertEquals(schedulerType.getJobArrayTaskIdVariable(), expectedTaskIdVariable);
+        Assert.assertEquals(schedulerType.getJobArrayTaskId(arrayJobId, 3), expectedTaskId);
+    }
+
+    @Test
+    public void getJobArrayFirstTaskIndexIsOneBasedOnlyForGridEngine() {
+        Assert.assertEquals(SGE.getJobArrayFirstTaskIndex(), 1);
+        Assert.assertEquals(CUSTOM_GRIDENGINE.getJobArrayFirstTaskIndex(), 1);
+        Assert.assertEquals(SLURM.getJobArrayFirstTaskIndex(), 0);
+        Assert.assertEquals(PBS.getJobArrayFirstTaskIndex(), 0);
+    }
+
+    @Test
+    public void jobArrayMethodsThrowForUnsupportedSchedulers() {
+        for (SchedulerType schedulerType: SchedulerType.values()) {
+            if (schedulerType.isJobArraySupported()) continue;
+
+            try {
+                schedulerType.getJobArrayDirective(2);
+                Assert.fail(schedulerType + " should not provide a job array directive.");
+            } catch (UnsupportedOperationException ignored) {}
+            try {
+                schedulerType.getJobArrayTaskIdVariable();
+                Assert.fail(schedulerType + " should not provide a job array task id variable.");
+            } catch (UnsupportedOperationException ignored) {}
+            try {
+                schedulerType.getJobArrayTaskId("1234", 1);
+                Assert.fail(schedulerType + " should not provide job array task ids.");
+            } catch (UnsupportedOperationException ignored) {}
+        }
+    }
+}
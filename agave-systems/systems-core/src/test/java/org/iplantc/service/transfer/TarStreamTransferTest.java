@@ -0,0 +1,224 @@
+package org.iplantc.service.transfer;
+
+import org.apache.commons.io.FileUtils;
+import org.iplantc.service.remote.ssh.SshCommandProcess;
+import org.iplantc.service.transfer.exceptions.RemoteDataException;
+import org.iplantc.service.transfer.sftp.MaverickSFTP;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+@Test(groups={"unit"})
+public class TarStreamTransferTest {
+
+    /**
+     * Runs the remote command in a local shell instead of over ssh.
+     */
+    private static class LocalCommandProcess extends SshCommandProcess {
+        private final Process process;
+        private final boolean reportExitCode;
+
+        LocalCommandProcess(String command, boolean reportExitCode) throws IOException {
+            super(null, null, command);
+            this.process = new ProcessBuilder("/bin/sh", "-c", command).start();
+            this.reportExitCode = reportExitCode;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return process.getInputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return process.getErrorStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return process.getOutputStream();
+        }
+
+        @Override
+        public void closeInput() throws IOException {
+            process.getOutputStream().close();
+        }
+
+        @Override
+        public Integer waitFor(long timeoutMillis) throws InterruptedException {
+            if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS) || !reportExitCode) return null;
+            return process.exitValue();
+        }
+
+        @Override
+        public void close() {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Tar stream which runs both ends locally and reports progress on every read.
+     */
+    private static class LocalTarStreamTransfer extends TarStreamTransfer {
+        private final boolean reportExitCode;
+
+        LocalTarStreamTransfer(boolean reportExitCode) {
+            super(new MaverickSFTP("localhost", 22, "testuser", "", "/", "/"),
+                    new MaverickSFTP("localhost", 22, "testuser", "", "/", "/"), () -> false);
+            this.reportExitCode = reportExitCode;
+        }
+
+        @Override
+        protected SshCommandProcess startCommand(MaverickSFTP client, String command) {
+            try {
+                return new LocalCommandProcess(command, reportExitCode);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected long getProgressIntervalMillis() {
+            return 0;
+        }
+    }
+
+    private File createSourceDirectory(File testDir) throws IOException {
+        File srcDir = new File(testDir, "src");
+        for (int i = 0; i < 5; i++) {
+            FileUtils.writeStringToFile(new File(srcDir, "output/file " + i + ".txt"), "result " + i, StandardCharsets.UTF_8);
+        }
+        FileUtils.writeStringToFile(new File(srcDir, "logs/job.log"), "excluded", StandardCharsets.UTF_8);
+        new File(srcDir, "empty").mkdirs();
+        return srcDir;
+    }
+
+    private ByteArrayInputStream toListing(String... records) {
+        StringBuilder sb = new StringBuilder();
+        for (String record : records) {
+            sb.append(record).append('\0');
+        }
+        return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> getPaths(List<TarStreamTransfer.Entry> entries) {
+        List<String> paths = new ArrayList<String>();
+        for (TarStreamTransfer.Entry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+
+    @Test
+    public void parseListingReadsEntries() throws IOException {
+        List<TarStreamTransfer.Entry> entries = TarStreamTransfer.parseListing(toListing(
+                "d 4096 output",
+                "f 12 output/result with spaces.txt",
+                "l 6 output/latest",
+                TarStreamTransfer.MANIFEST_END_MARKER));
+
+        assertNotNull(entries, "Completed listing should be parsed.");
+        assertEquals(getPaths(entries), Arrays.asList("output", "output/result with spaces.txt", "output/latest"));
+        assertTrue(entries.get(0).isDirectory());
+        assertEquals(entries.get(1).getSize(), 12);
+        assertEquals(entries.get(2).getType(), 'l');
+    }
+
+    @Test
+    public void parseListingRejectsIncompleteListing() throws IOException {
+        assertNull(TarStreamTransfer.parseListing(toListing("f 12 output/result.txt")),
+                "Listing without an end marker should be rejected.");
+    }
+
+    @Test
+    public void filterExclusionsRemovesExcludedPathsAndChildren() {
+        List<TarStreamTransfer.Entry> entries = Arrays.asList(
+                new TarStreamTransfer.Entry("bin", 'd', 4096),
+                new TarStreamTransfer.Entry("bin/tool", 'f', 10),
+                new TarStreamTransfer.Entry("binary", 'f', 10),
+                new TarStreamTransfer.Entry("data", 'd', 4096),
+                new TarStreamTransfer.Entry("data/input.csv", 'f', 10),
+                new TarStreamTransfer.Entry("data/output.csv", 'f', 10));
+
+        List<TarStreamTransfer.Entry> filtered = TarStreamTransfer.filterExclusions(entries,
+                "jobs/job-1", Arrays.asList("jobs/job-1/bin", "data/input.csv"));
+
+        assertEquals(getPaths(filtered), Arrays.asList("binary", "data", "data/output.csv"),
+                "Absolute and relative exclusions should remove whole path segments only.");
+    }
+
+    @Test
+    public void isWorthStreamingRequiresManySmallFiles() {
+        List<TarStreamTransfer.Entry> smallFiles = new ArrayList<TarStreamTransfer.Entry>();
+        for (int i = 0; i < Settings.TAR_STREAM_MIN_FILE_COUNT; i++) {
+            smallFiles.add(new TarStreamTransfer.Entry("file" + i, 'f', 1024));
+        }
+        assertTrue(TarStreamTransfer.isWorthStreaming(smallFiles), "Many small files should be streamed.");
+
+        List<TarStreamTransfer.Entry> fewFiles = new ArrayList<TarStreamTransfer.Entry>(smallFiles.subList(0, 1));
+        assertFalse(TarStreamTransfer.isWorthStreaming(fewFiles), "Few files should be copied individually.");
+
+        List<TarStreamTransfer.Entry> largeFiles = new ArrayList<TarStreamTransfer.Entry>();
+        for (int i = 0; i < Settings.TAR_STREAM_MIN_FILE_COUNT; i++) {
+            largeFiles.add(new TarStreamTransfer.Entry("file" + i, 'f',
+                    (Settings.TAR_STREAM_MAX_AVERAGE_FILE_SIZE_KB + 1) * 1024));
+        }
+        assertFalse(TarStreamTransfer.isWorthStreaming(largeFiles), "Large files should be copied individually.");
+    }
+
+    @Test
+    public void transferStreamsListedEntriesAndReportsProgress() throws Exception {
+        File testDir = Files.createTempDirectory("tar stream's test").toFile();
+        try {
+            File srcDir = createSourceDirectory(testDir);
+            File destDir = new File(testDir, "dest dir");
+            LocalTarStreamTransfer tarStream = new LocalTarStreamTransfer(true);
+
+            List<TarStreamTransfer.Entry> entries = tarStream.list("jobs/job-1", srcDir.getPath(),
+                    Collections.singletonList("jobs/job-1/logs"));
+            assertFalse(getPaths(entries).contains("logs/job.log"), "Excluded paths should not be listed.");
+
+            final List<Long> progress = new ArrayList<Long>();
+            long bytes = tarStream.transfer(srcDir.getPath(), destDir.getPath(), entries, progress::add);
+
+            assertTrue(bytes > 0, "Archive bytes should be counted.");
+            for (int i = 0; i < 5; i++) {
+                assertEquals(FileUtils.readFileToString(new File(destDir, "output/file " + i + ".txt"), StandardCharsets.UTF_8),
+                        "result " + i, "Streamed files should be unpacked at the destination.");
+            }
+            assertTrue(new File(destDir, "empty").isDirectory(), "Empty directories should be streamed.");
+            assertFalse(new File(destDir, "logs").exists(), "Excluded paths should not be streamed.");
+            assertFalse(progress.isEmpty(), "Progress should be reported while the stream runs.");
+            assertTrue(progress.get(progress.size() - 1) <= bytes);
+        } finally {
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+
+    @Test(expectedExceptions = RemoteDataException.class)
+    public void transferFailsWhenTarReportsNoExitStatus() throws Exception {
+        File testDir = Files.createTempDirectory("tar-stream-test").toFile();
+        try {
+            File srcDir = createSourceDirectory(testDir);
+            LocalTarStreamTransfer tarStream = new LocalTarStreamTransfer(false);
+
+            List<TarStreamTransfer.Entry> entries = tarStream.list("jobs/job-1", srcDir.getPath(), null);
+            tarStream.transfer(srcDir.getPath(), new File(testDir, "dest").getPath(), entries, null);
+        } finally {
+            FileUtils.deleteQuietly(testDir);
+        }
+    }
+}